@@ -23,15 +23,14 @@ import org.apache.iotdb.cluster.rpc.thrift.Node;
 import org.apache.iotdb.cluster.rpc.thrift.RaftNode;
 import org.apache.iotdb.db.query.context.QueryContext;
 
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
 
 public class RemoteQueryContext extends QueryContext {
   /** The remote nodes that are queried in this query, grouped by the header nodes. */
-  private Map<RaftNode, Set<Node>> queriedNodesMap = new HashMap<>();
+  private Map<RaftNode, Set<Node>> queriedNodesMap = new ConcurrentHashMap<>();
   /** The readers constructed locally to respond a remote query. */
   private Set<Long> localReaderIds = new ConcurrentSkipListSet<>();
 
@@ -48,7 +47,7 @@ public class RemoteQueryContext extends QueryContext {
   }
 
   public void registerRemoteNode(Node node, RaftNode header) {
-    queriedNodesMap.computeIfAbsent(header, n -> new HashSet<>()).add(node);
+    queriedNodesMap.computeIfAbsent(header, n -> ConcurrentHashMap.newKeySet()).add(node);
   }
 
   public void registerLocalReader(long readerId) {
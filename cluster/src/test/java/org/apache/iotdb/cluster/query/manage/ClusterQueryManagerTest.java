@@ -103,6 +103,11 @@ public class ClusterQueryManagerTest {
           @Override
           public void skipCurrentFile() {}
 
+          @Override
+          public boolean hasCachedChunk() {
+            return false;
+          }
+
           @Override
           public boolean hasNextChunk() {
             return false;
@@ -121,6 +126,11 @@ public class ClusterQueryManagerTest {
           @Override
           public void skipCurrentChunk() {}
 
+          @Override
+          public boolean hasCachedPage() {
+            return false;
+          }
+
           @Override
           public boolean hasNextPage() {
             return false;
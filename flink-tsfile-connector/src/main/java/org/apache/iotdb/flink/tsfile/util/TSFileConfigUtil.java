@@ -38,6 +38,9 @@ public class TSFileConfigUtil {
     globalConfig.setDfsHaNamenodes(config.getDfsHaNamenodes());
     globalConfig.setDfsNameServices(config.getDfsNameServices());
     globalConfig.setDftSatisfyRate(config.getDftSatisfyRate());
+    globalConfig.setEnableMmapRead(config.isEnableMmapRead());
+    globalConfig.setEnablePageIndex(config.isEnablePageIndex());
+    globalConfig.setEnableRegularTimeIndex(config.isEnableRegularTimeIndex());
     globalConfig.setEndian(config.getEndian());
     globalConfig.setFloatPrecision(config.getFloatPrecision());
     globalConfig.setFreqType(config.getFreqType());
@@ -60,5 +63,7 @@ public class TSFileConfigUtil {
     globalConfig.setTSFileStorageFs(config.getTSFileStorageFs());
     globalConfig.setUseKerberos(config.isUseKerberos());
     globalConfig.setValueEncoder(config.getValueEncoder());
+    globalConfig.setZstdCompressionLevel(config.getZstdCompressionLevel());
+    globalConfig.setZstdDictionarySize(config.getZstdDictionarySize());
   }
 }
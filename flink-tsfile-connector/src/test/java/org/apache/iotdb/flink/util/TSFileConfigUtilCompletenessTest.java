@@ -49,6 +49,9 @@ public class TSFileConfigUtilCompletenessTest {
       "setDfsHaNamenodes",
       "setDfsNameServices",
       "setDftSatisfyRate",
+      "setEnableMmapRead",
+      "setEnablePageIndex",
+      "setEnableRegularTimeIndex",
       "setEndian",
       "setFloatPrecision",
       "setFreqType",
@@ -72,7 +75,9 @@ public class TSFileConfigUtilCompletenessTest {
       "setUseKerberos",
       "setValueEncoder",
       "setFreqEncodingSNR",
-      "setFreqEncodingBlockSize"
+      "setFreqEncodingBlockSize",
+      "setZstdCompressionLevel",
+      "setZstdDictionarySize"
     };
     Set<String> newSetters =
         Arrays.stream(TSFileConfig.class.getMethods())
@@ -32,6 +32,7 @@ import org.apache.iotdb.db.exception.LoadConfigurationException;
 import org.apache.iotdb.db.metadata.LocalSchemaProcessor;
 import org.apache.iotdb.db.service.thrift.impl.InfluxDBServiceImpl;
 import org.apache.iotdb.db.service.thrift.impl.TSServiceImpl;
+import org.apache.iotdb.db.wal.utils.WALBufferType;
 import org.apache.iotdb.db.wal.utils.WALMode;
 import org.apache.iotdb.rpc.RpcTransportFactory;
 import org.apache.iotdb.rpc.RpcUtils;
@@ -166,12 +167,21 @@ public class IoTDBConfig {
   /** Duration a wal flush operation will wait before calling fsync. Unit: millisecond */
   private long fsyncWalDelayInMs = 10;
 
+  /**
+   * Whether to size the wait before each wal fsync from the observed write rate and fsync latency,
+   * in which case fsyncWalDelayInMs is the upper bound of the wait
+   */
+  private boolean enableAdaptiveFsyncWalDelay = false;
+
   /** Max number of wal nodes, each node corresponds to one wal directory */
   private int maxWalNodesNum = 0;
 
   /** Buffer size of each wal node. Unit: byte */
   private int walBufferSize = 16 * 1024 * 1024;
 
+  /** Buffer implementation of each wal node */
+  private WALBufferType walBufferType = WALBufferType.QUEUE;
+
   /** Buffer entry size of each wal buffer. Unit: byte */
   private int walBufferEntrySize = 16 * 1024;
 
@@ -274,6 +284,12 @@ public class IoTDBConfig {
   /** How many threads can concurrently flush. When <= 0, use CPU core number. */
   private int concurrentFlushThread = Runtime.getRuntime().availableProcessors();
 
+  /**
+   * How many threads can encode the columns of one aligned chunk in parallel during flush and
+   * compaction. When <= 0, the columns are encoded sequentially.
+   */
+  private int alignedChunkEncodeThread = 0;
+
   /** How many threads can concurrently execute query statement. When <= 0, use CPU core number. */
   private int concurrentQueryThread = 16;
 
@@ -282,6 +298,12 @@ public class IoTDBConfig {
    */
   private int concurrentSubRawQueryThread = 8;
 
+  /**
+   * How many threads can concurrently aggregate series for aggregation query. When <= 0, use CPU
+   * core number.
+   */
+  private int concurrentSubAggregationThread = 8;
+
   /** Blocking queue size for read task in raw data query. */
   private int rawQueryBlockingQueueCapacity = 5;
 
@@ -297,6 +319,16 @@ public class IoTDBConfig {
   /** Is the write mem control for writing enable. */
   private boolean enableMemControl = true;
 
+  /**
+   * When the write memory is used up, whether to spill the largest series of a working memtable
+   * into a temporary file instead of flushing the whole memtable. Only valid when enableMemControl
+   * is true.
+   */
+  private boolean enableMemTableSeriesSpill = false;
+
+  /** A working memtable is flushed as a whole once its spilled runs exceed this size. */
+  private long maxSpilledSizePerMemTableInByte = 512 * 1024 * 1024L;
+
   /** Is the write ahead log enable. */
   private boolean enableIndex = false;
 
@@ -452,7 +484,13 @@ public class IoTDBConfig {
   private long allocateMemoryForBloomFilterCache = allocateMemoryForRead / 1001;
 
   /** Memory allocated for timeSeriesMetaData cache in read process */
-  private long allocateMemoryForTimeSeriesMetaDataCache = allocateMemoryForRead * 200 / 1001;
+  private long allocateMemoryForTimeSeriesMetaDataCache = allocateMemoryForRead * 180 / 1001;
+
+  /**
+   * Memory allocated for metadataIndexNode cache in read process, which is taken from the share of
+   * timeSeriesMetaData cache
+   */
+  private long allocateMemoryForMetadataIndexNodeCache = allocateMemoryForRead * 20 / 1001;
 
   /** Memory allocated for chunk cache in read process */
   private long allocateMemoryForChunkCache = allocateMemoryForRead * 100 / 1001;
@@ -460,6 +498,15 @@ public class IoTDBConfig {
   /** Whether to enable Last cache */
   private boolean lastCacheEnable = true;
 
+  /**
+   * Whether to cache the aggregation results of series in sealed TsFiles, so that repeated
+   * aggregation queries only read the unsealed TsFiles
+   */
+  private boolean enableQueryResultCache = false;
+
+  /** Max number of series aggregation results in the query result cache */
+  private int queryResultCacheCapacity = 10000;
+
   /** Set true to enable statistics monitor service, false to disable statistics service. */
   private boolean enableStatMonitor = false;
 
@@ -692,6 +739,12 @@ public class IoTDBConfig {
   /** the num of memtable in each storage group */
   private int concurrentWritingTimePartition = 1;
 
+  /**
+   * the num of lock stripes guarding inserts in each data region. Inserts of devices hashed to
+   * different stripes run concurrently. 0 or 1 means all inserts of a data region are serialized.
+   */
+  private int insertLockStripeNum = 0;
+
   /** the default fill interval in LinearFill and PreviousFill, -1 means infinite past time */
   private int defaultFillInterval = -1;
 
@@ -706,6 +759,18 @@ public class IoTDBConfig {
   /** The default value of primitive array size in array pool */
   private int primitiveArraySize = 32;
 
+  /**
+   * Whether to store timestamps and values of non-aligned, non-text series in memtables in direct
+   * memory instead of heap arrays.
+   */
+  private boolean enableOffHeapMemTable = false;
+
+  /**
+   * Max number of distinct values of a non-aligned TEXT series in a memtable that are stored as
+   * dictionary codes. The series falls back to plain storage beyond it. 0 means disabled.
+   */
+  private int textDictionaryThresholdInMemTable = 0;
+
   /** whether enable data partition. If disabled, all data belongs to partition 0 */
   private boolean enablePartition = false;
 
@@ -797,6 +862,12 @@ public class IoTDBConfig {
   /** the size of ioTaskQueue */
   private int ioTaskQueueSizeForFlushing = 10;
 
+  /**
+   * the number of threads encoding chunk groups of one memtable concurrently when flushing, 1 means
+   * encoding all series of the memtable one by one in a single thread
+   */
+  private int encodingThreadNumForFlushing = 1;
+
   /** the number of data regions per user-defined storage group */
   private int dataRegionNum = 1;
 
@@ -946,6 +1017,14 @@ public class IoTDBConfig {
     this.concurrentWritingTimePartition = concurrentWritingTimePartition;
   }
 
+  public int getInsertLockStripeNum() {
+    return insertLockStripeNum;
+  }
+
+  public void setInsertLockStripeNum(int insertLockStripeNum) {
+    this.insertLockStripeNum = insertLockStripeNum;
+  }
+
   public int getDefaultFillInterval() {
     return defaultFillInterval;
   }
@@ -1238,6 +1317,14 @@ public class IoTDBConfig {
     this.concurrentFlushThread = concurrentFlushThread;
   }
 
+  public int getAlignedChunkEncodeThread() {
+    return alignedChunkEncodeThread;
+  }
+
+  void setAlignedChunkEncodeThread(int alignedChunkEncodeThread) {
+    this.alignedChunkEncodeThread = alignedChunkEncodeThread;
+  }
+
   public int getConcurrentQueryThread() {
     return concurrentQueryThread;
   }
@@ -1254,6 +1341,14 @@ public class IoTDBConfig {
     this.concurrentSubRawQueryThread = concurrentSubRawQueryThread;
   }
 
+  public int getConcurrentSubAggregationThread() {
+    return concurrentSubAggregationThread;
+  }
+
+  void setConcurrentSubAggregationThread(int concurrentSubAggregationThread) {
+    this.concurrentSubAggregationThread = concurrentSubAggregationThread;
+  }
+
   public int getRawQueryBlockingQueueCapacity() {
     return rawQueryBlockingQueueCapacity;
   }
@@ -1416,6 +1511,14 @@ public class IoTDBConfig {
     this.walMode = walMode;
   }
 
+  public WALBufferType getWalBufferType() {
+    return walBufferType;
+  }
+
+  public void setWalBufferType(WALBufferType walBufferType) {
+    this.walBufferType = walBufferType;
+  }
+
   public String[] getWalDirs() {
     return walDirs;
   }
@@ -1424,6 +1527,14 @@ public class IoTDBConfig {
     this.walDirs = walDirs;
   }
 
+  public boolean isEnableAdaptiveFsyncWalDelay() {
+    return enableAdaptiveFsyncWalDelay;
+  }
+
+  public void setEnableAdaptiveFsyncWalDelay(boolean enableAdaptiveFsyncWalDelay) {
+    this.enableAdaptiveFsyncWalDelay = enableAdaptiveFsyncWalDelay;
+  }
+
   public long getFsyncWalDelayInMs() {
     return fsyncWalDelayInMs;
   }
@@ -1528,6 +1639,22 @@ public class IoTDBConfig {
     this.mergeIntervalSec = mergeIntervalSec;
   }
 
+  public boolean isEnableOffHeapMemTable() {
+    return enableOffHeapMemTable;
+  }
+
+  public void setEnableOffHeapMemTable(boolean enableOffHeapMemTable) {
+    this.enableOffHeapMemTable = enableOffHeapMemTable;
+  }
+
+  public int getTextDictionaryThresholdInMemTable() {
+    return textDictionaryThresholdInMemTable;
+  }
+
+  public void setTextDictionaryThresholdInMemTable(int textDictionaryThresholdInMemTable) {
+    this.textDictionaryThresholdInMemTable = textDictionaryThresholdInMemTable;
+  }
+
   public double getBufferedArraysMemoryProportion() {
     return bufferedArraysMemoryProportion;
   }
@@ -1706,6 +1833,22 @@ public class IoTDBConfig {
     this.enableMemControl = enableMemControl;
   }
 
+  public boolean isEnableMemTableSeriesSpill() {
+    return enableMemTableSeriesSpill;
+  }
+
+  public void setEnableMemTableSeriesSpill(boolean enableMemTableSeriesSpill) {
+    this.enableMemTableSeriesSpill = enableMemTableSeriesSpill;
+  }
+
+  public long getMaxSpilledSizePerMemTableInByte() {
+    return maxSpilledSizePerMemTableInByte;
+  }
+
+  public void setMaxSpilledSizePerMemTableInByte(long maxSpilledSizePerMemTableInByte) {
+    this.maxSpilledSizePerMemTableInByte = maxSpilledSizePerMemTableInByte;
+  }
+
   public long getMemtableSizeThreshold() {
     return memtableSizeThreshold;
   }
@@ -1802,6 +1945,15 @@ public class IoTDBConfig {
     this.allocateMemoryForBloomFilterCache = allocateMemoryForBloomFilterCache;
   }
 
+  public long getAllocateMemoryForMetadataIndexNodeCache() {
+    return allocateMemoryForMetadataIndexNodeCache;
+  }
+
+  public void setAllocateMemoryForMetadataIndexNodeCache(
+      long allocateMemoryForMetadataIndexNodeCache) {
+    this.allocateMemoryForMetadataIndexNodeCache = allocateMemoryForMetadataIndexNodeCache;
+  }
+
   public long getAllocateMemoryForTimeSeriesMetaDataCache() {
     return allocateMemoryForTimeSeriesMetaDataCache;
   }
@@ -1827,6 +1979,22 @@ public class IoTDBConfig {
     this.lastCacheEnable = lastCacheEnable;
   }
 
+  public boolean isEnableQueryResultCache() {
+    return enableQueryResultCache;
+  }
+
+  public void setEnableQueryResultCache(boolean enableQueryResultCache) {
+    this.enableQueryResultCache = enableQueryResultCache;
+  }
+
+  public int getQueryResultCacheCapacity() {
+    return queryResultCacheCapacity;
+  }
+
+  public void setQueryResultCacheCapacity(int queryResultCacheCapacity) {
+    this.queryResultCacheCapacity = queryResultCacheCapacity;
+  }
+
   public boolean isEnableWatermark() {
     return enableWatermark;
   }
@@ -2427,6 +2595,14 @@ public class IoTDBConfig {
     this.ioTaskQueueSizeForFlushing = ioTaskQueueSizeForFlushing;
   }
 
+  public int getEncodingThreadNumForFlushing() {
+    return encodingThreadNumForFlushing;
+  }
+
+  public void setEncodingThreadNumForFlushing(int encodingThreadNumForFlushing) {
+    this.encodingThreadNumForFlushing = encodingThreadNumForFlushing;
+  }
+
   public String getAdminName() {
     return adminName;
   }
@@ -33,6 +33,7 @@ import org.apache.iotdb.db.exception.BadNodeUrlFormatException;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.qp.utils.DatetimeUtils;
 import org.apache.iotdb.db.service.metrics.MetricsService;
+import org.apache.iotdb.db.wal.utils.WALBufferType;
 import org.apache.iotdb.db.wal.utils.WALMode;
 import org.apache.iotdb.metrics.config.MetricConfigDescriptor;
 import org.apache.iotdb.metrics.config.ReloadLevel;
@@ -227,6 +228,17 @@ public class IoTDBDescriptor {
               properties.getProperty(
                   "enable_last_cache", Boolean.toString(conf.isLastCacheEnabled()))));
 
+      conf.setEnableQueryResultCache(
+          Boolean.parseBoolean(
+              properties.getProperty(
+                  "enable_query_result_cache", Boolean.toString(conf.isEnableQueryResultCache()))));
+
+      conf.setQueryResultCacheCapacity(
+          Integer.parseInt(
+              properties.getProperty(
+                  "query_result_cache_capacity",
+                  Integer.toString(conf.getQueryResultCacheCapacity()))));
+
       initMemoryAllocate(properties);
 
       loadWALProps(properties);
@@ -285,6 +297,18 @@ public class IoTDBDescriptor {
                   "enable_mem_control", Boolean.toString(conf.isEnableMemControl())))));
       logger.info("IoTDB enable memory control: {}", conf.isEnableMemControl());
 
+      conf.setEnableMemTableSeriesSpill(
+          Boolean.parseBoolean(
+              properties.getProperty(
+                  "enable_memtable_series_spill",
+                  Boolean.toString(conf.isEnableMemTableSeriesSpill()))));
+
+      conf.setMaxSpilledSizePerMemTableInByte(
+          Long.parseLong(
+              properties.getProperty(
+                  "max_spilled_size_per_memtable_in_byte",
+                  Long.toString(conf.getMaxSpilledSizePerMemTableInByte()))));
+
       long seqTsFileSize =
           Long.parseLong(
               properties
@@ -337,6 +361,15 @@ public class IoTDBDescriptor {
                   "io_task_queue_size_for_flushing",
                   Integer.toString(conf.getIoTaskQueueSizeForFlushing()))));
 
+      int encodingThreadNumForFlushing =
+          Integer.parseInt(
+              properties.getProperty(
+                  "encoding_thread_num_for_flushing",
+                  Integer.toString(conf.getEncodingThreadNumForFlushing())));
+      if (encodingThreadNumForFlushing > 0) {
+        conf.setEncodingThreadNumForFlushing(encodingThreadNumForFlushing);
+      }
+
       conf.setCompactionScheduleIntervalInMs(
           Long.parseLong(
               properties.getProperty(
@@ -443,6 +476,12 @@ public class IoTDBDescriptor {
         conf.setConcurrentFlushThread(Runtime.getRuntime().availableProcessors());
       }
 
+      conf.setAlignedChunkEncodeThread(
+          Integer.parseInt(
+              properties.getProperty(
+                  "aligned_chunk_encode_thread",
+                  Integer.toString(conf.getAlignedChunkEncodeThread()))));
+
       // start: index parameter setting
       conf.setIndexRootFolder(properties.getProperty("index_root_dir", conf.getIndexRootFolder()));
 
@@ -490,6 +529,16 @@ public class IoTDBDescriptor {
         conf.setConcurrentSubRawQueryThread(Runtime.getRuntime().availableProcessors());
       }
 
+      conf.setConcurrentSubAggregationThread(
+          Integer.parseInt(
+              properties.getProperty(
+                  "concurrent_sub_aggregation_thread",
+                  Integer.toString(conf.getConcurrentSubAggregationThread()))));
+
+      if (conf.getConcurrentSubAggregationThread() <= 0) {
+        conf.setConcurrentSubAggregationThread(Runtime.getRuntime().availableProcessors());
+      }
+
       conf.setRawQueryBlockingQueueCapacity(
           Integer.parseInt(
               properties.getProperty(
@@ -664,6 +713,12 @@ public class IoTDBDescriptor {
                   "concurrent_writing_time_partition",
                   String.valueOf(conf.getConcurrentWritingTimePartition()))));
 
+      // the num of insert lock stripes in each data region
+      conf.setInsertLockStripeNum(
+          Integer.parseInt(
+              properties.getProperty(
+                  "insert_lock_stripe_num", String.valueOf(conf.getInsertLockStripeNum()))));
+
       // the default fill interval in LinearFill and PreviousFill
       conf.setDefaultFillInterval(
           Integer.parseInt(
@@ -686,6 +741,17 @@ public class IoTDBDescriptor {
               properties.getProperty(
                   "primitive_array_size", String.valueOf(conf.getPrimitiveArraySize())))));
 
+      conf.setEnableOffHeapMemTable(
+          Boolean.parseBoolean(
+              properties.getProperty(
+                  "enable_off_heap_memtable", String.valueOf(conf.isEnableOffHeapMemTable()))));
+
+      conf.setTextDictionaryThresholdInMemTable(
+          Integer.parseInt(
+              properties.getProperty(
+                  "text_dictionary_threshold_in_memtable",
+                  String.valueOf(conf.getTextDictionaryThresholdInMemTable()))));
+
       conf.setThriftMaxFrameSize(
           Integer.parseInt(
               properties.getProperty(
@@ -834,6 +900,14 @@ public class IoTDBDescriptor {
           .setTSFileStorageFs(
               FSType.valueOf(
                   properties.getProperty("tsfile_storage_fs", conf.getTsFileStorageFs().name())));
+      TSFileDescriptor.getInstance()
+          .getConfig()
+          .setEnableMmapRead(
+              Boolean.parseBoolean(
+                  properties.getProperty(
+                      "enable_mmap_read",
+                      Boolean.toString(
+                          TSFileDescriptor.getInstance().getConfig().isEnableMmapRead()))));
       TSFileDescriptor.getInstance()
           .getConfig()
           .setCoreSitePath(properties.getProperty("core_site_path", conf.getCoreSitePath()));
@@ -967,6 +1041,12 @@ public class IoTDBDescriptor {
       conf.setFsyncWalDelayInMs(fsyncWalDelayInMs);
     }
 
+    conf.setEnableAdaptiveFsyncWalDelay(
+        Boolean.parseBoolean(
+            properties.getProperty(
+                "enable_adaptive_fsync_wal_delay",
+                Boolean.toString(conf.isEnableAdaptiveFsyncWalDelay()))));
+
     int maxWalNodesNum =
         Integer.parseInt(
             properties.getProperty(
@@ -983,6 +1063,10 @@ public class IoTDBDescriptor {
       conf.setWalBufferSize(walBufferSize);
     }
 
+    conf.setWalBufferType(
+        WALBufferType.valueOf(
+            properties.getProperty("wal_buffer_type", conf.getWalBufferType().toString())));
+
     int walBufferEntrySize =
         Integer.parseInt(
             properties.getProperty(
@@ -1165,6 +1249,22 @@ public class IoTDBDescriptor {
             properties.getProperty(
                 "compressor",
                 TSFileDescriptor.getInstance().getConfig().getCompressor().toString()));
+    TSFileDescriptor.getInstance()
+        .getConfig()
+        .setZstdCompressionLevel(
+            Integer.parseInt(
+                properties.getProperty(
+                    "zstd_compression_level",
+                    Integer.toString(
+                        TSFileDescriptor.getInstance().getConfig().getZstdCompressionLevel()))));
+    TSFileDescriptor.getInstance()
+        .getConfig()
+        .setZstdDictionarySize(
+            Integer.parseInt(
+                properties.getProperty(
+                    "zstd_dictionary_size",
+                    Integer.toString(
+                        TSFileDescriptor.getInstance().getConfig().getZstdDictionarySize()))));
     TSFileDescriptor.getInstance()
         .getConfig()
         .setMaxDegreeOfIndexNode(
@@ -1173,6 +1273,22 @@ public class IoTDBDescriptor {
                     "max_degree_of_index_node",
                     Integer.toString(
                         TSFileDescriptor.getInstance().getConfig().getMaxDegreeOfIndexNode()))));
+    TSFileDescriptor.getInstance()
+        .getConfig()
+        .setEnablePageIndex(
+            Boolean.parseBoolean(
+                properties.getProperty(
+                    "enable_page_index",
+                    Boolean.toString(
+                        TSFileDescriptor.getInstance().getConfig().isEnablePageIndex()))));
+    TSFileDescriptor.getInstance()
+        .getConfig()
+        .setEnableRegularTimeIndex(
+            Boolean.parseBoolean(
+                properties.getProperty(
+                    "enable_regular_time_index",
+                    Boolean.toString(
+                        TSFileDescriptor.getInstance().getConfig().isEnableRegularTimeIndex()))));
   }
 
   // Mqtt related
@@ -1440,8 +1556,12 @@ public class IoTDBDescriptor {
               maxMemoryAvailable * Integer.parseInt(proportions[0].trim()) / proportionSum);
           conf.setAllocateMemoryForChunkCache(
               maxMemoryAvailable * Integer.parseInt(proportions[1].trim()) / proportionSum);
+          // one tenth of the share of TimeSeriesMetadataCache is used for MetadataIndexNodeCache
+          long timeSeriesMetadataMemory =
+              maxMemoryAvailable * Integer.parseInt(proportions[2].trim()) / proportionSum;
+          conf.setAllocateMemoryForMetadataIndexNodeCache(timeSeriesMetadataMemory / 10);
           conf.setAllocateMemoryForTimeSeriesMetaDataCache(
-              maxMemoryAvailable * Integer.parseInt(proportions[2].trim()) / proportionSum);
+              timeSeriesMetadataMemory - timeSeriesMetadataMemory / 10);
           conf.setAllocateMemoryForReadWithoutCache(
               maxMemoryAvailable * Integer.parseInt(proportions[3].trim()) / proportionSum);
         } catch (Exception e) {
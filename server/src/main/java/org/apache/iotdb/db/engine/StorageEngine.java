@@ -58,6 +58,7 @@ import org.apache.iotdb.db.metadata.path.PartialPath;
 import org.apache.iotdb.db.qp.physical.crud.InsertPlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertRowsOfOneDevicePlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertRowsPlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
 import org.apache.iotdb.db.rescon.SystemInfo;
 import org.apache.iotdb.db.service.IoTDB;
@@ -84,6 +85,7 @@ import java.util.Comparator;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -610,6 +612,41 @@ public class StorageEngine implements IService {
     }
   }
 
+  /**
+   * insert rows of multiple devices. The rows are grouped by data region, so that each data region
+   * inserts its rows as a batch. Failures of rows are put into the results of insertRowsPlan.
+   *
+   * @param rowIndexes indexes of the rows to insert in insertRowsPlan
+   * @throws StorageEngineException if the whole batch is rejected
+   */
+  public void insert(InsertRowsPlan insertRowsPlan, List<Integer> rowIndexes)
+      throws StorageEngineException {
+    if (enableMemControl) {
+      try {
+        blockInsertionIfReject(null);
+      } catch (WriteProcessException e) {
+        throw new StorageEngineException(e);
+      }
+    }
+
+    Map<DataRegion, List<Integer>> dataRegionToRowIndexes = new LinkedHashMap<>();
+    for (int i : rowIndexes) {
+      InsertRowPlan insertRowPlan = insertRowsPlan.getInsertRowPlanList().get(i);
+      try {
+        DataRegion dataRegion = getProcessor(insertRowPlan.getDevicePath());
+        getSeriesSchemas(insertRowPlan, dataRegion);
+        insertRowPlan.transferType();
+        dataRegionToRowIndexes.computeIfAbsent(dataRegion, k -> new ArrayList<>()).add(i);
+      } catch (StorageEngineException | MetadataException | QueryProcessException e) {
+        insertRowsPlan.getResults().put(i, RpcUtils.getStatus(e.getErrorCode(), e.getMessage()));
+      }
+    }
+
+    for (Entry<DataRegion, List<Integer>> entry : dataRegionToRowIndexes.entrySet()) {
+      entry.getKey().insert(insertRowsPlan, entry.getValue());
+    }
+  }
+
   public void insert(InsertRowsOfOneDevicePlan insertRowsOfOneDevicePlan)
       throws StorageEngineException, MetadataException {
     if (enableMemControl) {
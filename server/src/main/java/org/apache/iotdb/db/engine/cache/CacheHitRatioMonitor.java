@@ -130,6 +130,16 @@ public class CacheHitRatioMonitor implements CacheHitRatioMonitorMXBean, IServic
     return BloomFilterCache.getInstance().getAverageSize();
   }
 
+  @Override
+  public double getQueryResultHitRatio() {
+    return QueryResultCache.getInstance().calculateQueryResultHitRatio();
+  }
+
+  @Override
+  public long getQueryResultCacheEvictionCount() {
+    return QueryResultCache.getInstance().getEvictionCount();
+  }
+
   public static CacheHitRatioMonitor getInstance() {
     return instance;
   }
@@ -50,6 +50,10 @@ public interface CacheHitRatioMonitorMXBean {
 
   long getBloomFilterCacheAverageSize();
 
+  double getQueryResultHitRatio();
+
+  long getQueryResultCacheEvictionCount();
+
   long getTotalMemTableSize();
 
   double getFlushThershold();
@@ -31,6 +31,7 @@ import org.apache.iotdb.metrics.utils.MetricLevel;
 import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
 import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
 import org.apache.iotdb.tsfile.read.common.Chunk;
+import org.apache.iotdb.tsfile.read.reader.page.PageBufferPool;
 import org.apache.iotdb.tsfile.utils.RamUsageEstimator;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
@@ -79,7 +80,8 @@ public class ChunkCache {
                     TsFileSequenceReader reader =
                         FileReaderManager.getInstance()
                             .get(chunkMetadata.getFilePath(), chunkMetadata.isClosed());
-                    return reader.readMemChunk(chunkMetadata);
+                    // a chunk read from a mapped TsFile must outlive the reader in the cache
+                    return reader.readMemChunk(chunkMetadata).toHeapChunk();
                   } catch (IOException e) {
                     logger.error("Something wrong happened in reading {}", chunkMetadata, e);
                     throw e;
@@ -97,6 +99,24 @@ public class ChunkCache {
               l -> (long) (l.stats().hitRate() * 100),
               Tag.NAME.toString(),
               "chunk");
+      MetricsService.getInstance()
+          .getMetricManager()
+          .getOrCreateAutoGauge(
+              Metric.PAGE_BUFFER.toString(),
+              MetricLevel.IMPORTANT,
+              PageBufferPool.getInstance(),
+              PageBufferPool::getRequestedBytes,
+              Tag.TYPE.toString(),
+              "uncompressed");
+      MetricsService.getInstance()
+          .getMetricManager()
+          .getOrCreateAutoGauge(
+              Metric.PAGE_BUFFER.toString(),
+              MetricLevel.IMPORTANT,
+              PageBufferPool.getInstance(),
+              PageBufferPool::getAllocatedBytes,
+              Tag.TYPE.toString(),
+              "allocated");
     }
   }
 
@@ -114,11 +134,7 @@ public class ChunkCache {
           FileReaderManager.getInstance()
               .get(chunkMetaData.getFilePath(), chunkMetaData.isClosed());
       Chunk chunk = reader.readMemChunk(chunkMetaData);
-      return new Chunk(
-          chunk.getHeader(),
-          chunk.getData().duplicate(),
-          chunkMetaData.getDeleteIntervalList(),
-          chunkMetaData.getStatistics());
+      return copyOf(chunk, chunkMetaData);
     }
 
     Chunk chunk = lruCache.get(chunkMetaData);
@@ -127,11 +143,31 @@ public class ChunkCache {
       DEBUG_LOGGER.info("get chunk from cache whose meta data is: " + chunkMetaData);
     }
 
-    return new Chunk(
-        chunk.getHeader(),
-        chunk.getData().duplicate(),
-        chunkMetaData.getDeleteIntervalList(),
-        chunkMetaData.getStatistics());
+    return copyOf(chunk, chunkMetaData);
+  }
+
+  /** @return the cached chunk, or null if it is not in the cache */
+  public Chunk getIfPresent(ChunkMetadata chunkMetaData) {
+    if (!CACHE_ENABLE) {
+      return null;
+    }
+    Chunk chunk = lruCache.getIfPresent(chunkMetaData);
+    if (chunk == null) {
+      return null;
+    }
+    return copyOf(chunk, chunkMetaData);
+  }
+
+  /** a view of the chunk with the deletions and statistics of the given metadata */
+  private static Chunk copyOf(Chunk chunk, ChunkMetadata chunkMetaData) {
+    Chunk copy =
+        new Chunk(
+            chunk.getHeader(),
+            chunk.getData().duplicate(),
+            chunkMetaData.getDeleteIntervalList(),
+            chunkMetaData.getStatistics());
+    copy.setZstdDictionaries(chunk.getZstdDictionaries());
+    return copy;
   }
 
   public double calculateChunkHitRatio() {
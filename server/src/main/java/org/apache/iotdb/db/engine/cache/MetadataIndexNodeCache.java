@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.cache;
+
+import org.apache.iotdb.commons.utils.TestOnly;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.service.metrics.Metric;
+import org.apache.iotdb.db.service.metrics.MetricsService;
+import org.apache.iotdb.db.service.metrics.Tag;
+import org.apache.iotdb.metrics.config.MetricConfigDescriptor;
+import org.apache.iotdb.metrics.utils.MetricLevel;
+import org.apache.iotdb.tsfile.file.metadata.MetadataIndexNode;
+import org.apache.iotdb.tsfile.read.controller.IMetadataIndexNodeCache;
+import org.apache.iotdb.tsfile.utils.RamUsageEstimator;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Weigher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class is used to cache deserialized <code>MetadataIndexNode</code>s of sealed TsFiles in
+ * IoTDB, so that lookups missing {@link TimeSeriesMetadataCache} do not read and deserialize the
+ * index nodes from disk again. It is shared by all readers of sealed TsFiles, see {@link
+ * org.apache.iotdb.db.query.control.FileReaderManager}, which invalidates the nodes of a file when
+ * the file is removed. The nodes outlive the idle readers closed between queries. The caching
+ * strategy is LRU.
+ */
+public class MetadataIndexNodeCache implements IMetadataIndexNodeCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(MetadataIndexNodeCache.class);
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private static final long MEMORY_THRESHOLD_IN_METADATA_INDEX_NODE_CACHE =
+      config.getAllocateMemoryForMetadataIndexNodeCache();
+  private static final boolean CACHE_ENABLE = config.isMetaDataCacheEnable();
+
+  private final Cache<MetadataIndexNodeCacheKey, MetadataIndexNode> lruCache;
+
+  /**
+   * file path -> start offsets of the nodes of the file in the cache, so that the nodes of a file
+   * can be invalidated without scanning the cache. The offset of a node is dropped when the node is
+   * removed from the cache, and so is the file when it has no node left.
+   */
+  private final Map<String, Set<Long>> cachedOffsetsOfFiles = new ConcurrentHashMap<>();
+
+  private MetadataIndexNodeCache() {
+    if (CACHE_ENABLE) {
+      logger.info("MetadataIndexNodeCache size = " + MEMORY_THRESHOLD_IN_METADATA_INDEX_NODE_CACHE);
+    }
+    lruCache =
+        Caffeine.newBuilder()
+            .maximumWeight(MEMORY_THRESHOLD_IN_METADATA_INDEX_NODE_CACHE)
+            .weigher(
+                (Weigher<MetadataIndexNodeCacheKey, MetadataIndexNode>)
+                    (key, metadataIndexNode) ->
+                        (int)
+                            (RamUsageEstimator.shallowSizeOf(key)
+                                + RamUsageEstimator.sizeOf(metadataIndexNode)))
+            .removalListener(
+                (MetadataIndexNodeCacheKey key,
+                    MetadataIndexNode metadataIndexNode,
+                    RemovalCause cause) -> {
+                  if (key != null && cause != RemovalCause.REPLACED) {
+                    removeCachedOffset(key);
+                  }
+                })
+            // drop the offset as soon as the node is removed
+            .executor(Runnable::run)
+            .recordStats()
+            .build();
+
+    // add metrics
+    if (MetricConfigDescriptor.getInstance().getMetricConfig().getEnableMetric()) {
+      MetricsService.getInstance()
+          .getMetricManager()
+          .getOrCreateAutoGauge(
+              Metric.CACHE_HIT.toString(),
+              MetricLevel.IMPORTANT,
+              lruCache,
+              l -> (long) (l.stats().hitRate() * 100),
+              Tag.NAME.toString(),
+              "metadataIndexNode");
+    }
+  }
+
+  public static MetadataIndexNodeCache getInstance() {
+    return MetadataIndexNodeCacheHolder.INSTANCE;
+  }
+
+  public static boolean isCacheEnable() {
+    return CACHE_ENABLE;
+  }
+
+  @Override
+  public MetadataIndexNode get(String filePath, long startOffset) {
+    return lruCache.getIfPresent(new MetadataIndexNodeCacheKey(filePath, startOffset));
+  }
+
+  @Override
+  public void put(String filePath, long startOffset, MetadataIndexNode metadataIndexNode) {
+    cachedOffsetsOfFiles.compute(
+        filePath,
+        (k, offsets) -> {
+          if (offsets == null) {
+            offsets = ConcurrentHashMap.newKeySet();
+          }
+          offsets.add(startOffset);
+          return offsets;
+        });
+    lruCache.put(new MetadataIndexNodeCacheKey(filePath, startOffset), metadataIndexNode);
+  }
+
+  private void removeCachedOffset(MetadataIndexNodeCacheKey key) {
+    cachedOffsetsOfFiles.computeIfPresent(
+        key.filePath,
+        (k, offsets) -> {
+          // the node may have been put again after it was removed
+          if (!lruCache.asMap().containsKey(key)) {
+            offsets.remove(key.startOffset);
+          }
+          return offsets.isEmpty() ? null : offsets;
+        });
+  }
+
+  /** remove the cached nodes of the file */
+  public void invalidate(String filePath) {
+    Set<Long> cachedOffsets = cachedOffsetsOfFiles.remove(filePath);
+    if (cachedOffsets != null) {
+      for (long startOffset : cachedOffsets) {
+        lruCache.invalidate(new MetadataIndexNodeCacheKey(filePath, startOffset));
+      }
+    }
+  }
+
+  public double calculateMetadataIndexNodeHitRatio() {
+    return lruCache.stats().hitRate();
+  }
+
+  public long getEvictionCount() {
+    return lruCache.stats().evictionCount();
+  }
+
+  public long getMaxMemory() {
+    return MEMORY_THRESHOLD_IN_METADATA_INDEX_NODE_CACHE;
+  }
+
+  /** @return the number of files with nodes in the cache */
+  @TestOnly
+  public int getCachedFileNum() {
+    return cachedOffsetsOfFiles.size();
+  }
+
+  /** remove a cached node as if it is evicted */
+  @TestOnly
+  public void evict(String filePath, long startOffset) {
+    lruCache.invalidate(new MetadataIndexNodeCacheKey(filePath, startOffset));
+  }
+
+  /** clear LRUCache. */
+  public void clear() {
+    cachedOffsetsOfFiles.clear();
+    lruCache.invalidateAll();
+    lruCache.cleanUp();
+  }
+
+  private static class MetadataIndexNodeCacheKey {
+
+    // There is no need to add this field size while calculating the size of the key, because
+    // filePath is shared by all the keys of the same file.
+    private final String filePath;
+    private final long startOffset;
+
+    private MetadataIndexNodeCacheKey(String filePath, long startOffset) {
+      this.filePath = filePath;
+      this.startOffset = startOffset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      MetadataIndexNodeCacheKey that = (MetadataIndexNodeCacheKey) o;
+      return startOffset == that.startOffset && filePath.equals(that.filePath);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(filePath, startOffset);
+    }
+  }
+
+  /** singleton pattern. */
+  private static class MetadataIndexNodeCacheHolder {
+    private static final MetadataIndexNodeCache INSTANCE = new MetadataIndexNodeCache();
+  }
+}
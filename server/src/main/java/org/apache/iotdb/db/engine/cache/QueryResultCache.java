@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.cache;
+
+import org.apache.iotdb.commons.utils.TestOnly;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.storagegroup.DataVersionTracker;
+import org.apache.iotdb.db.query.aggregation.AggregateResult;
+import org.apache.iotdb.db.service.metrics.Metric;
+import org.apache.iotdb.db.service.metrics.MetricsService;
+import org.apache.iotdb.db.service.metrics.Tag;
+import org.apache.iotdb.db.utils.TimeValuePairUtils;
+import org.apache.iotdb.db.utils.TimeValuePairUtils.Intervals;
+import org.apache.iotdb.metrics.config.MetricConfigDescriptor;
+import org.apache.iotdb.metrics.utils.MetricLevel;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is used to cache the aggregation results of series in sealed TsFiles, so that repeated
+ * aggregation queries only read the unsealed TsFiles. A result is used by queries of another data
+ * version of the virtual storage group only if no change between the versions overlaps the time
+ * range it covers, see {@link DataVersionTracker}. The caching strategy is LRU.
+ */
+public class QueryResultCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(QueryResultCache.class);
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private static final int CACHE_CAPACITY = config.getQueryResultCacheCapacity();
+
+  private final Cache<QueryResultCacheKey, QueryResult> lruCache;
+
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+
+  private QueryResultCache() {
+    if (isCacheEnable()) {
+      logger.info("QueryResultCache capacity = " + CACHE_CAPACITY);
+    }
+    lruCache = Caffeine.newBuilder().maximumSize(CACHE_CAPACITY).recordStats().build();
+
+    // add metrics
+    if (isCacheEnable()
+        && MetricConfigDescriptor.getInstance().getMetricConfig().getEnableMetric()) {
+      MetricsService.getInstance()
+          .getMetricManager()
+          .getOrCreateAutoGauge(
+              Metric.CACHE_HIT.toString(),
+              MetricLevel.IMPORTANT,
+              this,
+              c -> (long) (c.calculateQueryResultHitRatio() * 100),
+              Tag.NAME.toString(),
+              "queryResult");
+      MetricsService.getInstance()
+          .getMetricManager()
+          .getOrCreateAutoGauge(
+              Metric.QUANTITY.toString(),
+              MetricLevel.IMPORTANT,
+              hitCount,
+              AtomicLong::get,
+              Tag.NAME.toString(),
+              "queryResultCacheHit");
+      MetricsService.getInstance()
+          .getMetricManager()
+          .getOrCreateAutoGauge(
+              Metric.QUANTITY.toString(),
+              MetricLevel.IMPORTANT,
+              missCount,
+              AtomicLong::get,
+              Tag.NAME.toString(),
+              "queryResultCacheMiss");
+    }
+  }
+
+  public static QueryResultCache getInstance() {
+    return QueryResultCacheHolder.INSTANCE;
+  }
+
+  public static boolean isCacheEnable() {
+    return config.isEnableQueryResultCache();
+  }
+
+  /**
+   * @param tracker tracks the changes of the data after the version, null if unknown
+   * @return the cached results that are still valid at the data version, or null. They are shared
+   *     by all queries, so they should only be merged into other results.
+   */
+  public List<AggregateResult> get(
+      QueryResultCacheKey key, DataVersionTracker tracker, long dataVersion) {
+    QueryResult queryResult = lruCache.getIfPresent(key);
+    if (queryResult == null
+        || queryResult.dataVersion != dataVersion
+            && (tracker == null
+                || tracker.isChangedSince(
+                    Math.min(queryResult.dataVersion, dataVersion), key.startTime, key.endTime))) {
+      missCount.incrementAndGet();
+      return null;
+    }
+    hitCount.incrementAndGet();
+    return queryResult.results;
+  }
+
+  /** @param results should not be modified after being put */
+  public void put(QueryResultCacheKey key, long dataVersion, List<AggregateResult> results) {
+    // keep the results of the newer data version if they are put concurrently
+    lruCache
+        .asMap()
+        .merge(
+            key,
+            new QueryResult(dataVersion, results),
+            (oldResult, newResult) ->
+                newResult.dataVersion >= oldResult.dataVersion ? newResult : oldResult);
+  }
+
+  public double calculateQueryResultHitRatio() {
+    long hit = hitCount.get();
+    long total = hit + missCount.get();
+    return total == 0 ? 1.0 : (double) hit / total;
+  }
+
+  public long getEvictionCount() {
+    return lruCache.stats().evictionCount();
+  }
+
+  /** clear LRUCache. */
+  public void clear() {
+    lruCache.invalidateAll();
+    lruCache.cleanUp();
+  }
+
+  @TestOnly
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * The key of the aggregation results of one series in the sealed TsFiles, i.e. before the start
+   * time of the unsealed TsFiles.
+   */
+  public static class QueryResultCacheKey {
+
+    private final String seriesPath;
+    private final TSDataType dataType;
+    private final List<String> aggregations;
+    private final String timeFilter;
+    private final long sealedEndTime;
+
+    /** the time range covered by the results, from the time filter and the sealed end time */
+    private final long startTime;
+
+    private final long endTime;
+
+    public QueryResultCacheKey(
+        String seriesPath,
+        TSDataType dataType,
+        List<String> aggregations,
+        Filter timeFilter,
+        long sealedEndTime) {
+      this.seriesPath = seriesPath;
+      this.dataType = dataType;
+      this.aggregations = aggregations;
+      this.timeFilter = String.valueOf(timeFilter);
+      this.sealedEndTime = sealedEndTime;
+
+      Intervals intervals = TimeValuePairUtils.extractTimeInterval(timeFilter);
+      long filterStartTime = Long.MAX_VALUE;
+      long filterEndTime = Long.MIN_VALUE;
+      for (int i = 0; i < intervals.getIntervalSize(); i++) {
+        filterStartTime = Math.min(filterStartTime, intervals.getLowerBound(i));
+        filterEndTime = Math.max(filterEndTime, intervals.getUpperBound(i));
+      }
+      this.startTime = filterStartTime;
+      this.endTime =
+          sealedEndTime == Long.MAX_VALUE
+              ? filterEndTime
+              : Math.min(filterEndTime, sealedEndTime - 1);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      QueryResultCacheKey that = (QueryResultCacheKey) o;
+      return sealedEndTime == that.sealedEndTime
+          && seriesPath.equals(that.seriesPath)
+          && dataType == that.dataType
+          && aggregations.equals(that.aggregations)
+          && timeFilter.equals(that.timeFilter);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(seriesPath, dataType, aggregations, timeFilter, sealedEndTime);
+    }
+  }
+
+  private static class QueryResult {
+
+    private final long dataVersion;
+    private final List<AggregateResult> results;
+
+    private QueryResult(long dataVersion, List<AggregateResult> results) {
+      this.dataVersion = dataVersion;
+      this.results = results;
+    }
+  }
+
+  /** singleton pattern. */
+  private static class QueryResultCacheHolder {
+    private static final QueryResultCache INSTANCE = new QueryResultCache();
+  }
+}
@@ -19,7 +19,6 @@
 
 package org.apache.iotdb.db.engine.cache;
 
-import org.apache.iotdb.commons.conf.IoTDBConstant;
 import org.apache.iotdb.commons.utils.TestOnly;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
@@ -33,6 +32,7 @@ import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
 import org.apache.iotdb.tsfile.file.metadata.TimeseriesMetadata;
 import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
 import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.utils.BlockedBloomFilter;
 import org.apache.iotdb.tsfile.utils.BloomFilter;
 import org.apache.iotdb.tsfile.utils.FilePathUtils;
 import org.apache.iotdb.tsfile.utils.Pair;
@@ -153,8 +153,7 @@ public class TimeSeriesMetadataCache {
       // bloom filter part
       TsFileSequenceReader reader = FileReaderManager.getInstance().get(key.filePath, true);
       BloomFilter bloomFilter = reader.readBloomFilter();
-      if (bloomFilter != null
-          && !bloomFilter.contains(key.device + IoTDBConstant.PATH_SEPARATOR + key.measurement)) {
+      if (bloomFilter != null && !mayContain(bloomFilter, key)) {
         return null;
       }
       TimeseriesMetadata timeseriesMetadata =
@@ -178,14 +177,13 @@ public class TimeSeriesMetadataCache {
         // double check
         timeseriesMetadata = lruCache.getIfPresent(key);
         if (timeseriesMetadata == null) {
-          Path path = new Path(key.device, key.measurement);
           // bloom filter part
           BloomFilter bloomFilter =
               BloomFilterCache.getInstance()
                   .get(new BloomFilterCache.BloomFilterCacheKey(key.filePath), debug);
           if (bloomFilter != null) {
             bloomFilterRequestCount.incrementAndGet();
-            if (!bloomFilter.contains(path.getFullPath())) {
+            if (!mayContain(bloomFilter, key)) {
               bloomFilterPreventCount.incrementAndGet();
               if (debug) {
                 DEBUG_LOGGER.info("TimeSeries meta data {} is filter by bloomFilter!", key);
@@ -194,13 +192,12 @@ public class TimeSeriesMetadataCache {
             }
           }
           TsFileSequenceReader reader = FileReaderManager.getInstance().get(key.filePath, true);
+          // the metadata index of the device is searched once for all sensors of this query
           List<TimeseriesMetadata> timeSeriesMetadataList =
-              reader.readTimeseriesMetadata(path, allSensors);
+              reader.readTimeseriesMetadata(key.device, allSensors);
           // put TimeSeriesMetadata of all sensors used in this query into cache
           for (TimeseriesMetadata metadata : timeSeriesMetadataList) {
-            TimeSeriesMetadataCacheKey k =
-                new TimeSeriesMetadataCacheKey(
-                    key.filePath, key.device, metadata.getMeasurementId());
+            TimeSeriesMetadataCacheKey k = key.withMeasurement(metadata.getMeasurementId());
             if (metadata.getStatistics().getCount() != 0) {
               lruCache.put(k, metadata);
             }
@@ -229,6 +226,21 @@ public class TimeSeriesMetadataCache {
     }
   }
 
+  /**
+   * A blocked bloom filter checks the device before the series, so a device without any series in
+   * the file is pruned by its small device filter, and both are checked with the device hash kept
+   * in the key.
+   *
+   * @return false if the series is definitely not in the file
+   */
+  private static boolean mayContain(BloomFilter bloomFilter, TimeSeriesMetadataCacheKey key) {
+    if (bloomFilter instanceof BlockedBloomFilter) {
+      return ((BlockedBloomFilter) bloomFilter)
+          .containsSeries(key.getDeviceHash(), key.measurement);
+    }
+    return bloomFilter.contains(key.device, key.measurement);
+  }
+
   public double calculateTimeSeriesMetadataHitRatio() {
     return lruCache.stats().hitRate();
   }
@@ -273,6 +285,9 @@ public class TimeSeriesMetadataCache {
     private final long compactionVersion;
     private final String device;
     private final String measurement;
+    // hash of the device for the blocked bloom filter, computed on the first cache miss
+    private long deviceHash;
+    private boolean deviceHashComputed;
 
     public TimeSeriesMetadataCacheKey(String filePath, String device, String measurement) {
       this.filePath = filePath;
@@ -285,6 +300,33 @@ public class TimeSeriesMetadataCache {
       this.measurement = measurement;
     }
 
+    /**
+     * Create a key of another series of the same device in the same file, which reuses the device
+     * hash and the parsed file path.
+     */
+    public TimeSeriesMetadataCacheKey withMeasurement(String measurement) {
+      return new TimeSeriesMetadataCacheKey(this, measurement);
+    }
+
+    private TimeSeriesMetadataCacheKey(TimeSeriesMetadataCacheKey key, String measurement) {
+      this.filePath = key.filePath;
+      this.tsFilePrefixPath = key.tsFilePrefixPath;
+      this.tsFileVersion = key.tsFileVersion;
+      this.compactionVersion = key.compactionVersion;
+      this.device = key.device;
+      this.measurement = measurement;
+      this.deviceHash = key.deviceHash;
+      this.deviceHashComputed = key.deviceHashComputed;
+    }
+
+    long getDeviceHash() {
+      if (!deviceHashComputed) {
+        deviceHash = BlockedBloomFilter.hashDevice(device);
+        deviceHashComputed = true;
+      }
+      return deviceHash;
+    }
+
     @Override
     public boolean equals(Object o) {
       if (this == o) {
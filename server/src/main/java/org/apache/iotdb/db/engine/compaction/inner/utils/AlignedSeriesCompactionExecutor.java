@@ -23,6 +23,7 @@ import org.apache.iotdb.db.engine.compaction.CompactionMetricsManager;
 import org.apache.iotdb.db.engine.compaction.CompactionTaskManager;
 import org.apache.iotdb.db.engine.compaction.constant.CompactionType;
 import org.apache.iotdb.db.engine.compaction.constant.ProcessChunkType;
+import org.apache.iotdb.db.engine.flush.pool.AlignedChunkEncodePoolManager;
 import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
 import org.apache.iotdb.tsfile.file.metadata.AlignedChunkMetadata;
 import org.apache.iotdb.tsfile.file.metadata.IChunkMetadata;
@@ -75,7 +76,9 @@ public class AlignedSeriesCompactionExecutor {
     this.writer = writer;
     this.targetResource = targetResource;
     schemaList = collectSchemaFromAlignedChunkMetadataList(readerAndChunkMetadataList);
-    chunkWriter = new AlignedChunkWriterImpl(schemaList);
+    chunkWriter =
+        new AlignedChunkWriterImpl(
+            schemaList, AlignedChunkEncodePoolManager.getInstance().getExecutor());
   }
 
   /**
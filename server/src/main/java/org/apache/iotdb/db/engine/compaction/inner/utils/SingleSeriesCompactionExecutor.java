@@ -83,7 +83,7 @@ public class SingleSeriesCompactionExecutor {
     this.readerAndChunkMetadataList = readerAndChunkMetadataList;
     this.fileWriter = fileWriter;
     this.schema = measurementSchema;
-    this.chunkWriter = new ChunkWriterImpl(this.schema);
+    this.chunkWriter = new ChunkWriterImpl(this.schema, true);
     this.cachedChunk = null;
     this.cachedChunkMetadata = null;
     this.targetResource = targetResource;
@@ -104,8 +104,10 @@ public class SingleSeriesCompactionExecutor {
         CompactionMetricsManager.recordReadInfo(
             currentChunk.getHeader().getSerializedSize() + currentChunk.getHeader().getDataSize());
 
-        // if this chunk is modified, deserialize it into points
-        if (chunkMetadata.getDeleteIntervalList() != null) {
+        // if this chunk is modified, deserialize it into points. So are chunks that may use zstd
+        // dictionaries, which are not copied between files
+        if (chunkMetadata.getDeleteIntervalList() != null
+            || currentChunk.getZstdDictionaries() != null) {
           processModifiedChunk(currentChunk);
           continue;
         }
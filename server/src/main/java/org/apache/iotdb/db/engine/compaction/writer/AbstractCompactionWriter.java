@@ -23,6 +23,7 @@ import org.apache.iotdb.db.engine.compaction.CompactionMetricsManager;
 import org.apache.iotdb.db.engine.compaction.CompactionTaskManager;
 import org.apache.iotdb.db.engine.compaction.constant.CompactionType;
 import org.apache.iotdb.db.engine.compaction.constant.ProcessChunkType;
+import org.apache.iotdb.db.engine.flush.pool.AlignedChunkEncodePoolManager;
 import org.apache.iotdb.metrics.config.MetricConfigDescriptor;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.utils.Binary;
@@ -63,7 +64,9 @@ public abstract class AbstractCompactionWriter implements AutoCloseable {
   public void startMeasurement(List<IMeasurementSchema> measurementSchemaList, int subTaskId) {
     measurementPointCountArray[subTaskId] = 0;
     if (isAlign) {
-      chunkWriters[subTaskId] = new AlignedChunkWriterImpl(measurementSchemaList);
+      chunkWriters[subTaskId] =
+          new AlignedChunkWriterImpl(
+              measurementSchemaList, AlignedChunkEncodePoolManager.getInstance().getExecutor());
     } else {
       chunkWriters[subTaskId] = new ChunkWriterImpl(measurementSchemaList.get(0), true);
     }
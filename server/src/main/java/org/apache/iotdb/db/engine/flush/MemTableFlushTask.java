@@ -39,15 +39,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * flush task to flush one memtable using a pipeline model to flush, which is sort memtable ->
  * encoding -> write to disk (io task)
+ *
+ * <p>If more than one encoding thread is configured, each chunk group is sorted and encoded by one
+ * of the encoding threads concurrently, while the io task still writes the encoded chunk groups in
+ * device order.
  */
 public class MemTableFlushTask {
 
@@ -55,7 +63,9 @@ public class MemTableFlushTask {
   private static final FlushSubTaskPoolManager SUB_TASK_POOL_MANAGER =
       FlushSubTaskPoolManager.getInstance();
   private static IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
-  private final Future<?> encodingTaskFuture;
+  private static final long IO_TASK_QUEUE_OFFER_TIMEOUT_IN_MS = 100;
+  private final int encodingThreadNum = config.getEncodingThreadNumForFlushing();
+  private final List<Future<?>> encodingTaskFutures = new ArrayList<>();
   private final Future<?> ioTaskFuture;
   private RestorableTsFileIOWriter writer;
 
@@ -69,7 +79,7 @@ public class MemTableFlushTask {
 
   private IMemTable memTable;
 
-  private volatile long memSerializeTime = 0L;
+  private final AtomicLong memSerializeTime = new AtomicLong();
   private volatile long ioTime = 0L;
 
   /**
@@ -82,7 +92,13 @@ public class MemTableFlushTask {
     this.memTable = memTable;
     this.writer = writer;
     this.storageGroup = storageGroup;
-    this.encodingTaskFuture = SUB_TASK_POOL_MANAGER.submit(encodingTask);
+    if (encodingThreadNum > 1) {
+      for (int i = 0; i < encodingThreadNum; i++) {
+        encodingTaskFutures.add(SUB_TASK_POOL_MANAGER.submit(chunkGroupEncodingTask));
+      }
+    } else {
+      encodingTaskFutures.add(SUB_TASK_POOL_MANAGER.submit(encodingTask));
+    }
     this.ioTaskFuture = SUB_TASK_POOL_MANAGER.submit(ioTask);
     LOGGER.debug(
         "flush task of Storage group {} memtable is created, flushing to file {}.",
@@ -101,41 +117,27 @@ public class MemTableFlushTask {
 
     long estimatedTemporaryMemSize = 0L;
     if (config.isEnableMemControl() && SystemInfo.getInstance().isEncodingFasterThanIo()) {
+      // elements of ioTaskQueue are chunk groups if encoded concurrently, otherwise series
+      int taskNum =
+          encodingThreadNum > 1 ? memTable.getMemTableMap().size() : memTable.getSeriesNumber();
       estimatedTemporaryMemSize =
-          memTable.memSize() / memTable.getSeriesNumber() * config.getIoTaskQueueSizeForFlushing();
+          Math.min(
+              memTable.memSize(),
+              memTable.memSize() / taskNum * config.getIoTaskQueueSizeForFlushing());
       SystemInfo.getInstance().applyTemporaryMemoryForFlushing(estimatedTemporaryMemSize);
     }
     long start = System.currentTimeMillis();
-    long sortTime = 0;
-
-    // for map do not use get(key) to iterate
-    for (Map.Entry<IDeviceID, IWritableMemChunkGroup> memTableEntry :
-        memTable.getMemTableMap().entrySet()) {
-      encodingTaskQueue.put(new StartFlushGroupIOTask(memTableEntry.getKey().toStringID()));
 
-      final Map<String, IWritableMemChunk> value = memTableEntry.getValue().getMemChunkMap();
-      for (Map.Entry<String, IWritableMemChunk> iWritableMemChunkEntry : value.entrySet()) {
-        long startTime = System.currentTimeMillis();
-        IWritableMemChunk series = iWritableMemChunkEntry.getValue();
-        /*
-         * sort task (first task of flush pipeline)
-         */
-        series.sortTvListForFlush();
-        sortTime += System.currentTimeMillis() - startTime;
-        encodingTaskQueue.put(series);
-      }
-
-      encodingTaskQueue.put(new EndChunkGroupIoTask());
+    if (encodingThreadNum > 1) {
+      dispatchChunkGroups();
+    } else {
+      dispatchSeries();
     }
-    encodingTaskQueue.put(new TaskEnd());
-    LOGGER.debug(
-        "Storage group {} memtable flushing into file {}: data sort time cost {} ms.",
-        storageGroup,
-        writer.getFile().getName(),
-        sortTime);
 
     try {
-      encodingTaskFuture.get();
+      for (Future<?> encodingTaskFuture : encodingTaskFutures) {
+        encodingTaskFuture.get();
+      }
     } catch (InterruptedException | ExecutionException e) {
       ioTaskFuture.cancel(true);
       throw e;
@@ -153,7 +155,9 @@ public class MemTableFlushTask {
       if (estimatedTemporaryMemSize != 0) {
         SystemInfo.getInstance().releaseTemporaryMemoryForFlushing(estimatedTemporaryMemSize);
       }
-      SystemInfo.getInstance().setEncodingFasterThanIo(ioTime >= memSerializeTime);
+      // the encoding time is shared by all encoding threads
+      SystemInfo.getInstance()
+          .setEncodingFasterThanIo(ioTime >= memSerializeTime.get() / encodingThreadNum);
     }
 
     if (MetricConfigDescriptor.getInstance().getMetricConfig().getEnableMetric()) {
@@ -175,6 +179,74 @@ public class MemTableFlushTask {
         System.currentTimeMillis() - start);
   }
 
+  /** sort all series in the flushing thread and encode them one by one in the encoding task */
+  private void dispatchSeries() throws InterruptedException {
+    long sortTime = 0;
+
+    // for map do not use get(key) to iterate
+    for (Map.Entry<IDeviceID, IWritableMemChunkGroup> memTableEntry :
+        memTable.getMemTableMap().entrySet()) {
+      encodingTaskQueue.put(new StartFlushGroupIOTask(memTableEntry.getKey().toStringID()));
+
+      final Map<String, IWritableMemChunk> value = memTableEntry.getValue().getMemChunkMap();
+      for (Map.Entry<String, IWritableMemChunk> iWritableMemChunkEntry : value.entrySet()) {
+        long startTime = System.currentTimeMillis();
+        IWritableMemChunk series = iWritableMemChunkEntry.getValue();
+        /*
+         * sort task (first task of flush pipeline)
+         */
+        series.sortTvListForFlush();
+        sortTime += System.currentTimeMillis() - startTime;
+        encodingTaskQueue.put(series);
+      }
+
+      encodingTaskQueue.put(new EndChunkGroupIoTask());
+    }
+    encodingTaskQueue.put(new TaskEnd());
+    LOGGER.debug(
+        "Storage group {} memtable flushing into file {}: data sort time cost {} ms.",
+        storageGroup,
+        writer.getFile().getName(),
+        sortTime);
+  }
+
+  /**
+   * hand each chunk group to both the encoding threads and the io task, the io task waits for the
+   * chunk groups to be encoded in device order
+   */
+  private void dispatchChunkGroups() throws InterruptedException, ExecutionException {
+    // for map do not use get(key) to iterate
+    for (Map.Entry<IDeviceID, IWritableMemChunkGroup> memTableEntry :
+        memTable.getMemTableMap().entrySet()) {
+      EncodeChunkGroupTask task =
+          new EncodeChunkGroupTask(
+              memTableEntry.getKey().toStringID(), memTableEntry.getValue().getMemChunkMap());
+      // put into ioTaskQueue first, so that the bounded ioTaskQueue also bounds the number of
+      // chunk groups being encoded
+      putIoTask(task);
+      encodingTaskQueue.put(task);
+    }
+    for (int i = 0; i < encodingThreadNum; i++) {
+      encodingTaskQueue.put(new TaskEnd());
+    }
+    putIoTask(new TaskEnd());
+  }
+
+  /** put a task into ioTaskQueue, fail if the io task has stopped and will never take it */
+  private void putIoTask(Object task) throws InterruptedException, ExecutionException {
+    while (!ioTaskQueue.offer(task, IO_TASK_QUEUE_OFFER_TIMEOUT_IN_MS, TimeUnit.MILLISECONDS)) {
+      if (ioTaskFuture.isDone()) {
+        for (Future<?> encodingTaskFuture : encodingTaskFutures) {
+          encodingTaskFuture.cancel(true);
+        }
+        // throw the exception of the io task
+        ioTaskFuture.get();
+        throw new ExecutionException(
+            new FlushRunTimeException(new IOException("io task stopped unexpectedly")));
+      }
+    }
+  }
+
   /** encoding task (second task of pipeline) */
   private Runnable encodingTask =
       new Runnable() {
@@ -225,7 +297,7 @@ public class MemTableFlushTask {
                 LOGGER.error("Put task into ioTaskQueue Interrupted");
                 Thread.currentThread().interrupt();
               }
-              memSerializeTime += System.currentTimeMillis() - starTime;
+              memSerializeTime.addAndGet(System.currentTimeMillis() - starTime);
             }
           }
           try {
@@ -243,6 +315,28 @@ public class MemTableFlushTask {
         }
       };
 
+  /** encoding task of chunk groups, several of them run concurrently */
+  @SuppressWarnings("squid:S135")
+  private Runnable chunkGroupEncodingTask =
+      () -> {
+        while (true) {
+          Object task;
+          try {
+            task = encodingTaskQueue.take();
+          } catch (InterruptedException e) {
+            LOGGER.error("Take task from encodingTaskQueue Interrupted");
+            Thread.currentThread().interrupt();
+            break;
+          }
+          if (task instanceof TaskEnd) {
+            break;
+          }
+          long starTime = System.currentTimeMillis();
+          ((EncodeChunkGroupTask) task).encode();
+          memSerializeTime.addAndGet(System.currentTimeMillis() - starTime);
+        }
+      };
+
   /** io task (third task of pipeline) */
   @SuppressWarnings("squid:S135")
   private Runnable ioTask =
@@ -260,9 +354,22 @@ public class MemTableFlushTask {
             Thread.currentThread().interrupt();
             break;
           }
+          List<IChunkWriter> chunkWriters = null;
+          if (ioMessage instanceof EncodeChunkGroupTask) {
+            // waiting for the encoding threads is not counted as io time
+            chunkWriters = ((EncodeChunkGroupTask) ioMessage).waitForEncoded();
+          }
           long starTime = System.currentTimeMillis();
           try {
-            if (ioMessage instanceof StartFlushGroupIOTask) {
+            if (chunkWriters != null) {
+              this.writer.startChunkGroup(((EncodeChunkGroupTask) ioMessage).deviceId);
+              for (IChunkWriter chunkWriter : chunkWriters) {
+                chunkWriter.writeToFileWriter(this.writer);
+              }
+              this.writer.setMinPlanIndex(memTable.getMinPlanIndex());
+              this.writer.setMaxPlanIndex(memTable.getMaxPlanIndex());
+              this.writer.endChunkGroup();
+            } else if (ioMessage instanceof StartFlushGroupIOTask) {
               this.writer.startChunkGroup(((StartFlushGroupIOTask) ioMessage).deviceId);
             } else if (ioMessage instanceof TaskEnd) {
               break;
@@ -297,6 +404,52 @@ public class MemTableFlushTask {
     EndChunkGroupIoTask() {}
   }
 
+  /** sort and encode all series of one device, used when encoding chunk groups concurrently */
+  static class EncodeChunkGroupTask {
+
+    private final String deviceId;
+    private final Map<String, IWritableMemChunk> memChunkMap;
+    private final CompletableFuture<List<IChunkWriter>> encodedChunkWriters =
+        new CompletableFuture<>();
+
+    EncodeChunkGroupTask(String deviceId, Map<String, IWritableMemChunk> memChunkMap) {
+      this.deviceId = deviceId;
+      this.memChunkMap = memChunkMap;
+    }
+
+    void encode() {
+      try {
+        List<IChunkWriter> chunkWriters = new ArrayList<>(memChunkMap.size());
+        for (IWritableMemChunk series : memChunkMap.values()) {
+          series.sortTvListForFlush();
+          IChunkWriter seriesWriter = series.createIChunkWriter();
+          series.encode(seriesWriter);
+          seriesWriter.sealCurrentPage();
+          seriesWriter.clearPageWriter();
+          chunkWriters.add(seriesWriter);
+        }
+        encodedChunkWriters.complete(chunkWriters);
+      } catch (
+          @SuppressWarnings("squid:S1181")
+          Throwable e) {
+        // the io task is waiting for this chunk group, it must be notified in any case
+        LOGGER.error("Fail to encode chunk group of device {}.", deviceId, e);
+        encodedChunkWriters.completeExceptionally(e);
+      }
+    }
+
+    List<IChunkWriter> waitForEncoded() {
+      try {
+        return encodedChunkWriters.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new FlushRunTimeException(e);
+      } catch (ExecutionException e) {
+        throw new FlushRunTimeException(e);
+      }
+    }
+  }
+
   static class StartFlushGroupIOTask {
 
     private final String deviceId;
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.flush.pool;
+
+import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.commons.concurrent.ThreadName;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.rescon.AbstractPoolManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Pool to encode the columns of aligned chunks in parallel, shared by flush and compaction. See
+ * {@link org.apache.iotdb.tsfile.write.chunk.AlignedChunkWriterImpl}.
+ */
+public class AlignedChunkEncodePoolManager extends AbstractPoolManager {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AlignedChunkEncodePoolManager.class);
+
+  private final int threadNum =
+      IoTDBDescriptor.getInstance().getConfig().getAlignedChunkEncodeThread();
+
+  private AlignedChunkEncodePoolManager() {}
+
+  public static AlignedChunkEncodePoolManager getInstance() {
+    return AlignedChunkEncodePoolManager.InstanceHolder.instance;
+  }
+
+  /** @return the executor to encode the columns of aligned chunks, or null if it is disabled */
+  public Executor getExecutor() {
+    return pool == null ? null : this::execute;
+  }
+
+  private void execute(Runnable task) {
+    ExecutorService currentPool = pool;
+    if (currentPool == null) {
+      // the writer encodes the columns in the calling thread instead
+      throw new RejectedExecutionException(getName() + " pool is stopped");
+    }
+    currentPool.execute(task);
+  }
+
+  @Override
+  public Logger getLogger() {
+    return LOGGER;
+  }
+
+  @Override
+  public String getName() {
+    return "aligned chunk encode";
+  }
+
+  @Override
+  public void start() {
+    if (pool == null && threadNum > 0) {
+      this.pool =
+          IoTDBThreadPoolFactory.newFixedThreadPool(
+              threadNum, ThreadName.ALIGNED_CHUNK_ENCODE_SERVICE.getName());
+    }
+    LOGGER.info("Aligned chunk encode manager started.");
+  }
+
+  @Override
+  public void stop() {
+    super.stop();
+    LOGGER.info("Aligned chunk encode manager stopped");
+  }
+
+  private static class InstanceHolder {
+
+    private InstanceHolder() {
+      // allowed to do nothing
+    }
+
+    private static AlignedChunkEncodePoolManager instance = new AlignedChunkEncodePoolManager();
+  }
+}
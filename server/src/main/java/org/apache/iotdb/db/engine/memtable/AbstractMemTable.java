@@ -36,6 +36,7 @@ import org.apache.iotdb.db.service.metrics.Metric;
 import org.apache.iotdb.db.service.metrics.MetricsService;
 import org.apache.iotdb.db.service.metrics.Tag;
 import org.apache.iotdb.db.utils.MemUtils;
+import org.apache.iotdb.db.utils.datastructure.TVList;
 import org.apache.iotdb.db.wal.buffer.IWALByteBufferView;
 import org.apache.iotdb.db.wal.utils.WALWriteUtils;
 import org.apache.iotdb.metrics.config.MetricConfigDescriptor;
@@ -49,13 +50,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.DataInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class AbstractMemTable implements IMemTable {
   private static final Logger logger = LoggerFactory.getLogger(AbstractMemTable.class);
@@ -65,7 +69,11 @@ public abstract class AbstractMemTable implements IMemTable {
 
   private static final DeviceIDFactory deviceIDFactory = DeviceIDFactory.getInstance();
 
-  /** DeviceId -> chunkGroup(MeasurementId -> chunk) */
+  /**
+   * DeviceId -> chunkGroup(MeasurementId -> chunk). Inserts of different devices may run
+   * concurrently when the data region stripes its insert lock, so the map and the counters below
+   * are thread-safe.
+   */
   private final Map<IDeviceID, IWritableMemChunkGroup> memTableMap;
 
   /**
@@ -78,18 +86,18 @@ public abstract class AbstractMemTable implements IMemTable {
   private final int avgSeriesPointNumThreshold =
       IoTDBDescriptor.getInstance().getConfig().getAvgSeriesPointNumberThreshold();
   /** memory size of data points, including TEXT values */
-  private long memSize = 0;
+  private final AtomicLong memSize = new AtomicLong();
   /**
    * memory usage of all TVLists memory usage regardless of whether these TVLists are full,
    * including TEXT values
    */
-  private long tvListRamCost = 0;
+  private final AtomicLong tvListRamCost = new AtomicLong();
 
-  private int seriesNumber = 0;
+  private final AtomicInteger seriesNumber = new AtomicInteger();
 
-  private long totalPointsNum = 0;
+  private final AtomicLong totalPointsNum = new AtomicLong();
 
-  private long totalPointsNumThreshold = 0;
+  private final AtomicLong totalPointsNumThreshold = new AtomicLong();
 
   private long maxPlanIndex = Long.MIN_VALUE;
 
@@ -99,10 +107,13 @@ public abstract class AbstractMemTable implements IMemTable {
 
   private final long createdTime = System.currentTimeMillis();
 
+  /** the file of sorted runs spilled from the series, null if never spilled */
+  private MemTableSpillFile spillFile;
+
   private static final String METRIC_POINT_IN = "pointsIn";
 
   public AbstractMemTable() {
-    this.memTableMap = new HashMap<>();
+    this.memTableMap = new ConcurrentHashMap<>();
   }
 
   public AbstractMemTable(Map<IDeviceID, IWritableMemChunkGroup> memTableMap) {
@@ -127,8 +138,8 @@ public abstract class AbstractMemTable implements IMemTable {
         memTableMap.computeIfAbsent(deviceId, k -> new WritableMemChunkGroup());
     for (IMeasurementSchema schema : schemaList) {
       if (!memChunkGroup.contains(schema.getMeasurementId())) {
-        seriesNumber++;
-        totalPointsNumThreshold += avgSeriesPointNumThreshold;
+        seriesNumber.incrementAndGet();
+        totalPointsNumThreshold.addAndGet(avgSeriesPointNumThreshold);
       }
     }
     return memChunkGroup;
@@ -140,14 +151,15 @@ public abstract class AbstractMemTable implements IMemTable {
         memTableMap.computeIfAbsent(
             deviceId,
             k -> {
-              seriesNumber += schemaList.size();
-              totalPointsNumThreshold += ((long) avgSeriesPointNumThreshold) * schemaList.size();
+              seriesNumber.addAndGet(schemaList.size());
+              totalPointsNumThreshold.addAndGet(
+                  ((long) avgSeriesPointNumThreshold) * schemaList.size());
               return new AlignedWritableMemChunkGroup(schemaList);
             });
     for (IMeasurementSchema schema : schemaList) {
       if (!memChunkGroup.contains(schema.getMeasurementId())) {
-        seriesNumber++;
-        totalPointsNumThreshold += avgSeriesPointNumThreshold;
+        seriesNumber.incrementAndGet();
+        totalPointsNumThreshold.addAndGet(avgSeriesPointNumThreshold);
       }
     }
     return memChunkGroup;
@@ -175,13 +187,13 @@ public abstract class AbstractMemTable implements IMemTable {
       schemaList.add(schema);
       dataTypes.add(schema.getType());
     }
-    memSize += MemUtils.getRecordsSize(dataTypes, values, disableMemControl);
+    memSize.addAndGet(MemUtils.getRecordsSize(dataTypes, values, disableMemControl));
     write(insertRowPlan.getDeviceID(), schemaList, insertRowPlan.getTime(), values);
 
     int pointsInserted =
         insertRowPlan.getMeasurements().length - insertRowPlan.getFailedMeasurementNumber();
 
-    totalPointsNum += pointsInserted;
+    totalPointsNum.addAndGet(pointsInserted);
 
     if (MetricConfigDescriptor.getInstance().getMetricConfig().getEnableMetric()) {
       MetricsService.getInstance()
@@ -219,12 +231,12 @@ public abstract class AbstractMemTable implements IMemTable {
       schemaList.add(schema);
       dataTypes.add(schema.getType());
     }
-    memSize += MemUtils.getRecordsSize(dataTypes, values, disableMemControl);
+    memSize.addAndGet(MemUtils.getRecordsSize(dataTypes, values, disableMemControl));
     write(insertRowNode.getDeviceID(), schemaList, insertRowNode.getTime(), values);
 
     int pointsInserted = insertRowNode.getMeasurements().length;
 
-    totalPointsNum += pointsInserted;
+    totalPointsNum.addAndGet(pointsInserted);
 
     if (MetricConfigDescriptor.getInstance().getMetricConfig().getEnableMetric()) {
       MetricsService.getInstance()
@@ -260,8 +272,8 @@ public abstract class AbstractMemTable implements IMemTable {
     if (schemaList.isEmpty()) {
       return;
     }
-    memSize +=
-        MemUtils.getAlignedRecordsSize(dataTypes, insertRowPlan.getValues(), disableMemControl);
+    memSize.addAndGet(
+        MemUtils.getAlignedRecordsSize(dataTypes, insertRowPlan.getValues(), disableMemControl));
     writeAlignedRow(
         insertRowPlan.getDeviceID(),
         schemaList,
@@ -269,7 +281,7 @@ public abstract class AbstractMemTable implements IMemTable {
         insertRowPlan.getValues());
     int pointsInserted =
         insertRowPlan.getMeasurements().length - insertRowPlan.getFailedMeasurementNumber();
-    totalPointsNum += pointsInserted;
+    totalPointsNum.addAndGet(pointsInserted);
 
     if (MetricConfigDescriptor.getInstance().getMetricConfig().getEnableMetric()) {
       MetricsService.getInstance()
@@ -307,15 +319,15 @@ public abstract class AbstractMemTable implements IMemTable {
     if (schemaList.isEmpty()) {
       return;
     }
-    memSize +=
-        MemUtils.getAlignedRecordsSize(dataTypes, insertRowNode.getValues(), disableMemControl);
+    memSize.addAndGet(
+        MemUtils.getAlignedRecordsSize(dataTypes, insertRowNode.getValues(), disableMemControl));
     writeAlignedRow(
         insertRowNode.getDeviceID(),
         schemaList,
         insertRowNode.getTime(),
         insertRowNode.getValues());
     int pointsInserted = insertRowNode.getMeasurements().length;
-    totalPointsNum += pointsInserted;
+    totalPointsNum.addAndGet(pointsInserted);
 
     if (MetricConfigDescriptor.getInstance().getMetricConfig().getEnableMetric()) {
       MetricsService.getInstance()
@@ -335,11 +347,11 @@ public abstract class AbstractMemTable implements IMemTable {
     updatePlanIndexes(insertTabletPlan.getIndex());
     try {
       write(insertTabletPlan, start, end);
-      memSize += MemUtils.getTabletSize(insertTabletPlan, start, end, disableMemControl);
+      memSize.addAndGet(MemUtils.getTabletSize(insertTabletPlan, start, end, disableMemControl));
       int pointsInserted =
           (insertTabletPlan.getDataTypes().length - insertTabletPlan.getFailedMeasurementNumber())
               * (end - start);
-      totalPointsNum += pointsInserted;
+      totalPointsNum.addAndGet(pointsInserted);
       if (MetricConfigDescriptor.getInstance().getMetricConfig().getEnableMetric()) {
         MetricsService.getInstance()
             .getMetricManager()
@@ -361,11 +373,12 @@ public abstract class AbstractMemTable implements IMemTable {
     updatePlanIndexes(insertTabletPlan.getIndex());
     try {
       writeAlignedTablet(insertTabletPlan, start, end);
-      memSize += MemUtils.getAlignedTabletSize(insertTabletPlan, start, end, disableMemControl);
+      memSize.addAndGet(
+          MemUtils.getAlignedTabletSize(insertTabletPlan, start, end, disableMemControl));
       int pointsInserted =
           (insertTabletPlan.getDataTypes().length - insertTabletPlan.getFailedMeasurementNumber())
               * (end - start);
-      totalPointsNum += pointsInserted;
+      totalPointsNum.addAndGet(pointsInserted);
       if (MetricConfigDescriptor.getInstance().getMetricConfig().getEnableMetric()) {
         MetricsService.getInstance()
             .getMetricManager()
@@ -389,9 +402,9 @@ public abstract class AbstractMemTable implements IMemTable {
     updatePlanIndexes(0);
     try {
       write(insertTabletNode, start, end);
-      memSize += MemUtils.getTabletSize(insertTabletNode, start, end, disableMemControl);
+      memSize.addAndGet(MemUtils.getTabletSize(insertTabletNode, start, end, disableMemControl));
       int pointsInserted = insertTabletNode.getDataTypes().length * (end - start);
-      totalPointsNum += pointsInserted;
+      totalPointsNum.addAndGet(pointsInserted);
       if (MetricConfigDescriptor.getInstance().getMetricConfig().getEnableMetric()) {
         MetricsService.getInstance()
             .getMetricManager()
@@ -415,9 +428,10 @@ public abstract class AbstractMemTable implements IMemTable {
     updatePlanIndexes(0);
     try {
       writeAlignedTablet(insertTabletNode, start, end);
-      memSize += MemUtils.getAlignedTabletSize(insertTabletNode, start, end, disableMemControl);
+      memSize.addAndGet(
+          MemUtils.getAlignedTabletSize(insertTabletNode, start, end, disableMemControl));
       int pointsInserted = insertTabletNode.getDataTypes().length * (end - start);
-      totalPointsNum += pointsInserted;
+      totalPointsNum.addAndGet(pointsInserted);
       if (MetricConfigDescriptor.getInstance().getMetricConfig().getEnableMetric()) {
         MetricsService.getInstance()
             .getMetricManager()
@@ -583,12 +597,12 @@ public abstract class AbstractMemTable implements IMemTable {
 
   @Override
   public int getSeriesNumber() {
-    return seriesNumber;
+    return seriesNumber.get();
   }
 
   @Override
   public long getTotalPointsNum() {
-    return totalPointsNum;
+    return totalPointsNum.get();
   }
 
   @Override
@@ -602,25 +616,26 @@ public abstract class AbstractMemTable implements IMemTable {
 
   @Override
   public long memSize() {
-    return memSize;
+    return memSize.get();
   }
 
   @Override
   public boolean reachTotalPointNumThreshold() {
-    if (totalPointsNum == 0) {
+    long pointsNum = totalPointsNum.get();
+    if (pointsNum == 0) {
       return false;
     }
-    return totalPointsNum >= totalPointsNumThreshold;
+    return pointsNum >= totalPointsNumThreshold.get();
   }
 
   @Override
   public void clear() {
     memTableMap.clear();
-    memSize = 0;
-    seriesNumber = 0;
-    totalPointsNum = 0;
-    totalPointsNumThreshold = 0;
-    tvListRamCost = 0;
+    memSize.set(0);
+    seriesNumber.set(0);
+    totalPointsNum.set(0);
+    totalPointsNumThreshold.set(0);
+    tvListRamCost.set(0);
     maxPlanIndex = 0;
     minPlanIndex = 0;
   }
@@ -645,32 +660,33 @@ public abstract class AbstractMemTable implements IMemTable {
     if (memChunkGroup == null) {
       return;
     }
-    totalPointsNum -= memChunkGroup.delete(originalPath, devicePath, startTimestamp, endTimestamp);
+    totalPointsNum.addAndGet(
+        -memChunkGroup.delete(originalPath, devicePath, startTimestamp, endTimestamp));
   }
 
   @Override
   public void addTVListRamCost(long cost) {
-    this.tvListRamCost += cost;
+    this.tvListRamCost.addAndGet(cost);
   }
 
   @Override
   public void releaseTVListRamCost(long cost) {
-    this.tvListRamCost -= cost;
+    this.tvListRamCost.addAndGet(-cost);
   }
 
   @Override
   public long getTVListsRamCost() {
-    return tvListRamCost;
+    return tvListRamCost.get();
   }
 
   @Override
   public void addTextDataSize(long textDataSize) {
-    this.memSize += textDataSize;
+    this.memSize.addAndGet(textDataSize);
   }
 
   @Override
   public void releaseTextDataSize(long textDataSize) {
-    this.memSize -= textDataSize;
+    this.memSize.addAndGet(-textDataSize);
   }
 
   @Override
@@ -688,6 +704,60 @@ public abstract class AbstractMemTable implements IMemTable {
     for (Entry<IDeviceID, IWritableMemChunkGroup> entry : memTableMap.entrySet()) {
       entry.getValue().release();
     }
+    if (spillFile != null) {
+      spillFile.close();
+    }
+  }
+
+  @Override
+  public long spill(File file, long memCostToRelease) throws IOException {
+    MemTableSpill spill = prepareSpill(file, memCostToRelease);
+    if (spill == null) {
+      return 0;
+    }
+    spill.write();
+    return spill.commit();
+  }
+
+  @Override
+  public MemTableSpill prepareSpill(File file, long memCostToRelease) {
+    List<Pair<WritableMemChunk, Long>> memChunks = new ArrayList<>();
+    for (IWritableMemChunkGroup memChunkGroup : memTableMap.values()) {
+      if (memChunkGroup instanceof AlignedWritableMemChunkGroup) {
+        continue;
+      }
+      for (IWritableMemChunk memChunk : memChunkGroup.getMemChunkMap().values()) {
+        WritableMemChunk writableMemChunk = (WritableMemChunk) memChunk;
+        long memCost = writableMemChunk.getMemCost();
+        if (memCost > 0) {
+          memChunks.add(new Pair<>(writableMemChunk, memCost));
+        }
+      }
+    }
+    memChunks.sort(
+        Comparator.comparingLong((Pair<WritableMemChunk, Long> p) -> p.right).reversed());
+
+    if (spillFile == null) {
+      spillFile = new MemTableSpillFile(file);
+    }
+    MemTableSpill spill = new MemTableSpill(this, spillFile);
+    long memCostToSpill = 0;
+    for (Pair<WritableMemChunk, Long> memChunk : memChunks) {
+      if (memCostToSpill >= memCostToRelease) {
+        break;
+      }
+      TVList frozenList = memChunk.left.freezeForSpill();
+      if (frozenList != null) {
+        spill.add(memChunk.left, frozenList, memChunk.right);
+        memCostToSpill += memChunk.right;
+      }
+    }
+    return spill.isEmpty() ? null : spill;
+  }
+
+  @Override
+  public long getSpilledSize() {
+    return spillFile == null ? 0 : spillFile.size();
   }
 
   @Override
@@ -700,7 +770,7 @@ public abstract class AbstractMemTable implements IMemTable {
     return minPlanIndex;
   }
 
-  void updatePlanIndexes(long index) {
+  synchronized void updatePlanIndexes(long index) {
     maxPlanIndex = Math.max(index, maxPlanIndex);
     minPlanIndex = Math.min(index, minPlanIndex);
   }
@@ -751,11 +821,11 @@ public abstract class AbstractMemTable implements IMemTable {
     if (isSignalMemTable()) {
       return;
     }
-    buffer.putInt(seriesNumber);
-    buffer.putLong(memSize);
-    buffer.putLong(tvListRamCost);
-    buffer.putLong(totalPointsNum);
-    buffer.putLong(totalPointsNumThreshold);
+    buffer.putInt(seriesNumber.get());
+    buffer.putLong(memSize.get());
+    buffer.putLong(tvListRamCost.get());
+    buffer.putLong(totalPointsNum.get());
+    buffer.putLong(totalPointsNumThreshold.get());
     buffer.putLong(maxPlanIndex);
     buffer.putLong(minPlanIndex);
 
@@ -770,11 +840,11 @@ public abstract class AbstractMemTable implements IMemTable {
   }
 
   public void deserialize(DataInputStream stream) throws IOException {
-    seriesNumber = stream.readInt();
-    memSize = stream.readLong();
-    tvListRamCost = stream.readLong();
-    totalPointsNum = stream.readLong();
-    totalPointsNumThreshold = stream.readLong();
+    seriesNumber.set(stream.readInt());
+    memSize.set(stream.readLong());
+    tvListRamCost.set(stream.readLong());
+    totalPointsNum.set(stream.readLong());
+    totalPointsNumThreshold.set(stream.readLong());
     maxPlanIndex = stream.readLong();
     minPlanIndex = stream.readLong();
 
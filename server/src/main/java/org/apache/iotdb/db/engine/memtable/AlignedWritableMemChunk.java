@@ -18,6 +18,7 @@
  */
 package org.apache.iotdb.db.engine.memtable;
 
+import org.apache.iotdb.db.engine.flush.pool.AlignedChunkEncodePoolManager;
 import org.apache.iotdb.db.utils.datastructure.AlignedTVList;
 import org.apache.iotdb.db.utils.datastructure.TVList;
 import org.apache.iotdb.db.wal.buffer.IWALByteBufferView;
@@ -244,7 +245,9 @@ public class AlignedWritableMemChunk implements IWritableMemChunk {
   private void sortTVList() {
     // check reference count
     if ((list.getReferenceCount() > 0 && !list.isSorted())) {
-      list = list.clone();
+      AlignedTVList queriedList = list;
+      list = queriedList.cloneOnWrite();
+      queriedList.abandon();
     }
 
     if (!list.isSorted()) {
@@ -279,7 +282,8 @@ public class AlignedWritableMemChunk implements IWritableMemChunk {
 
   @Override
   public IChunkWriter createIChunkWriter() {
-    return new AlignedChunkWriterImpl(schemaList);
+    return new AlignedChunkWriterImpl(
+        schemaList, AlignedChunkEncodePoolManager.getInstance().getExecutor());
   }
 
   @Override
@@ -349,9 +353,7 @@ public class AlignedWritableMemChunk implements IWritableMemChunk {
 
   @Override
   public void release() {
-    if (list.getReferenceCount() == 0) {
-      list.clear();
-    }
+    list.abandon();
   }
 
   @Override
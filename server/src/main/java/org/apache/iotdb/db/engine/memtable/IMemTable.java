@@ -34,6 +34,7 @@ import org.apache.iotdb.db.wal.buffer.WALEntryValue;
 import org.apache.iotdb.tsfile.utils.Pair;
 import org.apache.iotdb.tsfile.write.schema.IMeasurementSchema;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
@@ -165,6 +166,27 @@ public interface IMemTable extends WALEntryValue {
   /** release resource of this memtable */
   void release();
 
+  /**
+   * Spill the largest non-aligned series in memory into a temporary sorted run in the spill file,
+   * until about memCostToRelease bytes of TVLists are released. The runs are merged back when
+   * flushing. Only used when mem control enabled.
+   *
+   * @param spillFile the spill file, used only when this memtable spills the first time
+   * @return the released memory cost of TVLists, including TEXT values
+   */
+  long spill(File spillFile, long memCostToRelease) throws IOException;
+
+  /**
+   * Like {@link #spill(File, long)}, but the chosen series are only frozen, so that the spill file
+   * can be written without blocking writes and queries of this memtable.
+   *
+   * @return the spill to write and commit, null if there is nothing to spill
+   */
+  MemTableSpill prepareSpill(File spillFile, long memCostToRelease);
+
+  /** @return size of the runs spilled into the spill file */
+  long getSpilledSize();
+
   /** must guarantee the device exists in the work memtable only used when mem control enabled */
   boolean checkIfChunkDoesNotExist(IDeviceID deviceId, String measurement);
 
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.memtable;
+
+import org.apache.iotdb.db.engine.memtable.MemTableSpillFile.SpilledRun;
+import org.apache.iotdb.db.utils.datastructure.TVList;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spilling some series of a working memtable in three steps. {@link IMemTable#prepareSpill}
+ * freezes the sorted lists of the series, {@link #write()} writes them into the spill file as runs,
+ * and {@link #commit()} replaces the spilled rows in memory by the runs. Only {@link #write()}
+ * does I/O, so the caller needs to hold the lock of the data region only for the other two steps.
+ */
+public class MemTableSpill {
+
+  private final IMemTable memTable;
+  private final MemTableSpillFile spillFile;
+
+  private final List<WritableMemChunk> memChunks = new ArrayList<>();
+  private final List<TVList> frozenLists = new ArrayList<>();
+  private final List<Long> memCosts = new ArrayList<>();
+
+  /** runs written from the frozen lists, null if not written */
+  private List<SpilledRun> runs;
+
+  MemTableSpill(IMemTable memTable, MemTableSpillFile spillFile) {
+    this.memTable = memTable;
+    this.spillFile = spillFile;
+  }
+
+  void add(WritableMemChunk memChunk, TVList frozenList, long memCost) {
+    memChunks.add(memChunk);
+    frozenLists.add(frozenList);
+    memCosts.add(memCost);
+  }
+
+  boolean isEmpty() {
+    return memChunks.isEmpty();
+  }
+
+  public IMemTable getMemTable() {
+    return memTable;
+  }
+
+  public MemTableSpillFile getSpillFile() {
+    return spillFile;
+  }
+
+  /** write the frozen lists into the spill file, no lock is needed */
+  public void write() throws IOException {
+    List<SpilledRun> writtenRuns = new ArrayList<>(frozenLists.size());
+    for (TVList frozenList : frozenLists) {
+      writtenRuns.add(spillFile.append(frozenList));
+    }
+    runs = writtenRuns;
+  }
+
+  /**
+   * Replace the spilled rows of each series by its run. A series is skipped if its rows in memory
+   * have been sorted or deleted from while being written, since the spilled rows can no longer be
+   * told apart from the new ones. All series are skipped if the runs are not written.
+   *
+   * @return the released memory cost of TVLists, including TEXT values
+   */
+  public long commit() {
+    long releasedMemCost = 0;
+    for (int i = 0; i < memChunks.size(); i++) {
+      if (runs == null) {
+        memChunks.get(i).abortSpill();
+      } else if (memChunks.get(i).commitSpill(spillFile, runs.get(i))) {
+        releasedMemCost += memCosts.get(i);
+      }
+    }
+    return releasedMemCost;
+  }
+
+  /** give up the spill, e.g. the memtable is flushed while the runs are written */
+  public void abort() {
+    for (WritableMemChunk memChunk : memChunks) {
+      memChunk.abortSpill();
+    }
+  }
+}
@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.memtable;
+
+import org.apache.iotdb.db.utils.datastructure.TVList;
+import org.apache.iotdb.db.wal.buffer.IWALByteBufferView;
+import org.apache.iotdb.tsfile.read.common.TimeRange;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An append-only temporary file holding the sorted runs spilled from the series of one working
+ * memtable. The runs are merged with the data left in memory when the memtable is flushed, and the
+ * file is deleted when the memtable is released and no query reads it any more.
+ */
+public class MemTableSpillFile {
+
+  private static final Logger logger = LoggerFactory.getLogger(MemTableSpillFile.class);
+
+  public static final String SPILL_SUFFIX = ".spill";
+
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+  private final File file;
+  private FileChannel channel;
+
+  /** size of the runs appended, including those being written */
+  private long appendedSize;
+
+  /**
+   * Runs are read by positional reads through this stream. It is opened separately from the channel
+   * for writing, so that queries can keep reading the file after the memtable is released.
+   */
+  private FileInputStream readStream;
+
+  /** number of queries that have taken the runs of this file and not released them yet */
+  private int queryReferenceCount;
+
+  /** whether the memtable has been released, then the last query releasing the file deletes it */
+  private boolean closed;
+
+  public MemTableSpillFile(File file) {
+    this.file = file;
+  }
+
+  /**
+   * append a sorted list as a new run, the list is serialized in the format of wal. The monitor of
+   * this file is not held while writing, so that queries taking the runs are not blocked.
+   */
+  public SpilledRun append(TVList sortedList) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(sortedList.serializedSize());
+    sortedList.serializeToWAL(new ByteBufferView(buffer));
+    buffer.flip();
+    int length = buffer.remaining();
+    FileChannel writeChannel;
+    long offset;
+    synchronized (this) {
+      if (closed) {
+        throw new IOException("The memtable spill file " + file + " has been closed");
+      }
+      if (channel == null) {
+        channel =
+            FileChannel.open(
+                file.toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+      }
+      writeChannel = channel;
+      offset = appendedSize;
+      appendedSize += length;
+    }
+    while (buffer.hasRemaining()) {
+      writeChannel.write(buffer, offset + length - buffer.remaining());
+    }
+    return new SpilledRun(
+        offset,
+        length,
+        sortedList.rowCount(),
+        sortedList.getTime(0),
+        sortedList.getTime(sortedList.rowCount() - 1));
+  }
+
+  /** @return a stream of the run in the format of wal, the run is read piece by piece */
+  public InputStream openRun(SpilledRun run) throws IOException {
+    return new BufferedInputStream(
+        new RunInputStream(getReadChannel(), run.offset, run.length),
+        Math.min(run.length, READ_BUFFER_SIZE));
+  }
+
+  private synchronized FileChannel getReadChannel() throws IOException {
+    if (readStream == null) {
+      readStream = new FileInputStream(file);
+    }
+    return readStream.getChannel();
+  }
+
+  /** the runs of this file will be read by a query that may outlive the memtable */
+  public synchronized void retainForQuery() {
+    queryReferenceCount++;
+  }
+
+  /** a query has finished reading the runs, the last one deletes the file if it is closed */
+  public synchronized void releaseForQuery() {
+    queryReferenceCount--;
+    if (queryReferenceCount == 0 && closed) {
+      closeAndDelete();
+    }
+  }
+
+  public synchronized long size() {
+    return appendedSize;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * close the file for writing. The file is deleted at once if no query reads it, otherwise when the
+   * last query releases it.
+   */
+  public synchronized void close() {
+    closed = true;
+    try {
+      if (channel != null) {
+        channel.close();
+        channel = null;
+      }
+    } catch (IOException e) {
+      logger.warn("Fail to close memtable spill file {}", file, e);
+    }
+    if (queryReferenceCount == 0) {
+      closeAndDelete();
+    }
+  }
+
+  private void closeAndDelete() {
+    try {
+      if (readStream != null) {
+        readStream.close();
+        readStream = null;
+      }
+      Files.deleteIfExists(file.toPath());
+    } catch (IOException e) {
+      logger.warn("Fail to delete memtable spill file {}", file, e);
+    }
+  }
+
+  /** position and summary of a sorted run of a series in the spill file */
+  public static class SpilledRun {
+
+    private final long offset;
+    private final int length;
+    private final int rowCount;
+    private final long minTime;
+    private final long maxTime;
+
+    /** deletions of the series after this run was spilled */
+    private final List<TimeRange> deletions = new ArrayList<>();
+
+    /** rows not deleted and their size in wal, -1 if unknown since a deletion */
+    private int liveRowCount;
+
+    private int liveDataSize;
+
+    SpilledRun(long offset, int length, int rowCount, long minTime, long maxTime) {
+      this.offset = offset;
+      this.length = length;
+      this.rowCount = rowCount;
+      this.minTime = minTime;
+      this.maxTime = maxTime;
+      this.liveRowCount = rowCount;
+      // the data type and the row count are not rows
+      this.liveDataSize = length - Byte.BYTES - Integer.BYTES;
+    }
+
+    public int getRowCount() {
+      return rowCount;
+    }
+
+    public long getMinTime() {
+      return minTime;
+    }
+
+    public long getMaxTime() {
+      return maxTime;
+    }
+
+    /** @return a copy of the deletions, which may be added by writers when it is being read */
+    public synchronized List<TimeRange> getDeletions() {
+      return new ArrayList<>(deletions);
+    }
+
+    synchronized void delete(long lowerBound, long upperBound) {
+      if (lowerBound <= maxTime && upperBound >= minTime) {
+        deletions.add(new TimeRange(lowerBound, upperBound));
+        liveRowCount = -1;
+      }
+    }
+
+    synchronized int getLiveRowCount() {
+      return liveRowCount;
+    }
+
+    synchronized int getLiveDataSize() {
+      return liveDataSize;
+    }
+
+    synchronized void setLiveSize(int liveRowCount, int liveDataSize) {
+      this.liveRowCount = liveRowCount;
+      this.liveDataSize = liveDataSize;
+    }
+  }
+
+  /** reads a range of the file by positional reads, which can be done by threads concurrently */
+  private static class RunInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private long position;
+    private final long end;
+
+    private RunInputStream(FileChannel channel, long offset, int length) {
+      this.channel = channel;
+      this.position = offset;
+      this.end = offset + length;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (position >= end) {
+        return -1;
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, end - position));
+      int readBytes = channel.read(buffer, position);
+      if (readBytes < 0) {
+        throw new IOException("Unexpected end of spill file");
+      }
+      position += readBytes;
+      return readBytes;
+    }
+  }
+
+  private static class ByteBufferView implements IWALByteBufferView {
+
+    private final ByteBuffer buffer;
+
+    private ByteBufferView(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public void put(byte b) {
+      buffer.put(b);
+    }
+
+    @Override
+    public void put(byte[] src) {
+      buffer.put(src);
+    }
+
+    @Override
+    public void putChar(char value) {
+      buffer.putChar(value);
+    }
+
+    @Override
+    public void putShort(short value) {
+      buffer.putShort(value);
+    }
+
+    @Override
+    public void putInt(int value) {
+      buffer.putInt(value);
+    }
+
+    @Override
+    public void putLong(long value) {
+      buffer.putLong(value);
+    }
+
+    @Override
+    public void putFloat(float value) {
+      buffer.putFloat(value);
+    }
+
+    @Override
+    public void putDouble(double value) {
+      buffer.putDouble(value);
+    }
+  }
+}
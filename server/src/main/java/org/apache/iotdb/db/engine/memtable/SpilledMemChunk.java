@@ -0,0 +1,571 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.memtable;
+
+import org.apache.iotdb.db.engine.memtable.MemTableSpillFile.SpilledRun;
+import org.apache.iotdb.db.utils.MathUtils;
+import org.apache.iotdb.db.utils.datastructure.TVList;
+import org.apache.iotdb.db.wal.buffer.IWALByteBufferView;
+import org.apache.iotdb.db.wal.utils.WALWriteUtils;
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.read.common.TimeRange;
+import org.apache.iotdb.tsfile.read.reader.IPointReader;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType;
+import org.apache.iotdb.tsfile.write.chunk.ChunkWriterImpl;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The data of a series that is partly spilled into a {@link MemTableSpillFile}. The spilled runs
+ * and the sorted list in memory are merged point by point while they are read, so the spilled data
+ * is never loaded back into memory as a whole. Of the points with the same timestamp, the one of
+ * the newest run wins, and the list in memory is newer than any run.
+ */
+public class SpilledMemChunk {
+
+  private final TSDataType dataType;
+  private final MemTableSpillFile spillFile;
+  /** older runs first */
+  private final List<SpilledRun> runs;
+  /** the sorted data in memory */
+  private final TVList list;
+
+  private final int listSize;
+
+  /** whether the query taking this chunk has released the spill file and the list */
+  private boolean released;
+
+  SpilledMemChunk(
+      TSDataType dataType,
+      MemTableSpillFile spillFile,
+      List<SpilledRun> runs,
+      TVList list,
+      int listSize) {
+    this.dataType = dataType;
+    this.spillFile = spillFile;
+    this.runs = runs;
+    this.list = list;
+    this.listSize = listSize;
+  }
+
+  /**
+   * called when the query taking this chunk ends, so that the spill file can be deleted and the list
+   * can be cleared
+   */
+  public synchronized void release() {
+    if (!released) {
+      released = true;
+      spillFile.releaseForQuery();
+      list.decreaseReferenceCount();
+    }
+  }
+
+  /** write the merged points into a chunk writer */
+  void encode(ChunkWriterImpl chunkWriter) throws IOException {
+    MergeCursor cursor = new MergeCursor();
+    while (cursor.next()) {
+      // store last point for SDT
+      if (!cursor.hasNext()) {
+        chunkWriter.setLastPoint(true);
+      }
+      switch (dataType) {
+        case BOOLEAN:
+          chunkWriter.write(cursor.time, cursor.bits != 0);
+          break;
+        case INT32:
+          chunkWriter.write(cursor.time, (int) cursor.bits);
+          break;
+        case INT64:
+          chunkWriter.write(cursor.time, cursor.bits);
+          break;
+        case FLOAT:
+          chunkWriter.write(cursor.time, Float.intBitsToFloat((int) cursor.bits));
+          break;
+        case DOUBLE:
+          chunkWriter.write(cursor.time, Double.longBitsToDouble(cursor.bits));
+          break;
+        case TEXT:
+          chunkWriter.write(cursor.time, cursor.binary);
+          break;
+        default:
+          throw new UnSupportedDataTypeException("Unsupported data type:" + dataType);
+      }
+    }
+  }
+
+  /** @return a new sorted list of the merged points, for the callers that need a whole list */
+  TVList toTVList() throws IOException {
+    TVList mergedList = TVList.newList(dataType);
+    MergeCursor cursor = new MergeCursor();
+    while (cursor.next()) {
+      switch (dataType) {
+        case BOOLEAN:
+          mergedList.putBoolean(cursor.time, cursor.bits != 0);
+          break;
+        case INT32:
+          mergedList.putInt(cursor.time, (int) cursor.bits);
+          break;
+        case INT64:
+          mergedList.putLong(cursor.time, cursor.bits);
+          break;
+        case FLOAT:
+          mergedList.putFloat(cursor.time, Float.intBitsToFloat((int) cursor.bits));
+          break;
+        case DOUBLE:
+          mergedList.putDouble(cursor.time, Double.longBitsToDouble(cursor.bits));
+          break;
+        case TEXT:
+          mergedList.putBinary(cursor.time, cursor.binary);
+          break;
+        default:
+          throw new UnSupportedDataTypeException("Unsupported data type:" + dataType);
+      }
+    }
+    return mergedList;
+  }
+
+  /**
+   * @return the size of this chunk in wal. The live size of each run is computed when it is
+   *     spilled, and only the runs deleted from since then are scanned again.
+   */
+  int serializedSize() throws IOException {
+    int size = list.serializedSize();
+    for (SpilledRun run : runs) {
+      if (run.getLiveRowCount() < 0) {
+        RunSource source = new RunSource(run, 0);
+        int rowCount = 0;
+        int dataSize = 0;
+        while (source.nextRow()) {
+          rowCount++;
+          dataSize += Long.BYTES + valueSize(source.binary);
+        }
+        run.setLiveSize(rowCount, dataSize);
+      }
+      size += run.getLiveDataSize();
+    }
+    return size;
+  }
+
+  /**
+   * Serialize the live rows of the runs and the list in the format of a {@link TVList}, the rows of
+   * the same timestamp are kept in order so that the newest one wins on recovery.
+   */
+  void serializeToWAL(IWALByteBufferView buffer) throws IOException {
+    // make sure the live row counts of the runs are known
+    serializedSize();
+    int rowCount = list.rowCount();
+    for (SpilledRun run : runs) {
+      rowCount += run.getLiveRowCount();
+    }
+    WALWriteUtils.write(dataType, buffer);
+    buffer.putInt(rowCount);
+    for (int i = 0; i < runs.size(); i++) {
+      RunSource source = new RunSource(runs.get(i), i);
+      while (source.nextRow()) {
+        serializeRow(source, buffer);
+      }
+    }
+    ListSource source = new ListSource(runs.size(), false);
+    while (source.next()) {
+      serializeRow(source, buffer);
+    }
+  }
+
+  private int valueSize(Binary binary) {
+    switch (dataType) {
+      case BOOLEAN:
+        return Byte.BYTES;
+      case INT32:
+        return Integer.BYTES;
+      case INT64:
+        return Long.BYTES;
+      case FLOAT:
+        return Float.BYTES;
+      case DOUBLE:
+        return Double.BYTES;
+      case TEXT:
+        return ReadWriteIOUtils.sizeToWrite(binary);
+      default:
+        throw new UnSupportedDataTypeException("Unsupported data type:" + dataType);
+    }
+  }
+
+  private void serializeRow(PointSource source, IWALByteBufferView buffer) {
+    buffer.putLong(source.time);
+    switch (dataType) {
+      case BOOLEAN:
+        WALWriteUtils.write(source.bits != 0, buffer);
+        break;
+      case INT32:
+      case FLOAT:
+        buffer.putInt((int) source.bits);
+        break;
+      case INT64:
+      case DOUBLE:
+        buffer.putLong(source.bits);
+        break;
+      case TEXT:
+        WALWriteUtils.write(source.binary, buffer);
+        break;
+      default:
+        throw new UnSupportedDataTypeException("Unsupported data type:" + dataType);
+    }
+  }
+
+  /**
+   * @param deletionList sorted and merged time ranges deleted after this chunk is taken
+   * @return an iterator of the merged points, the spill file is read only when it is iterated
+   */
+  public IPointReader getIterator(
+      int floatPrecision, TSEncoding encoding, List<TimeRange> deletionList) {
+    return new Ite(floatPrecision, encoding, deletionList);
+  }
+
+  private class Ite implements IPointReader {
+
+    private final int floatPrecision;
+    private final TSEncoding encoding;
+    private final List<TimeRange> deletionList;
+    private int deleteCursor = 0;
+
+    private MergeCursor cursor;
+    private TimeValuePair cachedTimeValuePair;
+    private boolean hasCachedPair;
+
+    private Ite(int floatPrecision, TSEncoding encoding, List<TimeRange> deletionList) {
+      this.floatPrecision = floatPrecision;
+      this.encoding = encoding;
+      this.deletionList = deletionList;
+    }
+
+    @Override
+    public boolean hasNextTimeValuePair() throws IOException {
+      if (hasCachedPair) {
+        return true;
+      }
+      if (cursor == null) {
+        cursor = new MergeCursor();
+      }
+      while (cursor.next()) {
+        if (!isPointDeleted(cursor.time)) {
+          cachedTimeValuePair = new TimeValuePair(cursor.time, getValue());
+          hasCachedPair = true;
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private TsPrimitiveType getValue() {
+      boolean round = encoding == TSEncoding.RLE || encoding == TSEncoding.TS_2DIFF;
+      switch (dataType) {
+        case BOOLEAN:
+          return TsPrimitiveType.getByType(dataType, cursor.bits != 0);
+        case INT32:
+          return TsPrimitiveType.getByType(dataType, (int) cursor.bits);
+        case INT64:
+          return TsPrimitiveType.getByType(dataType, cursor.bits);
+        case FLOAT:
+          float floatValue = Float.intBitsToFloat((int) cursor.bits);
+          if (round && !Float.isNaN(floatValue)) {
+            floatValue = MathUtils.roundWithGivenPrecision(floatValue, floatPrecision);
+          }
+          return TsPrimitiveType.getByType(dataType, floatValue);
+        case DOUBLE:
+          double doubleValue = Double.longBitsToDouble(cursor.bits);
+          if (round && !Double.isNaN(doubleValue)) {
+            doubleValue = MathUtils.roundWithGivenPrecision(doubleValue, floatPrecision);
+          }
+          return TsPrimitiveType.getByType(dataType, doubleValue);
+        case TEXT:
+          return TsPrimitiveType.getByType(dataType, cursor.binary);
+        default:
+          throw new UnSupportedDataTypeException("Unsupported data type:" + dataType);
+      }
+    }
+
+    private boolean isPointDeleted(long timestamp) {
+      while (deletionList != null && deleteCursor < deletionList.size()) {
+        if (deletionList.get(deleteCursor).contains(timestamp)) {
+          return true;
+        } else if (deletionList.get(deleteCursor).getMax() < timestamp) {
+          deleteCursor++;
+        } else {
+          return false;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public TimeValuePair nextTimeValuePair() throws IOException {
+      if (hasCachedPair || hasNextTimeValuePair()) {
+        hasCachedPair = false;
+        return cachedTimeValuePair;
+      } else {
+        throw new IOException("no next time value pair");
+      }
+    }
+
+    @Override
+    public TimeValuePair currentTimeValuePair() {
+      return cachedTimeValuePair;
+    }
+
+    @Override
+    public void close() {
+      // the runs are read by positional reads, there is nothing to release
+    }
+  }
+
+  /**
+   * A sorted source of points. The value of the current point is kept in {@code bits} (booleans,
+   * integers and the raw bits of floating numbers) or {@code binary}, to avoid boxing each point.
+   */
+  private abstract static class PointSource {
+
+    /** sources of a larger order are newer */
+    final int order;
+
+    long time;
+    long bits;
+    Binary binary;
+
+    PointSource(int order) {
+      this.order = order;
+    }
+
+    /** move to the next point, skipping the older points of the same timestamp */
+    abstract boolean next() throws IOException;
+  }
+
+  private class ListSource extends PointSource {
+
+    private final boolean skipDuplicates;
+    private int index;
+
+    private ListSource(int order, boolean skipDuplicates) {
+      super(order);
+      this.skipDuplicates = skipDuplicates;
+    }
+
+    @Override
+    boolean next() {
+      while (index < listSize) {
+        long currentTime = list.getTime(index);
+        if (skipDuplicates && index + 1 < listSize && currentTime == list.getTime(index + 1)) {
+          index++;
+          continue;
+        }
+        time = currentTime;
+        switch (dataType) {
+          case BOOLEAN:
+            bits = list.getBoolean(index) ? 1 : 0;
+            break;
+          case INT32:
+            bits = list.getInt(index);
+            break;
+          case INT64:
+            bits = list.getLong(index);
+            break;
+          case FLOAT:
+            bits = Float.floatToRawIntBits(list.getFloat(index));
+            break;
+          case DOUBLE:
+            bits = Double.doubleToRawLongBits(list.getDouble(index));
+            break;
+          case TEXT:
+            binary = list.getBinary(index);
+            break;
+          default:
+            throw new UnSupportedDataTypeException("Unsupported data type:" + dataType);
+        }
+        index++;
+        return true;
+      }
+      return false;
+    }
+  }
+
+  /** reads a run from the spill file row by row */
+  private class RunSource extends PointSource {
+
+    private final DataInputStream input;
+    private final List<TimeRange> deletions;
+    private int deleteCursor = 0;
+    private int remainingRows;
+
+    /** the row read ahead to find the duplicates of the current timestamp */
+    private boolean hasPendingRow;
+
+    private long pendingTime;
+    private long pendingBits;
+    private Binary pendingBinary;
+
+    private RunSource(SpilledRun run, int order) throws IOException {
+      super(order);
+      this.input = new DataInputStream(spillFile.openRun(run));
+      this.deletions = TimeRange.sortAndMerge(run.getDeletions());
+      // skip the data type
+      input.readByte();
+      this.remainingRows = input.readInt();
+    }
+
+    /** move to the next row that is not deleted, keeping the rows of the same timestamp */
+    private boolean nextRow() throws IOException {
+      while (readRow()) {
+        hasPendingRow = false;
+        if (!isDeleted(pendingTime)) {
+          time = pendingTime;
+          bits = pendingBits;
+          binary = pendingBinary;
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    boolean next() throws IOException {
+      while (readRow()) {
+        time = pendingTime;
+        bits = pendingBits;
+        binary = pendingBinary;
+        hasPendingRow = false;
+        // the latter rows of the same timestamp overwrite the former ones
+        while (readRow() && pendingTime == time) {
+          bits = pendingBits;
+          binary = pendingBinary;
+          hasPendingRow = false;
+        }
+        if (!isDeleted(time)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean readRow() throws IOException {
+      if (hasPendingRow) {
+        return true;
+      }
+      if (remainingRows == 0) {
+        return false;
+      }
+      pendingTime = input.readLong();
+      switch (dataType) {
+        case BOOLEAN:
+          pendingBits = ReadWriteIOUtils.readBool(input) ? 1 : 0;
+          break;
+        case INT32:
+        case FLOAT:
+          pendingBits = input.readInt();
+          break;
+        case INT64:
+        case DOUBLE:
+          pendingBits = input.readLong();
+          break;
+        case TEXT:
+          pendingBinary = ReadWriteIOUtils.readBinary(input);
+          break;
+        default:
+          throw new UnSupportedDataTypeException("Unsupported data type:" + dataType);
+      }
+      remainingRows--;
+      hasPendingRow = true;
+      return true;
+    }
+
+    /** rows are read in ascending order of time, so the deletions are visited once */
+    private boolean isDeleted(long timestamp) {
+      while (deleteCursor < deletions.size()) {
+        if (deletions.get(deleteCursor).contains(timestamp)) {
+          return true;
+        } else if (deletions.get(deleteCursor).getMax() < timestamp) {
+          deleteCursor++;
+        } else {
+          return false;
+        }
+      }
+      return false;
+    }
+  }
+
+  /** merges the runs and the list, the current point is kept the same way as a PointSource */
+  private class MergeCursor {
+
+    private final PriorityQueue<PointSource> sources =
+        new PriorityQueue<>(
+            Comparator.comparingLong((PointSource s) -> s.time)
+                .thenComparing((PointSource s) -> s.order, Comparator.reverseOrder()));
+
+    private long time;
+    private long bits;
+    private Binary binary;
+
+    private MergeCursor() throws IOException {
+      List<PointSource> allSources = new ArrayList<>(runs.size() + 1);
+      for (int i = 0; i < runs.size(); i++) {
+        allSources.add(new RunSource(runs.get(i), i));
+      }
+      allSources.add(new ListSource(runs.size(), true));
+      for (PointSource source : allSources) {
+        if (source.next()) {
+          sources.add(source);
+        }
+      }
+    }
+
+    private boolean next() throws IOException {
+      PointSource newest = sources.poll();
+      if (newest == null) {
+        return false;
+      }
+      time = newest.time;
+      bits = newest.bits;
+      binary = newest.binary;
+      advance(newest);
+      // the older points of the same timestamp are overwritten
+      while (!sources.isEmpty() && sources.peek().time == time) {
+        advance(sources.poll());
+      }
+      return true;
+    }
+
+    private boolean hasNext() {
+      return !sources.isEmpty();
+    }
+
+    private void advance(PointSource source) throws IOException {
+      if (source.next()) {
+        sources.add(source);
+      }
+    }
+  }
+}
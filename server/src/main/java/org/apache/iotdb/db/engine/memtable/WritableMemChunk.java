@@ -18,10 +18,14 @@
  */
 package org.apache.iotdb.db.engine.memtable;
 
+import org.apache.iotdb.db.engine.memtable.MemTableSpillFile.SpilledRun;
+import org.apache.iotdb.db.utils.MemUtils;
+import org.apache.iotdb.db.utils.datastructure.DictionaryBinaryTVList;
 import org.apache.iotdb.db.utils.datastructure.TVList;
 import org.apache.iotdb.db.wal.buffer.IWALByteBufferView;
 import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
 import org.apache.iotdb.tsfile.utils.Binary;
 import org.apache.iotdb.tsfile.utils.BitMap;
 import org.apache.iotdb.tsfile.write.chunk.ChunkWriterImpl;
@@ -34,13 +38,39 @@ import org.slf4j.LoggerFactory;
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
+import static org.apache.iotdb.db.rescon.PrimitiveArrayManager.ARRAY_SIZE;
+
 public class WritableMemChunk implements IWritableMemChunk {
 
   private IMeasurementSchema schema;
   private TVList list;
+
+  /** file of the sorted runs spilled from this chunk, null if never spilled */
+  private MemTableSpillFile spillFile;
+
+  /** runs spilled from this chunk, older runs first */
+  private List<SpilledRun> spilledRuns;
+
+  private long spilledPointNum;
+
+  private long spilledMinTime = Long.MAX_VALUE;
+
+  private long spilledMaxTime = Long.MIN_VALUE;
+
+  /** the sorted list frozen to be written into the spill file, null if not being spilled */
+  private TVList spillingList;
+
+  /**
+   * the list cloned from spillingList to take the writes while it is being spilled, whose first
+   * rows are those of spillingList. It is set to null once the list is sorted or deleted from.
+   */
+  private TVList spillingListClone;
+
   private static final String UNSUPPORTED_TYPE = "Unsupported data type:";
   private static final Logger LOGGER = LoggerFactory.getLogger(WritableMemChunk.class);
 
@@ -150,6 +180,7 @@ public class WritableMemChunk implements IWritableMemChunk {
   @Override
   public void putBinary(long t, Binary v) {
     list.putBinary(t, v);
+    checkTextDictionary();
   }
 
   @Override
@@ -185,6 +216,18 @@ public class WritableMemChunk implements IWritableMemChunk {
   @Override
   public void putBinaries(long[] t, Binary[] v, BitMap bitMap, int start, int end) {
     list.putBinaries(t, v, bitMap, start, end);
+    checkTextDictionary();
+  }
+
+  /** switch to plain storage once the series has too many distinct values for a dictionary */
+  private void checkTextDictionary() {
+    if (list instanceof DictionaryBinaryTVList
+        && ((DictionaryBinaryTVList) list).isDictionaryFull()) {
+      TVList dictionaryList = list;
+      list = ((DictionaryBinaryTVList) dictionaryList).toBinaryTVList();
+      // a query holding the dictionary list clears it when it ends
+      dictionaryList.abandon();
+    }
   }
 
   @Override
@@ -198,14 +241,46 @@ public class WritableMemChunk implements IWritableMemChunk {
     throw new UnSupportedDataTypeException(UNSUPPORTED_TYPE + schema.getType());
   }
 
+  /**
+   * For a series with spilled runs, the runs are merged with the data in memory into a new list, so
+   * that the spill file is read at once. Use {@link #getSpilledMemChunkForQuery()} to read it
+   * lazily instead.
+   */
   @Override
   public synchronized TVList getSortedTvListForQuery() {
+    if (spilledRuns != null) {
+      sortTVList();
+      try {
+        TVList mergedList = asSpilledMemChunk().toTVList();
+        mergedList.increaseReferenceCount();
+        // owned by the query only, cleared when the query releases it
+        mergedList.abandon();
+        return mergedList;
+      } catch (IOException e) {
+        throw new UncheckedIOException(
+            "Fail to read the spill file " + spillFile.getFile() + " of " + schema, e);
+      }
+    }
     sortTVList();
     // increase reference count
     list.increaseReferenceCount();
     return list;
   }
 
+  /**
+   * Like {@link #getSortedTvListForQuery()}, but for a series with spilled runs.
+   *
+   * @return a chunk merging the spilled runs with the sorted data in memory while it is read
+   */
+  public synchronized SpilledMemChunk getSpilledMemChunkForQuery() {
+    sortTVList();
+    // increase reference count
+    list.increaseReferenceCount();
+    spillFile.retainForQuery();
+    return new SpilledMemChunk(
+        schema.getType(), spillFile, new ArrayList<>(spilledRuns), list, list.rowCount());
+  }
+
   @Override
   public synchronized TVList getSortedTvListForQuery(List<IMeasurementSchema> measurementSchema) {
     throw new UnSupportedDataTypeException(UNSUPPORTED_TYPE + list.getDataType());
@@ -214,10 +289,14 @@ public class WritableMemChunk implements IWritableMemChunk {
   private void sortTVList() {
     // check reference count
     if ((list.getReferenceCount() > 0 && !list.isSorted())) {
-      list = list.clone();
+      TVList queriedList = list;
+      list = queriedList.cloneOnWrite();
+      queriedList.abandon();
     }
 
     if (!list.isSorted()) {
+      // the spilled rows are moved
+      spillingListClone = null;
       list.sort();
     }
   }
@@ -234,7 +313,88 @@ public class WritableMemChunk implements IWritableMemChunk {
 
   @Override
   public long count() {
-    return list.rowCount();
+    return list.rowCount() + spilledPointNum;
+  }
+
+  /** @return the estimated memory cost of the data in memory, the same as that reported to tsp */
+  public long getMemCost() {
+    if (list.rowCount() == 0) {
+      return 0;
+    }
+    long memCost =
+        (list.rowCount() / ARRAY_SIZE + 1) * TVList.tvListArrayMemCost(list.getDataType());
+    if (list.getDataType() == TSDataType.TEXT) {
+      for (int i = 0; i < list.rowCount(); i++) {
+        memCost += MemUtils.getBinarySize(list.getBinary(i));
+      }
+    }
+    return memCost;
+  }
+
+  /**
+   * Freeze the sorted data in memory to be written into the spill file without any lock, the
+   * writes go to a copy-on-write clone of it meanwhile.
+   *
+   * @return the frozen list, null if there is nothing to spill or this chunk is being spilled
+   */
+  synchronized TVList freezeForSpill() {
+    if (list.rowCount() == 0 || spillingList != null) {
+      return null;
+    }
+    sortTVList();
+    spillingList = list;
+    // held by the spill task until it is committed or aborted
+    spillingList.increaseReferenceCount();
+    spillingListClone = spillingList.cloneOnWrite();
+    list = spillingListClone;
+    spillingList.abandon();
+    return spillingList;
+  }
+
+  /**
+   * Replace the rows of the frozen list by the run written from it, and keep the rows written
+   * after it is frozen in a new list.
+   *
+   * @return false if the rows are moved since frozen, then the run is dropped
+   */
+  synchronized boolean commitSpill(MemTableSpillFile spillFile, SpilledRun run) {
+    int spilledRowCount = spillingList.rowCount();
+    boolean committed = list == spillingListClone;
+    if (committed) {
+      this.spillFile = spillFile;
+      if (spilledRuns == null) {
+        spilledRuns = new ArrayList<>();
+      }
+      spilledRuns.add(run);
+      spilledPointNum += run.getRowCount();
+      spilledMinTime = Math.min(spilledMinTime, run.getMinTime());
+      spilledMaxTime = Math.max(spilledMaxTime, run.getMaxTime());
+      TVList writtenList = list;
+      list = TVList.newList(schema.getType());
+      for (int i = spilledRowCount; i < writtenList.rowCount(); i++) {
+        TimeValuePair tvPair = writtenList.getTimeValuePair(i);
+        write(tvPair.getTimestamp(), tvPair.getValue().getValue());
+      }
+      writtenList.abandon();
+    }
+    abortSpill();
+    return committed;
+  }
+
+  synchronized void abortSpill() {
+    if (spillingList != null) {
+      spillingList.decreaseReferenceCount();
+      spillingList = null;
+    }
+    spillingListClone = null;
+  }
+
+  public boolean hasSpilledRuns() {
+    return spilledRuns != null;
+  }
+
+  private SpilledMemChunk asSpilledMemChunk() {
+    return new SpilledMemChunk(schema.getType(), spillFile, spilledRuns, list, list.rowCount());
   }
 
   @Override
@@ -244,30 +404,42 @@ public class WritableMemChunk implements IWritableMemChunk {
 
   @Override
   public long getMinTime() {
-    return list.getMinTime();
+    return Math.min(list.getMinTime(), spilledMinTime);
   }
 
+  /** the first and last points of spilled runs are kept when they are spilled */
   @Override
-  public long getFirstPoint() {
+  public synchronized long getFirstPoint() {
     if (list.rowCount() == 0) {
-      return Long.MAX_VALUE;
+      return spilledMinTime;
     }
-    return getSortedTvListForQuery().getTimeValuePair(0).getTimestamp();
+    sortTVList();
+    return Math.min(spilledMinTime, list.getTime(0));
   }
 
   @Override
-  public long getLastPoint() {
+  public synchronized long getLastPoint() {
     if (list.rowCount() == 0) {
-      return Long.MIN_VALUE;
+      return spilledMaxTime;
     }
-    return getSortedTvListForQuery()
-        .getTimeValuePair(getSortedTvListForQuery().rowCount() - 1)
-        .getTimestamp();
+    sortTVList();
+    return Math.max(spilledMaxTime, list.getTime(list.rowCount() - 1));
   }
 
+  /** the deleted points of spilled runs are not counted */
   @Override
   public int delete(long lowerBound, long upperBound) {
-    return list.delete(lowerBound, upperBound);
+    if (spilledRuns != null) {
+      for (SpilledRun run : spilledRuns) {
+        run.delete(lowerBound, upperBound);
+      }
+    }
+    int deletedNumber = list.delete(lowerBound, upperBound);
+    if (deletedNumber > 0) {
+      // the spilled rows are moved
+      spillingListClone = null;
+    }
+    return deletedNumber;
   }
 
   @Override
@@ -309,8 +481,18 @@ public class WritableMemChunk implements IWritableMemChunk {
 
   @Override
   public void encode(IChunkWriter chunkWriter) {
-
+    if (spilledRuns != null) {
+      try {
+        asSpilledMemChunk().encode((ChunkWriterImpl) chunkWriter);
+      } catch (IOException e) {
+        throw new UncheckedIOException(
+            "Fail to read the spill file " + spillFile.getFile() + " of " + schema, e);
+      }
+      return;
+    }
     ChunkWriterImpl chunkWriterImpl = (ChunkWriterImpl) chunkWriter;
+    DictionaryBinaryTVList dictionaryList =
+        list instanceof DictionaryBinaryTVList ? (DictionaryBinaryTVList) list : null;
 
     for (int sortedRowIndex = 0; sortedRowIndex < list.rowCount(); sortedRowIndex++) {
       long time = list.getTime(sortedRowIndex);
@@ -342,7 +524,12 @@ public class WritableMemChunk implements IWritableMemChunk {
           chunkWriterImpl.write(time, list.getDouble(sortedRowIndex));
           break;
         case TEXT:
-          chunkWriterImpl.write(time, list.getBinary(sortedRowIndex));
+          if (dictionaryList != null) {
+            chunkWriterImpl.write(
+                time, list.getBinary(sortedRowIndex), dictionaryList.getCode(sortedRowIndex));
+          } else {
+            chunkWriterImpl.write(time, list.getBinary(sortedRowIndex));
+          }
           break;
         default:
           LOGGER.error("WritableMemChunk does not support data type: {}", schema.getType());
@@ -353,13 +540,19 @@ public class WritableMemChunk implements IWritableMemChunk {
 
   @Override
   public void release() {
-    if (list.getReferenceCount() == 0) {
-      list.clear();
-    }
+    list.abandon();
   }
 
   @Override
   public int serializedSize() {
+    if (spilledRuns != null) {
+      try {
+        return schema.serializedSize() + asSpilledMemChunk().serializedSize();
+      } catch (IOException e) {
+        throw new UncheckedIOException(
+            "Fail to read the spill file " + spillFile.getFile() + " of " + schema, e);
+      }
+    }
     return schema.serializedSize() + list.serializedSize();
   }
 
@@ -369,6 +562,15 @@ public class WritableMemChunk implements IWritableMemChunk {
     schema.serializeTo(ByteBuffer.wrap(bytes));
     buffer.put(bytes);
 
+    if (spilledRuns != null) {
+      try {
+        asSpilledMemChunk().serializeToWAL(buffer);
+      } catch (IOException e) {
+        throw new UncheckedIOException(
+            "Fail to read the spill file " + spillFile.getFile() + " of " + schema, e);
+      }
+      return;
+    }
     list.serializeToWAL(buffer);
   }
 
@@ -19,6 +19,7 @@
 
 package org.apache.iotdb.db.engine.querycontext;
 
+import org.apache.iotdb.db.engine.storagegroup.DataVersionTracker;
 import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
 import org.apache.iotdb.tsfile.read.filter.TimeFilter;
 import org.apache.iotdb.tsfile.read.filter.basic.Filter;
@@ -48,6 +49,15 @@ public class QueryDataSource {
   /** data older than currentTime - dataTTL should be ignored. */
   private long dataTTL = Long.MAX_VALUE;
 
+  /**
+   * data version of the virtual storage group when the TsFileResources are collected, it changes
+   * whenever TsFiles are closed, loaded or removed, or data is deleted
+   */
+  private long dataVersion;
+
+  /** tracks the changes of the data of the virtual storage group after the data version */
+  private DataVersionTracker dataVersionTracker;
+
   public QueryDataSource(List<TsFileResource> seqResources, List<TsFileResource> unseqResources) {
     this.seqResources = seqResources;
     this.unseqResources = unseqResources;
@@ -73,6 +83,22 @@ public class QueryDataSource {
     this.dataTTL = dataTTL;
   }
 
+  public long getDataVersion() {
+    return dataVersion;
+  }
+
+  public void setDataVersion(long dataVersion) {
+    this.dataVersion = dataVersion;
+  }
+
+  public DataVersionTracker getDataVersionTracker() {
+    return dataVersionTracker;
+  }
+
+  public void setDataVersionTracker(DataVersionTracker dataVersionTracker) {
+    this.dataVersionTracker = dataVersionTracker;
+  }
+
   /** @return an updated filter concerning TTL */
   public Filter updateFilterUsingTTL(Filter filter) {
     if (dataTTL != Long.MAX_VALUE) {
@@ -18,6 +18,7 @@
  */
 package org.apache.iotdb.db.engine.querycontext;
 
+import org.apache.iotdb.db.engine.memtable.SpilledMemChunk;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.query.reader.chunk.MemChunkLoader;
 import org.apache.iotdb.db.utils.datastructure.TVList;
@@ -60,10 +61,16 @@ public class ReadOnlyMemChunk {
 
   private TVList chunkData;
 
+  /** not null if the series has spilled runs, then chunkData is null */
+  private SpilledMemChunk spilledChunkData;
+
   protected IPointReader chunkPointReader;
 
   private int chunkDataSize;
 
+  /** whether the query taking this chunk has released it */
+  private boolean released;
+
   public ReadOnlyMemChunk() {
     this.deletionList = null;
   }
@@ -80,6 +87,37 @@ public class ReadOnlyMemChunk {
     this.measurementUid = measurementUid;
     this.dataType = dataType;
     this.encoding = encoding;
+    initFloatPrecision(props);
+
+    this.chunkData = tvList;
+    this.chunkDataSize = size;
+    this.deletionList = deletionList;
+
+    this.chunkPointReader = createPointReader();
+    initChunkMeta();
+  }
+
+  public ReadOnlyMemChunk(
+      String measurementUid,
+      TSDataType dataType,
+      TSEncoding encoding,
+      SpilledMemChunk spilledMemChunk,
+      Map<String, String> props,
+      List<TimeRange> deletionList)
+      throws IOException, QueryProcessException {
+    this.measurementUid = measurementUid;
+    this.dataType = dataType;
+    this.encoding = encoding;
+    initFloatPrecision(props);
+
+    this.spilledChunkData = spilledMemChunk;
+    this.deletionList = deletionList;
+
+    this.chunkPointReader = createPointReader();
+    initChunkMeta();
+  }
+
+  private void initFloatPrecision(Map<String, String> props) {
     if (props != null && props.containsKey(Encoder.MAX_POINT_NUMBER)) {
       try {
         this.floatPrecision = Integer.parseInt(props.get(Encoder.MAX_POINT_NUMBER));
@@ -96,22 +134,36 @@ public class ReadOnlyMemChunk {
         floatPrecision = TSFileDescriptor.getInstance().getConfig().getFloatPrecision();
       }
     }
+  }
 
-    this.chunkData = tvList;
-    this.chunkDataSize = size;
-    this.deletionList = deletionList;
+  /**
+   * called when the query taking this chunk ends, so that the list can be cleared and the spill file
+   * can be deleted once the memtable drops them
+   */
+  public synchronized void release() {
+    if (released) {
+      return;
+    }
+    released = true;
+    if (spilledChunkData != null) {
+      spilledChunkData.release();
+    } else if (chunkData != null) {
+      chunkData.decreaseReferenceCount();
+    }
+  }
 
-    this.chunkPointReader =
-        tvList.getIterator(floatPrecision, encoding, chunkDataSize, deletionList);
-    initChunkMeta();
+  private IPointReader createPointReader() {
+    if (spilledChunkData != null) {
+      return spilledChunkData.getIterator(floatPrecision, encoding, deletionList);
+    }
+    return chunkData.getIterator(floatPrecision, encoding, chunkDataSize, deletionList);
   }
 
   private void initChunkMeta() throws IOException, QueryProcessException {
     Statistics statsByType = Statistics.getStatsByType(dataType);
     IChunkMetadata metaData = new ChunkMetadata(measurementUid, dataType, 0, statsByType);
     if (!isEmpty()) {
-      IPointReader iterator =
-          chunkData.getIterator(floatPrecision, encoding, chunkDataSize, deletionList);
+      IPointReader iterator = createPointReader();
       while (iterator.hasNextTimeValuePair()) {
         TimeValuePair timeValuePair = iterator.nextTimeValuePair();
         switch (dataType) {
@@ -157,7 +209,7 @@ public class ReadOnlyMemChunk {
   }
 
   public IPointReader getPointReader() {
-    chunkPointReader = chunkData.getIterator(floatPrecision, encoding, chunkDataSize, deletionList);
+    chunkPointReader = createPointReader();
     return chunkPointReader;
   }
 
@@ -35,6 +35,8 @@ import org.apache.iotdb.db.engine.fileSystem.SystemFileFactory;
 import org.apache.iotdb.db.engine.flush.CloseFileListener;
 import org.apache.iotdb.db.engine.flush.FlushListener;
 import org.apache.iotdb.db.engine.flush.TsFileFlushPolicy;
+import org.apache.iotdb.db.engine.memtable.MemTableSpill;
+import org.apache.iotdb.db.engine.memtable.MemTableSpillFile;
 import org.apache.iotdb.db.engine.modification.Deletion;
 import org.apache.iotdb.db.engine.modification.ModificationFile;
 import org.apache.iotdb.db.engine.querycontext.QueryDataSource;
@@ -68,6 +70,7 @@ import org.apache.iotdb.db.mpp.sql.planner.plan.node.write.InsertTabletNode;
 import org.apache.iotdb.db.qp.physical.crud.DeletePlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertRowsOfOneDevicePlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertRowsPlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
 import org.apache.iotdb.db.query.context.QueryContext;
 import org.apache.iotdb.db.query.control.FileReaderManager;
@@ -108,17 +111,20 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -175,6 +181,20 @@ public class DataRegion {
    * partitionLatestFlushedTimeForEachDevice)
    */
   private final ReadWriteLock insertLock = new ReentrantReadWriteLock();
+  /**
+   * lock stripes guarding inserts of the devices hashed to them, null if striping is disabled. With
+   * striping, an insert holds the read lock of insertLock plus the write lock of its stripe, so
+   * inserts of different stripes run concurrently while holders of the write lock of insertLock
+   * (flush, close, deletion, ...) and queries still exclude all of them.
+   */
+  private final ReadWriteLock[] insertLockStripes = createInsertLockStripes();
+  /**
+   * tsfile processors that reached the flush threshold during a striped insert. The flush policy
+   * needs the write lock of insertLock, so it is applied after the insert releases its locks.
+   */
+  private final Set<TsFileProcessor> tsFileProcessorsToFlush = ConcurrentHashMap.newKeySet();
+  /** guards creating tsfile processors, which may happen concurrently in different stripes */
+  private final Object tsFileProcessorCreationLock = new Object();
   /** closeStorageGroupCondition is used to wait for all currently closing TsFiles to be done. */
   private final Object closeStorageGroupCondition = new Object();
   /**
@@ -262,6 +282,13 @@ public class DataRegion {
   /** used to collect TsFiles in this virtual storage group */
   private TsFileSyncManager tsFileSyncManager = TsFileSyncManager.getInstance();
 
+  /**
+   * changes before TsFiles are closed, loaded or removed, or data is deleted, so that the results
+   * cached in {@link org.apache.iotdb.db.engine.cache.QueryResultCache} are not used once the data
+   * they cover is changed
+   */
+  private final DataVersionTracker dataVersionTracker = new DataVersionTracker();
+
   /**
    * constrcut a storage group processor
    *
@@ -607,6 +634,7 @@ public class DataRegion {
             // such
             // resources
             continueFailedRenames(partitionFolder, TEMP_SUFFIX);
+            deleteMemTableSpillFiles(partitionFolder);
 
             Collections.addAll(
                 tsFiles,
@@ -657,6 +685,20 @@ public class DataRegion {
     }
   }
 
+  /** spilled runs of memtables are useless after restart, their data is recovered from wal */
+  private void deleteMemTableSpillFiles(File partitionFolder) {
+    File[] files =
+        fsFactory.listFilesBySuffix(
+            partitionFolder.getAbsolutePath(), MemTableSpillFile.SPILL_SUFFIX);
+    if (files != null) {
+      for (File spillFile : files) {
+        if (!spillFile.delete()) {
+          logger.warn("Fail to delete memtable spill file {}", spillFile);
+        }
+      }
+    }
+  }
+
   /** check if the tsfile's time is smaller than system current time */
   private void checkTsFileTime(File tsFile) throws DataRegionException {
     String[] items = tsFile.getName().replace(TSFILE_SUFFIX, "").split(FILE_NAME_SEPARATOR);
@@ -791,35 +833,86 @@ public class DataRegion {
     if (!isAlive(insertRowPlan.getTime())) {
       throw new OutOfTTLException(insertRowPlan.getTime(), (System.currentTimeMillis() - dataTTL));
     }
-    writeLock("InsertRow");
+    int stripe = insertLock(insertRowPlan.getDevicePath(), "InsertRow");
     try {
-      // init map
-      long timePartitionId = StorageEngine.getTimePartition(insertRowPlan.getTime());
-
-      lastFlushTimeManager.ensureFlushedTimePartition(timePartitionId);
+      insertRow(insertRowPlan);
+    } finally {
+      insertUnlock(stripe);
+    }
+  }
 
-      boolean isSequence =
-          insertRowPlan.getTime()
-              > lastFlushTimeManager.getFlushedTime(
-                  timePartitionId, insertRowPlan.getDevicePath().getFullPath());
+  /**
+   * insert rows of multiple devices. The rows are grouped by time partition, and the insert lock is
+   * taken once for each group instead of once for each row. Failures of rows are put into the
+   * results of insertRowsPlan.
+   *
+   * @param rowIndexes indexes of the rows belonging to this data region in insertRowsPlan
+   */
+  public void insert(InsertRowsPlan insertRowsPlan, List<Integer> rowIndexes) {
+    List<InsertRowPlan> rowPlans = insertRowsPlan.getInsertRowPlanList();
+    Map<Long, List<Integer>> timePartitionToRowIndexes = new LinkedHashMap<>();
+    for (int i : rowIndexes) {
+      InsertRowPlan insertRowPlan = rowPlans.get(i);
+      if (!isAlive(insertRowPlan.getTime())) {
+        OutOfTTLException e =
+            new OutOfTTLException(insertRowPlan.getTime(), (System.currentTimeMillis() - dataTTL));
+        insertRowsPlan.getResults().put(i, RpcUtils.getStatus(e.getErrorCode(), e.getMessage()));
+        continue;
+      }
+      timePartitionToRowIndexes
+          .computeIfAbsent(
+              StorageEngine.getTimePartition(insertRowPlan.getTime()), k -> new ArrayList<>())
+          .add(i);
+    }
 
-      // is unsequence and user set config to discard out of order data
-      if (!isSequence
-          && IoTDBDescriptor.getInstance().getConfig().isEnableDiscardOutOfOrderData()) {
-        return;
+    for (List<Integer> indexes : timePartitionToRowIndexes.values()) {
+      List<PartialPath> devicePaths = new ArrayList<>(indexes.size());
+      for (int i : indexes) {
+        devicePaths.add(rowPlans.get(i).getDevicePath());
+      }
+      BitSet stripes = insertLock(devicePaths, "InsertRows");
+      try {
+        for (int i : indexes) {
+          try {
+            insertRow(rowPlans.get(i));
+          } catch (WriteProcessException | TriggerExecutionException e) {
+            insertRowsPlan
+                .getResults()
+                .put(i, RpcUtils.getStatus(e.getErrorCode(), e.getMessage()));
+          }
+        }
+      } finally {
+        insertUnlock(stripes);
       }
+    }
+  }
 
-      lastFlushTimeManager.ensureLastTimePartition(timePartitionId);
+  /** insert one row of data, the caller must hold the insert lock of its device */
+  private void insertRow(InsertRowPlan insertRowPlan)
+      throws WriteProcessException, TriggerExecutionException {
+    // init map
+    long timePartitionId = StorageEngine.getTimePartition(insertRowPlan.getTime());
 
-      // fire trigger before insertion
-      TriggerEngine.fire(TriggerEvent.BEFORE_INSERT, insertRowPlan);
-      // insert to sequence or unSequence file
-      insertToTsFileProcessor(insertRowPlan, isSequence, timePartitionId);
-      // fire trigger after insertion
-      TriggerEngine.fire(TriggerEvent.AFTER_INSERT, insertRowPlan);
-    } finally {
-      writeUnlock();
+    lastFlushTimeManager.ensureFlushedTimePartition(timePartitionId);
+
+    boolean isSequence =
+        insertRowPlan.getTime()
+            > lastFlushTimeManager.getFlushedTime(
+                timePartitionId, insertRowPlan.getDevicePath().getFullPath());
+
+    // is unsequence and user set config to discard out of order data
+    if (!isSequence && IoTDBDescriptor.getInstance().getConfig().isEnableDiscardOutOfOrderData()) {
+      return;
     }
+
+    lastFlushTimeManager.ensureLastTimePartition(timePartitionId);
+
+    // fire trigger before insertion
+    TriggerEngine.fire(TriggerEvent.BEFORE_INSERT, insertRowPlan);
+    // insert to sequence or unSequence file
+    insertToTsFileProcessor(insertRowPlan, isSequence, timePartitionId);
+    // fire trigger after insertion
+    TriggerEngine.fire(TriggerEvent.AFTER_INSERT, insertRowPlan);
   }
 
   // TODO: (New Insert)
@@ -834,35 +927,39 @@ public class DataRegion {
     if (!isAlive(insertRowNode.getTime())) {
       throw new OutOfTTLException(insertRowNode.getTime(), (System.currentTimeMillis() - dataTTL));
     }
-    writeLock("InsertRow");
+    int stripe = insertLock(insertRowNode.getDevicePath(), "InsertRow");
     try {
-      // init map
-      long timePartitionId = StorageEngine.getTimePartition(insertRowNode.getTime());
-
-      lastFlushTimeManager.ensureFlushedTimePartition(timePartitionId);
+      insertRow(insertRowNode);
+    } finally {
+      insertUnlock(stripe);
+    }
+  }
 
-      boolean isSequence =
-          insertRowNode.getTime()
-              > lastFlushTimeManager.getFlushedTime(
-                  timePartitionId, insertRowNode.getDevicePath().getFullPath());
+  /** insert one row of data, the caller must hold the insert lock of its device */
+  private void insertRow(InsertRowNode insertRowNode) throws WriteProcessException {
+    // init map
+    long timePartitionId = StorageEngine.getTimePartition(insertRowNode.getTime());
 
-      // is unsequence and user set config to discard out of order data
-      if (!isSequence
-          && IoTDBDescriptor.getInstance().getConfig().isEnableDiscardOutOfOrderData()) {
-        return;
-      }
+    lastFlushTimeManager.ensureFlushedTimePartition(timePartitionId);
 
-      lastFlushTimeManager.ensureLastTimePartition(timePartitionId);
+    boolean isSequence =
+        insertRowNode.getTime()
+            > lastFlushTimeManager.getFlushedTime(
+                timePartitionId, insertRowNode.getDevicePath().getFullPath());
 
-      // fire trigger before insertion
-      // TriggerEngine.fire(TriggerEvent.BEFORE_INSERT, insertRowNode);
-      // insert to sequence or unSequence file
-      insertToTsFileProcessor(insertRowNode, isSequence, timePartitionId);
-      // fire trigger after insertion
-      // TriggerEngine.fire(TriggerEvent.AFTER_INSERT, insertRowNode);
-    } finally {
-      writeUnlock();
+    // is unsequence and user set config to discard out of order data
+    if (!isSequence && IoTDBDescriptor.getInstance().getConfig().isEnableDiscardOutOfOrderData()) {
+      return;
     }
+
+    lastFlushTimeManager.ensureLastTimePartition(timePartitionId);
+
+    // fire trigger before insertion
+    // TriggerEngine.fire(TriggerEvent.BEFORE_INSERT, insertRowNode);
+    // insert to sequence or unSequence file
+    insertToTsFileProcessor(insertRowNode, isSequence, timePartitionId);
+    // fire trigger after insertion
+    // TriggerEngine.fire(TriggerEvent.AFTER_INSERT, insertRowNode);
   }
 
   /**
@@ -874,7 +971,7 @@ public class DataRegion {
   public void insertTablet(InsertTabletPlan insertTabletPlan)
       throws BatchProcessException, TriggerExecutionException {
 
-    writeLock("insertTablet");
+    int stripe = insertLock(insertTabletPlan.getDevicePath(), "insertTablet");
     try {
       TSStatus[] results = new TSStatus[insertTabletPlan.getRowCount()];
       Arrays.fill(results, RpcUtils.SUCCESS_STATUS);
@@ -980,7 +1077,7 @@ public class DataRegion {
       // fire trigger after insertion
       TriggerEngine.fire(TriggerEvent.AFTER_INSERT, insertTabletPlan, firePosition);
     } finally {
-      writeUnlock();
+      insertUnlock(stripe);
     }
   }
 
@@ -993,7 +1090,7 @@ public class DataRegion {
   public void insertTablet(InsertTabletNode insertTabletNode)
       throws BatchProcessException, TriggerExecutionException {
 
-    writeLock("insertTablet");
+    int stripe = insertLock(insertTabletNode.getDevicePath(), "insertTablet");
     try {
       TSStatus[] results = new TSStatus[insertTabletNode.getRowCount()];
       Arrays.fill(results, RpcUtils.SUCCESS_STATUS);
@@ -1076,7 +1173,7 @@ public class DataRegion {
       //      TODO: trigger // fire trigger after insertion
       //      TriggerEngine.fire(TriggerEvent.AFTER_INSERT, insertTabletPlan, firePosition);
     } finally {
-      writeUnlock();
+      insertUnlock(stripe);
     }
   }
 
@@ -1142,7 +1239,7 @@ public class DataRegion {
 
     // check memtable size and may async try to flush the work memtable
     if (tsFileProcessor.shouldFlush()) {
-      fileFlushPolicy.apply(this, tsFileProcessor, sequence);
+      applyFlushPolicyAfterInsert(tsFileProcessor, sequence);
     }
     return true;
   }
@@ -1204,7 +1301,7 @@ public class DataRegion {
 
     // check memtable size and may async try to flush the work memtable
     if (tsFileProcessor.shouldFlush()) {
-      fileFlushPolicy.apply(this, tsFileProcessor, sequence);
+      applyFlushPolicyAfterInsert(tsFileProcessor, sequence);
     }
     return true;
   }
@@ -1255,7 +1352,7 @@ public class DataRegion {
 
     // check memtable size and may asyncTryToFlush the work memtable
     if (tsFileProcessor.shouldFlush()) {
-      fileFlushPolicy.apply(this, tsFileProcessor, sequence);
+      applyFlushPolicyAfterInsert(tsFileProcessor, sequence);
     }
   }
 
@@ -1280,7 +1377,7 @@ public class DataRegion {
 
     // check memtable size and may asyncTryToFlush the work memtable
     if (tsFileProcessor.shouldFlush()) {
-      fileFlushPolicy.apply(this, tsFileProcessor, sequence);
+      applyFlushPolicyAfterInsert(tsFileProcessor, sequence);
     }
   }
 
@@ -1349,6 +1446,37 @@ public class DataRegion {
     }
   }
 
+  /**
+   * spill the largest series of the work memtable, or flush it if nothing can be spilled. The spill
+   * file is written without the write lock, which is held only to freeze the series and to replace
+   * them by the written runs.
+   */
+  public void submitASpillTask(TsFileProcessor tsFileProcessor) {
+    MemTableSpill spill;
+    writeLock("prepareSpillTask");
+    try {
+      spill = tsFileProcessor.prepareSpillWorkMemTable();
+      if (spill == null) {
+        if (tsFileProcessor.shouldFlush()) {
+          fileFlushPolicy.apply(this, tsFileProcessor, tsFileProcessor.isSequence());
+        }
+        return;
+      }
+    } finally {
+      writeUnlock();
+    }
+    tsFileProcessor.writeSpill(spill);
+    writeLock("commitSpillTask");
+    try {
+      tsFileProcessor.commitSpillWorkMemTable(spill);
+      if (tsFileProcessor.shouldFlush()) {
+        fileFlushPolicy.apply(this, tsFileProcessor, tsFileProcessor.isSequence());
+      }
+    } finally {
+      writeUnlock();
+    }
+  }
+
   private TsFileProcessor getOrCreateTsFileProcessor(long timeRangeId, boolean sequence) {
     TsFileProcessor tsFileProcessor = null;
     try {
@@ -1383,16 +1511,18 @@ public class DataRegion {
       long timeRangeId, TreeMap<Long, TsFileProcessor> tsFileProcessorTreeMap, boolean sequence)
       throws IOException, DiskSpaceInsufficientException {
 
-    TsFileProcessor res = tsFileProcessorTreeMap.get(timeRangeId);
+    synchronized (tsFileProcessorCreationLock) {
+      TsFileProcessor res = tsFileProcessorTreeMap.get(timeRangeId);
 
-    if (null == res) {
-      // build new processor, memory control module will control the number of memtables
-      res = newTsFileProcessor(sequence, timeRangeId);
-      tsFileProcessorTreeMap.put(timeRangeId, res);
-      tsFileManager.add(res.getTsFileResource(), sequence);
-    }
+      if (null == res) {
+        // build new processor, memory control module will control the number of memtables
+        res = newTsFileProcessor(sequence, timeRangeId);
+        tsFileProcessorTreeMap.put(timeRangeId, res);
+        tsFileManager.add(res.getTsFileResource(), sequence);
+      }
 
-    return res;
+      return res;
+    }
   }
 
   private TsFileProcessor newTsFileProcessor(boolean sequence, long timePartitionId)
@@ -1552,6 +1682,7 @@ public class DataRegion {
         systemDir);
     writeLock("deleteFolder");
     try {
+      dataVersionTracker.update();
       File storageGroupFolder = SystemFileFactory.INSTANCE.getFile(systemDir, dataRegionId);
       if (storageGroupFolder.exists()) {
         org.apache.iotdb.db.utils.FileUtils.deleteDirectory(storageGroupFolder);
@@ -1586,6 +1717,7 @@ public class DataRegion {
         logicalStorageGroupName + "-" + dataRegionId);
     writeLock("syncDeleteDataFiles");
     try {
+      dataVersionTracker.update();
 
       syncCloseAllWorkingTsFileProcessors();
       // normally, mergingModification is just need to be closed by after a merge task is finished.
@@ -1646,6 +1778,7 @@ public class DataRegion {
       return;
     }
 
+    dataVersionTracker.update(resource.getFileStartTime(), resource.getFileEndTime());
     // prevent new merges and queries from choosing this file
     resource.setStatus(TsFileResourceStatus.DELETED);
 
@@ -1828,6 +1961,9 @@ public class DataRegion {
         filePathsManager.addUsedFilesForQuery(context.getQueryId(), dataSource);
       }
       dataSource.setDataTTL(dataTTL);
+      // read after the resources, as the version changes before they do
+      dataSource.setDataVersion(dataVersionTracker.getVersion());
+      dataSource.setDataVersionTracker(dataVersionTracker);
       return dataSource;
     } catch (MetadataException e) {
       throw new QueryProcessException(e);
@@ -1861,6 +1997,8 @@ public class DataRegion {
               false);
       QueryDataSource dataSource = new QueryDataSource(seqResources, unseqResources);
       dataSource.setDataTTL(dataTTL);
+      dataSource.setDataVersion(dataVersionTracker.getVersion());
+      dataSource.setDataVersionTracker(dataVersionTracker);
       return dataSource;
     } catch (MetadataException e) {
       throw new QueryProcessException(e);
@@ -1871,6 +2009,12 @@ public class DataRegion {
   public void readLock() {
     // apply read lock for SG insert lock to prevent inconsistent with concurrently writing memtable
     insertLock.readLock().lock();
+    if (insertLockStripes != null) {
+      // striped inserts only hold the read lock of insertLock, so wait for all of them
+      for (ReadWriteLock stripe : insertLockStripes) {
+        stripe.readLock().lock();
+      }
+    }
     // apply read lock for TsFileResource list
     tsFileManager.readLock();
   }
@@ -1878,7 +2022,123 @@ public class DataRegion {
   /** unlock the read lock of insert lock */
   public void readUnlock() {
     tsFileManager.readUnlock();
+    if (insertLockStripes != null) {
+      for (int i = insertLockStripes.length - 1; i >= 0; i--) {
+        insertLockStripes[i].readLock().unlock();
+      }
+    }
+    insertLock.readLock().unlock();
+  }
+
+  private static ReadWriteLock[] createInsertLockStripes() {
+    int stripeNum = IoTDBDescriptor.getInstance().getConfig().getInsertLockStripeNum();
+    if (stripeNum <= 1) {
+      return null;
+    }
+    ReadWriteLock[] stripes = new ReadWriteLock[stripeNum];
+    for (int i = 0; i < stripeNum; i++) {
+      stripes[i] = new ReentrantReadWriteLock();
+    }
+    return stripes;
+  }
+
+  /**
+   * lock the insertion of one device. If insert lock striping is disabled, this is the write lock
+   * of the insert lock.
+   *
+   * @return the stripe locked for the device, -1 if striping is disabled
+   */
+  private int insertLock(PartialPath devicePath, String holder) {
+    if (insertLockStripes == null) {
+      writeLock(holder);
+      return -1;
+    }
+    int stripe = stripeOf(devicePath);
+    insertLock.readLock().lock();
+    insertLockStripes[stripe].writeLock().lock();
+    return stripe;
+  }
+
+  /**
+   * lock the insertion of several devices at once. The stripes are locked in ascending order so
+   * that concurrent batches can not deadlock.
+   *
+   * @return the stripes locked for the devices, null if striping is disabled
+   */
+  private BitSet insertLock(Collection<PartialPath> devicePaths, String holder) {
+    if (insertLockStripes == null) {
+      writeLock(holder);
+      return null;
+    }
+    BitSet stripes = new BitSet(insertLockStripes.length);
+    for (PartialPath devicePath : devicePaths) {
+      stripes.set(stripeOf(devicePath));
+    }
+    insertLock.readLock().lock();
+    for (int i = stripes.nextSetBit(0); i >= 0; i = stripes.nextSetBit(i + 1)) {
+      insertLockStripes[i].writeLock().lock();
+    }
+    return stripes;
+  }
+
+  private int stripeOf(PartialPath devicePath) {
+    return Math.floorMod(devicePath.getFullPath().hashCode(), insertLockStripes.length);
+  }
+
+  /** unlock the insertion locked by {@link #insertLock}, then flush the processors it filled */
+  private void insertUnlock(int stripe) {
+    if (stripe < 0) {
+      writeUnlock();
+      return;
+    }
+    insertLockStripes[stripe].writeLock().unlock();
+    insertLock.readLock().unlock();
+    if (!tsFileProcessorsToFlush.isEmpty()) {
+      flushTsFileProcessorsAfterInsert();
+    }
+  }
+
+  /** unlock the insertion locked by {@link #insertLock(Collection, String)} */
+  private void insertUnlock(BitSet stripes) {
+    if (stripes == null) {
+      writeUnlock();
+      return;
+    }
+    for (int i = stripes.previousSetBit(insertLockStripes.length - 1);
+        i >= 0;
+        i = stripes.previousSetBit(i - 1)) {
+      insertLockStripes[i].writeLock().unlock();
+    }
     insertLock.readLock().unlock();
+    if (!tsFileProcessorsToFlush.isEmpty()) {
+      flushTsFileProcessorsAfterInsert();
+    }
+  }
+
+  private void applyFlushPolicyAfterInsert(TsFileProcessor tsFileProcessor, boolean sequence) {
+    if (insertLockStripes == null) {
+      fileFlushPolicy.apply(this, tsFileProcessor, sequence);
+    } else {
+      // the read lock of insertLock can not be upgraded, defer to insertUnlock
+      tsFileProcessorsToFlush.add(tsFileProcessor);
+    }
+  }
+
+  private void flushTsFileProcessorsAfterInsert() {
+    writeLock("flushAfterInsert");
+    try {
+      Iterator<TsFileProcessor> iterator = tsFileProcessorsToFlush.iterator();
+      while (iterator.hasNext()) {
+        TsFileProcessor tsFileProcessor = iterator.next();
+        iterator.remove();
+        // another insert may have flushed or closed it in the meantime
+        if (tsFileProcessor.shouldFlush()) {
+          fileFlushPolicy.apply(this, tsFileProcessor, tsFileProcessor.isSequence());
+        }
+      }
+    } finally {
+      writeUnlock();
+    }
   }
 
   /** lock the write lock of the insert lock */
@@ -1991,6 +2251,7 @@ public class DataRegion {
     List<ModificationFile> updatedModFiles = new ArrayList<>();
 
     try {
+      dataVersionTracker.update(startTime, endTime);
       Set<PartialPath> devicePaths = IoTDB.schemaProcessor.getBelongedDevices(path);
       for (PartialPath device : devicePaths) {
         // delete Last cache record if necessary
@@ -2229,6 +2490,9 @@ public class DataRegion {
       throws TsFileProcessorException {
     closeQueryLock.writeLock().lock();
     try {
+      // only the data after the start time of the file moves into sealed TsFiles
+      dataVersionTracker.update(
+          tsFileProcessor.getTsFileResource().getFileStartTime(), Long.MAX_VALUE);
       tsFileProcessor.close();
       tsFileResourceManager.registerSealedTsFileResource(tsFileProcessor.getTsFileResource());
     } finally {
@@ -2428,6 +2692,8 @@ public class DataRegion {
     long newFilePartitionId = newTsFileResource.getTimePartitionWithCheck();
     writeLock("loadNewTsFile");
     try {
+      dataVersionTracker.update(
+          newTsFileResource.getFileStartTime(), newTsFileResource.getFileEndTime());
       List<TsFileResource> sequenceList =
           tsFileManager.getSequenceListByTimePartition(newFilePartitionId);
 
@@ -2601,6 +2867,7 @@ public class DataRegion {
   public void removeFullyOverlapFiles(TsFileResource resource) {
     writeLock("removeFullyOverlapFiles");
     try {
+      dataVersionTracker.update();
       Iterator<TsFileResource> iterator = tsFileManager.getIterator(true);
       removeFullyOverlapFiles(resource, iterator, true);
 
@@ -2908,6 +3175,7 @@ public class DataRegion {
     writeLock("deleteTsfile");
     TsFileResource tsFileResourceToBeDeleted = null;
     try {
+      dataVersionTracker.update();
       Iterator<TsFileResource> sequenceIterator = tsFileManager.getIterator(true);
       while (sequenceIterator.hasNext()) {
         TsFileResource sequenceResource = sequenceIterator.next();
@@ -2967,6 +3235,7 @@ public class DataRegion {
     writeLock("unloadTsfile");
     TsFileResource tsFileResourceToBeMoved = null;
     try {
+      dataVersionTracker.update();
       Iterator<TsFileResource> sequenceIterator = tsFileManager.getIterator(true);
       while (sequenceIterator.hasNext()) {
         TsFileResource sequenceResource = sequenceIterator.next();
@@ -3189,7 +3458,7 @@ public class DataRegion {
    */
   public void insert(InsertRowsOfOneDevicePlan insertRowsOfOneDevicePlan)
       throws WriteProcessException, TriggerExecutionException {
-    writeLock("InsertRowsOfOneDevice");
+    int stripe = insertLock(insertRowsOfOneDevicePlan.getDevicePath(), "InsertRowsOfOneDevice");
     try {
       boolean isSequence = false;
       InsertRowPlan[] rowPlans = insertRowsOfOneDevicePlan.getRowPlans();
@@ -3230,7 +3499,7 @@ public class DataRegion {
         TriggerEngine.fire(TriggerEvent.AFTER_INSERT, plan);
       }
     } finally {
-      writeUnlock();
+      insertUnlock(stripe);
     }
   }
 
@@ -3241,7 +3510,7 @@ public class DataRegion {
    */
   public void insert(InsertRowsOfOneDeviceNode insertRowsOfOneDeviceNode)
       throws WriteProcessException, TriggerExecutionException, BatchProcessException {
-    writeLock("InsertRowsOfOneDevice");
+    int stripe = insertLock(insertRowsOfOneDeviceNode.getDevicePath(), "InsertRowsOfOneDevice");
     try {
       boolean isSequence = false;
       for (int i = 0; i < insertRowsOfOneDeviceNode.getInsertRowNodeList().size(); i++) {
@@ -3296,7 +3565,7 @@ public class DataRegion {
         // TriggerEngine.fire(TriggerEvent.AFTER_INSERT, plan);
       }
     } finally {
-      writeUnlock();
+      insertUnlock(stripe);
     }
     if (!insertRowsOfOneDeviceNode.getResults().isEmpty()) {
       throw new BatchProcessException(insertRowsOfOneDeviceNode.getFailingStatus());
@@ -3309,12 +3578,40 @@ public class DataRegion {
    * @param insertRowsNode batch of rows belongs to multiple devices
    */
   public void insert(InsertRowsNode insertRowsNode) throws BatchProcessException {
-    for (int i = 0; i < insertRowsNode.getInsertRowNodeList().size(); i++) {
-      InsertRowNode insertRowNode = insertRowsNode.getInsertRowNodeList().get(i);
-      try {
-        insert(insertRowNode);
-      } catch (WriteProcessException | TriggerExecutionException e) {
+    List<InsertRowNode> rowNodes = insertRowsNode.getInsertRowNodeList();
+    Map<Long, List<Integer>> timePartitionToRowIndexes = new LinkedHashMap<>();
+    for (int i = 0; i < rowNodes.size(); i++) {
+      InsertRowNode insertRowNode = rowNodes.get(i);
+      if (!isAlive(insertRowNode.getTime())) {
+        OutOfTTLException e =
+            new OutOfTTLException(insertRowNode.getTime(), (System.currentTimeMillis() - dataTTL));
         insertRowsNode.getResults().put(i, RpcUtils.getStatus(e.getErrorCode(), e.getMessage()));
+        continue;
+      }
+      timePartitionToRowIndexes
+          .computeIfAbsent(
+              StorageEngine.getTimePartition(insertRowNode.getTime()), k -> new ArrayList<>())
+          .add(i);
+    }
+
+    for (List<Integer> indexes : timePartitionToRowIndexes.values()) {
+      List<PartialPath> devicePaths = new ArrayList<>(indexes.size());
+      for (int i : indexes) {
+        devicePaths.add(rowNodes.get(i).getDevicePath());
+      }
+      BitSet stripes = insertLock(devicePaths, "InsertRows");
+      try {
+        for (int i : indexes) {
+          try {
+            insertRow(rowNodes.get(i));
+          } catch (WriteProcessException e) {
+            insertRowsNode
+                .getResults()
+                .put(i, RpcUtils.getStatus(e.getErrorCode(), e.getMessage()));
+          }
+        }
+      } finally {
+        insertUnlock(stripes);
       }
     }
 
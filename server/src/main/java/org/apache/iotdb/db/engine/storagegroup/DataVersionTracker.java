@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.storagegroup;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the data version of a virtual storage group together with the time range of each change,
+ * so that the results cached in {@link org.apache.iotdb.db.engine.cache.QueryResultCache} with an
+ * older version can still be used if the data they cover has not changed since.
+ */
+public class DataVersionTracker {
+
+  /** generates data versions that are unique among all virtual storage groups */
+  private static final AtomicLong DATA_VERSION_GENERATOR = new AtomicLong();
+
+  /** the number of the latest changes whose time ranges are kept */
+  private static final int MAX_RECORDED_CHANGE_NUM = 1024;
+
+  private volatile long version = DATA_VERSION_GENERATOR.incrementAndGet();
+
+  /** the latest changes, older changes first */
+  private final Deque<DataChange> changes = new ArrayDeque<>();
+
+  /** changes of this version or older are no longer recorded */
+  private long forgottenVersion = version;
+
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Called before the data in [startTime, endTime] is changed, i.e. TsFiles are closed, loaded or
+   * removed, or data is deleted.
+   */
+  public synchronized void update(long startTime, long endTime) {
+    version = DATA_VERSION_GENERATOR.incrementAndGet();
+    changes.addLast(new DataChange(version, startTime, endTime));
+    if (changes.size() > MAX_RECORDED_CHANGE_NUM) {
+      forgottenVersion = changes.removeFirst().version;
+    }
+  }
+
+  /** called before data of any time is changed */
+  public void update() {
+    update(Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * @return whether the data in [startTime, endTime] may have been changed after the given version,
+   *     which should be one got from this tracker
+   */
+  public synchronized boolean isChangedSince(long sinceVersion, long startTime, long endTime) {
+    if (sinceVersion == version) {
+      return false;
+    }
+    if (sinceVersion < forgottenVersion) {
+      return true;
+    }
+    Iterator<DataChange> iterator = changes.descendingIterator();
+    while (iterator.hasNext()) {
+      DataChange change = iterator.next();
+      if (change.version <= sinceVersion) {
+        break;
+      }
+      if (change.startTime <= endTime && change.endTime >= startTime) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static class DataChange {
+
+    private final long version;
+    private final long startTime;
+    private final long endTime;
+
+    private DataChange(long version, long startTime, long endTime) {
+      this.version = version;
+      this.startTime = startTime;
+      this.endTime = endTime;
+    }
+  }
+}
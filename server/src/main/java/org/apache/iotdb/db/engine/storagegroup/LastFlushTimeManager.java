@@ -22,13 +22,14 @@ package org.apache.iotdb.db.engine.storagegroup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * This class manages last time and flush time for sequence and unsequence determination This class
- * This class is NOT thread safe, caller should ensure synchronization
+ * This class manages last time and flush time for sequence and unsequence determination. Updates of
+ * different devices may run concurrently when inserts are lock-striped, so the per-device maps are
+ * concurrent; updates of the same device must still be serialized by the caller.
  */
 public class LastFlushTimeManager implements ILastFlushTimeManager {
   private static final Logger logger = LoggerFactory.getLogger(LastFlushTimeManager.class);
@@ -38,7 +39,7 @@ public class LastFlushTimeManager implements ILastFlushTimeManager {
    * changes upon timestamps of each device, and is used to update partitionLatestFlushedTimeForEachDevice
    * when a flush is issued.
    */
-  private Map<Long, Map<String, Long>> latestTimeForEachDevice = new HashMap<>();
+  private Map<Long, Map<String, Long>> latestTimeForEachDevice = new ConcurrentHashMap<>();
   /**
    * time partition id -> map, which contains device -> largest timestamp of the latest memtable to
    * be submitted to asyncTryToFlush partitionLatestFlushedTimeForEachDevice determines whether a
@@ -46,42 +47,45 @@ public class LastFlushTimeManager implements ILastFlushTimeManager {
    * with timestamp less than or equals to the device's latestFlushedTime should go into an
    * unsequential file.
    */
-  private Map<Long, Map<String, Long>> partitionLatestFlushedTimeForEachDevice = new HashMap<>();
+  private Map<Long, Map<String, Long>> partitionLatestFlushedTimeForEachDevice =
+      new ConcurrentHashMap<>();
   /** used to record the latest flush time while upgrading and inserting */
   private Map<Long, Map<String, Long>> newlyFlushedPartitionLatestFlushedTimeForEachDevice =
-      new HashMap<>();
+      new ConcurrentHashMap<>();
   /**
    * global mapping of device -> largest timestamp of the latest memtable to * be submitted to
    * asyncTryToFlush, globalLatestFlushedTimeForEachDevice is utilized to maintain global
    * latestFlushedTime of devices and will be updated along with
    * partitionLatestFlushedTimeForEachDevice
    */
-  private Map<String, Long> globalLatestFlushedTimeForEachDevice = new HashMap<>();
+  private Map<String, Long> globalLatestFlushedTimeForEachDevice = new ConcurrentHashMap<>();
 
   // region set
   @Override
   public void setMultiDeviceLastTime(long timePartitionId, Map<String, Long> lastTimeMap) {
     latestTimeForEachDevice
-        .computeIfAbsent(timePartitionId, l -> new HashMap<>())
+        .computeIfAbsent(timePartitionId, l -> new ConcurrentHashMap<>())
         .putAll(lastTimeMap);
   }
 
   @Override
   public void setOneDeviceLastTime(long timePartitionId, String path, long time) {
-    latestTimeForEachDevice.computeIfAbsent(timePartitionId, l -> new HashMap<>()).put(path, time);
+    latestTimeForEachDevice
+        .computeIfAbsent(timePartitionId, l -> new ConcurrentHashMap<>())
+        .put(path, time);
   }
 
   @Override
   public void setMultiDeviceFlushedTime(long timePartitionId, Map<String, Long> flushedTimeMap) {
     partitionLatestFlushedTimeForEachDevice
-        .computeIfAbsent(timePartitionId, l -> new HashMap<>())
+        .computeIfAbsent(timePartitionId, l -> new ConcurrentHashMap<>())
         .putAll(flushedTimeMap);
   }
 
   @Override
   public void setOneDeviceFlushedTime(long timePartitionId, String path, long time) {
     partitionLatestFlushedTimeForEachDevice
-        .computeIfAbsent(timePartitionId, l -> new HashMap<>())
+        .computeIfAbsent(timePartitionId, l -> new ConcurrentHashMap<>())
         .put(path, time);
   }
 
@@ -102,14 +106,14 @@ public class LastFlushTimeManager implements ILastFlushTimeManager {
   @Override
   public void updateLastTime(long timePartitionId, String path, long time) {
     latestTimeForEachDevice
-        .computeIfAbsent(timePartitionId, id -> new HashMap<>())
+        .computeIfAbsent(timePartitionId, id -> new ConcurrentHashMap<>())
         .compute(path, (k, v) -> v == null ? time : Math.max(v, time));
   }
 
   @Override
   public void updateFlushedTime(long timePartitionId, String path, long time) {
     partitionLatestFlushedTimeForEachDevice
-        .computeIfAbsent(timePartitionId, id -> new HashMap<>())
+        .computeIfAbsent(timePartitionId, id -> new ConcurrentHashMap<>())
         .compute(path, (k, v) -> v == null ? time : Math.max(v, time));
   }
 
@@ -123,7 +127,7 @@ public class LastFlushTimeManager implements ILastFlushTimeManager {
   public void updateNewlyFlushedPartitionLatestFlushedTimeForEachDevice(
       long partitionId, String deviceId, long time) {
     newlyFlushedPartitionLatestFlushedTimeForEachDevice
-        .computeIfAbsent(partitionId, id -> new HashMap<>())
+        .computeIfAbsent(partitionId, id -> new ConcurrentHashMap<>())
         .compute(deviceId, (k, v) -> v == null ? time : Math.max(v, time));
   }
 
@@ -133,18 +137,19 @@ public class LastFlushTimeManager implements ILastFlushTimeManager {
 
   @Override
   public void ensureLastTimePartition(long timePartitionId) {
-    latestTimeForEachDevice.computeIfAbsent(timePartitionId, id -> new HashMap<>());
+    latestTimeForEachDevice.computeIfAbsent(timePartitionId, id -> new ConcurrentHashMap<>());
   }
 
   @Override
   public void ensureFlushedTimePartition(long timePartitionId) {
-    partitionLatestFlushedTimeForEachDevice.computeIfAbsent(timePartitionId, id -> new HashMap<>());
+    partitionLatestFlushedTimeForEachDevice.computeIfAbsent(
+        timePartitionId, id -> new ConcurrentHashMap<>());
   }
 
   @Override
   public long ensureFlushedTimePartitionAndInit(long timePartitionId, String path, long initTime) {
     return partitionLatestFlushedTimeForEachDevice
-        .computeIfAbsent(timePartitionId, id -> new HashMap<>())
+        .computeIfAbsent(timePartitionId, id -> new ConcurrentHashMap<>())
         .computeIfAbsent(path, id -> initTime);
   }
 
@@ -158,13 +163,14 @@ public class LastFlushTimeManager implements ILastFlushTimeManager {
         newlyFlushedPartitionLatestFlushedTimeForEachDevice.entrySet()) {
       long timePartitionId = entry.getKey();
       Map<String, Long> latestFlushTimeForPartition =
-          partitionLatestFlushedTimeForEachDevice.getOrDefault(timePartitionId, new HashMap<>());
+          partitionLatestFlushedTimeForEachDevice.getOrDefault(
+              timePartitionId, new ConcurrentHashMap<>());
       for (Entry<String, Long> endTimeMap : entry.getValue().entrySet()) {
         String device = endTimeMap.getKey();
         long endTime = endTimeMap.getValue();
         if (latestFlushTimeForPartition.getOrDefault(device, Long.MIN_VALUE) < endTime) {
           partitionLatestFlushedTimeForEachDevice
-              .computeIfAbsent(timePartitionId, id -> new HashMap<>())
+              .computeIfAbsent(timePartitionId, id -> new ConcurrentHashMap<>())
               .put(device, endTime);
         }
       }
@@ -191,10 +197,10 @@ public class LastFlushTimeManager implements ILastFlushTimeManager {
       entry.setValue(latestFlushTime);
 
       partitionLatestFlushedTimeForEachDevice
-          .computeIfAbsent(partitionId, id -> new HashMap<>())
+          .computeIfAbsent(partitionId, id -> new ConcurrentHashMap<>())
           .put(entry.getKey(), entry.getValue());
       newlyFlushedPartitionLatestFlushedTimeForEachDevice
-          .computeIfAbsent(partitionId, id -> new HashMap<>())
+          .computeIfAbsent(partitionId, id -> new ConcurrentHashMap<>())
           .put(entry.getKey(), entry.getValue());
       if (globalLatestFlushedTimeForEachDevice.getOrDefault(entry.getKey(), Long.MIN_VALUE)
           < entry.getValue()) {
@@ -215,7 +221,7 @@ public class LastFlushTimeManager implements ILastFlushTimeManager {
 
     for (Entry<String, Long> entry : curPartitionDeviceLatestTime.entrySet()) {
       partitionLatestFlushedTimeForEachDevice
-          .computeIfAbsent(partitionId, id -> new HashMap<>())
+          .computeIfAbsent(partitionId, id -> new ConcurrentHashMap<>())
           .put(entry.getKey(), entry.getValue());
       updateNewlyFlushedPartitionLatestFlushedTimeForEachDevice(
           partitionId, entry.getKey(), entry.getValue());
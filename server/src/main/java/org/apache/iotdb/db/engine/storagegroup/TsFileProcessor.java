@@ -32,6 +32,8 @@ import org.apache.iotdb.db.engine.flush.NotifyFlushMemTable;
 import org.apache.iotdb.db.engine.memtable.AlignedWritableMemChunk;
 import org.apache.iotdb.db.engine.memtable.AlignedWritableMemChunkGroup;
 import org.apache.iotdb.db.engine.memtable.IMemTable;
+import org.apache.iotdb.db.engine.memtable.MemTableSpill;
+import org.apache.iotdb.db.engine.memtable.MemTableSpillFile;
 import org.apache.iotdb.db.engine.modification.Deletion;
 import org.apache.iotdb.db.engine.modification.Modification;
 import org.apache.iotdb.db.engine.querycontext.ReadOnlyMemChunk;
@@ -84,6 +86,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -134,8 +137,11 @@ public class TsFileProcessor {
    */
   private volatile boolean shouldClose;
 
-  /** working memtable */
-  private IMemTable workMemTable;
+  /**
+   * working memtable, lazily created by the first insert. Inserts of different devices may race to
+   * create it when the data region stripes its insert lock, hence volatile.
+   */
+  private volatile IMemTable workMemTable;
 
   /** last flush time to flush the working memtable */
   private long lastWorkMemtableFlushTime;
@@ -152,6 +158,9 @@ public class TsFileProcessor {
   /** total memtable size for mem control */
   private long totalMemTableSize;
 
+  /** memory cost to be released by the submitted spill task, 0 if no spill task is pending */
+  private final AtomicLong pendingSpillMemCost = new AtomicLong();
+
   private static final String FLUSH_QUERY_WRITE_LOCKED = "{}: {} get flushQueryLock write lock";
   private static final String FLUSH_QUERY_WRITE_RELEASE =
       "{}: {} get flushQueryLock write lock released";
@@ -395,9 +404,14 @@ public class TsFileProcessor {
     tsFileResource.updatePlanIndexes(insertTabletPlan.getIndex());
   }
 
-  private void createNewWorkingMemTable() throws WriteProcessException {
-    workMemTable = MemTableManager.getInstance().getAvailableMemTable(storageGroupName);
-    walNode.onMemTableCreated(workMemTable, tsFileResource.getTsFilePath());
+  private synchronized void createNewWorkingMemTable() throws WriteProcessException {
+    if (workMemTable != null) {
+      // another insert of a different lock stripe has created it
+      return;
+    }
+    IMemTable memTable = MemTableManager.getInstance().getAvailableMemTable(storageGroupName);
+    walNode.onMemTableCreated(memTable, tsFileResource.getTsFilePath());
+    workMemTable = memTable;
   }
 
   /**
@@ -1492,6 +1506,7 @@ public class TsFileProcessor {
           ReadOnlyMemChunk memChunk =
               flushingMemTable.query(seriesPath, context.getQueryTimeLowerBound(), modsToMemtable);
           if (memChunk != null) {
+            context.retainMemChunk(memChunk);
             readOnlyMemChunks.add(memChunk);
           }
         }
@@ -1499,6 +1514,7 @@ public class TsFileProcessor {
           ReadOnlyMemChunk memChunk =
               workMemTable.query(seriesPath, context.getQueryTimeLowerBound(), null);
           if (memChunk != null) {
+            context.retainMemChunk(memChunk);
             readOnlyMemChunks.add(memChunk);
           }
         }
@@ -1585,6 +1601,125 @@ public class TsFileProcessor {
     workMemTable.setShouldFlush();
   }
 
+  /** @return whether the work memtable can spill its largest series instead of being flushed */
+  public boolean canSpillWorkMemTable() {
+    IMemTable memTable = workMemTable;
+    return config.isEnableMemTableSeriesSpill()
+        && memTable != null
+        && !memTable.shouldFlush()
+        && memTable.getSpilledSize() < config.getMaxSpilledSizePerMemTableInByte();
+  }
+
+  public long getPendingSpillMemCost() {
+    return pendingSpillMemCost.get();
+  }
+
+  public void setPendingSpillMemCost(long memCostToRelease) {
+    pendingSpillMemCost.set(memCostToRelease);
+  }
+
+  public void submitASpillTask() {
+    this.storageGroupInfo.getDataRegion().submitASpillTask(this);
+  }
+
+  /**
+   * Start spilling the largest series of the work memtable into a temporary file to release the
+   * pending spill memory cost. The caller must hold the write lock of the data region.
+   *
+   * @return the spill to be written by {@link #writeSpill(MemTableSpill)} without holding the lock
+   *     and then committed, null if nothing is to be spilled, then the work memtable should be
+   *     flushed if {@link #shouldFlush()}
+   */
+  public MemTableSpill prepareSpillWorkMemTable() {
+    MemTableSpill spill = null;
+    flushQueryLock.writeLock().lock();
+    if (logger.isDebugEnabled()) {
+      logger.debug(
+          FLUSH_QUERY_WRITE_LOCKED, storageGroupName, tsFileResource.getTsFile().getName());
+    }
+    try {
+      if (workMemTable == null || workMemTable.shouldFlush()) {
+        return null;
+      }
+      File spillFile =
+          new File(
+              tsFileResource.getTsFile().getPath()
+                  + "."
+                  + workMemTable.getMemTableId()
+                  + MemTableSpillFile.SPILL_SUFFIX);
+      spill = workMemTable.prepareSpill(spillFile, pendingSpillMemCost.get());
+      if (spill == null) {
+        workMemTable.setShouldFlush();
+      }
+      return spill;
+    } finally {
+      if (spill == null) {
+        pendingSpillMemCost.set(0);
+      }
+      flushQueryLock.writeLock().unlock();
+      if (logger.isDebugEnabled()) {
+        logger.debug(
+            FLUSH_QUERY_WRITE_RELEASE, storageGroupName, tsFileResource.getTsFile().getName());
+      }
+    }
+  }
+
+  /** write the runs of the spill into the spill file, no lock is needed */
+  public void writeSpill(MemTableSpill spill) {
+    try {
+      spill.write();
+    } catch (IOException e) {
+      logger.error(
+          "{}: {} meet error when spilling memtable, flush it instead",
+          storageGroupName,
+          tsFileResource.getTsFile().getName(),
+          e);
+    }
+  }
+
+  /**
+   * Replace the spilled data of the work memtable by the written runs. The caller must hold the
+   * write lock of the data region. If nothing is released, the work memtable should be flushed
+   * instead.
+   */
+  public void commitSpillWorkMemTable(MemTableSpill spill) {
+    long releasedMemCost = 0;
+    flushQueryLock.writeLock().lock();
+    if (logger.isDebugEnabled()) {
+      logger.debug(
+          FLUSH_QUERY_WRITE_LOCKED, storageGroupName, tsFileResource.getTsFile().getName());
+    }
+    try {
+      if (workMemTable != spill.getMemTable() || workMemTable.shouldFlush()) {
+        // the memtable is flushed while the runs are written
+        spill.abort();
+        return;
+      }
+      releasedMemCost = Math.min(spill.commit(), workMemTable.getTVListsRamCost());
+      workMemTable.releaseTVListRamCost(releasedMemCost);
+      storageGroupInfo.releaseStorageGroupMemCost(releasedMemCost);
+      if (releasedMemCost == 0) {
+        workMemTable.setShouldFlush();
+      } else {
+        logger.info(
+            "{}: {} spilled {} bytes of memtable into {}, {} bytes spilled in total",
+            storageGroupName,
+            tsFileResource.getTsFile().getName(),
+            releasedMemCost,
+            spill.getSpillFile().getFile().getName(),
+            workMemTable.getSpilledSize());
+      }
+    } finally {
+      pendingSpillMemCost.set(0);
+      flushQueryLock.writeLock().unlock();
+      if (logger.isDebugEnabled()) {
+        logger.debug(
+            FLUSH_QUERY_WRITE_RELEASE, storageGroupName, tsFileResource.getTsFile().getName());
+      }
+    }
+    SystemInfo.getInstance().resetStorageGroupStatus(storageGroupInfo);
+  }
+
   public void addFlushListener(FlushListener listener) {
     flushListeners.add(listener);
   }
@@ -24,6 +24,8 @@ import org.apache.iotdb.db.service.metrics.Tag;
 import org.apache.iotdb.metrics.config.MetricConfigDescriptor;
 import org.apache.iotdb.metrics.utils.MetricLevel;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /** The TsFileProcessorInfo records the memory cost of this TsFileProcessor. */
 public class TsFileProcessorInfo {
 
@@ -31,16 +33,16 @@ public class TsFileProcessorInfo {
   private StorageGroupInfo storageGroupInfo;
 
   /** memory occupation of unsealed TsFileResource, ChunkMetadata, WAL */
-  private long memCost;
+  private final AtomicLong memCost;
 
   public TsFileProcessorInfo(StorageGroupInfo storageGroupInfo) {
     this.storageGroupInfo = storageGroupInfo;
-    this.memCost = 0L;
+    this.memCost = new AtomicLong();
   }
 
   /** called in each insert */
   public void addTSPMemCost(long cost) {
-    memCost += cost;
+    memCost.addAndGet(cost);
     storageGroupInfo.addStorageGroupMemCost(cost);
     if (MetricConfigDescriptor.getInstance().getMetricConfig().getEnableMetric()) {
       MetricsService.getInstance()
@@ -57,7 +59,7 @@ public class TsFileProcessorInfo {
   /** called when meet exception */
   public void releaseTSPMemCost(long cost) {
     storageGroupInfo.releaseStorageGroupMemCost(cost);
-    memCost -= cost;
+    memCost.addAndGet(-cost);
     if (MetricConfigDescriptor.getInstance().getMetricConfig().getEnableMetric()) {
       MetricsService.getInstance()
           .getMetricManager()
@@ -72,7 +74,8 @@ public class TsFileProcessorInfo {
 
   /** called when closing TSP */
   public void clear() {
-    storageGroupInfo.releaseStorageGroupMemCost(memCost);
+    long cost = memCost.getAndSet(0L);
+    storageGroupInfo.releaseStorageGroupMemCost(cost);
     if (MetricConfigDescriptor.getInstance().getMetricConfig().getEnableMetric()) {
       MetricsService.getInstance()
           .getMetricManager()
@@ -81,8 +84,7 @@ public class TsFileProcessorInfo {
               MetricLevel.IMPORTANT,
               Tag.NAME.toString(),
               "chunkMetaData_" + storageGroupInfo.getDataRegion().getLogicalStorageGroupName())
-          .decr(memCost);
+          .decr(cost);
     }
-    memCost = 0L;
   }
 }
@@ -315,11 +315,11 @@ public class TsFileResource {
     }
   }
 
-  public void updateStartTime(String device, long time) {
+  public synchronized void updateStartTime(String device, long time) {
     timeIndex.updateStartTime(device, time);
   }
 
-  public void updateEndTime(String device, long time) {
+  public synchronized void updateEndTime(String device, long time) {
     timeIndex.updateEndTime(device, time);
   }
 
@@ -872,7 +872,7 @@ public class TsFileResource {
     return minPlanIndex;
   }
 
-  public void updatePlanIndexes(long planIndex) {
+  public synchronized void updatePlanIndexes(long planIndex) {
     if (planIndex == Long.MIN_VALUE || planIndex == Long.MAX_VALUE) {
       return;
     }
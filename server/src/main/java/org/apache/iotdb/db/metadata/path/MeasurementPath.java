@@ -23,6 +23,8 @@ import org.apache.iotdb.commons.utils.TestOnly;
 import org.apache.iotdb.db.engine.memtable.IMemTable;
 import org.apache.iotdb.db.engine.memtable.IWritableMemChunk;
 import org.apache.iotdb.db.engine.memtable.IWritableMemChunkGroup;
+import org.apache.iotdb.db.engine.memtable.SpilledMemChunk;
+import org.apache.iotdb.db.engine.memtable.WritableMemChunk;
 import org.apache.iotdb.db.engine.modification.Deletion;
 import org.apache.iotdb.db.engine.modification.Modification;
 import org.apache.iotdb.db.engine.modification.ModificationFile;
@@ -275,21 +277,51 @@ public class MeasurementPath extends PartialPath {
       return null;
     }
     IWritableMemChunk memChunk = memTableMap.get(deviceID).getMemChunkMap().get(getMeasurement());
-    // get sorted tv list is synchronized so different query can get right sorted list reference
-    TVList chunkCopy = memChunk.getSortedTvListForQuery();
-    int curSize = chunkCopy.rowCount();
     List<TimeRange> deletionList = null;
     if (modsToMemtable != null) {
       deletionList = constructDeletionList(memTable, modsToMemtable, timeLowerBound);
     }
-    return new ReadOnlyMemChunk(
-        getMeasurement(),
-        measurementSchema.getType(),
-        measurementSchema.getEncodingType(),
-        chunkCopy,
-        measurementSchema.getProps(),
-        curSize,
-        deletionList);
+    if (memChunk instanceof WritableMemChunk && ((WritableMemChunk) memChunk).hasSpilledRuns()) {
+      SpilledMemChunk spilledMemChunk = ((WritableMemChunk) memChunk).getSpilledMemChunkForQuery();
+      boolean created = false;
+      try {
+        ReadOnlyMemChunk readOnlyMemChunk =
+            new ReadOnlyMemChunk(
+                getMeasurement(),
+                measurementSchema.getType(),
+                measurementSchema.getEncodingType(),
+                spilledMemChunk,
+                measurementSchema.getProps(),
+                deletionList);
+        created = true;
+        return readOnlyMemChunk;
+      } finally {
+        if (!created) {
+          spilledMemChunk.release();
+        }
+      }
+    }
+    // get sorted tv list is synchronized so different query can get right sorted list reference
+    TVList chunkCopy = memChunk.getSortedTvListForQuery();
+    int curSize = chunkCopy.rowCount();
+    boolean created = false;
+    try {
+      ReadOnlyMemChunk readOnlyMemChunk =
+          new ReadOnlyMemChunk(
+              getMeasurement(),
+              measurementSchema.getType(),
+              measurementSchema.getEncodingType(),
+              chunkCopy,
+              measurementSchema.getProps(),
+              curSize,
+              deletionList);
+      created = true;
+      return readOnlyMemChunk;
+    } finally {
+      if (!created) {
+        chunkCopy.decreaseReferenceCount();
+      }
+    }
   }
 
   /**
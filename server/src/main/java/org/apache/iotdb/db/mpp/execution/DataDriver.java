@@ -171,6 +171,7 @@ public class DataDriver implements Driver {
       driverContext.failed(t);
     } finally {
       removeUsedFilesForQuery();
+      driverContext.getFragmentInstanceContext().releaseMemChunks();
     }
   }
 
@@ -18,12 +18,14 @@
  */
 package org.apache.iotdb.db.mpp.execution;
 
+import org.apache.iotdb.db.engine.querycontext.ReadOnlyMemChunk;
 import org.apache.iotdb.db.mpp.common.FragmentInstanceId;
 import org.apache.iotdb.db.mpp.operator.OperatorContext;
 import org.apache.iotdb.db.mpp.sql.planner.plan.node.PlanNodeId;
 import org.apache.iotdb.db.query.context.QueryContext;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -45,6 +47,9 @@ public class FragmentInstanceContext extends QueryContext {
 
   private long endTime = -1;
 
+  /** memtable data read by this fragment instance, released when its driver is closed */
+  private final List<ReadOnlyMemChunk> memChunks = Collections.synchronizedList(new ArrayList<>());
+
   //    private final GcMonitor gcMonitor;
   //    private final AtomicLong startNanos = new AtomicLong();
   //    private final AtomicLong startFullGcCount = new AtomicLong(-1);
@@ -92,6 +97,18 @@ public class FragmentInstanceContext extends QueryContext {
     this.driverContext = driverContext;
   }
 
+  @Override
+  public void retainMemChunk(ReadOnlyMemChunk memChunk) {
+    memChunks.add(memChunk);
+  }
+
+  public void releaseMemChunks() {
+    synchronized (memChunks) {
+      memChunks.forEach(ReadOnlyMemChunk::release);
+      memChunks.clear();
+    }
+  }
+
   public void failed(Throwable cause) {
     state.set(FragmentInstanceState.FAILED);
   }
@@ -234,6 +234,8 @@ public class StatementGenerator {
 
   public static Statement createStatement(TSInsertRecordsReq req)
       throws IllegalPathException, QueryProcessException {
+    // the records are not grouped into tablets, since the failing status of each record is indexed
+    // by its position in the request
     // construct insert statement
     InsertRowsStatement insertStatement = new InsertRowsStatement();
     List<InsertRowStatement> insertRowStatementList = new ArrayList<>();
@@ -273,6 +275,11 @@ public class StatementGenerator {
 
   public static Statement createStatement(TSInsertRecordsOfOneDeviceReq req)
       throws IllegalPathException, QueryProcessException {
+    // insert the rows as a tablet if they can form one
+    InsertTabletStatement insertTabletStatement = createInsertTabletStatement(req);
+    if (insertTabletStatement != null) {
+      return insertTabletStatement;
+    }
     // construct insert statement
     InsertRowsOfOneDeviceStatement insertStatement = new InsertRowsOfOneDeviceStatement();
     insertStatement.setDevicePath(new PartialPath(req.prefixPath));
@@ -291,6 +298,42 @@ public class StatementGenerator {
     return insertStatement;
   }
 
+  /** @return null if there are less than two rows or they cannot form a tablet */
+  private static InsertTabletStatement createInsertTabletStatement(
+      TSInsertRecordsOfOneDeviceReq req) throws IllegalPathException {
+    if (req.timestamps.size() < 2) {
+      return null;
+    }
+    List<Integer> rowIndexes = new ArrayList<>(req.timestamps.size());
+    for (int i = 0; i < req.timestamps.size(); i++) {
+      rowIndexes.add(i);
+    }
+    List<Integer> sortedRowIndexes =
+        QueryDataSetUtils.sortRecordsOfTablet(req.timestamps, req.measurementsList, rowIndexes);
+    if (sortedRowIndexes == null) {
+      return null;
+    }
+    TSDataType[] dataTypes = new TSDataType[req.measurementsList.get(0).size()];
+    Object[] columns =
+        QueryDataSetUtils.readTabletValuesFromRecords(req.valuesList, sortedRowIndexes, dataTypes);
+    if (columns == null) {
+      return null;
+    }
+    long[] times = new long[sortedRowIndexes.size()];
+    for (int i = 0; i < times.length; i++) {
+      times[i] = req.timestamps.get(sortedRowIndexes.get(i));
+    }
+    InsertTabletStatement insertStatement = new InsertTabletStatement();
+    insertStatement.setDevicePath(new PartialPath(req.prefixPath));
+    insertStatement.setMeasurements(req.measurementsList.get(0).toArray(new String[0]));
+    insertStatement.setTimes(times);
+    insertStatement.setColumns(columns);
+    insertStatement.setRowCount(times.length);
+    insertStatement.setDataTypes(dataTypes);
+    insertStatement.setAligned(req.isAligned);
+    return insertStatement;
+  }
+
   public static Statement createStatement(TSInsertStringRecordsOfOneDeviceReq req)
       throws IllegalPathException, QueryProcessException {
     // construct insert statement
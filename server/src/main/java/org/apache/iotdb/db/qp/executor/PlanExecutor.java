@@ -33,6 +33,7 @@ import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.StorageEngine;
 import org.apache.iotdb.db.engine.cache.BloomFilterCache;
 import org.apache.iotdb.db.engine.cache.ChunkCache;
+import org.apache.iotdb.db.engine.cache.MetadataIndexNodeCache;
 import org.apache.iotdb.db.engine.cache.TimeSeriesMetadataCache;
 import org.apache.iotdb.db.engine.cq.ContinuousQueryService;
 import org.apache.iotdb.db.engine.flush.pool.FlushTaskPoolManager;
@@ -551,6 +552,7 @@ public class PlanExecutor implements IPlanExecutor {
     ChunkCache.getInstance().clear();
     TimeSeriesMetadataCache.getInstance().clear();
     BloomFilterCache.getInstance().clear();
+    MetadataIndexNodeCache.getInstance().clear();
   }
 
   private void operateKillQuery(KillQueryPlan killQueryPlan) throws QueryIdNotExsitException {
@@ -1732,16 +1734,41 @@ public class PlanExecutor implements IPlanExecutor {
     }
   }
 
+  /**
+   * Insert rows of multiple devices. Instead of inserting the rows one by one, the storage engine
+   * groups them by data region and time partition and takes the insert lock once for each group.
+   */
   @Override
   public void insert(InsertRowsPlan plan) throws QueryProcessException {
+    List<Integer> rowIndexes = new ArrayList<>(plan.getInsertRowPlanList().size());
     for (int i = 0; i < plan.getInsertRowPlanList().size(); i++) {
       if (plan.getResults().containsKey(i) || plan.isExecuted(i)) {
         continue;
       }
+      prepareInsertRow(plan.getInsertRowPlanList().get(i));
+      rowIndexes.add(i);
+    }
+    try {
+      StorageEngine.getInstance().insert(plan, rowIndexes);
+    } catch (StorageEngineException e) {
+      // the whole batch is rejected
+      QueryProcessException exception = new QueryProcessException(e);
+      for (int i : rowIndexes) {
+        plan.getResults()
+            .putIfAbsent(i, RpcUtils.getStatus(exception.getErrorCode(), exception.getMessage()));
+      }
+    }
+    for (int i : rowIndexes) {
+      InsertRowPlan insertRowPlan = plan.getInsertRowPlanList().get(i);
+      if (plan.getResults().containsKey(i) || insertRowPlan.getFailedMeasurements() == null) {
+        continue;
+      }
       try {
-        insert(plan.getInsertRowPlanList().get(i));
-      } catch (QueryProcessException e) {
-        plan.getResults().put(i, RpcUtils.getStatus(e.getErrorCode(), e.getMessage()));
+        checkFailedMeasurments(insertRowPlan);
+      } catch (StorageEngineException | MetadataException e) {
+        QueryProcessException exception = new QueryProcessException(e);
+        plan.getResults()
+            .put(i, RpcUtils.getStatus(exception.getErrorCode(), exception.getMessage()));
       }
     }
     if (!plan.getResults().isEmpty()) {
@@ -1752,17 +1779,7 @@ public class PlanExecutor implements IPlanExecutor {
   @Override
   public void insert(InsertRowPlan insertRowPlan) throws QueryProcessException {
     try {
-      insertRowPlan.setMeasurementMNodes(
-          new IMeasurementMNode[insertRowPlan.getMeasurements().length]);
-      // When insert data with sql statement, the data types will be null here.
-      // We need to predicted the data types first
-      if (insertRowPlan.getDataTypes()[0] == null) {
-        for (int i = 0; i < insertRowPlan.getDataTypes().length; i++) {
-          insertRowPlan.getDataTypes()[i] =
-              TypeInferenceUtils.getPredictedDataType(
-                  insertRowPlan.getValues()[i], insertRowPlan.isNeedInferType());
-        }
-      }
+      prepareInsertRow(insertRowPlan);
 
       StorageEngine.getInstance().insert(insertRowPlan);
 
@@ -1776,6 +1793,20 @@ public class PlanExecutor implements IPlanExecutor {
     }
   }
 
+  private void prepareInsertRow(InsertRowPlan insertRowPlan) {
+    insertRowPlan.setMeasurementMNodes(
+        new IMeasurementMNode[insertRowPlan.getMeasurements().length]);
+    // When insert data with sql statement, the data types will be null here.
+    // We need to predicted the data types first
+    if (insertRowPlan.getDataTypes()[0] == null) {
+      for (int i = 0; i < insertRowPlan.getDataTypes().length; i++) {
+        insertRowPlan.getDataTypes()[i] =
+            TypeInferenceUtils.getPredictedDataType(
+                insertRowPlan.getValues()[i], insertRowPlan.isNeedInferType());
+      }
+    }
+  }
+
   @Override
   public void insertTablet(InsertMultiTabletsPlan insertMultiTabletsPlan)
       throws QueryProcessException {
@@ -1795,6 +1826,11 @@ public class PlanExecutor implements IPlanExecutor {
       }
       try {
         insertTablet(insertMultiTabletsPlan.getInsertTabletPlanList().get(i));
+      } catch (BatchProcessException e) {
+        // keep the status of each row of the tablet
+        insertMultiTabletsPlan
+            .getResults()
+            .put(i, RpcUtils.getStatus(Arrays.asList(e.getFailingStatus())));
       } catch (QueryProcessException e) {
         insertMultiTabletsPlan
             .getResults()
@@ -1836,7 +1872,12 @@ public class PlanExecutor implements IPlanExecutor {
       try {
         futureList.get(i).get();
       } catch (Exception e) {
-        if (e.getCause() instanceof QueryProcessException) {
+        if (e.getCause() instanceof BatchProcessException) {
+          results.put(
+              runIndexToRealIndex.get(i),
+              RpcUtils.getStatus(
+                  Arrays.asList(((BatchProcessException) e.getCause()).getFailingStatus())));
+        } else if (e.getCause() instanceof QueryProcessException) {
           QueryProcessException qe = (QueryProcessException) e.getCause();
           results.put(
               runIndexToRealIndex.get(i), RpcUtils.getStatus(qe.getErrorCode(), qe.getMessage()));
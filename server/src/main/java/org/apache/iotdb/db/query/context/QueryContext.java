@@ -21,13 +21,14 @@ package org.apache.iotdb.db.query.context;
 
 import org.apache.iotdb.db.engine.modification.Modification;
 import org.apache.iotdb.db.engine.modification.ModificationFile;
+import org.apache.iotdb.db.engine.querycontext.ReadOnlyMemChunk;
 import org.apache.iotdb.db.metadata.path.AlignedPath;
 import org.apache.iotdb.db.metadata.path.PartialPath;
+import org.apache.iotdb.db.query.control.QueryResourceManager;
 import org.apache.iotdb.db.query.control.QueryTimeManager;
 import org.apache.iotdb.tsfile.file.metadata.IChunkMetadata;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -46,7 +47,7 @@ public class QueryContext {
    * use this field because each call of Modification.getModifications() return a copy of the
    * Modifications, and we do not want it to create multiple copies within a query.
    */
-  private final Map<String, List<Modification>> fileModCache = new HashMap<>();
+  private final Map<String, List<Modification>> fileModCache = new ConcurrentHashMap<>();
 
   private long queryId;
 
@@ -95,11 +96,9 @@ public class QueryContext {
     return fileModifications.computeIfAbsent(
         path.getFullPath(),
         k -> {
-          List<Modification> allModifications = fileModCache.get(modFile.getFilePath());
-          if (allModifications == null) {
-            allModifications = (List<Modification>) modFile.getModifications();
-            fileModCache.put(modFile.getFilePath(), allModifications);
-          }
+          List<Modification> allModifications =
+              fileModCache.computeIfAbsent(
+                  modFile.getFilePath(), f -> (List<Modification>) modFile.getModifications());
           List<Modification> finalPathModifications = new ArrayList<>();
           if (!allModifications.isEmpty()) {
             allModifications.forEach(
@@ -126,6 +125,14 @@ public class QueryContext {
     return ans;
   }
 
+  /**
+   * Keep the list and spill file read by the memtable data until the query ends, when {@link
+   * QueryResourceManager#endQuery(long)} releases them.
+   */
+  public void retainMemChunk(ReadOnlyMemChunk memChunk) {
+    QueryResourceManager.getInstance().registerMemChunk(queryId, memChunk);
+  }
+
   public long getQueryId() {
     return queryId;
   }
@@ -18,6 +18,7 @@
  */
 package org.apache.iotdb.db.query.control;
 
+import org.apache.iotdb.db.engine.cache.MetadataIndexNodeCache;
 import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
 import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
 import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
@@ -28,7 +29,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -74,25 +77,62 @@ public class FileReaderManager {
    */
   private Map<String, AtomicInteger> unclosedReferenceMap;
 
+  /**
+   * the key of closedRemovedReaderMap is the file path and the value is the readers removed by
+   * closeFileAndRemoveReader while the file was still referenced, which are closed when the
+   * reference count of the file drops to zero.
+   */
+  private Map<String, List<TsFileSequenceReader>> closedRemovedReaderMap;
+  /**
+   * the key of unclosedRemovedReaderMap is the file path and the value is the readers removed by
+   * closeFileAndRemoveReader while the file was still referenced, which are closed when the
+   * reference count of the file drops to zero.
+   */
+  private Map<String, List<TsFileSequenceReader>> unclosedRemovedReaderMap;
+
   private FileReaderManager() {
     closedFileReaderMap = new ConcurrentHashMap<>();
     unclosedFileReaderMap = new ConcurrentHashMap<>();
     closedReferenceMap = new ConcurrentHashMap<>();
     unclosedReferenceMap = new ConcurrentHashMap<>();
+    closedRemovedReaderMap = new ConcurrentHashMap<>();
+    unclosedRemovedReaderMap = new ConcurrentHashMap<>();
   }
 
   public static FileReaderManager getInstance() {
     return FileReaderManagerHelper.INSTANCE;
   }
 
+  /**
+   * Remove the readers of the file, e.g. before it is deleted. A reader that is still referenced by
+   * queries is only closed when the last reference is released, because chunks read through a
+   * memory-mapped reader are invalid after it is closed.
+   */
   public synchronized void closeFileAndRemoveReader(String filePath) throws IOException {
-    closedReferenceMap.remove(filePath);
-    TsFileSequenceReader reader = closedFileReaderMap.remove(filePath);
-    if (reader != null) {
-      reader.close();
+    closeOrDeferReader(filePath, closedFileReaderMap, closedReferenceMap, closedRemovedReaderMap);
+    closeOrDeferReader(
+        filePath, unclosedFileReaderMap, unclosedReferenceMap, unclosedRemovedReaderMap);
+    MetadataIndexNodeCache.getInstance().invalidate(filePath);
+  }
+
+  private void closeOrDeferReader(
+      String filePath,
+      Map<String, TsFileSequenceReader> readerMap,
+      Map<String, AtomicInteger> refMap,
+      Map<String, List<TsFileSequenceReader>> removedReaderMap)
+      throws IOException {
+    TsFileSequenceReader reader = readerMap.remove(filePath);
+    AtomicInteger refNum = refMap.get(filePath);
+    if (refNum != null && refNum.get() > 0) {
+      if (reader != null) {
+        // a new file may be written to the same path, e.g. when settling, so the old reader must
+        // not put the nodes of the old file into the cache any more
+        reader.setMetadataIndexNodeCache(null);
+        removedReaderMap.computeIfAbsent(filePath, k -> new ArrayList<>()).add(reader);
+      }
+      return;
     }
-    unclosedReferenceMap.remove(filePath);
-    reader = unclosedFileReaderMap.remove(filePath);
+    refMap.remove(filePath);
     if (reader != null) {
       reader.close();
     }
@@ -127,7 +167,7 @@ public class FileReaderManager {
         tsFileReader = new UnClosedTsFileReader(filePath);
       } else {
         tsFileReader = new TsFileSequenceReader(filePath);
-        if (tsFileReader.readVersionNumber() != TSFileConfig.VERSION_NUMBER) {
+        if (!tsFileReader.isVersionNumberSupported()) {
           tsFileReader.close();
           tsFileReader = new TsFileSequenceReaderForV2(filePath);
           if (!((TsFileSequenceReaderForV2) tsFileReader)
@@ -135,6 +175,8 @@ public class FileReaderManager {
               .equals(TSFileConfig.VERSION_NUMBER_V2)) {
             throw new IOException("The version of this TsFile is not corrent. ");
           }
+        } else if (MetadataIndexNodeCache.isCacheEnable()) {
+          tsFileReader.setMetadataIndexNodeCache(MetadataIndexNodeCache.getInstance());
         }
       }
       readerMap.put(filePath, tsFileReader);
@@ -202,6 +244,17 @@ public class FileReaderManager {
       }
       readerMap.remove(tsFilePath);
       refMap.remove(tsFilePath);
+      List<TsFileSequenceReader> removedReaders =
+          (isClosed ? closedRemovedReaderMap : unclosedRemovedReaderMap).remove(tsFilePath);
+      if (removedReaders != null) {
+        for (TsFileSequenceReader removedReader : removedReaders) {
+          try {
+            removedReader.close();
+          } catch (IOException e) {
+            logger.error("Can not close TsFileSequenceReader {} !", removedReader.getFileName(), e);
+          }
+        }
+      }
       if (resourceLogger.isDebugEnabled()) {
         resourceLogger.debug("{} TsFileReader is closed because of no reference.", tsFilePath);
       }
@@ -234,6 +287,18 @@ public class FileReaderManager {
       unclosedReferenceMap.remove(entry.getKey());
       iterator.remove();
     }
+    closeRemovedReaders(closedRemovedReaderMap);
+    closeRemovedReaders(unclosedRemovedReaderMap);
+  }
+
+  private void closeRemovedReaders(Map<String, List<TsFileSequenceReader>> removedReaderMap)
+      throws IOException {
+    for (List<TsFileSequenceReader> removedReaders : removedReaderMap.values()) {
+      for (TsFileSequenceReader removedReader : removedReaders) {
+        removedReader.close();
+      }
+    }
+    removedReaderMap.clear();
   }
 
   /** This method is only for unit tests. */
@@ -20,6 +20,7 @@ package org.apache.iotdb.db.query.control;
 
 import org.apache.iotdb.db.engine.StorageEngine;
 import org.apache.iotdb.db.engine.querycontext.QueryDataSource;
+import org.apache.iotdb.db.engine.querycontext.ReadOnlyMemChunk;
 import org.apache.iotdb.db.engine.storagegroup.DataRegion;
 import org.apache.iotdb.db.exception.StorageEngineException;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
@@ -71,10 +72,19 @@ public class QueryResourceManager {
    */
   private final Map<Long, Map<String, QueryDataSource>> cachedQueryDataSourcesMap;
 
+  /**
+   * Record memtable data read by queries, whose lists and spill files are kept until the queries
+   * end
+   *
+   * <p>Key: query job id. Value: memtable data taken by the query.
+   */
+  private final Map<Long, List<ReadOnlyMemChunk>> memChunkMap;
+
   private QueryResourceManager() {
     filePathsManager = new QueryFileManager();
     externalSortFileMap = new ConcurrentHashMap<>();
     cachedQueryDataSourcesMap = new ConcurrentHashMap<>();
+    memChunkMap = new ConcurrentHashMap<>();
   }
 
   public static QueryResourceManager getInstance() {
@@ -114,6 +124,19 @@ public class QueryResourceManager {
     externalSortFileMap.computeIfAbsent(queryId, x -> new ArrayList<>()).add(deserializer);
   }
 
+  /**
+   * register memtable data read by a query, its list and spill file are released when the query
+   * ends.
+   *
+   * @param queryId query job id
+   * @param memChunk memtable data taken by the query
+   */
+  public void registerMemChunk(long queryId, ReadOnlyMemChunk memChunk) {
+    memChunkMap
+        .computeIfAbsent(queryId, x -> Collections.synchronizedList(new ArrayList<>()))
+        .add(memChunk);
+  }
+
   /**
    * The method is called in mergeLock() when executing query. This method will get all the
    * QueryDataSource needed for this query and put them in the cachedQueryDataSourcesMap.
@@ -188,6 +211,8 @@ public class QueryResourceManager {
             cachedQueryDataSource.getSeqResources(), cachedQueryDataSource.getUnseqResources());
 
     queryDataSource.setDataTTL(cachedQueryDataSource.getDataTTL());
+    queryDataSource.setDataVersion(cachedQueryDataSource.getDataVersion());
+    queryDataSource.setDataVersionTracker(cachedQueryDataSource.getDataVersionTracker());
 
     // calculate the read order of unseqResources
     QueryUtils.fillOrderIndexes(queryDataSource, deviceId, ascending);
@@ -216,6 +241,12 @@ public class QueryResourceManager {
     // remove usage of opened file paths of current thread
     filePathsManager.removeUsedFilesForQuery(queryId);
 
+    // release lists and spill files of memtables read by the query
+    List<ReadOnlyMemChunk> memChunks = memChunkMap.remove(queryId);
+    if (memChunks != null) {
+      memChunks.forEach(ReadOnlyMemChunk::release);
+    }
+
     // close and delete UDF temp files
     TemporaryQueryDataFileService.getInstance().deregister(queryId);
 
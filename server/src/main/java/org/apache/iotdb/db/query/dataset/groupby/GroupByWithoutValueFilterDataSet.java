@@ -39,6 +39,8 @@ import org.apache.iotdb.db.query.executor.groupby.impl.LocalAlignedGroupByExecut
 import org.apache.iotdb.db.query.executor.groupby.impl.LocalGroupByExecutor;
 import org.apache.iotdb.db.query.factory.AggregateResultFactory;
 import org.apache.iotdb.db.query.filter.TsFileFilter;
+import org.apache.iotdb.db.query.pool.AggregationTaskPoolManager;
+import org.apache.iotdb.db.query.pool.AggregationTaskPoolManager.AggregationTask;
 import org.apache.iotdb.tsfile.read.expression.IExpression;
 import org.apache.iotdb.tsfile.read.expression.impl.GlobalTimeExpression;
 import org.apache.iotdb.tsfile.read.filter.basic.Filter;
@@ -49,6 +51,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -59,6 +62,13 @@ public class GroupByWithoutValueFilterDataSet extends GroupByTimeEngineDataSet {
   private static final Logger logger =
       LoggerFactory.getLogger(GroupByWithoutValueFilterDataSet.class);
 
+  /**
+   * A pre-aggregation window is usually small, so handing the series of a window to the pool only
+   * pays off when there are enough of them. Windows of fewer series are calculated on the calling
+   * thread.
+   */
+  private static final int MIN_SERIES_NUM_TO_CALC_IN_PARALLEL = 8;
+
   protected Map<PartialPath, GroupByExecutor> pathExecutors = new HashMap<>();
   protected Map<AlignedPath, AlignedGroupByExecutor> alignedPathExecutors = new HashMap<>();
 
@@ -196,34 +206,62 @@ public class GroupByWithoutValueFilterDataSet extends GroupByTimeEngineDataSet {
         slidingWindowGroupByExecutors) {
       slidingWindowGroupByExecutor.setTimeRange(curStartTime, curEndTime);
     }
+    List<PartialPath> nonAlignedPaths = new ArrayList<>(pathToAggrIndexesMap.keySet());
+    List<AlignedPath> alignedPaths = new ArrayList<>(alignedPathToAggrIndexesMap.keySet());
+    // the tasks calculate the current pre-aggregation window, they are reused for every window
+    List<List<AggregateResult>> nonAlignedResults =
+        new ArrayList<>(Collections.nCopies(nonAlignedPaths.size(), null));
+    List<List<List<AggregateResult>>> alignedResults =
+        new ArrayList<>(Collections.nCopies(alignedPaths.size(), null));
+    List<AggregationTask> tasks = new ArrayList<>(nonAlignedPaths.size() + alignedPaths.size());
+    for (int i = 0; i < nonAlignedPaths.size(); i++) {
+      int index = i;
+      GroupByExecutor groupByExecutor = pathExecutors.get(nonAlignedPaths.get(i));
+      tasks.add(
+          () ->
+              nonAlignedResults.set(
+                  index, groupByExecutor.calcResult(curPreAggrStartTime, curPreAggrEndTime)));
+    }
+    for (int i = 0; i < alignedPaths.size(); i++) {
+      int index = i;
+      AlignedGroupByExecutor groupByExecutor = alignedPathExecutors.get(alignedPaths.get(i));
+      tasks.add(
+          () ->
+              alignedResults.set(
+                  index,
+                  groupByExecutor.calcAlignedResult(curPreAggrStartTime, curPreAggrEndTime)));
+    }
     try {
       while (!isEndCal()) {
-        // get pre-aggregate results of non-aligned series
-        for (Map.Entry<PartialPath, List<Integer>> entry : pathToAggrIndexesMap.entrySet()) {
-          MeasurementPath path = (MeasurementPath) entry.getKey();
-          List<Integer> indexes = entry.getValue();
-          GroupByExecutor groupByExecutor = pathExecutors.get(path);
-          List<AggregateResult> aggregations =
-              groupByExecutor.calcResult(curPreAggrStartTime, curPreAggrEndTime);
-          for (int i = 0; i < aggregations.size(); i++) {
-            int resultIndex = indexes.get(i);
-            slidingWindowGroupByExecutors[resultIndex].update(aggregations.get(i).clone());
+        // get pre-aggregate results of all series, in parallel if there are enough series
+        if (tasks.size() < MIN_SERIES_NUM_TO_CALC_IN_PARALLEL) {
+          for (AggregationTask task : tasks) {
+            task.run();
+          }
+        } else {
+          AggregationTaskPoolManager.getInstance().runAll(queryId, tasks);
+        }
+
+        // merge pre-aggregate results of non-aligned series
+        for (int i = 0; i < nonAlignedPaths.size(); i++) {
+          List<Integer> indexes = pathToAggrIndexesMap.get(nonAlignedPaths.get(i));
+          List<AggregateResult> aggregations = nonAlignedResults.get(i);
+          for (int j = 0; j < aggregations.size(); j++) {
+            int resultIndex = indexes.get(j);
+            slidingWindowGroupByExecutors[resultIndex].update(aggregations.get(j).clone());
           }
         }
-        // get pre-aggregate results of aligned series
-        for (Map.Entry<AlignedPath, List<List<Integer>>> entry :
-            alignedPathToAggrIndexesMap.entrySet()) {
-          AlignedPath path = entry.getKey();
-          List<List<Integer>> indexesList = entry.getValue();
-          AlignedGroupByExecutor groupByExecutor = alignedPathExecutors.get(path);
-          List<List<AggregateResult>> aggregationsList =
-              groupByExecutor.calcAlignedResult(curPreAggrStartTime, curPreAggrEndTime);
-          for (int i = 0; i < path.getMeasurementList().size(); i++) {
-            List<AggregateResult> aggregations = aggregationsList.get(i);
-            List<Integer> indexes = indexesList.get(i);
-            for (int j = 0; j < aggregations.size(); j++) {
-              int resultIndex = indexes.get(j);
-              slidingWindowGroupByExecutors[resultIndex].update(aggregations.get(j).clone());
+        // merge pre-aggregate results of aligned series
+        for (int i = 0; i < alignedPaths.size(); i++) {
+          AlignedPath path = alignedPaths.get(i);
+          List<List<Integer>> indexesList = alignedPathToAggrIndexesMap.get(path);
+          List<List<AggregateResult>> aggregationsList = alignedResults.get(i);
+          for (int j = 0; j < path.getMeasurementList().size(); j++) {
+            List<AggregateResult> aggregations = aggregationsList.get(j);
+            List<Integer> indexes = indexesList.get(j);
+            for (int k = 0; k < aggregations.size(); k++) {
+              int resultIndex = indexes.get(k);
+              slidingWindowGroupByExecutors[resultIndex].update(aggregations.get(k).clone());
             }
           }
         }
@@ -232,7 +270,7 @@ public class GroupByWithoutValueFilterDataSet extends GroupByTimeEngineDataSet {
       for (int i = 0; i < curAggregateResults.length; i++) {
         curAggregateResults[i] = slidingWindowGroupByExecutors[i].getAggregateResult();
       }
-    } catch (QueryProcessException e) {
+    } catch (QueryProcessException | StorageEngineException e) {
       logger.error("GroupByWithoutValueFilterDataSet execute has error", e);
       throw new IOException(e.getMessage(), e);
     }
@@ -22,8 +22,11 @@ package org.apache.iotdb.db.query.executor;
 import org.apache.iotdb.commons.conf.IoTDBConstant;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.StorageEngine;
+import org.apache.iotdb.db.engine.cache.QueryResultCache;
+import org.apache.iotdb.db.engine.cache.QueryResultCache.QueryResultCacheKey;
 import org.apache.iotdb.db.engine.querycontext.QueryDataSource;
 import org.apache.iotdb.db.engine.storagegroup.DataRegion;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
 import org.apache.iotdb.db.exception.StorageEngineException;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.metadata.path.AlignedPath;
@@ -34,11 +37,14 @@ import org.apache.iotdb.db.qp.physical.crud.AggregationPlan;
 import org.apache.iotdb.db.qp.physical.crud.QueryPlan;
 import org.apache.iotdb.db.qp.physical.crud.RawDataQueryPlan;
 import org.apache.iotdb.db.query.aggregation.AggregateResult;
+import org.apache.iotdb.db.query.aggregation.AggregationType;
 import org.apache.iotdb.db.query.context.QueryContext;
 import org.apache.iotdb.db.query.control.QueryResourceManager;
 import org.apache.iotdb.db.query.dataset.SingleDataSet;
 import org.apache.iotdb.db.query.factory.AggregateResultFactory;
 import org.apache.iotdb.db.query.filter.TsFileFilter;
+import org.apache.iotdb.db.query.pool.AggregationTaskPoolManager;
+import org.apache.iotdb.db.query.pool.AggregationTaskPoolManager.AggregationTask;
 import org.apache.iotdb.db.query.reader.series.AlignedSeriesAggregateReader;
 import org.apache.iotdb.db.query.reader.series.IAggregateReader;
 import org.apache.iotdb.db.query.reader.series.IReaderByTimestamp;
@@ -54,7 +60,9 @@ import org.apache.iotdb.tsfile.read.common.IBatchDataIterator;
 import org.apache.iotdb.tsfile.read.common.RowRecord;
 import org.apache.iotdb.tsfile.read.expression.IExpression;
 import org.apache.iotdb.tsfile.read.expression.impl.GlobalTimeExpression;
+import org.apache.iotdb.tsfile.read.filter.TimeFilter;
 import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.read.filter.factory.FilterFactory;
 import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
 import org.apache.iotdb.tsfile.read.query.timegenerator.TimeGenerator;
 import org.apache.iotdb.tsfile.utils.Pair;
@@ -113,7 +121,6 @@ public class AggregationExecutor {
       timeFilter = ((GlobalTimeExpression) expression).getFilter();
     }
 
-    // TODO use multi-thread
     Map<PartialPath, List<Integer>> pathToAggrIndexesMap =
         MetaUtils.groupAggregationsBySeries(selectedSeries);
     // Attention: this method will REMOVE aligned path from pathToAggrIndexesMap
@@ -143,23 +150,31 @@ public class AggregationExecutor {
       StorageEngine.getInstance().mergeUnLock(lockList);
     }
 
+    // each task fills the results of its own series, so they need no merging afterwards
+    List<AggregationTask> tasks = new ArrayList<>(groupedPathList.size());
+    Filter finalTimeFilter = timeFilter;
     for (Map.Entry<PartialPath, List<Integer>> entry : pathToAggrIndexesMap.entrySet()) {
       PartialPath seriesPath = entry.getKey();
-      aggregateOneSeries(
-          seriesPath,
-          entry.getValue(),
-          aggregationPlan.getAllMeasurementsInDevice(seriesPath.getDevice()),
-          timeFilter);
+      tasks.add(
+          () ->
+              aggregateOneSeries(
+                  seriesPath,
+                  entry.getValue(),
+                  aggregationPlan.getAllMeasurementsInDevice(seriesPath.getDevice()),
+                  finalTimeFilter));
     }
     for (Map.Entry<AlignedPath, List<List<Integer>>> entry :
         alignedPathToAggrIndexesMap.entrySet()) {
       AlignedPath alignedPath = entry.getKey();
-      aggregateOneAlignedSeries(
-          alignedPath,
-          entry.getValue(),
-          aggregationPlan.getAllMeasurementsInDevice(alignedPath.getDevice()),
-          timeFilter);
+      tasks.add(
+          () ->
+              aggregateOneAlignedSeries(
+                  alignedPath,
+                  entry.getValue(),
+                  aggregationPlan.getAllMeasurementsInDevice(alignedPath.getDevice()),
+                  finalTimeFilter));
     }
+    AggregationTaskPoolManager.getInstance().runAll(context.getQueryId(), tasks);
 
     return constructDataSet(Arrays.asList(aggregateResultList), aggregationPlan);
   }
@@ -191,24 +206,176 @@ public class AggregationExecutor {
         descAggregateResultList.add(aggregateResult);
       }
     }
+    if (QueryResultCache.isCacheEnable()) {
+      aggregateOneSeriesWithCache(
+          seriesPath,
+          allMeasurementsInDevice,
+          timeFilter,
+          tsDataType,
+          ascAggregateResultList,
+          descAggregateResultList);
+    } else {
+      aggregateOneSeries(
+          seriesPath,
+          allMeasurementsInDevice,
+          context,
+          timeFilter,
+          tsDataType,
+          ascAggregateResultList,
+          descAggregateResultList,
+          null,
+          ascending);
+    }
+
+    int ascIndex = 0;
+    int descIndex = 0;
+    for (int i : indexes) {
+      aggregateResultList[i] =
+          isAsc[i]
+              ? ascAggregateResultList.get(ascIndex++)
+              : descAggregateResultList.get(descIndex++);
+    }
+  }
+
+  /**
+   * Aggregate one series with the results of the sealed TsFiles in {@link QueryResultCache}. The
+   * data before the start time of the unsealed TsFiles only lies in the sealed TsFiles, so its
+   * results are reused while the data version of the storage group stays the same, and only the
+   * rest is read from the TsFiles.
+   */
+  private void aggregateOneSeriesWithCache(
+      PartialPath seriesPath,
+      Set<String> allMeasurementsInDevice,
+      Filter timeFilter,
+      TSDataType tsDataType,
+      List<AggregateResult> ascAggregateResultList,
+      List<AggregateResult> descAggregateResultList)
+      throws IOException, QueryProcessException, StorageEngineException {
+    QueryDataSource queryDataSource =
+        QueryResourceManager.getInstance()
+            .getQueryDataSource(seriesPath, context, timeFilter, ascending);
+    // the data expired by TTL changes over time without a new data version
+    if (queryDataSource.getDataTTL() != Long.MAX_VALUE) {
+      aggregateOneSeries(
+          seriesPath,
+          allMeasurementsInDevice,
+          context,
+          timeFilter,
+          tsDataType,
+          ascAggregateResultList,
+          descAggregateResultList,
+          null,
+          ascending);
+      return;
+    }
+
+    String deviceId = seriesPath.getDevice();
+    long unsealedStartTime = Long.MAX_VALUE;
+    for (TsFileResource resource : queryDataSource.getSeqResources()) {
+      if (!resource.isClosed()) {
+        unsealedStartTime = Math.min(unsealedStartTime, resource.getStartTime(deviceId));
+      }
+    }
+    for (TsFileResource resource : queryDataSource.getUnseqResources()) {
+      if (!resource.isClosed()) {
+        unsealedStartTime = Math.min(unsealedStartTime, resource.getStartTime(deviceId));
+      }
+    }
+
+    List<AggregateResult> cachedResultList = new ArrayList<>();
+    List<String> aggregationNames = new ArrayList<>();
+    for (AggregateResult aggregateResult : ascAggregateResultList) {
+      aggregationNames.add(aggregateResult.getAggregationType().name());
+    }
+    for (AggregateResult aggregateResult : descAggregateResultList) {
+      aggregationNames.add(aggregateResult.getAggregationType().name());
+    }
+    QueryResultCacheKey key =
+        new QueryResultCacheKey(
+            seriesPath.getFullPath(),
+            tsDataType,
+            aggregationNames,
+            timeFilter,
+            unsealedStartTime);
+    List<AggregateResult> sealedResultList =
+        QueryResultCache.getInstance()
+            .get(
+                key,
+                queryDataSource.getDataVersionTracker(),
+                queryDataSource.getDataVersion());
+    if (sealedResultList == null) {
+      Filter sealedFilter = TimeFilter.lt(unsealedStartTime);
+      sealedResultList =
+          aggregateOneSeriesInTimeRange(
+              seriesPath,
+              allMeasurementsInDevice,
+              timeFilter == null ? sealedFilter : FilterFactory.and(timeFilter, sealedFilter),
+              tsDataType,
+              ascAggregateResultList,
+              descAggregateResultList);
+      QueryResultCache.getInstance().put(key, queryDataSource.getDataVersion(), sealedResultList);
+    }
+    cachedResultList.addAll(ascAggregateResultList);
+    cachedResultList.addAll(descAggregateResultList);
+    mergeAggregateResults(cachedResultList, sealedResultList);
+
+    if (unsealedStartTime != Long.MAX_VALUE) {
+      Filter unsealedFilter = TimeFilter.gtEq(unsealedStartTime);
+      mergeAggregateResults(
+          cachedResultList,
+          aggregateOneSeriesInTimeRange(
+              seriesPath,
+              allMeasurementsInDevice,
+              timeFilter == null ? unsealedFilter : FilterFactory.and(timeFilter, unsealedFilter),
+              tsDataType,
+              ascAggregateResultList,
+              descAggregateResultList));
+    }
+  }
+
+  /**
+   * @return new results of the same aggregations as the asc and desc results, in the order of asc
+   *     results followed by desc results
+   */
+  private List<AggregateResult> aggregateOneSeriesInTimeRange(
+      PartialPath seriesPath,
+      Set<String> allMeasurementsInDevice,
+      Filter timeFilter,
+      TSDataType tsDataType,
+      List<AggregateResult> ascAggregateResultList,
+      List<AggregateResult> descAggregateResultList)
+      throws IOException, QueryProcessException, StorageEngineException {
+    List<AggregateResult> ascResultList = new ArrayList<>(ascAggregateResultList.size());
+    for (AggregateResult aggregateResult : ascAggregateResultList) {
+      ascResultList.add(
+          AggregateResultFactory.getAggrResultByType(
+              aggregateResult.getAggregationType(), tsDataType, true));
+    }
+    List<AggregateResult> descResultList = new ArrayList<>(descAggregateResultList.size());
+    for (AggregateResult aggregateResult : descAggregateResultList) {
+      descResultList.add(
+          AggregateResultFactory.getAggrResultByType(
+              aggregateResult.getAggregationType(), tsDataType, false));
+    }
     aggregateOneSeries(
         seriesPath,
         allMeasurementsInDevice,
         context,
         timeFilter,
         tsDataType,
-        ascAggregateResultList,
-        descAggregateResultList,
+        ascResultList,
+        descResultList,
         null,
         ascending);
+    List<AggregateResult> resultList = new ArrayList<>(ascResultList);
+    resultList.addAll(descResultList);
+    return resultList;
+  }
 
-    int ascIndex = 0;
-    int descIndex = 0;
-    for (int i : indexes) {
-      aggregateResultList[i] =
-          isAsc[i]
-              ? ascAggregateResultList.get(ascIndex++)
-              : descAggregateResultList.get(descIndex++);
+  private static void mergeAggregateResults(
+      List<AggregateResult> resultList, List<AggregateResult> anotherResultList) {
+    for (int i = 0; i < resultList.size(); i++) {
+      resultList.get(i).merge(anotherResultList.get(i));
     }
   }
 
@@ -400,28 +567,61 @@ public class AggregationExecutor {
         continue;
       }
 
-      while (seriesReader.hasNextChunk()) {
-        // cal by chunk statistics
-        if (seriesReader.canUseCurrentChunkStatistics()) {
-          Statistics chunkStatistics = seriesReader.currentChunkStatistics();
+      // the chunks of the file are unpacked by hasNextChunk()
+      if (seriesReader.hasNextChunk()) {
+        remainingToCalculate =
+            aggregateChunks(
+                seriesReader, aggregateResultList, isCalculatedArray, remainingToCalculate);
+        if (remainingToCalculate == 0) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Aggregate the chunks unpacked from files. The next file is not unpacked here, so that its
+   * statistics can be used.
+   */
+  private static int aggregateChunks(
+      IAggregateReader seriesReader,
+      List<AggregateResult> aggregateResultList,
+      boolean[] isCalculatedArray,
+      int remainingToCalculate)
+      throws IOException, QueryProcessException {
+    while (seriesReader.hasCachedChunk() && seriesReader.hasNextChunk()) {
+      // cal by chunk statistics
+      if (seriesReader.canUseCurrentChunkStatistics()) {
+        Statistics chunkStatistics = seriesReader.currentChunkStatistics();
+        remainingToCalculate =
+            aggregateStatistics(
+                aggregateResultList, isCalculatedArray, remainingToCalculate, chunkStatistics);
+        if (remainingToCalculate == 0) {
+          return 0;
+        }
+        seriesReader.skipCurrentChunk();
+        continue;
+      }
+      // cal count by the regular time index of the chunk
+      if (isAllCountRemaining(aggregateResultList, isCalculatedArray)) {
+        Statistics countStatistics = seriesReader.currentChunkStatisticsByTimeIndex();
+        if (countStatistics != null) {
           remainingToCalculate =
               aggregateStatistics(
-                  aggregateResultList, isCalculatedArray, remainingToCalculate, chunkStatistics);
-          if (remainingToCalculate == 0) {
-            return;
-          }
+                  aggregateResultList, isCalculatedArray, remainingToCalculate, countStatistics);
           seriesReader.skipCurrentChunk();
           continue;
         }
+      }
 
-        remainingToCalculate =
-            aggregatePages(
-                seriesReader, aggregateResultList, isCalculatedArray, remainingToCalculate);
-        if (remainingToCalculate == 0) {
-          return;
-        }
+      remainingToCalculate =
+          aggregatePages(
+              seriesReader, aggregateResultList, isCalculatedArray, remainingToCalculate);
+      if (remainingToCalculate == 0) {
+        return 0;
       }
     }
+    return remainingToCalculate;
   }
 
   private static void aggregateFromAlignedReader(
@@ -456,29 +656,10 @@ public class AggregationExecutor {
         continue;
       }
 
-      while (seriesReader.hasNextChunk()) {
-        // cal by chunk statistics
-        if (seriesReader.canUseCurrentChunkStatistics()) {
-          while (seriesReader.hasNextSubSeries()) {
-            Statistics chunkStatistics = seriesReader.currentChunkStatistics();
-            remainingToCalculate =
-                aggregateStatistics(
-                    aggregateResultList.get(seriesReader.getCurIndex()),
-                    isCalculatedArray.get(seriesReader.getCurIndex()),
-                    remainingToCalculate,
-                    chunkStatistics);
-            if (remainingToCalculate == 0) {
-              seriesReader.resetIndex();
-              return;
-            }
-            seriesReader.nextSeries();
-          }
-          seriesReader.skipCurrentChunk();
-          continue;
-        }
-
+      // the chunks of the file are unpacked by hasNextChunk()
+      if (seriesReader.hasNextChunk()) {
         remainingToCalculate =
-            aggregateAlignedPages(
+            aggregateAlignedChunks(
                 seriesReader, aggregateResultList, isCalculatedArray, remainingToCalculate);
         if (remainingToCalculate == 0) {
           return;
@@ -487,6 +668,59 @@ public class AggregationExecutor {
     }
   }
 
+  /**
+   * Aggregate the chunks unpacked from files. The next file is not unpacked here, so that its
+   * statistics can be used.
+   */
+  private static int aggregateAlignedChunks(
+      AlignedSeriesAggregateReader seriesReader,
+      List<List<AggregateResult>> aggregateResultList,
+      List<boolean[]> isCalculatedArray,
+      int remainingToCalculate)
+      throws IOException, QueryProcessException {
+    while (seriesReader.hasCachedChunk() && seriesReader.hasNextChunk()) {
+      // cal by chunk statistics
+      if (seriesReader.canUseCurrentChunkStatistics()) {
+        while (seriesReader.hasNextSubSeries()) {
+          Statistics chunkStatistics = seriesReader.currentChunkStatistics();
+          remainingToCalculate =
+              aggregateStatistics(
+                  aggregateResultList.get(seriesReader.getCurIndex()),
+                  isCalculatedArray.get(seriesReader.getCurIndex()),
+                  remainingToCalculate,
+                  chunkStatistics);
+          if (remainingToCalculate == 0) {
+            seriesReader.resetIndex();
+            return 0;
+          }
+          seriesReader.nextSeries();
+        }
+        seriesReader.skipCurrentChunk();
+        continue;
+      }
+
+      remainingToCalculate =
+          aggregateAlignedPages(
+              seriesReader, aggregateResultList, isCalculatedArray, remainingToCalculate);
+      if (remainingToCalculate == 0) {
+        return 0;
+      }
+    }
+    return remainingToCalculate;
+  }
+
+  /** @return true if every aggregation that is not calculated yet is COUNT */
+  private static boolean isAllCountRemaining(
+      List<AggregateResult> aggregateResultList, boolean[] isCalculatedArray) {
+    for (int i = 0; i < aggregateResultList.size(); i++) {
+      if (!isCalculatedArray[i]
+          && aggregateResultList.get(i).getAggregationType() != AggregationType.COUNT) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /** Aggregate each result in the list with the statistics */
   private static int aggregateStatistics(
       List<AggregateResult> aggregateResultList,
@@ -37,6 +37,8 @@ import org.apache.iotdb.db.query.context.QueryContext;
 import org.apache.iotdb.db.query.control.QueryResourceManager;
 import org.apache.iotdb.db.query.dataset.ListDataSet;
 import org.apache.iotdb.db.query.executor.fill.LastPointReader;
+import org.apache.iotdb.db.query.pool.AggregationTaskPoolManager;
+import org.apache.iotdb.db.query.pool.AggregationTaskPoolManager.AggregationTask;
 import org.apache.iotdb.db.service.IoTDB;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.read.TimeValuePair;
@@ -57,7 +59,9 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -164,9 +168,11 @@ public class LastQueryExecutor {
 
     if (CACHE_ENABLED) {
       List<LastCacheAccessor> cacheAccessors = new ArrayList<>();
+      // the id table of each device is only looked up once
+      Map<PartialPath, IDTable> deviceToIdTable = new HashMap<>();
       for (PartialPath path : seriesPaths) {
         if (ID_TABLE_ENABLED) {
-          cacheAccessors.add(new IDTableLastCacheAccessor(path));
+          cacheAccessors.add(new IDTableLastCacheAccessor(path, getIdTable(path, deviceToIdTable)));
         } else {
           cacheAccessors.add(new SchemaProcessorLastCacheAccessor(path));
         }
@@ -277,30 +283,42 @@ public class LastQueryExecutor {
       StorageEngine.getInstance().mergeUnLock(lockList);
     }
 
-    List<LastPointReader> readers = new ArrayList<>();
+    // series of the same device are read by one task, so the TimeseriesMetadata of all the
+    // measurements of a device in a TsFile are loaded into the cache by one lookup
+    Map<String, List<Integer>> deviceToSeriesIndexes = new LinkedHashMap<>();
     for (int i = 0; i < seriesPaths.size(); i++) {
-      QueryDataSource dataSource =
-          QueryResourceManager.getInstance()
-              .getQueryDataSource(seriesPaths.get(i), context, filter, ascending);
-      LastPointReader lastReader =
-          seriesPaths
-              .get(i)
-              .createLastPointReader(
-                  dataTypes.get(i),
-                  deviceMeasurementsMap.getOrDefault(
-                      seriesPaths.get(i).getDevice(), new HashSet<>()),
-                  context,
-                  dataSource,
-                  Long.MAX_VALUE,
-                  filter);
-      readers.add(lastReader);
+      deviceToSeriesIndexes
+          .computeIfAbsent(seriesPaths.get(i).getDevice(), k -> new ArrayList<>())
+          .add(i);
     }
 
-    List<TimeValuePair> lastPairs = new ArrayList<>(seriesPaths.size());
-    for (LastPointReader reader : readers) {
-      lastPairs.add(reader.readLastPoint());
+    TimeValuePair[] lastPairs = new TimeValuePair[seriesPaths.size()];
+    List<AggregationTask> tasks = new ArrayList<>(deviceToSeriesIndexes.size());
+    for (Map.Entry<String, List<Integer>> entry : deviceToSeriesIndexes.entrySet()) {
+      Set<String> measurements =
+          deviceMeasurementsMap.getOrDefault(entry.getKey(), new HashSet<>());
+      tasks.add(
+          () -> {
+            for (int i : entry.getValue()) {
+              QueryDataSource dataSource =
+                  QueryResourceManager.getInstance()
+                      .getQueryDataSource(seriesPaths.get(i), context, filter, ascending);
+              LastPointReader lastReader =
+                  seriesPaths
+                      .get(i)
+                      .createLastPointReader(
+                          dataTypes.get(i),
+                          measurements,
+                          context,
+                          dataSource,
+                          Long.MAX_VALUE,
+                          filter);
+              lastPairs[i] = lastReader.readLastPoint();
+            }
+          });
     }
-    return lastPairs;
+    AggregationTaskPoolManager.getInstance().runAll(context.getQueryId(), tasks);
+    return Arrays.asList(lastPairs);
   }
 
   private interface LastCacheAccessor {
@@ -346,21 +364,40 @@ public class LastQueryExecutor {
     }
   }
 
+  /** @return the id table of the device of the path, or null if its storage group is not found */
+  private static IDTable getIdTable(PartialPath path, Map<PartialPath, IDTable> deviceToIdTable) {
+    PartialPath devicePath = path.getDevicePath();
+    if (deviceToIdTable.containsKey(devicePath)) {
+      return deviceToIdTable.get(devicePath);
+    }
+    IDTable table = null;
+    try {
+      table = StorageEngine.getInstance().getProcessor(devicePath).getIdTable();
+    } catch (StorageEngineException e) {
+      logger.error("last query can't find storage group: path is: " + path);
+    }
+    deviceToIdTable.put(devicePath, table);
+    return table;
+  }
+
   private static class IDTableLastCacheAccessor implements LastCacheAccessor {
 
     private PartialPath fullPath;
+    private IDTable table;
 
-    IDTableLastCacheAccessor(PartialPath seriesPath) {
+    IDTableLastCacheAccessor(PartialPath seriesPath, IDTable table) {
       fullPath = seriesPath;
+      this.table = table;
     }
 
     @Override
     public TimeValuePair read() {
+      if (table == null) {
+        return null;
+      }
       try {
-        IDTable table =
-            StorageEngine.getInstance().getProcessor(fullPath.getDevicePath()).getIdTable();
         return table.getLastCache(new TimeseriesID(fullPath));
-      } catch (StorageEngineException | MetadataException e) {
+      } catch (MetadataException e) {
         logger.error("last query can't find storage group: path is: " + fullPath);
       }
 
@@ -369,11 +406,12 @@ public class LastQueryExecutor {
 
     @Override
     public void write(TimeValuePair pair) {
+      if (table == null) {
+        return;
+      }
       try {
-        IDTable table =
-            StorageEngine.getInstance().getProcessor(fullPath.getDevicePath()).getIdTable();
         table.updateLastCache(new TimeseriesID(fullPath), pair, false, Long.MIN_VALUE);
-      } catch (MetadataException | StorageEngineException e) {
+      } catch (MetadataException e) {
         logger.error("last query can't find storage group: path is: " + fullPath);
       }
     }
@@ -112,12 +112,12 @@ public class LocalAlignedGroupByExecutor implements AlignedGroupByExecutor {
       return results;
     }
 
-    // read page data firstly
+    // read the pages left by the last time range firstly
     if (readAndCalcFromPage(curStartTime, curEndTime)) {
       return results;
     }
 
-    // read chunk data secondly
+    // read the chunks left by the last time range secondly
     if (readAndCalcFromChunk(curStartTime, curEndTime)) {
       return results;
     }
@@ -134,6 +134,10 @@ public class LocalAlignedGroupByExecutor implements AlignedGroupByExecutor {
           continue;
         }
       }
+      // leave the file to the next time ranges, which may use its statistics
+      if (!ascending && fileTimeStatistics.getEndTime() < curStartTime) {
+        return results;
+      }
       if (reader.canUseCurrentFileStatistics()
           && timeRange.contains(
               fileTimeStatistics.getStartTime(), fileTimeStatistics.getEndTime())) {
@@ -146,8 +150,8 @@ public class LocalAlignedGroupByExecutor implements AlignedGroupByExecutor {
         reader.skipCurrentFile();
         continue;
       }
-      // read chunk
-      if (readAndCalcFromChunk(curStartTime, curEndTime)) {
+      // read chunk, hasNextChunk() unpacks the chunks of the file
+      if (reader.hasNextChunk() && readAndCalcFromChunk(curStartTime, curEndTime)) {
         return results;
       }
     }
@@ -172,9 +176,15 @@ public class LocalAlignedGroupByExecutor implements AlignedGroupByExecutor {
     }
   }
 
+  /**
+   * Calc from the chunks unpacked from files. The next file is not unpacked here, so that its
+   * statistics can be used.
+   *
+   * @return if the calculation of the time range finished
+   */
   private boolean readAndCalcFromChunk(long curStartTime, long curEndTime)
       throws IOException, QueryProcessException {
-    while (reader.hasNextChunk()) {
+    while (reader.hasCachedChunk() && reader.hasNextChunk()) {
       // try to calc from chunkMetaData
       Statistics chunkTimeStatistics = reader.currentChunkTimeStatistics();
       if (chunkTimeStatistics.getStartTime() >= curEndTime) {
@@ -185,6 +195,10 @@ public class LocalAlignedGroupByExecutor implements AlignedGroupByExecutor {
           continue;
         }
       }
+      // leave the chunk to the next time ranges, which may use its statistics
+      if (!ascending && chunkTimeStatistics.getEndTime() < curStartTime) {
+        return true;
+      }
       if (reader.canUseCurrentChunkStatistics()
           && timeRange.contains(
               chunkTimeStatistics.getStartTime(), chunkTimeStatistics.getEndTime())) {
@@ -197,17 +211,23 @@ public class LocalAlignedGroupByExecutor implements AlignedGroupByExecutor {
         reader.skipCurrentChunk();
         continue;
       }
-      // read page
-      if (readAndCalcFromPage(curStartTime, curEndTime)) {
+      // read page, hasNextPage() unpacks the pages of the chunk
+      if (reader.hasNextPage() && readAndCalcFromPage(curStartTime, curEndTime)) {
         return true;
       }
     }
     return false;
   }
 
+  /**
+   * Calc from the pages unpacked from chunks. The next chunk is not unpacked here, so that its
+   * statistics can be used.
+   *
+   * @return if the calculation of the time range finished
+   */
   private boolean readAndCalcFromPage(long curStartTime, long curEndTime)
       throws IOException, QueryProcessException {
-    while (reader.hasNextPage()) {
+    while (reader.hasCachedPage() && reader.hasNextPage()) {
       // try to calc from pageHeader
       Statistics pageTimeStatistics = reader.currentPageTimeStatistics();
       if (pageTimeStatistics != null) {
@@ -220,6 +240,10 @@ public class LocalAlignedGroupByExecutor implements AlignedGroupByExecutor {
             continue;
           }
         }
+        // leave the page to the next time ranges, which may use its statistics
+        if (!ascending && pageTimeStatistics.getEndTime() < curStartTime) {
+          return true;
+        }
         if (reader.canUseCurrentPageStatistics()
             && timeRange.contains(
                 pageTimeStatistics.getStartTime(), pageTimeStatistics.getEndTime())) {
@@ -200,17 +200,17 @@ public class LocalGroupByExecutor implements GroupByExecutor {
       return results;
     }
 
-    // read page data firstly
+    // read the pages left by the last time range firstly
     if (readAndCalcFromPage(curStartTime, curEndTime)) {
       return results;
     }
 
-    // read chunk data secondly
+    // read the chunks left by the last time range secondly
     if (readAndCalcFromChunk(curStartTime, curEndTime)) {
       return results;
     }
 
-    // read from file first
+    // read from file
     while (reader.hasNextFile()) {
       Statistics fileStatistics = reader.currentFileStatistics();
       if (fileStatistics.getStartTime() >= curEndTime) {
@@ -221,6 +221,10 @@ public class LocalGroupByExecutor implements GroupByExecutor {
           continue;
         }
       }
+      // leave the file to the next time ranges, which may use its statistics
+      if (!ascending && fileStatistics.getEndTime() < curStartTime) {
+        return results;
+      }
       // calc from fileMetaData
       if (reader.canUseCurrentFileStatistics()
           && timeRange.contains(fileStatistics.getStartTime(), fileStatistics.getEndTime())) {
@@ -229,8 +233,8 @@ public class LocalGroupByExecutor implements GroupByExecutor {
         continue;
       }
 
-      // read chunk
-      if (readAndCalcFromChunk(curStartTime, curEndTime)) {
+      // read chunk, hasNextChunk() unpacks the chunks of the file
+      if (reader.hasNextChunk() && readAndCalcFromChunk(curStartTime, curEndTime)) {
         return results;
       }
     }
@@ -278,9 +282,15 @@ public class LocalGroupByExecutor implements GroupByExecutor {
     }
   }
 
+  /**
+   * Calc from the chunks unpacked from files. The next file is not unpacked here, so that its
+   * statistics can be used.
+   *
+   * @return if the calculation of the time range finished
+   */
   private boolean readAndCalcFromChunk(long curStartTime, long curEndTime)
       throws IOException, QueryProcessException {
-    while (reader.hasNextChunk()) {
+    while (reader.hasCachedChunk() && reader.hasNextChunk()) {
       Statistics chunkStatistics = reader.currentChunkStatistics();
       if (chunkStatistics.getStartTime() >= curEndTime) {
         if (ascending) {
@@ -290,6 +300,10 @@ public class LocalGroupByExecutor implements GroupByExecutor {
           continue;
         }
       }
+      // leave the chunk to the next time ranges, which may use its statistics
+      if (!ascending && chunkStatistics.getEndTime() < curStartTime) {
+        return true;
+      }
       // calc from chunkMetaData
       if (reader.canUseCurrentChunkStatistics()
           && timeRange.contains(chunkStatistics.getStartTime(), chunkStatistics.getEndTime())) {
@@ -297,18 +311,24 @@ public class LocalGroupByExecutor implements GroupByExecutor {
         reader.skipCurrentChunk();
         continue;
       }
-      // read page
-      if (readAndCalcFromPage(curStartTime, curEndTime)) {
+      // read page, hasNextPage() unpacks the pages of the chunk
+      if (reader.hasNextPage() && readAndCalcFromPage(curStartTime, curEndTime)) {
         return true;
       }
     }
     return false;
   }
 
+  /**
+   * Calc from the pages unpacked from chunks. The next chunk is not unpacked here, so that its
+   * statistics can be used.
+   *
+   * @return if the calculation of the time range finished
+   */
   @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
   private boolean readAndCalcFromPage(long curStartTime, long curEndTime)
       throws IOException, QueryProcessException {
-    while (reader.hasNextPage()) {
+    while (reader.hasCachedPage() && reader.hasNextPage()) {
       Statistics pageStatistics = reader.currentPageStatistics();
       // must be non overlapped page
       if (pageStatistics != null) {
@@ -321,6 +341,10 @@ public class LocalGroupByExecutor implements GroupByExecutor {
             continue;
           }
         }
+        // leave the page to the next time ranges, which may use its statistics
+        if (!ascending && pageStatistics.getEndTime() < curStartTime) {
+          return true;
+        }
         // can use pageHeader
         if (reader.canUseCurrentPageStatistics()
             && timeRange.contains(pageStatistics.getStartTime(), pageStatistics.getEndTime())) {
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.pool;
+
+import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.commons.concurrent.ThreadName;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.exception.StorageEngineException;
+import org.apache.iotdb.db.exception.query.QueryProcessException;
+import org.apache.iotdb.db.exception.query.QueryTimeoutRuntimeException;
+import org.apache.iotdb.db.query.context.QueryContext;
+import org.apache.iotdb.db.query.control.QueryTimeManager;
+import org.apache.iotdb.db.rescon.AbstractPoolManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This thread pool is used to aggregate series in parallel for aggregation query and to read the
+ * last points of devices in parallel for last query. Thread named by Sub_Aggregation.
+ */
+public class AggregationTaskPoolManager extends AbstractPoolManager {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AggregationTaskPoolManager.class);
+
+  private final int threadCnt;
+
+  private AggregationTaskPoolManager() {
+    threadCnt = IoTDBDescriptor.getInstance().getConfig().getConcurrentSubAggregationThread();
+    pool =
+        IoTDBThreadPoolFactory.newFixedThreadPool(
+            threadCnt, ThreadName.SUB_AGGREGATION_SERVICE.getName());
+  }
+
+  public static AggregationTaskPoolManager getInstance() {
+    return AggregationTaskPoolManager.InstanceHolder.instance;
+  }
+
+  /**
+   * Run the aggregation tasks of a query and wait for all of them. At most as many tasks as the
+   * pool has threads run on the pool at a time, so the readers held by a query are bounded however
+   * many series it selects. The calling thread runs tasks as well, so a query still makes progress
+   * when the pool is busy with other queries. No more tasks are started once one of them fails or
+   * the query times out, and the exception of the first failed task is thrown.
+   */
+  public void runAll(long queryId, List<AggregationTask> tasks)
+      throws IOException, QueryProcessException, StorageEngineException {
+    if (tasks.size() <= 1) {
+      for (AggregationTask task : tasks) {
+        task.run();
+      }
+      return;
+    }
+
+    AtomicInteger nextTask = new AtomicInteger();
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Runnable worker =
+        () -> {
+          int index;
+          while (failure.get() == null && (index = nextTask.getAndIncrement()) < tasks.size()) {
+            try {
+              // the query is interrupted by QueryTimeManager once it times out
+              QueryContext context = QueryTimeManager.getInstance().getQueryContext(queryId);
+              if (context != null && context.isInterrupted()) {
+                throw new QueryTimeoutRuntimeException();
+              }
+              tasks.get(index).run();
+            } catch (Exception | Error e) {
+              failure.compareAndSet(null, e);
+            }
+          }
+        };
+
+    int workerNum = Math.min(threadCnt, tasks.size() - 1);
+    List<Future<?>> futures = new ArrayList<>(workerNum);
+    for (int i = 0; i < workerNum; i++) {
+      futures.add(submit(worker));
+    }
+    worker.run();
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        failure.compareAndSet(null, e);
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        failure.compareAndSet(null, e.getCause());
+      }
+    }
+    throwFailure(failure.get());
+  }
+
+  private static void throwFailure(Throwable failure)
+      throws IOException, QueryProcessException, StorageEngineException {
+    if (failure == null) {
+      return;
+    }
+    if (failure instanceof IOException) {
+      throw (IOException) failure;
+    } else if (failure instanceof QueryProcessException) {
+      throw (QueryProcessException) failure;
+    } else if (failure instanceof StorageEngineException) {
+      throw (StorageEngineException) failure;
+    } else if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    throw new QueryProcessException(failure.getMessage(), failure);
+  }
+
+  @Override
+  public Logger getLogger() {
+    return LOGGER;
+  }
+
+  @Override
+  public String getName() {
+    return "aggregation task";
+  }
+
+  @Override
+  public void start() {
+    if (pool == null) {
+      pool =
+          IoTDBThreadPoolFactory.newFixedThreadPool(
+              threadCnt, ThreadName.SUB_AGGREGATION_SERVICE.getName());
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (pool != null) {
+      close();
+      pool = null;
+    }
+  }
+
+  /** Aggregation of one series or one aligned device, or the last points of one device. */
+  @FunctionalInterface
+  public interface AggregationTask {
+
+    void run() throws IOException, QueryProcessException, StorageEngineException;
+  }
+
+  private static class InstanceHolder {
+
+    private InstanceHolder() {
+      // allowed to do nothing
+    }
+
+    private static AggregationTaskPoolManager instance = new AggregationTaskPoolManager();
+  }
+}
@@ -20,6 +20,7 @@
 package org.apache.iotdb.db.query.reader.chunk;
 
 import org.apache.iotdb.db.engine.cache.ChunkCache;
+import org.apache.iotdb.db.query.control.FileReaderManager;
 import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
 import org.apache.iotdb.tsfile.file.metadata.IChunkMetadata;
 import org.apache.iotdb.tsfile.read.common.Chunk;
@@ -52,8 +53,29 @@ public class DiskChunkLoader implements IChunkLoader {
   @Override
   public IChunkReader getChunkReader(IChunkMetadata chunkMetaData, Filter timeFilter)
       throws IOException {
+    ChunkMetadata chunkMetadata = (ChunkMetadata) chunkMetaData;
+    // A chunk that the filter may only partly select is read page by page through its index, and
+    // it is not put into the ChunkCache: caching it would read the whole chunk, which the index
+    // avoids. A chunk that is read as a whole goes through the ChunkCache as usual.
+    if (chunkMetadata.getPageIndex() != null
+        && timeFilter != null
+        && !timeFilter.containStartEndTime(
+            chunkMetadata.getStartTime(), chunkMetadata.getEndTime())) {
+      Chunk chunk = ChunkCache.getInstance().getIfPresent(chunkMetadata);
+      if (chunk != null) {
+        chunk.setRegularTimeIndex(chunkMetadata.getRegularTimeIndex());
+        return new ChunkReader(chunk, timeFilter);
+      }
+      // read only the pages that satisfy the filter and are read later, and only their bodies
+      return new ChunkReader(
+          chunkMetadata,
+          FileReaderManager.getInstance()
+              .get(chunkMetadata.getFilePath(), chunkMetadata.isClosed()),
+          timeFilter);
+    }
     Chunk chunk = ChunkCache.getInstance().get((ChunkMetadata) chunkMetaData, debug);
     chunk.setFromOldFile(chunkMetaData.isFromOldTsFile());
+    chunk.setRegularTimeIndex(chunkMetadata.getRegularTimeIndex());
     return new ChunkReader(chunk, timeFilter);
   }
 }
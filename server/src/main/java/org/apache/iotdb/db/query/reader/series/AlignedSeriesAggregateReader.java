@@ -98,6 +98,11 @@ public class AlignedSeriesAggregateReader implements IAggregateReader {
     seriesReader.skipCurrentFile();
   }
 
+  @Override
+  public boolean hasCachedChunk() {
+    return seriesReader.hasCachedChunk();
+  }
+
   @Override
   public boolean hasNextChunk() throws IOException {
     return seriesReader.hasNextChunk();
@@ -125,6 +130,11 @@ public class AlignedSeriesAggregateReader implements IAggregateReader {
     seriesReader.skipCurrentChunk();
   }
 
+  @Override
+  public boolean hasCachedPage() throws IOException {
+    return seriesReader.hasCachedPage();
+  }
+
   @Override
   public boolean hasNextPage() throws IOException {
     return seriesReader.hasNextPage();
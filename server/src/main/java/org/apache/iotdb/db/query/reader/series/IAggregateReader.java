@@ -33,14 +33,37 @@ public interface IAggregateReader {
 
   void skipCurrentFile();
 
+  /**
+   * @return true if some chunks of the files already read are not consumed yet. Otherwise {@link
+   *     #hasNextChunk()} reads the next file without a chance to use its statistics.
+   */
+  boolean hasCachedChunk();
+
   boolean hasNextChunk() throws IOException;
 
   boolean canUseCurrentChunkStatistics() throws IOException;
 
   Statistics currentChunkStatistics() throws IOException;
 
+  /**
+   * Count the points of the current chunk that satisfy the time filter using the regular time index
+   * of the chunk, without reading the chunk.
+   *
+   * @return statistics holding only the count and the time range, or null if the chunk has no
+   *     regular time index, or is overlapped or modified
+   */
+  default Statistics currentChunkStatisticsByTimeIndex() throws IOException {
+    return null;
+  }
+
   void skipCurrentChunk();
 
+  /**
+   * @return true if some pages of the chunks already read are not consumed yet. Otherwise {@link
+   *     #hasNextPage()} reads the next chunk without a chance to use its statistics.
+   */
+  boolean hasCachedPage() throws IOException;
+
   boolean hasNextPage() throws IOException;
 
   /** only be used without value filter */
@@ -24,6 +24,7 @@ import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
 import org.apache.iotdb.db.metadata.path.PartialPath;
 import org.apache.iotdb.db.query.context.QueryContext;
 import org.apache.iotdb.db.query.filter.TsFileFilter;
+import org.apache.iotdb.tsfile.file.metadata.RegularTimeIndex;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
 import org.apache.iotdb.tsfile.read.common.BatchData;
@@ -111,6 +112,11 @@ public class SeriesAggregateReader implements IAggregateReader {
     seriesReader.skipCurrentFile();
   }
 
+  @Override
+  public boolean hasCachedChunk() {
+    return seriesReader.hasCachedChunk();
+  }
+
   @Override
   public boolean hasNextChunk() throws IOException {
     return seriesReader.hasNextChunk();
@@ -129,11 +135,34 @@ public class SeriesAggregateReader implements IAggregateReader {
     return seriesReader.currentChunkStatistics();
   }
 
+  @Override
+  public Statistics currentChunkStatisticsByTimeIndex() throws IOException {
+    RegularTimeIndex regularTimeIndex = seriesReader.currentChunkRegularTimeIndex();
+    if (regularTimeIndex == null
+        || seriesReader.isChunkOverlapped()
+        || seriesReader.currentChunkModified()) {
+      return null;
+    }
+    Filter timeFilter = seriesReader.getTimeFilter();
+    Statistics chunkStatistics = currentChunkStatistics();
+    Statistics statistics = Statistics.getStatsByType(TSDataType.VECTOR);
+    statistics.setCount(
+        timeFilter == null ? regularTimeIndex.getCount() : regularTimeIndex.count(timeFilter));
+    statistics.setStartTime(chunkStatistics.getStartTime());
+    statistics.setEndTime(chunkStatistics.getEndTime());
+    return statistics;
+  }
+
   @Override
   public void skipCurrentChunk() {
     seriesReader.skipCurrentChunk();
   }
 
+  @Override
+  public boolean hasCachedPage() throws IOException {
+    return seriesReader.hasCachedPage();
+  }
+
   @Override
   public boolean hasNextPage() throws IOException {
     return seriesReader.hasNextPage();
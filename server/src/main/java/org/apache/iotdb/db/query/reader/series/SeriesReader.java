@@ -34,8 +34,10 @@ import org.apache.iotdb.db.utils.FileLoaderUtils;
 import org.apache.iotdb.db.utils.QueryUtils;
 import org.apache.iotdb.tsfile.file.metadata.AlignedChunkMetadata;
 import org.apache.iotdb.tsfile.file.metadata.AlignedTimeSeriesMetadata;
+import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
 import org.apache.iotdb.tsfile.file.metadata.IChunkMetadata;
 import org.apache.iotdb.tsfile.file.metadata.ITimeSeriesMetadata;
+import org.apache.iotdb.tsfile.file.metadata.RegularTimeIndex;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
 import org.apache.iotdb.tsfile.read.TimeValuePair;
@@ -308,6 +310,11 @@ public class SeriesReader {
     firstTimeSeriesMetadata = null;
   }
 
+  /** @return true if there are chunks unpacked from files that are not consumed yet */
+  boolean hasCachedChunk() {
+    return firstChunkMetadata != null || !cachedChunkMetadata.isEmpty();
+  }
+
   /**
    * This method should be called after hasNextFile() until no next chunk, make sure that all
    * overlapped chunks are consumed
@@ -447,6 +454,13 @@ public class SeriesReader {
     return ((AlignedChunkMetadata) firstChunkMetadata).getTimeStatistics();
   }
 
+  /** @return the regular time index of the first chunk, or null if it has none */
+  RegularTimeIndex currentChunkRegularTimeIndex() {
+    return firstChunkMetadata instanceof ChunkMetadata
+        ? ((ChunkMetadata) firstChunkMetadata).getRegularTimeIndex()
+        : null;
+  }
+
   boolean currentChunkModified() throws IOException {
     if (firstChunkMetadata == null) {
       throw new IOException("no first chunk");
@@ -458,6 +472,15 @@ public class SeriesReader {
     firstChunkMetadata = null;
   }
 
+  /** @return true if there are pages unpacked from chunks that are not consumed yet */
+  boolean hasCachedPage() throws IOException {
+    return hasCachedNextOverlappedPage
+        || firstPageReader != null
+        || !seqPageReaders.isEmpty()
+        || !unSeqPageReaders.isEmpty()
+        || mergeReader.hasNextTimeValuePair();
+  }
+
   /**
    * This method should be called after hasNextChunk() until no next page, make sure that all
    * overlapped pages are consumed
@@ -861,6 +884,11 @@ public class SeriesReader {
             cachedBatchData.putAnObject(
                 timeValuePair.getTimestamp(), timeValuePair.getValue().getValue());
           }
+
+          // the following points that overlap neither other readers nor unpacked data are put in
+          // bulk
+          long pageEndPointTime = currentPageEndPointTime;
+          mergeReader.nextRun(() -> getRunEndTime(pageEndPointTime), cachedBatchData, valueFilter);
         }
         cachedBatchData.flip();
         hasCachedNextOverlappedPage = cachedBatchData.hasCurrent();
@@ -879,6 +907,68 @@ public class SeriesReader {
     }
   }
 
+  /**
+   * @return the last time that can be merged without unpacking any file, chunk or page, i.e. the
+   *     time before the nearest data that is not put into the merge reader yet, but not after the
+   *     current page end point time
+   */
+  private long getRunEndTime(long currentPageEndPointTime) {
+    long nextOrderTime = orderUtils.getAscending() ? Long.MAX_VALUE : Long.MIN_VALUE;
+    if (orderUtils.hasNextSeqResource()) {
+      nextOrderTime =
+          nearerOrderTime(
+              nextOrderTime, orderUtils.getOrderTime(orderUtils.getNextSeqFileResource(false)));
+    }
+    if (orderUtils.hasNextUnseqResource()) {
+      nextOrderTime =
+          nearerOrderTime(
+              nextOrderTime, orderUtils.getOrderTime(orderUtils.getNextUnseqFileResource(false)));
+    }
+    if (firstTimeSeriesMetadata != null) {
+      nextOrderTime = nearerOrderTime(nextOrderTime, firstTimeSeriesMetadata.getStatistics());
+    }
+    if (!seqTimeSeriesMetadata.isEmpty()) {
+      nextOrderTime = nearerOrderTime(nextOrderTime, seqTimeSeriesMetadata.get(0).getStatistics());
+    }
+    if (!unSeqTimeSeriesMetadata.isEmpty()) {
+      nextOrderTime =
+          nearerOrderTime(nextOrderTime, unSeqTimeSeriesMetadata.peek().getStatistics());
+    }
+    if (firstChunkMetadata != null) {
+      nextOrderTime = nearerOrderTime(nextOrderTime, firstChunkMetadata.getStatistics());
+    }
+    if (!cachedChunkMetadata.isEmpty()) {
+      nextOrderTime = nearerOrderTime(nextOrderTime, cachedChunkMetadata.peek().getStatistics());
+    }
+    if (firstPageReader != null) {
+      nextOrderTime = nearerOrderTime(nextOrderTime, firstPageReader.getStatistics());
+    }
+    if (!seqPageReaders.isEmpty()) {
+      nextOrderTime = nearerOrderTime(nextOrderTime, seqPageReaders.get(0).getStatistics());
+    }
+    if (!unSeqPageReaders.isEmpty()) {
+      nextOrderTime = nearerOrderTime(nextOrderTime, unSeqPageReaders.peek().getStatistics());
+    }
+
+    if (orderUtils.getAscending()) {
+      return nextOrderTime == Long.MAX_VALUE
+          ? currentPageEndPointTime
+          : Math.min(currentPageEndPointTime, nextOrderTime - 1);
+    } else {
+      return nextOrderTime == Long.MIN_VALUE
+          ? currentPageEndPointTime
+          : Math.max(currentPageEndPointTime, nextOrderTime + 1);
+    }
+  }
+
+  private long nearerOrderTime(long orderTime, Statistics<? extends Object> statistics) {
+    return nearerOrderTime(orderTime, orderUtils.getOrderTime(statistics));
+  }
+
+  private long nearerOrderTime(long orderTime, long otherOrderTime) {
+    return orderUtils.isExcessEndpoint(orderTime, otherOrderTime) ? otherOrderTime : orderTime;
+  }
+
   private long updateEndPointTime(long currentPageEndPointTime, VersionPageReader pageReader) {
     if (orderUtils.getAscending()) {
       return Math.min(currentPageEndPointTime, pageReader.getStatistics().getEndTime());
@@ -22,8 +22,11 @@ package org.apache.iotdb.db.query.reader.universal;
 import org.apache.iotdb.db.utils.TimeValuePairUtils;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.read.common.BatchData;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
 
 import java.io.IOException;
+import java.util.function.LongSupplier;
 
 /**
  * CachedPriorityMergeReader use a cache to reduce unnecessary heap updates and increase locality.
@@ -84,6 +87,11 @@ public class CachedPriorityMergeReader extends PriorityMergeReader {
     return ret;
   }
 
+  @Override
+  public void nextRun(LongSupplier runEndTimeSupplier, BatchData batchData, Filter valueFilter) {
+    // points are only read through the cache
+  }
+
   @Override
   public TimeValuePair currentTimeValuePair() throws IOException {
     if (0 <= cacheIdx && cacheIdx < cacheLimit) {
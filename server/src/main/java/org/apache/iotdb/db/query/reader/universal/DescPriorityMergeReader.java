@@ -48,4 +48,9 @@ public class DescPriorityMergeReader extends PriorityMergeReader {
       reader.close();
     }
   }
+
+  @Override
+  protected boolean isBefore(long time, long otherTime) {
+    return time > otherTime;
+  }
 }
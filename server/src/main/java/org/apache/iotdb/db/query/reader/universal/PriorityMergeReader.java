@@ -21,12 +21,17 @@ package org.apache.iotdb.db.query.reader.universal;
 import org.apache.iotdb.db.query.context.QueryContext;
 import org.apache.iotdb.db.query.control.tracing.TracingManager;
 import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.read.common.BatchData;
+import org.apache.iotdb.tsfile.read.common.IBatchDataIterator;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
 import org.apache.iotdb.tsfile.read.reader.IPointReader;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType;
 
 import java.io.IOException;
 import java.util.List;
 import java.util.Objects;
 import java.util.PriorityQueue;
+import java.util.function.LongSupplier;
 
 /** This class implements {@link IPointReader} for data sources with different priorities. */
 @SuppressWarnings("ConstantConditions") // heap is ensured by hasNext non-empty
@@ -38,6 +43,13 @@ public class PriorityMergeReader implements IPointReader {
 
   protected PriorityQueue<Element> heap;
 
+  // the top element after the last nextTimeValuePair() or nextRun(), the heap size at that time and
+  // the current time of the best other element, so that a run can be checked without polling
+  private Element lastTop;
+  private int lastHeapSize;
+  private boolean hasRunnerUp;
+  private long runnerUpTime;
+
   public PriorityMergeReader() {
     heap =
         new PriorityQueue<>(
@@ -111,13 +123,111 @@ public class PriorityMergeReader implements IPointReader {
       topNext = top.currPair();
     }
     updateHeap(ret, topNext);
+    lastTop = null;
     if (topNext != null) {
+      hasRunnerUp = !heap.isEmpty();
+      runnerUpTime = hasRunnerUp ? heap.peek().currTime() : 0;
       top.timeValuePair = topNext;
       heap.add(top);
+      lastTop = top;
+      lastHeapSize = heap.size();
     }
     return ret;
   }
 
+  /**
+   * Put the points of the top reader into the batch data as long as they are before the current
+   * points of all the other readers and not after the run end time. Such a run does not overlap any
+   * other reader, so it is copied without updating the heap or creating a TimeValuePair for each
+   * point.
+   *
+   * @param runEndTimeSupplier the last time (in the order of this reader) that can be read by the
+   *     run, only computed if the top reader may start a run
+   * @param valueFilter points that do not satisfy it are skipped, null means no filter
+   */
+  public void nextRun(LongSupplier runEndTimeSupplier, BatchData batchData, Filter valueFilter)
+      throws IOException {
+    if (heap.isEmpty()) {
+      return;
+    }
+    if (lastTop == null || heap.size() != lastHeapSize) {
+      // readers are added or removed, find the best other element again
+      lastTop = heap.poll();
+      hasRunnerUp = !heap.isEmpty();
+      runnerUpTime = hasRunnerUp ? heap.peek().currTime() : 0;
+      heap.add(lastTop);
+      lastHeapSize = heap.size();
+    }
+    Element top = heap.peek();
+    // the runner-up is only known for the last top, and points at the same time need merging
+    if (top != lastTop || (hasRunnerUp && !isBefore(top.currTime(), runnerUpTime))) {
+      return;
+    }
+    long runEndTime = runEndTimeSupplier.getAsLong();
+    if (!isInRun(top.currTime(), runEndTime)) {
+      return;
+    }
+
+    heap.poll();
+    lastTop = null;
+    putInBatch(
+        batchData, top.currTime(), top.getTimeValuePair().getValue().getValue(), valueFilter);
+    if (top.getReader() instanceof IBatchDataIterator) {
+      // read the batch data directly
+      IBatchDataIterator iterator = (IBatchDataIterator) top.getReader();
+      while (iterator.hasNext() && isInRun(iterator.currentTime(), runEndTime)) {
+        putInBatch(batchData, iterator.currentTime(), iterator.currentValue(), valueFilter);
+        iterator.next();
+      }
+      if (!iterator.hasNext()) {
+        top.close();
+        return;
+      }
+      top.next();
+    } else {
+      while (true) {
+        if (!top.hasNext()) {
+          top.close();
+          return;
+        }
+        top.next();
+        if (!isInRun(top.currTime(), runEndTime)) {
+          break;
+        }
+        putInBatch(
+            batchData, top.currTime(), top.getTimeValuePair().getValue().getValue(), valueFilter);
+      }
+    }
+    heap.add(top);
+    lastTop = top;
+    lastHeapSize = heap.size();
+  }
+
+  private boolean isInRun(long time, long runEndTime) {
+    return !isBefore(runEndTime, time) && (!hasRunnerUp || isBefore(time, runnerUpTime));
+  }
+
+  private void putInBatch(BatchData batchData, long time, Object value, Filter valueFilter) {
+    Object valueForFilter = value;
+    // the same as SeriesReader, only the first not null value of an aligned series is filtered
+    if (value instanceof TsPrimitiveType[]) {
+      for (TsPrimitiveType tsPrimitiveType : (TsPrimitiveType[]) value) {
+        if (tsPrimitiveType != null) {
+          valueForFilter = tsPrimitiveType.getValue();
+          break;
+        }
+      }
+    }
+    if (valueFilter == null || valueFilter.satisfy(time, valueForFilter)) {
+      batchData.putAnObject(time, value);
+    }
+  }
+
+  /** @return true if the time is read before the other time by this reader */
+  protected boolean isBefore(long time, long otherTime) {
+    return time < otherTime;
+  }
+
   @Override
   public TimeValuePair currentTimeValuePair() throws IOException {
     return heap.peek().getTimeValuePair();
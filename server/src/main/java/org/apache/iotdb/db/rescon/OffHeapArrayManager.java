@@ -0,0 +1,313 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.rescon;
+
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.utils.MmapUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.apache.iotdb.db.rescon.PrimitiveArrayManager.ARRAY_SIZE;
+
+/**
+ * Manage direct memory slabs of off-heap TVLists, including get and release operations. Each slab
+ * holds {@link PrimitiveArrayManager#ARRAY_SIZE} elements of 1, 4 or 8 bytes.
+ *
+ * <p>Slabs are slices of large direct chunks, so that there is no direct buffer object for each
+ * slab. A slab is referred by a long handle, the high 32 bits are the id of its chunk and the low
+ * 32 bits are the byte offset of the slab in the chunk, see {@link #getChunk(long)} and {@link
+ * #getOffset(long)}.
+ *
+ * <p>Released slabs are first kept in a small cache of the releasing thread, which is taken and
+ * filled without lock, and then go back to the free list of their chunk, which is shared by all
+ * threads. The total size of the free slabs in the caches and the chunks is limited like the pool
+ * of {@link PrimitiveArrayManager}. A chunk is freed once all of its slabs are back in its free
+ * list and the limit is exceeded. The caches of terminated threads are returned to the chunks
+ * before a new chunk is allocated.
+ */
+public class OffHeapArrayManager {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapArrayManager.class);
+
+  private static final IoTDBConfig CONFIG = IoTDBDescriptor.getInstance().getConfig();
+
+  /** bytes of a chunk, a chunk holds at least one slab */
+  private static final int CHUNK_SIZE_IN_BYTES = 64 * 1024;
+
+  /** max number of free slabs of each element width cached by a thread */
+  static final int THREAD_CACHE_SIZE = 16;
+
+  /** threshold total size of free slabs in the thread caches and the chunks */
+  private static final long POOLED_SLABS_MEMORY_THRESHOLD =
+      (long) (CONFIG.getAllocateMemoryForWrite() * CONFIG.getBufferedArraysMemoryProportion());
+
+  /** element width in bytes -> order of pools, only 1, 4 and 8 are supported */
+  private static final int[] WIDTH_TO_ORDER = {-1, 0, -1, -1, 1, -1, -1, -1, 2};
+
+  /** order -> chunks of the element width with free slabs, guarded by itself */
+  @SuppressWarnings("unchecked")
+  private static final ArrayDeque<Chunk>[] PARTIAL_CHUNKS = new ArrayDeque[3];
+
+  /** total size of free slabs in the thread caches and the chunks */
+  private static final AtomicLong POOLED_SLABS_MEMORY_SIZE = new AtomicLong(0);
+
+  /** caches of all threads, the caches of terminated threads are returned to the chunks */
+  private static final Set<ThreadCache> THREAD_CACHES = ConcurrentHashMap.newKeySet();
+
+  /** free slabs cached by the current thread */
+  private static final ThreadLocal<ThreadCache> THREAD_CACHE =
+      ThreadLocal.withInitial(ThreadCache::new);
+
+  /** guards the modification of chunks and freeChunkIds */
+  private static final Object CHUNKS_LOCK = new Object();
+
+  /** chunk id -> chunk, replaced as a whole when modified so that reading needs no lock */
+  private static volatile Chunk[] chunks = new Chunk[0];
+
+  /** ids of freed chunks, reused by new chunks */
+  private static final ArrayDeque<Integer> freeChunkIds = new ArrayDeque<>();
+
+  static {
+    for (int i = 0; i < PARTIAL_CHUNKS.length; i++) {
+      PARTIAL_CHUNKS[i] = new ArrayDeque<>();
+    }
+  }
+
+  private OffHeapArrayManager() {}
+
+  /**
+   * Get a free slab, a new chunk is allocated if no chunk of the element width has free slabs.
+   *
+   * @param elementWidth bytes of each element, 1, 4 or 8
+   * @return handle of a slab with ARRAY_SIZE * elementWidth bytes, its content is undefined
+   */
+  public static long allocate(int elementWidth) {
+    int order = getOrder(elementWidth);
+    ThreadCache cache = THREAD_CACHE.get();
+    if (cache.sizes[order] > 0) {
+      POOLED_SLABS_MEMORY_SIZE.addAndGet(-(long) ARRAY_SIZE * elementWidth);
+      return cache.slabs[order][--cache.sizes[order]];
+    }
+    ArrayDeque<Chunk> partialChunks = PARTIAL_CHUNKS[order];
+    synchronized (partialChunks) {
+      if (!partialChunks.isEmpty()) {
+        return takeSlab(partialChunks);
+      }
+    }
+    // the slabs cached by terminated threads may make a new chunk unnecessary
+    releaseCachesOfTerminatedThreads();
+    synchronized (partialChunks) {
+      if (partialChunks.isEmpty()) {
+        partialChunks.push(newChunk(elementWidth));
+      }
+      return takeSlab(partialChunks);
+    }
+  }
+
+  /** take a free slab of the first partial chunk, the lock of partialChunks must be held */
+  private static long takeSlab(ArrayDeque<Chunk> partialChunks) {
+    Chunk chunk = partialChunks.peek();
+    int offset = chunk.freeOffsets[--chunk.freeNum];
+    if (chunk.freeNum == 0) {
+      partialChunks.poll();
+    }
+    POOLED_SLABS_MEMORY_SIZE.addAndGet(-chunk.slabSize);
+    return ((long) chunk.id << 32) | offset;
+  }
+
+  /**
+   * This method is called when bringing back a slab, the slab must not be used any more.
+   *
+   * @param slab handle got by {@link #allocate(int)}
+   */
+  public static void release(long slab) {
+    Chunk chunk = chunks[(int) (slab >>> 32)];
+    int order = getOrder(chunk.slabSize / ARRAY_SIZE);
+    ThreadCache cache = THREAD_CACHE.get();
+    boolean overThreshold =
+        POOLED_SLABS_MEMORY_SIZE.addAndGet(chunk.slabSize) > POOLED_SLABS_MEMORY_THRESHOLD;
+    if (!overThreshold && cache.sizes[order] < THREAD_CACHE_SIZE) {
+      cache.slabs[order][cache.sizes[order]++] = slab;
+      return;
+    }
+    releaseToChunk(chunk, slab, overThreshold);
+  }
+
+  /**
+   * Put a free slab back to the free list of its chunk, the slab is already counted in the pooled
+   * memory.
+   *
+   * @param freeIfUnused whether to free the chunk if all of its slabs are free
+   */
+  private static void releaseToChunk(Chunk chunk, long slab, boolean freeIfUnused) {
+    ArrayDeque<Chunk> partialChunks = PARTIAL_CHUNKS[getOrder(chunk.slabSize / ARRAY_SIZE)];
+    synchronized (partialChunks) {
+      if (chunk.freeNum == 0) {
+        partialChunks.push(chunk);
+      }
+      chunk.freeOffsets[chunk.freeNum++] = getOffset(slab);
+      if (freeIfUnused && chunk.freeNum == chunk.freeOffsets.length) {
+        partialChunks.remove(chunk);
+        freeChunk(chunk);
+      }
+    }
+  }
+
+  /** put all slabs of the cache back to their chunks */
+  private static void releaseCache(ThreadCache cache) {
+    for (int order = 0; order < cache.slabs.length; order++) {
+      for (int i = 0; i < cache.sizes[order]; i++) {
+        long slab = cache.slabs[order][i];
+        releaseToChunk(
+            chunks[(int) (slab >>> 32)],
+            slab,
+            POOLED_SLABS_MEMORY_SIZE.get() > POOLED_SLABS_MEMORY_THRESHOLD);
+      }
+      cache.sizes[order] = 0;
+    }
+  }
+
+  private static void releaseCachesOfTerminatedThreads() {
+    for (ThreadCache cache : THREAD_CACHES) {
+      // a terminated thread no longer touches its cache, and the removal makes sure that only one
+      // thread releases it
+      if (!cache.owner.isAlive() && THREAD_CACHES.remove(cache)) {
+        releaseCache(cache);
+      }
+    }
+  }
+
+  /** @return the direct buffer holding the slab */
+  public static ByteBuffer getChunk(long slab) {
+    return chunks[(int) (slab >>> 32)].buffer;
+  }
+
+  /** @return byte offset of the slab in its chunk */
+  public static int getOffset(long slab) {
+    return (int) slab;
+  }
+
+  private static int getOrder(int elementWidth) {
+    int order = elementWidth < WIDTH_TO_ORDER.length ? WIDTH_TO_ORDER[elementWidth] : -1;
+    if (order < 0) {
+      throw new IllegalArgumentException("Unsupported element width " + elementWidth);
+    }
+    return order;
+  }
+
+  private static Chunk newChunk(int elementWidth) {
+    int slabSize = ARRAY_SIZE * elementWidth;
+    int slabNum = Math.max(1, CHUNK_SIZE_IN_BYTES / slabSize);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(slabNum * slabSize);
+    synchronized (CHUNKS_LOCK) {
+      Integer freeChunkId = freeChunkIds.poll();
+      int id = freeChunkId != null ? freeChunkId : chunks.length;
+      Chunk chunk = new Chunk(id, buffer, slabSize, slabNum);
+      Chunk[] newChunks = Arrays.copyOf(chunks, Math.max(chunks.length, id + 1));
+      newChunks[id] = chunk;
+      chunks = newChunks;
+      POOLED_SLABS_MEMORY_SIZE.addAndGet((long) slabNum * slabSize);
+      return chunk;
+    }
+  }
+
+  private static void freeChunk(Chunk chunk) {
+    synchronized (CHUNKS_LOCK) {
+      Chunk[] newChunks = chunks.clone();
+      newChunks[chunk.id] = null;
+      chunks = newChunks;
+      freeChunkIds.add(chunk.id);
+    }
+    POOLED_SLABS_MEMORY_SIZE.addAndGet(-(long) chunk.freeNum * chunk.slabSize);
+    MmapUtil.clean((MappedByteBuffer) chunk.buffer);
+  }
+
+  public static long getPooledSlabsMemorySize() {
+    return POOLED_SLABS_MEMORY_SIZE.get();
+  }
+
+  /**
+   * Free all chunks whose slabs are all released, chunks holding slabs in use or cached by other
+   * alive threads are kept.
+   */
+  public static void close() {
+    releaseCache(THREAD_CACHE.get());
+    releaseCachesOfTerminatedThreads();
+    for (ArrayDeque<Chunk> partialChunks : PARTIAL_CHUNKS) {
+      synchronized (partialChunks) {
+        Iterator<Chunk> iterator = partialChunks.iterator();
+        while (iterator.hasNext()) {
+          Chunk chunk = iterator.next();
+          if (chunk.freeNum == chunk.freeOffsets.length) {
+            iterator.remove();
+            freeChunk(chunk);
+          }
+        }
+      }
+    }
+    LOGGER.debug("Off-heap array pool is cleared.");
+  }
+
+  /** Free slabs cached by a thread, only accessed by the thread until it terminates */
+  private static class ThreadCache {
+    private final Thread owner = Thread.currentThread();
+    /** order -> stack of handles of free slabs, the first sizes[order] ones are valid */
+    private final long[][] slabs = new long[PARTIAL_CHUNKS.length][THREAD_CACHE_SIZE];
+
+    private final int[] sizes = new int[PARTIAL_CHUNKS.length];
+
+    private ThreadCache() {
+      THREAD_CACHES.add(this);
+    }
+  }
+
+  /** A direct buffer sliced into slabs of the same size */
+  private static class Chunk {
+    private final int id;
+    private final ByteBuffer buffer;
+    private final int slabSize;
+    /** stack of byte offsets of free slabs, the first freeNum ones are valid */
+    private final int[] freeOffsets;
+
+    private int freeNum;
+
+    private Chunk(int id, ByteBuffer buffer, int slabSize, int slabNum) {
+      this.id = id;
+      this.buffer = buffer;
+      this.slabSize = slabSize;
+      this.freeOffsets = new int[slabNum];
+      for (int i = 0; i < slabNum; i++) {
+        // hand out slabs from the start of the chunk
+        freeOffsets[i] = (slabNum - 1 - i) * slabSize;
+      }
+      this.freeNum = slabNum;
+    }
+  }
+}
@@ -199,12 +199,16 @@ public class SystemInfo {
         return false;
       }
       TsFileProcessor selectedTsFileProcessor = allTsFileProcessors.peek();
-      memCost += selectedTsFileProcessor.getWorkMemTableRamCost();
-      selectedTsFileProcessor.setWorkMemTableShouldFlush();
-      flushTaskSubmitThreadPool.submit(
-          () -> {
-            selectedTsFileProcessor.submitAFlushTask();
-          });
+      if (selectedTsFileProcessor.canSpillWorkMemTable()) {
+        memCost += chooseMemCostToSpill(selectedTsFileProcessor, activeMemSize - memCost);
+      } else {
+        memCost += selectedTsFileProcessor.getWorkMemTableRamCost();
+        selectedTsFileProcessor.setWorkMemTableShouldFlush();
+        flushTaskSubmitThreadPool.submit(
+            () -> {
+              selectedTsFileProcessor.submitAFlushTask();
+            });
+      }
       if (selectedTsFileProcessor == currentTsFileProcessor) {
         isCurrentTsFileProcessorSelected = true;
       }
@@ -213,6 +217,28 @@ public class SystemInfo {
     return isCurrentTsFileProcessorSelected;
   }
 
+  /**
+   * Submit a spill task releasing at least half of the work memtable instead of flushing it, so
+   * that the memtable is not spilled again soon.
+   *
+   * @return the memory cost to be released by the spill task
+   */
+  private long chooseMemCostToSpill(TsFileProcessor tsFileProcessor, long activeMemSize) {
+    long pendingSpillMemCost = tsFileProcessor.getPendingSpillMemCost();
+    if (pendingSpillMemCost > 0) {
+      // a spill task has been submitted but not run yet
+      return pendingSpillMemCost;
+    }
+    long workMemTableRamCost = tsFileProcessor.getWorkMemTableRamCost();
+    long memCostToSpill =
+        Math.min(
+            workMemTableRamCost,
+            Math.max(workMemTableRamCost / 2, (long) (activeMemSize - FLUSH_THERSHOLD)));
+    tsFileProcessor.setPendingSpillMemCost(memCostToSpill);
+    flushTaskSubmitThreadPool.submit(tsFileProcessor::submitASpillTask);
+    return memCostToSpill;
+  }
+
   public boolean isRejected() {
     return rejected;
   }
@@ -35,7 +35,9 @@ public enum Metric {
   CLUSTER_NODE_STATUS,
   CLUSTER_NODE_LEADER_COUNT,
   CLUSTER_ELECT,
-  CLUSTER_UNCOMMITTED_LOG;
+  CLUSTER_UNCOMMITTED_LOG,
+  WAL_BATCH_SIZE,
+  PAGE_BUFFER;
 
   @Override
   public String toString() {
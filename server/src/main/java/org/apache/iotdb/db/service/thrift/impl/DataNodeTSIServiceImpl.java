@@ -363,8 +363,8 @@ public class DataNodeTSIServiceImpl implements TSIEventHandler {
       }
 
       // Step 1: TODO(INSERT) transfer from TSInsertTabletsReq to Statement
-      InsertRowsOfOneDeviceStatement statement =
-          (InsertRowsOfOneDeviceStatement) StatementGenerator.createStatement(req);
+      // rows that can form a tablet are inserted as an InsertTabletStatement
+      Statement statement = StatementGenerator.createStatement(req);
 
       // Step 2: call the coordinator
       long queryId = SESSION_MANAGER.requestQueryId(false);
@@ -100,6 +100,8 @@ import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -1150,42 +1152,178 @@ public class TSServiceImpl implements TSIEventHandler {
           req.prefixPaths.get(0),
           req.getTimestamps().get(0));
     }
-    boolean allCheckSuccess = true;
+    int rowCount = req.prefixPaths.size();
+    TSStatus[] results = new TSStatus[rowCount];
+    Arrays.fill(results, RpcUtils.SUCCESS_STATUS);
+    boolean allSuccess = true;
+    // rows of the same device share one parsed device path
+    Map<String, PartialPath> devicePaths = new HashMap<>();
+
+    // the rows of a device that can form a tablet are inserted without a plan for each row
+    InsertMultiTabletsPlan insertMultiTabletsPlan = new InsertMultiTabletsPlan();
+    List<List<Integer>> tabletRowIndexes = new ArrayList<>();
+    boolean[] inTablet = new boolean[rowCount];
+    Map<String, List<Integer>> deviceToRowIndexes = new LinkedHashMap<>();
+    for (int i = 0; i < rowCount; i++) {
+      deviceToRowIndexes.computeIfAbsent(req.prefixPaths.get(i), k -> new ArrayList<>()).add(i);
+    }
+    for (Entry<String, List<Integer>> entry : deviceToRowIndexes.entrySet()) {
+      List<Integer> sortedRowIndexes =
+          sortRecordsOfTablet(req.getTimestamps(), req.getMeasurementsList(), entry.getValue());
+      InsertTabletPlan plan =
+          sortedRowIndexes == null
+              ? null
+              : getInsertTabletPlan(
+                  devicePaths,
+                  entry.getKey(),
+                  req.getTimestamps(),
+                  req.getMeasurementsList(),
+                  req.getValuesList(),
+                  sortedRowIndexes,
+                  req.isAligned);
+      if (plan == null) {
+        continue;
+      }
+      for (int i : entry.getValue()) {
+        inTablet[i] = true;
+      }
+      TSStatus status = SESSION_MANAGER.checkAuthority(plan, req.getSessionId());
+      if (status != null) {
+        allSuccess = putResults(status, entry.getValue(), results) && allSuccess;
+        continue;
+      }
+      insertMultiTabletsPlan.addInsertTabletPlan(plan, tabletRowIndexes.size());
+      // the rows of a tablet are sorted by time, so are the sub status of the tablet
+      tabletRowIndexes.add(sortedRowIndexes);
+    }
+
     InsertRowsPlan insertRowsPlan = new InsertRowsPlan();
-    for (int i = 0; i < req.prefixPaths.size(); i++) {
+    for (int i = 0; i < rowCount; i++) {
+      if (inTablet[i]) {
+        continue;
+      }
       try {
         InsertRowPlan plan =
             new InsertRowPlan(
-                new PartialPath(req.getPrefixPaths().get(i)),
+                getDevicePath(devicePaths, req.getPrefixPaths().get(i)),
                 req.getTimestamps().get(i),
                 req.getMeasurementsList().get(i).toArray(new String[0]),
                 req.valuesList.get(i),
                 req.isAligned);
         TSStatus status = SESSION_MANAGER.checkAuthority(plan, req.getSessionId());
         if (status != null) {
-          insertRowsPlan.getResults().put(i, status);
-          allCheckSuccess = false;
+          // the executor skips the row plans with results, which are indexed by position
+          insertRowsPlan.getResults().put(insertRowsPlan.getInsertRowPlanList().size(), status);
         }
         insertRowsPlan.addOneInsertRowPlan(plan, i);
       } catch (IoTDBException e) {
-        allCheckSuccess = false;
-        insertRowsPlan
-            .getResults()
-            .put(i, onIoTDBException(e, OperationType.INSERT_RECORDS, e.getErrorCode()));
+        allSuccess = false;
+        results[i] = onIoTDBException(e, OperationType.INSERT_RECORDS, e.getErrorCode());
       } catch (Exception e) {
-        allCheckSuccess = false;
-        insertRowsPlan
-            .getResults()
-            .put(
-                i,
-                onNPEOrUnexpectedException(
-                    e, OperationType.INSERT_RECORDS, TSStatusCode.INTERNAL_SERVER_ERROR));
+        allSuccess = false;
+        results[i] =
+            onNPEOrUnexpectedException(
+                e, OperationType.INSERT_RECORDS, TSStatusCode.INTERNAL_SERVER_ERROR);
       }
     }
-    TSStatus tsStatus = executeNonQueryPlan(insertRowsPlan);
 
-    return judgeFinalTsStatus(
-        allCheckSuccess, tsStatus, insertRowsPlan.getResults(), req.prefixPaths.size());
+    if (!insertRowsPlan.getInsertRowPlanList().isEmpty()) {
+      allSuccess =
+          putResults(
+                  executeNonQueryPlan(insertRowsPlan),
+                  insertRowsPlan.getInsertRowPlanIndexList(),
+                  results)
+              && allSuccess;
+    }
+    if (!tabletRowIndexes.isEmpty()) {
+      TSStatus status = executeNonQueryPlan(insertMultiTabletsPlan);
+      for (int i = 0; i < tabletRowIndexes.size(); i++) {
+        TSStatus tabletStatus = status.subStatus != null ? status.subStatus.get(i) : status;
+        allSuccess = putResults(tabletStatus, tabletRowIndexes.get(i), results) && allSuccess;
+      }
+    }
+    return allSuccess
+        ? RpcUtils.getStatus(TSStatusCode.SUCCESS_STATUS, "Execute successfully")
+        : RpcUtils.getStatus(Arrays.asList(results));
+  }
+
+  /**
+   * @param rowIndexes indexes of the records of one device
+   * @return the indexes sorted by time, or null if there are less than two records or they cannot
+   *     form a tablet
+   */
+  private List<Integer> sortRecordsOfTablet(
+      List<Long> timestamps, List<List<String>> measurementsList, List<Integer> rowIndexes) {
+    if (rowIndexes.size() < 2) {
+      return null;
+    }
+    return QueryDataSetUtils.sortRecordsOfTablet(timestamps, measurementsList, rowIndexes);
+  }
+
+  /**
+   * @param sortedRowIndexes indexes of the records of one device sorted by time, see {@link
+   *     #sortRecordsOfTablet(List, List, List)}
+   * @return a plan inserting the records as a tablet in the order of sortedRowIndexes, or null if
+   *     they cannot form a tablet
+   */
+  private InsertTabletPlan getInsertTabletPlan(
+      Map<String, PartialPath> devicePaths,
+      String prefixPath,
+      List<Long> timestamps,
+      List<List<String>> measurementsList,
+      List<ByteBuffer> valuesList,
+      List<Integer> sortedRowIndexes,
+      boolean isAligned) {
+    List<String> measurements = measurementsList.get(sortedRowIndexes.get(0));
+    TSDataType[] dataTypes = new TSDataType[measurements.size()];
+    Object[] columns =
+        QueryDataSetUtils.readTabletValuesFromRecords(valuesList, sortedRowIndexes, dataTypes);
+    if (columns == null) {
+      return null;
+    }
+    PartialPath devicePath;
+    try {
+      devicePath = getDevicePath(devicePaths, prefixPath);
+    } catch (IllegalPathException e) {
+      // reported when inserted row by row
+      return null;
+    }
+    long[] times = new long[sortedRowIndexes.size()];
+    for (int i = 0; i < times.length; i++) {
+      times[i] = timestamps.get(sortedRowIndexes.get(i));
+    }
+    InsertTabletPlan plan = new InsertTabletPlan(devicePath, measurements.toArray(new String[0]));
+    plan.setTimes(times);
+    plan.setColumns(columns);
+    plan.setRowCount(times.length);
+    plan.setDataTypes(dataTypes);
+    plan.setAligned(isAligned);
+    return plan;
+  }
+
+  /**
+   * put the status of a plan into the results of the rows it inserts
+   *
+   * @return whether the plan succeeds
+   */
+  private boolean putResults(TSStatus status, List<Integer> rowIndexes, TSStatus[] results) {
+    if (status.getCode() == TSStatusCode.SUCCESS_STATUS.getStatusCode()) {
+      return true;
+    }
+    for (int i = 0; i < rowIndexes.size(); i++) {
+      results[rowIndexes.get(i)] = status.subStatus != null ? status.subStatus.get(i) : status;
+    }
+    return false;
+  }
+
+  private PartialPath getDevicePath(Map<String, PartialPath> devicePaths, String prefixPath)
+      throws IllegalPathException {
+    PartialPath devicePath = devicePaths.get(prefixPath);
+    if (devicePath == null) {
+      devicePath = new PartialPath(prefixPath);
+      devicePaths.put(prefixPath, devicePath);
+    }
+    return devicePath;
   }
 
   private TSStatus judgeFinalTsStatus(
@@ -1225,15 +1363,44 @@ public class TSServiceImpl implements TSIEventHandler {
 
     List<TSStatus> statusList = new ArrayList<>();
     try {
-      InsertRowsOfOneDevicePlan plan =
-          new InsertRowsOfOneDevicePlan(
-              new PartialPath(req.getPrefixPath()),
-              req.getTimestamps(),
-              req.getMeasurementsList(),
-              req.getValuesList(),
-              req.isAligned);
+      List<Integer> rowIndexes = new ArrayList<>(req.getTimestamps().size());
+      for (int i = 0; i < req.getTimestamps().size(); i++) {
+        rowIndexes.add(i);
+      }
+      // insert the rows as a tablet if they can form one
+      List<Integer> sortedRowIndexes =
+          sortRecordsOfTablet(req.getTimestamps(), req.getMeasurementsList(), rowIndexes);
+      PhysicalPlan plan =
+          sortedRowIndexes == null
+              ? null
+              : getInsertTabletPlan(
+                  new HashMap<>(),
+                  req.getPrefixPath(),
+                  req.getTimestamps(),
+                  req.getMeasurementsList(),
+                  req.getValuesList(),
+                  sortedRowIndexes,
+                  req.isAligned);
+      if (plan == null) {
+        plan =
+            new InsertRowsOfOneDevicePlan(
+                new PartialPath(req.getPrefixPath()),
+                req.getTimestamps(),
+                req.getMeasurementsList(),
+                req.getValuesList(),
+                req.isAligned);
+      }
       TSStatus status = SESSION_MANAGER.checkAuthority(plan, req.getSessionId());
-      statusList.add(status != null ? status : executeNonQueryPlan(plan));
+      if (status == null) {
+        status = executeNonQueryPlan(plan);
+        if (plan instanceof InsertTabletPlan && status.subStatus != null) {
+          // the sub status of the tablet are of the rows sorted by time
+          TSStatus[] results = new TSStatus[rowIndexes.size()];
+          putResults(status, sortedRowIndexes, results);
+          status = RpcUtils.getStatus(Arrays.asList(results));
+        }
+      }
+      statusList.add(status);
     } catch (IoTDBException e) {
       statusList.add(
           onIoTDBException(e, OperationType.INSERT_RECORDS_OF_ONE_DEVICE, e.getErrorCode()));
@@ -1329,10 +1496,12 @@ public class TSServiceImpl implements TSIEventHandler {
 
     boolean allCheckSuccess = true;
     InsertRowsPlan insertRowsPlan = new InsertRowsPlan();
+    // rows of the same device share one parsed device path
+    Map<String, PartialPath> devicePaths = new HashMap<>();
     for (int i = 0; i < req.prefixPaths.size(); i++) {
       InsertRowPlan plan = new InsertRowPlan();
       try {
-        plan.setDevicePath(new PartialPath(req.getPrefixPaths().get(i)));
+        plan.setDevicePath(getDevicePath(devicePaths, req.getPrefixPaths().get(i)));
         plan.setTime(req.getTimestamps().get(i));
         addMeasurementAndValue(plan, req.getMeasurementsList().get(i), req.getValuesList().get(i));
         plan.setDataTypes(new TSDataType[plan.getMeasurements().length]);
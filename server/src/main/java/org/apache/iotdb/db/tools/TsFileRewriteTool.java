@@ -39,6 +39,7 @@ import org.apache.iotdb.tsfile.file.header.ChunkHeader;
 import org.apache.iotdb.tsfile.file.header.PageHeader;
 import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
 import org.apache.iotdb.tsfile.file.metadata.TimeseriesMetadata;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.fileSystem.FSFactoryProducer;
@@ -194,12 +195,18 @@ public class TsFileRewriteTool implements AutoCloseable {
             List<ByteBuffer> dataInChunk = new ArrayList<>();
             List<Boolean> needToDecodeInfo = new ArrayList<>();
             int dataSize = header.getDataSize();
+            // pages that may use zstd dictionaries are not copied to a file without them
+            boolean usesZstdDictionaries =
+                header.getCompressionType() == CompressionType.ZSTD
+                    && reader.getZstdDictionaries() != null;
             while (dataSize > 0) {
               // a new Page
               PageHeader pageHeader =
                   reader.readPageHeader(dataType, header.getChunkType() == MetaMarker.CHUNK_HEADER);
               boolean needToDecode =
-                  checkIfNeedToDecode(measurementSchema, deviceId, pageHeader, chunkHeaderOffset);
+                  usesZstdDictionaries
+                      || checkIfNeedToDecode(
+                          measurementSchema, deviceId, pageHeader, chunkHeaderOffset);
               needToDecodeInfo.add(needToDecode);
               ByteBuffer pageData =
                   !needToDecode
@@ -476,8 +483,7 @@ public class TsFileRewriteTool implements AutoCloseable {
       return false;
     }
 
-    byte versionNumber = reader.readVersionNumber();
-    if (versionNumber != TSFileConfig.VERSION_NUMBER) {
+    if (!reader.isVersionNumberSupported()) {
       logger.error("the file's Version Number is incorrect, file path: {}", reader.getFileName());
       return false;
     }
@@ -35,6 +35,7 @@ import org.apache.iotdb.tsfile.fileSystem.FSFactoryProducer;
 import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
 import org.apache.iotdb.tsfile.read.common.Chunk;
 import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.utils.BlockedBloomFilter;
 import org.apache.iotdb.tsfile.utils.BloomFilter;
 import org.apache.iotdb.tsfile.utils.Pair;
 
@@ -163,17 +164,36 @@ public class TsFileSketchTool {
               + " key&TsMetadataIndex");
       // bloom filter
       BloomFilter bloomFilter = tsFileMetaData.getBloomFilter();
-      printlnBoth(
-          pw,
-          String.format("%20s", "")
-              + "|\t\t[bloom filter bit vector byte array length] "
-              + bloomFilter.serialize().length);
-      printlnBoth(pw, String.format("%20s", "") + "|\t\t[bloom filter bit vector byte array] ");
-      printlnBoth(
-          pw,
-          String.format("%20s", "")
-              + "|\t\t[bloom filter number of bits] "
-              + bloomFilter.getSize());
+      if (bloomFilter instanceof BlockedBloomFilter) {
+        // the serialized filter also holds the device filter and the block numbers
+        printlnBoth(
+            pw,
+            String.format("%20s", "")
+                + "|\t\t[blocked bloom filter byte array length] "
+                + bloomFilter.serialize().length);
+        printlnBoth(
+            pw,
+            String.format("%20s", "")
+                + "|\t\t[bloom filter number of bits of series] "
+                + bloomFilter.getSize());
+        printlnBoth(
+            pw,
+            String.format("%20s", "")
+                + "|\t\t[bloom filter number of bits of devices] "
+                + ((BlockedBloomFilter) bloomFilter).getDeviceFilterSize());
+      } else {
+        printlnBoth(
+            pw,
+            String.format("%20s", "")
+                + "|\t\t[bloom filter bit vector byte array length] "
+                + bloomFilter.serialize().length);
+        printlnBoth(pw, String.format("%20s", "") + "|\t\t[bloom filter bit vector byte array] ");
+        printlnBoth(
+            pw,
+            String.format("%20s", "")
+                + "|\t\t[bloom filter number of bits] "
+                + bloomFilter.getSize());
+      }
       printlnBoth(
           pw,
           String.format("%20s", "")
@@ -171,12 +171,10 @@ public class FileLoaderUtils {
 
       // when resource.getTimeIndexType() == 1, TsFileResource.timeIndexType is deviceTimeIndex
       // we should not ignore the non-exist of device in TsFileMetadata
+      TimeSeriesMetadataCacheKey timeColumnKey =
+          new TimeSeriesMetadataCacheKey(filePath, deviceId, "");
       TimeseriesMetadata timeColumn =
-          cache.get(
-              new TimeSeriesMetadataCacheKey(filePath, deviceId, ""),
-              allSensors,
-              resource.getTimeIndexType() != 1,
-              isDebug);
+          cache.get(timeColumnKey, allSensors, resource.getTimeIndexType() != 1, isDebug);
       if (timeColumn != null) {
         List<TimeseriesMetadata> valueTimeSeriesMetadataList =
             new ArrayList<>(valueMeasurementList.size());
@@ -185,7 +183,7 @@ public class FileLoaderUtils {
         for (String valueMeasurement : valueMeasurementList) {
           TimeseriesMetadata valueColumn =
               cache.get(
-                  new TimeSeriesMetadataCacheKey(filePath, deviceId, valueMeasurement),
+                  timeColumnKey.withMeasurement(valueMeasurement),
                   allSensors,
                   resource.getTimeIndexType() != 1,
                   isDebug);
@@ -36,7 +36,10 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -488,6 +491,117 @@ public class QueryDataSetUtils {
     return values;
   }
 
+  /**
+   * @param rowIndexes indexes of records of one device
+   * @return the indexes sorted by time, the records of the same time keep their order. Null if the
+   *     records do not have the same non-empty measurements, so they cannot form a tablet.
+   */
+  public static List<Integer> sortRecordsOfTablet(
+      List<Long> timestamps, List<List<String>> measurementsList, List<Integer> rowIndexes) {
+    List<String> measurements = measurementsList.get(rowIndexes.get(0));
+    if (measurements.isEmpty()) {
+      return null;
+    }
+    for (int i = 1; i < rowIndexes.size(); i++) {
+      if (!measurements.equals(measurementsList.get(rowIndexes.get(i)))) {
+        return null;
+      }
+    }
+    List<Integer> sortedRowIndexes = new ArrayList<>(rowIndexes);
+    sortedRowIndexes.sort(Comparator.comparingLong(timestamps::get));
+    return sortedRowIndexes;
+  }
+
+  /**
+   * Read the values of records of one device as the columns of a tablet, so that the records can be
+   * inserted without a plan for each of them. The positions of the buffers are not changed.
+   *
+   * @param valuesList values of records, each value is prefixed with its data type
+   * @param rowIndexes the records to read, in the order of the rows of the tablet. They must have
+   *     the same measurements.
+   * @param dataTypes filled with the data type of each column
+   * @return null if the values of a column have different data types, or are null or untyped
+   */
+  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
+  public static Object[] readTabletValuesFromRecords(
+      List<ByteBuffer> valuesList, List<Integer> rowIndexes, TSDataType[] dataTypes) {
+    int size = rowIndexes.size();
+    Object[] values = new Object[dataTypes.length];
+    for (int index = 0; index < size; index++) {
+      ByteBuffer buffer = valuesList.get(rowIndexes.get(index));
+      int position = buffer.position();
+      try {
+        for (int i = 0; i < dataTypes.length; i++) {
+          byte typeNum = buffer.get();
+          // raw strings, nulls and unknown types
+          if (typeNum < 0 || typeNum >= TSDataType.values().length) {
+            return null;
+          }
+          TSDataType dataType = TSDataType.values()[typeNum];
+          if (index == 0) {
+            dataTypes[i] = dataType;
+            values[i] = createColumn(dataType, size);
+          } else if (dataType != dataTypes[i]) {
+            return null;
+          }
+          switch (dataType) {
+            case BOOLEAN:
+              ((boolean[]) values[i])[index] = BytesUtils.byteToBool(buffer.get());
+              break;
+            case INT32:
+              ((int[]) values[i])[index] = buffer.getInt();
+              break;
+            case INT64:
+              ((long[]) values[i])[index] = buffer.getLong();
+              break;
+            case FLOAT:
+              ((float[]) values[i])[index] = buffer.getFloat();
+              break;
+            case DOUBLE:
+              ((double[]) values[i])[index] = buffer.getDouble();
+              break;
+            case TEXT:
+              byte[] binaryValue = new byte[buffer.getInt()];
+              buffer.get(binaryValue);
+              ((Binary[]) values[i])[index] = new Binary(binaryValue);
+              break;
+            default:
+              return null;
+          }
+        }
+        if (buffer.hasRemaining()) {
+          // more values than measurements
+          return null;
+        }
+      } catch (BufferUnderflowException e) {
+        // fewer values than measurements, which is reported when inserted row by row
+        return null;
+      } finally {
+        buffer.position(position);
+      }
+    }
+    return values;
+  }
+
+  private static Object createColumn(TSDataType dataType, int size) {
+    switch (dataType) {
+      case BOOLEAN:
+        return new boolean[size];
+      case INT32:
+        return new int[size];
+      case INT64:
+        return new long[size];
+      case FLOAT:
+        return new float[size];
+      case DOUBLE:
+        return new double[size];
+      case TEXT:
+        return new Binary[size];
+      default:
+        return null;
+    }
+  }
+
   public static Object[] readTabletValuesFromStream(
       DataInputStream stream, TSDataType[] types, int columns, int size) throws IOException {
     Object[] values = new Object[columns];
@@ -478,8 +478,9 @@ public class AlignedTVList extends TVList {
 
   public void deleteColumn(int columnIndex) {
     dataTypes.remove(columnIndex);
-    for (Object array : values.get(columnIndex)) {
-      PrimitiveArrayManager.release(array);
+    List<Object> columnValues = values.get(columnIndex);
+    for (int i = sharedArrayNum; i < columnValues.size(); i++) {
+      PrimitiveArrayManager.release(columnValues.get(i));
     }
     values.remove(columnIndex);
     bitMaps.remove(columnIndex);
@@ -526,6 +527,50 @@ public class AlignedTVList extends TVList {
     return cloneList;
   }
 
+  @Override
+  public AlignedTVList cloneOnWrite() {
+    AlignedTVList cloneList = new AlignedTVList(dataTypes);
+    cloneOnWriteAs(cloneList);
+    for (int i = 0; i < indices.size(); i++) {
+      cloneList.indices.add(
+          cloneList.isSharedArray(i) ? indices.get(i) : cloneIndex(indices.get(i)));
+    }
+    for (int i = 0; i < values.size(); i++) {
+      List<Object> columnValues = values.get(i);
+      for (int j = 0; j < columnValues.size(); j++) {
+        cloneList
+            .values
+            .get(i)
+            .add(
+                cloneList.isSharedArray(j)
+                    ? columnValues.get(j)
+                    : cloneValue(dataTypes.get(i), columnValues.get(j)));
+      }
+    }
+    // bitmaps are modified in place by deletion, so they are always copied
+    if (bitMaps != null) {
+      cloneList.bitMaps = new ArrayList<>(bitMaps.size());
+      for (List<BitMap> columnBitMaps : bitMaps) {
+        if (columnBitMaps == null) {
+          cloneList.bitMaps.add(null);
+          continue;
+        }
+        List<BitMap> cloneColumnBitMaps = new ArrayList<>(columnBitMaps.size());
+        for (BitMap bitMap : columnBitMaps) {
+          cloneColumnBitMaps.add(bitMap == null ? null : bitMap.clone());
+        }
+        cloneList.bitMaps.add(cloneColumnBitMaps);
+      }
+    }
+    return cloneList;
+  }
+
+  @Override
+  protected void copySharedValueArray(int arrayIndex) {
+    // sort only changes indices, value arrays are never modified before the tail
+    indices.set(arrayIndex, cloneIndex(indices.get(arrayIndex)));
+  }
+
   private int[] cloneIndex(int[] array) {
     int[] cloneArray = new int[array.length];
     System.arraycopy(array, 0, cloneArray, 0, array.length);
@@ -570,34 +615,23 @@ public class AlignedTVList extends TVList {
   }
 
   @Override
-  public void sort() {
-    if (sortedTimestamps == null || sortedTimestamps.length < rowCount) {
-      sortedTimestamps =
-          (long[][]) PrimitiveArrayManager.createDataListsByType(TSDataType.INT64, rowCount);
-    }
-    if (sortedIndices == null || sortedIndices.length < rowCount) {
-      sortedIndices =
-          (int[][]) PrimitiveArrayManager.createDataListsByType(TSDataType.INT32, rowCount);
-    }
-    sort(0, rowCount);
-    clearSortedValue();
-    clearSortedTime();
-    sorted = true;
+  protected void allocateSortedValues(int size) {
+    sortedIndices = (int[][]) PrimitiveArrayManager.createDataListsByType(TSDataType.INT32, size);
   }
 
   @Override
   void clearValue() {
     if (indices != null) {
-      for (int[] dataArray : indices) {
-        PrimitiveArrayManager.release(dataArray);
+      for (int i = sharedArrayNum; i < indices.size(); i++) {
+        PrimitiveArrayManager.release(indices.get(i));
       }
       indices.clear();
     }
     for (int i = 0; i < dataTypes.size(); i++) {
       List<Object> columnValues = values.get(i);
       if (columnValues != null) {
-        for (Object dataArray : columnValues) {
-          PrimitiveArrayManager.release(dataArray);
+        for (int j = sharedArrayNum; j < columnValues.size(); j++) {
+          PrimitiveArrayManager.release(columnValues.get(j));
         }
         columnValues.clear();
       }
@@ -728,9 +762,16 @@ public class AlignedTVList extends TVList {
 
   @Override
   protected void releaseLastValueArray() {
-    PrimitiveArrayManager.release(indices.remove(indices.size() - 1));
+    int[] indexArray = indices.remove(indices.size() - 1);
+    boolean shared = isSharedArray(indices.size());
+    if (!shared) {
+      PrimitiveArrayManager.release(indexArray);
+    }
     for (List<Object> valueList : values) {
-      PrimitiveArrayManager.release(valueList.remove(valueList.size() - 1));
+      Object valueArray = valueList.remove(valueList.size() - 1);
+      if (!shared) {
+        PrimitiveArrayManager.release(valueArray);
+      }
     }
   }
 
@@ -901,6 +942,7 @@ public class AlignedTVList extends TVList {
 
     clearValue();
     clearSortedValue();
+    sharedArrayNum = 0;
   }
 
   @Override
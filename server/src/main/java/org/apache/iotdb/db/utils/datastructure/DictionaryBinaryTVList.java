@@ -0,0 +1,306 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.utils.datastructure;
+
+import org.apache.iotdb.db.rescon.PrimitiveArrayManager;
+import org.apache.iotdb.db.wal.buffer.IWALByteBufferView;
+import org.apache.iotdb.db.wal.utils.WALWriteUtils;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.iotdb.db.rescon.PrimitiveArrayManager.ARRAY_SIZE;
+
+/**
+ * TEXT TVList for low-cardinality series, which stores an int code per row and each distinct value
+ * only once in a dictionary. Once the dictionary grows larger than the threshold, the owner should
+ * replace this list by a {@link BinaryTVList} through {@link #toBinaryTVList()}.
+ *
+ * <p>The codes are also the dictionary indexes passed to the value encoder when flushing, so that a
+ * dictionary encoder does not need to hash every value again.
+ */
+public class DictionaryBinaryTVList extends TVList {
+
+  // list of code array, add 1 when expanded -> int primitive array
+  // index relation: arrayIndex -> elementIndex
+  private List<int[]> codes;
+
+  // code -> distinct value
+  private List<Binary> dictionary;
+
+  // distinct value -> code
+  private Map<Binary, Integer> codeOfValue;
+
+  private final int maxDictionarySize;
+
+  private int[][] sortedCodes;
+
+  private int pivotCode;
+
+  DictionaryBinaryTVList(int maxDictionarySize) {
+    super();
+    this.maxDictionarySize = maxDictionarySize;
+    codes = new ArrayList<>();
+    dictionary = new ArrayList<>();
+    codeOfValue = new HashMap<>();
+  }
+
+  /** @return true if this list should be replaced by a {@link BinaryTVList} */
+  public boolean isDictionaryFull() {
+    return dictionary.size() > maxDictionarySize;
+  }
+
+  /** @return a BinaryTVList with the same rows, this list is not modified */
+  public BinaryTVList toBinaryTVList() {
+    BinaryTVList binaryTVList = new BinaryTVList();
+    for (int i = 0; i < rowCount; i++) {
+      binaryTVList.putBinary(getTime(i), getBinary(i));
+    }
+    return binaryTVList;
+  }
+
+  public int getDictionarySize() {
+    return dictionary.size();
+  }
+
+  private int getOrCreateCode(Binary value) {
+    return codeOfValue.computeIfAbsent(
+        value,
+        v -> {
+          dictionary.add(v);
+          return dictionary.size() - 1;
+        });
+  }
+
+  @Override
+  public void putBinary(long timestamp, Binary value) {
+    int code = getOrCreateCode(value);
+    checkExpansion();
+    int arrayIndex = rowCount / ARRAY_SIZE;
+    int elementIndex = rowCount % ARRAY_SIZE;
+    minTime = Math.min(minTime, timestamp);
+    timestamps.get(arrayIndex)[elementIndex] = timestamp;
+    codes.get(arrayIndex)[elementIndex] = code;
+    rowCount++;
+    if (sorted && rowCount > 1 && timestamp < getTime(rowCount - 2)) {
+      sorted = false;
+    }
+  }
+
+  @Override
+  public void putBinaries(long[] time, Binary[] value, BitMap bitMap, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (bitMap == null || !bitMap.isMarked(i)) {
+        putBinary(time[i], value[i]);
+      }
+    }
+  }
+
+  @Override
+  public Binary getBinary(int index) {
+    return dictionary.get(getCode(index));
+  }
+
+  /** @return the dictionary index of the value at the given row */
+  public int getCode(int index) {
+    if (index >= rowCount) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+    int arrayIndex = index / ARRAY_SIZE;
+    int elementIndex = index % ARRAY_SIZE;
+    return codes.get(arrayIndex)[elementIndex];
+  }
+
+  protected void set(int index, long timestamp, int code) {
+    if (index >= rowCount) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+    int arrayIndex = index / ARRAY_SIZE;
+    int elementIndex = index % ARRAY_SIZE;
+    timestamps.get(arrayIndex)[elementIndex] = timestamp;
+    codes.get(arrayIndex)[elementIndex] = code;
+  }
+
+  @Override
+  public DictionaryBinaryTVList clone() {
+    DictionaryBinaryTVList cloneList = newListWithDictionary();
+    cloneAs(cloneList);
+    for (int[] codeArray : codes) {
+      cloneList.codes.add(cloneCode(codeArray));
+    }
+    return cloneList;
+  }
+
+  @Override
+  public DictionaryBinaryTVList cloneOnWrite() {
+    DictionaryBinaryTVList cloneList = newListWithDictionary();
+    cloneOnWriteAs(cloneList);
+    for (int i = 0; i < codes.size(); i++) {
+      cloneList.codes.add(cloneList.isSharedArray(i) ? codes.get(i) : cloneCode(codes.get(i)));
+    }
+    return cloneList;
+  }
+
+  /** the dictionary is copied since the clone keeps appending to it */
+  private DictionaryBinaryTVList newListWithDictionary() {
+    DictionaryBinaryTVList cloneList = new DictionaryBinaryTVList(maxDictionarySize);
+    cloneList.dictionary.addAll(dictionary);
+    cloneList.codeOfValue.putAll(codeOfValue);
+    return cloneList;
+  }
+
+  @Override
+  protected void copySharedValueArray(int arrayIndex) {
+    codes.set(arrayIndex, cloneCode(codes.get(arrayIndex)));
+  }
+
+  private int[] cloneCode(int[] array) {
+    int[] cloneArray = new int[array.length];
+    System.arraycopy(array, 0, cloneArray, 0, array.length);
+    return cloneArray;
+  }
+
+  @Override
+  protected void allocateSortedValues(int size) {
+    sortedCodes = (int[][]) PrimitiveArrayManager.createDataListsByType(TSDataType.INT32, size);
+  }
+
+  @Override
+  void clearValue() {
+    if (codes != null) {
+      for (int i = sharedArrayNum; i < codes.size(); i++) {
+        PrimitiveArrayManager.release(codes.get(i));
+      }
+      codes.clear();
+    }
+    dictionary.clear();
+    codeOfValue.clear();
+  }
+
+  @Override
+  void clearSortedValue() {
+    if (sortedCodes != null) {
+      sortedCodes = null;
+    }
+  }
+
+  @Override
+  protected void setFromSorted(int src, int dest) {
+    set(
+        dest,
+        sortedTimestamps[src / ARRAY_SIZE][src % ARRAY_SIZE],
+        sortedCodes[src / ARRAY_SIZE][src % ARRAY_SIZE]);
+  }
+
+  @Override
+  protected void set(int src, int dest) {
+    long srcT = getTime(src);
+    int srcV = getCode(src);
+    set(dest, srcT, srcV);
+  }
+
+  @Override
+  protected void setToSorted(int src, int dest) {
+    sortedTimestamps[dest / ARRAY_SIZE][dest % ARRAY_SIZE] = getTime(src);
+    sortedCodes[dest / ARRAY_SIZE][dest % ARRAY_SIZE] = getCode(src);
+  }
+
+  @Override
+  protected void reverseRange(int lo, int hi) {
+    hi--;
+    while (lo < hi) {
+      long loT = getTime(lo);
+      int loV = getCode(lo);
+      long hiT = getTime(hi);
+      int hiV = getCode(hi);
+      set(lo++, hiT, hiV);
+      set(hi--, loT, loV);
+    }
+  }
+
+  @Override
+  protected void expandValues() {
+    codes.add((int[]) getPrimitiveArraysByType(TSDataType.INT32));
+  }
+
+  @Override
+  protected void saveAsPivot(int pos) {
+    pivotTime = getTime(pos);
+    pivotCode = getCode(pos);
+  }
+
+  @Override
+  protected void setPivotTo(int pos) {
+    set(pos, pivotTime, pivotCode);
+  }
+
+  @Override
+  public TimeValuePair getTimeValuePair(int index) {
+    return new TimeValuePair(
+        getTime(index), TsPrimitiveType.getByType(TSDataType.TEXT, getBinary(index)));
+  }
+
+  @Override
+  protected TimeValuePair getTimeValuePair(
+      int index, long time, Integer floatPrecision, TSEncoding encoding) {
+    return new TimeValuePair(time, TsPrimitiveType.getByType(TSDataType.TEXT, getBinary(index)));
+  }
+
+  @Override
+  protected void releaseLastValueArray() {
+    int[] codeArray = codes.remove(codes.size() - 1);
+    if (!isSharedArray(codes.size())) {
+      PrimitiveArrayManager.release(codeArray);
+    }
+  }
+
+  @Override
+  public TSDataType getDataType() {
+    return TSDataType.TEXT;
+  }
+
+  @Override
+  public int serializedSize() {
+    int size = Byte.BYTES + Integer.BYTES + rowCount * Long.BYTES;
+    for (int rowIdx = 0; rowIdx < rowCount; ++rowIdx) {
+      size += ReadWriteIOUtils.sizeToWrite(getBinary(rowIdx));
+    }
+    return size;
+  }
+
+  /** serialized the same as {@link BinaryTVList}, so it is deserialized as a BinaryTVList */
+  @Override
+  public void serializeToWAL(IWALByteBufferView buffer) {
+    WALWriteUtils.write(TSDataType.TEXT, buffer);
+    buffer.putInt(rowCount);
+    for (int rowIdx = 0; rowIdx < rowCount; ++rowIdx) {
+      buffer.putLong(getTime(rowIdx));
+      WALWriteUtils.write(getBinary(rowIdx), buffer);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.utils.datastructure;
+
+import org.apache.iotdb.db.wal.buffer.IWALByteBufferView;
+import org.apache.iotdb.db.wal.utils.WALWriteUtils;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.utils.BitMap;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType;
+
+import java.nio.ByteBuffer;
+
+/** boolean values of an off-heap TVList, see {@link OffHeapTVList}. */
+public class OffHeapBooleanTVList extends OffHeapTVList {
+
+  OffHeapBooleanTVList() {
+    super(Byte.BYTES);
+  }
+
+  @Override
+  protected OffHeapBooleanTVList newInstance() {
+    return new OffHeapBooleanTVList();
+  }
+
+  @Override
+  public void putBoolean(long timestamp, boolean value) {
+    putValueBits(timestamp, value ? 1 : 0);
+  }
+
+  @Override
+  public void putBooleans(long[] time, boolean[] value, BitMap bitMap, int start, int end) {
+    putValuesBits(time, value, bitMap, start, end);
+  }
+
+  @Override
+  public boolean getBoolean(int index) {
+    long bits = getValueBits(index);
+    return bits != 0;
+  }
+
+  @Override
+  protected long getValueBits(Object values, int index) {
+    boolean value = ((boolean[]) values)[index];
+    return value ? 1 : 0;
+  }
+
+  @Override
+  protected void putValues(Object values, int start, ByteBuffer chunk, int position, int length) {
+    boolean[] array = (boolean[]) values;
+    for (int i = 0; i < length; i++) {
+      chunk.put(position + i, (byte) (array[start + i] ? 1 : 0));
+    }
+  }
+
+  @Override
+  public TimeValuePair getTimeValuePair(int index) {
+    return new TimeValuePair(
+        getTime(index), TsPrimitiveType.getByType(TSDataType.BOOLEAN, getBoolean(index)));
+  }
+
+  @Override
+  protected TimeValuePair getTimeValuePair(
+      int index, long time, Integer floatPrecision, TSEncoding encoding) {
+    return new TimeValuePair(
+        time, TsPrimitiveType.getByType(TSDataType.BOOLEAN, getBoolean(index)));
+  }
+
+  @Override
+  public TSDataType getDataType() {
+    return TSDataType.BOOLEAN;
+  }
+
+  @Override
+  public int serializedSize() {
+    return Byte.BYTES + Integer.BYTES + rowCount * (Long.BYTES + Byte.BYTES);
+  }
+
+  /** serialized the same as the heap list, so it is deserialized as a heap list */
+  @Override
+  public void serializeToWAL(IWALByteBufferView buffer) {
+    WALWriteUtils.write(TSDataType.BOOLEAN, buffer);
+    buffer.putInt(rowCount);
+    for (int rowIdx = 0; rowIdx < rowCount; ++rowIdx) {
+      buffer.putLong(getTime(rowIdx));
+      WALWriteUtils.write(getBoolean(rowIdx), buffer);
+    }
+  }
+}
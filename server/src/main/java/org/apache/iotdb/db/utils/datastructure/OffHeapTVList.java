@@ -0,0 +1,401 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.utils.datastructure;
+
+import org.apache.iotdb.db.rescon.OffHeapArrayManager;
+import org.apache.iotdb.db.rescon.PrimitiveArrayManager;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.BitMap;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.apache.iotdb.db.rescon.PrimitiveArrayManager.ARRAY_SIZE;
+
+/**
+ * TVList storing timestamps and values in direct memory slabs got from {@link OffHeapArrayManager}
+ * instead of heap arrays. Values are kept as raw bits of 1, 4 or 8 bytes, so that sorting, copying
+ * and deleting are shared by all data types. Subclasses convert values to and from raw bits.
+ */
+public abstract class OffHeapTVList extends TVList {
+
+  // list of time slab handles, add 1 when expanded -> data point timestamp slab
+  // index relation: arrayIndex -> offset + elementIndex * Long.BYTES in the chunk
+  protected final Slabs timeSlabs;
+  // list of value slab handles, add 1 when expanded -> raw bits slab
+  // index relation: arrayIndex -> offset + elementIndex * valueWidth in the chunk
+  protected final Slabs valueSlabs;
+
+  /** bytes of each value in value slabs */
+  private final int valueWidth;
+
+  private long[][] sortedValueBits;
+
+  private long pivotValueBits;
+
+  OffHeapTVList(int valueWidth) {
+    super();
+    this.valueWidth = valueWidth;
+    timeSlabs = new Slabs();
+    valueSlabs = new Slabs();
+  }
+
+  public static boolean isSupported(TSDataType dataType) {
+    switch (dataType) {
+      case BOOLEAN:
+      case INT32:
+      case INT64:
+      case FLOAT:
+      case DOUBLE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  public static OffHeapTVList newList(TSDataType dataType) {
+    switch (dataType) {
+      case BOOLEAN:
+        return new OffHeapBooleanTVList();
+      case INT32:
+        return new OffHeapIntTVList();
+      case INT64:
+        return new OffHeapLongTVList();
+      case FLOAT:
+        return new OffHeapFloatTVList();
+      case DOUBLE:
+        return new OffHeapDoubleTVList();
+      default:
+        break;
+    }
+    return null;
+  }
+
+  /** @return an empty list of the same data type */
+  protected abstract OffHeapTVList newInstance();
+
+  /** @return raw bits of the value at the given index of an input value array */
+  protected abstract long getValueBits(Object values, int index);
+
+  /** copy values of an input value array into a value slab starting at position of the chunk */
+  protected abstract void putValues(
+      Object values, int start, ByteBuffer chunk, int position, int length);
+
+  @Override
+  public long getTime(int index) {
+    if (index >= rowCount) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+    long timeSlab = timeSlabs.get(index / ARRAY_SIZE);
+    return OffHeapArrayManager.getChunk(timeSlab)
+        .getLong(OffHeapArrayManager.getOffset(timeSlab) + (index % ARRAY_SIZE) * Long.BYTES);
+  }
+
+  protected long getValueBits(int index) {
+    if (index >= rowCount) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+    return readValueBits(valueSlabs.get(index / ARRAY_SIZE), index % ARRAY_SIZE);
+  }
+
+  private long readValueBits(long valueSlab, int elementIndex) {
+    ByteBuffer chunk = OffHeapArrayManager.getChunk(valueSlab);
+    int position = OffHeapArrayManager.getOffset(valueSlab) + elementIndex * valueWidth;
+    switch (valueWidth) {
+      case Long.BYTES:
+        return chunk.getLong(position);
+      case Integer.BYTES:
+        return chunk.getInt(position);
+      default:
+        return chunk.get(position);
+    }
+  }
+
+  private void writeValueBits(long valueSlab, int elementIndex, long bits) {
+    ByteBuffer chunk = OffHeapArrayManager.getChunk(valueSlab);
+    int position = OffHeapArrayManager.getOffset(valueSlab) + elementIndex * valueWidth;
+    switch (valueWidth) {
+      case Long.BYTES:
+        chunk.putLong(position, bits);
+        break;
+      case Integer.BYTES:
+        chunk.putInt(position, (int) bits);
+        break;
+      default:
+        chunk.put(position, (byte) bits);
+        break;
+    }
+  }
+
+  private static void writeTime(long timeSlab, int elementIndex, long timestamp) {
+    OffHeapArrayManager.getChunk(timeSlab)
+        .putLong(OffHeapArrayManager.getOffset(timeSlab) + elementIndex * Long.BYTES, timestamp);
+  }
+
+  protected void putValueBits(long timestamp, long bits) {
+    checkExpansion();
+    int arrayIndex = rowCount / ARRAY_SIZE;
+    int elementIndex = rowCount % ARRAY_SIZE;
+    minTime = Math.min(minTime, timestamp);
+    writeTime(timeSlabs.get(arrayIndex), elementIndex, timestamp);
+    writeValueBits(valueSlabs.get(arrayIndex), elementIndex, bits);
+    rowCount++;
+    if (sorted && rowCount > 1 && timestamp < getTime(rowCount - 2)) {
+      sorted = false;
+    }
+  }
+
+  /**
+   * Append rows of input arrays. Rows whose value is marked as null in bitMap are dropped. Without
+   * null values, timestamps and values are copied into slabs in bulk.
+   */
+  protected void putValuesBits(long[] time, Object values, BitMap bitMap, int start, int end) {
+    if (bitMap != null && !bitMap.isAllUnmarked()) {
+      for (int i = start; i < end; i++) {
+        if (!bitMap.isMarked(i)) {
+          putValueBits(time[i], getValueBits(values, i));
+        }
+      }
+      return;
+    }
+    updateMinTimeAndSorted(time, start, end);
+    int idx = start;
+    while (idx < end) {
+      checkExpansion();
+      int arrayIdx = rowCount / ARRAY_SIZE;
+      int elementIdx = rowCount % ARRAY_SIZE;
+      int length = Math.min(end - idx, ARRAY_SIZE - elementIdx);
+      long timeSlab = timeSlabs.get(arrayIdx);
+      ByteBuffer timeChunk = OffHeapArrayManager.getChunk(timeSlab).duplicate();
+      timeChunk.position(OffHeapArrayManager.getOffset(timeSlab) + elementIdx * Long.BYTES);
+      timeChunk.asLongBuffer().put(time, idx, length);
+      long valueSlab = valueSlabs.get(arrayIdx);
+      putValues(
+          values,
+          idx,
+          OffHeapArrayManager.getChunk(valueSlab),
+          OffHeapArrayManager.getOffset(valueSlab) + elementIdx * valueWidth,
+          length);
+      idx += length;
+      rowCount += length;
+    }
+  }
+
+  protected void set(int index, long timestamp, long bits) {
+    if (index >= rowCount) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+    int arrayIndex = index / ARRAY_SIZE;
+    int elementIndex = index % ARRAY_SIZE;
+    writeTime(timeSlabs.get(arrayIndex), elementIndex, timestamp);
+    writeValueBits(valueSlabs.get(arrayIndex), elementIndex, bits);
+  }
+
+  @Override
+  protected int getArrayNum() {
+    return timeSlabs.size();
+  }
+
+  @Override
+  protected void checkExpansion() {
+    if ((rowCount % ARRAY_SIZE) == 0) {
+      expandValues();
+      timeSlabs.add(OffHeapArrayManager.allocate(Long.BYTES));
+    }
+  }
+
+  @Override
+  protected void expandValues() {
+    valueSlabs.add(OffHeapArrayManager.allocate(valueWidth));
+  }
+
+  @Override
+  protected void allocateSortedValues(int size) {
+    sortedValueBits =
+        (long[][]) PrimitiveArrayManager.createDataListsByType(TSDataType.INT64, size);
+  }
+
+  @Override
+  protected void set(int src, int dest) {
+    set(dest, getTime(src), getValueBits(src));
+  }
+
+  @Override
+  protected void setFromSorted(int src, int dest) {
+    set(
+        dest,
+        sortedTimestamps[src / ARRAY_SIZE][src % ARRAY_SIZE],
+        sortedValueBits[src / ARRAY_SIZE][src % ARRAY_SIZE]);
+  }
+
+  @Override
+  protected void setToSorted(int src, int dest) {
+    sortedTimestamps[dest / ARRAY_SIZE][dest % ARRAY_SIZE] = getTime(src);
+    sortedValueBits[dest / ARRAY_SIZE][dest % ARRAY_SIZE] = getValueBits(src);
+  }
+
+  @Override
+  protected void reverseRange(int lo, int hi) {
+    hi--;
+    while (lo < hi) {
+      long loT = getTime(lo);
+      long loV = getValueBits(lo);
+      long hiT = getTime(hi);
+      long hiV = getValueBits(hi);
+      set(lo++, hiT, hiV);
+      set(hi--, loT, loV);
+    }
+  }
+
+  @Override
+  protected void saveAsPivot(int pos) {
+    pivotTime = getTime(pos);
+    pivotValueBits = getValueBits(pos);
+  }
+
+  @Override
+  protected void setPivotTo(int pos) {
+    set(pos, pivotTime, pivotValueBits);
+  }
+
+  @Override
+  public TVList clone() {
+    OffHeapTVList cloneList = newInstance();
+    for (int i = 0; i < timeSlabs.size(); i++) {
+      cloneList.timeSlabs.add(cloneSlab(timeSlabs.get(i), Long.BYTES));
+      cloneList.valueSlabs.add(cloneSlab(valueSlabs.get(i), valueWidth));
+    }
+    cloneList.rowCount = rowCount;
+    cloneList.sorted = sorted;
+    cloneList.minTime = minTime;
+    return cloneList;
+  }
+
+  @Override
+  public TVList cloneOnWrite() {
+    OffHeapTVList cloneList = newInstance();
+    setCloneSource(cloneList);
+    cloneList.sharedArrayNum = rowCount / ARRAY_SIZE;
+    for (int i = 0; i < timeSlabs.size(); i++) {
+      boolean shared = cloneList.isSharedArray(i);
+      cloneList.timeSlabs.add(shared ? timeSlabs.get(i) : cloneSlab(timeSlabs.get(i), Long.BYTES));
+      cloneList.valueSlabs.add(
+          shared ? valueSlabs.get(i) : cloneSlab(valueSlabs.get(i), valueWidth));
+    }
+    cloneList.rowCount = rowCount;
+    cloneList.sorted = sorted;
+    cloneList.minTime = minTime;
+    return cloneList;
+  }
+
+  private static long cloneSlab(long slab, int elementWidth) {
+    long cloneSlab = OffHeapArrayManager.allocate(elementWidth);
+    ByteBuffer source = OffHeapArrayManager.getChunk(slab).duplicate();
+    int offset = OffHeapArrayManager.getOffset(slab);
+    source.limit(offset + ARRAY_SIZE * elementWidth).position(offset);
+    ByteBuffer target = OffHeapArrayManager.getChunk(cloneSlab).duplicate();
+    target.position(OffHeapArrayManager.getOffset(cloneSlab));
+    target.put(source);
+    return cloneSlab;
+  }
+
+  @Override
+  protected void copySharedArrays(int fromIndex) {
+    for (int arrayIndex = fromIndex / ARRAY_SIZE; arrayIndex < sharedArrayNum; arrayIndex++) {
+      timeSlabs.set(arrayIndex, cloneSlab(timeSlabs.get(arrayIndex), Long.BYTES));
+      copySharedValueArray(arrayIndex);
+    }
+    sharedArrayNum = Math.min(sharedArrayNum, fromIndex / ARRAY_SIZE);
+  }
+
+  @Override
+  protected void copySharedValueArray(int arrayIndex) {
+    valueSlabs.set(arrayIndex, cloneSlab(valueSlabs.get(arrayIndex), valueWidth));
+  }
+
+  @Override
+  protected void releaseLastTimeArray() {
+    long timeSlab = timeSlabs.removeLast();
+    if (!isSharedArray(timeSlabs.size())) {
+      OffHeapArrayManager.release(timeSlab);
+    }
+  }
+
+  @Override
+  protected void releaseLastValueArray() {
+    long valueSlab = valueSlabs.removeLast();
+    if (!isSharedArray(valueSlabs.size())) {
+      OffHeapArrayManager.release(valueSlab);
+    }
+  }
+
+  @Override
+  protected void clearTime() {
+    for (int i = sharedArrayNum; i < timeSlabs.size(); i++) {
+      OffHeapArrayManager.release(timeSlabs.get(i));
+    }
+    timeSlabs.clear();
+  }
+
+  @Override
+  void clearValue() {
+    for (int i = sharedArrayNum; i < valueSlabs.size(); i++) {
+      OffHeapArrayManager.release(valueSlabs.get(i));
+    }
+    valueSlabs.clear();
+  }
+
+  @Override
+  void clearSortedValue() {
+    sortedValueBits = null;
+  }
+
+  /** growable list of slab handles got from {@link OffHeapArrayManager} */
+  protected static class Slabs {
+    private long[] handles = new long[4];
+    private int size;
+
+    int size() {
+      return size;
+    }
+
+    long get(int index) {
+      return handles[index];
+    }
+
+    void set(int index, long slab) {
+      handles[index] = slab;
+    }
+
+    void add(long slab) {
+      if (size == handles.length) {
+        handles = Arrays.copyOf(handles, size * 2);
+      }
+      handles[size++] = slab;
+    }
+
+    long removeLast() {
+      return handles[--size];
+    }
+
+    void clear() {
+      size = 0;
+    }
+  }
+}
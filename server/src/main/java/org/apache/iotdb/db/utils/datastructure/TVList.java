@@ -20,6 +20,7 @@
 package org.apache.iotdb.db.utils.datastructure;
 
 import org.apache.iotdb.commons.utils.TestOnly;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.rescon.PrimitiveArrayManager;
 import org.apache.iotdb.db.wal.buffer.WALEntryValue;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
@@ -34,6 +35,7 @@ import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -52,11 +54,17 @@ public abstract class TVList implements WALEntryValue {
 
   protected long[][] sortedTimestamps;
   protected boolean sorted = true;
-  // record reference count of this tv list
-  // currently this reference will only be increase because we can't know when to decrease it
+  // record reference count of this tv list, held by queries and by copy-on-write clones
   protected AtomicInteger referenceCount;
+  // whether the mem chunk owning this list has dropped it, then it is cleared once unreferenced
+  private boolean abandoned;
+  // the list this one is copy-on-write cloned from, referenced until this list is cleared
+  private TVList cloneSource;
   protected long pivotTime;
   protected long minTime;
+  // number of leading primitive arrays shared read-only with the list this one was
+  // copy-on-write cloned from, they must be copied before being modified and never be released
+  protected int sharedArrayNum;
 
   private long version;
 
@@ -68,9 +76,16 @@ public abstract class TVList implements WALEntryValue {
   }
 
   public static TVList newList(TSDataType dataType) {
+    if (isOffHeap(dataType)) {
+      return OffHeapTVList.newList(dataType);
+    }
     switch (dataType) {
       case TEXT:
-        return new BinaryTVList();
+        int textDictionaryThreshold =
+            IoTDBDescriptor.getInstance().getConfig().getTextDictionaryThresholdInMemTable();
+        return textDictionaryThreshold > 0
+            ? new DictionaryBinaryTVList(textDictionaryThreshold)
+            : new BinaryTVList();
       case FLOAT:
         return new FloatTVList();
       case INT32:
@@ -87,7 +102,15 @@ public abstract class TVList implements WALEntryValue {
     return null;
   }
 
+  private static boolean isOffHeap(TSDataType dataType) {
+    return IoTDBDescriptor.getInstance().getConfig().isEnableOffHeapMemTable()
+        && OffHeapTVList.isSupported(dataType);
+  }
+
   public static long tvListArrayMemCost(TSDataType type) {
+    if (isOffHeap(type)) {
+      return offHeapTvListArrayMemCost(type);
+    }
     long size = 0;
     // time array mem size
     size += (long) PrimitiveArrayManager.ARRAY_SIZE * 8L;
@@ -100,6 +123,17 @@ public abstract class TVList implements WALEntryValue {
     return size;
   }
 
+  private static long offHeapTvListArrayMemCost(TSDataType type) {
+    long size = 0;
+    // time slab mem size
+    size += (long) PrimitiveArrayManager.ARRAY_SIZE * 8L;
+    // value slab mem size
+    size += (long) PrimitiveArrayManager.ARRAY_SIZE * (long) type.getDataTypeSize();
+    // two slab handles, slabs are slices of shared chunks without their own buffer objects
+    size += Long.BYTES * 2;
+    return size;
+  }
+
   public boolean isSorted() {
     return sorted;
   }
@@ -108,10 +142,29 @@ public abstract class TVList implements WALEntryValue {
     referenceCount.incrementAndGet();
   }
 
+  /** called when a query holding this list ends */
+  public synchronized void decreaseReferenceCount() {
+    if (referenceCount.decrementAndGet() == 0 && abandoned) {
+      clear();
+    }
+  }
+
   public int getReferenceCount() {
     return referenceCount.get();
   }
 
+  /**
+   * Called when the owner of this list drops it, e.g. the list is replaced or the memtable is
+   * released. The list is cleared now, or when the last query or clone holding it releases it, so
+   * that its primitive arrays or off-heap slabs are returned.
+   */
+  public synchronized void abandon() {
+    abandoned = true;
+    if (referenceCount.get() == 0) {
+      clear();
+    }
+  }
+
   public int rowCount() {
     return rowCount;
   }
@@ -222,8 +275,6 @@ public abstract class TVList implements WALEntryValue {
     throw new UnsupportedOperationException(ERR_DATATYPE_NOT_CONSISTENT);
   }
 
-  public abstract void sort();
-
   public long getMinTime() {
     return minTime;
   }
@@ -250,10 +301,51 @@ public abstract class TVList implements WALEntryValue {
     return clone();
   }
 
+  /**
+   * Clone this list for further writing while queries still hold it. Full primitive arrays are
+   * shared with this list instead of being copied, only the tail array is copied. Shared arrays are
+   * copied lazily once they are going to be modified by sort or delete, so this list must not be
+   * modified after being cloned.
+   */
+  public abstract TVList cloneOnWrite();
+
+  /** the clone shares arrays with this list, so it holds a reference until it is cleared */
+  protected void setCloneSource(TVList cloneList) {
+    increaseReferenceCount();
+    cloneList.cloneSource = this;
+  }
+
+  public TVList cloneOnWrite(long version) {
+    this.version = version;
+    return cloneOnWrite();
+  }
+
+  protected boolean isSharedArray(int arrayIndex) {
+    return arrayIndex < sharedArrayNum;
+  }
+
+  /**
+   * Copy all shared arrays containing rows from the given row index on, so that these rows can be
+   * modified in place.
+   */
+  protected void copySharedArrays(int fromIndex) {
+    for (int arrayIndex = fromIndex / ARRAY_SIZE; arrayIndex < sharedArrayNum; arrayIndex++) {
+      timestamps.set(arrayIndex, cloneTime(timestamps.get(arrayIndex)));
+      copySharedValueArray(arrayIndex);
+    }
+    sharedArrayNum = Math.min(sharedArrayNum, fromIndex / ARRAY_SIZE);
+  }
+
+  /** Replace the shared value array at the given array index with a private copy. */
+  protected abstract void copySharedValueArray(int arrayIndex);
+
   protected abstract void releaseLastValueArray();
 
   protected void releaseLastTimeArray() {
-    PrimitiveArrayManager.release(timestamps.remove(timestamps.size() - 1));
+    long[] timeArray = timestamps.remove(timestamps.size() - 1);
+    if (!isSharedArray(timestamps.size())) {
+      PrimitiveArrayManager.release(timeArray);
+    }
   }
 
   public int delete(long lowerBound, long upperBound) {
@@ -262,7 +354,13 @@ public abstract class TVList implements WALEntryValue {
     for (int i = 0; i < rowCount; i++) {
       long time = getTime(i);
       if (time < lowerBound || time > upperBound) {
-        set(i, newSize++);
+        if (i != newSize) {
+          if (isSharedArray(newSize / ARRAY_SIZE)) {
+            copySharedArrays(newSize);
+          }
+          set(i, newSize);
+        }
+        newSize++;
         minTime = Math.min(time, minTime);
       }
     }
@@ -273,14 +371,24 @@ public abstract class TVList implements WALEntryValue {
     if (newSize % ARRAY_SIZE != 0) {
       newArrayNum++;
     }
-    int oldArrayNum = timestamps.size();
+    int oldArrayNum = getArrayNum();
     for (int releaseIdx = newArrayNum; releaseIdx < oldArrayNum; releaseIdx++) {
       releaseLastTimeArray();
       releaseLastValueArray();
     }
+    sharedArrayNum = Math.min(sharedArrayNum, getArrayNum());
+    // the next put writes into the array of row newSize, which must not be shared with a clone
+    if (isSharedArray(newSize / ARRAY_SIZE)) {
+      copySharedArrays(newSize);
+    }
     return deletedNumber;
   }
 
+  /** @return the number of primitive arrays of timestamps */
+  protected int getArrayNum() {
+    return timestamps.size();
+  }
+
   protected void cloneAs(TVList cloneList) {
     for (long[] timestampArray : timestamps) {
       cloneList.timestamps.add(cloneTime(timestampArray));
@@ -290,6 +398,19 @@ public abstract class TVList implements WALEntryValue {
     cloneList.minTime = minTime;
   }
 
+  /** Share all full time arrays with the clone list and copy the rest of them. */
+  protected void cloneOnWriteAs(TVList cloneList) {
+    setCloneSource(cloneList);
+    cloneList.sharedArrayNum = rowCount / ARRAY_SIZE;
+    for (int i = 0; i < timestamps.size(); i++) {
+      cloneList.timestamps.add(
+          cloneList.isSharedArray(i) ? timestamps.get(i) : cloneTime(timestamps.get(i)));
+    }
+    cloneList.rowCount = rowCount;
+    cloneList.sorted = sorted;
+    cloneList.minTime = minTime;
+  }
+
   public void clear() {
     rowCount = 0;
     sorted = true;
@@ -299,12 +420,19 @@ public abstract class TVList implements WALEntryValue {
 
     clearValue();
     clearSortedValue();
+    sharedArrayNum = 0;
+    if (cloneSource != null) {
+      // the shared arrays are no longer used by this list
+      TVList source = cloneSource;
+      cloneSource = null;
+      source.decreaseReferenceCount();
+    }
   }
 
   protected void clearTime() {
     if (timestamps != null) {
-      for (long[] dataArray : timestamps) {
-        PrimitiveArrayManager.release(dataArray);
+      for (int i = sharedArrayNum; i < timestamps.size(); i++) {
+        PrimitiveArrayManager.release(timestamps.get(i));
       }
       timestamps.clear();
     }
@@ -341,23 +469,112 @@ public abstract class TVList implements WALEntryValue {
     return cloneArray;
   }
 
-  protected void sort(int lo, int hi) {
-    if (sorted) {
-      return;
+  /**
+   * Get the length of the prefix whose rows are already at their final position after sorting, so
+   * that only the rows after it need to be sorted (and copied if they are shared).
+   */
+  protected int getSortedPrefixLength() {
+    // length of the leading ascending run
+    int runLength = 1;
+    while (runLength < rowCount && getTime(runLength) >= getTime(runLength - 1)) {
+      runLength++;
+    }
+    if (runLength >= rowCount) {
+      return rowCount;
     }
+    long minTimeAfterRun = Long.MAX_VALUE;
+    for (int i = runLength; i < rowCount; i++) {
+      minTimeAfterRun = Math.min(minTimeAfterRun, getTime(i));
+    }
+    // rows of the run not greater than all rows after it stay where they are, since sort is stable
+    int left = 0;
+    int right = runLength;
+    while (left < right) {
+      int mid = (left + right) >>> 1;
+      if (getTime(mid) <= minTimeAfterRun) {
+        left = mid + 1;
+      } else {
+        right = mid;
+      }
+    }
+    return left;
+  }
 
-    if (lo == hi) {
+  /**
+   * Sort rows after the sorted prefix, shared arrays of these rows are copied first. The rows are
+   * split into natural runs which are merged pairwise, so the cost is proportional to the disorder
+   * of the list instead of its size, and the sorting buffers only need to hold the shorter run of
+   * each merge.
+   */
+  protected void sortUnsortedSuffix() {
+    int lo = getSortedPrefixLength();
+    copySharedArrays(lo);
+    int hi = rowCount;
+    if (hi - lo < 2) {
       return;
     }
-    if (hi - lo <= SMALL_ARRAY_LENGTH) {
-      int initRunLen = countRunAndMakeAscending(lo, hi);
-      binarySort(lo, hi, lo + initRunLen);
-      return;
+
+    // find natural runs, runs shorter than SMALL_ARRAY_LENGTH are extended by binary sort
+    int[] runEnds = new int[8];
+    int runNum = 0;
+    int runStart = lo;
+    while (runStart < hi) {
+      int runLength = countRunAndMakeAscending(runStart, hi);
+      if (runLength < SMALL_ARRAY_LENGTH) {
+        int forcedLength = Math.min(hi - runStart, SMALL_ARRAY_LENGTH);
+        binarySort(runStart, runStart + forcedLength, runStart + runLength);
+        runLength = forcedLength;
+      }
+      if (runNum == runEnds.length) {
+        runEnds = Arrays.copyOf(runEnds, runNum * 2);
+      }
+      runStart += runLength;
+      runEnds[runNum++] = runStart;
+    }
+
+    // merge adjacent runs pairwise until there is only one run
+    while (runNum > 1) {
+      int mergedRunNum = 0;
+      int mergedRunStart = lo;
+      for (int i = 0; i < runNum; i += 2) {
+        if (i + 1 < runNum) {
+          merge(mergedRunStart, runEnds[i], runEnds[i + 1]);
+          runEnds[mergedRunNum++] = runEnds[i + 1];
+        } else {
+          runEnds[mergedRunNum++] = runEnds[i];
+        }
+        mergedRunStart = runEnds[mergedRunNum - 1];
+      }
+      runNum = mergedRunNum;
+    }
+  }
+
+  public void sort() {
+    if (!sorted) {
+      sortUnsortedSuffix();
+    }
+    clearSortedValue();
+    clearSortedTime();
+    sorted = true;
+  }
+
+  /**
+   * Make sure the sorting buffers can hold the given number of rows. The arrays for sorting are not
+   * included in write memory, so they are sized to the rows being merged instead of the list.
+   */
+  private void ensureSortBufferCapacity(int size) {
+    if (sortedTimestamps == null || sortedTimestamps.length * ARRAY_SIZE < size) {
+      sortedTimestamps =
+          (long[][]) PrimitiveArrayManager.createDataListsByType(TSDataType.INT64, size);
+      allocateSortedValues(size);
     }
-    int mid = (lo + hi) >>> 1;
-    sort(lo, mid);
-    sort(mid, hi);
-    merge(lo, mid, hi);
+  }
+
+  /** Allocate the sorting buffer of values to hold the given number of rows. */
+  protected abstract void allocateSortedValues(int size);
+
+  private long getSortedTime(int index) {
+    return sortedTimestamps[index / ARRAY_SIZE][index % ARRAY_SIZE];
   }
 
   protected int countRunAndMakeAscending(int lo, int hi) {
@@ -433,59 +650,74 @@ public abstract class TVList implements WALEntryValue {
       }
       setPivotTo(left);
     }
-    for (int i = lo; i < hi; i++) {
-      setToSorted(i, i);
-    }
   }
 
+  /**
+   * Merge two adjacent sorted runs [lo, mid) and [mid, hi) stably. Only the shorter run is copied
+   * to the sorting buffer, the merged rows are written back in place.
+   */
   protected void merge(int lo, int mid, int hi) {
-    // end of sorting buffer
-    int tmpIdx = 0;
+    // rows of the left run not greater than the first row of the right run are in place already
+    while (lo < mid && getTime(lo) <= getTime(mid)) {
+      lo++;
+    }
+    // rows of the right run not less than the last row of the left run are in place already
+    while (mid < hi && getTime(hi - 1) >= getTime(mid - 1)) {
+      hi--;
+    }
+    if (lo == mid || mid == hi) {
+      return;
+    }
+    if (mid - lo <= hi - mid) {
+      mergeLo(lo, mid, hi);
+    } else {
+      mergeHi(lo, mid, hi);
+    }
+  }
 
-    // start of unmerged parts of each sequence
-    int leftIdx = lo;
+  /** copy the left run to the sorting buffer and merge from the beginning */
+  private void mergeLo(int lo, int mid, int hi) {
+    int leftLength = mid - lo;
+    ensureSortBufferCapacity(leftLength);
+    for (int i = 0; i < leftLength; i++) {
+      setToSorted(lo + i, i);
+    }
+    int leftIdx = 0;
     int rightIdx = mid;
-
-    // copy the minimum elements to sorting buffer until one sequence is exhausted
-    int endSide = 0;
-    while (endSide == 0) {
-      if (compare(leftIdx, rightIdx) <= 0) {
-        setToSorted(leftIdx, lo + tmpIdx);
-        tmpIdx++;
-        leftIdx++;
-        if (leftIdx == mid) {
-          endSide = 1;
-        }
+    int dest = lo;
+    while (leftIdx < leftLength && rightIdx < hi) {
+      if (getSortedTime(leftIdx) <= getTime(rightIdx)) {
+        setFromSorted(leftIdx++, dest++);
       } else {
-        setToSorted(rightIdx, lo + tmpIdx);
-        tmpIdx++;
-        rightIdx++;
-        if (rightIdx == hi) {
-          endSide = 2;
-        }
+        set(rightIdx++, dest++);
       }
     }
+    // the remaining rows of the right run are in place already
+    while (leftIdx < leftLength) {
+      setFromSorted(leftIdx++, dest++);
+    }
+  }
 
-    // copy the remaining elements of another sequence
-    int start;
-    int end;
-    if (endSide == 1) {
-      start = rightIdx;
-      end = hi;
-    } else {
-      start = leftIdx;
-      end = mid;
+  /** copy the right run to the sorting buffer and merge from the end */
+  private void mergeHi(int lo, int mid, int hi) {
+    int rightLength = hi - mid;
+    ensureSortBufferCapacity(rightLength);
+    for (int i = 0; i < rightLength; i++) {
+      setToSorted(mid + i, i);
     }
-    for (; start < end; start++) {
-      setToSorted(start, lo + tmpIdx);
-      tmpIdx++;
+    int leftIdx = mid - 1;
+    int rightIdx = rightLength - 1;
+    int dest = hi - 1;
+    while (leftIdx >= lo && rightIdx >= 0) {
+      if (getTime(leftIdx) > getSortedTime(rightIdx)) {
+        set(leftIdx--, dest--);
+      } else {
+        setFromSorted(rightIdx--, dest--);
+      }
     }
-
-    // copy from sorting buffer to the original arrays so that they can be further sorted
-    // potential speed up: change the place of sorting buffer and origin data between merge
-    // iterations
-    for (int i = lo; i < hi; i++) {
-      setFromSorted(i, i);
+    // the remaining rows of the left run are in place already
+    while (rightIdx >= 0) {
+      setFromSorted(rightIdx--, dest--);
     }
   }
 
@@ -23,6 +23,8 @@ import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.fileSystem.SystemFileFactory;
 import org.apache.iotdb.db.wal.io.ILogWriter;
 import org.apache.iotdb.db.wal.io.WALWriter;
+import org.apache.iotdb.db.wal.utils.AdaptiveFsyncPolicy;
+import org.apache.iotdb.db.wal.utils.WALMetricsManager;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,13 +32,18 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntSupplier;
 
 public abstract class AbstractWALBuffer implements IWALBuffer {
   private static final Logger logger = LoggerFactory.getLogger(AbstractWALBuffer.class);
   private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
   /** use size limit to control WALEntry number in each file */
   protected static final long FILE_SIZE_THRESHOLD = config.getWalFileSizeThresholdInByte();
+  /** interval to check whether enough WALEntries have arrived when waiting before fsync */
+  private static final long FSYNC_WAIT_CHECK_INTERVAL_IN_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
 
   /** WALNode identifier of this buffer */
   protected final String identifier;
@@ -46,6 +53,12 @@ public abstract class AbstractWALBuffer implements IWALBuffer {
   protected final AtomicInteger currentWALFileVersion = new AtomicInteger();
   /** current wal file log writer */
   protected volatile ILogWriter currentWALFileWriter;
+  /** decides how long to wait for more WALEntries before each fsync */
+  protected final AdaptiveFsyncPolicy fsyncPolicy =
+      new AdaptiveFsyncPolicy(
+          config.isEnableAdaptiveFsyncWalDelay(), config.getFsyncWalDelayInMs());
+  /** number of written WALEntries, but not signals, whose flush listeners haven't been notified */
+  protected final AtomicInteger waitingWritersNum = new AtomicInteger();
 
   public AbstractWALBuffer(String identifier, String logDirectory) throws FileNotFoundException {
     this.identifier = identifier;
@@ -65,6 +78,50 @@ public abstract class AbstractWALBuffer implements IWALBuffer {
     return currentWALFileVersion.get();
   }
 
+  /**
+   * Notice: only called by syncBufferThread after the flush listeners of one batch are notified.
+   *
+   * @param batchSize number of fsynced WALEntries, signals are not counted
+   * @param fsyncCostInNanos latency of the fsync call
+   */
+  protected void onBatchFsynced(int batchSize, long fsyncCostInNanos) {
+    fsyncPolicy.onBatchFsynced(batchSize, fsyncCostInNanos);
+    WALMetricsManager.recordFsync(
+        identifier, batchSize, fsyncCostInNanos, waitingWritersNum.addAndGet(-batchSize));
+  }
+
+  /**
+   * For better fsync performance, wait a while to enlarge write batch. The wait ends early once the
+   * batch size expected by the fsync policy is reached.
+   *
+   * @param batchSize supplies the number of WALEntries that will be fsynced by the next batch
+   */
+  protected void waitForMoreWALEntries(IntSupplier batchSize) {
+    long delay = fsyncPolicy.getDelayInNanos();
+    if (delay <= 0) {
+      return;
+    }
+    int expectedBatchSize = fsyncPolicy.getExpectedBatchSize();
+    long deadline = System.nanoTime() + delay;
+    long remaining = delay;
+    while (remaining > 0 && batchSize.getAsInt() < expectedBatchSize) {
+      LockSupport.parkNanos(Math.min(remaining, FSYNC_WAIT_CHECK_INTERVAL_IN_NANOS));
+      if (Thread.currentThread().isInterrupted()) {
+        logger.warn("Interrupted when waiting a while to enlarge wal write batch.");
+        return;
+      }
+      remaining = deadline - System.nanoTime();
+    }
+  }
+
+  public AdaptiveFsyncPolicy getFsyncPolicy() {
+    return fsyncPolicy;
+  }
+
+  public int getWaitingWritersNum() {
+    return waitingWritersNum.get();
+  }
+
   /** Notice: only called by syncBufferThread and old log writer will be closed by this function. */
   protected void rollLogWriter() throws IOException {
     currentWALFileWriter.close();
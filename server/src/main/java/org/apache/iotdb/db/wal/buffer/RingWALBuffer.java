@@ -0,0 +1,529 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.wal.buffer;
+
+import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.commons.concurrent.ThreadName;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.utils.MmapUtil;
+import org.apache.iotdb.db.wal.exception.WALNodeClosedException;
+import org.apache.iotdb.db.wal.utils.listener.WALFlushListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This buffer lets writers serialize WALEntry directly into a pre-allocated off-heap ring, which is
+ * drained by a single sync thread. It's a multi-producer single-consumer ring:
+ *
+ * <ul>
+ *   <li>A writer claims the exact serialized size of its WALEntry by one atomic add on the claim
+ *       sequence, waits until the claimed range has been drained, and then serializes into it
+ *       concurrently with other writers.
+ *   <li>Serialized ranges are published in claim order, so the published sequence always ends at a
+ *       WALEntry boundary and the sync thread can drain everything published in one batch.
+ *   <li>The sync thread writes each batch to the log writer, calls fsync once and then notifies all
+ *       {@link WALFlushListener}s of the batch (group commit).
+ * </ul>
+ *
+ * <p>A WALEntry larger than the ring is streamed by its writer once all previous entries are
+ * published, publishing its serialized bytes chunk by chunk.
+ */
+public class RingWALBuffer extends AbstractWALBuffer {
+  private static final Logger logger = LoggerFactory.getLogger(RingWALBuffer.class);
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  /** busy spins before a waiting thread yields, and then parks */
+  private static final int SPIN_TRIES = 64;
+
+  private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  /** whether close method is called */
+  private volatile boolean isClosed = false;
+  /** capacity of the ring in bytes */
+  private final int ringCapacity = config.getWalBufferSize();
+  /** pre-allocated off-heap ring */
+  private final ByteBuffer ring;
+  /** end of the bytes claimed by writers */
+  private final AtomicLong claimSequence = new AtomicLong();
+  /** end of the bytes serialized by writers, only advanced by the writer of the next range */
+  private volatile long publishedSequence = 0;
+  /** end of the bytes written to the log writer, only advanced by syncBufferThread */
+  private volatile long consumedSequence = 0;
+  /** published WALEntries waiting for fsync, in publish order */
+  private final Queue<PublishedEntry> publishedEntries = new ConcurrentLinkedQueue<>();
+  /** single thread to drain the ring to disk */
+  private final ExecutorService syncBufferThread;
+
+  private volatile Thread syncThread;
+  private volatile boolean syncThreadParked = false;
+
+  public RingWALBuffer(String identifier, String logDirectory) throws FileNotFoundException {
+    super(identifier, logDirectory);
+    try {
+      ring = ByteBuffer.allocateDirect(ringCapacity);
+    } catch (OutOfMemoryError e) {
+      logger.error("Fail to allocate wal node-{}'s buffer because out of memory.", identifier, e);
+      close();
+      throw e;
+    }
+    syncBufferThread =
+        IoTDBThreadPoolFactory.newSingleThreadExecutor(
+            ThreadName.WAL_SYNC.getName() + "(node-" + identifier + ")");
+    syncBufferThread.submit(new SyncBufferTask());
+  }
+
+  @Override
+  public void write(WALEntry walEntry) {
+    if (isClosed) {
+      logger.error(
+          "Fail to write WALEntry into wal node-{} because this node is closed.", identifier);
+      walEntry.getWalFlushListener().fail(new WALNodeClosedException(identifier));
+      return;
+    }
+    if (walEntry.isSignal()) {
+      writeSignal((SignalWALEntry) walEntry);
+      return;
+    }
+
+    waitingWritersNum.incrementAndGet();
+    int size = walEntry.serializedSize();
+    long start = claimSequence.getAndAdd(size);
+    long end = start + size;
+    RingView view = new RingView(start, end, size > ringCapacity);
+    if (view.streaming) {
+      waitForPublishTurn(start);
+    } else {
+      waitForSpace(end);
+    }
+
+    Exception failure = null;
+    try {
+      walEntry.serialize(view);
+      if (view.position != end) {
+        throw new IOException(
+            String.format(
+                "WALEntry of type %s serialized %d bytes instead of %d bytes",
+                walEntry.getType(), view.position - start, size));
+      }
+    } catch (Exception e) {
+      logger.error(
+          "Fail to serialize WALEntry to wal node-{}'s buffer, discard it.", identifier, e);
+      failure = e;
+      // the claimed range must still be published to let the following writers move on
+      view.fillRemaining();
+    }
+
+    if (!view.streaming) {
+      // a streaming writer has got its turn before serializing
+      waitForPublishTurn(start);
+    }
+    publishedEntries.add(new PublishedEntry(end, walEntry.getWalFlushListener(), failure, false));
+    publishedSequence = end;
+    wakeUpSyncThread();
+  }
+
+  /** Signals occupy no bytes, they are published as a mark after all previously claimed bytes. */
+  private void writeSignal(SignalWALEntry signal) {
+    switch (signal.getSignalType()) {
+      case ROLL_WAL_LOG_WRITER_SIGNAL:
+        long start = claimSequence.get();
+        int tries = 0;
+        while (publishedSequence < start) {
+          backoff(tries++);
+        }
+        // the mark may be enqueued after some later entries, the sync thread rolls at the end of
+        // the entries enqueued before it
+        publishedEntries.add(new PublishedEntry(start, signal.getWalFlushListener(), null, true));
+        wakeUpSyncThread();
+        break;
+      case CLOSE_SIGNAL:
+      default:
+        break;
+    }
+  }
+
+  private void waitForSpace(long end) {
+    int tries = 0;
+    while (end - consumedSequence > ringCapacity) {
+      backoff(tries++);
+    }
+  }
+
+  private void waitForPublishTurn(long start) {
+    int tries = 0;
+    while (publishedSequence != start) {
+      backoff(tries++);
+    }
+  }
+
+  private static void backoff(int tries) {
+    if (tries < SPIN_TRIES) {
+      return;
+    }
+    if (tries < 2 * SPIN_TRIES) {
+      Thread.yield();
+    } else {
+      LockSupport.parkNanos(PARK_NANOS);
+    }
+  }
+
+  private void wakeUpSyncThread() {
+    if (syncThreadParked) {
+      LockSupport.unpark(syncThread);
+    }
+  }
+
+  private static class PublishedEntry {
+    /** end sequence of the WALEntry, or the sequence where the signal is published */
+    private final long end;
+
+    private final WALFlushListener listener;
+    /** not null iff the WALEntry fails to be serialized */
+    private final Exception failure;
+
+    private final boolean rollWALFileWriter;
+
+    private PublishedEntry(
+        long end, WALFlushListener listener, Exception failure, boolean rollWALFileWriter) {
+      this.end = end;
+      this.listener = listener;
+      this.failure = failure;
+      this.rollWALFileWriter = rollWALFileWriter;
+    }
+  }
+
+  // region view of producers
+  /**
+   * This view serializes one WALEntry into its claimed range [position, end) of the ring.
+   * Multi-byte values wrapping around the end of the ring are written byte by byte.
+   */
+  private class RingView implements IWALByteBufferView {
+    private final long end;
+    /** whether this WALEntry is larger than the ring and is streamed chunk by chunk */
+    private final boolean streaming;
+
+    private final ByteBuffer bulkView = ring.duplicate();
+    private long position;
+
+    private RingView(long start, long end, boolean streaming) {
+      this.position = start;
+      this.end = end;
+      this.streaming = streaming;
+    }
+
+    private int ensureSpace(int bytesNum) {
+      if (position + bytesNum > end) {
+        throw new BufferOverflowException();
+      }
+      if (streaming && position + bytesNum - consumedSequence > ringCapacity) {
+        // publish the serialized part to let the sync thread drain it
+        publishedSequence = position;
+        wakeUpSyncThread();
+        waitForSpace(position + bytesNum);
+      }
+      return (int) (position % ringCapacity);
+    }
+
+    private void putBytesAcrossEnd(long value, int bytesNum) {
+      for (int i = bytesNum - 1; i >= 0; i--) {
+        ring.put((int) (position++ % ringCapacity), (byte) (value >>> (i * Byte.SIZE)));
+      }
+    }
+
+    @Override
+    public void put(byte b) {
+      int index = ensureSpace(Byte.BYTES);
+      ring.put(index, b);
+      position++;
+    }
+
+    @Override
+    public void put(byte[] src) {
+      int offset = 0;
+      while (offset < src.length) {
+        int length = Math.min(src.length - offset, streaming ? ringCapacity : src.length);
+        int index = ensureSpace(length);
+        int firstPart = Math.min(length, ringCapacity - index);
+        bulkView.clear();
+        bulkView.position(index);
+        bulkView.put(src, offset, firstPart);
+        if (firstPart < length) {
+          bulkView.clear();
+          bulkView.put(src, offset + firstPart, length - firstPart);
+        }
+        position += length;
+        offset += length;
+      }
+    }
+
+    @Override
+    public void putChar(char value) {
+      int index = ensureSpace(Character.BYTES);
+      if (index + Character.BYTES <= ringCapacity) {
+        ring.putChar(index, value);
+        position += Character.BYTES;
+      } else {
+        putBytesAcrossEnd(value, Character.BYTES);
+      }
+    }
+
+    @Override
+    public void putShort(short value) {
+      int index = ensureSpace(Short.BYTES);
+      if (index + Short.BYTES <= ringCapacity) {
+        ring.putShort(index, value);
+        position += Short.BYTES;
+      } else {
+        putBytesAcrossEnd(value, Short.BYTES);
+      }
+    }
+
+    @Override
+    public void putInt(int value) {
+      int index = ensureSpace(Integer.BYTES);
+      if (index + Integer.BYTES <= ringCapacity) {
+        ring.putInt(index, value);
+        position += Integer.BYTES;
+      } else {
+        putBytesAcrossEnd(value, Integer.BYTES);
+      }
+    }
+
+    @Override
+    public void putLong(long value) {
+      int index = ensureSpace(Long.BYTES);
+      if (index + Long.BYTES <= ringCapacity) {
+        ring.putLong(index, value);
+        position += Long.BYTES;
+      } else {
+        putBytesAcrossEnd(value, Long.BYTES);
+      }
+    }
+
+    @Override
+    public void putFloat(float value) {
+      putInt(Float.floatToIntBits(value));
+    }
+
+    @Override
+    public void putDouble(double value) {
+      putLong(Double.doubleToLongBits(value));
+    }
+
+    /** fill the rest of the claimed range with zeros after a serialization failure */
+    private void fillRemaining() {
+      while (position < end) {
+        int index = ensureSpace(Byte.BYTES);
+        ring.put(index, (byte) 0);
+        position++;
+      }
+    }
+  }
+  // endregion
+
+  // region Task of syncBufferThread
+  /** This task drains published bytes of the ring to disk and calls fsync for each batch. */
+  private class SyncBufferTask implements Runnable {
+    private final List<WALFlushListener> fsyncListeners = new ArrayList<>();
+    // number of WALEntries in fsyncListeners, the listeners of signals are not counted
+    private int batchSize = 0;
+    /** end of the last WALEntry written to the log writer */
+    private long syncedEntriesEnd = 0;
+
+    @Override
+    public void run() {
+      syncThread = Thread.currentThread();
+      while (!isClosed || !isAllWALEntriesConsumed()) {
+        if (!awaitPublished()) {
+          continue;
+        }
+        // for better fsync performance, wait a while to enlarge write batch
+        if (!isClosed) {
+          waitForMoreWALEntries(waitingWritersNum::get);
+        }
+        syncBatch();
+      }
+    }
+
+    /** @return true if there are published bytes or signals to sync */
+    private boolean awaitPublished() {
+      if (publishedSequence != consumedSequence || !publishedEntries.isEmpty()) {
+        return true;
+      }
+      syncThreadParked = true;
+      try {
+        // check again to avoid missing the wakeup of a writer
+        if (publishedSequence == consumedSequence && publishedEntries.isEmpty() && !isClosed) {
+          LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+      } finally {
+        syncThreadParked = false;
+      }
+      return publishedSequence != consumedSequence || !publishedEntries.isEmpty();
+    }
+
+    private void syncBatch() {
+      long consumed = consumedSequence;
+      long target = publishedSequence;
+      long entriesEnd = consumed;
+      boolean rollWALFileWriter = false;
+      PublishedEntry entry;
+      while ((entry = publishedEntries.peek()) != null && entry.end <= target) {
+        publishedEntries.poll();
+        if (entry.rollWALFileWriter) {
+          rollWALFileWriter = true;
+          fsyncListeners.add(entry.listener);
+          break;
+        }
+        entriesEnd = Math.max(entriesEnd, entry.end);
+        if (entry.failure != null) {
+          entry.listener.fail(entry.failure);
+          waitingWritersNum.decrementAndGet();
+        } else {
+          fsyncListeners.add(entry.listener);
+          batchSize++;
+        }
+      }
+      syncedEntriesEnd = Math.max(syncedEntriesEnd, entriesEnd);
+      // bytes after the roll mark go to the next wal file
+      long syncEnd = rollWALFileWriter ? entriesEnd : target;
+
+      // flush buffer to os
+      if (syncEnd > consumed) {
+        try {
+          int startIndex = (int) (consumed % ringCapacity);
+          int length = (int) (syncEnd - consumed);
+          int firstPart = Math.min(length, ringCapacity - startIndex);
+          currentWALFileWriter.write(slice(startIndex, firstPart));
+          if (firstPart < length) {
+            currentWALFileWriter.write(slice(0, length - firstPart));
+          }
+        } catch (Throwable e) {
+          logger.error(
+              "Fail to sync wal node-{}'s buffer, change system mode to read-only.", identifier, e);
+          config.setReadOnly(true);
+        } finally {
+          consumedSequence = syncEnd;
+        }
+      }
+
+      // force os cache to the storage device
+      if (!fsyncListeners.isEmpty()) {
+        long startTime = System.nanoTime();
+        try {
+          currentWALFileWriter.force();
+          for (WALFlushListener fsyncListener : fsyncListeners) {
+            fsyncListener.succeed();
+          }
+        } catch (IOException e) {
+          logger.error(
+              "Fail to fsync wal node-{}'s log writer, change system mode to read-only.",
+              identifier,
+              e);
+          for (WALFlushListener fsyncListener : fsyncListeners) {
+            fsyncListener.fail(e);
+          }
+          config.setReadOnly(true);
+        }
+        onBatchFsynced(batchSize, System.nanoTime() - startTime);
+        fsyncListeners.clear();
+        batchSize = 0;
+      }
+
+      // try to roll log writer, a streamed WALEntry may be only partly written and must not be
+      // split into two wal files
+      try {
+        if (rollWALFileWriter
+            || (consumedSequence == syncedEntriesEnd
+                && currentWALFileWriter.size() >= FILE_SIZE_THRESHOLD)) {
+          rollLogWriter();
+        }
+      } catch (IOException e) {
+        logger.error(
+            "Fail to roll wal node-{}'s log writer, change system mode to read-only.",
+            identifier,
+            e);
+        config.setReadOnly(true);
+      }
+    }
+
+    /** @return a buffer whose position is the length of the slice, as the log writer expects */
+    private ByteBuffer slice(int index, int length) {
+      ByteBuffer slice = ring.duplicate();
+      slice.limit(index + length);
+      slice.position(index);
+      slice = slice.slice();
+      slice.position(length);
+      return slice;
+    }
+  }
+  // endregion
+
+  @Override
+  public void close() {
+    isClosed = true;
+    // first waiting sync task finished, then release all resources
+    if (syncBufferThread != null) {
+      wakeUpSyncThread();
+      syncBufferThread.shutdown();
+      try {
+        if (!syncBufferThread.awaitTermination(30, TimeUnit.SECONDS)) {
+          logger.warn(
+              "Waiting thread {} to be terminated is timeout", ThreadName.WAL_SYNC.getName());
+        }
+      } catch (InterruptedException e) {
+        logger.warn("Thread {} still doesn't exit after 30s", ThreadName.WAL_SYNC.getName());
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    if (currentWALFileWriter != null) {
+      try {
+        currentWALFileWriter.close();
+      } catch (IOException e) {
+        logger.error("Fail to close wal node-{}'s log writer.", identifier, e);
+      }
+    }
+
+    if (ring != null) {
+      MmapUtil.clean((MappedByteBuffer) ring);
+    }
+  }
+
+  @Override
+  public boolean isAllWALEntriesConsumed() {
+    return consumedSequence == claimSequence.get() && publishedEntries.isEmpty();
+  }
+}
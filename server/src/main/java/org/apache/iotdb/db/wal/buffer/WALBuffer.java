@@ -52,7 +52,6 @@ public class WALBuffer extends AbstractWALBuffer {
   private static final Logger logger = LoggerFactory.getLogger(WALBuffer.class);
   private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
   private static final int WAL_BUFFER_SIZE = config.getWalBufferSize();
-  private static final long FSYNC_WAL_DELAY_IN_MS = config.getFsyncWalDelayInMs();
   private static final int QUEUE_CAPACITY = config.getWalBufferQueueCapacity();
 
   /** whether close method is called */
@@ -109,10 +108,17 @@ public class WALBuffer extends AbstractWALBuffer {
       walEntry.getWalFlushListener().fail(new WALNodeClosedException(identifier));
       return;
     }
-    // just add this WALEntry to queue
+    // just add this WALEntry to queue, only the writes of WALEntries are counted, not signals
+    boolean isSignal = walEntry.isSignal();
     try {
+      if (!isSignal) {
+        waitingWritersNum.incrementAndGet();
+      }
       walEntries.put(walEntry);
     } catch (InterruptedException e) {
+      if (!isSignal) {
+        waitingWritersNum.decrementAndGet();
+      }
       logger.warn("Interrupted when waiting for adding WALEntry to buffer.");
       Thread.currentThread().interrupt();
     }
@@ -150,6 +156,7 @@ public class WALBuffer extends AbstractWALBuffer {
             logger.error(
                 "Fail to serialize WALEntry to wal node-{}'s buffer, discard it.", identifier, e);
             firstWALEntry.getWalFlushListener().fail(e);
+            waitingWritersNum.decrementAndGet();
           }
         } else {
           switch (((SignalWALEntry) firstWALEntry).getSignalType()) {
@@ -168,15 +175,9 @@ public class WALBuffer extends AbstractWALBuffer {
         Thread.currentThread().interrupt();
       }
 
-      // for better fsync performance, sleep a while to enlarge write batch
-      if (FSYNC_WAL_DELAY_IN_MS > 0) {
-        try {
-          Thread.sleep(FSYNC_WAL_DELAY_IN_MS);
-        } catch (InterruptedException e) {
-          logger.warn("Interrupted when sleeping a while to enlarge wal write batch.");
-          Thread.currentThread().interrupt();
-        }
-      }
+      // for better fsync performance, wait a while to enlarge write batch
+      int firstBatchSize = batchSize;
+      waitForMoreWALEntries(() -> firstBatchSize + walEntries.size());
 
       // try to get more WALEntries with non-blocking interface to enlarge write batch
       while (walEntries.peek() != null && batchSize < QUEUE_CAPACITY) {
@@ -188,6 +189,7 @@ public class WALBuffer extends AbstractWALBuffer {
             logger.error(
                 "Fail to serialize WALEntry to wal node-{}'s buffer, discard it.", identifier, e);
             walEntry.getWalFlushListener().fail(e);
+            waitingWritersNum.decrementAndGet();
             continue;
           }
           ++batchSize;
@@ -208,7 +210,7 @@ public class WALBuffer extends AbstractWALBuffer {
 
       // call fsync at last and set fsyncListeners
       if (batchSize > 0 || rollWAlFileWriter) {
-        fsyncWorkingBuffer(fsyncListeners, rollWAlFileWriter);
+        fsyncWorkingBuffer(fsyncListeners, batchSize, rollWAlFileWriter);
       }
     }
   }
@@ -296,9 +298,9 @@ public class WALBuffer extends AbstractWALBuffer {
 
   /** Notice: this method only called at the last of SerializeTask. */
   private void fsyncWorkingBuffer(
-      List<WALFlushListener> fsyncListeners, boolean rollWAlFileWriter) {
+      List<WALFlushListener> fsyncListeners, int batchSize, boolean rollWAlFileWriter) {
     switchWorkingBufferToFlushing();
-    syncBufferThread.submit(new SyncBufferTask(true, rollWAlFileWriter, fsyncListeners));
+    syncBufferThread.submit(new SyncBufferTask(true, rollWAlFileWriter, fsyncListeners, batchSize));
   }
 
   // only called by serializeThread
@@ -329,16 +331,22 @@ public class WALBuffer extends AbstractWALBuffer {
     private final boolean force;
     private final boolean rollWAlFileWriter;
     private final List<WALFlushListener> fsyncListeners;
+    // number of WALEntries in this batch, the listeners of signals are not counted
+    private final int batchSize;
 
     public SyncBufferTask(boolean force) {
-      this(force, false, Collections.emptyList());
+      this(force, false, Collections.emptyList(), 0);
     }
 
     public SyncBufferTask(
-        boolean force, boolean rollWAlFileWriter, List<WALFlushListener> fsyncListeners) {
+        boolean force,
+        boolean rollWAlFileWriter,
+        List<WALFlushListener> fsyncListeners,
+        int batchSize) {
       this.force = force;
       this.rollWAlFileWriter = rollWAlFileWriter;
       this.fsyncListeners = fsyncListeners == null ? Collections.emptyList() : fsyncListeners;
+      this.batchSize = batchSize;
     }
 
     @Override
@@ -356,8 +364,12 @@ public class WALBuffer extends AbstractWALBuffer {
 
       // force os cache to the storage device
       if (force) {
+        long startTime = System.nanoTime();
         try {
           currentWALFileWriter.force();
+          for (WALFlushListener fsyncListener : fsyncListeners) {
+            fsyncListener.succeed();
+          }
         } catch (IOException e) {
           logger.error(
               "Fail to fsync wal node-{}'s log writer, change system mode to read-only.",
@@ -368,9 +380,7 @@ public class WALBuffer extends AbstractWALBuffer {
           }
           config.setReadOnly(true);
         }
-        for (WALFlushListener fsyncListener : fsyncListeners) {
-          fsyncListener.succeed();
-        }
+        onBatchFsynced(batchSize, System.nanoTime() - startTime);
       }
 
       // try to roll log writer
@@ -112,6 +112,14 @@ public class WALEntry implements SerializedSize {
 
   @Override
   public int serializedSize() {
+    // only rows in the range of tabletInfo are serialized
+    if (tabletInfo != null && type == WALEntryType.INSERT_TABLET_PLAN) {
+      return FIXED_SERIALIZED_SIZE
+          + ((InsertTabletPlan) value).serializedSize(tabletInfo.tabletStart, tabletInfo.tabletEnd);
+    } else if (tabletInfo != null && type == WALEntryType.INSERT_TABLET_NODE) {
+      return FIXED_SERIALIZED_SIZE
+          + ((InsertTabletNode) value).serializedSize(tabletInfo.tabletStart, tabletInfo.tabletEnd);
+    }
     return FIXED_SERIALIZED_SIZE + value.serializedSize();
   }
 
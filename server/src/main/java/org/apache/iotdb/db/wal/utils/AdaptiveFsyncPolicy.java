@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.wal.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This policy decides how long a wal buffer waits for more WALEntries before calling fsync (group
+ * commit). When adaptive, the delay is sized from the observed arrival rate of WALEntries and the
+ * observed fsync latency of the device:
+ *
+ * <ul>
+ *   <li>If less than one WALEntry is expected to arrive during one fsync, waiting only adds
+ *       latency, so fsync is called immediately.
+ *   <li>Otherwise, the buffer waits about one fsync latency, which absorbs the writers that would
+ *       otherwise queue behind the running fsync, until the expected batch size is reached.
+ * </ul>
+ *
+ * The delay never exceeds the configured fsync delay, which bounds the extra write latency in
+ * {@link WALMode#SYNC}. If not adaptive, the configured fsync delay is always used.
+ *
+ * <p>Notice: {@link #onBatchFsynced} should be called by one thread only.
+ */
+public class AdaptiveFsyncPolicy {
+  /** weight of the latest observation in the moving averages */
+  private static final double ALPHA = 0.2;
+
+  private final boolean adaptive;
+  private final long maxDelayInNanos;
+
+  /** moving average of fsync latency */
+  private volatile double avgFsyncCostInNanos = 0;
+  /** moving average of WALEntries arriving per nanosecond */
+  private volatile double avgArrivalRate = 0;
+
+  private long lastBatchFsyncedTime = System.nanoTime();
+
+  public AdaptiveFsyncPolicy(boolean adaptive, long maxDelayInMs) {
+    this.adaptive = adaptive;
+    this.maxDelayInNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayInMs));
+  }
+
+  /** @return how long to wait for more WALEntries before calling fsync */
+  public long getDelayInNanos() {
+    if (!adaptive) {
+      return maxDelayInNanos;
+    }
+    double fsyncCost = avgFsyncCostInNanos;
+    if (avgArrivalRate * fsyncCost < 1) {
+      return 0;
+    }
+    return Math.min(maxDelayInNanos, (long) fsyncCost);
+  }
+
+  /** @return the number of WALEntries expected to arrive during the delay and the next fsync */
+  public int getExpectedBatchSize() {
+    if (!adaptive) {
+      return Integer.MAX_VALUE;
+    }
+    double expected = avgArrivalRate * (getDelayInNanos() + avgFsyncCostInNanos);
+    return (int) Math.max(1, Math.min(Integer.MAX_VALUE, Math.ceil(expected)));
+  }
+
+  /**
+   * Observe one fsync batch.
+   *
+   * @param batchSize number of WALEntries fsynced in this batch
+   * @param fsyncCostInNanos latency of the fsync call
+   */
+  public void onBatchFsynced(int batchSize, long fsyncCostInNanos) {
+    long now = System.nanoTime();
+    long interval = Math.max(1, now - lastBatchFsyncedTime);
+    lastBatchFsyncedTime = now;
+    avgFsyncCostInNanos = movingAverage(avgFsyncCostInNanos, fsyncCostInNanos);
+    avgArrivalRate = movingAverage(avgArrivalRate, (double) batchSize / interval);
+  }
+
+  private static double movingAverage(double average, double observation) {
+    return average == 0 ? observation : (1 - ALPHA) * average + ALPHA * observation;
+  }
+
+  public double getAvgFsyncCostInNanos() {
+    return avgFsyncCostInNanos;
+  }
+
+  public double getAvgArrivalRate() {
+    return avgArrivalRate;
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.wal.utils;
+
+import org.apache.iotdb.db.service.metrics.Metric;
+import org.apache.iotdb.db.service.metrics.MetricsService;
+import org.apache.iotdb.db.service.metrics.Tag;
+import org.apache.iotdb.metrics.config.MetricConfigDescriptor;
+import org.apache.iotdb.metrics.utils.MetricLevel;
+
+import java.util.concurrent.TimeUnit;
+
+/** This class records the group commit metrics of each wal node. */
+public class WALMetricsManager {
+
+  private WALMetricsManager() {}
+
+  /**
+   * Record one fsync batch of a wal node.
+   *
+   * @param identifier wal node identifier
+   * @param batchSize number of WALEntries fsynced in this batch
+   * @param fsyncCostInNanos latency of the fsync call
+   * @param waitingWritersNum number of writes still waiting for their WALEntries to be fsynced
+   */
+  public static void recordFsync(
+      String identifier, int batchSize, long fsyncCostInNanos, int waitingWritersNum) {
+    if (!MetricConfigDescriptor.getInstance().getMetricConfig().getEnableMetric()) {
+      return;
+    }
+    String node = "wal_node-" + identifier;
+    MetricsService.getInstance()
+        .getMetricManager()
+        .histogram(
+            batchSize,
+            Metric.WAL_BATCH_SIZE.toString(),
+            MetricLevel.IMPORTANT,
+            Tag.NAME.toString(),
+            node);
+    MetricsService.getInstance()
+        .getMetricManager()
+        .timer(
+            fsyncCostInNanos,
+            TimeUnit.NANOSECONDS,
+            Metric.COST_TASK.toString(),
+            MetricLevel.IMPORTANT,
+            Tag.NAME.toString(),
+            "wal_fsync",
+            Tag.TYPE.toString(),
+            node);
+    MetricsService.getInstance()
+        .getMetricManager()
+        .getOrCreateGauge(
+            Metric.QUEUE.toString(),
+            MetricLevel.IMPORTANT,
+            Tag.NAME.toString(),
+            node,
+            Tag.STATUS.toString(),
+            "waiting")
+        .set(waitingWritersNum);
+  }
+}
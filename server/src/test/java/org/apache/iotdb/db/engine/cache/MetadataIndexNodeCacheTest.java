@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.cache;
+
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.query.control.FileReaderManager;
+import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
+import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
+import org.apache.iotdb.tsfile.file.metadata.MetadataIndexEntry;
+import org.apache.iotdb.tsfile.file.metadata.MetadataIndexNode;
+import org.apache.iotdb.tsfile.file.metadata.TimeseriesMetadata;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.fileSystem.FSFactoryProducer;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.write.TsFileWriter;
+import org.apache.iotdb.tsfile.write.record.TSRecord;
+import org.apache.iotdb.tsfile.write.record.datapoint.LongDataPoint;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+public class MetadataIndexNodeCacheTest {
+
+  private final TSFileConfig tsFileConfig = TSFileDescriptor.getInstance().getConfig();
+  private final String filePath =
+      "target"
+          .concat(File.separator)
+          .concat("data")
+          .concat(File.separator)
+          .concat("MetadataIndexNodeCacheTest.tsfile");
+  private final int deviceNum = 10;
+  private final int sensorNum = 10;
+  private int maxDegreeOfIndexNode;
+  private MetadataIndexNodeCache metadataIndexNodeCache;
+
+  @Before
+  public void setUp() throws Exception {
+    // a small degree makes the index have internal device and measurement nodes
+    maxDegreeOfIndexNode = tsFileConfig.getMaxDegreeOfIndexNode();
+    tsFileConfig.setMaxDegreeOfIndexNode(3);
+    createTsFile();
+    metadataIndexNodeCache = MetadataIndexNodeCache.getInstance();
+    metadataIndexNodeCache.clear();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    tsFileConfig.setMaxDegreeOfIndexNode(maxDegreeOfIndexNode);
+    metadataIndexNodeCache.clear();
+    FileReaderManager.getInstance().closeAndRemoveAllOpenedReaders();
+    FileUtils.forceDelete(new File(filePath));
+  }
+
+  @Test
+  public void testReadThroughCache() throws Exception {
+    TimeseriesMetadata[][] expected = new TimeseriesMetadata[deviceNum][sensorNum];
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(filePath)) {
+      for (int d = 0; d < deviceNum; d++) {
+        for (int s = 0; s < sensorNum; s++) {
+          expected[d][s] = reader.readTimeseriesMetadata(new Path("d" + d, "s" + s), false);
+        }
+      }
+    }
+
+    // the first reader fills the cache and the second one reads the nodes from it
+    for (int round = 0; round < 2; round++) {
+      try (TsFileSequenceReader reader = new TsFileSequenceReader(filePath)) {
+        reader.setMetadataIndexNodeCache(metadataIndexNodeCache);
+        for (int d = 0; d < deviceNum; d++) {
+          for (int s = 0; s < sensorNum; s++) {
+            TimeseriesMetadata timeseriesMetadata =
+                reader.readTimeseriesMetadata(new Path("d" + d, "s" + s), false);
+            Assert.assertEquals(
+                expected[d][s].getMeasurementId(), timeseriesMetadata.getMeasurementId());
+            Assert.assertEquals(
+                expected[d][s].getStatistics().toString(),
+                timeseriesMetadata.getStatistics().toString());
+          }
+        }
+        Assert.assertNull(reader.readTimeseriesMetadata(new Path("d0", "s" + sensorNum), true));
+      }
+    }
+    Assert.assertTrue(metadataIndexNodeCache.calculateMetadataIndexNodeHitRatio() > 0.5);
+  }
+
+  @Test
+  public void testCachedNode() throws Exception {
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(filePath)) {
+      reader.setMetadataIndexNodeCache(metadataIndexNodeCache);
+      MetadataIndexNode root = reader.readFileMetadata().getMetadataIndex();
+      MetadataIndexEntry firstEntry = root.getChildren().get(0);
+      long endOffset = root.getChildren().get(1).getOffset();
+      Assert.assertNull(metadataIndexNodeCache.get(filePath, firstEntry.getOffset()));
+
+      MetadataIndexNode node = reader.getMetadataIndexNode(firstEntry.getOffset(), endOffset);
+      Assert.assertSame(node, metadataIndexNodeCache.get(filePath, firstEntry.getOffset()));
+      Assert.assertSame(node, reader.getMetadataIndexNode(firstEntry.getOffset(), endOffset));
+
+      metadataIndexNodeCache.clear();
+      Assert.assertNull(metadataIndexNodeCache.get(filePath, firstEntry.getOffset()));
+    }
+  }
+
+  @Test
+  public void testDropOffsetsOfEvictedNodes() throws Exception {
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(filePath)) {
+      reader.setMetadataIndexNodeCache(metadataIndexNodeCache);
+      MetadataIndexNode root = reader.readFileMetadata().getMetadataIndex();
+      long firstOffset = root.getChildren().get(0).getOffset();
+      long secondOffset = root.getChildren().get(1).getOffset();
+      reader.getMetadataIndexNode(firstOffset, secondOffset);
+      long secondEndOffset =
+          root.getChildren().size() > 2
+              ? root.getChildren().get(2).getOffset()
+              : root.getEndOffset();
+      reader.getMetadataIndexNode(secondOffset, secondEndOffset);
+      Assert.assertEquals(1, metadataIndexNodeCache.getCachedFileNum());
+
+      // the file is dropped with its last node
+      metadataIndexNodeCache.evict(filePath, firstOffset);
+      Assert.assertNull(metadataIndexNodeCache.get(filePath, firstOffset));
+      Assert.assertEquals(1, metadataIndexNodeCache.getCachedFileNum());
+      metadataIndexNodeCache.evict(filePath, secondOffset);
+      Assert.assertEquals(0, metadataIndexNodeCache.getCachedFileNum());
+    }
+  }
+
+  @Test
+  public void testInvalidateWhenFileRemoved() throws Exception {
+    FileReaderManager manager = FileReaderManager.getInstance();
+    TsFileResource tsFileResource = new TsFileResource(new File(filePath));
+    for (boolean removeFile : new boolean[] {false, true}) {
+      manager.increaseFileReaderReference(tsFileResource, true);
+      TsFileSequenceReader reader = manager.get(filePath, true);
+      MetadataIndexNode root = reader.readFileMetadata().getMetadataIndex();
+      long firstOffset = root.getChildren().get(0).getOffset();
+      reader.readTimeseriesMetadata(new Path("d0", "s0"), false);
+      Assert.assertNotNull(metadataIndexNodeCache.get(filePath, firstOffset));
+
+      if (removeFile) {
+        // the nodes of a removed file are invalidated even if the file is still referenced
+        manager.closeFileAndRemoveReader(filePath);
+        Assert.assertNull(metadataIndexNodeCache.get(filePath, firstOffset));
+        reader.readTimeseriesMetadata(new Path("d0", "s0"), false);
+        Assert.assertNull(metadataIndexNodeCache.get(filePath, firstOffset));
+        manager.decreaseFileReaderReference(tsFileResource, true);
+      } else {
+        // the nodes are kept for the next queries after the idle reader is closed
+        manager.decreaseFileReaderReference(tsFileResource, true);
+        Assert.assertNotNull(metadataIndexNodeCache.get(filePath, firstOffset));
+      }
+    }
+  }
+
+  private void createTsFile() throws Exception {
+    File f = FSFactoryProducer.getFSFactory().getFile(filePath);
+    if (!f.getParentFile().exists()) {
+      Assert.assertTrue(f.getParentFile().mkdirs());
+    }
+    try (TsFileWriter tsFileWriter = new TsFileWriter(f)) {
+      for (int d = 0; d < deviceNum; d++) {
+        for (int s = 0; s < sensorNum; s++) {
+          tsFileWriter.registerTimeseries(
+              new Path("d" + d), new MeasurementSchema("s" + s, TSDataType.INT64, TSEncoding.RLE));
+        }
+      }
+      for (long time = 0; time < 100; time++) {
+        for (int d = 0; d < deviceNum; d++) {
+          TSRecord record = new TSRecord(time, "d" + d);
+          for (int s = 0; s < sensorNum; s++) {
+            record.addTuple(new LongDataPoint("s" + s, time * s));
+          }
+          tsFileWriter.write(record);
+        }
+      }
+    }
+  }
+}
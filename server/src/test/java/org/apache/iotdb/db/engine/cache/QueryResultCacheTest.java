@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.cache;
+
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.qp.Planner;
+import org.apache.iotdb.db.qp.executor.IPlanExecutor;
+import org.apache.iotdb.db.qp.executor.PlanExecutor;
+import org.apache.iotdb.db.qp.physical.crud.QueryPlan;
+import org.apache.iotdb.db.query.context.QueryContext;
+import org.apache.iotdb.db.query.control.QueryResourceManager;
+import org.apache.iotdb.db.service.IoTDB;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QueryResultCacheTest {
+
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private static final String AGGREGATION_SQL =
+      "select count(s0), sum(s0), first_value(s0), last_value(s0), max_value(s0) "
+          + "from root.vehicle.d0 where time >= 0";
+  private static final String RANGE_AGGREGATION_SQL =
+      "select count(s0), sum(s0), first_value(s0), last_value(s0), max_value(s0) "
+          + "from root.vehicle.d0 where time >= 0 and time <= 10";
+
+  private final IPlanExecutor queryExecutor = new PlanExecutor();
+  private final Planner processor = new Planner();
+  private boolean enableQueryResultCache;
+
+  static {
+    IoTDB.configManager.init();
+  }
+
+  public QueryResultCacheTest() throws Exception {}
+
+  @Before
+  public void setUp() throws Exception {
+    enableQueryResultCache = config.isEnableQueryResultCache();
+    config.setEnableQueryResultCache(true);
+    EnvironmentUtils.envSetUp();
+    QueryResultCache.getInstance().clear();
+    execute("SET STORAGE GROUP TO root.vehicle");
+    execute("CREATE TIMESERIES root.vehicle.d0.s0 WITH DATATYPE=INT32, ENCODING=RLE");
+    for (int i = 1; i <= 10; i++) {
+      execute(String.format("insert into root.vehicle.d0(timestamp,s0) values(%d,%d)", i, i));
+    }
+    execute("flush");
+    for (int i = 11; i <= 20; i++) {
+      execute(String.format("insert into root.vehicle.d0(timestamp,s0) values(%d,%d)", i, i));
+    }
+    execute("flush");
+    // the unsealed TsFile
+    execute("insert into root.vehicle.d0(timestamp,s0) values(21,21)");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    QueryResultCache.getInstance().clear();
+    EnvironmentUtils.cleanEnv();
+    config.setEnableQueryResultCache(enableQueryResultCache);
+  }
+
+  @Test
+  public void testRepeatedQuery() throws Exception {
+    long hitCount = QueryResultCache.getInstance().getHitCount();
+    assertEquals("0\t21\t231.0\t1\t21\t21", queryAggregation());
+    assertEquals(hitCount, QueryResultCache.getInstance().getHitCount());
+
+    assertEquals("0\t21\t231.0\t1\t21\t21", queryAggregation());
+    assertEquals(hitCount + 1, QueryResultCache.getInstance().getHitCount());
+
+    // only the unsealed TsFile is read again
+    execute("insert into root.vehicle.d0(timestamp,s0) values(22,22)");
+    assertEquals("0\t22\t253.0\t1\t22\t22", queryAggregation());
+    assertEquals(hitCount + 2, QueryResultCache.getInstance().getHitCount());
+  }
+
+  @Test
+  public void testInvalidation() throws Exception {
+    long hitCount = QueryResultCache.getInstance().getHitCount();
+    assertEquals("0\t21\t231.0\t1\t21\t21", queryAggregation());
+
+    // the deletion changes the sealed TsFiles
+    execute("delete from root.vehicle.d0.s0 where time <= 5");
+    assertEquals("0\t16\t216.0\t6\t21\t21", queryAggregation());
+    assertEquals(hitCount, QueryResultCache.getInstance().getHitCount());
+
+    // the flush seals the TsFile
+    execute("insert into root.vehicle.d0(timestamp,s0) values(22,22)");
+    execute("flush");
+    assertEquals("0\t17\t238.0\t6\t22\t22", queryAggregation());
+    assertEquals(hitCount, QueryResultCache.getInstance().getHitCount());
+
+    assertEquals("0\t17\t238.0\t6\t22\t22", queryAggregation());
+    assertEquals(hitCount + 1, QueryResultCache.getInstance().getHitCount());
+  }
+
+  @Test
+  public void testChangeOutsideTimeRange() throws Exception {
+    long hitCount = QueryResultCache.getInstance().getHitCount();
+    assertEquals("0\t10\t55.0\t1\t10\t10", queryAggregation(RANGE_AGGREGATION_SQL));
+
+    // the deletion does not overlap the time range of the cached results
+    execute("delete from root.vehicle.d0.s0 where time >= 15 and time <= 18");
+    assertEquals("0\t10\t55.0\t1\t10\t10", queryAggregation(RANGE_AGGREGATION_SQL));
+    assertEquals(hitCount + 1, QueryResultCache.getInstance().getHitCount());
+
+    // but this deletion does
+    execute("delete from root.vehicle.d0.s0 where time <= 5");
+    assertEquals("0\t5\t40.0\t6\t10\t10", queryAggregation(RANGE_AGGREGATION_SQL));
+    assertEquals(hitCount + 1, QueryResultCache.getInstance().getHitCount());
+  }
+
+  private void execute(String sql) throws Exception {
+    queryExecutor.processNonQuery(processor.parseSQLToPhysicalPlan(sql));
+  }
+
+  private String queryAggregation() throws Exception {
+    return queryAggregation(AGGREGATION_SQL);
+  }
+
+  private String queryAggregation(String sql) throws Exception {
+    // a new context, as the modifications are cached in the context
+    long queryId = QueryResourceManager.getInstance().assignQueryId(true);
+    try {
+      QueryPlan queryPlan = (QueryPlan) processor.parseSQLToPhysicalPlan(sql);
+      QueryDataSet dataSet = queryExecutor.processQuery(queryPlan, new QueryContext(queryId));
+      assertTrue(dataSet.hasNext());
+      String result = dataSet.next().toString();
+      assertFalse(dataSet.hasNext());
+      return result;
+    } finally {
+      QueryResourceManager.getInstance().endQuery(queryId);
+    }
+  }
+}
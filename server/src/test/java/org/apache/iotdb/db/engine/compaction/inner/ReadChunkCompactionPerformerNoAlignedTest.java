@@ -34,10 +34,18 @@ import org.apache.iotdb.db.metadata.path.MeasurementPath;
 import org.apache.iotdb.db.metadata.path.PartialPath;
 import org.apache.iotdb.db.service.IoTDB;
 import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
+import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.apache.iotdb.tsfile.file.metadata.PageIndex;
 import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
+import org.apache.iotdb.tsfile.read.common.BatchData;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.read.filter.TimeFilter;
+import org.apache.iotdb.tsfile.read.reader.chunk.ChunkReader;
 import org.apache.iotdb.tsfile.write.schema.IMeasurementSchema;
 import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
 
@@ -501,6 +509,184 @@ public class ReadChunkCompactionPerformerNoAlignedTest {
     }
   }
 
+  /**
+   * Generate multi-page chunks with page indexes that are merged by appending pages, and query the
+   * merged chunks through their page indexes.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testMergeChunkWithPageIndex() throws Exception {
+    long testTargetChunkPointNum = 1000L;
+    long originTargetChunkSize = IoTDBDescriptor.getInstance().getConfig().getTargetChunkSize();
+    long originTargetChunkPointNum =
+        IoTDBDescriptor.getInstance().getConfig().getTargetChunkPointNum();
+    IoTDBDescriptor.getInstance().getConfig().setTargetChunkSize(1024000);
+    IoTDBDescriptor.getInstance().getConfig().setTargetChunkPointNum(testTargetChunkPointNum);
+    long originChunkSizeLowerBound =
+        IoTDBDescriptor.getInstance().getConfig().getChunkSizeLowerBoundInCompaction();
+    IoTDBDescriptor.getInstance().getConfig().setChunkSizeLowerBoundInCompaction(1);
+    long originChunkPointNumLowerBound =
+        IoTDBDescriptor.getInstance().getConfig().getChunkPointNumLowerBoundInCompaction();
+    IoTDBDescriptor.getInstance().getConfig().setChunkPointNumLowerBoundInCompaction(1);
+    boolean originEnablePageIndex = TSFileDescriptor.getInstance().getConfig().isEnablePageIndex();
+    TSFileDescriptor.getInstance().getConfig().setEnablePageIndex(true);
+    try {
+      List<TsFileResource> sourceFiles = new ArrayList();
+      int fileNum = 6;
+      long pagePointNum = 100L;
+      for (int i = 0; i < fileNum; ++i) {
+        List<List<Long>> chunkPagePointsNum = new ArrayList<>();
+        List<Long> pagePointsNum = new ArrayList<>();
+        pagePointsNum.add(pagePointNum);
+        pagePointsNum.add(pagePointNum);
+        chunkPagePointsNum.add(pagePointsNum);
+        TsFileResource resource =
+            new TsFileResource(new File(SEQ_DIRS, String.format("%d-%d-0-0.tsfile", i + 1, i + 1)));
+        sourceFiles.add(resource);
+        CompactionFileGeneratorUtils.writeTsFile(
+            fullPathSet, chunkPagePointsNum, i * 2 * pagePointNum, resource);
+      }
+      Map<PartialPath, List<TimeValuePair>> originData =
+          CompactionCheckerUtils.getDataByQuery(paths, schemaList, sourceFiles, new ArrayList<>());
+      TsFileNameGenerator.TsFileName tsFileName =
+          TsFileNameGenerator.getTsFileName(sourceFiles.get(0).getTsFile().getName());
+      TsFileResource targetResource =
+          new TsFileResource(
+              new File(
+                  SEQ_DIRS,
+                  String.format(
+                      "%d-%d-%d-%d.tsfile",
+                      tsFileName.getTime(),
+                      tsFileName.getVersion(),
+                      tsFileName.getInnerCompactionCnt() + 1,
+                      tsFileName.getCrossCompactionCnt())));
+      new ReadChunkCompactionPerformer(sourceFiles, targetResource).perform();
+
+      try (TsFileSequenceReader reader = new TsFileSequenceReader(targetResource.getTsFilePath())) {
+        for (String fullPath : fullPathSet) {
+          List<ChunkMetadata> chunkMetadataList =
+              reader.getChunkMetadataList(new Path(fullPath, true));
+          // five chunks are merged into the first one, the last one is flushed as it is
+          Assert.assertEquals(2, chunkMetadataList.size());
+          for (ChunkMetadata chunkMetadata : chunkMetadataList) {
+            PageIndex pageIndex = chunkMetadata.getPageIndex();
+            Assert.assertNotNull(pageIndex);
+            Assert.assertEquals(
+                chunkMetadata.getNumOfPoints() / pagePointNum, pageIndex.getPageNum());
+            // only the last page of the chunk is read through the index
+            long endTime = chunkMetadata.getEndTime();
+            ChunkReader chunkReader =
+                new ChunkReader(chunkMetadata, reader, TimeFilter.gt(endTime - pagePointNum / 2));
+            Assert.assertEquals(1, chunkReader.loadPageReaderList().size());
+            long expectedTime = endTime - pagePointNum / 2 + 1;
+            while (chunkReader.hasNextSatisfiedPage()) {
+              BatchData batchData = chunkReader.nextPageData();
+              while (batchData.hasCurrent()) {
+                Assert.assertEquals(expectedTime, batchData.currentTime());
+                Assert.assertEquals(expectedTime, batchData.getLong());
+                expectedTime++;
+                batchData.next();
+              }
+            }
+            Assert.assertEquals(endTime + 1, expectedTime);
+          }
+        }
+      }
+      Map<PartialPath, List<TimeValuePair>> compactedData =
+          CompactionCheckerUtils.getDataByQuery(
+              paths, schemaList, Collections.singletonList(targetResource), new ArrayList<>());
+      CompactionCheckerUtils.validDataByValueList(originData, compactedData);
+    } finally {
+      IoTDBDescriptor.getInstance().getConfig().setTargetChunkSize(originTargetChunkSize);
+      IoTDBDescriptor.getInstance().getConfig().setTargetChunkPointNum(originTargetChunkPointNum);
+      IoTDBDescriptor.getInstance()
+          .getConfig()
+          .setChunkSizeLowerBoundInCompaction(originChunkSizeLowerBound);
+      IoTDBDescriptor.getInstance()
+          .getConfig()
+          .setChunkPointNumLowerBoundInCompaction(originChunkPointNumLowerBound);
+      TSFileDescriptor.getInstance().getConfig().setEnablePageIndex(originEnablePageIndex);
+    }
+  }
+
+  /**
+   * Generate files whose chunks are compressed with trained zstd dictionaries. Their chunks are
+   * deserialized instead of copied, and the chunks of the target file are compressed with
+   * dictionaries trained for it.
+   */
+  @Test
+  public void testZstdDictionary() throws Exception {
+    long originTargetChunkSize = IoTDBDescriptor.getInstance().getConfig().getTargetChunkSize();
+    long originTargetChunkPointNum =
+        IoTDBDescriptor.getInstance().getConfig().getTargetChunkPointNum();
+    IoTDBDescriptor.getInstance().getConfig().setTargetChunkSize(1024000);
+    IoTDBDescriptor.getInstance().getConfig().setTargetChunkPointNum(100000);
+    CompressionType originCompressor = TSFileDescriptor.getInstance().getConfig().getCompressor();
+    TSFileDescriptor.getInstance().getConfig().setCompressor(CompressionType.ZSTD.name());
+    int originZstdDictionarySize =
+        TSFileDescriptor.getInstance().getConfig().getZstdDictionarySize();
+    TSFileDescriptor.getInstance().getConfig().setZstdDictionarySize(256);
+    try {
+      List<TsFileResource> sourceFiles = new ArrayList();
+      int fileNum = 3;
+      int pageNum = 20;
+      long pagePointNum = 100L;
+      for (int i = 0; i < fileNum; ++i) {
+        List<List<Long>> chunkPagePointsNum = new ArrayList<>();
+        List<Long> pagePointsNum = new ArrayList<>();
+        for (int j = 0; j < pageNum; j++) {
+          pagePointsNum.add(pagePointNum);
+        }
+        chunkPagePointsNum.add(pagePointsNum);
+        TsFileResource resource =
+            new TsFileResource(new File(SEQ_DIRS, String.format("%d-%d-0-0.tsfile", i + 1, i + 1)));
+        sourceFiles.add(resource);
+        CompactionFileGeneratorUtils.writeTsFile(
+            fullPathSet, chunkPagePointsNum, i * pageNum * pagePointNum, resource);
+        // all the series have the same data, so they share one dictionary
+        try (TsFileSequenceReader reader = new TsFileSequenceReader(resource.getTsFilePath())) {
+          Assert.assertEquals(1, reader.getZstdDictionaries().size());
+        }
+      }
+      Map<PartialPath, List<TimeValuePair>> originData =
+          CompactionCheckerUtils.getDataByQuery(paths, schemaList, sourceFiles, new ArrayList<>());
+      TsFileNameGenerator.TsFileName tsFileName =
+          TsFileNameGenerator.getTsFileName(sourceFiles.get(0).getTsFile().getName());
+      TsFileResource targetResource =
+          new TsFileResource(
+              new File(
+                  SEQ_DIRS,
+                  String.format(
+                      "%d-%d-%d-%d.tsfile",
+                      tsFileName.getTime(),
+                      tsFileName.getVersion(),
+                      tsFileName.getInnerCompactionCnt() + 1,
+                      tsFileName.getCrossCompactionCnt())));
+      new ReadChunkCompactionPerformer(sourceFiles, targetResource).perform();
+
+      try (TsFileSequenceReader reader = new TsFileSequenceReader(targetResource.getTsFilePath())) {
+        Assert.assertEquals(1, reader.getZstdDictionaries().size());
+        for (String fullPath : fullPathSet) {
+          List<ChunkMetadata> chunkMetadataList =
+              reader.getChunkMetadataList(new Path(fullPath, true));
+          Assert.assertEquals(1, chunkMetadataList.size());
+          Assert.assertEquals(
+              fileNum * pageNum * pagePointNum, chunkMetadataList.get(0).getNumOfPoints());
+        }
+      }
+      Map<PartialPath, List<TimeValuePair>> compactedData =
+          CompactionCheckerUtils.getDataByQuery(
+              paths, schemaList, Collections.singletonList(targetResource), new ArrayList<>());
+      CompactionCheckerUtils.validDataByValueList(originData, compactedData);
+    } finally {
+      IoTDBDescriptor.getInstance().getConfig().setTargetChunkSize(originTargetChunkSize);
+      IoTDBDescriptor.getInstance().getConfig().setTargetChunkPointNum(originTargetChunkPointNum);
+      TSFileDescriptor.getInstance().getConfig().setCompressor(originCompressor.name());
+      TSFileDescriptor.getInstance().getConfig().setZstdDictionarySize(originZstdDictionarySize);
+    }
+  }
+
   /**
    * Generate chunk that size are less than lower bound, and they will be deserialized and written
    * into chunk writer. Then generate a middle size chunk, which will be deserialized and written
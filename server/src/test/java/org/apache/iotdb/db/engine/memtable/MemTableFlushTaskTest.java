@@ -18,24 +18,39 @@
  */
 package org.apache.iotdb.db.engine.memtable;
 
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.constant.TestConstant;
 import org.apache.iotdb.db.engine.MetadataManagerHelper;
 import org.apache.iotdb.db.engine.flush.MemTableFlushTask;
 import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.metadata.idtable.entry.DeviceIDFactory;
+import org.apache.iotdb.db.metadata.idtable.entry.IDeviceID;
+import org.apache.iotdb.db.metadata.path.PartialPath;
 import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.db.utils.datastructure.TVList;
+import org.apache.iotdb.db.wal.utils.WALByteBufferForTest;
 import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.fileSystem.FSFactoryProducer;
+import org.apache.iotdb.tsfile.read.reader.IPointReader;
 import org.apache.iotdb.tsfile.write.writer.RestorableTsFileIOWriter;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class MemTableFlushTaskTest {
@@ -158,4 +173,181 @@ public class MemTableFlushTaskTest {
     assertEquals(TSDataType.BOOLEAN, chunkMetaData.getDataType());
     assertEquals(endTime - startTime + 1, chunkMetaData.getNumOfPoints());
   }
+
+  @Test
+  public void testFlushMemTableWithMultipleEncodingThreads()
+      throws ExecutionException, InterruptedException, IllegalPathException {
+    int prevEncodingThreadNum =
+        IoTDBDescriptor.getInstance().getConfig().getEncodingThreadNumForFlushing();
+    IoTDBDescriptor.getInstance().getConfig().setEncodingThreadNumForFlushing(4);
+    try {
+      int deviceNum = 20;
+      for (int i = 0; i < deviceNum; i++) {
+        MemTableTestUtils.produceData(
+            memTable,
+            startTime,
+            endTime,
+            MemTableTestUtils.deviceId0 + i,
+            MemTableTestUtils.measurementId0,
+            MemTableTestUtils.dataType0);
+      }
+      MemTableFlushTask memTableFlushTask = new MemTableFlushTask(memTable, writer, storageGroup);
+      memTableFlushTask.syncFlushMemTable();
+      writer.makeMetadataVisible();
+
+      // chunk groups are written in the iteration order of the memtable
+      long lastOffset = -1;
+      for (IDeviceID deviceId : memTable.getMemTableMap().keySet()) {
+        List<ChunkMetadata> chunkMetadataList =
+            writer.getVisibleMetadataList(
+                deviceId.toStringID(),
+                MemTableTestUtils.measurementId0,
+                MemTableTestUtils.dataType0);
+        assertEquals(1, chunkMetadataList.size());
+        ChunkMetadata chunkMetaData = chunkMetadataList.get(0);
+        assertEquals(startTime, chunkMetaData.getStartTime());
+        assertEquals(endTime, chunkMetaData.getEndTime());
+        assertEquals(endTime - startTime + 1, chunkMetaData.getNumOfPoints());
+        assertTrue(chunkMetaData.getOffsetOfChunkHeader() > lastOffset);
+        lastOffset = chunkMetaData.getOffsetOfChunkHeader();
+      }
+    } finally {
+      IoTDBDescriptor.getInstance()
+          .getConfig()
+          .setEncodingThreadNumForFlushing(prevEncodingThreadNum);
+    }
+  }
+
+  @Test
+  public void testFlushMemTableWithSpilledSeries()
+      throws ExecutionException, InterruptedException, IllegalPathException, IOException {
+    MemTableTestUtils.produceData(
+        memTable,
+        51,
+        endTime,
+        MemTableTestUtils.deviceId0,
+        MemTableTestUtils.measurementId0,
+        MemTableTestUtils.dataType0);
+    File spillFile = FSFactoryProducer.getFSFactory().getFile(filePath + ".0.spill");
+    assertTrue(memTable.spill(spillFile, Long.MAX_VALUE) > 0);
+    assertTrue(memTable.getSpilledSize() > 0);
+    MemTableTestUtils.produceData(
+        memTable,
+        startTime,
+        51,
+        MemTableTestUtils.deviceId0,
+        MemTableTestUtils.measurementId0,
+        MemTableTestUtils.dataType0);
+
+    IWritableMemChunk memChunk =
+        memTable
+            .getMemTableMap()
+            .get(
+                DeviceIDFactory.getInstance()
+                    .getDeviceID(new PartialPath(MemTableTestUtils.deviceId0)))
+            .getMemChunkMap()
+            .get(MemTableTestUtils.measurementId0);
+    assertEquals(endTime - startTime + 2, memChunk.count());
+    assertEquals(startTime, memChunk.getFirstPoint());
+    assertEquals(endTime, memChunk.getLastPoint());
+    memChunk.delete(60, 70);
+    // the point at 51 is in both the spilled run and memory
+    SpilledMemChunk spilledMemChunk = ((WritableMemChunk) memChunk).getSpilledMemChunkForQuery();
+
+    // a whole sorted list can also be taken, the runs are merged into it
+    TVList mergedList = memChunk.getSortedTvListForQuery();
+    assertEquals(endTime - startTime + 1 - 11, mergedList.rowCount());
+    for (int i = 1; i < mergedList.rowCount(); i++) {
+      assertTrue(mergedList.getTime(i - 1) < mergedList.getTime(i));
+    }
+    assertEquals(endTime, mergedList.getTime(mergedList.rowCount() - 1));
+
+    // the wal keeps every live row, including the point at 51 twice
+    ByteBuffer walBuffer = ByteBuffer.allocate(memChunk.serializedSize());
+    memChunk.serializeToWAL(new WALByteBufferForTest(walBuffer));
+    assertEquals(0, walBuffer.remaining());
+    WritableMemChunk recoveredChunk =
+        WritableMemChunk.deserialize(
+            new DataInputStream(new ByteArrayInputStream(walBuffer.array())));
+    assertEquals(endTime - startTime + 2 - 11, recoveredChunk.count());
+
+    MemTableFlushTask memTableFlushTask = new MemTableFlushTask(memTable, writer, storageGroup);
+    memTableFlushTask.syncFlushMemTable();
+    writer.makeMetadataVisible();
+    List<ChunkMetadata> chunkMetadataList =
+        writer.getVisibleMetadataList(
+            MemTableTestUtils.deviceId0,
+            MemTableTestUtils.measurementId0,
+            MemTableTestUtils.dataType0);
+    assertEquals(1, chunkMetadataList.size());
+    ChunkMetadata chunkMetaData = chunkMetadataList.get(0);
+    assertEquals(startTime, chunkMetaData.getStartTime());
+    assertEquals(endTime, chunkMetaData.getEndTime());
+    assertEquals(endTime - startTime + 1 - 11, chunkMetaData.getNumOfPoints());
+
+    memTable.release();
+    // the file is kept for the query taken before the release
+    assertTrue(spillFile.exists());
+
+    // a query taken before the release still reads the runs
+    IPointReader reader = spilledMemChunk.getIterator(0, TSEncoding.PLAIN, Collections.emptyList());
+    long expectedTime = startTime;
+    while (reader.hasNextTimeValuePair()) {
+      if (expectedTime == 60) {
+        expectedTime = 71;
+      }
+      assertEquals(expectedTime++, reader.nextTimeValuePair().getTimestamp());
+    }
+    assertEquals(endTime + 1, expectedTime);
+
+    // the file is deleted when the last query releases it
+    spilledMemChunk.release();
+    assertFalse(spillFile.exists());
+  }
+
+  @Test
+  public void testWriteWhileSpilling() throws IllegalPathException, IOException {
+    MemTableTestUtils.produceData(
+        memTable,
+        51,
+        endTime,
+        MemTableTestUtils.deviceId0,
+        MemTableTestUtils.measurementId0,
+        MemTableTestUtils.dataType0);
+    File spillFile = FSFactoryProducer.getFSFactory().getFile(filePath + ".0.spill");
+    MemTableSpill spill = memTable.prepareSpill(spillFile, Long.MAX_VALUE);
+    // written while the frozen rows are being spilled
+    MemTableTestUtils.produceData(
+        memTable,
+        startTime,
+        51,
+        MemTableTestUtils.deviceId0,
+        MemTableTestUtils.measurementId0,
+        MemTableTestUtils.dataType0);
+    spill.write();
+    assertTrue(spill.commit() > 0);
+
+    WritableMemChunk memChunk =
+        (WritableMemChunk)
+            memTable
+                .getMemTableMap()
+                .get(
+                    DeviceIDFactory.getInstance()
+                        .getDeviceID(new PartialPath(MemTableTestUtils.deviceId0)))
+                .getMemChunkMap()
+                .get(MemTableTestUtils.measurementId0);
+    assertTrue(memChunk.hasSpilledRuns());
+    assertEquals(51, memChunk.getTVList().rowCount());
+    assertEquals(endTime - startTime + 2, memChunk.count());
+    assertEquals(startTime, memChunk.getFirstPoint());
+
+    // the rows in memory are moved by the deletion, so that the spill is dropped
+    spill = memTable.prepareSpill(spillFile, Long.MAX_VALUE);
+    memChunk.delete(10, 19);
+    spill.write();
+    assertEquals(0, spill.commit());
+    assertEquals(41, memChunk.getTVList().rowCount());
+    assertEquals(endTime - startTime + 2 - 10, memChunk.count());
+    memTable.release();
+  }
 }
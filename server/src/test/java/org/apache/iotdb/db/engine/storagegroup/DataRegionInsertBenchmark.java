@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.storagegroup;
+
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.constant.TestConstant;
+import org.apache.iotdb.db.engine.flush.TsFileFlushPolicy;
+import org.apache.iotdb.db.metadata.mnode.IMeasurementMNode;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.db.metadata.path.PartialPath;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+
+import org.junit.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bench inserting tablets of different devices into one data region with an increasing number of
+ * threads, once with the exclusive insert lock and once with lock striping, to show how the insert
+ * throughput scales with the number of cores.
+ */
+public class DataRegionInsertBenchmark {
+
+  private static final Logger logger = LoggerFactory.getLogger(DataRegionInsertBenchmark.class);
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+
+  private static int numOfDevicePerWorker = 10;
+  private static int numOfMeasurement = 10;
+  private static int numOfTabletPerDevice = 100;
+  private static int tabletRowNum = 100;
+
+  private static String storageGroup = "root.bench";
+  private static String systemDir = TestConstant.OUTPUT_DATA_DIR.concat("info");
+  private static String[] measurements = new String[numOfMeasurement];
+  private static IMeasurementMNode[] measurementMNodes = new IMeasurementMNode[numOfMeasurement];
+
+  static {
+    for (int i = 0; i < numOfMeasurement; i++) {
+      measurements[i] = "s" + i;
+      measurementMNodes[i] =
+          MeasurementMNode.getMeasurementMNode(
+              null,
+              measurements[i],
+              new MeasurementSchema(measurements[i], TSDataType.INT64, TSEncoding.PLAIN),
+              null);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    int maxWorker = Runtime.getRuntime().availableProcessors();
+    int prevInsertLockStripeNum = config.getInsertLockStripeNum();
+    try {
+      for (int stripeNum : new int[] {0, 4 * maxWorker}) {
+        config.setInsertLockStripeNum(stripeNum);
+        for (int numOfWorker = 1; numOfWorker <= maxWorker; numOfWorker *= 2) {
+          bench(numOfWorker, stripeNum);
+        }
+      }
+    } finally {
+      config.setInsertLockStripeNum(prevInsertLockStripeNum);
+    }
+  }
+
+  private static void bench(int numOfWorker, int stripeNum) throws Exception {
+    EnvironmentUtils.envSetUp();
+    DataRegion dataRegion =
+        new DataRegion(systemDir, "0", new TsFileFlushPolicy.DirectFlushPolicy(), storageGroup);
+    CountDownLatch latch = new CountDownLatch(numOfWorker);
+    AtomicReference<Exception> failure = new AtomicReference<>();
+    long startTime = System.currentTimeMillis();
+    for (int i = 0; i < numOfWorker; i++) {
+      new Worker(dataRegion, i, latch, failure).start();
+    }
+    latch.await();
+    Assert.assertNull("Failed to insert tablets", failure.get());
+    long elapsedTime = Math.max(1, System.currentTimeMillis() - startTime);
+    long points =
+        (long) numOfWorker
+            * numOfDevicePerWorker
+            * numOfTabletPerDevice
+            * tabletRowNum
+            * numOfMeasurement;
+    logger.info(
+        "stripes: {}, workers: {}, points: {}, elapsed time: {}ms, throughput: {} points/s",
+        stripeNum,
+        numOfWorker,
+        points,
+        elapsedTime,
+        points * 1000 / elapsedTime);
+    dataRegion.syncDeleteDataFiles();
+    EnvironmentUtils.cleanEnv();
+  }
+
+  private static InsertTabletPlan getTablet(String device, long startTime) throws Exception {
+    InsertTabletPlan insertTabletPlan = new InsertTabletPlan(new PartialPath(device), measurements);
+    TSDataType[] dataTypes = new TSDataType[numOfMeasurement];
+    Object[] columns = new Object[numOfMeasurement];
+    long[] times = new long[tabletRowNum];
+    for (int i = 0; i < numOfMeasurement; i++) {
+      dataTypes[i] = TSDataType.INT64;
+      columns[i] = new long[tabletRowNum];
+    }
+    for (int r = 0; r < tabletRowNum; r++) {
+      times[r] = startTime + r;
+      for (int i = 0; i < numOfMeasurement; i++) {
+        ((long[]) columns[i])[r] = startTime + r;
+      }
+    }
+    insertTabletPlan.setDataTypes(dataTypes);
+    insertTabletPlan.setMeasurementMNodes(measurementMNodes);
+    insertTabletPlan.setTimes(times);
+    insertTabletPlan.setColumns(columns);
+    insertTabletPlan.setRowCount(tabletRowNum);
+    return insertTabletPlan;
+  }
+
+  private static class Worker extends Thread {
+
+    private final DataRegion dataRegion;
+    private final int workerId;
+    private final CountDownLatch latch;
+    private final AtomicReference<Exception> failure;
+
+    private Worker(
+        DataRegion dataRegion,
+        int workerId,
+        CountDownLatch latch,
+        AtomicReference<Exception> failure) {
+      this.dataRegion = dataRegion;
+      this.workerId = workerId;
+      this.latch = latch;
+      this.failure = failure;
+    }
+
+    @Override
+    public void run() {
+      try {
+        for (int t = 0; t < numOfTabletPerDevice; t++) {
+          for (int d = 0; d < numOfDevicePerWorker; d++) {
+            String device = storageGroup + ".w" + workerId + ".d" + d;
+            dataRegion.insertTablet(getTablet(device, (long) t * tabletRowNum));
+          }
+        }
+      } catch (Exception e) {
+        logger.error("Worker {} failed to insert tablets", workerId, e);
+        failure.compareAndSet(null, e);
+      } finally {
+        latch.countDown();
+      }
+    }
+  }
+}
@@ -44,6 +44,7 @@ import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
 import org.apache.iotdb.db.metadata.path.MeasurementPath;
 import org.apache.iotdb.db.metadata.path.PartialPath;
 import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertRowsPlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
 import org.apache.iotdb.db.query.context.QueryContext;
 import org.apache.iotdb.db.rescon.MemTableManager;
@@ -860,6 +861,108 @@ public class StorageGroupProcessorTest {
     config.setUnseqMemtableFlushInterval(preFLushInterval);
   }
 
+  @Test
+  public void testStripedConcurrentInsert() throws Exception {
+    int prevInsertLockStripeNum = config.getInsertLockStripeNum();
+    config.setInsertLockStripeNum(4);
+    DataRegion stripedProcessor = null;
+    try {
+      stripedProcessor = new DummySGP(systemDir, storageGroup);
+      DataRegion region = stripedProcessor;
+      int threadNum = 4;
+      int rowNum = 500;
+      List<Thread> threads = new ArrayList<>();
+      AtomicInteger failures = new AtomicInteger();
+      for (int i = 0; i < threadNum; i++) {
+        String device = deviceId + ".d" + i;
+        threads.add(
+            new Thread(
+                () -> {
+                  try {
+                    for (int j = 1; j <= rowNum; j++) {
+                      TSRecord record = new TSRecord(j, device);
+                      record.addTuple(
+                          DataPoint.getDataPoint(
+                              TSDataType.INT32, measurementId, String.valueOf(j)));
+                      region.insert(new InsertRowPlan(record));
+                    }
+                  } catch (Exception e) {
+                    logger.error("striped insert failed", e);
+                    failures.incrementAndGet();
+                  }
+                }));
+      }
+      for (Thread thread : threads) {
+        thread.start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      Assert.assertEquals(0, failures.get());
+
+      Assert.assertEquals(1, stripedProcessor.getWorkSequenceTsFileProcessors().size());
+      TsFileProcessor tsFileProcessor =
+          stripedProcessor.getWorkSequenceTsFileProcessors().iterator().next();
+      Assert.assertEquals(
+          (long) threadNum * rowNum, tsFileProcessor.getWorkMemTable().getTotalPointsNum());
+      Assert.assertEquals(threadNum, tsFileProcessor.getWorkMemTable().getSeriesNumber());
+      for (int i = 0; i < threadNum; i++) {
+        Assert.assertEquals(
+            1, tsFileProcessor.getTsFileResource().getStartTime(deviceId + ".d" + i));
+      }
+    } finally {
+      if (stripedProcessor != null) {
+        stripedProcessor.syncDeleteDataFiles();
+      }
+      config.setInsertLockStripeNum(prevInsertLockStripeNum);
+    }
+  }
+
+  @Test
+  public void testInsertRowsOfMultipleDevices() throws Exception {
+    int prevInsertLockStripeNum = config.getInsertLockStripeNum();
+    boolean prevEnablePartition = StorageEngine.isEnablePartition();
+    long prevPartitionInterval = StorageEngine.getTimePartitionInterval();
+    config.setInsertLockStripeNum(4);
+    StorageEngine.setEnablePartition(true);
+    StorageEngine.setTimePartitionInterval(100);
+    DataRegion stripedProcessor = null;
+    try {
+      stripedProcessor = new DummySGP(systemDir, storageGroup);
+      int deviceNum = 5;
+      int rowNum = 10;
+      InsertRowsPlan insertRowsPlan = new InsertRowsPlan();
+      List<Integer> rowIndexes = new ArrayList<>();
+      // rows of all devices interleaved over two time partitions
+      for (int j = 0; j < rowNum; j++) {
+        for (int i = 0; i < deviceNum; i++) {
+          long time = j % 2 == 0 ? j : 100 + j;
+          TSRecord record = new TSRecord(time, deviceId + ".d" + i);
+          record.addTuple(
+              DataPoint.getDataPoint(TSDataType.INT32, measurementId, String.valueOf(j)));
+          rowIndexes.add(rowIndexes.size());
+          insertRowsPlan.addOneInsertRowPlan(new InsertRowPlan(record), rowIndexes.size() - 1);
+        }
+      }
+      stripedProcessor.insert(insertRowsPlan, rowIndexes);
+      Assert.assertTrue(insertRowsPlan.getResults().isEmpty());
+
+      Assert.assertEquals(2, stripedProcessor.getWorkSequenceTsFileProcessors().size());
+      for (TsFileProcessor tsFileProcessor : stripedProcessor.getWorkSequenceTsFileProcessors()) {
+        Assert.assertEquals(
+            (long) deviceNum * rowNum / 2, tsFileProcessor.getWorkMemTable().getTotalPointsNum());
+        Assert.assertEquals(deviceNum, tsFileProcessor.getWorkMemTable().getSeriesNumber());
+      }
+    } finally {
+      if (stripedProcessor != null) {
+        stripedProcessor.syncDeleteDataFiles();
+      }
+      config.setInsertLockStripeNum(prevInsertLockStripeNum);
+      StorageEngine.setEnablePartition(prevEnablePartition);
+      StorageEngine.setTimePartitionInterval(prevPartitionInterval);
+    }
+  }
+
   class DummySGP extends DataRegion {
 
     DummySGP(String systemInfoDir, String storageGroupName) throws DataRegionException {
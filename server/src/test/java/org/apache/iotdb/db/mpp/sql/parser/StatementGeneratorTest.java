@@ -21,11 +21,16 @@ package org.apache.iotdb.db.mpp.sql.parser;
 
 import org.apache.iotdb.db.metadata.path.PartialPath;
 import org.apache.iotdb.db.mpp.sql.statement.component.ResultColumn;
+import org.apache.iotdb.db.mpp.sql.statement.crud.InsertRowStatement;
+import org.apache.iotdb.db.mpp.sql.statement.crud.InsertRowsStatement;
 import org.apache.iotdb.db.mpp.sql.statement.crud.QueryStatement;
+import org.apache.iotdb.service.rpc.thrift.TSInsertRecordsReq;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.time.ZonedDateTime;
 import java.util.Arrays;
 import java.util.Collections;
@@ -41,6 +46,36 @@ public class StatementGeneratorTest {
         "SELECT s1, s2 FROM root.sg1.d1 LIMIT 10 OFFSET 10", selectExprList, prefixPaths, 10, 10);
   }
 
+  @Test
+  public void testInsertRecordsKeepOrder() throws Exception {
+    TSInsertRecordsReq req = new TSInsertRecordsReq();
+    req.setPrefixPaths(Arrays.asList("root.sg1.d1", "root.sg1.d2", "root.sg1.d1"));
+    req.setTimestamps(Arrays.asList(2L, 1L, 1L));
+    req.setMeasurementsList(
+        Arrays.asList(
+            Collections.singletonList("s1"),
+            Collections.singletonList("s1"),
+            Collections.singletonList("s1")));
+    req.setValuesList(Arrays.asList(longRecord(20), longRecord(10), longRecord(30)));
+
+    // the failing statuses are indexed by the records, so they are kept as rows in order
+    InsertRowsStatement statement = (InsertRowsStatement) StatementGenerator.createStatement(req);
+    List<InsertRowStatement> rows = statement.getInsertRowStatementList();
+    Assert.assertEquals(3, rows.size());
+    for (int i = 0; i < rows.size(); i++) {
+      Assert.assertEquals(req.getPrefixPaths().get(i), rows.get(i).getDevicePath().getFullPath());
+      Assert.assertEquals((long) req.getTimestamps().get(i), rows.get(i).getTime());
+    }
+  }
+
+  private ByteBuffer longRecord(long value) {
+    ByteBuffer buffer = ByteBuffer.allocate(1 + Long.BYTES);
+    buffer.put(TSDataType.INT64.serialize());
+    buffer.putLong(value);
+    buffer.flip();
+    return buffer;
+  }
+
   // TODO: add more tests
 
   private void checkQueryStatement(
@@ -28,6 +28,7 @@ import org.apache.iotdb.db.qp.Planner;
 import org.apache.iotdb.db.qp.executor.PlanExecutor;
 import org.apache.iotdb.db.qp.physical.PhysicalPlan.PhysicalPlanType;
 import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertRowsPlan;
 import org.apache.iotdb.db.qp.physical.crud.QueryPlan;
 import org.apache.iotdb.db.qp.physical.sys.CreateTemplatePlan;
 import org.apache.iotdb.db.qp.physical.sys.SetTemplatePlan;
@@ -85,6 +86,37 @@ public class InsertRowPlanTest {
     }
   }
 
+  @Test
+  public void testInsertRowsPlanOfMultipleDevices()
+      throws QueryProcessException, MetadataException, InterruptedException,
+          QueryFilterOptimizationException, StorageEngineException, IOException {
+    InsertRowsPlan insertRowsPlan = new InsertRowsPlan();
+    int rowNum = 10;
+    for (int i = 0; i < rowNum; i++) {
+      InsertRowPlan rowPlan = getInsertRowPlan();
+      rowPlan.setDevicePath(new PartialPath("root.isp.d" + (i % 2 + 1)));
+      rowPlan.setTime(i);
+      insertRowsPlan.addOneInsertRowPlan(rowPlan, i);
+    }
+
+    PlanExecutor executor = new PlanExecutor();
+    executor.insert(insertRowsPlan);
+    Assert.assertTrue(insertRowsPlan.getResults().isEmpty());
+
+    for (String device : new String[] {"root.isp.d1", "root.isp.d2"}) {
+      QueryPlan queryPlan = (QueryPlan) processor.parseSQLToPhysicalPlan("select * from " + device);
+      QueryDataSet dataSet = executor.processQuery(queryPlan, EnvironmentUtils.TEST_QUERY_CONTEXT);
+      Assert.assertEquals(6, dataSet.getPaths().size());
+      int count = 0;
+      while (dataSet.hasNext()) {
+        RowRecord record = dataSet.next();
+        Assert.assertEquals(6, record.getFields().size());
+        count++;
+      }
+      Assert.assertEquals(rowNum / 2, count);
+    }
+  }
+
   @Test
   public void testInsertRowPlanWithAlignedTimeseries()
       throws QueryProcessException, MetadataException, InterruptedException,
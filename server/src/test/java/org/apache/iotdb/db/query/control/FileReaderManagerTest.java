@@ -23,6 +23,7 @@ import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.constant.TestConstant;
 import org.apache.iotdb.db.engine.fileSystem.SystemFileFactory;
 import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -134,4 +135,32 @@ public class FileReaderManagerTest {
       }
     }
   }
+
+  @Test
+  public void testRemoveReferencedReader() throws IOException {
+    File file =
+        SystemFileFactory.INSTANCE.getFile(TestConstant.BASE_OUTPUT_PATH.concat("removed.file"));
+    file.createNewFile();
+    TsFileResource tsFile = new TsFileResource(file);
+    FileReaderManager manager = FileReaderManager.getInstance();
+    try {
+      manager.increaseFileReaderReference(tsFile, false);
+      TsFileSequenceReader reader = manager.get(tsFile.getTsFilePath(), false);
+      manager.closeFileAndRemoveReader(tsFile.getTsFilePath());
+      Assert.assertFalse(manager.contains(tsFile, false));
+      // the query still holds a reference, so the reader is not closed yet
+      reader.fileSize();
+
+      manager.decreaseFileReaderReference(tsFile, false);
+      try {
+        reader.fileSize();
+        fail();
+      } catch (IOException e) {
+        // closed with the last reference
+      }
+    } finally {
+      manager.closeAndRemoveAllOpenedReaders();
+      Assert.assertTrue(file.delete());
+    }
+  }
 }
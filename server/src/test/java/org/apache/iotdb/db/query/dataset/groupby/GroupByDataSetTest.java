@@ -32,6 +32,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class GroupByDataSetTest {
@@ -223,4 +224,63 @@ public class GroupByDataSetTest {
     assertTrue(dataSet.hasNext());
     assertEquals("0\t0", dataSet.next().toString());
   }
+
+  @Test
+  public void groupBySlidingWindowAcrossFilesTest() throws Exception {
+    // ten sequence files of [10 * i, 10 * i + 9] and an unsequence file overwriting [45, 54]
+    queryExecutor.processNonQuery(
+        processor.parseSQLToPhysicalPlan(
+            "CREATE TIMESERIES root.test.d2.s0 WITH DATATYPE=INT64, ENCODING=RLE"));
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < 10; j++) {
+        long time = i * 10L + j;
+        queryExecutor.processNonQuery(
+            processor.parseSQLToPhysicalPlan(
+                String.format("insert into root.test.d2(timestamp,s0) values(%d,%d)", time, time)));
+      }
+      queryExecutor.processNonQuery(processor.parseSQLToPhysicalPlan("flush"));
+    }
+    for (long time = 45; time < 55; time++) {
+      queryExecutor.processNonQuery(
+          processor.parseSQLToPhysicalPlan(
+              String.format(
+                  "insert into root.test.d2(timestamp,s0) values(%d,%d)", time, 2 * time)));
+    }
+    queryExecutor.processNonQuery(processor.parseSQLToPhysicalPlan("flush"));
+
+    String[] expected = new String[10];
+    for (int i = 0; i < 10; i++) {
+      long count = 0;
+      long sum = 0;
+      for (long time = i * 10L; time < Math.min(i * 10L + 25, 100); time++) {
+        count++;
+        sum += time >= 45 && time < 55 ? 2 * time : time;
+      }
+      expected[i] = i * 10 + "\t" + count + "\t" + (double) sum;
+    }
+
+    QueryPlan queryPlan =
+        (QueryPlan)
+            processor.parseSQLToPhysicalPlan(
+                "select count(s0), sum(s0) from root.test.d2 group by ([0,100), 25ms, 10ms)");
+    QueryDataSet dataSet =
+        queryExecutor.processQuery(queryPlan, EnvironmentUtils.TEST_QUERY_CONTEXT);
+    for (int i = 0; i < 10; i++) {
+      assertTrue(dataSet.hasNext());
+      assertEquals(expected[i], dataSet.next().toString());
+    }
+    assertFalse(dataSet.hasNext());
+
+    queryPlan =
+        (QueryPlan)
+            processor.parseSQLToPhysicalPlan(
+                "select count(s0), sum(s0) from root.test.d2 group by ([0,100), 25ms, 10ms) "
+                    + "order by time desc");
+    dataSet = queryExecutor.processQuery(queryPlan, EnvironmentUtils.TEST_QUERY_CONTEXT);
+    for (int i = 9; i >= 0; i--) {
+      assertTrue(dataSet.hasNext());
+      assertEquals(expected[i], dataSet.next().toString());
+    }
+    assertFalse(dataSet.hasNext());
+  }
 }
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.executor;
+
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.qp.Planner;
+import org.apache.iotdb.db.qp.executor.IPlanExecutor;
+import org.apache.iotdb.db.qp.executor.PlanExecutor;
+import org.apache.iotdb.db.qp.physical.crud.QueryPlan;
+import org.apache.iotdb.db.service.IoTDB;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
+import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
+import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class LastQueryExecutorTest {
+
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private static final TSFileConfig tsFileConfig = TSFileDescriptor.getInstance().getConfig();
+  private static final int DEVICE_NUM = 3;
+  private static final int MEASUREMENT_NUM = 5;
+
+  private final IPlanExecutor queryExecutor = new PlanExecutor();
+  private final Planner processor = new Planner();
+  private int maxDegreeOfIndexNode;
+
+  static {
+    IoTDB.configManager.init();
+  }
+
+  public LastQueryExecutorTest() throws Exception {}
+
+  @Before
+  public void setUp() throws Exception {
+    maxDegreeOfIndexNode = tsFileConfig.getMaxDegreeOfIndexNode();
+    // the measurements of a device are in different leaf nodes
+    tsFileConfig.setMaxDegreeOfIndexNode(2);
+    EnvironmentUtils.envSetUp();
+    execute("SET STORAGE GROUP TO root.vehicle");
+    for (int d = 0; d < DEVICE_NUM; d++) {
+      for (int m = 0; m < MEASUREMENT_NUM; m++) {
+        execute(
+            String.format(
+                "CREATE TIMESERIES root.vehicle.d%d.s%d WITH DATATYPE=INT64, ENCODING=RLE", d, m));
+      }
+    }
+    for (int d = 0; d < DEVICE_NUM; d++) {
+      for (int t = 1; t <= 10; t++) {
+        execute(
+            String.format(
+                "insert into root.vehicle.d%d(timestamp,s0,s1,s2,s3,s4) values(%d,%d,%d,%d,%d,%d)",
+                d, t, t, t, t, t, t));
+      }
+    }
+    execute("flush");
+    for (int d = 0; d < DEVICE_NUM; d++) {
+      for (int t = 11; t <= 20; t++) {
+        execute(
+            String.format(
+                "insert into root.vehicle.d%d(timestamp,s0,s1) values(%d,%d,%d)", d, t, t, t));
+      }
+    }
+    execute("flush");
+    // overwrite the last point of d1.s2 in an unsequence file
+    execute("insert into root.vehicle.d1(timestamp,s2) values(10,1000)");
+    execute("flush");
+    // the last point of d2.s4 is in the memtable
+    execute("insert into root.vehicle.d2(timestamp,s4) values(30,30)");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    EnvironmentUtils.cleanEnv();
+    tsFileConfig.setMaxDegreeOfIndexNode(maxDegreeOfIndexNode);
+  }
+
+  @Test
+  public void testLastOfDevices() throws Exception {
+    Set<String> expected = new HashSet<>();
+    for (int d = 0; d < DEVICE_NUM; d++) {
+      expected.add(String.format("20\troot.vehicle.d%d.s0\t20\tINT64", d));
+      expected.add(String.format("20\troot.vehicle.d%d.s1\t20\tINT64", d));
+      expected.add(String.format("10\troot.vehicle.d%d.s2\t%d\tINT64", d, d == 1 ? 1000 : 10));
+      expected.add(String.format("10\troot.vehicle.d%d.s3\t10\tINT64", d));
+      expected.add(
+          d == 2
+              ? "30\troot.vehicle.d2.s4\t30\tINT64"
+              : String.format("10\troot.vehicle.d%d.s4\t10\tINT64", d));
+    }
+
+    // the first query reads the files, and the second one reads the last cache if it is enabled
+    assertEquals(expected, queryLast());
+    assertEquals(expected, queryLast());
+  }
+
+  private void execute(String sql) throws Exception {
+    queryExecutor.processNonQuery(processor.parseSQLToPhysicalPlan(sql));
+  }
+
+  private Set<String> queryLast() throws Exception {
+    QueryPlan queryPlan =
+        (QueryPlan) processor.parseSQLToPhysicalPlan("select last * from root.vehicle.*");
+    QueryDataSet dataSet =
+        queryExecutor.processQuery(queryPlan, EnvironmentUtils.TEST_QUERY_CONTEXT);
+    Set<String> results = new HashSet<>();
+    while (dataSet.hasNext()) {
+      results.add(dataSet.next().toString());
+    }
+    return results;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.pool;
+
+import org.apache.iotdb.db.exception.query.QueryProcessException;
+import org.apache.iotdb.db.exception.query.QueryTimeoutRuntimeException;
+import org.apache.iotdb.db.query.context.QueryContext;
+import org.apache.iotdb.db.query.control.QueryTimeManager;
+import org.apache.iotdb.db.query.pool.AggregationTaskPoolManager.AggregationTask;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AggregationTaskPoolManagerTest {
+
+  private final AggregationTaskPoolManager poolManager = AggregationTaskPoolManager.getInstance();
+  private final long queryId = 1024;
+
+  @After
+  public void tearDown() {
+    QueryTimeManager.getInstance().unRegisterQuery(queryId, true);
+  }
+
+  @Test
+  public void testRunAll() throws Exception {
+    int taskNum = 100;
+    long[] results = new long[taskNum];
+    List<AggregationTask> tasks = new ArrayList<>();
+    for (int i = 0; i < taskNum; i++) {
+      int index = i;
+      tasks.add(
+          () -> {
+            results[index] = index * 2L;
+          });
+    }
+    poolManager.runAll(queryId, tasks);
+    for (int i = 0; i < taskNum; i++) {
+      Assert.assertEquals(i * 2L, results[i]);
+    }
+  }
+
+  @Test
+  public void testFailure() {
+    AtomicInteger finished = new AtomicInteger();
+    List<AggregationTask> tasks = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      int index = i;
+      tasks.add(
+          () -> {
+            if (index == 10) {
+              throw new QueryProcessException("failed task");
+            }
+            // slow enough that the failure is seen long before all the other tasks finish
+            try {
+              Thread.sleep(1);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            finished.incrementAndGet();
+          });
+    }
+    try {
+      poolManager.runAll(queryId, tasks);
+      Assert.fail();
+    } catch (Exception e) {
+      Assert.assertTrue(e instanceof QueryProcessException);
+      Assert.assertEquals("failed task", e.getMessage());
+    }
+    Assert.assertTrue(finished.get() < 999);
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    QueryContext context = new QueryContext(queryId);
+    QueryTimeManager.getInstance().registerQuery(context.setTimeout(0));
+    AtomicInteger finished = new AtomicInteger();
+    List<AggregationTask> tasks = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      tasks.add(
+          () -> {
+            QueryTimeManager.getInstance().killQuery(queryId);
+            finished.incrementAndGet();
+          });
+    }
+    try {
+      poolManager.runAll(queryId, tasks);
+      Assert.fail();
+    } catch (QueryTimeoutRuntimeException e) {
+      Assert.assertTrue(finished.get() < 100);
+    }
+  }
+}
@@ -19,12 +19,19 @@
 
 package org.apache.iotdb.db.query.reader.universal;
 
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.read.common.BatchData;
+import org.apache.iotdb.tsfile.read.common.DescReadWriteBatchData;
+import org.apache.iotdb.tsfile.read.reader.IPointReader;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PriorityMergeReaderTest {
 
@@ -82,4 +89,91 @@ public class PriorityMergeReaderTest {
       i++;
     }
   }
+
+  @Test
+  public void testNextRun() throws IOException {
+    long[][] sources = {
+      {1, 2, 3, 4, 5, 20, 21, 22, 40},
+      {3, 10, 11, 12, 13, 14, 21, 30, 31},
+      {50, 51, 52, 53}
+    };
+    for (boolean ascending : new boolean[] {true, false}) {
+      for (boolean useBatchData : new boolean[] {true, false}) {
+        PriorityMergeReader pointReader =
+            ascending ? new PriorityMergeReader() : new DescPriorityMergeReader();
+        PriorityMergeReader runReader =
+            ascending ? new PriorityMergeReader() : new DescPriorityMergeReader();
+        for (int i = 0; i < sources.length; i++) {
+          pointReader.addReader(createReader(sources[i], i + 1, ascending, useBatchData), i + 1);
+          runReader.addReader(createReader(sources[i], i + 1, ascending, useBatchData), i + 1);
+        }
+
+        List<TimeValuePair> expected = new ArrayList<>();
+        while (pointReader.hasNextTimeValuePair()) {
+          expected.add(pointReader.nextTimeValuePair());
+        }
+
+        BatchData batchData =
+            ascending
+                ? new BatchData(TSDataType.INT64)
+                : new DescReadWriteBatchData(TSDataType.INT64);
+        // runs stop before 51 in ascending order or after 10 in descending order
+        long runEndTime = ascending ? 50 : 11;
+        while (runReader.hasNextTimeValuePair()) {
+          TimeValuePair timeValuePair = runReader.nextTimeValuePair();
+          batchData.putAnObject(timeValuePair.getTimestamp(), timeValuePair.getValue().getValue());
+          runReader.nextRun(() -> runEndTime, batchData, null);
+        }
+        batchData.flip();
+
+        for (TimeValuePair timeValuePair : expected) {
+          Assert.assertTrue(batchData.hasCurrent());
+          Assert.assertEquals(timeValuePair.getTimestamp(), batchData.currentTime());
+          Assert.assertEquals(timeValuePair.getValue().getValue(), batchData.currentValue());
+          batchData.next();
+        }
+        Assert.assertFalse(batchData.hasCurrent());
+      }
+    }
+  }
+
+  @Test
+  public void testNextRunWithoutRun() throws IOException {
+    PriorityMergeReader reader = new PriorityMergeReader();
+    reader.addReader(new FakedSeriesReader(new long[] {1, 3, 5, 7}, 1), 1);
+    reader.addReader(new FakedSeriesReader(new long[] {2, 4, 6, 8}, 2), 2);
+    BatchData batchData = new BatchData(TSDataType.INT64);
+    AtomicInteger runEndTimeCount = new AtomicInteger();
+    while (reader.hasNextTimeValuePair()) {
+      TimeValuePair timeValuePair = reader.nextTimeValuePair();
+      batchData.putAnObject(timeValuePair.getTimestamp(), timeValuePair.getValue().getValue());
+      reader.nextRun(
+          () -> {
+            runEndTimeCount.incrementAndGet();
+            return Long.MAX_VALUE;
+          },
+          batchData,
+          null);
+    }
+    // the readers alternate, so a run can only start once the first reader is exhausted, and the
+    // run end time is not needed before
+    Assert.assertEquals(1, runEndTimeCount.get());
+    Assert.assertEquals(8, batchData.length());
+  }
+
+  private IPointReader createReader(
+      long[] timestamps, long value, boolean ascending, boolean useBatchData) {
+    long[] ordered = new long[timestamps.length];
+    for (int i = 0; i < timestamps.length; i++) {
+      ordered[i] = ascending ? timestamps[i] : timestamps[timestamps.length - 1 - i];
+    }
+    if (!useBatchData) {
+      return new FakedSeriesReader(ordered, value);
+    }
+    BatchData batchData = new BatchData(TSDataType.INT64);
+    for (long timestamp : ordered) {
+      batchData.putLong(timestamp, value);
+    }
+    return batchData.flip().getBatchDataIterator();
+  }
 }
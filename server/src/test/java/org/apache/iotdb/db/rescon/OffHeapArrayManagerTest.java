@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.rescon;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.apache.iotdb.db.rescon.PrimitiveArrayManager.ARRAY_SIZE;
+
+public class OffHeapArrayManagerTest {
+
+  @After
+  public void tearDown() {
+    OffHeapArrayManager.close();
+  }
+
+  @Test
+  public void testSlabsAreSlicesOfChunk() {
+    OffHeapArrayManager.close();
+    Assert.assertEquals(0, OffHeapArrayManager.getPooledSlabsMemorySize());
+
+    long slab1 = OffHeapArrayManager.allocate(Long.BYTES);
+    long slab2 = OffHeapArrayManager.allocate(Long.BYTES);
+    ByteBuffer chunk = OffHeapArrayManager.getChunk(slab1);
+    int slabSize = ARRAY_SIZE * Long.BYTES;
+    Assert.assertSame(chunk, OffHeapArrayManager.getChunk(slab2));
+    Assert.assertEquals(
+        slabSize, OffHeapArrayManager.getOffset(slab2) - OffHeapArrayManager.getOffset(slab1));
+    // the rest of the chunk is counted in the pooled memory
+    Assert.assertEquals(
+        chunk.capacity() - 2L * slabSize, OffHeapArrayManager.getPooledSlabsMemorySize());
+
+    OffHeapArrayManager.release(slab2);
+    Assert.assertEquals(slab2, OffHeapArrayManager.allocate(Long.BYTES));
+    OffHeapArrayManager.release(slab2);
+    OffHeapArrayManager.release(slab1);
+    Assert.assertEquals(chunk.capacity(), OffHeapArrayManager.getPooledSlabsMemorySize());
+
+    OffHeapArrayManager.close();
+    Assert.assertEquals(0, OffHeapArrayManager.getPooledSlabsMemorySize());
+  }
+
+  @Test
+  public void testReleaseByOtherThread() throws InterruptedException {
+    OffHeapArrayManager.close();
+    long slab = OffHeapArrayManager.allocate(Integer.BYTES);
+    int chunkSize = OffHeapArrayManager.getChunk(slab).capacity();
+
+    Thread thread = new Thread(() -> OffHeapArrayManager.release(slab));
+    thread.start();
+    thread.join();
+    // slabs released by a dead thread are still reachable and freed by close
+    Assert.assertEquals(chunkSize, OffHeapArrayManager.getPooledSlabsMemorySize());
+    OffHeapArrayManager.close();
+    Assert.assertEquals(0, OffHeapArrayManager.getPooledSlabsMemorySize());
+  }
+
+  @Test
+  public void testThreadCacheIsBounded() throws InterruptedException {
+    OffHeapArrayManager.close();
+    int slabNum = OffHeapArrayManager.THREAD_CACHE_SIZE + 1;
+    long[] slabs = new long[slabNum];
+    for (int i = 0; i < slabNum; i++) {
+      slabs[i] = OffHeapArrayManager.allocate(Long.BYTES);
+    }
+    for (long slab : slabs) {
+      OffHeapArrayManager.release(slab);
+    }
+
+    // the last slab does not fit in the cache of this thread and goes back to its chunk
+    long[] allocated = new long[1];
+    Thread thread = new Thread(() -> allocated[0] = OffHeapArrayManager.allocate(Long.BYTES));
+    thread.start();
+    thread.join();
+    Assert.assertEquals(slabs[slabNum - 1], allocated[0]);
+    // the cached slabs are reused by this thread
+    Assert.assertEquals(slabs[slabNum - 2], OffHeapArrayManager.allocate(Long.BYTES));
+
+    OffHeapArrayManager.release(allocated[0]);
+    OffHeapArrayManager.release(slabs[slabNum - 2]);
+    OffHeapArrayManager.close();
+    Assert.assertEquals(0, OffHeapArrayManager.getPooledSlabsMemorySize());
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.service.thrift.impl;
+
+import org.apache.iotdb.common.rpc.thrift.TSStatus;
+import org.apache.iotdb.commons.conf.IoTDBConstant.ClientVersion;
+import org.apache.iotdb.db.metadata.path.PartialPath;
+import org.apache.iotdb.db.qp.executor.PlanExecutor;
+import org.apache.iotdb.db.qp.physical.sys.SetTTLPlan;
+import org.apache.iotdb.db.query.control.SessionManager;
+import org.apache.iotdb.db.service.IoTDB;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.rpc.TSStatusCode;
+import org.apache.iotdb.service.rpc.thrift.TSInsertRecordsOfOneDeviceReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertRecordsReq;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TSServiceImplTest {
+
+  private static final String SG = "root.sg";
+  private static final long TTL = 3_600_000L;
+
+  private TSServiceImpl service;
+  private long sessionId;
+
+  @Before
+  public void setUp() throws Exception {
+    EnvironmentUtils.envSetUp();
+    IoTDB.schemaProcessor.setStorageGroup(new PartialPath(SG));
+    new PlanExecutor().processNonQuery(new SetTTLPlan(new PartialPath(SG), TTL));
+    service = new TSServiceImpl();
+    sessionId =
+        SessionManager.getInstance()
+            .requestSessionId("root", ZoneId.systemDefault().getId(), ClientVersion.V_0_13);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    SessionManager.getInstance().releaseSessionResource(sessionId);
+    EnvironmentUtils.cleanEnv();
+  }
+
+  @Test
+  public void testInsertRecordsWithRowOutOfTTL() {
+    long now = System.currentTimeMillis();
+    // the rows of d1 are inserted as a tablet sorted by time, the second row is out of ttl
+    List<String> prefixPaths = Arrays.asList(SG + ".d1", SG + ".d1", SG + ".d1", SG + ".d2");
+    List<Long> timestamps = Arrays.asList(now + 1, 1L, now, 1L);
+    TSInsertRecordsReq req = new TSInsertRecordsReq();
+    req.setSessionId(sessionId);
+    req.setPrefixPaths(prefixPaths);
+    req.setTimestamps(timestamps);
+    req.setMeasurementsList(measurementsList(prefixPaths.size()));
+    req.setValuesList(valuesList(prefixPaths.size()));
+
+    TSStatus status = service.insertRecords(req);
+    Assert.assertEquals(TSStatusCode.MULTIPLE_ERROR.getStatusCode(), status.getCode());
+    assertRowCodes(
+        status,
+        TSStatusCode.SUCCESS_STATUS,
+        TSStatusCode.OUT_OF_TTL_ERROR,
+        TSStatusCode.SUCCESS_STATUS,
+        TSStatusCode.OUT_OF_TTL_ERROR);
+  }
+
+  @Test
+  public void testInsertRecordsOfOneDeviceWithRowOutOfTTL() {
+    long now = System.currentTimeMillis();
+    TSInsertRecordsOfOneDeviceReq req = new TSInsertRecordsOfOneDeviceReq();
+    req.setSessionId(sessionId);
+    req.setPrefixPath(SG + ".d1");
+    req.setTimestamps(Arrays.asList(now + 1, now, 1L));
+    req.setMeasurementsList(measurementsList(3));
+    req.setValuesList(valuesList(3));
+
+    TSStatus status = service.insertRecordsOfOneDevice(req);
+    Assert.assertEquals(TSStatusCode.MULTIPLE_ERROR.getStatusCode(), status.getCode());
+    Assert.assertEquals(1, status.getSubStatus().size());
+    assertRowCodes(
+        status.getSubStatus().get(0),
+        TSStatusCode.SUCCESS_STATUS,
+        TSStatusCode.SUCCESS_STATUS,
+        TSStatusCode.OUT_OF_TTL_ERROR);
+  }
+
+  private void assertRowCodes(TSStatus status, TSStatusCode... expectedCodes) {
+    Assert.assertEquals(expectedCodes.length, status.getSubStatus().size());
+    for (int i = 0; i < expectedCodes.length; i++) {
+      Assert.assertEquals(expectedCodes[i].getStatusCode(), status.getSubStatus().get(i).getCode());
+    }
+  }
+
+  private List<List<String>> measurementsList(int rowCount) {
+    List<List<String>> measurementsList = new ArrayList<>();
+    for (int i = 0; i < rowCount; i++) {
+      measurementsList.add(Collections.singletonList("s1"));
+    }
+    return measurementsList;
+  }
+
+  private List<ByteBuffer> valuesList(int rowCount) {
+    List<ByteBuffer> valuesList = new ArrayList<>();
+    for (int i = 0; i < rowCount; i++) {
+      ByteBuffer buffer = ByteBuffer.allocate(1 + Long.BYTES);
+      buffer.put(TSDataType.INT64.serialize());
+      buffer.putLong(i);
+      buffer.flip();
+      valuesList.add(buffer);
+    }
+    return valuesList;
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.utils;
+
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+public class QueryDataSetUtilsTest {
+
+  @Test
+  public void testReadTabletFromRecords() {
+    List<Long> timestamps = Arrays.asList(3L, 1L, 2L, 1L);
+    List<List<String>> measurementsList =
+        Arrays.asList(
+            Arrays.asList("s1", "s2"),
+            Arrays.asList("s1", "s2"),
+            Arrays.asList("s1", "s2"),
+            Arrays.asList("s1", "s2"));
+    List<ByteBuffer> valuesList =
+        Arrays.asList(record(3, "c"), record(1, "a"), record(2, "b"), record(4, "d"));
+
+    List<Integer> sortedRowIndexes =
+        QueryDataSetUtils.sortRecordsOfTablet(
+            timestamps, measurementsList, Arrays.asList(0, 1, 2, 3));
+    // the records of the same time keep their order
+    Assert.assertEquals(Arrays.asList(1, 3, 2, 0), sortedRowIndexes);
+
+    TSDataType[] dataTypes = new TSDataType[2];
+    Object[] columns =
+        QueryDataSetUtils.readTabletValuesFromRecords(valuesList, sortedRowIndexes, dataTypes);
+    Assert.assertArrayEquals(new TSDataType[] {TSDataType.INT64, TSDataType.TEXT}, dataTypes);
+    Assert.assertArrayEquals(new long[] {1, 4, 2, 3}, (long[]) columns[0]);
+    Assert.assertEquals(new Binary("d"), ((Binary[]) columns[1])[1]);
+    // the buffers can still be read row by row
+    for (ByteBuffer buffer : valuesList) {
+      Assert.assertEquals(0, buffer.position());
+    }
+  }
+
+  @Test
+  public void testRecordsNotFormingTablet() {
+    List<Long> timestamps = Arrays.asList(1L, 2L);
+    Assert.assertNull(
+        QueryDataSetUtils.sortRecordsOfTablet(
+            timestamps,
+            Arrays.asList(Arrays.asList("s1", "s2"), Arrays.asList("s2", "s1")),
+            Arrays.asList(0, 1)));
+
+    // the data types of s1 differ
+    ByteBuffer intRecord = ByteBuffer.allocate(1 + Integer.BYTES);
+    intRecord.put(TSDataType.INT32.serialize()).putInt(1).flip();
+    ByteBuffer longRecord = ByteBuffer.allocate(1 + Long.BYTES);
+    longRecord.put(TSDataType.INT64.serialize()).putLong(1).flip();
+    Assert.assertNull(
+        QueryDataSetUtils.readTabletValuesFromRecords(
+            Arrays.asList(intRecord, longRecord), Arrays.asList(0, 1), new TSDataType[1]));
+
+    // untyped string values need type inference
+    ByteBuffer stringRecord = ByteBuffer.allocate(1);
+    stringRecord.put((byte) -1).flip();
+    Assert.assertNull(
+        QueryDataSetUtils.readTabletValuesFromRecords(
+            Arrays.asList(stringRecord, stringRecord), Arrays.asList(0, 1), new TSDataType[1]));
+  }
+
+  private ByteBuffer record(long longValue, String textValue) {
+    byte[] text = textValue.getBytes();
+    ByteBuffer buffer = ByteBuffer.allocate(2 + Long.BYTES + Integer.BYTES + text.length);
+    buffer.put(TSDataType.INT64.serialize()).putLong(longValue);
+    buffer.put(TSDataType.TEXT.serialize()).putInt(text.length).put(text);
+    buffer.flip();
+    return buffer;
+  }
+}
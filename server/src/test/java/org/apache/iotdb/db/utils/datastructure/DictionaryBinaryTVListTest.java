@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.utils.datastructure;
+
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DictionaryBinaryTVListTest {
+
+  @Test
+  public void testSortDictionaryBinaryTVList() {
+    DictionaryBinaryTVList tvList = new DictionaryBinaryTVList(10);
+    for (int i = 1000; i >= 0; i--) {
+      tvList.putBinary(i, Binary.valueOf(String.valueOf(i % 5)));
+    }
+    Assert.assertEquals(5, tvList.getDictionarySize());
+    Assert.assertFalse(tvList.isDictionaryFull());
+    tvList.sort();
+    for (int i = 0; i < tvList.rowCount; i++) {
+      Assert.assertEquals(i, tvList.getTime(i));
+      Assert.assertEquals(String.valueOf(i % 5), tvList.getBinary(i).toString());
+    }
+  }
+
+  @Test
+  public void testPutBinariesWithBitMap() {
+    DictionaryBinaryTVList tvList = new DictionaryBinaryTVList(10);
+    long[] times = new long[100];
+    Binary[] values = new Binary[100];
+    BitMap bitMap = new BitMap(100);
+    for (int i = 0; i < 100; i++) {
+      times[i] = i;
+      values[i] = Binary.valueOf(String.valueOf(i % 3));
+      if (i % 10 == 0) {
+        bitMap.mark(i);
+      }
+    }
+    tvList.putBinaries(times, values, bitMap, 0, 100);
+    Assert.assertEquals(90, tvList.rowCount);
+    for (int i = 0; i < tvList.rowCount; i++) {
+      long time = tvList.getTime(i);
+      Assert.assertNotEquals(0, time % 10);
+      Assert.assertEquals(String.valueOf(time % 3), tvList.getBinary(i).toString());
+    }
+  }
+
+  @Test
+  public void testToBinaryTVList() {
+    DictionaryBinaryTVList tvList = new DictionaryBinaryTVList(10);
+    for (int i = 0; i < 11; i++) {
+      tvList.putBinary(i, Binary.valueOf(String.valueOf(i)));
+    }
+    Assert.assertTrue(tvList.isDictionaryFull());
+    BinaryTVList binaryTVList = tvList.toBinaryTVList();
+    Assert.assertEquals(tvList.rowCount, binaryTVList.rowCount);
+    for (int i = 0; i < binaryTVList.rowCount; i++) {
+      Assert.assertEquals(i, binaryTVList.getTime(i));
+      Assert.assertEquals(String.valueOf(i), binaryTVList.getBinary(i).toString());
+    }
+  }
+
+  @Test
+  public void testCloneOnWrite() {
+    DictionaryBinaryTVList tvList = new DictionaryBinaryTVList(10);
+    for (int i = 0; i < 100; i++) {
+      tvList.putBinary(i, Binary.valueOf(String.valueOf(i % 2)));
+    }
+    DictionaryBinaryTVList cloneList = tvList.cloneOnWrite();
+    cloneList.putBinary(100, Binary.valueOf("new"));
+    Assert.assertEquals(2, tvList.getDictionarySize());
+    Assert.assertEquals(3, cloneList.getDictionarySize());
+    Assert.assertEquals(100, tvList.rowCount);
+    Assert.assertEquals("new", cloneList.getBinary(100).toString());
+    for (int i = 0; i < tvList.rowCount; i++) {
+      Assert.assertEquals(tvList.getBinary(i), cloneList.getBinary(i));
+    }
+  }
+}
@@ -30,6 +30,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
+import static org.apache.iotdb.db.rescon.PrimitiveArrayManager.ARRAY_SIZE;
+
 public class LongTVListTest {
 
   @Test
@@ -155,4 +157,97 @@ public class LongTVListTest {
       Assert.assertEquals(tvList.getTime((int) i), clonedTvList.getTime((int) i));
     }
   }
+
+  @Test
+  public void testCloneOnWrite() {
+    LongTVList tvList = new LongTVList();
+    int size = ARRAY_SIZE * 3 + ARRAY_SIZE / 2;
+    for (long i = 0; i < size; i++) {
+      tvList.putLong(i, i);
+    }
+    // an out-of-order point in the last full array
+    tvList.putLong(ARRAY_SIZE * 2 + 1, -1);
+
+    LongTVList clonedTvList = tvList.cloneOnWrite();
+    // full arrays are shared, the tail array is copied
+    for (int i = 0; i < 3; i++) {
+      Assert.assertSame(tvList.timestamps.get(i), clonedTvList.timestamps.get(i));
+    }
+    Assert.assertNotSame(tvList.timestamps.get(3), clonedTvList.timestamps.get(3));
+
+    clonedTvList.putLong(size + 1, size + 1);
+    clonedTvList.sort();
+    // arrays before the out-of-order point are still shared after sorting
+    Assert.assertSame(tvList.timestamps.get(0), clonedTvList.timestamps.get(0));
+    Assert.assertSame(tvList.timestamps.get(1), clonedTvList.timestamps.get(1));
+    Assert.assertNotSame(tvList.timestamps.get(2), clonedTvList.timestamps.get(2));
+    for (int i = 0; i < size; i++) {
+      Assert.assertEquals(i, tvList.getTime(i));
+      Assert.assertEquals(i, tvList.getLong(i));
+    }
+    Assert.assertEquals(ARRAY_SIZE * 2 + 1, tvList.getTime(size));
+    Assert.assertEquals(-1, tvList.getLong(size));
+    Assert.assertEquals(ARRAY_SIZE * 2 + 1, clonedTvList.getTime(ARRAY_SIZE * 2 + 2));
+    Assert.assertEquals(-1, clonedTvList.getLong(ARRAY_SIZE * 2 + 2));
+    Assert.assertEquals(size + 1, clonedTvList.getTime(size + 1));
+
+    // deletion copies the shared arrays it modifies and leaves the original list untouched
+    clonedTvList.delete(0, ARRAY_SIZE - 1);
+    for (int i = 0; i < size; i++) {
+      Assert.assertEquals(i, tvList.getTime(i));
+    }
+    Assert.assertEquals(ARRAY_SIZE, clonedTvList.getTime(0));
+    clonedTvList.clear();
+    Assert.assertEquals(0, tvList.getTime(0));
+  }
+
+  @Test
+  public void testDeleteTailOfSharedArray() {
+    LongTVList tvList = new LongTVList();
+    for (long i = 0; i < ARRAY_SIZE * 2; i++) {
+      tvList.putLong(i, i);
+    }
+    LongTVList clonedTvList = tvList.cloneOnWrite();
+    // the deletion ends inside the second shared array without moving any row
+    clonedTvList.delete(ARRAY_SIZE + 10, Long.MAX_VALUE);
+    clonedTvList.putLong(-1, -1);
+    Assert.assertEquals(ARRAY_SIZE + 11, clonedTvList.rowCount);
+    Assert.assertEquals(-1, clonedTvList.getTime(ARRAY_SIZE + 10));
+    for (int i = 0; i < ARRAY_SIZE * 2; i++) {
+      Assert.assertEquals(i, tvList.getTime(i));
+      Assert.assertEquals(i, tvList.getLong(i));
+    }
+  }
+
+  @Test
+  public void testSortPresortedRuns() {
+    LongTVList tvList = new LongTVList();
+    List<TimeValuePair> inputs = new ArrayList<>();
+    long value = 0;
+    // a long ascending run followed by a few small late runs, one of them descending
+    for (long time = 0; time < 10000; time += 2) {
+      tvList.putLong(time, value);
+      inputs.add(new TimeValuePair(time, new TsLong(value++)));
+    }
+    for (long time = 5000; time < 5100; time++) {
+      tvList.putLong(time, value);
+      inputs.add(new TimeValuePair(time, new TsLong(value++)));
+    }
+    for (long time = 9999; time > 9000; time -= 3) {
+      tvList.putLong(time, value);
+      inputs.add(new TimeValuePair(time, new TsLong(value++)));
+    }
+    for (long time = 0; time < 10; time++) {
+      tvList.putLong(time, value);
+      inputs.add(new TimeValuePair(time, new TsLong(value++)));
+    }
+    tvList.sort();
+    // the sort is stable, rows with the same timestamp keep the order they are put
+    inputs.sort((o1, o2) -> Long.compare(o1.getTimestamp(), o2.getTimestamp()));
+    Assert.assertEquals(inputs.size(), tvList.rowCount);
+    for (int i = 0; i < tvList.rowCount; i++) {
+      Assert.assertEquals(inputs.get(i).getTimestamp(), tvList.getTime(i));
+      Assert.assertEquals(inputs.get(i).getValue().getLong(), tvList.getLong(i));
+    }
+  }
 }
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.utils.datastructure;
+
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.BitMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.apache.iotdb.db.rescon.PrimitiveArrayManager.ARRAY_SIZE;
+
+public class OffHeapTVListTest {
+
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+
+  @Test
+  public void testNewList() {
+    boolean prevEnableOffHeapMemTable = config.isEnableOffHeapMemTable();
+    try {
+      config.setEnableOffHeapMemTable(true);
+      Assert.assertTrue(TVList.newList(TSDataType.INT64) instanceof OffHeapLongTVList);
+      Assert.assertTrue(TVList.newList(TSDataType.TEXT) instanceof BinaryTVList);
+      Assert.assertTrue(
+          TVList.tvListArrayMemCost(TSDataType.INT64)
+              >= (long) ARRAY_SIZE * (Long.BYTES + Long.BYTES));
+      config.setEnableOffHeapMemTable(false);
+      Assert.assertTrue(TVList.newList(TSDataType.INT64) instanceof LongTVList);
+    } finally {
+      config.setEnableOffHeapMemTable(prevEnableOffHeapMemTable);
+    }
+  }
+
+  @Test
+  public void testSortSameAsHeapList() {
+    Random random = new Random(0);
+    TVList[] heapLists = {
+      new LongTVList(), new IntTVList(), new FloatTVList(), new DoubleTVList(), new BooleanTVList()
+    };
+    TVList[] offHeapLists = {
+      new OffHeapLongTVList(),
+      new OffHeapIntTVList(),
+      new OffHeapFloatTVList(),
+      new OffHeapDoubleTVList(),
+      new OffHeapBooleanTVList()
+    };
+    for (int i = 0; i < 10000; i++) {
+      long time = random.nextInt(10000);
+      int value = random.nextInt(10000) - 5000;
+      for (int j = 0; j < heapLists.length; j++) {
+        put(heapLists[j], time, value);
+        put(offHeapLists[j], time, value);
+      }
+    }
+    for (int j = 0; j < heapLists.length; j++) {
+      heapLists[j].sort();
+      offHeapLists[j].sort();
+      assertSame(heapLists[j], offHeapLists[j]);
+      offHeapLists[j].clear();
+    }
+  }
+
+  @Test
+  public void testPutWithNulls() {
+    long[] times = new long[1000];
+    double[] values = new double[1000];
+    BitMap bitMap = new BitMap(1000);
+    for (int i = 0; i < 1000; i++) {
+      times[i] = i;
+      values[i] = i * 0.5;
+      if (i % 100 == 0) {
+        bitMap.mark(i);
+      }
+    }
+    DoubleTVList heapList = new DoubleTVList();
+    OffHeapDoubleTVList offHeapList = new OffHeapDoubleTVList();
+    heapList.putDoubles(times.clone(), values.clone(), bitMap, 0, 1000);
+    offHeapList.putDoubles(times, values, bitMap, 0, 1000);
+    Assert.assertEquals(990, offHeapList.rowCount());
+    assertSame(heapList, offHeapList);
+
+    // without nulls, timestamps and values are copied in bulk
+    offHeapList.putDoubles(times, values, null, 0, 1000);
+    Assert.assertEquals(1990, offHeapList.rowCount());
+    Assert.assertEquals(999, offHeapList.getTime(1989));
+    Assert.assertEquals(499.5, offHeapList.getDouble(1989), 0);
+    offHeapList.clear();
+  }
+
+  @Test
+  public void testDeleteAndCloneOnWrite() {
+    OffHeapLongTVList tvList = new OffHeapLongTVList();
+    for (long i = 0; i < 1000; i++) {
+      tvList.putLong(i, i);
+    }
+    TVList cloneList = tvList.cloneOnWrite();
+    Assert.assertEquals(100, cloneList.delete(100, 199));
+    Assert.assertEquals(900, cloneList.rowCount());
+    for (int i = 0; i < cloneList.rowCount(); i++) {
+      long expected = i < 100 ? i : i + 100;
+      Assert.assertEquals(expected, cloneList.getTime(i));
+      Assert.assertEquals(expected, cloneList.getLong(i));
+    }
+    // the origin list is not modified by the clone
+    for (int i = 0; i < tvList.rowCount(); i++) {
+      Assert.assertEquals(i, tvList.getTime(i));
+      Assert.assertEquals(i, tvList.getLong(i));
+    }
+    cloneList.clear();
+    tvList.clear();
+  }
+
+  @Test
+  public void testDeleteTailOfSharedArray() {
+    OffHeapLongTVList tvList = new OffHeapLongTVList();
+    for (long i = 0; i < ARRAY_SIZE * 2; i++) {
+      tvList.putLong(i, i);
+    }
+    TVList cloneList = tvList.cloneOnWrite();
+    // the deletion ends inside the second shared slab without moving any row
+    cloneList.delete(ARRAY_SIZE + 10, Long.MAX_VALUE);
+    cloneList.putLong(-1, -1);
+    Assert.assertEquals(ARRAY_SIZE + 11, cloneList.rowCount());
+    Assert.assertEquals(-1, cloneList.getTime(ARRAY_SIZE + 10));
+    for (int i = 0; i < tvList.rowCount(); i++) {
+      Assert.assertEquals(i, tvList.getTime(i));
+      Assert.assertEquals(i, tvList.getLong(i));
+    }
+    cloneList.clear();
+    tvList.clear();
+  }
+
+  @Test
+  public void testClearAbandonedListWhenReleased() {
+    OffHeapLongTVList tvList = new OffHeapLongTVList();
+    for (long i = 0; i < ARRAY_SIZE * 2; i++) {
+      tvList.putLong(i, i);
+    }
+    // held by a query, then replaced by a clone in the mem chunk
+    tvList.increaseReferenceCount();
+    TVList cloneList = tvList.cloneOnWrite();
+    tvList.abandon();
+    Assert.assertEquals(ARRAY_SIZE * 2, tvList.rowCount());
+
+    // the clone no longer shares slabs with the list, but the query still reads it
+    cloneList.abandon();
+    Assert.assertEquals(0, cloneList.rowCount());
+    Assert.assertEquals(1, tvList.getReferenceCount());
+    Assert.assertEquals(ARRAY_SIZE * 2 - 1, tvList.getLong(ARRAY_SIZE * 2 - 1));
+
+    tvList.decreaseReferenceCount();
+    Assert.assertEquals(0, tvList.rowCount());
+  }
+
+  private static void put(TVList tvList, long time, int value) {
+    switch (tvList.getDataType()) {
+      case INT64:
+        tvList.putLong(time, value);
+        break;
+      case INT32:
+        tvList.putInt(time, value);
+        break;
+      case FLOAT:
+        tvList.putFloat(time, value / 3.0f);
+        break;
+      case DOUBLE:
+        tvList.putDouble(time, value / 3.0);
+        break;
+      default:
+        tvList.putBoolean(time, value % 2 == 0);
+        break;
+    }
+  }
+
+  private static void assertSame(TVList expected, TVList actual) {
+    Assert.assertEquals(expected.rowCount(), actual.rowCount());
+    Assert.assertEquals(expected.getMinTime(), actual.getMinTime());
+    for (int i = 0; i < expected.rowCount(); i++) {
+      Assert.assertEquals(expected.getTimeValuePair(i), actual.getTimeValuePair(i));
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.wal.buffer;
+
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RingWALBufferTest extends WALBufferCommonTest {
+  @Before
+  public void setUp() throws Exception {
+    EnvironmentUtils.cleanDir(logDirectory);
+    walBuffer = new RingWALBuffer(identifier, logDirectory);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    super.tearDown();
+    EnvironmentUtils.cleanDir(logDirectory);
+  }
+
+  @Override
+  @Test
+  public void testHugeWrite() throws Exception {
+    // the ring capacity is read when the buffer is created, so recreate it with a small ring to
+    // make entries wrap around the ring and stream through it
+    walBuffer.close();
+    EnvironmentUtils.cleanDir(logDirectory);
+    int prevWalBufferSize = config.getWalBufferSize();
+    config.setWalBufferSize(32);
+    try {
+      walBuffer = new RingWALBuffer(identifier, logDirectory);
+      testConcurrentWrite();
+    } finally {
+      config.setWalBufferSize(prevWalBufferSize);
+    }
+  }
+}
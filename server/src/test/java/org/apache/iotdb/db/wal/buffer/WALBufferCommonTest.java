@@ -25,6 +25,7 @@ import org.apache.iotdb.db.metadata.path.PartialPath;
 import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
 import org.apache.iotdb.db.wal.io.WALReader;
 import org.apache.iotdb.db.wal.io.WALWriter;
+import org.apache.iotdb.db.wal.utils.listener.AbstractResultListener;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 
 import org.junit.After;
@@ -144,6 +145,25 @@ public abstract class WALBufferCommonTest {
         columns);
   }
 
+  @Test
+  public void testWaitingWritersNumWithSignals() throws Exception {
+    Set<InsertRowPlan> expectedInsertRowPlans = new HashSet<>();
+    writeInsertRowPlan(0, expectedInsertRowPlans);
+    SignalWALEntry rollSignal =
+        new SignalWALEntry(SignalWALEntry.SignalType.ROLL_WAL_LOG_WRITER_SIGNAL, true);
+    walBuffer.write(rollSignal);
+    writeInsertRowPlan(1, expectedInsertRowPlans);
+    assertEquals(
+        AbstractResultListener.Status.SUCCESS, rollSignal.getWalFlushListener().waitForResult());
+    // signals are not counted, so the number drops back to 0 once all WALEntries are fsynced
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (((AbstractWALBuffer) walBuffer).getWaitingWritersNum() != 0
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, ((AbstractWALBuffer) walBuffer).getWaitingWritersNum());
+  }
+
   @Test
   public void testHugeWrite() throws Exception {
     // use small buffer (only 32 bytes) to simulate huge write request
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.wal.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveFsyncPolicyTest {
+  private static final long MAX_DELAY_IN_MS = 10;
+
+  @Test
+  public void testNotAdaptive() {
+    AdaptiveFsyncPolicy policy = new AdaptiveFsyncPolicy(false, MAX_DELAY_IN_MS);
+    policy.onBatchFsynced(1, TimeUnit.MILLISECONDS.toNanos(1));
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(MAX_DELAY_IN_MS), policy.getDelayInNanos());
+    assertEquals(Integer.MAX_VALUE, policy.getExpectedBatchSize());
+  }
+
+  @Test
+  public void testLowArrivalRate() throws InterruptedException {
+    AdaptiveFsyncPolicy policy = new AdaptiveFsyncPolicy(true, MAX_DELAY_IN_MS);
+    // one entry every 20ms with 100us fsync, waiting cannot enlarge the batch
+    for (int i = 0; i < 3; ++i) {
+      Thread.sleep(20);
+      policy.onBatchFsynced(1, TimeUnit.MICROSECONDS.toNanos(100));
+    }
+    assertEquals(0, policy.getDelayInNanos());
+    assertEquals(1, policy.getExpectedBatchSize());
+  }
+
+  @Test
+  public void testHighArrivalRate() throws InterruptedException {
+    AdaptiveFsyncPolicy policy = new AdaptiveFsyncPolicy(true, MAX_DELAY_IN_MS);
+    // 1000 entries every ~2ms with 2ms fsync, about one fsync latency should be waited
+    long fsyncCost = TimeUnit.MILLISECONDS.toNanos(2);
+    for (int i = 0; i < 3; ++i) {
+      Thread.sleep(2);
+      policy.onBatchFsynced(1000, fsyncCost);
+    }
+    assertEquals(fsyncCost, policy.getDelayInNanos());
+    assertTrue(policy.getExpectedBatchSize() > 1);
+
+    // the delay is bounded by the configured fsync delay
+    long slowFsyncCost = TimeUnit.MILLISECONDS.toNanos(100);
+    for (int i = 0; i < 20; ++i) {
+      policy.onBatchFsynced(1000, slowFsyncCost);
+    }
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(MAX_DELAY_IN_MS), policy.getDelayInNanos());
+  }
+}
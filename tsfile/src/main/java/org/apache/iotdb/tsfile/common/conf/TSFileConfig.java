@@ -60,7 +60,12 @@ public class TSFileConfig implements Serializable {
   public static final String VERSION_NUMBER_V2 = "000002";
   public static final String VERSION_NUMBER_V1 = "000001";
   /** version number is changed to use 1 byte to represent since version 3 */
-  public static final byte VERSION_NUMBER = 0x03;
+  public static final byte VERSION_NUMBER_V3 = 0x03;
+  /**
+   * version 4 adds the chunk metadata extensions of TimeseriesMetadata, which the readers of version
+   * 3 would misparse. Files of version 3 are still read as they are.
+   */
+  public static final byte VERSION_NUMBER = 0x04;
 
   /** Bloom filter constrain */
   public static final double MIN_BLOOM_FILTER_ERROR_RATE = 0.01;
@@ -77,6 +82,16 @@ public class TSFileConfig implements Serializable {
   private int maxNumberOfPointsInPage = 1024 * 1024;
   /** The maximum degree of a metadataIndex node, default value is 256 */
   private int maxDegreeOfIndexNode = 256;
+  /**
+   * Whether to store the offsets and headers of the pages of a chunk in its ChunkMetadata, so that
+   * readers can skip pages by their statistics without reading the whole chunk.
+   */
+  private boolean enablePageIndex = false;
+  /**
+   * Whether to store the fixed-interval runs of the timestamps of a chunk in its ChunkMetadata, so
+   * that readers can compute the timestamps instead of decoding them.
+   */
+  private boolean enableRegularTimeIndex = false;
   /** Data type for input timestamp, TsFile supports INT64. */
   private TSDataType timeSeriesDataType = TSDataType.INT64;
   /** Max length limitation of input string. */
@@ -111,14 +126,23 @@ public class TSFileConfig implements Serializable {
   private double freqEncodingSNR = 40;
   /** Default block size for FREQ encoding is 1024. */
   private int freqEncodingBlockSize = 1024;
-  /** Data compression method, TsFile supports UNCOMPRESSED, SNAPPY or LZ4. */
+  /** Data compression method, TsFile supports UNCOMPRESSED, SNAPPY, LZ4 or ZSTD. */
   private CompressionType compressor = CompressionType.SNAPPY;
+  /** Compression level of ZSTD, higher levels compress better but slower. */
+  private int zstdCompressionLevel = 3;
+  /**
+   * Maximum size in bytes of the ZSTD dictionary trained for each series during compaction. The
+   * dictionaries are kept in the file metadata. 0 disables training.
+   */
+  private int zstdDictionarySize = 0;
   /** Line count threshold for checking page memory occupied size. */
   private int pageCheckSizeThreshold = 100;
   /** Default endian value is BIG_ENDIAN. */
   private String endian = "BIG_ENDIAN";
   /** Default storage is in local file system */
   private FSType TSFileStorageFs = FSType.LOCAL;
+  /** Whether sealed TsFiles on the local file system are read through memory-mapped regions. */
+  private boolean enableMmapRead = false;
   /** Default core-site.xml file path is /etc/hadoop/conf/core-site.xml */
   private String coreSitePath = "/etc/hadoop/conf/core-site.xml";
   /** Default hdfs-site.xml file path is /etc/hadoop/conf/hdfs-site.xml */
@@ -184,6 +208,22 @@ public class TSFileConfig implements Serializable {
     this.maxDegreeOfIndexNode = maxDegreeOfIndexNode;
   }
 
+  public boolean isEnablePageIndex() {
+    return enablePageIndex;
+  }
+
+  public void setEnablePageIndex(boolean enablePageIndex) {
+    this.enablePageIndex = enablePageIndex;
+  }
+
+  public boolean isEnableRegularTimeIndex() {
+    return enableRegularTimeIndex;
+  }
+
+  public void setEnableRegularTimeIndex(boolean enableRegularTimeIndex) {
+    this.enableRegularTimeIndex = enableRegularTimeIndex;
+  }
+
   public TSDataType getTimeSeriesDataType() {
     return timeSeriesDataType;
   }
@@ -288,6 +328,22 @@ public class TSFileConfig implements Serializable {
     this.compressor = CompressionType.valueOf(compressor);
   }
 
+  public int getZstdCompressionLevel() {
+    return zstdCompressionLevel;
+  }
+
+  public void setZstdCompressionLevel(int zstdCompressionLevel) {
+    this.zstdCompressionLevel = zstdCompressionLevel;
+  }
+
+  public int getZstdDictionarySize() {
+    return zstdDictionarySize;
+  }
+
+  public void setZstdDictionarySize(int zstdDictionarySize) {
+    this.zstdDictionarySize = zstdDictionarySize;
+  }
+
   public int getPageCheckSizeThreshold() {
     return pageCheckSizeThreshold;
   }
@@ -340,6 +396,14 @@ public class TSFileConfig implements Serializable {
     return this.TSFileStorageFs;
   }
 
+  public boolean isEnableMmapRead() {
+    return enableMmapRead;
+  }
+
+  public void setEnableMmapRead(boolean enableMmapRead) {
+    this.enableMmapRead = enableMmapRead;
+  }
+
   public void setTSFileStorageFs(FSType fileStorageFs) {
     this.TSFileStorageFs = fileStorageFs;
   }
@@ -75,14 +75,19 @@ public class TSFileDescriptor {
     }
     writer.setInt(conf::setMaxNumberOfPointsInPage, "max_number_of_points_in_page");
     writer.setInt(conf::setMaxDegreeOfIndexNode, "max_degree_of_index_node");
+    writer.setBoolean(conf::setEnablePageIndex, "enable_page_index");
+    writer.setBoolean(conf::setEnableRegularTimeIndex, "enable_regular_time_index");
     writer.setInt(conf::setMaxStringLength, "max_string_length");
     writer.setInt(conf::setFloatPrecision, "float_precision");
     writer.setString(conf::setTimeEncoder, "time_encoder");
     writer.setString(conf::setValueEncoder, "value_encoder");
     writer.setString(conf::setCompressor, "compressor");
+    writer.setInt(conf::setZstdCompressionLevel, "zstd_compression_level");
+    writer.setInt(conf::setZstdDictionarySize, "zstd_dictionary_size");
     writer.setInt(conf::setBatchSize, "batch_size");
     writer.setInt(conf::setFreqEncodingBlockSize, "freq_block_size");
     writer.setDouble(conf::setFreqEncodingSNR, "freq_snr");
+    writer.setBoolean(conf::setEnableMmapRead, "enable_mmap_read");
   }
 
   private class PropertiesOverWriter {
@@ -104,6 +109,10 @@ public class TSFileDescriptor {
       set(setter, propertyKey, Double::parseDouble);
     }
 
+    public void setBoolean(Consumer<Boolean> setter, String propertyKey) {
+      set(setter, propertyKey, Boolean::parseBoolean);
+    }
+
     public void setString(Consumer<String> setter, String propertyKey) {
       set(setter, propertyKey, Function.identity());
     }
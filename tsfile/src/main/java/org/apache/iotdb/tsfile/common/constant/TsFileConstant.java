@@ -32,6 +32,24 @@ public class TsFileConstant {
 
   public static final byte TIME_COLUMN_MASK = (byte) 0x80;
   public static final byte VALUE_COLUMN_MASK = (byte) 0x40;
+  /**
+   * set in the type of a TimeseriesMetadata that is followed by a byte of flags telling which
+   * extensions its ChunkMetadata carry, since version 4
+   */
+  public static final byte CHUNK_METADATA_EXTENSION_MASK = (byte) 0x20;
+  /** the bits of the type of a TimeseriesMetadata that tell whether it has more than one chunk */
+  public static final byte CHUNK_NUM_MASK = (byte) 0x1F;
+
+  /**
+   * set in the chunk metadata extensions of a TimeseriesMetadata whose ChunkMetadata carry page
+   * indexes
+   */
+  public static final byte PAGE_INDEX_EXTENSION = (byte) 0x01;
+  /**
+   * set in the chunk metadata extensions of a TimeseriesMetadata whose ChunkMetadata carry regular
+   * time indexes
+   */
+  public static final byte REGULAR_TIME_INDEX_EXTENSION = (byte) 0x02;
 
   private TsFileConstant() {}
 }
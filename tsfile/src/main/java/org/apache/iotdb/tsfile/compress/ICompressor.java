@@ -19,10 +19,13 @@
 
 package org.apache.iotdb.tsfile.compress;
 
+import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
 import org.apache.iotdb.tsfile.exception.compress.CompressionTypeNotSupportedException;
 import org.apache.iotdb.tsfile.exception.compress.GZIPCompressOverflowException;
 import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
 import net.jpountz.lz4.LZ4Compressor;
 import net.jpountz.lz4.LZ4Factory;
 import org.xerial.snappy.Snappy;
@@ -32,12 +35,14 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 import static org.apache.iotdb.tsfile.file.metadata.enums.CompressionType.GZIP;
 import static org.apache.iotdb.tsfile.file.metadata.enums.CompressionType.LZ4;
 import static org.apache.iotdb.tsfile.file.metadata.enums.CompressionType.SNAPPY;
+import static org.apache.iotdb.tsfile.file.metadata.enums.CompressionType.ZSTD;
 
 /** compress data according to type in schema. */
 public interface ICompressor extends Serializable {
@@ -65,6 +70,8 @@ public interface ICompressor extends Serializable {
         return new IOTDBLZ4Compressor();
       case GZIP:
         return new GZIPCompressor();
+      case ZSTD:
+        return new ZstdCompressor();
       default:
         throw new CompressionTypeNotSupportedException(name.toString());
     }
@@ -311,4 +318,129 @@ public interface ICompressor extends Serializable {
       return GZIP;
     }
   }
+
+  class ZstdCompressor implements ICompressor {
+
+    private final int compressionLevel;
+
+    /** the trained dictionary to compress with, null to compress without a dictionary */
+    private final ZstdDictCompress dictionary;
+
+    public ZstdCompressor() {
+      this(TSFileDescriptor.getInstance().getConfig().getZstdCompressionLevel());
+    }
+
+    public ZstdCompressor(int compressionLevel) {
+      this.compressionLevel = compressionLevel;
+      this.dictionary = null;
+    }
+
+    /**
+     * @param dictionary a trained dictionary, see {@link ZstdDictionaries}. The frames record its
+     *     id, so it must be stored in the file before they can be read.
+     */
+    public ZstdCompressor(byte[] dictionary) {
+      this.compressionLevel = TSFileDescriptor.getInstance().getConfig().getZstdCompressionLevel();
+      this.dictionary = new ZstdDictCompress(dictionary, compressionLevel);
+    }
+
+    @Override
+    public byte[] compress(byte[] data) throws IOException {
+      if (data == null) {
+        return new byte[0];
+      }
+      return compress(data, 0, data.length);
+    }
+
+    @Override
+    public byte[] compress(byte[] data, int offset, int length) throws IOException {
+      byte[] maxCompressed = new byte[getMaxBytesForCompression(length)];
+      int compressedSize = compress(data, offset, length, maxCompressed);
+      return compressedSize < maxCompressed.length
+          ? Arrays.copyOf(maxCompressed, compressedSize)
+          : maxCompressed;
+    }
+
+    @Override
+    public int compress(byte[] data, int offset, int length, byte[] compressed) throws IOException {
+      if (dictionary != null) {
+        return checkResult(Zstd.compressFastDict(compressed, 0, data, offset, length, dictionary));
+      }
+      return checkResult(
+          Zstd.compressByteArray(
+              compressed, 0, compressed.length, data, offset, length, compressionLevel));
+    }
+
+    /** Compress from the position to the limit of data, into compressed from its position. */
+    @Override
+    public int compress(ByteBuffer data, ByteBuffer compressed) throws IOException {
+      int compressedSize;
+      if (data.isDirect() && compressed.isDirect() && dictionary != null) {
+        compressedSize =
+            checkResult(
+                Zstd.compressDirectByteBufferFastDict(
+                    compressed,
+                    compressed.position(),
+                    compressed.remaining(),
+                    data,
+                    data.position(),
+                    data.remaining(),
+                    dictionary));
+      } else if (data.isDirect() && compressed.isDirect()) {
+        compressedSize =
+            checkResult(
+                Zstd.compressDirectByteBuffer(
+                    compressed,
+                    compressed.position(),
+                    compressed.remaining(),
+                    data,
+                    data.position(),
+                    data.remaining(),
+                    compressionLevel));
+      } else if (data.hasArray() && compressed.hasArray() && dictionary != null) {
+        compressedSize =
+            checkResult(
+                Zstd.compressFastDict(
+                    compressed.array(),
+                    compressed.arrayOffset() + compressed.position(),
+                    data.array(),
+                    data.arrayOffset() + data.position(),
+                    data.remaining(),
+                    dictionary));
+      } else if (data.hasArray() && compressed.hasArray()) {
+        compressedSize =
+            checkResult(
+                Zstd.compressByteArray(
+                    compressed.array(),
+                    compressed.arrayOffset() + compressed.position(),
+                    compressed.remaining(),
+                    data.array(),
+                    data.arrayOffset() + data.position(),
+                    data.remaining(),
+                    compressionLevel));
+      } else {
+        throw new IOException("ZstdCompressor does not support mixed heap and direct buffers");
+      }
+      data.position(data.limit());
+      compressed.position(compressed.position() + compressedSize);
+      return compressedSize;
+    }
+
+    @Override
+    public int getMaxBytesForCompression(int uncompressedDataSize) {
+      return (int) Zstd.compressBound(uncompressedDataSize);
+    }
+
+    @Override
+    public CompressionType getType() {
+      return ZSTD;
+    }
+
+    static int checkResult(long result) throws IOException {
+      if (Zstd.isError(result)) {
+        throw new IOException("ZSTD error: " + Zstd.getErrorName(result));
+      }
+      return (int) result;
+    }
+  }
 }
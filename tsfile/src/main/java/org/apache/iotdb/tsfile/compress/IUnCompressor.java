@@ -22,6 +22,8 @@ package org.apache.iotdb.tsfile.compress;
 import org.apache.iotdb.tsfile.exception.compress.CompressionTypeNotSupportedException;
 import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictDecompress;
 import net.jpountz.lz4.LZ4Compressor;
 import net.jpountz.lz4.LZ4Factory;
 import net.jpountz.lz4.LZ4SafeDecompressor;
@@ -54,6 +56,8 @@ public interface IUnCompressor {
         return new LZ4UnCompressor();
       case GZIP:
         return new GZIPUnCompressor();
+      case ZSTD:
+        return new ZstdUnCompressor();
       default:
         throw new CompressionTypeNotSupportedException(name.toString());
     }
@@ -89,6 +93,26 @@ public interface IUnCompressor {
   int uncompress(byte[] byteArray, int offset, int length, byte[] output, int outOffset)
       throws IOException;
 
+  /**
+   * uncompress the remaining bytes of the compressed buffer, which may be a direct buffer, without
+   * changing its position.
+   *
+   * @return the valid length of the output array
+   */
+  default int uncompress(ByteBuffer compressed, byte[] output, int outOffset) throws IOException {
+    if (compressed.hasArray()) {
+      return uncompress(
+          compressed.array(),
+          compressed.arrayOffset() + compressed.position(),
+          compressed.remaining(),
+          output,
+          outOffset);
+    }
+    byte[] compressedBytes = new byte[compressed.remaining()];
+    compressed.duplicate().get(compressedBytes);
+    return uncompress(compressedBytes, 0, compressedBytes.length, output, outOffset);
+  }
+
   /**
    * if the data is large, using this function is better.
    *
@@ -236,7 +260,7 @@ public interface IUnCompressor {
     public int uncompress(byte[] byteArray, int offset, int length, byte[] output, int outOffset)
         throws IOException {
       try {
-        return decompressor.decompress(byteArray, offset, length, output, offset);
+        return decompressor.decompress(byteArray, offset, length, output, outOffset);
       } catch (RuntimeException e) {
         logger.error(UNCOMPRESS_INPUT_ERROR, e);
         throw new IOException(e);
@@ -312,4 +336,132 @@ public interface IUnCompressor {
       return CompressionType.GZIP;
     }
   }
+
+  class ZstdUnCompressor implements IUnCompressor {
+
+    /** the dictionaries the frames may use, null if they use none */
+    private final ZstdDictionaries dictionaries;
+
+    public ZstdUnCompressor() {
+      this(null);
+    }
+
+    public ZstdUnCompressor(ZstdDictionaries dictionaries) {
+      this.dictionaries = dictionaries;
+    }
+
+    /** @return the dictionary the frame was compressed with, or null if it uses none */
+    private ZstdDictDecompress getDictionary(ByteBuffer frame) throws IOException {
+      if (dictionaries == null) {
+        return null;
+      }
+      int dictionaryId = ZstdDictionaries.getDictionaryIdOfFrame(frame);
+      return dictionaryId == 0 ? null : dictionaries.getDecompressDictionary(dictionaryId);
+    }
+
+    @Override
+    public int getUncompressedLength(byte[] array, int offset, int length) throws IOException {
+      return checkContentSize(Zstd.getFrameContentSize(array, offset, length));
+    }
+
+    @Override
+    public int getUncompressedLength(ByteBuffer buffer) throws IOException {
+      if (buffer.hasArray()) {
+        return getUncompressedLength(
+            buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+      }
+      return checkContentSize(
+          Zstd.getDirectByteBufferFrameContentSize(buffer, buffer.position(), buffer.remaining()));
+    }
+
+    /**
+     * Frames written by ZstdCompressor always record their content size. A negative size means the
+     * size is unknown or the frame header is invalid, and a size beyond int cannot be uncompressed
+     * into an array.
+     */
+    private static int checkContentSize(long contentSize) throws IOException {
+      if (contentSize < 0 || contentSize > Integer.MAX_VALUE) {
+        throw new IOException("ZSTD frame content size is unknown or invalid: " + contentSize);
+      }
+      return (int) contentSize;
+    }
+
+    @Override
+    public byte[] uncompress(byte[] byteArray) throws IOException {
+      if (byteArray == null) {
+        return new byte[0];
+      }
+      byte[] output = new byte[getUncompressedLength(byteArray, 0, byteArray.length)];
+      uncompress(byteArray, 0, byteArray.length, output, 0);
+      return output;
+    }
+
+    @Override
+    public int uncompress(byte[] byteArray, int offset, int length, byte[] output, int outOffset)
+        throws IOException {
+      ZstdDictDecompress dictionary = getDictionary(ByteBuffer.wrap(byteArray, offset, length));
+      if (dictionary != null) {
+        return ICompressor.ZstdCompressor.checkResult(
+            Zstd.decompressFastDict(output, outOffset, byteArray, offset, length, dictionary));
+      }
+      return ICompressor.ZstdCompressor.checkResult(
+          Zstd.decompressByteArray(
+              output, outOffset, output.length - outOffset, byteArray, offset, length));
+    }
+
+    /**
+     * Uncompress from the position to the limit of compressed, into uncompressed from its position,
+     * without copying either buffer. Both buffers must be direct or both heap buffers.
+     */
+    @Override
+    public int uncompress(ByteBuffer compressed, ByteBuffer uncompressed) throws IOException {
+      if (compressed == null || !compressed.hasRemaining()) {
+        return 0;
+      }
+      int uncompressedSize;
+      ZstdDictDecompress dictionary;
+      if (compressed.isDirect()
+          && uncompressed.isDirect()
+          && (dictionary = getDictionary(compressed)) != null) {
+        uncompressedSize =
+            ICompressor.ZstdCompressor.checkResult(
+                Zstd.decompressDirectByteBufferFastDict(
+                    uncompressed,
+                    uncompressed.position(),
+                    uncompressed.remaining(),
+                    compressed,
+                    compressed.position(),
+                    compressed.remaining(),
+                    dictionary));
+      } else if (compressed.isDirect() && uncompressed.isDirect()) {
+        uncompressedSize =
+            ICompressor.ZstdCompressor.checkResult(
+                Zstd.decompressDirectByteBuffer(
+                    uncompressed,
+                    uncompressed.position(),
+                    uncompressed.remaining(),
+                    compressed,
+                    compressed.position(),
+                    compressed.remaining()));
+      } else if (compressed.hasArray() && uncompressed.hasArray()) {
+        uncompressedSize =
+            uncompress(
+                compressed.array(),
+                compressed.arrayOffset() + compressed.position(),
+                compressed.remaining(),
+                uncompressed.array(),
+                uncompressed.arrayOffset() + uncompressed.position());
+      } else {
+        throw new IOException("ZstdUnCompressor does not support mixed heap and direct buffers");
+      }
+      compressed.position(compressed.limit());
+      uncompressed.position(uncompressed.position() + uncompressedSize);
+      return uncompressedSize;
+    }
+
+    @Override
+    public CompressionType getCodecName() {
+      return CompressionType.ZSTD;
+    }
+  }
 }
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.compress;
+
+import org.apache.iotdb.tsfile.utils.ReadWriteForEncodingUtils;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+
+import com.github.luben.zstd.ZstdDictDecompress;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The trained ZSTD dictionaries of a TsFile, by their ids. A ZSTD frame records the id of the
+ * dictionary it was compressed with, so the pages of a file may use different dictionaries, or none
+ * at all.
+ */
+public class ZstdDictionaries {
+
+  private static final int DICTIONARY_MAGIC = 0xEC30A437;
+  private static final int FRAME_MAGIC = 0xFD2FB528;
+  /** ids below this are reserved by the ZSTD format */
+  private static final int MIN_DICTIONARY_ID = 32768;
+
+  private final Map<Integer, byte[]> dictionaries = new LinkedHashMap<>();
+
+  /** the digested dictionaries used to uncompress, built when first used */
+  private final Map<Integer, ZstdDictDecompress> decompressDictionaries = new ConcurrentHashMap<>();
+
+  /**
+   * Add a dictionary. A dictionary with the same id and the same content is added only once.
+   *
+   * @return false if there is already another dictionary with the id of the given one
+   */
+  public boolean add(byte[] dictionary) {
+    byte[] existing = dictionaries.putIfAbsent(getDictionaryId(dictionary), dictionary);
+    return existing == null || Arrays.equals(existing, dictionary);
+  }
+
+  /**
+   * Add a dictionary, changing its id first if it is used by another dictionary. Only dictionaries
+   * that have not compressed any frame yet may be renumbered.
+   *
+   * @return the given dictionary, or a copy of it with a free id
+   */
+  public byte[] addOrRenumber(byte[] dictionary) {
+    int id = getDictionaryId(dictionary);
+    while (!add(dictionary)) {
+      // ids are hashes of the contents, so a clash is rare and the next id is likely free
+      id = id == Integer.MAX_VALUE ? MIN_DICTIONARY_ID : id + 1;
+      dictionary = withDictionaryId(dictionary, id);
+    }
+    return dictionary;
+  }
+
+  /** @return false if the given dictionaries clash with those added */
+  public boolean addAll(ZstdDictionaries other) {
+    for (byte[] dictionary : other.dictionaries.values()) {
+      if (!add(dictionary)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public boolean isEmpty() {
+    return dictionaries.isEmpty();
+  }
+
+  public int size() {
+    return dictionaries.size();
+  }
+
+  public Collection<byte[]> getDictionaries() {
+    return Collections.unmodifiableCollection(dictionaries.values());
+  }
+
+  ZstdDictDecompress getDecompressDictionary(int id) throws IOException {
+    ZstdDictDecompress dictionary = decompressDictionaries.get(id);
+    if (dictionary == null) {
+      byte[] bytes = dictionaries.get(id);
+      if (bytes == null) {
+        throw new IOException("ZSTD frame needs dictionary " + id + " which is not in the file");
+      }
+      dictionary = decompressDictionaries.computeIfAbsent(id, key -> new ZstdDictDecompress(bytes));
+    }
+    return dictionary;
+  }
+
+  /** @return an uncompressor for ZSTD frames that may use these dictionaries */
+  public IUnCompressor getUnCompressor() {
+    return new IUnCompressor.ZstdUnCompressor(this);
+  }
+
+  public int serializeTo(OutputStream outputStream) throws IOException {
+    int byteLen = ReadWriteForEncodingUtils.writeUnsignedVarInt(dictionaries.size(), outputStream);
+    for (byte[] dictionary : dictionaries.values()) {
+      byteLen += ReadWriteForEncodingUtils.writeUnsignedVarInt(dictionary.length, outputStream);
+      outputStream.write(dictionary);
+      byteLen += dictionary.length;
+    }
+    return byteLen;
+  }
+
+  public static ZstdDictionaries deserializeFrom(ByteBuffer buffer) {
+    ZstdDictionaries zstdDictionaries = new ZstdDictionaries();
+    int size = ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
+    for (int i = 0; i < size; i++) {
+      int length = ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
+      zstdDictionaries.add(ReadWriteIOUtils.readBytes(buffer, length));
+    }
+    return zstdDictionaries;
+  }
+
+  /** the id stored in the header of a trained dictionary */
+  public static int getDictionaryId(byte[] dictionary) {
+    ByteBuffer buffer = ByteBuffer.wrap(dictionary).order(ByteOrder.LITTLE_ENDIAN);
+    if (dictionary.length < 8 || buffer.getInt(0) != DICTIONARY_MAGIC) {
+      throw new IllegalArgumentException("Not a trained ZSTD dictionary");
+    }
+    return buffer.getInt(4);
+  }
+
+  private static byte[] withDictionaryId(byte[] dictionary, int id) {
+    byte[] renumbered = dictionary.clone();
+    ByteBuffer.wrap(renumbered).order(ByteOrder.LITTLE_ENDIAN).putInt(4, id);
+    return renumbered;
+  }
+
+  /**
+   * Read the dictionary id from the header of the ZSTD frame that starts at the position of the
+   * buffer, without changing the position.
+   *
+   * @return the dictionary id, 0 if the frame uses no dictionary
+   */
+  static int getDictionaryIdOfFrame(ByteBuffer frame) throws IOException {
+    ByteBuffer header = frame.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    int position = header.position();
+    if (header.remaining() < 5 || header.getInt(position) != FRAME_MAGIC) {
+      throw new IOException("Invalid ZSTD frame header");
+    }
+    byte descriptor = header.get(position + 4);
+    boolean singleSegment = (descriptor & 0x20) != 0;
+    // the window descriptor is absent in single segment frames
+    int idPosition = position + 5 + (singleSegment ? 0 : 1);
+    switch (descriptor & 0x03) {
+      case 0:
+        return 0;
+      case 1:
+        return header.get(idPosition) & 0xFF;
+      case 2:
+        return header.getShort(idPosition) & 0xFFFF;
+      default:
+        return header.getInt(idPosition);
+    }
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.encoding.decoder;
+
+import org.apache.iotdb.tsfile.encoding.encoder.AlpEncoder;
+import org.apache.iotdb.tsfile.exception.encoding.TsFileDecodingException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.utils.ReadWriteForEncodingUtils;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decoder for FLOAT and DOUBLE encoded by {@link AlpEncoder}. A whole block is decoded at once with
+ * a tight unpacking loop, so that bulk reads only need to copy the decoded values.
+ */
+public class AlpDecoder extends Decoder {
+
+  private static final double[] EXP10 = new double[AlpEncoder.MAX_DOUBLE_EXPONENT + 1];
+
+  private static final double[] FRAC10 = new double[AlpEncoder.MAX_DOUBLE_EXPONENT + 1];
+
+  static {
+    for (int i = 0; i <= AlpEncoder.MAX_DOUBLE_EXPONENT; i++) {
+      EXP10[i] = Double.parseDouble("1e" + i);
+      FRAC10[i] = Double.parseDouble("1e-" + i);
+    }
+  }
+
+  private final boolean isFloat;
+
+  private final double[] data = new double[AlpEncoder.BLOCK_SIZE];
+
+  private int readTotalCount = 0;
+
+  private int nextReadIndex = 0;
+
+  public AlpDecoder(TSDataType dataType) {
+    super(TSEncoding.ALP);
+    switch (dataType) {
+      case FLOAT:
+        isFloat = true;
+        break;
+      case DOUBLE:
+        isFloat = false;
+        break;
+      default:
+        throw new TsFileDecodingException("ALP doesn't support data type: " + dataType);
+    }
+  }
+
+  @Override
+  public double readDouble(ByteBuffer buffer) {
+    if (nextReadIndex == readTotalCount) {
+      loadBlock(buffer);
+    }
+    return data[nextReadIndex++];
+  }
+
+  @Override
+  public float readFloat(ByteBuffer buffer) {
+    return (float) readDouble(buffer);
+  }
+
+  @Override
+  public int readDoubles(ByteBuffer buffer, double[] values, int offset, int length) {
+    int count = 0;
+    while (count < length && hasNext(buffer)) {
+      if (nextReadIndex == readTotalCount) {
+        loadBlock(buffer);
+      }
+      int n = Math.min(length - count, readTotalCount - nextReadIndex);
+      System.arraycopy(data, nextReadIndex, values, offset + count, n);
+      nextReadIndex += n;
+      count += n;
+    }
+    return count;
+  }
+
+  @Override
+  public int readFloats(ByteBuffer buffer, float[] values, int offset, int length) {
+    int count = 0;
+    while (count < length && hasNext(buffer)) {
+      if (nextReadIndex == readTotalCount) {
+        loadBlock(buffer);
+      }
+      int n = Math.min(length - count, readTotalCount - nextReadIndex);
+      for (int i = 0; i < n; i++) {
+        values[offset + count + i] = (float) data[nextReadIndex + i];
+      }
+      nextReadIndex += n;
+      count += n;
+    }
+    return count;
+  }
+
+  @Override
+  public boolean hasNext(ByteBuffer buffer) {
+    return nextReadIndex < readTotalCount || buffer.hasRemaining();
+  }
+
+  @Override
+  public void reset() {
+    nextReadIndex = 0;
+    readTotalCount = 0;
+  }
+
+  private void loadBlock(ByteBuffer buffer) {
+    int count = ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
+    int mode = buffer.get();
+    readTotalCount = count;
+    nextReadIndex = 0;
+    if (mode == AlpEncoder.MODE_PLAIN) {
+      for (int i = 0; i < count; i++) {
+        data[i] = readRawValue(buffer);
+      }
+      return;
+    }
+    if (mode != AlpEncoder.MODE_FOR && mode != AlpEncoder.MODE_DELTA) {
+      throw new TsFileDecodingException("Unknown ALP block mode: " + mode);
+    }
+    // d * 10^f / 10^e
+    double frac = FRAC10[buffer.get()];
+    double exp = EXP10[buffer.get()];
+    if (mode == AlpEncoder.MODE_DELTA) {
+      long first = buffer.getLong();
+      long min = buffer.getLong();
+      int bitWidth = buffer.get();
+      unpackDelta(buffer, count, first, min, bitWidth, exp, frac);
+    } else {
+      long min = buffer.getLong();
+      int bitWidth = buffer.get();
+      unpack(buffer, count, min, bitWidth, exp, frac);
+    }
+    int exceptionCount = ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
+    for (int i = 0; i < exceptionCount; i++) {
+      int position = ReadWriteIOUtils.readShort(buffer) & 0xffff;
+      data[position] = readRawValue(buffer);
+    }
+  }
+
+  private double readRawValue(ByteBuffer buffer) {
+    return isFloat
+        ? Float.intBitsToFloat(buffer.getInt())
+        : Double.longBitsToDouble(buffer.getLong());
+  }
+
+  private void unpack(
+      ByteBuffer buffer, int count, long min, int bitWidth, double exp, double frac) {
+    if (bitWidth == 0) {
+      double value = min * exp * frac;
+      for (int i = 0; i < count; i++) {
+        data[i] = value;
+      }
+      return;
+    }
+    long mask = -1L >>> (64 - bitWidth);
+    long cache = 0;
+    int bits = 0;
+    for (int i = 0; i < count; i++) {
+      while (bits < bitWidth) {
+        cache = (cache << 8) | (buffer.get() & 0xff);
+        bits += 8;
+      }
+      bits -= bitWidth;
+      long d = min + ((cache >>> bits) & mask);
+      data[i] = d * exp * frac;
+    }
+  }
+
+  private void unpackDelta(
+      ByteBuffer buffer, int count, long first, long min, int bitWidth, double exp, double frac) {
+    long d = first;
+    data[0] = d * exp * frac;
+    long mask = bitWidth == 0 ? 0 : -1L >>> (64 - bitWidth);
+    long cache = 0;
+    int bits = 0;
+    for (int i = 1; i < count; i++) {
+      while (bits < bitWidth) {
+        cache = (cache << 8) | (buffer.get() & 0xff);
+        bits += 8;
+      }
+      bits -= bitWidth;
+      d += min + ((cache >>> bits) & mask);
+      data[i] = d * exp * frac;
+    }
+  }
+}
@@ -123,6 +123,14 @@ public abstract class Decoder {
         }
       case FREQ:
         return new FreqDecoder();
+      case ALP:
+        switch (dataType) {
+          case FLOAT:
+          case DOUBLE:
+            return new AlpDecoder(dataType);
+          default:
+            throw new TsFileDecodingException(String.format(ERROR_MSG, encoding, dataType));
+        }
       default:
         throw new TsFileDecodingException(String.format(ERROR_MSG, encoding, dataType));
     }
@@ -160,6 +168,60 @@ public abstract class Decoder {
     throw new TsFileDecodingException("Method readBigDecimal is not supported by Decoder");
   }
 
+  /**
+   * Read at most {@code length} values into {@code values} starting at {@code offset}. Decoders
+   * override it to decode a batch of values at once instead of one virtual call per value.
+   *
+   * @return the number of values read, less than {@code length} only if there are no more values
+   */
+  public int readBooleans(ByteBuffer buffer, boolean[] values, int offset, int length)
+      throws IOException {
+    int count = 0;
+    while (count < length && hasNext(buffer)) {
+      values[offset + count++] = readBoolean(buffer);
+    }
+    return count;
+  }
+
+  /** @see #readBooleans(ByteBuffer, boolean[], int, int) */
+  public int readInts(ByteBuffer buffer, int[] values, int offset, int length) throws IOException {
+    int count = 0;
+    while (count < length && hasNext(buffer)) {
+      values[offset + count++] = readInt(buffer);
+    }
+    return count;
+  }
+
+  /** @see #readBooleans(ByteBuffer, boolean[], int, int) */
+  public int readLongs(ByteBuffer buffer, long[] values, int offset, int length)
+      throws IOException {
+    int count = 0;
+    while (count < length && hasNext(buffer)) {
+      values[offset + count++] = readLong(buffer);
+    }
+    return count;
+  }
+
+  /** @see #readBooleans(ByteBuffer, boolean[], int, int) */
+  public int readFloats(ByteBuffer buffer, float[] values, int offset, int length)
+      throws IOException {
+    int count = 0;
+    while (count < length && hasNext(buffer)) {
+      values[offset + count++] = readFloat(buffer);
+    }
+    return count;
+  }
+
+  /** @see #readBooleans(ByteBuffer, boolean[], int, int) */
+  public int readDoubles(ByteBuffer buffer, double[] values, int offset, int length)
+      throws IOException {
+    int count = 0;
+    while (count < length && hasNext(buffer)) {
+      values[offset + count++] = readDouble(buffer);
+    }
+    return count;
+  }
+
   public abstract boolean hasNext(ByteBuffer buffer) throws IOException;
 
   public abstract void reset();
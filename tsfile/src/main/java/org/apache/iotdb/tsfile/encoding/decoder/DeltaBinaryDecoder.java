@@ -101,6 +101,26 @@ public abstract class DeltaBinaryDecoder extends Decoder {
       return data[nextReadIndex++];
     }
 
+    @Override
+    public int readInts(ByteBuffer buffer, int[] values, int offset, int length) {
+      int read = 0;
+      while (read < length) {
+        if (nextReadIndex == readIntTotalCount) {
+          if (!buffer.hasRemaining()) {
+            break;
+          }
+          values[offset + read++] = loadIntBatch(buffer);
+        } else {
+          // copy the decoded values of the current pack at once
+          int num = Math.min(length - read, readIntTotalCount - nextReadIndex);
+          System.arraycopy(data, nextReadIndex, values, offset + read, num);
+          nextReadIndex += num;
+          read += num;
+        }
+      }
+      return read;
+    }
+
     @Override
     public int readInt(ByteBuffer buffer) {
       return readT(buffer);
@@ -216,6 +236,26 @@ public abstract class DeltaBinaryDecoder extends Decoder {
       }
     }
 
+    @Override
+    public int readLongs(ByteBuffer buffer, long[] values, int offset, int length) {
+      int read = 0;
+      while (read < length) {
+        if (nextReadIndex == readIntTotalCount) {
+          if (!buffer.hasRemaining()) {
+            break;
+          }
+          values[offset + read++] = loadIntBatch(buffer);
+        } else {
+          // copy the decoded values of the current pack at once
+          int num = Math.min(length - read, readIntTotalCount - nextReadIndex);
+          System.arraycopy(data, nextReadIndex, values, offset + read, num);
+          nextReadIndex += num;
+          read += num;
+        }
+      }
+      return read;
+    }
+
     @Override
     public long readLong(ByteBuffer buffer) {
 
@@ -42,6 +42,15 @@ public class DoublePrecisionDecoderV2 extends LongGorillaDecoder {
     return Double.longBitsToDouble(readLong(in));
   }
 
+  @Override
+  public final int readDoubles(ByteBuffer in, double[] values, int offset, int length) {
+    int read = 0;
+    while (read < length && hasNext) {
+      values[offset + read++] = Double.longBitsToDouble(readLong(in));
+    }
+    return read;
+  }
+
   @Override
   protected long cacheNext(ByteBuffer in) {
     readNext(in);
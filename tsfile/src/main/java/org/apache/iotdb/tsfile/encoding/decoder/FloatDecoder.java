@@ -93,6 +93,36 @@ public class FloatDecoder extends Decoder {
     return value / maxPointValue;
   }
 
+  @Override
+  public int readFloats(ByteBuffer buffer, float[] values, int offset, int length)
+      throws IOException {
+    if (!hasNext(buffer)) {
+      return 0;
+    }
+    readMaxPointValue(buffer);
+    int[] intValues = new int[length];
+    int read = decoder.readInts(buffer, intValues, 0, length);
+    for (int i = 0; i < read; i++) {
+      values[offset + i] = (float) (intValues[i] / maxPointValue);
+    }
+    return read;
+  }
+
+  @Override
+  public int readDoubles(ByteBuffer buffer, double[] values, int offset, int length)
+      throws IOException {
+    if (!hasNext(buffer)) {
+      return 0;
+    }
+    readMaxPointValue(buffer);
+    long[] longValues = new long[length];
+    int read = decoder.readLongs(buffer, longValues, 0, length);
+    for (int i = 0; i < read; i++) {
+      values[offset + i] = longValues[i] / maxPointValue;
+    }
+    return read;
+  }
+
   private void readMaxPointValue(ByteBuffer buffer) {
     if (!isMaxPointNumberRead) {
       int maxPointNumber = ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
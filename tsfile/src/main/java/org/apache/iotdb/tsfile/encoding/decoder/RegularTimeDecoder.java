@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.encoding.decoder;
+
+import org.apache.iotdb.tsfile.file.metadata.RegularTimeIndex;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Computes the timestamps of a page from the {@link RegularTimeIndex} of its chunk, so the time
+ * column of the page is never decoded. The given buffers are ignored.
+ */
+public class RegularTimeDecoder extends Decoder {
+
+  private final RegularTimeIndex regularTimeIndex;
+  private final int startPosition;
+  private final int endPosition;
+  private int position;
+
+  /**
+   * @param startPosition position of the first point of the page in its chunk
+   * @param count number of points of the page
+   */
+  public RegularTimeDecoder(RegularTimeIndex regularTimeIndex, int startPosition, int count) {
+    super(TSEncoding.REGULAR);
+    this.regularTimeIndex = regularTimeIndex;
+    this.startPosition = startPosition;
+    this.endPosition = startPosition + count;
+    this.position = startPosition;
+  }
+
+  @Override
+  public long readLong(ByteBuffer buffer) {
+    return regularTimeIndex.getTime(position++);
+  }
+
+  @Override
+  public int readLongs(ByteBuffer buffer, long[] values, int offset, int length) {
+    int count =
+        regularTimeIndex.fillTimes(
+            position, values, offset, Math.min(length, endPosition - position));
+    position += count;
+    return count;
+  }
+
+  @Override
+  public boolean hasNext(ByteBuffer buffer) {
+    return position < endPosition;
+  }
+
+  @Override
+  public void reset() {
+    position = startPosition;
+  }
+}
@@ -0,0 +1,372 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.encoding.encoder;
+
+import org.apache.iotdb.tsfile.exception.encoding.TsFileEncodingException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.utils.ReadWriteForEncodingUtils;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Encoder for FLOAT and DOUBLE using ALP (Adaptive Lossless floating-Point compression).
+ *
+ * <p>Values are buffered into blocks of {@link #BLOCK_SIZE}. For each block an exponent e and a
+ * factor f are sampled so that most values v satisfy {@code v == round(v * 10^e / 10^f) * 10^f /
+ * 10^e}, which is the case for decimal-rounded data. The resulting integers d, or the deltas
+ * between them for slowly changing series, are stored with frame-of-reference bit packing; values
+ * that do not survive the round trip are stored verbatim as exceptions. A block with too many
+ * exceptions is stored plainly.
+ *
+ * <p>Block layout:
+ *
+ * <pre>
+ * count(unsigned varint) | mode(1 byte) |
+ * MODE_FOR:   e(1 byte) | f(1 byte) | min(8 bytes) | bitWidth(1 byte) | packed (d - min) |
+ *             exceptions
+ * MODE_DELTA: e(1 byte) | f(1 byte) | first d(8 bytes) | min delta(8 bytes) | bitWidth(1 byte) |
+ *             packed (delta - min delta) of the count - 1 following values | exceptions
+ * MODE_PLAIN: raw bits(4 or 8 bytes) * count
+ *
+ * exceptions: exceptionCount(unsigned varint) | [position(2 bytes) | raw bits(4 or 8 bytes)] *
+ * </pre>
+ *
+ * Packed values use big-endian bit order and are padded to a byte.
+ */
+public class AlpEncoder extends Encoder {
+
+  public static final int BLOCK_SIZE = 1024;
+
+  /** the largest exponent that is tried for DOUBLE and FLOAT respectively. */
+  public static final int MAX_DOUBLE_EXPONENT = 18;
+
+  public static final int MAX_FLOAT_EXPONENT = 10;
+
+  /** encoded integers must stay exactly representable by a double. */
+  private static final double ENCODING_UPPER_LIMIT = 1L << 52;
+
+  private static final int SAMPLE_SIZE = 32;
+
+  private static final int MAX_CANDIDATES = 5;
+
+  private static final int FULL_SEARCH_INTERVAL = 8;
+
+  /** integers are stored with frame-of-reference bit packing. */
+  public static final int MODE_FOR = 0;
+
+  /** deltas between neighbouring integers are stored with frame-of-reference bit packing. */
+  public static final int MODE_DELTA = 1;
+
+  /** too many exceptions, the values are stored as they are. */
+  public static final int MODE_PLAIN = 2;
+
+  /** a block header takes at most 30 bytes and each value at most 7 + 2 + 8 bytes. */
+  private static final int HEADER_MAX_SIZE = 30;
+
+  private static final int ITEM_MAX_SIZE = 18;
+
+  private static final double[] EXP10 = new double[MAX_DOUBLE_EXPONENT + 1];
+
+  private static final double[] FRAC10 = new double[MAX_DOUBLE_EXPONENT + 1];
+
+  static {
+    for (int i = 0; i <= MAX_DOUBLE_EXPONENT; i++) {
+      EXP10[i] = Double.parseDouble("1e" + i);
+      FRAC10[i] = Double.parseDouble("1e-" + i);
+    }
+  }
+
+  private final boolean isFloat;
+
+  private final int maxExponent;
+
+  private final double[] values = new double[BLOCK_SIZE];
+
+  private final long[] encoded = new long[BLOCK_SIZE];
+
+  private final int[] exceptionPositions = new int[BLOCK_SIZE];
+
+  private int writeIndex = 0;
+
+  /** the best (e, f) pairs of the last full search, encoded as in findBestExponentAndFactor */
+  private final int[] candidates = new int[MAX_CANDIDATES];
+
+  private int candidateCount = 0;
+
+  private int blocksSinceFullSearch = 0;
+
+  public AlpEncoder(TSDataType dataType) {
+    super(TSEncoding.ALP);
+    switch (dataType) {
+      case FLOAT:
+        isFloat = true;
+        maxExponent = MAX_FLOAT_EXPONENT;
+        break;
+      case DOUBLE:
+        isFloat = false;
+        maxExponent = MAX_DOUBLE_EXPONENT;
+        break;
+      default:
+        throw new TsFileEncodingException("ALP doesn't support data type: " + dataType);
+    }
+  }
+
+  /** the integer d that represents value under exponent e and factor f. */
+  private static long encodeValue(double value, int e, int f) {
+    return Math.round(value * EXP10[e] * FRAC10[f]);
+  }
+
+  /** the value that integer d represents under exponent e and factor f. */
+  private static double decodeValue(long d, int e, int f) {
+    return d * EXP10[f] * FRAC10[e];
+  }
+
+  @Override
+  public void encode(float value, ByteArrayOutputStream out) {
+    encode((double) value, out);
+  }
+
+  @Override
+  public void encode(double value, ByteArrayOutputStream out) {
+    values[writeIndex++] = value;
+    if (writeIndex == BLOCK_SIZE) {
+      flush(out);
+    }
+  }
+
+  @Override
+  public void flush(ByteArrayOutputStream out) {
+    if (writeIndex == 0) {
+      return;
+    }
+    try {
+      flushBlock(out);
+    } catch (IOException e) {
+      throw new TsFileEncodingException(e);
+    }
+    writeIndex = 0;
+  }
+
+  @Override
+  public int getOneItemMaxSize() {
+    return HEADER_MAX_SIZE + ITEM_MAX_SIZE;
+  }
+
+  @Override
+  public long getMaxByteSize() {
+    return HEADER_MAX_SIZE + (long) ITEM_MAX_SIZE * writeIndex;
+  }
+
+  private void flushBlock(ByteArrayOutputStream out) throws IOException {
+    int count = writeIndex;
+    int best = findBestExponentAndFactor(count);
+    int e = best >>> 8;
+    int f = best & 0xff;
+
+    int exceptionCount = 0;
+    int firstValid = -1;
+    for (int i = 0; i < count; i++) {
+      if (isException(values[i], e, f)) {
+        exceptionPositions[exceptionCount++] = i;
+      } else {
+        encoded[i] = encodeValue(values[i], e, f);
+        if (firstValid < 0) {
+          firstValid = i;
+        }
+      }
+    }
+    // exceptions repeat the previous valid value so that they widen neither the frame nor the
+    // deltas
+    long previous = firstValid < 0 ? 0 : encoded[firstValid];
+    for (int i = 0, j = 0; i < count; i++) {
+      if (j < exceptionCount && exceptionPositions[j] == i) {
+        encoded[i] = previous;
+        j++;
+      } else {
+        previous = encoded[i];
+      }
+    }
+
+    long min = Long.MAX_VALUE;
+    long max = Long.MIN_VALUE;
+    long deltaMin = Long.MAX_VALUE;
+    long deltaMax = Long.MIN_VALUE;
+    for (int i = 0; i < count; i++) {
+      min = Math.min(min, encoded[i]);
+      max = Math.max(max, encoded[i]);
+      if (i > 0) {
+        long delta = encoded[i] - encoded[i - 1];
+        deltaMin = Math.min(deltaMin, delta);
+        deltaMax = Math.max(deltaMax, delta);
+      }
+    }
+    if (count == 1) {
+      deltaMin = deltaMax = 0;
+    }
+    int bitWidth = 64 - Long.numberOfLeadingZeros(max - min);
+    int deltaBitWidth = 64 - Long.numberOfLeadingZeros(deltaMax - deltaMin);
+    long forBits = (long) count * bitWidth;
+    long deltaBits = (long) (count - 1) * deltaBitWidth + Long.SIZE;
+    long exceptionBits = exceptionCount * (Short.SIZE + (isFloat ? Integer.SIZE : Long.SIZE));
+    long plainBits = (long) count * (isFloat ? Integer.SIZE : Long.SIZE);
+
+    ReadWriteForEncodingUtils.writeUnsignedVarInt(count, out);
+    if (Math.min(forBits, deltaBits) + exceptionBits >= plainBits) {
+      out.write(MODE_PLAIN);
+      for (int i = 0; i < count; i++) {
+        if (isFloat) {
+          ReadWriteIOUtils.write(Float.floatToRawIntBits((float) values[i]), out);
+        } else {
+          ReadWriteIOUtils.write(Double.doubleToRawLongBits(values[i]), out);
+        }
+      }
+      return;
+    }
+    if (deltaBits < forBits) {
+      out.write(MODE_DELTA);
+      out.write(e);
+      out.write(f);
+      ReadWriteIOUtils.write(encoded[0], out);
+      ReadWriteIOUtils.write(deltaMin, out);
+      out.write(deltaBitWidth);
+      // encoded[i] becomes the delta to encoded[i - 1]
+      for (int i = count - 1; i > 0; i--) {
+        encoded[i] -= encoded[i - 1];
+      }
+      pack(1, count, deltaMin, deltaBitWidth, out);
+    } else {
+      out.write(MODE_FOR);
+      out.write(e);
+      out.write(f);
+      ReadWriteIOUtils.write(min, out);
+      out.write(bitWidth);
+      pack(0, count, min, bitWidth, out);
+    }
+    ReadWriteForEncodingUtils.writeUnsignedVarInt(exceptionCount, out);
+    for (int i = 0; i < exceptionCount; i++) {
+      int position = exceptionPositions[i];
+      ReadWriteIOUtils.write((short) position, out);
+      if (isFloat) {
+        ReadWriteIOUtils.write(Float.floatToRawIntBits((float) values[position]), out);
+      } else {
+        ReadWriteIOUtils.write(Double.doubleToRawLongBits(values[position]), out);
+      }
+    }
+  }
+
+  private void pack(int from, int to, long min, int bitWidth, ByteArrayOutputStream out) {
+    if (bitWidth == 0) {
+      return;
+    }
+    long buffer = 0;
+    int bits = 0;
+    for (int i = from; i < to; i++) {
+      buffer = (buffer << bitWidth) | (encoded[i] - min);
+      bits += bitWidth;
+      while (bits >= 8) {
+        bits -= 8;
+        out.write((int) (buffer >>> bits));
+      }
+    }
+    if (bits > 0) {
+      out.write((int) (buffer << (8 - bits)));
+    }
+  }
+
+  /**
+   * Pick the (e, f) pair that minimises the estimated size of a sample of the block. All pairs are
+   * tried every {@link #FULL_SEARCH_INTERVAL} blocks, and the best {@link #MAX_CANDIDATES} of them
+   * are the only ones tried for the blocks in between.
+   *
+   * @return e in the second lowest byte and f in the lowest byte
+   */
+  private int findBestExponentAndFactor(int count) {
+    int step = Math.max(1, count / SAMPLE_SIZE);
+    if (candidateCount > 0 && blocksSinceFullSearch++ < FULL_SEARCH_INTERVAL) {
+      long bestSize = Long.MAX_VALUE;
+      int best = candidates[0];
+      for (int i = 0; i < candidateCount; i++) {
+        long size = estimateSize(count, step, candidates[i] >>> 8, candidates[i] & 0xff);
+        if (size < bestSize) {
+          bestSize = size;
+          best = candidates[i];
+        }
+      }
+      return best;
+    }
+    blocksSinceFullSearch = 0;
+    candidateCount = 0;
+    long[] candidateSizes = new long[MAX_CANDIDATES];
+    for (int e = maxExponent; e >= 0; e--) {
+      for (int f = e; f >= 0; f--) {
+        long size = estimateSize(count, step, e, f);
+        // insert into the candidates, which are sorted by size
+        int i = Math.min(candidateCount, MAX_CANDIDATES - 1);
+        if (candidateCount == MAX_CANDIDATES && size >= candidateSizes[i]) {
+          continue;
+        }
+        for (; i > 0 && candidateSizes[i - 1] > size; i--) {
+          candidateSizes[i] = candidateSizes[i - 1];
+          candidates[i] = candidates[i - 1];
+        }
+        candidateSizes[i] = size;
+        candidates[i] = (e << 8) | f;
+        candidateCount = Math.min(candidateCount + 1, MAX_CANDIDATES);
+      }
+    }
+    return candidates[0];
+  }
+
+  /** estimated bits of the sampled values encoded with exponent e and factor f */
+  private long estimateSize(int count, int step, int e, int f) {
+    int exceptions = 0;
+    int sampled = 0;
+    long min = Long.MAX_VALUE;
+    long max = Long.MIN_VALUE;
+    for (int i = 0; i < count; i += step) {
+      sampled++;
+      if (isException(values[i], e, f)) {
+        exceptions++;
+        continue;
+      }
+      long d = encodeValue(values[i], e, f);
+      min = Math.min(min, d);
+      max = Math.max(max, d);
+    }
+    int bitWidth = exceptions == sampled ? 0 : 64 - Long.numberOfLeadingZeros(max - min);
+    return (long) sampled * bitWidth
+        + exceptions * (long) (Short.SIZE + (isFloat ? Integer.SIZE : Long.SIZE));
+  }
+
+  private boolean isException(double value, int e, int f) {
+    double scaled = value * EXP10[e] * FRAC10[f];
+    if (!(Math.abs(scaled) <= ENCODING_UPPER_LIMIT)) {
+      // also true for NaN and infinity
+      return true;
+    }
+    double decoded = decodeValue(Math.round(scaled), e, f);
+    if (isFloat) {
+      return Float.floatToRawIntBits((float) decoded) != Float.floatToRawIntBits((float) value);
+    }
+    return Double.doubleToRawLongBits(decoded) != Double.doubleToRawLongBits(value);
+  }
+}
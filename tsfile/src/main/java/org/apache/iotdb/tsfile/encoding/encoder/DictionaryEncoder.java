@@ -29,6 +29,7 @@ import org.slf4j.LoggerFactory;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
@@ -49,6 +50,8 @@ public class DictionaryEncoder extends Encoder {
   private List<Binary> indexEntry;
   private IntRleEncoder valuesEncoder;
   private long mapSize;
+  /** dictionary index of the caller -> index of entry + 1, 0 means unknown */
+  private int[] callerIndexToEntryIndex = new int[0];
 
   public DictionaryEncoder() {
     super(TSEncoding.DICTIONARY);
@@ -71,6 +74,30 @@ public class DictionaryEncoder extends Encoder {
     valuesEncoder.encode(entryIndex.get(value), out);
   }
 
+  /** Encode a value by the dictionary index of the caller, each index is hashed once per page. */
+  @Override
+  public void encode(Binary value, int dictionaryIndex, ByteArrayOutputStream out) {
+    if (dictionaryIndex >= callerIndexToEntryIndex.length) {
+      callerIndexToEntryIndex =
+          Arrays.copyOf(
+              callerIndexToEntryIndex,
+              Math.max(dictionaryIndex + 1, callerIndexToEntryIndex.length * 2));
+    }
+    int index = callerIndexToEntryIndex[dictionaryIndex] - 1;
+    if (index < 0) {
+      index =
+          entryIndex.computeIfAbsent(
+              value,
+              (v) -> {
+                indexEntry.add(v);
+                mapSize += v.getLength();
+                return entryIndex.size();
+              });
+      callerIndexToEntryIndex[dictionaryIndex] = index + 1;
+    }
+    valuesEncoder.encode(index, out);
+  }
+
   @Override
   public void flush(ByteArrayOutputStream out) {
     try {
@@ -109,6 +136,7 @@ public class DictionaryEncoder extends Encoder {
   private void reset() {
     entryIndex.clear();
     indexEntry.clear();
+    Arrays.fill(callerIndexToEntryIndex, 0);
     valuesEncoder.reset();
     mapSize = 0;
   }
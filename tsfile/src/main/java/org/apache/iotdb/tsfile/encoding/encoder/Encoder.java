@@ -77,6 +77,17 @@ public abstract class Encoder {
     throw new TsFileEncodingException("Method encode Binary is not supported by Encoder");
   }
 
+  /**
+   * Encode a Binary value whose index in a dictionary of the caller is known. Values with the same
+   * dictionary index must be equal, which lets encoders avoid comparing or hashing values.
+   *
+   * @param value the value to encode
+   * @param dictionaryIndex non-negative index of the value in the dictionary of the caller
+   */
+  public void encode(Binary value, int dictionaryIndex, ByteArrayOutputStream out) {
+    encode(value, out);
+  }
+
   public void encode(BigDecimal value, ByteArrayOutputStream out) {
     throw new TsFileEncodingException("Method encode BigDecimal is not supported by Encoder");
   }
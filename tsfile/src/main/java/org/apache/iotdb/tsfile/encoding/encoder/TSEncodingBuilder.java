@@ -73,6 +73,8 @@ public abstract class TSEncodingBuilder {
         return new Freq();
       case ZIGZAG:
         return new Zigzag();
+      case ALP:
+        return new Alp();
       default:
         throw new UnsupportedOperationException(type.toString());
     }
@@ -399,4 +401,24 @@ public abstract class TSEncodingBuilder {
       // do nothing
     }
   }
+
+  /** for FLOAT, DOUBLE. */
+  public static class Alp extends TSEncodingBuilder {
+
+    @Override
+    public Encoder getEncoder(TSDataType type) {
+      switch (type) {
+        case FLOAT:
+        case DOUBLE:
+          return new AlpEncoder(type);
+        default:
+          throw new UnSupportedDataTypeException("ALP doesn't support data type: " + type);
+      }
+    }
+
+    @Override
+    public void initFromProps(Map<String, String> props) {
+      // do nothing
+    }
+  }
 }
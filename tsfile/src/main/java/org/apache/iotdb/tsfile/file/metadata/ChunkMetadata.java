@@ -18,6 +18,7 @@
  */
 package org.apache.iotdb.tsfile.file.metadata;
 
+import org.apache.iotdb.tsfile.common.constant.TsFileConstant;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
 import org.apache.iotdb.tsfile.read.common.TimeRange;
@@ -63,6 +64,12 @@ public class ChunkMetadata implements IChunkMetadata {
 
   private Statistics<? extends Serializable> statistics;
 
+  /** offsets and headers of the pages, null if the chunk has no page index */
+  private PageIndex pageIndex;
+
+  /** fixed-interval runs of the timestamps, null if the chunk has no regular time index */
+  private RegularTimeIndex regularTimeIndex;
+
   private boolean isFromOldTsFile = false;
 
   private long ramSize;
@@ -128,6 +135,22 @@ public class ChunkMetadata implements IChunkMetadata {
     return measurementUid;
   }
 
+  public PageIndex getPageIndex() {
+    return pageIndex;
+  }
+
+  public void setPageIndex(PageIndex pageIndex) {
+    this.pageIndex = pageIndex;
+  }
+
+  public RegularTimeIndex getRegularTimeIndex() {
+    return regularTimeIndex;
+  }
+
+  public void setRegularTimeIndex(RegularTimeIndex regularTimeIndex) {
+    this.regularTimeIndex = regularTimeIndex;
+  }
+
   @Override
   public Statistics<? extends Serializable> getStatistics() {
     return statistics;
@@ -153,11 +176,52 @@ public class ChunkMetadata implements IChunkMetadata {
    * @throws IOException IOException
    */
   public int serializeTo(OutputStream outputStream, boolean serializeStatistic) throws IOException {
+    return serializeTo(outputStream, serializeStatistic, false);
+  }
+
+  /**
+   * serialize to outputStream.
+   *
+   * @param serializePageIndex whether the page index, or an empty one, follows the statistics
+   * @return length
+   */
+  public int serializeTo(
+      OutputStream outputStream, boolean serializeStatistic, boolean serializePageIndex)
+      throws IOException {
+    return serializeTo(outputStream, serializeStatistic, serializePageIndex, false);
+  }
+
+  /**
+   * serialize to outputStream.
+   *
+   * @param serializePageIndex whether the page index, or an empty one, follows the statistics
+   * @param serializeRegularTimeIndex whether the regular time index, or an empty one, follows the
+   *     page index
+   * @return length
+   */
+  public int serializeTo(
+      OutputStream outputStream,
+      boolean serializeStatistic,
+      boolean serializePageIndex,
+      boolean serializeRegularTimeIndex)
+      throws IOException {
     int byteLen = 0;
     byteLen += ReadWriteIOUtils.write(offsetOfChunkHeader, outputStream);
     if (serializeStatistic) {
       byteLen += statistics.serialize(outputStream);
     }
+    if (serializePageIndex) {
+      byteLen +=
+          pageIndex == null
+              ? PageIndex.serializeEmptyTo(outputStream)
+              : pageIndex.serializeTo(outputStream);
+    }
+    if (serializeRegularTimeIndex) {
+      byteLen +=
+          regularTimeIndex == null
+              ? RegularTimeIndex.serializeEmptyTo(outputStream)
+              : regularTimeIndex.serializeTo(outputStream);
+    }
     return byteLen;
   }
 
@@ -176,13 +240,21 @@ public class ChunkMetadata implements IChunkMetadata {
     chunkMetaData.offsetOfChunkHeader = ReadWriteIOUtils.readLong(buffer);
     // if the TimeSeriesMetadataType is not 0, it means it has more than one chunk
     // and each chunk's metadata has its own statistics
-    if ((timeseriesMetadata.getTimeSeriesMetadataType() & 0x3F) != 0) {
+    byte timeseriesMetadataType = timeseriesMetadata.getTimeSeriesMetadataType();
+    if ((timeseriesMetadataType & TsFileConstant.CHUNK_NUM_MASK) != 0) {
       chunkMetaData.statistics = Statistics.deserialize(buffer, chunkMetaData.tsDataType);
     } else {
       // if the TimeSeriesMetadataType is 0, it means it has only one chunk
       // and that chunk's metadata has no statistic
       chunkMetaData.statistics = timeseriesMetadata.getStatistics();
     }
+    byte extensions = timeseriesMetadata.getChunkMetadataExtensions();
+    if ((extensions & TsFileConstant.PAGE_INDEX_EXTENSION) != 0) {
+      chunkMetaData.pageIndex = PageIndex.deserializeFrom(buffer, chunkMetaData.tsDataType);
+    }
+    if ((extensions & TsFileConstant.REGULAR_TIME_INDEX_EXTENSION) != 0) {
+      chunkMetaData.regularTimeIndex = RegularTimeIndex.deserializeFrom(buffer);
+    }
     return chunkMetaData;
   }
 
@@ -280,7 +352,9 @@ public class ChunkMetadata implements IChunkMetadata {
     return CHUNK_METADATA_FIXED_RAM_SIZE
         + RamUsageEstimator.sizeOf(tsFilePrefixPath)
         + RamUsageEstimator.sizeOf(measurementUid)
-        + statistics.calculateRamSize();
+        + statistics.calculateRamSize()
+        + (pageIndex == null ? 0 : pageIndex.calculateRamSize())
+        + (regularTimeIndex == null ? 0 : regularTimeIndex.calculateRamSize());
   }
 
   public static long calculateRamSize(String measurementId, TSDataType dataType) {
@@ -292,6 +366,9 @@ public class ChunkMetadata implements IChunkMetadata {
   public void mergeChunkMetadata(ChunkMetadata chunkMetadata) {
     Statistics<? extends Serializable> statistics = chunkMetadata.getStatistics();
     this.statistics.mergeStatistics(statistics);
+    // the indexes describe the pages and points of this chunk only
+    this.pageIndex = null;
+    this.regularTimeIndex = null;
     this.ramSize = calculateRamSize();
   }
 
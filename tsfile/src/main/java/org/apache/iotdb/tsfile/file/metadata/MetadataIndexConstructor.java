@@ -22,20 +22,39 @@ package org.apache.iotdb.tsfile.file.metadata;
 import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
 import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
 import org.apache.iotdb.tsfile.file.metadata.enums.MetadataIndexNodeType;
+import org.apache.iotdb.tsfile.utils.PublicBAOS;
 import org.apache.iotdb.tsfile.write.writer.TsFileOutput;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MetadataIndexConstructor {
 
   private static final TSFileConfig config = TSFileDescriptor.getInstance().getConfig();
 
+  /** the number of series from which the TimeseriesMetadata are serialized in parallel */
+  private static final int PARALLEL_SERIALIZATION_THRESHOLD = 4096;
+
+  private static final int SERIALIZATION_THREAD_NUM =
+      Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+  /** the number of devices that may be serialized ahead of the one being written */
+  private static final int SERIALIZATION_WINDOW = 2 * SERIALIZATION_THREAD_NUM;
+
   private MetadataIndexConstructor() {
     throw new IllegalStateException("Utility class");
   }
@@ -53,32 +72,33 @@ public class MetadataIndexConstructor {
 
     Map<String, MetadataIndexNode> deviceMetadataIndexMap = new TreeMap<>();
 
-    // for timeseriesMetadata of each device
+    List<Entry<String, List<TimeseriesMetadata>>> devices = new ArrayList<>();
+    int seriesNum = 0;
     for (Entry<String, List<TimeseriesMetadata>> entry : deviceTimeseriesMetadataMap.entrySet()) {
-      if (entry.getValue().isEmpty()) {
-        continue;
+      if (!entry.getValue().isEmpty()) {
+        devices.add(entry);
+        seriesNum += entry.getValue().size();
       }
-      Queue<MetadataIndexNode> measurementMetadataIndexQueue = new ArrayDeque<>();
-      TimeseriesMetadata timeseriesMetadata;
-      MetadataIndexNode currentIndexNode =
-          new MetadataIndexNode(MetadataIndexNodeType.LEAF_MEASUREMENT);
-      for (int i = 0; i < entry.getValue().size(); i++) {
-        timeseriesMetadata = entry.getValue().get(i);
-        if (i % config.getMaxDegreeOfIndexNode() == 0) {
-          if (currentIndexNode.isFull()) {
-            addCurrentIndexNodeToQueue(currentIndexNode, measurementMetadataIndexQueue, out);
-            currentIndexNode = new MetadataIndexNode(MetadataIndexNodeType.LEAF_MEASUREMENT);
+    }
+    if (seriesNum >= PARALLEL_SERIALIZATION_THRESHOLD) {
+      writeTimeseriesMetadataInParallel(devices, out, deviceMetadataIndexMap);
+    } else {
+      // for timeseriesMetadata of each device
+      for (Entry<String, List<TimeseriesMetadata>> entry : devices) {
+        List<TimeseriesMetadata> timeseriesMetadataList = entry.getValue();
+        long startOffset = out.getPosition();
+        int[] entryOffsets = new int[getEntryNum(timeseriesMetadataList.size())];
+        for (int i = 0; i < timeseriesMetadataList.size(); i++) {
+          if (i % config.getMaxDegreeOfIndexNode() == 0) {
+            entryOffsets[i / config.getMaxDegreeOfIndexNode()] =
+                (int) (out.getPosition() - startOffset);
           }
-          currentIndexNode.addEntry(
-              new MetadataIndexEntry(timeseriesMetadata.getMeasurementId(), out.getPosition()));
+          timeseriesMetadataList.get(i).serializeTo(out.wrapAsStream());
         }
-        timeseriesMetadata.serializeTo(out.wrapAsStream());
+        deviceMetadataIndexMap.put(
+            entry.getKey(),
+            generateMeasurementIndex(timeseriesMetadataList, startOffset, entryOffsets, out));
       }
-      addCurrentIndexNodeToQueue(currentIndexNode, measurementMetadataIndexQueue, out);
-      deviceMetadataIndexMap.put(
-          entry.getKey(),
-          generateRootNode(
-              measurementMetadataIndexQueue, out, MetadataIndexNodeType.INTERNAL_MEASUREMENT));
     }
 
     // if not exceed the max child nodes num, ignore the device index and directly point to the
@@ -148,6 +168,120 @@ public class MetadataIndexConstructor {
     return metadataIndexNodeQueue.poll();
   }
 
+  /**
+   * Generate the measurement index of a device whose TimeseriesMetadata have been written from
+   * startOffset on.
+   *
+   * @param entryOffsets offsets, relative to startOffset, of every TimeseriesMetadata that starts
+   *     an index entry, i.e. one out of every max degree of index node
+   */
+  private static MetadataIndexNode generateMeasurementIndex(
+      List<TimeseriesMetadata> timeseriesMetadataList,
+      long startOffset,
+      int[] entryOffsets,
+      TsFileOutput out)
+      throws IOException {
+    Queue<MetadataIndexNode> measurementMetadataIndexQueue = new ArrayDeque<>();
+    MetadataIndexNode currentIndexNode =
+        new MetadataIndexNode(MetadataIndexNodeType.LEAF_MEASUREMENT);
+    for (int i = 0; i < entryOffsets.length; i++) {
+      long offset = startOffset + entryOffsets[i];
+      if (currentIndexNode.isFull()) {
+        currentIndexNode.setEndOffset(offset);
+        measurementMetadataIndexQueue.add(currentIndexNode);
+        currentIndexNode = new MetadataIndexNode(MetadataIndexNodeType.LEAF_MEASUREMENT);
+      }
+      currentIndexNode.addEntry(
+          new MetadataIndexEntry(
+              timeseriesMetadataList.get(i * config.getMaxDegreeOfIndexNode()).getMeasurementId(),
+              offset));
+    }
+    addCurrentIndexNodeToQueue(currentIndexNode, measurementMetadataIndexQueue, out);
+    return generateRootNode(
+        measurementMetadataIndexQueue, out, MetadataIndexNodeType.INTERNAL_MEASUREMENT);
+  }
+
+  private static int getEntryNum(int seriesNum) {
+    return (seriesNum + config.getMaxDegreeOfIndexNode() - 1) / config.getMaxDegreeOfIndexNode();
+  }
+
+  /**
+   * Serialize the TimeseriesMetadata of each device into its own buffer on a bounded pool, and
+   * write the buffers to the output in device order as they are done. At most SERIALIZATION_WINDOW
+   * devices are serialized ahead of the one being written, so the buffers of the whole file are
+   * never held at once.
+   */
+  private static void writeTimeseriesMetadataInParallel(
+      List<Entry<String, List<TimeseriesMetadata>>> devices,
+      TsFileOutput out,
+      Map<String, MetadataIndexNode> deviceMetadataIndexMap)
+      throws IOException {
+    Queue<Future<SerializedTimeseriesMetadata>> window = new ArrayDeque<>();
+    int writtenDeviceNum = 0;
+    try {
+      for (Entry<String, List<TimeseriesMetadata>> entry : devices) {
+        window.add(
+            SerializationPoolHolder.POOL.submit(
+                () -> serializeTimeseriesMetadata(entry.getValue())));
+        if (window.size() >= SERIALIZATION_WINDOW) {
+          writeSerializedDevice(
+              devices.get(writtenDeviceNum++), window.poll(), out, deviceMetadataIndexMap);
+        }
+      }
+      while (!window.isEmpty()) {
+        writeSerializedDevice(
+            devices.get(writtenDeviceNum++), window.poll(), out, deviceMetadataIndexMap);
+      }
+    } finally {
+      for (Future<SerializedTimeseriesMetadata> future : window) {
+        future.cancel(false);
+      }
+    }
+  }
+
+  private static void writeSerializedDevice(
+      Entry<String, List<TimeseriesMetadata>> entry,
+      Future<SerializedTimeseriesMetadata> future,
+      TsFileOutput out,
+      Map<String, MetadataIndexNode> deviceMetadataIndexMap)
+      throws IOException {
+    SerializedTimeseriesMetadata serialized;
+    try {
+      serialized = future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while serializing TimeseriesMetadata");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+    long startOffset = out.getPosition();
+    out.wrapAsStream().write(serialized.buffer.getBuf(), 0, serialized.buffer.size());
+    deviceMetadataIndexMap.put(
+        entry.getKey(),
+        generateMeasurementIndex(entry.getValue(), startOffset, serialized.entryOffsets, out));
+  }
+
+  private static SerializedTimeseriesMetadata serializeTimeseriesMetadata(
+      List<TimeseriesMetadata> timeseriesMetadataList) throws IOException {
+    SerializedTimeseriesMetadata serialized =
+        new SerializedTimeseriesMetadata(getEntryNum(timeseriesMetadataList.size()));
+    for (int i = 0; i < timeseriesMetadataList.size(); i++) {
+      if (i % config.getMaxDegreeOfIndexNode() == 0) {
+        serialized.entryOffsets[i / config.getMaxDegreeOfIndexNode()] = serialized.buffer.size();
+      }
+      timeseriesMetadataList.get(i).serializeTo(serialized.buffer);
+    }
+    return serialized;
+  }
+
   private static void addCurrentIndexNodeToQueue(
       MetadataIndexNode currentIndexNode,
       Queue<MetadataIndexNode> metadataIndexNodeQueue,
@@ -156,4 +290,38 @@ public class MetadataIndexConstructor {
     currentIndexNode.setEndOffset(out.getPosition());
     metadataIndexNodeQueue.add(currentIndexNode);
   }
+
+  private static class SerializedTimeseriesMetadata {
+
+    private final PublicBAOS buffer = new PublicBAOS();
+    private final int[] entryOffsets;
+
+    private SerializedTimeseriesMetadata(int entryNum) {
+      entryOffsets = new int[entryNum];
+    }
+  }
+
+  /** daemon threads that serialize the TimeseriesMetadata of large files for all writers */
+  private static class SerializationPoolHolder {
+    private static final ExecutorService POOL = createPool();
+
+    private static ExecutorService createPool() {
+      AtomicInteger threadNum = new AtomicInteger();
+      ThreadPoolExecutor pool =
+          new ThreadPoolExecutor(
+              SERIALIZATION_THREAD_NUM,
+              SERIALIZATION_THREAD_NUM,
+              60,
+              TimeUnit.SECONDS,
+              new LinkedBlockingQueue<>(),
+              r -> {
+                Thread thread =
+                    new Thread(r, "TsFile-Metadata-Serialization-" + threadNum.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+              });
+      pool.allowCoreThreadTimeOut(true);
+      return pool;
+    }
+  }
 }
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.file.metadata;
+
+import org.apache.iotdb.tsfile.file.header.PageHeader;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.RamUsageEstimator;
+import org.apache.iotdb.tsfile.utils.ReadWriteForEncodingUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Offsets and headers of the pages of a chunk, stored after the statistics of its {@link
+ * ChunkMetadata} when {@code enable_page_index} is set. A reader can prune the pages by their
+ * statistics and read only the bodies of the remaining pages instead of the whole chunk.
+ *
+ * <p>Only chunks with more than one page have a page index, because the statistics of a single page
+ * are the statistics of its chunk.
+ */
+public class PageIndex {
+
+  private static final long INSTANCE_SIZE =
+      RamUsageEstimator.shallowSizeOfInstance(PageIndex.class);
+
+  private static final long PAGE_HEADER_INSTANCE_SIZE =
+      RamUsageEstimator.shallowSizeOfInstance(PageHeader.class);
+
+  /** offset of each page body from the end of the chunk header */
+  private final int[] pageBodyOffsets;
+
+  private final PageHeader[] pageHeaders;
+
+  public PageIndex(int[] pageBodyOffsets, PageHeader[] pageHeaders) {
+    this.pageBodyOffsets = pageBodyOffsets;
+    this.pageHeaders = pageHeaders;
+  }
+
+  /**
+   * build the page index of a chunk from its pages
+   *
+   * @param chunkData the serialized pages of a chunk with more than one page
+   * @return null if a page has no statistics
+   */
+  public static PageIndex build(ByteBuffer chunkData, TSDataType dataType) {
+    ByteBuffer buffer = chunkData.duplicate();
+    int start = buffer.position();
+    int[] offsets = new int[4];
+    PageHeader[] headers = new PageHeader[4];
+    int pageNum = 0;
+    while (buffer.hasRemaining()) {
+      if (pageNum == offsets.length) {
+        offsets = Arrays.copyOf(offsets, pageNum * 2);
+        headers = Arrays.copyOf(headers, pageNum * 2);
+      }
+      PageHeader pageHeader = PageHeader.deserializeFrom(buffer, dataType);
+      if (pageHeader.getStatistics() == null) {
+        return null;
+      }
+      offsets[pageNum] = buffer.position() - start;
+      headers[pageNum++] = pageHeader;
+      buffer.position(buffer.position() + pageHeader.getCompressedSize());
+    }
+    return new PageIndex(Arrays.copyOf(offsets, pageNum), Arrays.copyOf(headers, pageNum));
+  }
+
+  public int getPageNum() {
+    return pageHeaders.length;
+  }
+
+  public int getPageBodyOffset(int pageIndex) {
+    return pageBodyOffsets[pageIndex];
+  }
+
+  public PageHeader getPageHeader(int pageIndex) {
+    return pageHeaders[pageIndex];
+  }
+
+  public int serializeTo(OutputStream outputStream) throws IOException {
+    int byteLen = ReadWriteForEncodingUtils.writeUnsignedVarInt(pageHeaders.length, outputStream);
+    for (int i = 0; i < pageHeaders.length; i++) {
+      byteLen += ReadWriteForEncodingUtils.writeUnsignedVarInt(pageBodyOffsets[i], outputStream);
+      pageHeaders[i].serializeTo(outputStream);
+      byteLen += pageHeaders[i].getSerializedPageSize() - pageHeaders[i].getCompressedSize();
+    }
+    return byteLen;
+  }
+
+  /** @return null if the chunk has no page index */
+  public static PageIndex deserializeFrom(ByteBuffer buffer, TSDataType dataType) {
+    int pageNum = ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
+    if (pageNum == 0) {
+      return null;
+    }
+    int[] offsets = new int[pageNum];
+    PageHeader[] headers = new PageHeader[pageNum];
+    for (int i = 0; i < pageNum; i++) {
+      offsets[i] = ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
+      headers[i] = PageHeader.deserializeFrom(buffer, dataType);
+    }
+    return new PageIndex(offsets, headers);
+  }
+
+  /** serialize the page index of a chunk that has none */
+  public static int serializeEmptyTo(OutputStream outputStream) throws IOException {
+    return ReadWriteForEncodingUtils.writeUnsignedVarInt(0, outputStream);
+  }
+
+  public long calculateRamSize() {
+    long size =
+        INSTANCE_SIZE
+            + RamUsageEstimator.sizeOf(pageBodyOffsets)
+            + RamUsageEstimator.shallowSizeOf(pageHeaders);
+    for (PageHeader pageHeader : pageHeaders) {
+      size += PAGE_HEADER_INSTANCE_SIZE + pageHeader.getStatistics().calculateRamSize();
+    }
+    return size;
+  }
+}
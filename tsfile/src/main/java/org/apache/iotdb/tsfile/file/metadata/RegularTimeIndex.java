@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.file.metadata;
+
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.utils.RamUsageEstimator;
+import org.apache.iotdb.tsfile.utils.ReadWriteForEncodingUtils;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The timestamps of a chunk as runs of points with a common interval, stored after the statistics
+ * of its {@link ChunkMetadata} when {@code enable_regular_time_index} is set. The i-th point of a
+ * run starting at {@code startTime} is at {@code startTime + i * interval}. A gap or an irregular
+ * timestamp starts a new run, so the index is exact for any chunk, and is only built for chunks
+ * whose runs are long enough to make it smaller than decoding the timestamps.
+ *
+ * <p>With the index, the timestamp of a position, the position of a timestamp and the number of
+ * points satisfying a time filter are computed without reading the chunk.
+ */
+public class RegularTimeIndex {
+
+  private static final long INSTANCE_SIZE =
+      RamUsageEstimator.shallowSizeOfInstance(RegularTimeIndex.class);
+
+  /** a chunk is indexed only if its runs are this long on average */
+  private static final int MIN_AVERAGE_RUN_LENGTH = 16;
+
+  private final long interval;
+
+  private final long[] runStartTimes;
+
+  /** position of the first point of each run, followed by the number of points */
+  private final int[] runStartPositions;
+
+  private RegularTimeIndex(long interval, long[] runStartTimes, int[] runStartPositions) {
+    this.interval = interval;
+    this.runStartTimes = runStartTimes;
+    this.runStartPositions = runStartPositions;
+  }
+
+  public long getInterval() {
+    return interval;
+  }
+
+  public int getRunNum() {
+    return runStartTimes.length;
+  }
+
+  public int getCount() {
+    return runStartPositions[runStartTimes.length];
+  }
+
+  /** @return the timestamp of the point at the position */
+  public long getTime(int position) {
+    int run = Arrays.binarySearch(runStartPositions, 0, runStartTimes.length, position);
+    if (run < 0) {
+      run = -run - 2;
+    }
+    return runStartTimes[run] + (position - runStartPositions[run]) * interval;
+  }
+
+  /**
+   * fill the timestamps of the points from the position
+   *
+   * @return number of timestamps filled, less than length if there are not enough points
+   */
+  public int fillTimes(int position, long[] times, int offset, int length) {
+    length = Math.min(length, getCount() - position);
+    if (length <= 0) {
+      return 0;
+    }
+    int run = Arrays.binarySearch(runStartPositions, 0, runStartTimes.length, position);
+    if (run < 0) {
+      run = -run - 2;
+    }
+    long time = runStartTimes[run] + (position - runStartPositions[run]) * interval;
+    int runEnd = runStartPositions[run + 1];
+    for (int i = 0; i < length; i++, position++) {
+      if (position == runEnd) {
+        run++;
+        time = runStartTimes[run];
+        runEnd = runStartPositions[run + 1];
+      }
+      times[offset + i] = time;
+      time += interval;
+    }
+    return length;
+  }
+
+  /** @return the position of the first point not before the time, or the count if there is none */
+  public int getPosition(long time) {
+    int run = Arrays.binarySearch(runStartTimes, time);
+    if (run >= 0) {
+      return runStartPositions[run];
+    }
+    run = -run - 2;
+    if (run < 0) {
+      return 0;
+    }
+    long runLength = runStartPositions[run + 1] - runStartPositions[run];
+    long distance = time - runStartTimes[run];
+    // the distance overflows only if it is beyond any run
+    long offset = distance < 0 ? runLength : (distance - 1) / interval + 1;
+    return offset >= runLength ? runStartPositions[run + 1] : runStartPositions[run] + (int) offset;
+  }
+
+  /** @return number of points in [startTime, endTime] */
+  public int count(long startTime, long endTime) {
+    if (startTime > endTime) {
+      return 0;
+    }
+    int end = endTime == Long.MAX_VALUE ? getCount() : getPosition(endTime + 1);
+    return Math.max(0, end - getPosition(startTime));
+  }
+
+  /**
+   * count the points satisfying a time filter. Each run is split in halves until the filter either
+   * contains or excludes the time range of the part, so only the parts across a boundary of the
+   * filter are split down to single points.
+   *
+   * @param timeFilter a filter on time only
+   */
+  public int count(Filter timeFilter) {
+    int count = 0;
+    for (int run = 0; run < runStartTimes.length; run++) {
+      count += count(timeFilter, run, runStartPositions[run], runStartPositions[run + 1]);
+    }
+    return count;
+  }
+
+  private int count(Filter timeFilter, int run, int start, int end) {
+    long startTime = runStartTimes[run] + (start - runStartPositions[run]) * interval;
+    long endTime = startTime + (end - 1 - start) * interval;
+    if (end - start == 1) {
+      return timeFilter.satisfy(startTime, null) ? 1 : 0;
+    }
+    if (timeFilter.containStartEndTime(startTime, endTime)) {
+      return end - start;
+    }
+    if (!timeFilter.satisfyStartEndTime(startTime, endTime)) {
+      return 0;
+    }
+    int middle = (start + end) >>> 1;
+    return count(timeFilter, run, start, middle) + count(timeFilter, run, middle, end);
+  }
+
+  public int serializeTo(OutputStream outputStream) throws IOException {
+    int byteLen = ReadWriteForEncodingUtils.writeUnsignedVarInt(runStartTimes.length, outputStream);
+    byteLen += ReadWriteIOUtils.write(interval, outputStream);
+    for (int i = 0; i < runStartTimes.length; i++) {
+      byteLen += ReadWriteIOUtils.write(runStartTimes[i], outputStream);
+      byteLen +=
+          ReadWriteForEncodingUtils.writeUnsignedVarInt(
+              runStartPositions[i + 1] - runStartPositions[i], outputStream);
+    }
+    return byteLen;
+  }
+
+  /** @return null if the chunk has no regular time index */
+  public static RegularTimeIndex deserializeFrom(ByteBuffer buffer) {
+    int runNum = ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
+    if (runNum == 0) {
+      return null;
+    }
+    long interval = ReadWriteIOUtils.readLong(buffer);
+    long[] runStartTimes = new long[runNum];
+    int[] runStartPositions = new int[runNum + 1];
+    for (int i = 0; i < runNum; i++) {
+      runStartTimes[i] = ReadWriteIOUtils.readLong(buffer);
+      runStartPositions[i + 1] =
+          runStartPositions[i] + ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
+    }
+    return new RegularTimeIndex(interval, runStartTimes, runStartPositions);
+  }
+
+  /** serialize the regular time index of a chunk that has none */
+  public static int serializeEmptyTo(OutputStream outputStream) throws IOException {
+    return ReadWriteForEncodingUtils.writeUnsignedVarInt(0, outputStream);
+  }
+
+  public long calculateRamSize() {
+    return INSTANCE_SIZE
+        + RamUsageEstimator.sizeOf(runStartTimes)
+        + RamUsageEstimator.sizeOf(runStartPositions);
+  }
+
+  /**
+   * Collects the runs of the timestamps of a chunk while it is written. The interval is the
+   * difference between the first two timestamps. It stops collecting once the runs are too short
+   * for the chunk to be indexed.
+   */
+  public static class Builder {
+
+    private long interval;
+    private long lastTime;
+    private int count;
+    private long[] runStartTimes = new long[4];
+    private int[] runStartPositions = new int[5];
+    private int runNum;
+    private boolean regular = true;
+
+    public void add(long time) {
+      if (!regular) {
+        return;
+      }
+      if (count == 1) {
+        interval = time - lastTime;
+        // the timestamps of a chunk are increasing
+        regular = interval > 0;
+      } else if (count == 0 || time - lastTime != interval) {
+        startRun(time);
+      }
+      lastTime = time;
+      count++;
+    }
+
+    public void add(long[] times, int length) {
+      for (int i = 0; i < length && regular; i++) {
+        add(times[i]);
+      }
+    }
+
+    private void startRun(long time) {
+      // leave some room for irregular points at the beginning of a chunk
+      if ((runNum - 4) * MIN_AVERAGE_RUN_LENGTH > count) {
+        regular = false;
+        return;
+      }
+      if (runNum == runStartTimes.length) {
+        runStartTimes = Arrays.copyOf(runStartTimes, runNum * 2);
+        runStartPositions = Arrays.copyOf(runStartPositions, runNum * 2 + 1);
+      }
+      runStartTimes[runNum] = time;
+      runStartPositions[runNum++] = count;
+    }
+
+    /** the timestamps of some points are unknown, so the chunk can not be indexed */
+    public void invalidate() {
+      regular = false;
+    }
+
+    /** @return null if the chunk should not be indexed */
+    public RegularTimeIndex build() {
+      if (!regular || count < 2 || (runNum - 1) * MIN_AVERAGE_RUN_LENGTH > count) {
+        return null;
+      }
+      int[] positions = Arrays.copyOf(runStartPositions, runNum + 1);
+      positions[runNum] = count;
+      return new RegularTimeIndex(interval, Arrays.copyOf(runStartTimes, runNum), positions);
+    }
+
+    public void reset() {
+      count = 0;
+      runNum = 0;
+      regular = true;
+    }
+  }
+}
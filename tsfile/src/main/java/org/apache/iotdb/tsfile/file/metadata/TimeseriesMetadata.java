@@ -19,6 +19,7 @@
 
 package org.apache.iotdb.tsfile.file.metadata;
 
+import org.apache.iotdb.tsfile.common.constant.TsFileConstant;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
 import org.apache.iotdb.tsfile.read.controller.IChunkMetadataLoader;
@@ -47,9 +48,14 @@ public class TimeseriesMetadata implements ITimeSeriesMetadata {
    * <p>if the 8th bit is 1, it means it is the time column of a vector series;
    *
    * <p>if the 7th bit is 1, it means it is the value column of a vector series
+   *
+   * <p>if the 6th bit is 1, a byte of chunk metadata extensions follows it
    */
   private byte timeSeriesMetadataType;
 
+  /** flags of the extensions that follow each ChunkMetadata, see {@link TsFileConstant} */
+  private byte chunkMetadataExtensions;
+
   private int chunkMetaDataListDataSize;
 
   private String measurementId;
@@ -91,6 +97,7 @@ public class TimeseriesMetadata implements ITimeSeriesMetadata {
 
   public TimeseriesMetadata(TimeseriesMetadata timeseriesMetadata) {
     this.timeSeriesMetadataType = timeseriesMetadata.timeSeriesMetadataType;
+    this.chunkMetadataExtensions = timeseriesMetadata.chunkMetadataExtensions;
     this.chunkMetaDataListDataSize = timeseriesMetadata.chunkMetaDataListDataSize;
     this.measurementId = timeseriesMetadata.measurementId;
     this.dataType = timeseriesMetadata.dataType;
@@ -102,6 +109,10 @@ public class TimeseriesMetadata implements ITimeSeriesMetadata {
   public static TimeseriesMetadata deserializeFrom(ByteBuffer buffer, boolean needChunkMetadata) {
     TimeseriesMetadata timeseriesMetaData = new TimeseriesMetadata();
     timeseriesMetaData.setTimeSeriesMetadataType(ReadWriteIOUtils.readByte(buffer));
+    if ((timeseriesMetaData.timeSeriesMetadataType & TsFileConstant.CHUNK_METADATA_EXTENSION_MASK)
+        != 0) {
+      timeseriesMetaData.chunkMetadataExtensions = ReadWriteIOUtils.readByte(buffer);
+    }
     timeseriesMetaData.setMeasurementId(ReadWriteIOUtils.readVarIntString(buffer));
     timeseriesMetaData.setTSDataType(ReadWriteIOUtils.readDataType(buffer));
     int chunkMetaDataListDataSize = ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
@@ -132,6 +143,9 @@ public class TimeseriesMetadata implements ITimeSeriesMetadata {
   public int serializeTo(OutputStream outputStream) throws IOException {
     int byteLen = 0;
     byteLen += ReadWriteIOUtils.write(timeSeriesMetadataType, outputStream);
+    if ((timeSeriesMetadataType & TsFileConstant.CHUNK_METADATA_EXTENSION_MASK) != 0) {
+      byteLen += ReadWriteIOUtils.write(chunkMetadataExtensions, outputStream);
+    }
     byteLen += ReadWriteIOUtils.writeVar(measurementId, outputStream);
     byteLen += ReadWriteIOUtils.write(dataType, outputStream);
     byteLen +=
@@ -150,6 +164,20 @@ public class TimeseriesMetadata implements ITimeSeriesMetadata {
     this.timeSeriesMetadataType = timeSeriesMetadataType;
   }
 
+  public byte getChunkMetadataExtensions() {
+    return chunkMetadataExtensions;
+  }
+
+  /** set the extensions of the ChunkMetadata, and the type bit that tells they are serialized */
+  public void setChunkMetadataExtensions(byte chunkMetadataExtensions) {
+    this.chunkMetadataExtensions = chunkMetadataExtensions;
+    if (chunkMetadataExtensions != 0) {
+      timeSeriesMetadataType |= TsFileConstant.CHUNK_METADATA_EXTENSION_MASK;
+    } else {
+      timeSeriesMetadataType &= ~TsFileConstant.CHUNK_METADATA_EXTENSION_MASK;
+    }
+  }
+
   public long getOffsetOfChunkMetaDataList() {
     return startOffsetOfChunkMetaDataList;
   }
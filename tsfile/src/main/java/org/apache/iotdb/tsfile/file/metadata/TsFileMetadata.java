@@ -20,7 +20,9 @@
 package org.apache.iotdb.tsfile.file.metadata;
 
 import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
+import org.apache.iotdb.tsfile.compress.ZstdDictionaries;
 import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.utils.BlockedBloomFilter;
 import org.apache.iotdb.tsfile.utils.BloomFilter;
 import org.apache.iotdb.tsfile.utils.ReadWriteForEncodingUtils;
 import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
@@ -28,11 +30,18 @@ import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.HashSet;
 import java.util.Set;
 
 /** TSFileMetaData collects all metadata info and saves in its data structure. */
 public class TsFileMetadata {
 
+  /** marks that a {@link BlockedBloomFilter} follows the classic bloom filter */
+  private static final byte BLOCKED_BLOOM_FILTER_MARKER = 1;
+
+  /** marks that the trained {@link ZstdDictionaries} of the file follow the bloom filter */
+  private static final byte ZSTD_DICTIONARIES_MARKER = 2;
+
   // bloom filter
   private BloomFilter bloomFilter;
 
@@ -42,6 +51,9 @@ public class TsFileMetadata {
   // offset of MetaMarker.SEPARATOR
   private long metaOffset;
 
+  // trained zstd dictionaries, null if the file has none
+  private ZstdDictionaries zstdDictionaries;
+
   /**
    * deserialize data from the buffer.
    *
@@ -64,6 +76,13 @@ public class TsFileMetadata {
       int filterSize = ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
       int hashFunctionSize = ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
       fileMetaData.bloomFilter = BloomFilter.buildBloomFilter(bytes, filterSize, hashFunctionSize);
+      // newer files keep only a placeholder above and put the real filter here
+      if (buffer.hasRemaining() && buffer.get() == BLOCKED_BLOOM_FILTER_MARKER) {
+        fileMetaData.bloomFilter = BlockedBloomFilter.deserializeFrom(buffer);
+      }
+      if (buffer.hasRemaining() && buffer.get() == ZSTD_DICTIONARIES_MARKER) {
+        fileMetaData.zstdDictionaries = ZstdDictionaries.deserializeFrom(buffer);
+      }
     }
 
     return fileMetaData;
@@ -100,22 +119,38 @@ public class TsFileMetadata {
   }
 
   /**
-   * use the given outputStream to serialize bloom filter.
+   * use the given outputStream to serialize bloom filter. The classic filter is written as a
+   * one-bit filter containing every path, so that readers not knowing the blocked bloom filter
+   * behind it never prune a series by mistake.
    *
    * @param outputStream -output stream to determine byte length
    * @return -byte length
    */
   public int serializeBloomFilter(OutputStream outputStream, Set<Path> paths) throws IOException {
     int byteLen = 0;
-    BloomFilter filter = buildBloomFilter(paths);
-
-    byte[] bytes = filter.serialize();
-    byteLen += ReadWriteForEncodingUtils.writeUnsignedVarInt(bytes.length, outputStream);
-    outputStream.write(bytes);
-    byteLen += bytes.length;
-    byteLen += ReadWriteForEncodingUtils.writeUnsignedVarInt(filter.getSize(), outputStream);
-    byteLen +=
-        ReadWriteForEncodingUtils.writeUnsignedVarInt(filter.getHashFunctionSize(), outputStream);
+    // classic filter placeholder: bytes {1}, size 1, hash function size 1
+    byteLen += ReadWriteForEncodingUtils.writeUnsignedVarInt(1, outputStream);
+    outputStream.write(1);
+    byteLen += 1;
+    byteLen += ReadWriteForEncodingUtils.writeUnsignedVarInt(1, outputStream);
+    byteLen += ReadWriteForEncodingUtils.writeUnsignedVarInt(1, outputStream);
+
+    byteLen += ReadWriteIOUtils.write(BLOCKED_BLOOM_FILTER_MARKER, outputStream);
+    byteLen += buildBloomFilter(paths).serializeTo(outputStream);
+    return byteLen;
+  }
+
+  /**
+   * use the given outputStream to serialize the trained zstd dictionaries, which must follow the
+   * bloom filter.
+   *
+   * @param outputStream -output stream to determine byte length
+   * @return -byte length
+   */
+  public int serializeZstdDictionaries(OutputStream outputStream, ZstdDictionaries zstdDictionaries)
+      throws IOException {
+    int byteLen = ReadWriteIOUtils.write(ZSTD_DICTIONARIES_MARKER, outputStream);
+    byteLen += zstdDictionaries.serializeTo(outputStream);
     return byteLen;
   }
 
@@ -124,16 +159,30 @@ public class TsFileMetadata {
    *
    * @return bloom filter
    */
-  private BloomFilter buildBloomFilter(Set<Path> paths) {
-    BloomFilter filter =
-        BloomFilter.getEmptyBloomFilter(
-            TSFileDescriptor.getInstance().getConfig().getBloomFilterErrorRate(), paths.size());
+  private BlockedBloomFilter buildBloomFilter(Set<Path> paths) {
+    Set<String> devices = new HashSet<>();
+    for (Path path : paths) {
+      devices.add(path.getDevice());
+    }
+    BlockedBloomFilter filter =
+        BlockedBloomFilter.getEmptyBlockedBloomFilter(
+            TSFileDescriptor.getInstance().getConfig().getBloomFilterErrorRate(),
+            paths.size(),
+            devices.size());
     for (Path path : paths) {
-      filter.add(path.toString());
+      filter.add(path.getDevice(), path.getMeasurement());
     }
     return filter;
   }
 
+  public ZstdDictionaries getZstdDictionaries() {
+    return zstdDictionaries;
+  }
+
+  public void setZstdDictionaries(ZstdDictionaries zstdDictionaries) {
+    this.zstdDictionaries = zstdDictionaries;
+  }
+
   public long getMetaOffset() {
     return metaOffset;
   }
@@ -24,4 +24,12 @@ import org.apache.iotdb.tsfile.read.reader.TsFileInput;
 public interface FileInputFactory {
 
   TsFileInput getTsFileInput(String filePath);
+
+  /**
+   * @param sealed whether the file is complete and will not be appended any more, in which case the
+   *     input may cache or map its content
+   */
+  default TsFileInput getTsFileInput(String filePath, boolean sealed) {
+    return getTsFileInput(filePath);
+  }
 }
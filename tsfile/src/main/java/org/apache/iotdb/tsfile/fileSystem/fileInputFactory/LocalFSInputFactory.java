@@ -19,7 +19,9 @@
 
 package org.apache.iotdb.tsfile.fileSystem.fileInputFactory;
 
+import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
 import org.apache.iotdb.tsfile.read.reader.LocalTsFileInput;
+import org.apache.iotdb.tsfile.read.reader.MappedTsFileInput;
 import org.apache.iotdb.tsfile.read.reader.TsFileInput;
 
 import org.slf4j.Logger;
@@ -41,4 +43,17 @@ public class LocalFSInputFactory implements FileInputFactory {
       return null;
     }
   }
+
+  @Override
+  public TsFileInput getTsFileInput(String filePath, boolean sealed) {
+    if (!sealed || !TSFileDescriptor.getInstance().getConfig().isEnableMmapRead()) {
+      return getTsFileInput(filePath);
+    }
+    try {
+      return new MappedTsFileInput(Paths.get(filePath));
+    } catch (IOException e) {
+      logger.error("Failed to get mapped TsFile input of file: {}, ", filePath, e);
+      return null;
+    }
+  }
 }
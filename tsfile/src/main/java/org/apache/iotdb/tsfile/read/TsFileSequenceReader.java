@@ -22,6 +22,7 @@ import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
 import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
 import org.apache.iotdb.tsfile.common.constant.TsFileConstant;
 import org.apache.iotdb.tsfile.compress.IUnCompressor;
+import org.apache.iotdb.tsfile.compress.ZstdDictionaries;
 import org.apache.iotdb.tsfile.encoding.decoder.Decoder;
 import org.apache.iotdb.tsfile.exception.TsFileRuntimeException;
 import org.apache.iotdb.tsfile.exception.TsFileStatisticsMistakesException;
@@ -49,6 +50,7 @@ import org.apache.iotdb.tsfile.read.common.BatchData;
 import org.apache.iotdb.tsfile.read.common.Chunk;
 import org.apache.iotdb.tsfile.read.common.Path;
 import org.apache.iotdb.tsfile.read.controller.CachedChunkLoaderImpl;
+import org.apache.iotdb.tsfile.read.controller.IMetadataIndexNodeCache;
 import org.apache.iotdb.tsfile.read.controller.MetadataQuerierByFileImpl;
 import org.apache.iotdb.tsfile.read.reader.TsFileInput;
 import org.apache.iotdb.tsfile.read.reader.page.PageReader;
@@ -73,7 +75,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -102,11 +103,15 @@ public class TsFileSequenceReader implements AutoCloseable {
   protected int fileMetadataSize;
   private ByteBuffer markerBuffer = ByteBuffer.allocate(Byte.BYTES);
   protected TsFileMetadata tsFileMetaData;
+  // whether the trained zstd dictionaries of the file metadata have been looked up
+  private volatile boolean zstdDictionariesLoaded;
+  private ZstdDictionaries zstdDictionaries;
   // device -> measurement -> TimeseriesMetadata
   private Map<String, Map<String, TimeseriesMetadata>> cachedDeviceMetadata =
       new ConcurrentHashMap<>();
   private static final ReadWriteLock cacheLock = new ReentrantReadWriteLock();
   private boolean cacheDeviceMetadata;
+  private IMetadataIndexNodeCache metadataIndexNodeCache;
   private long minPlanIndex = Long.MAX_VALUE;
   private long maxPlanIndex = Long.MIN_VALUE;
 
@@ -134,7 +139,8 @@ public class TsFileSequenceReader implements AutoCloseable {
       resourceLogger.debug("{} reader is opened. {}", file, getClass().getName());
     }
     this.file = file;
-    tsFileInput = FSFactoryProducer.getFileInputFactory().getTsFileInput(file);
+    // a file whose metadata size can be loaded is sealed
+    tsFileInput = FSFactoryProducer.getFileInputFactory().getTsFileInput(file, loadMetadataSize);
     try {
       if (loadMetadataSize) {
         loadMetadataSize();
@@ -262,6 +268,13 @@ public class TsFileSequenceReader implements AutoCloseable {
     return versionNumberByte.get();
   }
 
+  /** @return whether the file has a version number this reader reads, the current or version 3 */
+  public boolean isVersionNumberSupported() throws IOException {
+    byte versionNumber = readVersionNumber();
+    return versionNumber == TSFileConfig.VERSION_NUMBER
+        || versionNumber == TSFileConfig.VERSION_NUMBER_V3;
+  }
+
   /**
    * this function does not modify the position of the file reader.
    *
@@ -280,6 +293,30 @@ public class TsFileSequenceReader implements AutoCloseable {
     return tsFileMetaData;
   }
 
+  /**
+   * The trained zstd dictionaries that the ZSTD pages of this file may be compressed with. Only
+   * complete files may have them, as they are written with the file metadata.
+   *
+   * @return the dictionaries, or null if the file has none
+   */
+  public ZstdDictionaries getZstdDictionaries() throws IOException {
+    if (!zstdDictionariesLoaded) {
+      if (fileMetadataSize > 0 && isComplete()) {
+        zstdDictionaries = readFileMetadata().getZstdDictionaries();
+      }
+      zstdDictionariesLoaded = true;
+    }
+    return zstdDictionaries;
+  }
+
+  /** @return the uncompressor of the pages of this file compressed with the given type */
+  public IUnCompressor getUnCompressor(CompressionType type) throws IOException {
+    ZstdDictionaries dictionaries = type == CompressionType.ZSTD ? getZstdDictionaries() : null;
+    return dictionaries != null
+        ? dictionaries.getUnCompressor()
+        : IUnCompressor.getUnCompressor(type);
+  }
+
   /**
    * this function does not modify the position of the file reader.
    *
@@ -349,11 +386,11 @@ public class TsFileSequenceReader implements AutoCloseable {
       }
       throw new IOException("Device {" + path.getDevice() + "} is not in tsFileMetaData");
     }
-    ByteBuffer buffer = readData(metadataIndexPair.left.getOffset(), metadataIndexPair.right);
     MetadataIndexNode metadataIndexNode = deviceMetadataIndexNode;
     if (!metadataIndexNode.getNodeType().equals(MetadataIndexNodeType.LEAF_MEASUREMENT)) {
       try {
-        metadataIndexNode = MetadataIndexNode.deserializeFrom(buffer);
+        metadataIndexNode =
+            readMetadataIndexNode(metadataIndexPair.left.getOffset(), metadataIndexPair.right);
       } catch (BufferOverflowException e) {
         logger.error(METADATA_INDEX_NODE_DESERIALIZE_ERROR, file);
         throw e;
@@ -365,7 +402,7 @@ public class TsFileSequenceReader implements AutoCloseable {
       return null;
     }
     List<TimeseriesMetadata> timeseriesMetadataList = new ArrayList<>();
-    buffer = readData(metadataIndexPair.left.getOffset(), metadataIndexPair.right);
+    ByteBuffer buffer = readData(metadataIndexPair.left.getOffset(), metadataIndexPair.right);
     while (buffer.hasRemaining()) {
       try {
         timeseriesMetadataList.add(TimeseriesMetadata.deserializeFrom(buffer, true));
@@ -394,12 +431,12 @@ public class TsFileSequenceReader implements AutoCloseable {
       }
       throw new IOException("Device {" + path.getDevice() + "} is not in tsFileMetaData");
     }
-    ByteBuffer buffer = readData(metadataIndexPair.left.getOffset(), metadataIndexPair.right);
     MetadataIndexNode metadataIndexNode;
     TimeseriesMetadata firstTimeseriesMetadata;
     try {
       // next layer MeasurementNode of the specific DeviceNode
-      metadataIndexNode = MetadataIndexNode.deserializeFrom(buffer);
+      metadataIndexNode =
+          readMetadataIndexNode(metadataIndexPair.left.getOffset(), metadataIndexPair.right);
     } catch (BufferOverflowException e) {
       logger.error(METADATA_INDEX_NODE_DESERIALIZE_ERROR, file);
       throw e;
@@ -412,7 +449,7 @@ public class TsFileSequenceReader implements AutoCloseable {
       return null;
     }
     List<TimeseriesMetadata> timeseriesMetadataList = new ArrayList<>();
-    buffer = readData(metadataIndexPair.left.getOffset(), metadataIndexPair.right);
+    ByteBuffer buffer = readData(metadataIndexPair.left.getOffset(), metadataIndexPair.right);
     while (buffer.hasRemaining()) {
       try {
         timeseriesMetadataList.add(TimeseriesMetadata.deserializeFrom(buffer, true));
@@ -464,6 +501,84 @@ public class TsFileSequenceReader implements AutoCloseable {
     return timeseriesMetadataList;
   }
 
+  /**
+   * Find the TimeseriesMetadata of the measurements of a device. Unlike {@link
+   * #readTimeseriesMetadata(Path, Set)}, the measurements may be in different leaf nodes. The
+   * metadata index of the device is searched once and each leaf node is read at most once.
+   *
+   * @return the TimeseriesMetadata of the measurements that exist in this file
+   */
+  public List<TimeseriesMetadata> readTimeseriesMetadata(String device, Set<String> measurements)
+      throws IOException {
+    MetadataIndexNode measurementMetadataIndexNode = readMeasurementMetadataIndexNode(device, true);
+    if (measurementMetadataIndexNode == null || measurements.isEmpty()) {
+      return Collections.emptyList();
+    }
+    return readTimeseriesMetadataInLeaves(measurementMetadataIndexNode, measurements);
+  }
+
+  /**
+   * @param exactSearch false to take the nearest device if the device is not in the file
+   * @return the metadata index node of the measurements of the device, null if it is not found
+   */
+  private MetadataIndexNode readMeasurementMetadataIndexNode(String device, boolean exactSearch)
+      throws IOException {
+    readFileMetadata();
+    MetadataIndexNode deviceMetadataIndexNode = tsFileMetaData.getMetadataIndex();
+    Pair<MetadataIndexEntry, Long> metadataIndexPair =
+        getMetadataAndEndOffset(deviceMetadataIndexNode, device, true, exactSearch);
+    if (metadataIndexPair == null) {
+      return null;
+    }
+    try {
+      return readMetadataIndexNode(metadataIndexPair.left.getOffset(), metadataIndexPair.right);
+    } catch (BufferOverflowException e) {
+      logger.error(METADATA_INDEX_NODE_DESERIALIZE_ERROR, file);
+      throw e;
+    }
+  }
+
+  /**
+   * Read the TimeseriesMetadata of the measurements from the leaf nodes under the metadata index
+   * node of the measurements of a device. Each leaf node is read at most once.
+   *
+   * @return the TimeseriesMetadata of the measurements that exist, sorted by measurement
+   */
+  private List<TimeseriesMetadata> readTimeseriesMetadataInLeaves(
+      MetadataIndexNode measurementMetadataIndexNode, Set<String> measurements) throws IOException {
+    // measurements in the same leaf node are adjacent once sorted
+    List<String> measurementList = new ArrayList<>(measurements);
+    Collections.sort(measurementList);
+    List<TimeseriesMetadata> timeseriesMetadataList = new ArrayList<>();
+    long lastLeafOffset = -1;
+    for (String measurement : measurementList) {
+      Pair<MetadataIndexEntry, Long> measurementMetadataIndexPair =
+          getMetadataAndEndOffset(measurementMetadataIndexNode, measurement, false, false);
+      if (measurementMetadataIndexPair == null
+          || measurementMetadataIndexPair.left.getOffset() == lastLeafOffset) {
+        continue;
+      }
+      lastLeafOffset = measurementMetadataIndexPair.left.getOffset();
+      ByteBuffer buffer =
+          readData(
+              measurementMetadataIndexPair.left.getOffset(), measurementMetadataIndexPair.right);
+      while (buffer.hasRemaining()) {
+        TimeseriesMetadata timeseriesMetadata;
+        try {
+          timeseriesMetadata = TimeseriesMetadata.deserializeFrom(buffer, true);
+        } catch (BufferOverflowException e) {
+          logger.error(
+              "Something error happened while deserializing TimeseriesMetadata of file {}", file);
+          throw e;
+        }
+        if (measurements.contains(timeseriesMetadata.getMeasurementId())) {
+          timeseriesMetadataList.add(timeseriesMetadata);
+        }
+      }
+    }
+    return timeseriesMetadataList;
+  }
+
   /* Get leaf MetadataIndexPair which contains path */
   private Pair<MetadataIndexEntry, Long> getLeafMetadataIndexPair(Path path) throws IOException {
     readFileMetadata();
@@ -473,11 +588,11 @@ public class TsFileSequenceReader implements AutoCloseable {
     if (metadataIndexPair == null) {
       return null;
     }
-    ByteBuffer buffer = readData(metadataIndexPair.left.getOffset(), metadataIndexPair.right);
     MetadataIndexNode metadataIndexNode = deviceMetadataIndexNode;
     if (!metadataIndexNode.getNodeType().equals(MetadataIndexNodeType.LEAF_MEASUREMENT)) {
       try {
-        metadataIndexNode = MetadataIndexNode.deserializeFrom(buffer);
+        metadataIndexNode =
+            readMetadataIndexNode(metadataIndexPair.left.getOffset(), metadataIndexPair.right);
       } catch (BufferOverflowException e) {
         logger.error(METADATA_INDEX_NODE_DESERIALIZE_ERROR, file);
         throw e;
@@ -491,78 +606,26 @@ public class TsFileSequenceReader implements AutoCloseable {
   // This method is only used for TsFile
   public List<ITimeSeriesMetadata> readITimeseriesMetadata(String device, Set<String> measurements)
       throws IOException {
-    readFileMetadata();
-    MetadataIndexNode deviceMetadataIndexNode = tsFileMetaData.getMetadataIndex();
-    Pair<MetadataIndexEntry, Long> metadataIndexPair =
-        getMetadataAndEndOffset(deviceMetadataIndexNode, device, true, false);
-    if (metadataIndexPair == null) {
-      return Collections.emptyList();
-    }
-    List<ITimeSeriesMetadata> resultTimeseriesMetadataList = new ArrayList<>();
-    List<String> measurementList = new ArrayList<>(measurements);
-    Set<String> measurementsHadFound = new HashSet<>();
-    // the content of next Layer MeasurementNode of the specific device's DeviceNode
-    ByteBuffer buffer = readData(metadataIndexPair.left.getOffset(), metadataIndexPair.right);
-    Pair<MetadataIndexEntry, Long> measurementMetadataIndexPair = metadataIndexPair;
-    List<TimeseriesMetadata> timeseriesMetadataList = new ArrayList<>();
-
     // next layer MeasurementNode of the specific DeviceNode
-    MetadataIndexNode measurementMetadataIndexNode;
-    try {
-      measurementMetadataIndexNode = MetadataIndexNode.deserializeFrom(buffer);
-    } catch (BufferOverflowException e) {
-      logger.error(METADATA_INDEX_NODE_DESERIALIZE_ERROR, file);
-      throw e;
+    MetadataIndexNode measurementMetadataIndexNode =
+        readMeasurementMetadataIndexNode(device, false);
+    if (measurementMetadataIndexNode == null) {
+      return Collections.emptyList();
     }
     // Get the first timeseriesMetadata of the device
     TimeseriesMetadata firstTimeseriesMetadata =
         tryToGetFirstTimeseriesMetadata(measurementMetadataIndexNode);
 
-    for (int i = 0; i < measurementList.size(); i++) {
-      if (measurementsHadFound.contains(measurementList.get(i))) {
-        continue;
-      }
-      timeseriesMetadataList.clear();
-      measurementMetadataIndexPair =
-          getMetadataAndEndOffset(
-              measurementMetadataIndexNode, measurementList.get(i), false, false);
-
-      if (measurementMetadataIndexPair == null) {
-        continue;
-      }
-      // the content of TimeseriesNode of the specific MeasurementLeafNode
-      buffer =
-          readData(
-              measurementMetadataIndexPair.left.getOffset(), measurementMetadataIndexPair.right);
-      while (buffer.hasRemaining()) {
-        try {
-          timeseriesMetadataList.add(TimeseriesMetadata.deserializeFrom(buffer, true));
-        } catch (BufferOverflowException e) {
-          logger.error(
-              "Something error happened while deserializing TimeseriesMetadata of file {}", file);
-          throw e;
-        }
-      }
-      for (int j = i; j < measurementList.size(); j++) {
-        String current = measurementList.get(j);
-        if (!measurementsHadFound.contains(current)) {
-          int searchResult = binarySearchInTimeseriesMetadataList(timeseriesMetadataList, current);
-          if (searchResult >= 0) {
-            if (firstTimeseriesMetadata != null) {
-              List<TimeseriesMetadata> valueTimeseriesMetadataList = new ArrayList<>();
-              valueTimeseriesMetadataList.add(timeseriesMetadataList.get(searchResult));
-              resultTimeseriesMetadataList.add(
-                  new AlignedTimeSeriesMetadata(
-                      firstTimeseriesMetadata, valueTimeseriesMetadataList));
-            } else {
-              resultTimeseriesMetadataList.add(timeseriesMetadataList.get(searchResult));
-            }
-            measurementsHadFound.add(current);
-          }
-        }
-        if (measurementsHadFound.size() == measurements.size()) {
-          return resultTimeseriesMetadataList;
-        }
+    List<ITimeSeriesMetadata> resultTimeseriesMetadataList = new ArrayList<>();
+    for (TimeseriesMetadata timeseriesMetadata :
+        readTimeseriesMetadataInLeaves(measurementMetadataIndexNode, measurements)) {
+      if (firstTimeseriesMetadata != null) {
+        List<TimeseriesMetadata> valueTimeseriesMetadataList = new ArrayList<>();
+        valueTimeseriesMetadataList.add(timeseriesMetadata);
+        resultTimeseriesMetadataList.add(
+            new AlignedTimeSeriesMetadata(firstTimeseriesMetadata, valueTimeseriesMetadataList));
+      } else {
+        resultTimeseriesMetadataList.add(timeseriesMetadata);
       }
     }
     return resultTimeseriesMetadataList;
@@ -613,8 +676,8 @@ public class TsFileSequenceReader implements AutoCloseable {
       if (i != metadataIndexListSize - 1) {
         endOffset = metadataIndexNode.getChildren().get(i + 1).getOffset();
       }
-      ByteBuffer buffer = readData(metadataIndexNode.getChildren().get(i).getOffset(), endOffset);
-      MetadataIndexNode node = MetadataIndexNode.deserializeFrom(buffer);
+      MetadataIndexNode node =
+          readMetadataIndexNode(metadataIndexNode.getChildren().get(i).getOffset(), endOffset);
       deviceList.addAll(getAllDevices(node));
     }
     return deviceList;
@@ -651,8 +714,7 @@ public class TsFileSequenceReader implements AutoCloseable {
           queue.add(new Pair<>(entry.getName(), new Pair<>(startOffset, endOffset)));
           continue;
         }
-        ByteBuffer nextBuffer = readData(startOffset, endOffset);
-        getAllDevicesWithIsAligned(MetadataIndexNode.deserializeFrom(nextBuffer), queue);
+        getAllDevicesWithIsAligned(readMetadataIndexNode(startOffset, endOffset), queue);
       }
     } catch (BufferOverflowException e) {
       logger.error("Something error happened while getting all devices of file {}", file);
@@ -812,11 +874,10 @@ public class TsFileSequenceReader implements AutoCloseable {
       }
       return TimeseriesMetadata.deserializeFrom(buffer, true);
     } else if (measurementNode.getNodeType().equals(MetadataIndexNodeType.INTERNAL_MEASUREMENT)) {
-      ByteBuffer buffer =
-          readData(
+      MetadataIndexNode metadataIndexNode =
+          readMetadataIndexNode(
               measurementNode.getChildren().get(0).getOffset(),
               measurementNode.getChildren().get(1).getOffset());
-      MetadataIndexNode metadataIndexNode = MetadataIndexNode.deserializeFrom(buffer);
       return tryToGetFirstTimeseriesMetadata(metadataIndexNode);
     }
     return null;
@@ -976,9 +1037,11 @@ public class TsFileSequenceReader implements AutoCloseable {
       } else {
         Pair<MetadataIndexEntry, Long> childIndexEntry =
             metadataIndex.getChildIndexEntry(name, false);
-        ByteBuffer buffer = readData(childIndexEntry.left.getOffset(), childIndexEntry.right);
         return getMetadataAndEndOffset(
-            MetadataIndexNode.deserializeFrom(buffer), name, isDeviceLevel, exactSearch);
+            readMetadataIndexNode(childIndexEntry.left.getOffset(), childIndexEntry.right),
+            name,
+            isDeviceLevel,
+            exactSearch);
       }
     } catch (BufferOverflowException e) {
       logger.error("Something error happened while deserializing MetadataIndex of file {}", file);
@@ -1046,6 +1109,17 @@ public class TsFileSequenceReader implements AutoCloseable {
     return ChunkHeader.deserializeFrom(tsFileInput, position, chunkHeaderSize);
   }
 
+  /**
+   * read the header of a chunk without moving the position of the channel.
+   *
+   * @param metaData the metadata of the chunk
+   */
+  public ChunkHeader readChunkHeader(ChunkMetadata metaData) throws IOException {
+    return readChunkHeader(
+        metaData.getOffsetOfChunkHeader(),
+        ChunkHeader.getSerializedSize(metaData.getMeasurementUid()));
+  }
+
   /**
    * notice, this function will modify channel's position.
    *
@@ -1069,7 +1143,17 @@ public class TsFileSequenceReader implements AutoCloseable {
     ByteBuffer buffer =
         readChunk(
             metaData.getOffsetOfChunkHeader() + header.getSerializedSize(), header.getDataSize());
-    return new Chunk(header, buffer, metaData.getDeleteIntervalList(), metaData.getStatistics());
+    Chunk chunk =
+        new Chunk(header, buffer, metaData.getDeleteIntervalList(), metaData.getStatistics());
+    chunk.setRegularTimeIndex(metaData.getRegularTimeIndex());
+    setZstdDictionaries(chunk);
+    return chunk;
+  }
+
+  private void setZstdDictionaries(Chunk chunk) throws IOException {
+    if (chunk.getHeader().getCompressionType() == CompressionType.ZSTD) {
+      chunk.setZstdDictionaries(getZstdDictionaries());
+    }
   }
 
   /**
@@ -1085,8 +1169,11 @@ public class TsFileSequenceReader implements AutoCloseable {
         readChunk(
             chunkCacheKey.getOffsetOfChunkHeader() + header.getSerializedSize(),
             header.getDataSize());
-    return new Chunk(
-        header, buffer, chunkCacheKey.getDeleteIntervalList(), chunkCacheKey.getStatistics());
+    Chunk chunk =
+        new Chunk(
+            header, buffer, chunkCacheKey.getDeleteIntervalList(), chunkCacheKey.getStatistics());
+    setZstdDictionaries(chunk);
+    return chunk;
   }
 
   /**
@@ -1114,12 +1201,22 @@ public class TsFileSequenceReader implements AutoCloseable {
     return readData(-1, header.getCompressedSize());
   }
 
+  /**
+   * read the compressed body of a page at the given position without moving the position of the
+   * channel, so it is thread safe.
+   *
+   * @param position the file offset of the page body
+   */
+  public ByteBuffer readCompressedPage(long position, PageHeader header) throws IOException {
+    return readData(position, header.getCompressedSize());
+  }
+
   public ByteBuffer readPage(PageHeader header, CompressionType type) throws IOException {
     ByteBuffer buffer = readData(-1, header.getCompressedSize());
     if (header.getUncompressedSize() == 0 || type == CompressionType.UNCOMPRESSED) {
       return buffer;
     } // FIXME if the buffer is not array-implemented.
-    IUnCompressor unCompressor = IUnCompressor.getUnCompressor(type);
+    IUnCompressor unCompressor = getUnCompressor(type);
     ByteBuffer uncompressedBuffer = ByteBuffer.allocate(header.getUncompressedSize());
     unCompressor.uncompress(
         buffer.array(), buffer.position(), buffer.remaining(), uncompressedBuffer.array(), 0);
@@ -1164,9 +1261,16 @@ public class TsFileSequenceReader implements AutoCloseable {
    * @param position the start position of data in the tsFileInput, or the current position if
    *     position = -1
    * @param totalSize the size of data that want to read
-   * @return data that been read.
+   * @return data that been read, which is a view of the tsFileInput without an accessible array if
+   *     the tsFileInput supports {@link TsFileInput#slice(long, int)}.
    */
   protected ByteBuffer readData(long position, int totalSize) throws IOException {
+    if (position >= 0) {
+      ByteBuffer slice = tsFileInput.slice(position, totalSize);
+      if (slice != null) {
+        return slice;
+      }
+    }
     int allocateSize = Math.min(MAX_READ_BUFFER_SIZE, totalSize);
     int allocateNum = (int) Math.ceil((double) totalSize / allocateSize);
     ByteBuffer buffer = ByteBuffer.allocate(totalSize);
@@ -1251,8 +1355,7 @@ public class TsFileSequenceReader implements AutoCloseable {
     if (fileSize < headerLength) {
       return TsFileCheckStatus.INCOMPATIBLE_FILE;
     }
-    if (!TSFileConfig.MAGIC_STRING.equals(readHeadMagic())
-        || (TSFileConfig.VERSION_NUMBER != readVersionNumber())) {
+    if (!TSFileConfig.MAGIC_STRING.equals(readHeadMagic()) || !isVersionNumberSupported()) {
       return TsFileCheckStatus.INCOMPATIBLE_FILE;
     }
 
@@ -1515,8 +1618,7 @@ public class TsFileSequenceReader implements AutoCloseable {
       return TsFileCheckStatus.INCOMPATIBLE_FILE;
     }
     try {
-      if (!TSFileConfig.MAGIC_STRING.equals(readHeadMagic())
-          || (TSFileConfig.VERSION_NUMBER != readVersionNumber())) {
+      if (!TSFileConfig.MAGIC_STRING.equals(readHeadMagic()) || !isVersionNumberSupported()) {
         return TsFileCheckStatus.INCOMPATIBLE_FILE;
       }
       tsFileInput.position(headerLength);
@@ -1668,12 +1770,12 @@ public class TsFileSequenceReader implements AutoCloseable {
     if (metadataIndexPair == null) {
       throw new IOException("Device {" + device + "} is not in tsFileMetaData");
     }
-    ByteBuffer buffer = readData(metadataIndexPair.left.getOffset(), metadataIndexPair.right);
     MetadataIndexNode metadataIndexNode;
     TimeseriesMetadata firstTimeseriesMetadata;
     try {
       // next layer MeasurementNode of the specific DeviceNode
-      metadataIndexNode = MetadataIndexNode.deserializeFrom(buffer);
+      metadataIndexNode =
+          readMetadataIndexNode(metadataIndexPair.left.getOffset(), metadataIndexPair.right);
     } catch (BufferOverflowException e) {
       logger.error(METADATA_INDEX_NODE_DESERIALIZE_ERROR, file);
       throw e;
@@ -1692,7 +1794,7 @@ public class TsFileSequenceReader implements AutoCloseable {
       if (i != metadataIndexEntryList.size() - 1) {
         endOffset = metadataIndexEntryList.get(i + 1).getOffset();
       }
-      buffer = readData(metadataIndexEntry.getOffset(), endOffset);
+      ByteBuffer buffer = readData(metadataIndexEntry.getOffset(), endOffset);
       if (metadataIndexNode.getNodeType().equals(MetadataIndexNodeType.LEAF_MEASUREMENT)) {
         List<TimeseriesMetadata> timeseriesMetadataList = new ArrayList<>();
         while (buffer.hasRemaining()) {
@@ -1813,7 +1915,38 @@ public class TsFileSequenceReader implements AutoCloseable {
    */
   public MetadataIndexNode getMetadataIndexNode(long startOffset, long endOffset)
       throws IOException {
-    return MetadataIndexNode.deserializeFrom(readData(startOffset, endOffset));
+    return readMetadataIndexNode(startOffset, endOffset);
+  }
+
+  /**
+   * Read the MetadataIndexNode in [startOffset, endOffset). If a node cache is set, the node is
+   * looked up in the cache first and put into it after being deserialized.
+   *
+   * <p>Besides lookups of single devices and series, the device listings (getAllDevices and
+   * getAllDevicesIteratorWithIsAligned) also go through here and so through the cache, as they
+   * visit the same device levels of the index. Full scans of the measurement levels (getAllPaths,
+   * getAllTimeseriesMetadata) deserialize the nodes from the buffer of the whole subtree instead
+   * and do not fill the cache.
+   */
+  protected MetadataIndexNode readMetadataIndexNode(long startOffset, long endOffset)
+      throws IOException {
+    if (metadataIndexNodeCache == null) {
+      return MetadataIndexNode.deserializeFrom(readData(startOffset, endOffset));
+    }
+    MetadataIndexNode metadataIndexNode = metadataIndexNodeCache.get(file, startOffset);
+    if (metadataIndexNode == null) {
+      metadataIndexNode = MetadataIndexNode.deserializeFrom(readData(startOffset, endOffset));
+      metadataIndexNodeCache.put(file, startOffset, metadataIndexNode);
+    }
+    return metadataIndexNode;
+  }
+
+  /**
+   * Set the cache shared by readers of sealed TsFiles to avoid reading and deserializing the same
+   * MetadataIndexNode again. Must only be set on readers of sealed files.
+   */
+  public void setMetadataIndexNodeCache(IMetadataIndexNodeCache metadataIndexNodeCache) {
+    this.metadataIndexNodeCache = metadataIndexNodeCache;
   }
 
   /**
@@ -18,8 +18,10 @@
  */
 package org.apache.iotdb.tsfile.read.common;
 
+import org.apache.iotdb.tsfile.compress.ZstdDictionaries;
 import org.apache.iotdb.tsfile.file.MetaMarker;
 import org.apache.iotdb.tsfile.file.header.ChunkHeader;
+import org.apache.iotdb.tsfile.file.metadata.RegularTimeIndex;
 import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
 import org.apache.iotdb.tsfile.utils.PublicBAOS;
 import org.apache.iotdb.tsfile.utils.ReadWriteForEncodingUtils;
@@ -37,6 +39,10 @@ public class Chunk {
   private boolean isFromOldFile = false;
   /** A list of deleted intervals. */
   private List<TimeRange> deleteIntervalList;
+  /** fixed-interval runs of the timestamps of the chunk, null if they are unknown */
+  private RegularTimeIndex regularTimeIndex;
+  /** the trained zstd dictionaries of the file of the chunk, null if the file has none */
+  private ZstdDictionaries zstdDictionaries;
 
   private long ramSize;
 
@@ -67,7 +73,27 @@ public class Chunk {
     this.deleteIntervalList = list;
   }
 
+  public RegularTimeIndex getRegularTimeIndex() {
+    return regularTimeIndex;
+  }
+
+  public void setRegularTimeIndex(RegularTimeIndex regularTimeIndex) {
+    this.regularTimeIndex = regularTimeIndex;
+  }
+
+  public ZstdDictionaries getZstdDictionaries() {
+    return zstdDictionaries;
+  }
+
+  public void setZstdDictionaries(ZstdDictionaries zstdDictionaries) {
+    this.zstdDictionaries = zstdDictionaries;
+  }
+
   public void mergeChunkByAppendPage(Chunk chunk) throws IOException {
+    mergeZstdDictionaries(chunk.zstdDictionaries);
+    regularTimeIndex = null;
+    chunkData = toHeapBuffer(chunkData);
+    chunk.chunkData = toHeapBuffer(chunk.chunkData);
     int dataSize = 0;
     // from where the page data of the merged chunk starts, if -1, it means the merged chunk has
     // more than one page
@@ -147,6 +173,49 @@ public class Chunk {
     chunkData = newChunkData;
   }
 
+  /** the appended pages keep the ids of the dictionaries they were compressed with */
+  private void mergeZstdDictionaries(ZstdDictionaries other) throws IOException {
+    if (other == null || other == zstdDictionaries) {
+      return;
+    }
+    ZstdDictionaries merged = new ZstdDictionaries();
+    if ((zstdDictionaries != null && !merged.addAll(zstdDictionaries)) || !merged.addAll(other)) {
+      throw new IOException(
+          "The zstd dictionaries of the chunks of " + chunkHeader.getMeasurementID() + " clash");
+    }
+    zstdDictionaries = merged;
+  }
+
+  /**
+   * @return this chunk if its data is on the heap, otherwise a copy of it whose data is on the heap
+   *     and so stays valid after the memory-mapped TsFile it was read from is closed
+   */
+  public Chunk toHeapChunk() {
+    if (chunkData.hasArray()) {
+      return this;
+    }
+    Chunk chunk =
+        new Chunk(chunkHeader, toHeapBuffer(chunkData), deleteIntervalList, chunkStatistic);
+    chunk.regularTimeIndex = regularTimeIndex;
+    chunk.zstdDictionaries = zstdDictionaries;
+    chunk.isFromOldFile = isFromOldFile;
+    return chunk;
+  }
+
+  /** Chunks read from memory-mapped TsFiles are views without accessible arrays. */
+  private static ByteBuffer toHeapBuffer(ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      return buffer;
+    }
+    ByteBuffer heapBuffer = ByteBuffer.allocate(buffer.capacity());
+    ByteBuffer source = buffer.duplicate();
+    source.clear();
+    heapBuffer.put(source);
+    heapBuffer.limit(buffer.limit());
+    heapBuffer.position(buffer.position());
+    return heapBuffer;
+  }
+
   public Statistics getChunkStatistic() {
     return chunkStatistic;
   }
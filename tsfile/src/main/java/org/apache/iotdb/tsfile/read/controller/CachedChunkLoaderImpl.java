@@ -68,11 +68,15 @@ public class CachedChunkLoaderImpl implements IChunkLoader {
   @Override
   public Chunk loadChunk(ChunkMetadata chunkMetaData) throws IOException {
     Chunk chunk = chunkCache.get(new ChunkCacheKey(chunkMetaData));
-    return new Chunk(
-        chunk.getHeader(),
-        chunk.getData().duplicate(),
-        chunkMetaData.getDeleteIntervalList(),
-        chunkMetaData.getStatistics());
+    Chunk copy =
+        new Chunk(
+            chunk.getHeader(),
+            chunk.getData().duplicate(),
+            chunkMetaData.getDeleteIntervalList(),
+            chunkMetaData.getStatistics());
+    copy.setRegularTimeIndex(chunkMetaData.getRegularTimeIndex());
+    copy.setZstdDictionaries(chunk.getZstdDictionaries());
+    return copy;
   }
 
   @Override
@@ -83,14 +87,11 @@ public class CachedChunkLoaderImpl implements IChunkLoader {
   @Override
   public IChunkReader getChunkReader(IChunkMetadata chunkMetaData, Filter timeFilter)
       throws IOException {
-    Chunk chunk = chunkCache.get(new ChunkCacheKey((ChunkMetadata) chunkMetaData));
-    return new ChunkReader(
-        new Chunk(
-            chunk.getHeader(),
-            chunk.getData().duplicate(),
-            chunkMetaData.getDeleteIntervalList(),
-            chunkMetaData.getStatistics()),
-        timeFilter);
+    if (((ChunkMetadata) chunkMetaData).getPageIndex() != null) {
+      // read only the pages that satisfy the filter
+      return new ChunkReader((ChunkMetadata) chunkMetaData, reader, timeFilter);
+    }
+    return new ChunkReader(loadChunk((ChunkMetadata) chunkMetaData), timeFilter);
   }
 
   public static class ChunkCacheKey {
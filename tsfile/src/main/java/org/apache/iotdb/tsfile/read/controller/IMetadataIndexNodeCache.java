@@ -0,0 +1,34 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.read.controller;
+
+import org.apache.iotdb.tsfile.file.metadata.MetadataIndexNode;
+
+/**
+ * A cache of deserialized {@link MetadataIndexNode}s that can be shared by all readers of the
+ * sealed TsFiles. A node is identified by the path of its file and its start offset in the file.
+ * Cached nodes are shared and must not be modified.
+ */
+public interface IMetadataIndexNodeCache {
+
+  /** @return the cached node, or null if it is not in the cache */
+  MetadataIndexNode get(String filePath, long startOffset);
+
+  void put(String filePath, long startOffset, MetadataIndexNode metadataIndexNode);
+}
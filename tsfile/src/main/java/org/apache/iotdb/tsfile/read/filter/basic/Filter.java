@@ -43,6 +43,34 @@ public interface Filter {
    */
   boolean satisfy(long time, Object value);
 
+  /**
+   * To examine whether the single point(with time and primitive value) is satisfied with the
+   * filter. Filters override it to avoid boxing the value when scanning a page.
+   */
+  default boolean satisfy(long time, boolean value) {
+    return satisfy(time, (Object) value);
+  }
+
+  /** @see #satisfy(long, boolean) */
+  default boolean satisfy(long time, int value) {
+    return satisfy(time, (Object) value);
+  }
+
+  /** @see #satisfy(long, boolean) */
+  default boolean satisfy(long time, long value) {
+    return satisfy(time, (Object) value);
+  }
+
+  /** @see #satisfy(long, boolean) */
+  default boolean satisfy(long time, float value) {
+    return satisfy(time, (Object) value);
+  }
+
+  /** @see #satisfy(long, boolean) */
+  default boolean satisfy(long time, double value) {
+    return satisfy(time, (Object) value);
+  }
+
   /**
    * To examine whether the min time and max time are satisfied with the filter.
    *
@@ -74,6 +74,18 @@ public class In<T extends Comparable<T>> implements Filter {
 
   @Override
   public boolean containStartEndTime(long startTime, long endTime) {
+    if (filterType != FilterType.TIME_FILTER) {
+      return true;
+    }
+    if (!not) {
+      return startTime == endTime && values.contains(startTime);
+    }
+    for (T value : values) {
+      long time = (Long) value;
+      if (time >= startTime && time <= endTime) {
+        return false;
+      }
+    }
     return true;
   }
 
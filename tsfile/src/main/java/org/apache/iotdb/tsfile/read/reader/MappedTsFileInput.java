@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.read.reader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A TsFileInput of a sealed local TsFile that serves positional reads from memory-mapped regions,
+ * so that metadata and chunks are read as views of the page cache instead of heap copies.
+ *
+ * <p>The file is mapped lazily, region by region, up to the size it has when the input is opened.
+ * Reads beyond that size or across two regions fall back to the file channel. Closing the input
+ * unmaps the regions at once, so views returned by {@link #slice(long, int)} must not be used after
+ * the input is closed: the FileReaderManager only closes a reader when its last reference is
+ * released, and the ChunkCache keeps heap copies of the chunks it caches.
+ */
+public class MappedTsFileInput extends LocalTsFileInput {
+
+  private static final Logger logger = LoggerFactory.getLogger(MappedTsFileInput.class);
+
+  /** Unmaps a region, or does nothing if the JVM does not allow it and the GC has to unmap it. */
+  private static final Consumer<ByteBuffer> UNMAPPER = createUnmapper();
+
+  /** Regions must be indexable by int, 1 GB keeps the number of mappings of a TsFile small. */
+  static final long DEFAULT_REGION_SIZE = 1L << 30;
+
+  private final long regionSize;
+  private final long mappedSize;
+  private volatile AtomicReferenceArray<ByteBuffer> regions;
+
+  public MappedTsFileInput(Path file) throws IOException {
+    this(file, DEFAULT_REGION_SIZE);
+  }
+
+  MappedTsFileInput(Path file, long regionSize) throws IOException {
+    super(file);
+    this.regionSize = regionSize;
+    this.mappedSize = size();
+    this.regions = new AtomicReferenceArray<>((int) ((mappedSize + regionSize - 1) / regionSize));
+  }
+
+  @Override
+  public int read(ByteBuffer dst, long position) throws IOException {
+    int length = (int) Math.min(dst.remaining(), mappedSize - position);
+    ByteBuffer view = length > 0 ? slice(position, length) : null;
+    if (view == null) {
+      return super.read(dst, position);
+    }
+    dst.put(view);
+    return length;
+  }
+
+  @Override
+  public ByteBuffer slice(long position, int length) throws IOException {
+    if (position < 0 || length < 0 || position + length > mappedSize) {
+      return null;
+    }
+    int index = (int) (position / regionSize);
+    long regionStart = index * regionSize;
+    if (position + length > regionStart + regionSize) {
+      return null;
+    }
+    ByteBuffer region = getRegion(index, regionStart);
+    if (region == null) {
+      return null;
+    }
+    ByteBuffer view = region.duplicate();
+    int offset = (int) (position - regionStart);
+    view.position(offset);
+    view.limit(offset + length);
+    return view.slice();
+  }
+
+  private ByteBuffer getRegion(int index, long regionStart) throws IOException {
+    AtomicReferenceArray<ByteBuffer> currentRegions = regions;
+    if (currentRegions == null) {
+      // closed
+      return null;
+    }
+    ByteBuffer region = currentRegions.get(index);
+    if (region == null) {
+      region =
+          wrapAsFileChannel()
+              .map(
+                  FileChannel.MapMode.READ_ONLY,
+                  regionStart,
+                  Math.min(regionSize, mappedSize - regionStart));
+      if (!currentRegions.compareAndSet(index, null, region)) {
+        region = currentRegions.get(index);
+      }
+    }
+    return region;
+  }
+
+  @Override
+  public void close() throws IOException {
+    AtomicReferenceArray<ByteBuffer> closedRegions = regions;
+    regions = null;
+    if (closedRegions != null) {
+      for (int i = 0; i < closedRegions.length(); i++) {
+        ByteBuffer region = closedRegions.getAndSet(i, null);
+        if (region != null) {
+          UNMAPPER.accept(region);
+        }
+      }
+    }
+    super.close();
+  }
+
+  /** sun.misc.Unsafe.invokeCleaner since Java 9, the cleaner of the DirectBuffer on Java 8. */
+  private static Consumer<ByteBuffer> createUnmapper() {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      Object unsafe = theUnsafe.get(null);
+      return region -> invoke(invokeCleaner, unsafe, region);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // Java 8, try the cleaner of the buffer
+    }
+    try {
+      Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+      Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+      return region -> {
+        Object regionCleaner = invoke(cleaner, region);
+        if (regionCleaner != null) {
+          invoke(clean, regionCleaner);
+        }
+      };
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      logger.warn("Mapped TsFile regions can not be unmapped explicitly, leave them to the GC", e);
+      return region -> {};
+    }
+  }
+
+  private static Object invoke(Method method, Object target, Object... args) {
+    try {
+      return method.invoke(target, args);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      logger.warn("Failed to unmap a mapped TsFile region, leave it to the GC", e);
+      return null;
+    }
+  }
+}
@@ -97,6 +97,20 @@ public interface TsFileInput {
    */
   int read(ByteBuffer dst, long position) throws IOException;
 
+  /**
+   * Returns a view of {@code length} bytes of this TsFileInput starting at the given position,
+   * without copying them and without changing this TsFileInput's position. The returned buffer may
+   * be a direct buffer, so callers must not rely on {@link ByteBuffer#array()}.
+   *
+   * @param position The position of the first byte of the view; must be non-negative
+   * @param length The number of bytes of the view
+   * @return The view, or null if this TsFileInput can not provide the bytes without copying them
+   * @throws IOException If some I/O error occurs
+   */
+  default ByteBuffer slice(long position, int length) throws IOException {
+    return null;
+  }
+
   /** read a byte from the Input. */
   int read() throws IOException;
 
@@ -24,6 +24,7 @@ import org.apache.iotdb.tsfile.encoding.decoder.Decoder;
 import org.apache.iotdb.tsfile.file.MetaMarker;
 import org.apache.iotdb.tsfile.file.header.ChunkHeader;
 import org.apache.iotdb.tsfile.file.header.PageHeader;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
@@ -34,6 +35,7 @@ import org.apache.iotdb.tsfile.read.filter.basic.Filter;
 import org.apache.iotdb.tsfile.read.reader.IChunkReader;
 import org.apache.iotdb.tsfile.read.reader.IPageReader;
 import org.apache.iotdb.tsfile.read.reader.page.AlignedPageReader;
+import org.apache.iotdb.tsfile.read.reader.page.PageBufferPool;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -194,6 +196,10 @@ public class AlignedChunkReader implements IChunkReader {
       PageHeader timePageHeader, List<PageHeader> valuePageHeader) throws IOException {
     PageInfo timePageInfo = new PageInfo();
     getPageInfo(timePageHeader, timeChunkDataBuffer, timeChunkHeader, timePageInfo);
+    List<byte[]> pooledPageDataList = new ArrayList<>();
+    if (timePageInfo.pooledPageData != null) {
+      pooledPageDataList.add(timePageInfo.pooledPageData);
+    }
     PageInfo valuePageInfo = new PageInfo();
     List<PageHeader> valuePageHeaderList = new ArrayList<>();
     List<ByteBuffer> valuePageDataList = new ArrayList<>();
@@ -215,6 +221,9 @@ public class AlignedChunkReader implements IChunkReader {
             valueChunkDataBufferList.get(i),
             valueChunkHeaderList.get(i),
             valuePageInfo);
+        if (valuePageInfo.pooledPageData != null) {
+          pooledPageDataList.add(valuePageInfo.pooledPageData);
+        }
         valuePageHeaderList.add(valuePageInfo.pageHeader);
         valuePageDataList.add(valuePageInfo.pageData);
         valueDataTypeList.add(valuePageInfo.dataType);
@@ -233,6 +242,9 @@ public class AlignedChunkReader implements IChunkReader {
       }
     }
     if (!exist) {
+      for (byte[] pooledPageData : pooledPageDataList) {
+        PageBufferPool.getInstance().release(pooledPageData);
+      }
       return null;
     }
     AlignedPageReader alignedPageReader =
@@ -246,6 +258,7 @@ public class AlignedChunkReader implements IChunkReader {
             valueDecoderList,
             filter);
     alignedPageReader.setDeleteIntervalList(valueDeleteIntervalList);
+    alignedPageReader.setPooledPageDataList(pooledPageDataList);
     return alignedPageReader;
   }
 
@@ -263,7 +276,6 @@ public class AlignedChunkReader implements IChunkReader {
     pageInfo.pageHeader = pageHeader;
     pageInfo.dataType = chunkHeader.getDataType();
     int compressedPageBodyLength = pageHeader.getCompressedSize();
-    byte[] compressedPageBody = new byte[compressedPageBodyLength];
     // doesn't has a complete page body
     if (compressedPageBodyLength > chunkBuffer.remaining()) {
       throw new IOException(
@@ -273,13 +285,21 @@ public class AlignedChunkReader implements IChunkReader {
               + chunkBuffer.remaining());
     }
 
-    chunkBuffer.get(compressedPageBody);
+    ByteBuffer pageBody = chunkBuffer.slice();
+    pageBody.limit(compressedPageBodyLength);
+    chunkBuffer.position(chunkBuffer.position() + compressedPageBodyLength);
     pageInfo.decoder =
         Decoder.getDecoderByType(chunkHeader.getEncodingType(), chunkHeader.getDataType());
-    byte[] uncompressedPageData = new byte[pageHeader.getUncompressedSize()];
+    if (chunkHeader.getCompressionType() == CompressionType.UNCOMPRESSED) {
+      // decode the page from a view of the chunk, which may be a view of a memory-mapped file
+      pageInfo.pageData = pageBody;
+      pageInfo.pooledPageData = null;
+      return;
+    }
+    int uncompressedSize = pageHeader.getUncompressedSize();
+    byte[] uncompressedPageData = PageBufferPool.getInstance().allocate(uncompressedSize);
     try {
-      unCompressor.uncompress(
-          compressedPageBody, 0, compressedPageBodyLength, uncompressedPageData, 0);
+      unCompressor.uncompress(pageBody, uncompressedPageData, 0);
     } catch (Exception e) {
       throw new IOException(
           "Uncompress error! uncompress size: "
@@ -290,13 +310,17 @@ public class AlignedChunkReader implements IChunkReader {
               + pageHeader
               + e.getMessage());
     }
-    pageInfo.pageData = ByteBuffer.wrap(uncompressedPageData);
+    pageInfo.pageData = ByteBuffer.wrap(uncompressedPageData, 0, uncompressedSize);
+    pageInfo.pooledPageData = uncompressedPageData;
   }
 
   private static class PageInfo {
 
     PageHeader pageHeader;
     ByteBuffer pageData;
+    /** array of the PageBufferPool holding pageData, null if pageData is a view of the chunk */
+    byte[] pooledPageData;
+
     TSDataType dataType;
     Decoder decoder;
   }
@@ -22,12 +22,18 @@ package org.apache.iotdb.tsfile.read.reader.chunk;
 import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
 import org.apache.iotdb.tsfile.compress.IUnCompressor;
 import org.apache.iotdb.tsfile.encoding.decoder.Decoder;
+import org.apache.iotdb.tsfile.encoding.decoder.RegularTimeDecoder;
 import org.apache.iotdb.tsfile.file.MetaMarker;
 import org.apache.iotdb.tsfile.file.header.ChunkHeader;
 import org.apache.iotdb.tsfile.file.header.PageHeader;
+import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.apache.iotdb.tsfile.file.metadata.PageIndex;
+import org.apache.iotdb.tsfile.file.metadata.RegularTimeIndex;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
 import org.apache.iotdb.tsfile.read.common.BatchData;
 import org.apache.iotdb.tsfile.read.common.Chunk;
 import org.apache.iotdb.tsfile.read.common.TimeRange;
@@ -61,6 +67,11 @@ public class ChunkReader implements IChunkReader {
   /** A list of deleted intervals. */
   private List<TimeRange> deleteIntervalList;
 
+  /** computes the timestamps of the pages instead of decoding them, null if there is none */
+  private RegularTimeIndex regularTimeIndex;
+  /** position of the first point of the next page in the chunk */
+  private int pageStartPosition;
+
   /**
    * constructor of ChunkReader.
    *
@@ -73,10 +84,14 @@ public class ChunkReader implements IChunkReader {
     this.deleteIntervalList = chunk.getDeleteIntervalList();
     this.currentTimestamp = Long.MIN_VALUE;
     chunkHeader = chunk.getHeader();
-    this.unCompressor = IUnCompressor.getUnCompressor(chunkHeader.getCompressionType());
+    this.unCompressor =
+        chunk.getZstdDictionaries() != null
+            ? chunk.getZstdDictionaries().getUnCompressor()
+            : IUnCompressor.getUnCompressor(chunkHeader.getCompressionType());
     if (chunk.isFromOldFile()) {
       initAllPageReadersV2();
     } else {
+      this.regularTimeIndex = chunk.getRegularTimeIndex();
       initAllPageReaders(chunk.getChunkStatistic());
     }
   }
@@ -91,14 +106,69 @@ public class ChunkReader implements IChunkReader {
     this.deleteIntervalList = chunk.getDeleteIntervalList();
     this.currentTimestamp = currentTimestamp;
     chunkHeader = chunk.getHeader();
-    this.unCompressor = IUnCompressor.getUnCompressor(chunkHeader.getCompressionType());
+    this.unCompressor =
+        chunk.getZstdDictionaries() != null
+            ? chunk.getZstdDictionaries().getUnCompressor()
+            : IUnCompressor.getUnCompressor(chunkHeader.getCompressionType());
     if (chunk.isFromOldFile()) {
       initAllPageReadersV2();
     } else {
+      this.regularTimeIndex = chunk.getRegularTimeIndex();
       initAllPageReaders(chunk.getChunkStatistic());
     }
   }
 
+  /**
+   * Construct a ChunkReader from the page index of a chunk instead of the whole chunk. Pages that
+   * do not satisfy the filter are skipped without being read, and the bodies of the others are read
+   * from the file only when their data is read.
+   *
+   * @param chunkMetadata metadata of a chunk that has a page index
+   * @param reader reader of the file of the chunk
+   */
+  public ChunkReader(ChunkMetadata chunkMetadata, TsFileSequenceReader reader, Filter filter)
+      throws IOException {
+    this.filter = filter;
+    this.deleteIntervalList = chunkMetadata.getDeleteIntervalList();
+    this.currentTimestamp = Long.MIN_VALUE;
+    chunkHeader = reader.readChunkHeader(chunkMetadata);
+    this.unCompressor = reader.getUnCompressor(chunkHeader.getCompressionType());
+    this.regularTimeIndex = chunkMetadata.getRegularTimeIndex();
+    initAllPageReaders(
+        chunkMetadata.getPageIndex(),
+        reader,
+        chunkMetadata.getOffsetOfChunkHeader() + chunkHeader.getSerializedSize());
+  }
+
+  private void initAllPageReaders(
+      PageIndex pageIndex, TsFileSequenceReader reader, long chunkDataOffset) {
+    for (int i = 0; i < pageIndex.getPageNum(); i++) {
+      // pageSatisfied may mark the page as modified, so the header shared by queries is copied
+      PageHeader indexedPageHeader = pageIndex.getPageHeader(i);
+      PageHeader pageHeader =
+          new PageHeader(
+              indexedPageHeader.getUncompressedSize(),
+              indexedPageHeader.getCompressedSize(),
+              indexedPageHeader.getStatistics());
+      Decoder pageTimeDecoder = getPageTimeDecoder(pageHeader);
+      if (!pageSatisfied(pageHeader)) {
+        continue;
+      }
+      long pageBodyOffset = chunkDataOffset + pageIndex.getPageBodyOffset(i);
+      PageReader pageReader =
+          new PageReader(
+              pageHeader,
+              () -> reader.readCompressedPage(pageBodyOffset, pageHeader),
+              unCompressor,
+              chunkHeader.getDataType(),
+              Decoder.getDecoderByType(chunkHeader.getEncodingType(), chunkHeader.getDataType()),
+              pageTimeDecoder,
+              filter);
+      pageReader.setDeleteIntervalList(deleteIntervalList);
+      pageReaderList.add(pageReader);
+    }
+  }
+
   private void initAllPageReaders(Statistics chunkStatistic) throws IOException {
     // construct next satisfied page header
     while (chunkDataBuffer.remaining() > 0) {
@@ -109,9 +179,10 @@ public class ChunkReader implements IChunkReader {
       } else {
         pageHeader = PageHeader.deserializeFrom(chunkDataBuffer, chunkHeader.getDataType());
       }
+      Decoder pageTimeDecoder = getPageTimeDecoder(pageHeader);
       // if the current page satisfies
       if (pageSatisfied(pageHeader)) {
-        pageReaderList.add(constructPageReaderForNextPage(pageHeader));
+        pageReaderList.add(constructPageReaderForNextPage(pageHeader, pageTimeDecoder));
       } else {
         skipBytesInStreamByLength(pageHeader.getCompressedSize());
       }
@@ -160,9 +231,23 @@ public class ChunkReader implements IChunkReader {
     return filter == null || filter.satisfy(pageHeader.getStatistics());
   }
 
-  private PageReader constructPageReaderForNextPage(PageHeader pageHeader) throws IOException {
+  /**
+   * get the decoder of the timestamps of the next page and move to the page after it. Pages are
+   * visited in order, including the skipped ones, so the positions follow the point counts.
+   */
+  private Decoder getPageTimeDecoder(PageHeader pageHeader) {
+    if (regularTimeIndex == null) {
+      return timeDecoder;
+    }
+    int count = (int) pageHeader.getStatistics().getCount();
+    Decoder decoder = new RegularTimeDecoder(regularTimeIndex, pageStartPosition, count);
+    pageStartPosition += count;
+    return decoder;
+  }
+
+  private PageReader constructPageReaderForNextPage(PageHeader pageHeader, Decoder pageTimeDecoder)
+      throws IOException {
     int compressedPageBodyLength = pageHeader.getCompressedSize();
-    byte[] compressedPageBody = new byte[compressedPageBodyLength];
 
     // doesn't has a complete page body
     if (compressedPageBodyLength > chunkDataBuffer.remaining()) {
@@ -173,28 +258,30 @@ public class ChunkReader implements IChunkReader {
               + chunkDataBuffer.remaining());
     }
 
-    chunkDataBuffer.get(compressedPageBody);
     Decoder valueDecoder =
         Decoder.getDecoderByType(chunkHeader.getEncodingType(), chunkHeader.getDataType());
-    byte[] uncompressedPageData = new byte[pageHeader.getUncompressedSize()];
-    try {
-      unCompressor.uncompress(
-          compressedPageBody, 0, compressedPageBodyLength, uncompressedPageData, 0);
-    } catch (Exception e) {
-      throw new IOException(
-          "Uncompress error! uncompress size: "
-              + pageHeader.getUncompressedSize()
-              + "compressed size: "
-              + pageHeader.getCompressedSize()
-              + "page header: "
-              + pageHeader
-              + e.getMessage());
-    }
-
-    ByteBuffer pageData = ByteBuffer.wrap(uncompressedPageData);
+    ByteBuffer pageBody = chunkDataBuffer.slice();
+    pageBody.limit(compressedPageBodyLength);
+    chunkDataBuffer.position(chunkDataBuffer.position() + compressedPageBodyLength);
     PageReader reader =
-        new PageReader(
-            pageHeader, pageData, chunkHeader.getDataType(), valueDecoder, timeDecoder, filter);
+        chunkHeader.getCompressionType() == CompressionType.UNCOMPRESSED
+            // decode the page from a view of the chunk, which may be a view of a memory-mapped file
+            ? new PageReader(
+                pageHeader,
+                pageBody,
+                chunkHeader.getDataType(),
+                valueDecoder,
+                pageTimeDecoder,
+                filter)
+            // uncompress the page only when it is read
+            : new PageReader(
+                pageHeader,
+                pageBody,
+                unCompressor,
+                chunkHeader.getDataType(),
+                valueDecoder,
+                pageTimeDecoder,
+                filter);
     reader.setDeleteIntervalList(deleteIntervalList);
     return reader;
   }
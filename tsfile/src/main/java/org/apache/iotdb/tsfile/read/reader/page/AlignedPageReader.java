@@ -36,6 +36,7 @@ import org.apache.iotdb.tsfile.utils.TsPrimitiveType;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -47,6 +48,9 @@ public class AlignedPageReader implements IPageReader, IAlignedPageReader {
   private Filter filter;
   private boolean isModified;
 
+  /** arrays borrowed from the PageBufferPool holding the uncompressed pages */
+  private List<byte[]> pooledPageDataList = Collections.emptyList();
+
   public AlignedPageReader(
       PageHeader timePageHeader,
       ByteBuffer timePageData,
@@ -102,6 +106,7 @@ public class AlignedPageReader implements IPageReader, IAlignedPageReader {
         pageData.putVector(timestamp, v);
       }
     }
+    releasePageData();
     return pageData.flip();
   }
 
@@ -143,9 +148,26 @@ public class AlignedPageReader implements IPageReader, IAlignedPageReader {
         builder.declarePosition();
       }
     }
+    releasePageData();
     return builder.build();
   }
 
+  /** @param pooledPageDataList arrays of the PageBufferPool that the pages are uncompressed into */
+  public void setPooledPageDataList(List<byte[]> pooledPageDataList) {
+    this.pooledPageDataList = pooledPageDataList;
+  }
+
+  /**
+   * a page is read only once, so its pooled arrays can be reused after reading all its points. The
+   * time and value buffers have been read to their ends, so reading them again returns nothing.
+   */
+  private void releasePageData() {
+    for (byte[] pooledPageData : pooledPageDataList) {
+      PageBufferPool.getInstance().release(pooledPageData);
+    }
+    pooledPageDataList = Collections.emptyList();
+  }
+
   public void setDeleteIntervalList(List<List<TimeRange>> list) {
     for (int i = 0; i < valueCount; i++) {
       if (valuePageReaderList.get(i) != null) {
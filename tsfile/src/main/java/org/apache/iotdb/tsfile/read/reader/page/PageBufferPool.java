@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.read.reader.page;
+
+import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-local pools of the arrays that pages are uncompressed into. A page reader borrows an array
+ * when it uncompresses its page and gives it back once the page is read, so that scanning many
+ * pages does not allocate a new array per page. Pooled arrays are as large as the page size in the
+ * config rounded up to a power of two, larger pages get arrays that are not pooled.
+ */
+public class PageBufferPool {
+
+  /** max number of arrays kept by each thread */
+  private static final int MAX_POOLED_BUFFER_NUM = 8;
+
+  private final ThreadLocal<ArrayDeque<byte[]>> pools = ThreadLocal.withInitial(ArrayDeque::new);
+
+  /** total size of the uncompressed pages that arrays were borrowed for */
+  private final LongAdder requestedBytes = new LongAdder();
+  /** total size of the arrays that were newly allocated */
+  private final LongAdder allocatedBytes = new LongAdder();
+
+  private PageBufferPool() {}
+
+  public static PageBufferPool getInstance() {
+    return InstanceHolder.INSTANCE;
+  }
+
+  /** @return an array whose length is at least the given size */
+  public byte[] allocate(int size) {
+    requestedBytes.add(size);
+    int pooledBufferSize = getPooledBufferSize();
+    if (size <= pooledBufferSize) {
+      byte[] buffer = pools.get().pollLast();
+      if (buffer != null && buffer.length == pooledBufferSize) {
+        return buffer;
+      }
+      size = pooledBufferSize;
+    }
+    allocatedBytes.add(size);
+    return new byte[size];
+  }
+
+  /** give back an array from {@link #allocate(int)}, which must not be used by the caller later */
+  public void release(byte[] buffer) {
+    if (buffer.length != getPooledBufferSize()) {
+      return;
+    }
+    ArrayDeque<byte[]> pool = pools.get();
+    if (pool.size() < MAX_POOLED_BUFFER_NUM) {
+      pool.addLast(buffer);
+    }
+  }
+
+  private static int getPooledBufferSize() {
+    int pageSize = Math.max(TSFileDescriptor.getInstance().getConfig().getPageSizeInByte(), 1);
+    int pooledBufferSize = Integer.highestOneBit(pageSize);
+    return pooledBufferSize == pageSize ? pageSize : pooledBufferSize << 1;
+  }
+
+  public long getRequestedBytes() {
+    return requestedBytes.sum();
+  }
+
+  public long getAllocatedBytes() {
+    return allocatedBytes.sum();
+  }
+
+  private static class InstanceHolder {
+
+    private static final PageBufferPool INSTANCE = new PageBufferPool();
+
+    private InstanceHolder() {}
+  }
+}
@@ -18,6 +18,7 @@
  */
 package org.apache.iotdb.tsfile.read.reader.page;
 
+import org.apache.iotdb.tsfile.compress.IUnCompressor;
 import org.apache.iotdb.tsfile.encoding.decoder.Decoder;
 import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
 import org.apache.iotdb.tsfile.file.header.PageHeader;
@@ -28,7 +29,14 @@ import org.apache.iotdb.tsfile.read.common.BatchDataFactory;
 import org.apache.iotdb.tsfile.read.common.TimeRange;
 import org.apache.iotdb.tsfile.read.common.block.TsBlock;
 import org.apache.iotdb.tsfile.read.common.block.TsBlockBuilder;
+import org.apache.iotdb.tsfile.read.common.block.column.BooleanColumn;
+import org.apache.iotdb.tsfile.read.common.block.column.Column;
 import org.apache.iotdb.tsfile.read.common.block.column.ColumnBuilder;
+import org.apache.iotdb.tsfile.read.common.block.column.DoubleColumn;
+import org.apache.iotdb.tsfile.read.common.block.column.FloatColumn;
+import org.apache.iotdb.tsfile.read.common.block.column.IntColumn;
+import org.apache.iotdb.tsfile.read.common.block.column.LongColumn;
+import org.apache.iotdb.tsfile.read.common.block.column.TimeColumn;
 import org.apache.iotdb.tsfile.read.common.block.column.TimeColumnBuilder;
 import org.apache.iotdb.tsfile.read.filter.basic.Filter;
 import org.apache.iotdb.tsfile.read.filter.operator.AndFilter;
@@ -38,11 +46,16 @@ import org.apache.iotdb.tsfile.utils.ReadWriteForEncodingUtils;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 public class PageReader implements IPageReader {
 
+  /** initial number of timestamps to decode if the point number of the page is unknown */
+  private static final int DEFAULT_TIME_BATCH_SIZE = 1024;
+
   private PageHeader pageHeader;
 
   protected TSDataType dataType;
@@ -66,6 +79,24 @@ public class PageReader implements IPageReader {
 
   private int deleteCursor = 0;
 
+  /** compressed page body, uncompressed on the first read of the page, null once uncompressed */
+  private ByteBuffer compressedPageData;
+
+  private IUnCompressor unCompressor;
+
+  /** array borrowed from the PageBufferPool holding the uncompressed page */
+  private byte[] pooledPageData;
+
+  /** reads the compressed page body from the file on the first read of the page */
+  private PageBodyLoader pageBodyLoader;
+
+  /** Reads the compressed body of a page that is not in memory yet. */
+  @FunctionalInterface
+  public interface PageBodyLoader {
+
+    ByteBuffer load() throws IOException;
+  }
+
   public PageReader(
       ByteBuffer pageData,
       TSDataType dataType,
@@ -90,6 +121,47 @@ public class PageReader implements IPageReader {
     splitDataToTimeStampAndValue(pageData);
   }
 
+  /**
+   * Construct a PageReader that uncompresses the page body only when its data is read, into an
+   * array of the {@link PageBufferPool} that is given back once the page is read. Pages answered by
+   * their statistics are never uncompressed.
+   *
+   * @param compressedPageData the compressed page body, which must not be modified later
+   */
+  public PageReader(
+      PageHeader pageHeader,
+      ByteBuffer compressedPageData,
+      IUnCompressor unCompressor,
+      TSDataType dataType,
+      Decoder valueDecoder,
+      Decoder timeDecoder,
+      Filter filter) {
+    this.dataType = dataType;
+    this.valueDecoder = valueDecoder;
+    this.timeDecoder = timeDecoder;
+    this.filter = filter;
+    this.pageHeader = pageHeader;
+    this.compressedPageData = compressedPageData;
+    this.unCompressor = unCompressor;
+  }
+
+  /**
+   * Construct a PageReader whose compressed page body is read by pageBodyLoader only when the data
+   * of the page is read, see {@link org.apache.iotdb.tsfile.file.metadata.PageIndex}. Pages pruned
+   * or answered by their statistics are never read.
+   */
+  public PageReader(
+      PageHeader pageHeader,
+      PageBodyLoader pageBodyLoader,
+      IUnCompressor unCompressor,
+      TSDataType dataType,
+      Decoder valueDecoder,
+      Decoder timeDecoder,
+      Filter filter) {
+    this(pageHeader, (ByteBuffer) null, unCompressor, dataType, valueDecoder, timeDecoder, filter);
+    this.pageBodyLoader = pageBodyLoader;
+  }
+
   /**
    * split pageContent into two stream: time and value
    *
@@ -111,6 +183,7 @@ public class PageReader implements IPageReader {
   public BatchData getAllSatisfiedPageData(boolean ascending) throws IOException {
     BatchData pageData = BatchDataFactory.createBatchData(dataType, ascending, false);
     if (filter == null || filter.satisfy(getStatistics())) {
+      uncompressPageData();
       while (timeDecoder.hasNext(timeBuffer)) {
         long timestamp = timeDecoder.readLong(timeBuffer);
         switch (dataType) {
@@ -154,6 +227,7 @@ public class PageReader implements IPageReader {
             throw new UnSupportedDataTypeException(String.valueOf(dataType));
         }
       }
+      releasePageData();
     }
     return pageData.flip();
   }
@@ -161,79 +235,171 @@ public class PageReader implements IPageReader {
   @Override
   public TsBlock getAllSatisfiedData(boolean ascending) throws IOException {
     // TODO we still need to consider data type, ascending and descending here
-    TsBlockBuilder builder = new TsBlockBuilder(Collections.singletonList(dataType));
-    TimeColumnBuilder timeBuilder = builder.getTimeColumnBuilder();
-    ColumnBuilder valueBuilder = builder.getColumnBuilder(0);
-    if (filter == null || filter.satisfy(getStatistics())) {
-      switch (dataType) {
-        case BOOLEAN:
-          while (timeDecoder.hasNext(timeBuffer)) {
-            long timestamp = timeDecoder.readLong(timeBuffer);
-            boolean aBoolean = valueDecoder.readBoolean(valueBuffer);
-            if (!isDeleted(timestamp) && (filter == null || filter.satisfy(timestamp, aBoolean))) {
-              timeBuilder.writeLong(timestamp);
-              valueBuilder.writeBoolean(aBoolean);
-              builder.declarePosition();
-            }
-          }
-          break;
-        case INT32:
-          while (timeDecoder.hasNext(timeBuffer)) {
-            long timestamp = timeDecoder.readLong(timeBuffer);
-            int anInt = valueDecoder.readInt(valueBuffer);
-            if (!isDeleted(timestamp) && (filter == null || filter.satisfy(timestamp, anInt))) {
-              timeBuilder.writeLong(timestamp);
-              valueBuilder.writeInt(anInt);
-              builder.declarePosition();
+    if (filter != null && !filter.satisfy(getStatistics())) {
+      return new TsBlockBuilder(Collections.singletonList(dataType)).build();
+    }
+    uncompressPageData();
+    if (dataType == TSDataType.TEXT) {
+      TsBlock tsBlock = getAllSatisfiedBinaryData();
+      releasePageData();
+      return tsBlock;
+    }
+
+    // decode the whole page column by column, then keep the satisfied points in place
+    long[] times = readAllTimes();
+    int count = 0;
+    Column valueColumn;
+    switch (dataType) {
+      case BOOLEAN:
+        boolean[] booleans = new boolean[times.length];
+        valueDecoder.readBooleans(valueBuffer, booleans, 0, times.length);
+        if (filter == null && deleteIntervalList == null) {
+          count = times.length;
+        } else {
+          for (int i = 0; i < times.length; i++) {
+            if (!isDeleted(times[i]) && (filter == null || filter.satisfy(times[i], booleans[i]))) {
+              times[count] = times[i];
+              booleans[count++] = booleans[i];
             }
           }
-          break;
-        case INT64:
-          while (timeDecoder.hasNext(timeBuffer)) {
-            long timestamp = timeDecoder.readLong(timeBuffer);
-            long aLong = valueDecoder.readLong(valueBuffer);
-            if (!isDeleted(timestamp) && (filter == null || filter.satisfy(timestamp, aLong))) {
-              timeBuilder.writeLong(timestamp);
-              valueBuilder.writeLong(aLong);
-              builder.declarePosition();
+        }
+        valueColumn = new BooleanColumn(count, Optional.empty(), booleans);
+        break;
+      case INT32:
+        int[] ints = new int[times.length];
+        valueDecoder.readInts(valueBuffer, ints, 0, times.length);
+        if (filter == null && deleteIntervalList == null) {
+          count = times.length;
+        } else {
+          for (int i = 0; i < times.length; i++) {
+            if (!isDeleted(times[i]) && (filter == null || filter.satisfy(times[i], ints[i]))) {
+              times[count] = times[i];
+              ints[count++] = ints[i];
             }
           }
-          break;
-        case FLOAT:
-          while (timeDecoder.hasNext(timeBuffer)) {
-            long timestamp = timeDecoder.readLong(timeBuffer);
-            float aFloat = valueDecoder.readFloat(valueBuffer);
-            if (!isDeleted(timestamp) && (filter == null || filter.satisfy(timestamp, aFloat))) {
-              timeBuilder.writeLong(timestamp);
-              valueBuilder.writeFloat(aFloat);
-              builder.declarePosition();
+        }
+        valueColumn = new IntColumn(count, Optional.empty(), ints);
+        break;
+      case INT64:
+        long[] longs = new long[times.length];
+        valueDecoder.readLongs(valueBuffer, longs, 0, times.length);
+        if (filter == null && deleteIntervalList == null) {
+          count = times.length;
+        } else {
+          for (int i = 0; i < times.length; i++) {
+            if (!isDeleted(times[i]) && (filter == null || filter.satisfy(times[i], longs[i]))) {
+              times[count] = times[i];
+              longs[count++] = longs[i];
             }
           }
-          break;
-        case DOUBLE:
-          while (timeDecoder.hasNext(timeBuffer)) {
-            long timestamp = timeDecoder.readLong(timeBuffer);
-            double aDouble = valueDecoder.readDouble(valueBuffer);
-            if (!isDeleted(timestamp) && (filter == null || filter.satisfy(timestamp, aDouble))) {
-              timeBuilder.writeLong(timestamp);
-              valueBuilder.writeDouble(aDouble);
-              builder.declarePosition();
+        }
+        valueColumn = new LongColumn(count, Optional.empty(), longs);
+        break;
+      case FLOAT:
+        float[] floats = new float[times.length];
+        valueDecoder.readFloats(valueBuffer, floats, 0, times.length);
+        if (filter == null && deleteIntervalList == null) {
+          count = times.length;
+        } else {
+          for (int i = 0; i < times.length; i++) {
+            if (!isDeleted(times[i]) && (filter == null || filter.satisfy(times[i], floats[i]))) {
+              times[count] = times[i];
+              floats[count++] = floats[i];
             }
           }
-          break;
-        case TEXT:
-          while (timeDecoder.hasNext(timeBuffer)) {
-            long timestamp = timeDecoder.readLong(timeBuffer);
-            Binary aBinary = valueDecoder.readBinary(valueBuffer);
-            if (!isDeleted(timestamp) && (filter == null || filter.satisfy(timestamp, aBinary))) {
-              timeBuilder.writeLong(timestamp);
-              valueBuilder.writeBinary(aBinary);
-              builder.declarePosition();
+        }
+        valueColumn = new FloatColumn(count, Optional.empty(), floats);
+        break;
+      case DOUBLE:
+        double[] doubles = new double[times.length];
+        valueDecoder.readDoubles(valueBuffer, doubles, 0, times.length);
+        if (filter == null && deleteIntervalList == null) {
+          count = times.length;
+        } else {
+          for (int i = 0; i < times.length; i++) {
+            if (!isDeleted(times[i]) && (filter == null || filter.satisfy(times[i], doubles[i]))) {
+              times[count] = times[i];
+              doubles[count++] = doubles[i];
             }
           }
-          break;
-        default:
-          throw new UnSupportedDataTypeException(String.valueOf(dataType));
+        }
+        valueColumn = new DoubleColumn(count, Optional.empty(), doubles);
+        break;
+      default:
+        throw new UnSupportedDataTypeException(String.valueOf(dataType));
+    }
+    releasePageData();
+    return new TsBlock(count, new TimeColumn(count, times), valueColumn);
+  }
+
+  private void uncompressPageData() throws IOException {
+    if (pageBodyLoader != null) {
+      compressedPageData = pageBodyLoader.load();
+      pageBodyLoader = null;
+    }
+    if (compressedPageData == null) {
+      return;
+    }
+    int compressedSize = compressedPageData.remaining();
+    int uncompressedSize = pageHeader.getUncompressedSize();
+    byte[] uncompressedPageData = PageBufferPool.getInstance().allocate(uncompressedSize);
+    try {
+      unCompressor.uncompress(compressedPageData, uncompressedPageData, 0);
+    } catch (Exception e) {
+      throw new IOException(
+          "Uncompress error! uncompress size: "
+              + uncompressedSize
+              + "compressed size: "
+              + compressedSize
+              + "page header: "
+              + pageHeader
+              + e.getMessage());
+    }
+    compressedPageData = null;
+    pooledPageData = uncompressedPageData;
+    splitDataToTimeStampAndValue(ByteBuffer.wrap(uncompressedPageData, 0, uncompressedSize));
+  }
+
+  /** a page is read only once, so its pooled array can be reused after reading all its points */
+  private void releasePageData() {
+    if (pooledPageData == null) {
+      return;
+    }
+    PageBufferPool.getInstance().release(pooledPageData);
+    pooledPageData = null;
+    timeBuffer = ByteBuffer.allocate(0);
+    valueBuffer = ByteBuffer.allocate(0);
+  }
+
+  /** decode all timestamps of the page */
+  private long[] readAllTimes() throws IOException {
+    int capacity =
+        pageHeader != null && pageHeader.getStatistics() != null
+            ? (int) pageHeader.getStatistics().getCount()
+            : DEFAULT_TIME_BATCH_SIZE;
+    long[] times = new long[Math.max(capacity, 1)];
+    int size = 0;
+    while (true) {
+      size += timeDecoder.readLongs(timeBuffer, times, size, times.length - size);
+      if (size < times.length || !timeDecoder.hasNext(timeBuffer)) {
+        break;
+      }
+      times = Arrays.copyOf(times, times.length * 2);
+    }
+    return size == times.length ? times : Arrays.copyOf(times, size);
+  }
+
+  private TsBlock getAllSatisfiedBinaryData() throws IOException {
+    TsBlockBuilder builder = new TsBlockBuilder(Collections.singletonList(dataType));
+    TimeColumnBuilder timeBuilder = builder.getTimeColumnBuilder();
+    ColumnBuilder valueBuilder = builder.getColumnBuilder(0);
+    while (timeDecoder.hasNext(timeBuffer)) {
+      long timestamp = timeDecoder.readLong(timeBuffer);
+      Binary aBinary = valueDecoder.readBinary(valueBuffer);
+      if (!isDeleted(timestamp) && (filter == null || filter.satisfy(timestamp, aBinary))) {
+        timeBuilder.writeLong(timestamp);
+        valueBuilder.writeBinary(aBinary);
+        builder.declarePosition();
       }
     }
     return builder.build();
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.utils;
+
+import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
+import org.apache.iotdb.tsfile.read.common.Path;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A blocked bloom filter. The bits are split into blocks of 512 bits, i.e. one cache line, and all
+ * the bits of a value are set in the same block, so a lookup touches a single cache line and hashes
+ * the value only once.
+ *
+ * <p>Besides the series, the devices are kept in a second, much smaller filter, so that a device
+ * without any series in the file is pruned before its series are checked. The hash of a series is
+ * derived from the hash of its device, so the device hash of a query can be computed once and
+ * reused for all its measurements, see {@link #hashDevice(String)} and {@link #containsSeries(long,
+ * String)}.
+ */
+public class BlockedBloomFilter extends BloomFilter {
+
+  private static final int MAXIMAL_HASH_FUNCTION_SIZE = 8;
+  private static final int WORDS_PER_BLOCK = 8;
+  private static final int BITS_PER_BLOCK = WORDS_PER_BLOCK * Long.SIZE;
+  private static final long DEVICE_SEED = 0x9e3779b97f4a7c15L;
+
+  private final int hashFunctionSize;
+  // bits of "device.measurement", the length is a multiple of WORDS_PER_BLOCK
+  private final long[] seriesBits;
+  // bits of devices, the length is a multiple of WORDS_PER_BLOCK
+  private final long[] deviceBits;
+
+  private BlockedBloomFilter(int hashFunctionSize, long[] seriesBits, long[] deviceBits) {
+    this.hashFunctionSize = hashFunctionSize;
+    this.seriesBits = seriesBits;
+    this.deviceBits = deviceBits;
+  }
+
+  /**
+   * get empty blocked bloom filter
+   *
+   * @param errorPercent the tolerant percent of error of the bloom filter
+   * @param numOfSeries the number of series want to store in the bloom filter
+   * @param numOfDevices the number of devices of these series
+   * @return empty blocked bloom filter
+   */
+  public static BlockedBloomFilter getEmptyBlockedBloomFilter(
+      double errorPercent, int numOfSeries, int numOfDevices) {
+    errorPercent = Math.max(errorPercent, TSFileConfig.MIN_BLOOM_FILTER_ERROR_RATE);
+    errorPercent = Math.min(errorPercent, TSFileConfig.MAX_BLOOM_FILTER_ERROR_RATE);
+
+    double ln2 = Math.log(2);
+    int hashFunctionSize = (int) (-Math.log(errorPercent) / ln2) + 1;
+    return new BlockedBloomFilter(
+        Math.min(MAXIMAL_HASH_FUNCTION_SIZE, hashFunctionSize),
+        new long[getBlockNum(errorPercent, numOfSeries) * WORDS_PER_BLOCK],
+        new long[getBlockNum(errorPercent, numOfDevices) * WORDS_PER_BLOCK]);
+  }
+
+  private static int getBlockNum(double errorPercent, int numOfValues) {
+    double ln2 = Math.log(2);
+    long size = (long) (-numOfValues * Math.log(errorPercent) / ln2 / ln2) + 1;
+    return (int) Math.max(1, (size + BITS_PER_BLOCK - 1) / BITS_PER_BLOCK);
+  }
+
+  public static long hashDevice(String device) {
+    return Murmur128Hash.hash64(device, DEVICE_SEED);
+  }
+
+  public static long hashSeries(long deviceHash, String measurement) {
+    return Murmur128Hash.hash64(measurement, deviceHash);
+  }
+
+  @Override
+  public void add(String device, String measurement) {
+    long deviceHash = hashDevice(device);
+    set(deviceBits, deviceHash);
+    set(seriesBits, hashSeries(deviceHash, measurement));
+  }
+
+  @Override
+  public boolean contains(String device, String measurement) {
+    if (device == null || measurement == null) {
+      return false;
+    }
+    return containsSeries(hashDevice(device), measurement);
+  }
+
+  /**
+   * check the series by the precomputed hash of its device
+   *
+   * @param deviceHash hash of the device, see {@link #hashDevice(String)}
+   * @param measurement measurement of the series
+   * @return false if the series is definitely not in the filter
+   */
+  public boolean containsSeries(long deviceHash, String measurement) {
+    return get(deviceBits, deviceHash) && get(seriesBits, hashSeries(deviceHash, measurement));
+  }
+
+  @Override
+  public boolean containsDevice(String device) {
+    return device != null && get(deviceBits, hashDevice(device));
+  }
+
+  /** @param value the full path of a series */
+  @Override
+  public void add(String value) {
+    Path path = new Path(value, true);
+    add(path.getDevice(), path.getMeasurement());
+  }
+
+  /** @param value the full path of a series */
+  @Override
+  public boolean contains(String value) {
+    if (value == null) {
+      return false;
+    }
+    Path path = new Path(value, true);
+    return contains(path.getDevice(), path.getMeasurement());
+  }
+
+  private void set(long[] bits, long hash) {
+    int block = getBlockOffset(bits, hash);
+    int position = (int) hash;
+    int step = (int) (hash >>> 9) | 1;
+    for (int i = 0; i < hashFunctionSize; i++) {
+      int bit = position & (BITS_PER_BLOCK - 1);
+      bits[block + (bit >>> 6)] |= 1L << bit;
+      position += step;
+    }
+  }
+
+  private boolean get(long[] bits, long hash) {
+    int block = getBlockOffset(bits, hash);
+    int position = (int) hash;
+    int step = (int) (hash >>> 9) | 1;
+    for (int i = 0; i < hashFunctionSize; i++) {
+      int bit = position & (BITS_PER_BLOCK - 1);
+      if ((bits[block + (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+      position += step;
+    }
+    return true;
+  }
+
+  /** the high 32 bits of the hash choose the block, the low bits choose the bits in it */
+  private static int getBlockOffset(long[] bits, long hash) {
+    long blockNum = bits.length / WORDS_PER_BLOCK;
+    return (int) (((hash >>> 32) * blockNum) >>> 32) * WORDS_PER_BLOCK;
+  }
+
+  @Override
+  public int getHashFunctionSize() {
+    return hashFunctionSize;
+  }
+
+  /** @return number of bits of the series filter */
+  @Override
+  public int getSize() {
+    return seriesBits.length * Long.SIZE;
+  }
+
+  /** @return number of bits of the device filter */
+  public int getDeviceFilterSize() {
+    return deviceBits.length * Long.SIZE;
+  }
+
+  @Override
+  public int getBitCount() {
+    int res = 0;
+    for (long word : seriesBits) {
+      res += Long.bitCount(word);
+    }
+    return res;
+  }
+
+  @Override
+  public byte[] serialize() {
+    PublicBAOS byteArrayOutputStream = new PublicBAOS();
+    try {
+      serializeTo(byteArrayOutputStream);
+    } catch (IOException e) {
+      // a byte array stream never throws
+      throw new IllegalStateException(e);
+    }
+    return byteArrayOutputStream.toByteArray();
+  }
+
+  /**
+   * serialize the filter as [hash function size, series block number, series bits, device block
+   * number, device bits]
+   *
+   * @return byte length
+   */
+  public int serializeTo(OutputStream outputStream) throws IOException {
+    int byteLen = ReadWriteForEncodingUtils.writeUnsignedVarInt(hashFunctionSize, outputStream);
+    byteLen += serializeBits(seriesBits, outputStream);
+    byteLen += serializeBits(deviceBits, outputStream);
+    return byteLen;
+  }
+
+  private static int serializeBits(long[] bits, OutputStream outputStream) throws IOException {
+    int byteLen =
+        ReadWriteForEncodingUtils.writeUnsignedVarInt(bits.length / WORDS_PER_BLOCK, outputStream);
+    for (long word : bits) {
+      byteLen += ReadWriteIOUtils.write(word, outputStream);
+    }
+    return byteLen;
+  }
+
+  public static BlockedBloomFilter deserializeFrom(ByteBuffer buffer) {
+    int hashFunctionSize =
+        Math.min(MAXIMAL_HASH_FUNCTION_SIZE, ReadWriteForEncodingUtils.readUnsignedVarInt(buffer));
+    long[] seriesBits = deserializeBits(buffer);
+    long[] deviceBits = deserializeBits(buffer);
+    return new BlockedBloomFilter(hashFunctionSize, seriesBits, deviceBits);
+  }
+
+  private static long[] deserializeBits(ByteBuffer buffer) {
+    long[] bits = new long[ReadWriteForEncodingUtils.readUnsignedVarInt(buffer) * WORDS_PER_BLOCK];
+    for (int i = 0; i < bits.length; i++) {
+      bits[i] = ReadWriteIOUtils.readLong(buffer);
+    }
+    return bits;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    BlockedBloomFilter that = (BlockedBloomFilter) o;
+    return hashFunctionSize == that.hashFunctionSize
+        && Arrays.equals(seriesBits, that.seriesBits)
+        && Arrays.equals(deviceBits, that.deviceBits);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(hashFunctionSize, Arrays.hashCode(seriesBits), Arrays.hashCode(deviceBits));
+  }
+}
@@ -19,6 +19,7 @@
 package org.apache.iotdb.tsfile.utils;
 
 import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
+import org.apache.iotdb.tsfile.common.constant.TsFileConstant;
 
 import java.util.Arrays;
 import java.util.BitSet;
@@ -34,6 +35,9 @@ public class BloomFilter {
   private BitSet bits;
   private HashFunction[] func;
 
+  /** for subclasses that keep their own bits */
+  protected BloomFilter() {}
+
   // do not try to initialize the filter by construction method
   private BloomFilter(byte[] bytes, int size, int hashFunctionSize) {
     this.size = size;
@@ -93,10 +97,6 @@ public class BloomFilter {
     return size;
   }
 
-  public void setSize(int size) {
-    this.size = size;
-  }
-
   public void add(String value) {
     for (HashFunction f : func) {
       bits.set(f.hash(value), true);
@@ -116,6 +116,38 @@ public class BloomFilter {
     return ret;
   }
 
+  /**
+   * add the series by its device and measurement
+   *
+   * @param device device of the series
+   * @param measurement measurement of the series
+   */
+  public void add(String device, String measurement) {
+    add(device + TsFileConstant.PATH_SEPARATOR + measurement);
+  }
+
+  /**
+   * check the series by its device and measurement
+   *
+   * @param device device of the series
+   * @param measurement measurement of the series
+   * @return false if the series is definitely not in the filter
+   */
+  public boolean contains(String device, String measurement) {
+    return contains(device + TsFileConstant.PATH_SEPARATOR + measurement);
+  }
+
+  /**
+   * check whether any series of the device may be in the filter. The classic filter does not keep
+   * devices, so it always returns true.
+   *
+   * @param device device to check
+   * @return false if no series of the device is in the filter
+   */
+  public boolean containsDevice(String device) {
+    return true;
+  }
+
   public int getBitCount() {
     int res = 0;
     for (int i = 0; i < size; i++) {
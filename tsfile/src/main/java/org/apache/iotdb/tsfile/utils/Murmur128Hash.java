@@ -18,6 +18,8 @@
  */
 package org.apache.iotdb.tsfile.utils;
 
+import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
+
 public class Murmur128Hash {
 
   private Murmur128Hash() {
@@ -52,6 +54,19 @@ public class Murmur128Hash {
             seed);
   }
 
+  /**
+   * get the 64-bit hashcode of value by seed, the value is encoded by {@link
+   * TSFileConfig#STRING_CHARSET} so that the hashcode does not depend on the platform
+   *
+   * @param value value
+   * @param seed seed
+   * @return 64-bit hashcode of value
+   */
+  public static long hash64(String value, long seed) {
+    byte[] bytes = value.getBytes(TSFileConfig.STRING_CHARSET);
+    return innerHash(bytes, 0, bytes.length, seed);
+  }
+
   /** Methods to perform murmur 128 hash. */
   private static long getBlock(byte[] key, int offset, int index) {
     int i8 = index << 3;
@@ -222,6 +222,25 @@ public class TsFileSequenceReaderForV2 extends TsFileSequenceReader implements A
     return timeseriesMetadataList;
   }
 
+  @Override
+  public List<TimeseriesMetadata> readTimeseriesMetadata(String device, Set<String> measurements)
+      throws IOException {
+    List<TimeseriesMetadata> timeseriesMetadataList = new ArrayList<>();
+    Set<String> measurementsHadFound = new HashSet<>();
+    for (String measurement : measurements) {
+      if (measurementsHadFound.contains(measurement)) {
+        continue;
+      }
+      for (TimeseriesMetadata timeseriesMetadata :
+          readTimeseriesMetadata(new Path(device, measurement), measurements)) {
+        if (measurementsHadFound.add(timeseriesMetadata.getMeasurementId())) {
+          timeseriesMetadataList.add(timeseriesMetadata);
+        }
+      }
+    }
+    return timeseriesMetadataList;
+  }
+
   @SuppressWarnings("squid:S3776")
   @Override
   public List<ITimeSeriesMetadata> readITimeseriesMetadata(String device, Set<String> measurements)
@@ -21,6 +21,7 @@ package org.apache.iotdb.tsfile.write.chunk;
 import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
 import org.apache.iotdb.tsfile.encoding.encoder.Encoder;
 import org.apache.iotdb.tsfile.encoding.encoder.TSEncodingBuilder;
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.utils.Binary;
@@ -33,13 +34,38 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
 
 public class AlignedChunkWriterImpl implements IChunkWriter {
 
+  /** the number of rows buffered before they are encoded column by column in parallel */
+  private static final int BUFFERED_ROW_NUM = 1024;
+
+  /** the number of columns encoded by one task, the time column included */
+  private static final int COLUMN_NUM_PER_TASK = 16;
+
   private final TimeChunkWriter timeChunkWriter;
   private final List<ValueChunkWriter> valueChunkWriterList;
   private int valueIndex;
 
+  /**
+   * Executor to encode and compress the columns in parallel, null if the columns are written
+   * sequentially row by row.
+   */
+  private final Executor encodeExecutor;
+
+  /** rows buffered in columns before they are encoded, only used if encodeExecutor is set */
+  private long[] bufferedTimes;
+
+  private BufferedColumn[] bufferedColumns;
+
+  private int bufferedRowNum;
+
   /** @param schema schema of this measurement */
   public AlignedChunkWriterImpl(VectorMeasurementSchema schema) {
     timeChunkWriter =
@@ -66,9 +92,25 @@ public class AlignedChunkWriterImpl implements IChunkWriter {
     }
 
     this.valueIndex = 0;
+    this.encodeExecutor = null;
   }
 
   public AlignedChunkWriterImpl(List<IMeasurementSchema> schemaList) {
+    this(schemaList, null);
+  }
+
+  /**
+   * Create a writer that encodes and compresses the time column and the value columns in parallel
+   * on the given executor. Rows are buffered and encoded in blocks of {@link #BUFFERED_ROW_NUM}
+   * rows, with every column encoded by only one thread. A block is split at the rows where the
+   * sequential writer would check the page size or the number of points, and the page is only
+   * checked and sealed there, so the chunks are the same as written sequentially and do not depend
+   * on the scheduling. The calling thread also encodes columns, so the executor may be bounded and
+   * shared, even with the caller itself. Devices with too few columns are written sequentially.
+   *
+   * @param encodeExecutor executor to encode columns, null to write sequentially
+   */
+  public AlignedChunkWriterImpl(List<IMeasurementSchema> schemaList, Executor encodeExecutor) {
     TSEncoding timeEncoding =
         TSEncoding.valueOf(TSFileDescriptor.getInstance().getConfig().getTimeEncoder());
     TSDataType timeType = TSFileDescriptor.getInstance().getConfig().getTimeSeriesDataType();
@@ -91,54 +133,112 @@ public class AlignedChunkWriterImpl implements IChunkWriter {
     }
 
     this.valueIndex = 0;
+    if (encodeExecutor != null && schemaList.size() >= COLUMN_NUM_PER_TASK) {
+      this.encodeExecutor = encodeExecutor;
+      this.bufferedTimes = new long[BUFFERED_ROW_NUM];
+      this.bufferedColumns = new BufferedColumn[schemaList.size()];
+      for (int i = 0; i < schemaList.size(); i++) {
+        bufferedColumns[i] = new BufferedColumn(schemaList.get(i).getType());
+      }
+    } else {
+      this.encodeExecutor = null;
+    }
   }
 
   public void write(long time, int value, boolean isNull) {
+    if (encodeExecutor != null) {
+      BufferedColumn column = bufferedColumns[valueIndex++];
+      column.isNull[bufferedRowNum] = isNull;
+      if (!isNull) {
+        column.ints[bufferedRowNum] = value;
+      }
+      return;
+    }
     valueChunkWriterList.get(valueIndex++).write(time, value, isNull);
   }
 
   public void write(long time, long value, boolean isNull) {
+    if (encodeExecutor != null) {
+      BufferedColumn column = bufferedColumns[valueIndex++];
+      column.isNull[bufferedRowNum] = isNull;
+      if (!isNull) {
+        column.longs[bufferedRowNum] = value;
+      }
+      return;
+    }
     valueChunkWriterList.get(valueIndex++).write(time, value, isNull);
   }
 
   public void write(long time, boolean value, boolean isNull) {
+    if (encodeExecutor != null) {
+      BufferedColumn column = bufferedColumns[valueIndex++];
+      column.isNull[bufferedRowNum] = isNull;
+      if (!isNull) {
+        column.booleans[bufferedRowNum] = value;
+      }
+      return;
+    }
     valueChunkWriterList.get(valueIndex++).write(time, value, isNull);
   }
 
   public void write(long time, float value, boolean isNull) {
+    if (encodeExecutor != null) {
+      BufferedColumn column = bufferedColumns[valueIndex++];
+      column.isNull[bufferedRowNum] = isNull;
+      if (!isNull) {
+        column.floats[bufferedRowNum] = value;
+      }
+      return;
+    }
     valueChunkWriterList.get(valueIndex++).write(time, value, isNull);
   }
 
   public void write(long time, double value, boolean isNull) {
+    if (encodeExecutor != null) {
+      BufferedColumn column = bufferedColumns[valueIndex++];
+      column.isNull[bufferedRowNum] = isNull;
+      if (!isNull) {
+        column.doubles[bufferedRowNum] = value;
+      }
+      return;
+    }
     valueChunkWriterList.get(valueIndex++).write(time, value, isNull);
   }
 
   public void write(long time, Binary value, boolean isNull) {
+    if (encodeExecutor != null) {
+      BufferedColumn column = bufferedColumns[valueIndex++];
+      column.isNull[bufferedRowNum] = isNull;
+      if (!isNull) {
+        column.binaries[bufferedRowNum] = value;
+        column.binarySize += Integer.BYTES + value.getLength();
+      }
+      return;
+    }
     valueChunkWriterList.get(valueIndex++).write(time, value, isNull);
   }
 
   public void write(long time, TsPrimitiveType[] points) {
     valueIndex = 0;
     for (TsPrimitiveType point : points) {
-      ValueChunkWriter writer = valueChunkWriterList.get(valueIndex++);
-      switch (writer.getDataType()) {
+      switch (valueChunkWriterList.get(valueIndex).getDataType()) {
         case INT64:
-          writer.write(time, point != null ? point.getLong() : Long.MAX_VALUE, point == null);
+          write(time, point != null ? point.getLong() : Long.MAX_VALUE, point == null);
           break;
         case INT32:
-          writer.write(time, point != null ? point.getInt() : Integer.MAX_VALUE, point == null);
+          write(time, point != null ? point.getInt() : Integer.MAX_VALUE, point == null);
           break;
         case FLOAT:
-          writer.write(time, point != null ? point.getFloat() : Float.MAX_VALUE, point == null);
+          write(time, point != null ? point.getFloat() : Float.MAX_VALUE, point == null);
           break;
         case DOUBLE:
-          writer.write(time, point != null ? point.getDouble() : Double.MAX_VALUE, point == null);
+          write(time, point != null ? point.getDouble() : Double.MAX_VALUE, point == null);
           break;
         case BOOLEAN:
-          writer.write(time, point != null ? point.getBoolean() : false, point == null);
+          write(time, point != null ? point.getBoolean() : false, point == null);
           break;
         case TEXT:
-          writer.write(
+          write(
               time,
               point != null ? point.getBinary() : new Binary("".getBytes(StandardCharsets.UTF_8)),
               point == null);
@@ -150,12 +250,126 @@ public class AlignedChunkWriterImpl implements IChunkWriter {
 
   public void write(long time) {
     valueIndex = 0;
+    if (encodeExecutor != null) {
+      bufferedTimes[bufferedRowNum++] = time;
+      if (bufferedRowNum == BUFFERED_ROW_NUM) {
+        encodeBufferedRows();
+      }
+      return;
+    }
     timeChunkWriter.write(time);
     if (checkPageSizeAndMayOpenANewPage()) {
       writePageToPageBuffer();
     }
   }
 
+  /**
+   * Encode the buffered rows column by column in parallel. The rows are split where any column may
+   * need to seal the current page, that is where the sequential writer would check its size or
+   * number of points next, and after each part the page is sealed if any column needs it.
+   */
+  private void encodeBufferedRows() {
+    int start = 0;
+    while (start < bufferedRowNum) {
+      int end = Math.min(bufferedRowNum, start + getRowNumBeforeNextCheck());
+      final int from = start;
+      forEachColumnInParallel(
+          columnIndex -> {
+            if (columnIndex == 0) {
+              for (int i = from; i < end; i++) {
+                timeChunkWriter.write(bufferedTimes[i]);
+              }
+            } else {
+              bufferedColumns[columnIndex - 1].writeTo(
+                  valueChunkWriterList.get(columnIndex - 1), bufferedTimes, from, end);
+            }
+          });
+      if (checkPageSizeAndMayOpenANewPage()) {
+        writePageToPageBuffer();
+      }
+      start = end;
+    }
+    bufferedRowNum = 0;
+    for (BufferedColumn column : bufferedColumns) {
+      column.binarySize = 0;
+    }
+  }
+
+  /**
+   * Every row adds at most one point to each column, so no column needs to seal the page within
+   * this number of rows.
+   */
+  private int getRowNumBeforeNextCheck() {
+    int rowNum = timeChunkWriter.getPointNumberBeforeNextCheck();
+    for (ValueChunkWriter writer : valueChunkWriterList) {
+      rowNum = Math.min(rowNum, writer.getPointNumberBeforeNextCheck());
+    }
+    return rowNum;
+  }
+
+  /**
+   * Run the task on the time column (index 0) and all value columns (index i + 1 for the i-th value
+   * column). Columns are split into groups that are claimed one by one by the tasks submitted to
+   * the executor and by the calling thread, which returns when all groups are done. Groups not
+   * claimed by the executor are done by the calling thread, so it never waits for a task that is
+   * not running. Anything thrown by a group is rethrown on the calling thread after all groups are
+   * done.
+   */
+  private void forEachColumnInParallel(IntConsumer columnTask) {
+    int columnNum = valueChunkWriterList.size() + 1;
+    int groupNum = (columnNum + COLUMN_NUM_PER_TASK - 1) / COLUMN_NUM_PER_TASK;
+    AtomicInteger nextGroup = new AtomicInteger();
+    CountDownLatch finishedGroups = new CountDownLatch(groupNum);
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    Runnable worker =
+        () -> {
+          int group;
+          while ((group = nextGroup.getAndIncrement()) < groupNum) {
+            try {
+              int end = Math.min(columnNum, (group + 1) * COLUMN_NUM_PER_TASK);
+              for (int columnIndex = group * COLUMN_NUM_PER_TASK;
+                  columnIndex < end;
+                  columnIndex++) {
+                columnTask.accept(columnIndex);
+              }
+            } catch (Throwable e) {
+              error.compareAndSet(null, e);
+            } finally {
+              finishedGroups.countDown();
+            }
+          }
+        };
+    try {
+      for (int i = 1; i < groupNum; i++) {
+        encodeExecutor.execute(worker);
+      }
+    } catch (RejectedExecutionException e) {
+      // the remaining groups are done by the calling thread
+    }
+    worker.run();
+
+    boolean interrupted = false;
+    while (finishedGroups.getCount() > 0) {
+      try {
+        finishedGroups.await();
+      } catch (InterruptedException e) {
+        // the running groups must finish before the writers can be used again
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    Throwable e = error.get();
+    if (e instanceof RuntimeException) {
+      throw (RuntimeException) e;
+    } else if (e instanceof Error) {
+      throw (Error) e;
+    } else if (e != null) {
+      throw new IllegalStateException(e);
+    }
+  }
+
   /**
    * check occupied memory size, if it exceeds the PageSize threshold, construct a page and put it
    * to pageBuffer
@@ -173,6 +387,17 @@ public class AlignedChunkWriterImpl implements IChunkWriter {
   }
 
   private void writePageToPageBuffer() {
+    if (encodeExecutor != null) {
+      forEachColumnInParallel(
+          columnIndex -> {
+            if (columnIndex == 0) {
+              timeChunkWriter.writePageToPageBuffer();
+            } else {
+              valueChunkWriterList.get(columnIndex - 1).writePageToPageBuffer();
+            }
+          });
+      return;
+    }
     timeChunkWriter.writePageToPageBuffer();
     for (ValueChunkWriter valueChunkWriter : valueChunkWriterList) {
       valueChunkWriter.writePageToPageBuffer();
@@ -181,21 +406,46 @@ public class AlignedChunkWriterImpl implements IChunkWriter {
 
   @Override
   public void writeToFileWriter(TsFileIOWriter tsfileWriter) throws IOException {
+    if (encodeExecutor != null) {
+      // compress the last pages in parallel, then write the chunks in column order
+      sealCurrentPage();
+    }
     timeChunkWriter.writeToFileWriter(tsfileWriter);
     for (ValueChunkWriter valueChunkWriter : valueChunkWriterList) {
       valueChunkWriter.writeToFileWriter(tsfileWriter);
     }
   }
 
+  /**
+   * The buffered rows are not encoded to estimate the size, so that frequent size checks do not
+   * break the blocks. Their raw size is added instead.
+   */
   @Override
   public long estimateMaxSeriesMemSize() {
     long estimateMaxSeriesMemSize = timeChunkWriter.estimateMaxSeriesMemSize();
     for (ValueChunkWriter valueChunkWriter : valueChunkWriterList) {
       estimateMaxSeriesMemSize += valueChunkWriter.estimateMaxSeriesMemSize();
     }
+    if (encodeExecutor != null) {
+      estimateMaxSeriesMemSize += (long) Long.BYTES * bufferedRowNum;
+      for (BufferedColumn column : bufferedColumns) {
+        estimateMaxSeriesMemSize += column.estimateSize(bufferedRowNum);
+      }
+    }
     return estimateMaxSeriesMemSize;
   }
 
+  /**
+   * Encode the rows buffered for the parallel encoding. Callers that need the size of all the
+   * written rows in {@link #getSerializedChunkSize()} call this first.
+   */
+  public void sealPendingRows() {
+    if (encodeExecutor != null && bufferedRowNum > 0) {
+      encodeBufferedRows();
+    }
+  }
+
+  /** the rows buffered for the parallel encoding are not counted, see {@link #sealPendingRows()} */
   public long getSerializedChunkSize() {
     long currentChunkSize = timeChunkWriter.getCurrentChunkSize();
     for (ValueChunkWriter valueChunkWriter : valueChunkWriterList) {
@@ -206,12 +456,25 @@ public class AlignedChunkWriterImpl implements IChunkWriter {
 
   @Override
   public void sealCurrentPage() {
+    sealPendingRows();
+    if (encodeExecutor != null) {
+      forEachColumnInParallel(
+          columnIndex -> {
+            if (columnIndex == 0) {
+              timeChunkWriter.sealCurrentPage();
+            } else {
+              valueChunkWriterList.get(columnIndex - 1).sealCurrentPage();
+            }
+          });
+      return;
+    }
     timeChunkWriter.sealCurrentPage();
     for (ValueChunkWriter valueChunkWriter : valueChunkWriterList) {
       valueChunkWriter.sealCurrentPage();
     }
   }
 
+  /** the buffered rows should have been sealed, see {@link #sealCurrentPage()} */
   @Override
   public void clearPageWriter() {
     timeChunkWriter.clearPageWriter();
@@ -222,11 +485,16 @@ public class AlignedChunkWriterImpl implements IChunkWriter {
 
   /** Used for compaction to control the target chunk size. */
   public boolean checkIsChunkSizeOverThreshold(long threshold) {
-    if (timeChunkWriter.estimateMaxSeriesMemSize() > threshold) {
+    if (timeChunkWriter.estimateMaxSeriesMemSize() + (long) Long.BYTES * bufferedRowNum
+        > threshold) {
       return true;
     }
-    for (ValueChunkWriter valueChunkWriter : valueChunkWriterList) {
-      if (valueChunkWriter.estimateMaxSeriesMemSize() > threshold) {
+    for (int i = 0; i < valueChunkWriterList.size(); i++) {
+      long size = valueChunkWriterList.get(i).estimateMaxSeriesMemSize();
+      if (encodeExecutor != null) {
+        size += bufferedColumns[i].estimateSize(bufferedRowNum);
+      }
+      if (size > threshold) {
         return true;
       }
     }
@@ -236,4 +504,89 @@ public class AlignedChunkWriterImpl implements IChunkWriter {
   public TSDataType getCurrentValueChunkType() {
     return valueChunkWriterList.get(valueIndex).getDataType();
   }
+
+  /** Values of one value column buffered before they are encoded. */
+  private static class BufferedColumn {
+
+    private final TSDataType dataType;
+    private final boolean[] isNull = new boolean[BUFFERED_ROW_NUM];
+    // a null value may be written by any type, so only non-null values are buffered
+    private boolean[] booleans;
+    private int[] ints;
+    private long[] longs;
+    private float[] floats;
+    private double[] doubles;
+    private Binary[] binaries;
+    /** serialized size of the buffered TEXT values */
+    private long binarySize;
+
+    private BufferedColumn(TSDataType dataType) {
+      this.dataType = dataType;
+      switch (dataType) {
+        case BOOLEAN:
+          booleans = new boolean[BUFFERED_ROW_NUM];
+          break;
+        case INT32:
+          ints = new int[BUFFERED_ROW_NUM];
+          break;
+        case INT64:
+          longs = new long[BUFFERED_ROW_NUM];
+          break;
+        case FLOAT:
+          floats = new float[BUFFERED_ROW_NUM];
+          break;
+        case DOUBLE:
+          doubles = new double[BUFFERED_ROW_NUM];
+          break;
+        case TEXT:
+          binaries = new Binary[BUFFERED_ROW_NUM];
+          break;
+        default:
+          throw new UnSupportedDataTypeException(String.valueOf(dataType));
+      }
+    }
+
+    private void writeTo(ValueChunkWriter writer, long[] times, int start, int end) {
+      switch (dataType) {
+        case BOOLEAN:
+          for (int i = start; i < end; i++) {
+            writer.write(times[i], booleans[i], isNull[i]);
+          }
+          break;
+        case INT32:
+          for (int i = start; i < end; i++) {
+            writer.write(times[i], ints[i], isNull[i]);
+          }
+          break;
+        case INT64:
+          for (int i = start; i < end; i++) {
+            writer.write(times[i], longs[i], isNull[i]);
+          }
+          break;
+        case FLOAT:
+          for (int i = start; i < end; i++) {
+            writer.write(times[i], floats[i], isNull[i]);
+          }
+          break;
+        case DOUBLE:
+          for (int i = start; i < end; i++) {
+            writer.write(times[i], doubles[i], isNull[i]);
+          }
+          break;
+        case TEXT:
+          for (int i = start; i < end; i++) {
+            writer.write(times[i], binaries[i], isNull[i]);
+            // release the reference as soon as the value is encoded
+            binaries[i] = null;
+          }
+          break;
+        default:
+          throw new UnSupportedDataTypeException(String.valueOf(dataType));
+      }
+    }
+
+    private long estimateSize(int rowNum) {
+      return dataType == TSDataType.TEXT ? binarySize : (long) dataType.getDataTypeSize() * rowNum;
+    }
+  }
 }
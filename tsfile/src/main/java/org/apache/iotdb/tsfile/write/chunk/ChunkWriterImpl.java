@@ -24,6 +24,9 @@ import org.apache.iotdb.tsfile.encoding.encoder.SDTEncoder;
 import org.apache.iotdb.tsfile.exception.write.PageException;
 import org.apache.iotdb.tsfile.file.header.ChunkHeader;
 import org.apache.iotdb.tsfile.file.header.PageHeader;
+import org.apache.iotdb.tsfile.file.metadata.PageIndex;
+import org.apache.iotdb.tsfile.file.metadata.RegularTimeIndex;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
 import org.apache.iotdb.tsfile.utils.Binary;
@@ -33,6 +36,8 @@ import org.apache.iotdb.tsfile.write.page.PageWriter;
 import org.apache.iotdb.tsfile.write.schema.IMeasurementSchema;
 import org.apache.iotdb.tsfile.write.writer.TsFileIOWriter;
 
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.github.luben.zstd.ZstdException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,6 +46,9 @@ import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class ChunkWriterImpl implements IChunkWriter {
 
@@ -69,6 +77,10 @@ public class ChunkWriterImpl implements IChunkWriter {
   // initial value for valueCountInOnePageForNextCheck
   private static final int MINIMUM_RECORD_COUNT_FOR_CHECK = 1500;
 
+  // a zstd dictionary is trained from at least this many pages, which add up to at least this many
+  // times its size
+  private static final int MIN_PAGES_FOR_ZSTD_DICTIONARY = 16;
+
   /** statistic of this chunk. */
   private Statistics<? extends Serializable> statistics;
 
@@ -79,6 +91,13 @@ public class ChunkWriterImpl implements IChunkWriter {
   private boolean isLastPoint;
   // do not re-execute SDT compression when merging chunks
   private boolean isMerging;
+
+  /** whether to store the offsets and headers of the pages in the ChunkMetadata */
+  private final boolean enablePageIndex;
+
+  /** collects the runs of the timestamps of the chunk, null if the chunk is not indexed */
+  private RegularTimeIndex.Builder regularTimeIndexBuilder;
+
   private SDTEncoder sdtEncoder;
 
   private static final String LOSS = "loss";
@@ -92,6 +111,25 @@ public class ChunkWriterImpl implements IChunkWriter {
 
   private Statistics<?> firstPageStatistics;
 
+  /** maximum size of the zstd dictionary trained in compaction, 0 if none is trained */
+  private final int zstdDictionarySize;
+
+  /** pages kept uncompressed until the chunk is written, when a zstd dictionary is trained */
+  private final List<ByteBuffer> uncompressedPages = new ArrayList<>();
+
+  private final List<Statistics<? extends Serializable>> uncompressedPageStatistics =
+      new ArrayList<>();
+
+  private long uncompressedPagesSize;
+
+  /** the dictionary trained from the first chunk of the series, null before */
+  private byte[] zstdDictionary;
+
+  /** compresses with the dictionary registered in the file written last */
+  private ICompressor zstdDictionaryCompressor;
+
+  private byte[] zstdDictionaryOfCompressor;
+
   /** @param schema schema of this measurement */
   public ChunkWriterImpl(IMeasurementSchema schema) {
     this.measurementSchema = schema;
@@ -101,6 +139,8 @@ public class ChunkWriterImpl implements IChunkWriter {
     this.pageSizeThreshold = TSFileDescriptor.getInstance().getConfig().getPageSizeInByte();
     this.maxNumberOfPointsInPage =
         TSFileDescriptor.getInstance().getConfig().getMaxNumberOfPointsInPage();
+    this.enablePageIndex = TSFileDescriptor.getInstance().getConfig().isEnablePageIndex();
+    this.zstdDictionarySize = TSFileDescriptor.getInstance().getConfig().getZstdDictionarySize();
     // initial check of memory usage. So that we have enough data to make an initial prediction
     this.valueCountInOnePageForNextCheck = MINIMUM_RECORD_COUNT_FOR_CHECK;
 
@@ -114,6 +154,10 @@ public class ChunkWriterImpl implements IChunkWriter {
 
     // check if the measurement schema uses SDT
     checkSdtEncoding();
+    // SDT drops points, whose timestamps are not known here
+    if (TSFileDescriptor.getInstance().getConfig().isEnableRegularTimeIndex() && !isSdtEncoding) {
+      this.regularTimeIndexBuilder = new RegularTimeIndex.Builder();
+    }
   }
 
   public ChunkWriterImpl(IMeasurementSchema schema, boolean isMerging) {
@@ -156,6 +200,7 @@ public class ChunkWriterImpl implements IChunkWriter {
     if (isSdtEncoding && isLastPoint) {
       pageWriter.write(time, value);
     }
+    updateRegularTimeIndex(time);
     checkPageSizeAndMayOpenANewPage();
   }
 
@@ -168,11 +213,13 @@ public class ChunkWriterImpl implements IChunkWriter {
     if (isSdtEncoding && isLastPoint) {
       pageWriter.write(time, value);
     }
+    updateRegularTimeIndex(time);
     checkPageSizeAndMayOpenANewPage();
   }
 
   public void write(long time, boolean value) {
     pageWriter.write(time, value);
+    updateRegularTimeIndex(time);
     checkPageSizeAndMayOpenANewPage();
   }
 
@@ -186,6 +233,7 @@ public class ChunkWriterImpl implements IChunkWriter {
     if (isSdtEncoding && isLastPoint) {
       pageWriter.write(time, value);
     }
+    updateRegularTimeIndex(time);
     checkPageSizeAndMayOpenANewPage();
   }
 
@@ -198,11 +246,24 @@ public class ChunkWriterImpl implements IChunkWriter {
     if (isSdtEncoding && isLastPoint) {
       pageWriter.write(time, value);
     }
+    updateRegularTimeIndex(time);
     checkPageSizeAndMayOpenANewPage();
   }
 
   public void write(long time, Binary value) {
     pageWriter.write(time, value);
+    updateRegularTimeIndex(time);
+    checkPageSizeAndMayOpenANewPage();
+  }
+
+  /**
+   * write a time value pair whose value has the given index in a dictionary of the caller, see
+   * {@link org.apache.iotdb.tsfile.encoding.encoder.Encoder#encode(Binary, int,
+   * java.io.ByteArrayOutputStream)}
+   */
+  public void write(long time, Binary value, int dictionaryIndex) {
+    pageWriter.write(time, value, dictionaryIndex);
+    updateRegularTimeIndex(time);
     checkPageSizeAndMayOpenANewPage();
   }
 
@@ -211,6 +272,7 @@ public class ChunkWriterImpl implements IChunkWriter {
       batchSize = sdtEncoder.encode(timestamps, values, batchSize);
     }
     pageWriter.write(timestamps, values, batchSize);
+    updateRegularTimeIndex(timestamps, batchSize);
     checkPageSizeAndMayOpenANewPage();
   }
 
@@ -219,11 +281,13 @@ public class ChunkWriterImpl implements IChunkWriter {
       batchSize = sdtEncoder.encode(timestamps, values, batchSize);
     }
     pageWriter.write(timestamps, values, batchSize);
+    updateRegularTimeIndex(timestamps, batchSize);
     checkPageSizeAndMayOpenANewPage();
   }
 
   public void write(long[] timestamps, boolean[] values, int batchSize) {
     pageWriter.write(timestamps, values, batchSize);
+    updateRegularTimeIndex(timestamps, batchSize);
     checkPageSizeAndMayOpenANewPage();
   }
 
@@ -232,6 +296,7 @@ public class ChunkWriterImpl implements IChunkWriter {
       batchSize = sdtEncoder.encode(timestamps, values, batchSize);
     }
     pageWriter.write(timestamps, values, batchSize);
+    updateRegularTimeIndex(timestamps, batchSize);
     checkPageSizeAndMayOpenANewPage();
   }
 
@@ -240,14 +305,28 @@ public class ChunkWriterImpl implements IChunkWriter {
       batchSize = sdtEncoder.encode(timestamps, values, batchSize);
     }
     pageWriter.write(timestamps, values, batchSize);
+    updateRegularTimeIndex(timestamps, batchSize);
     checkPageSizeAndMayOpenANewPage();
   }
 
   public void write(long[] timestamps, Binary[] values, int batchSize) {
     pageWriter.write(timestamps, values, batchSize);
+    updateRegularTimeIndex(timestamps, batchSize);
     checkPageSizeAndMayOpenANewPage();
   }
 
+  private void updateRegularTimeIndex(long time) {
+    if (regularTimeIndexBuilder != null) {
+      regularTimeIndexBuilder.add(time);
+    }
+  }
+
+  private void updateRegularTimeIndex(long[] timestamps, int batchSize) {
+    if (regularTimeIndexBuilder != null) {
+      regularTimeIndexBuilder.add(timestamps, batchSize);
+    }
+  }
+
   /**
    * check occupied memory size, if it exceeds the PageSize threshold, construct a page and put it
    * to pageBuffer
@@ -279,6 +358,10 @@ public class ChunkWriterImpl implements IChunkWriter {
   }
 
   private void writePageToPageBuffer() {
+    if (trainsZstdDictionary()) {
+      keepPageUncompressed();
+      return;
+    }
     try {
       if (numOfPages == 0) { // record the firstPageStatistics
         this.firstPageStatistics = pageWriter.getStatistics();
@@ -306,14 +389,103 @@ public class ChunkWriterImpl implements IChunkWriter {
     }
   }
 
+  /**
+   * Compaction trains a dictionary for each series when its compressor is ZSTD, so that small pages
+   * compress better. The pages are compressed when the chunk is written, once the dictionary is
+   * trained and stored in the file.
+   */
+  private boolean trainsZstdDictionary() {
+    return isMerging && zstdDictionarySize > 0 && compressor.getType() == CompressionType.ZSTD;
+  }
+
+  private void keepPageUncompressed() {
+    try {
+      ByteBuffer page = pageWriter.getUncompressedBytes();
+      uncompressedPages.add(page);
+      uncompressedPageStatistics.add(pageWriter.getStatistics());
+      uncompressedPagesSize += page.remaining();
+    } catch (IOException e) {
+      logger.error("meet error in pageWriter.getUncompressedBytes,ignore this page:", e);
+    } finally {
+      pageWriter.reset(measurementSchema);
+    }
+  }
+
+  /** compress the pages kept uncompressed, with the dictionary of the series if there is one */
+  private void compressUncompressedPages(TsFileIOWriter tsfileWriter) throws IOException {
+    if (zstdDictionary == null) {
+      zstdDictionary = trainZstdDictionary();
+    }
+    ICompressor pageCompressor = compressor;
+    if (zstdDictionary != null) {
+      byte[] dictionary = tsfileWriter.registerZstdDictionary(zstdDictionary);
+      if (dictionary != zstdDictionaryOfCompressor) {
+        zstdDictionaryCompressor = new ICompressor.ZstdCompressor(dictionary);
+        zstdDictionaryOfCompressor = dictionary;
+      }
+      pageCompressor = zstdDictionaryCompressor;
+    }
+    try {
+      for (int i = 0; i < uncompressedPages.size(); i++) {
+        ByteBuffer page = uncompressedPages.get(i);
+        int uncompressedSize = page.remaining();
+        byte[] compressed = new byte[pageCompressor.getMaxBytesForCompression(uncompressedSize)];
+        int compressedSize =
+            pageCompressor.compress(page.array(), page.position(), uncompressedSize, compressed);
+        writeCompressedPage(
+            ByteBuffer.wrap(compressed, 0, compressedSize),
+            new PageHeader(uncompressedSize, compressedSize, uncompressedPageStatistics.get(i)));
+      }
+    } catch (PageException e) {
+      throw new IOException(e);
+    }
+    uncompressedPages.clear();
+    uncompressedPageStatistics.clear();
+    uncompressedPagesSize = 0;
+  }
+
+  /**
+   * Train the dictionary with the pages of the chunk as samples. It is not trained for chunks too
+   * small to make up for the size of the dictionary, a later chunk of the series may train it.
+   *
+   * @return the dictionary, or null if none is trained
+   */
+  private byte[] trainZstdDictionary() {
+    if (uncompressedPages.size() < MIN_PAGES_FOR_ZSTD_DICTIONARY
+        || uncompressedPagesSize < (long) zstdDictionarySize * MIN_PAGES_FOR_ZSTD_DICTIONARY) {
+      return null;
+    }
+    ZstdDictTrainer trainer =
+        new ZstdDictTrainer(
+            (int) Math.min(uncompressedPagesSize, Integer.MAX_VALUE), zstdDictionarySize);
+    for (ByteBuffer page : uncompressedPages) {
+      trainer.addSample(Arrays.copyOfRange(page.array(), page.position(), page.limit()));
+    }
+    try {
+      return trainer.trainSamples();
+    } catch (ZstdException e) {
+      logger.debug(
+          "cannot train a zstd dictionary for {}: {}",
+          measurementSchema.getMeasurementId(),
+          e.getMessage());
+      return null;
+    }
+  }
+
   @Override
   public void writeToFileWriter(TsFileIOWriter tsfileWriter) throws IOException {
     sealCurrentPage();
+    if (!uncompressedPages.isEmpty()) {
+      compressUncompressedPages(tsfileWriter);
+    }
     writeAllPagesOfChunkToTsFile(tsfileWriter, statistics);
 
     // reinit this chunk writer
     pageBuffer.reset();
     numOfPages = 0;
+    if (regularTimeIndexBuilder != null) {
+      regularTimeIndexBuilder.reset();
+    }
     firstPageStatistics = null;
     this.statistics = Statistics.getStatsByType(measurementSchema.getType());
   }
@@ -321,6 +493,7 @@ public class ChunkWriterImpl implements IChunkWriter {
   @Override
   public long estimateMaxSeriesMemSize() {
     return pageBuffer.size()
+        + uncompressedPagesSize
         + pageWriter.estimateMaxMemSize()
         + PageHeader.estimateMaxPageHeaderSizeWithoutStatistics()
         + pageWriter.getStatistics().getSerializedSize();
@@ -328,12 +501,13 @@ public class ChunkWriterImpl implements IChunkWriter {
 
   @Override
   public long getSerializedChunkSize() {
-    if (pageBuffer.size() == 0) {
+    if (pageBuffer.size() == 0 && uncompressedPages.isEmpty()) {
       return 0;
     }
-    // return the serialized size of the chunk header + all pages
-    return ChunkHeader.getSerializedSize(measurementSchema.getMeasurementId(), pageBuffer.size())
-        + (long) pageBuffer.size();
+    // return the serialized size of the chunk header + all pages, taking the pages not compressed
+    // yet at their uncompressed size
+    long size = pageBuffer.size() + uncompressedPagesSize;
+    return ChunkHeader.getSerializedSize(measurementSchema.getMeasurementId(), (int) size) + size;
   }
 
   @Override
@@ -358,6 +532,14 @@ public class ChunkWriterImpl implements IChunkWriter {
    */
   public void writePageHeaderAndDataIntoBuff(ByteBuffer data, PageHeader header)
       throws PageException {
+    // the timestamps of a copied page are not decoded
+    if (regularTimeIndexBuilder != null) {
+      regularTimeIndexBuilder.invalidate();
+    }
+    writeCompressedPage(data, header);
+  }
+
+  private void writeCompressedPage(ByteBuffer data, PageHeader header) throws PageException {
     // write the page header to pageBuffer
     try {
       logger.debug(
@@ -365,7 +547,8 @@ public class ChunkWriterImpl implements IChunkWriter {
       // serialize pageHeader  see writePageToPageBuffer method
       if (numOfPages == 0) { // record the firstPageStatistics
         this.firstPageStatistics = header.getStatistics();
-        this.sizeWithoutStatistic +=
+        // the writer may be reused after a chunk is written
+        this.sizeWithoutStatistic =
             ReadWriteForEncodingUtils.writeUnsignedVarInt(header.getUncompressedSize(), pageBuffer);
         this.sizeWithoutStatistic +=
             ReadWriteForEncodingUtils.writeUnsignedVarInt(header.getCompressedSize(), pageBuffer);
@@ -427,6 +610,15 @@ public class ChunkWriterImpl implements IChunkWriter {
         pageBuffer.size(),
         numOfPages,
         0);
+    if (enablePageIndex && numOfPages > 1) {
+      writer.setCurrentChunkPageIndex(
+          PageIndex.build(
+              ByteBuffer.wrap(pageBuffer.getBuf(), 0, pageBuffer.size()),
+              measurementSchema.getType()));
+    }
+    if (regularTimeIndexBuilder != null) {
+      writer.setCurrentChunkRegularTimeIndex(regularTimeIndexBuilder.build());
+    }
 
     long dataOffset = writer.getPos();
 
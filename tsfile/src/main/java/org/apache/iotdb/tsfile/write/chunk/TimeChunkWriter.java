@@ -136,6 +136,18 @@ public class TimeChunkWriter {
     return false;
   }
 
+  /**
+   * @return the number of points that can be written before {@link
+   *     #checkPageSizeAndMayOpenANewPage()} may return true again, at least 1
+   */
+  public int getPointNumberBeforeNextCheck() {
+    return (int)
+        Math.max(
+            1,
+            Math.min(maxNumberOfPointsInPage, valueCountInOnePageForNextCheck)
+                - pageWriter.getPointNumber());
+  }
+
   public void writePageToPageBuffer() {
     try {
       if (numOfPages == 0) { // record the firstPageStatistics
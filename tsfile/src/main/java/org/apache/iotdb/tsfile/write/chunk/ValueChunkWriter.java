@@ -252,6 +252,18 @@ public class ValueChunkWriter {
     return false;
   }
 
+  /**
+   * @return the number of points that can be written before {@link
+   *     #checkPageSizeAndMayOpenANewPage()} may return true again, at least 1
+   */
+  public int getPointNumberBeforeNextCheck() {
+    return (int)
+        Math.max(
+            1,
+            Math.min(maxNumberOfPointsInPage, valueCountInOnePageForNextCheck)
+                - pageWriter.getPointNumber());
+  }
+
   public void sealCurrentPage() {
     // if the page contains no points, we still need to serialize it
     if (pageWriter != null && pageWriter.getSize() != 0) {
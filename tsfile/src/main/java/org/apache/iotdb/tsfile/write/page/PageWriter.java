@@ -126,6 +126,13 @@ public class PageWriter {
     statistics.update(time, value);
   }
 
+  /** write a time value pair into encoder, with the index of the value in a dictionary */
+  public void write(long time, Binary value, int dictionaryIndex) {
+    timeEncoder.encode(time, timeOut);
+    valueEncoder.encode(value, dictionaryIndex, valueOut);
+    statistics.update(time, value);
+  }
+
   /** write time series into encoder */
   public void write(long[] timestamps, boolean[] values, int batchSize) {
     for (int i = 0; i < batchSize; i++) {
@@ -66,6 +66,17 @@ public class LocalTsFileOutput extends OutputStream implements TsFileOutput {
 
   @Override
   public synchronized void write(ByteBuffer b) throws IOException {
+    if (!b.hasArray()) {
+      // e.g. chunks read from memory-mapped TsFiles, whose content is written as a whole like an
+      // array-backed buffer
+      ByteBuffer content = b.duplicate();
+      content.clear();
+      byte[] bytes = new byte[content.remaining()];
+      content.get(bytes);
+      bufferedStream.write(bytes);
+      position += bytes.length;
+      return;
+    }
     bufferedStream.write(b.array());
     position += b.array().length;
   }
@@ -19,6 +19,7 @@
 
 package org.apache.iotdb.tsfile.write.writer;
 
+import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
 import org.apache.iotdb.tsfile.exception.NotCompatibleTsFileException;
 import org.apache.iotdb.tsfile.file.metadata.ChunkGroupMetadata;
 import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
@@ -93,6 +94,10 @@ public class RestorableTsFileIOWriter extends TsFileIOWriter {
       try (TsFileSequenceReader reader = new TsFileSequenceReader(file.getAbsolutePath(), false)) {
 
         truncatedSize = reader.selfCheck(knownSchemas, chunkGroupMetadataList, true);
+        // the data appended to a file keeps to the format of its version
+        writeChunkMetadataExtensions =
+            truncatedSize == TsFileCheckStatus.INCOMPATIBLE_FILE
+                || reader.readVersionNumber() != TSFileConfig.VERSION_NUMBER_V3;
         minPlanIndex = reader.getMinPlanIndex();
         maxPlanIndex = reader.getMaxPlanIndex();
         if (truncatedSize == TsFileCheckStatus.COMPLETE_FILE) {
@@ -132,6 +137,10 @@ public class RestorableTsFileIOWriter extends TsFileIOWriter {
       try (TsFileSequenceReader reader = new TsFileSequenceReader(file.getAbsolutePath(), false)) {
 
         truncatedSize = reader.selfCheck(knownSchemas, chunkGroupMetadataList, true);
+        // the data appended to a file keeps to the format of its version
+        writeChunkMetadataExtensions =
+            truncatedSize == TsFileCheckStatus.INCOMPATIBLE_FILE
+                || reader.readVersionNumber() != TSFileConfig.VERSION_NUMBER_V3;
         minPlanIndex = reader.getMinPlanIndex();
         maxPlanIndex = reader.getMaxPlanIndex();
         if (truncatedSize == TsFileCheckStatus.COMPLETE_FILE) {
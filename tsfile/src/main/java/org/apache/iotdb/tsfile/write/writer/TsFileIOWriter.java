@@ -20,6 +20,8 @@ package org.apache.iotdb.tsfile.write.writer;
 
 import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
 import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
+import org.apache.iotdb.tsfile.common.constant.TsFileConstant;
+import org.apache.iotdb.tsfile.compress.ZstdDictionaries;
 import org.apache.iotdb.tsfile.file.MetaMarker;
 import org.apache.iotdb.tsfile.file.header.ChunkGroupHeader;
 import org.apache.iotdb.tsfile.file.header.ChunkHeader;
@@ -28,6 +30,8 @@ import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
 import org.apache.iotdb.tsfile.file.metadata.IChunkMetadata;
 import org.apache.iotdb.tsfile.file.metadata.MetadataIndexConstructor;
 import org.apache.iotdb.tsfile.file.metadata.MetadataIndexNode;
+import org.apache.iotdb.tsfile.file.metadata.PageIndex;
+import org.apache.iotdb.tsfile.file.metadata.RegularTimeIndex;
 import org.apache.iotdb.tsfile.file.metadata.TimeseriesMetadata;
 import org.apache.iotdb.tsfile.file.metadata.TsFileMetadata;
 import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
@@ -47,6 +51,7 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -73,6 +78,8 @@ public class TsFileIOWriter implements AutoCloseable {
 
   protected TsFileOutput out;
   protected boolean canWrite = true;
+  // false when appending to a file of version 3, whose readers know no chunk metadata extensions
+  protected boolean writeChunkMetadataExtensions = true;
   protected File file;
 
   // current flushed Chunk
@@ -93,6 +100,9 @@ public class TsFileIOWriter implements AutoCloseable {
   private long minPlanIndex;
   private long maxPlanIndex;
 
+  // trained zstd dictionaries used by the chunks of this file, written with the file metadata
+  private final ZstdDictionaries zstdDictionaries = new ZstdDictionaries();
+
   /** empty construct function. */
   protected TsFileIOWriter() {}
 
@@ -214,15 +224,47 @@ public class TsFileIOWriter implements AutoCloseable {
     header.serializeTo(out.wrapAsStream());
   }
 
+  /**
+   * Add a trained zstd dictionary to the file before compressing any page with it. A dictionary
+   * whose id is used by another dictionary of the file gets a new id.
+   *
+   * @return the dictionary to compress with, which may be a renumbered copy of the given one
+   */
+  public byte[] registerZstdDictionary(byte[] dictionary) {
+    return zstdDictionaries.addOrRenumber(dictionary);
+  }
+
   /** Write a whole chunk in another file into this file. Providing fast merge for IoTDB. */
   public void writeChunk(Chunk chunk, ChunkMetadata chunkMetadata) throws IOException {
     ChunkHeader chunkHeader = chunk.getHeader();
+    // the frames of the copied pages keep the ids of the dictionaries they were compressed with
+    if (chunk.getZstdDictionaries() != null
+        && !zstdDictionaries.addAll(chunk.getZstdDictionaries())) {
+      throw new IOException(
+          "The zstd dictionaries of chunk "
+              + chunkHeader.getMeasurementID()
+              + " clash with those of "
+              + file);
+    }
     currentChunkMetadata =
         new ChunkMetadata(
             chunkHeader.getMeasurementID(),
             chunkHeader.getDataType(),
             out.getPosition(),
             chunkMetadata.getStatistics());
+    // the page bodies keep their offsets from the end of the chunk header
+    PageIndex pageIndex = chunkMetadata.getPageIndex();
+    if (pageIndex == null
+        && config.isEnablePageIndex()
+        && chunkHeader.getChunkType() == MetaMarker.CHUNK_HEADER) {
+      // e.g. chunks merged by appending pages in compaction, whose merged metadata has no index
+      ByteBuffer chunkData = chunk.getData().duplicate();
+      chunkData.clear();
+      chunkData.limit(chunkHeader.getDataSize());
+      pageIndex = PageIndex.build(chunkData, chunkHeader.getDataType());
+    }
+    currentChunkMetadata.setPageIndex(pageIndex);
+    currentChunkMetadata.setRegularTimeIndex(chunkMetadata.getRegularTimeIndex());
     chunkHeader.serializeTo(out.wrapAsStream());
     out.write(chunk.getData());
     endCurrentChunk();
@@ -234,6 +276,16 @@ public class TsFileIOWriter implements AutoCloseable {
     }
   }
 
+  /** attach the page index of the chunk being flushed to its ChunkMetadata */
+  public void setCurrentChunkPageIndex(PageIndex pageIndex) {
+    currentChunkMetadata.setPageIndex(pageIndex);
+  }
+
+  /** attach the regular time index of the chunk being flushed to its ChunkMetadata */
+  public void setCurrentChunkRegularTimeIndex(RegularTimeIndex regularTimeIndex) {
+    currentChunkMetadata.setRegularTimeIndex(regularTimeIndex);
+  }
+
   /** end chunk and write some log. */
   public void endCurrentChunk() {
     chunkMetadataList.add(currentChunkMetadata);
@@ -285,6 +337,10 @@ public class TsFileIOWriter implements AutoCloseable {
       logger.debug("finish flushing the bloom filter file pos:{}", out.getPosition());
     }
 
+    if (!zstdDictionaries.isEmpty()) {
+      size += tsFileMetaData.serializeZstdDictionaries(out.wrapAsStream(), zstdDictionaries);
+    }
+
     // write TsFileMetaData size
     ReadWriteIOUtils.write(size, out.wrapAsStream()); // write the size of the file metadata.
 
@@ -335,24 +391,46 @@ public class TsFileIOWriter implements AutoCloseable {
 
     int chunkMetadataListLength = 0;
     boolean serializeStatistic = (chunkMetadataList.size() > 1);
+    boolean serializePageIndex = false;
+    boolean serializeRegularTimeIndex = false;
+    for (IChunkMetadata chunkMetadata : chunkMetadataList) {
+      if (writeChunkMetadataExtensions && chunkMetadata instanceof ChunkMetadata) {
+        serializePageIndex |= ((ChunkMetadata) chunkMetadata).getPageIndex() != null;
+        serializeRegularTimeIndex |= ((ChunkMetadata) chunkMetadata).getRegularTimeIndex() != null;
+      }
+    }
     // flush chunkMetadataList one by one
     for (IChunkMetadata chunkMetadata : chunkMetadataList) {
       if (!chunkMetadata.getDataType().equals(dataType)) {
         continue;
       }
-      chunkMetadataListLength += chunkMetadata.serializeTo(publicBAOS, serializeStatistic);
+      chunkMetadataListLength +=
+          serializePageIndex || serializeRegularTimeIndex
+              ? ((ChunkMetadata) chunkMetadata)
+                  .serializeTo(
+                      publicBAOS, serializeStatistic, serializePageIndex, serializeRegularTimeIndex)
+              : chunkMetadata.serializeTo(publicBAOS, serializeStatistic);
       seriesStatistics.mergeStatistics(chunkMetadata.getStatistics());
     }
 
+    byte timeseriesMetadataType =
+        (byte) ((serializeStatistic ? (byte) 1 : (byte) 0) | chunkMetadataList.get(0).getMask());
     TimeseriesMetadata timeseriesMetadata =
         new TimeseriesMetadata(
-            (byte)
-                ((serializeStatistic ? (byte) 1 : (byte) 0) | chunkMetadataList.get(0).getMask()),
+            timeseriesMetadataType,
             chunkMetadataListLength,
             path.getMeasurement(),
             dataType,
             seriesStatistics,
             publicBAOS);
+    byte chunkMetadataExtensions = 0;
+    if (serializePageIndex) {
+      chunkMetadataExtensions |= TsFileConstant.PAGE_INDEX_EXTENSION;
+    }
+    if (serializeRegularTimeIndex) {
+      chunkMetadataExtensions |= TsFileConstant.REGULAR_TIME_INDEX_EXTENSION;
+    }
+    timeseriesMetadata.setChunkMetadataExtensions(chunkMetadataExtensions);
     deviceTimeseriesMetadataMap
         .computeIfAbsent(path.getDevice(), k -> new ArrayList<>())
         .add(timeseriesMetadata);
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.compress;
+
+import org.apache.iotdb.tsfile.compress.ICompressor.ZstdCompressor;
+import org.apache.iotdb.tsfile.compress.IUnCompressor.ZstdUnCompressor;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+
+import com.github.luben.zstd.ZstdDictTrainer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class ZstdTest {
+
+  private String randomString(int length) {
+    StringBuilder builder = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      builder.append((char) (ThreadLocalRandom.current().nextInt(33, 128)));
+    }
+    return builder.toString();
+  }
+
+  @Test
+  public void testBytes() throws IOException {
+    ICompressor compressor = new ZstdCompressor();
+    IUnCompressor unCompressor = new ZstdUnCompressor();
+
+    byte[] uncom = randomString(500000).getBytes(StandardCharsets.UTF_8);
+    byte[] compressed = compressor.compress(uncom);
+    Assert.assertTrue(compressed.length < uncom.length);
+    Assert.assertEquals(
+        uncom.length, unCompressor.getUncompressedLength(compressed, 0, compressed.length));
+    Assert.assertArrayEquals(uncom, unCompressor.uncompress(compressed));
+  }
+
+  @Test
+  public void testBytesWithOffset() throws IOException {
+    ICompressor compressor = new ZstdCompressor(9);
+    IUnCompressor unCompressor = new ZstdUnCompressor();
+
+    byte[] uncom = randomString(10000).getBytes(StandardCharsets.UTF_8);
+    byte[] compressed = new byte[compressor.getMaxBytesForCompression(uncom.length - 100)];
+    int compressedSize = compressor.compress(uncom, 100, uncom.length - 100, compressed);
+
+    byte[] uncompressed = new byte[uncom.length];
+    int uncompressedSize =
+        unCompressor.uncompress(compressed, 0, compressedSize, uncompressed, 100);
+    Assert.assertEquals(uncom.length - 100, uncompressedSize);
+    for (int i = 100; i < uncom.length; i++) {
+      Assert.assertEquals(uncom[i], uncompressed[i]);
+    }
+  }
+
+  @Test
+  public void testHeapByteBuffer() throws IOException {
+    testByteBuffer(false);
+  }
+
+  @Test
+  public void testDirectByteBuffer() throws IOException {
+    testByteBuffer(true);
+  }
+
+  private void testByteBuffer(boolean direct) throws IOException {
+    ICompressor compressor = ICompressor.getCompressor(CompressionType.ZSTD);
+    IUnCompressor unCompressor = IUnCompressor.getUnCompressor(CompressionType.ZSTD);
+
+    byte[] uncom = randomString(50000).getBytes(StandardCharsets.UTF_8);
+    ByteBuffer source =
+        direct ? ByteBuffer.allocateDirect(uncom.length) : ByteBuffer.allocate(uncom.length);
+    source.put(uncom);
+    source.flip();
+
+    int maxSize = compressor.getMaxBytesForCompression(uncom.length);
+    ByteBuffer compressed =
+        direct ? ByteBuffer.allocateDirect(maxSize) : ByteBuffer.allocate(maxSize);
+    int compressedSize = compressor.compress(source, compressed);
+    Assert.assertEquals(compressedSize, compressed.position());
+    compressed.flip();
+    Assert.assertEquals(uncom.length, unCompressor.getUncompressedLength(compressed));
+
+    ByteBuffer uncompressed =
+        direct ? ByteBuffer.allocateDirect(uncom.length) : ByteBuffer.allocate(uncom.length);
+    Assert.assertEquals(uncom.length, unCompressor.uncompress(compressed, uncompressed));
+    uncompressed.flip();
+    byte[] result = new byte[uncom.length];
+    uncompressed.get(result);
+    Assert.assertArrayEquals(uncom, result);
+  }
+
+  @Test
+  public void testUnknownContentSize() {
+    IUnCompressor unCompressor = new ZstdUnCompressor();
+    byte[] notAFrame = randomString(100).getBytes(StandardCharsets.UTF_8);
+    try {
+      unCompressor.getUncompressedLength(notAFrame, 0, notAFrame.length);
+      Assert.fail();
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().contains("content size"));
+    }
+  }
+
+  private byte[] trainDictionary() {
+    ZstdDictTrainer trainer = new ZstdDictTrainer(1 << 20, 4096);
+    for (int i = 0; i < 1000; i++) {
+      trainer.addSample(sample(i));
+    }
+    return trainer.trainSamples();
+  }
+
+  /** small samples that share most of their content, like the pages of one series */
+  private byte[] sample(int i) {
+    StringBuilder builder = new StringBuilder();
+    for (int j = 0; j < 20; j++) {
+      builder.append("root.sg.device_").append(i % 7).append(".status=").append((i + j) % 13);
+      builder.append(j % 3 == 0 ? ",running;" : ",idle;");
+    }
+    return builder.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testDictionary() throws IOException {
+    byte[] dictionary = trainDictionary();
+    ZstdDictionaries dictionaries = new ZstdDictionaries();
+    Assert.assertTrue(dictionaries.add(dictionary));
+    ICompressor compressor = new ZstdCompressor(dictionary);
+    IUnCompressor unCompressor = dictionaries.getUnCompressor();
+
+    byte[] uncom = sample(12345);
+    byte[] compressed = compressor.compress(uncom);
+    Assert.assertTrue(compressed.length < new ZstdCompressor().compress(uncom).length);
+    Assert.assertEquals(
+        ZstdDictionaries.getDictionaryId(dictionary),
+        ZstdDictionaries.getDictionaryIdOfFrame(ByteBuffer.wrap(compressed)));
+    Assert.assertArrayEquals(uncom, unCompressor.uncompress(compressed));
+
+    // frames without a dictionary are still read
+    Assert.assertArrayEquals(uncom, unCompressor.uncompress(new ZstdCompressor().compress(uncom)));
+
+    // direct buffers
+    ByteBuffer source = ByteBuffer.allocateDirect(uncom.length);
+    source.put(uncom);
+    source.flip();
+    ByteBuffer directCompressed =
+        ByteBuffer.allocateDirect(compressor.getMaxBytesForCompression(uncom.length));
+    compressor.compress(source, directCompressed);
+    directCompressed.flip();
+    ByteBuffer uncompressed = ByteBuffer.allocateDirect(uncom.length);
+    Assert.assertEquals(uncom.length, unCompressor.uncompress(directCompressed, uncompressed));
+    uncompressed.flip();
+    byte[] result = new byte[uncom.length];
+    uncompressed.get(result);
+    Assert.assertArrayEquals(uncom, result);
+
+    // a frame whose dictionary is missing cannot be read
+    try {
+      new ZstdDictionaries().getUnCompressor().uncompress(compressed);
+      Assert.fail();
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().contains("dictionary"));
+    }
+  }
+
+  @Test
+  public void testDictionaryIdClash() throws IOException {
+    byte[] dictionary = trainDictionary();
+    byte[] other = dictionary.clone();
+    // same id, different content
+    other[other.length - 1]++;
+    ZstdDictionaries dictionaries = new ZstdDictionaries();
+    Assert.assertSame(dictionary, dictionaries.addOrRenumber(dictionary));
+    Assert.assertSame(dictionary, dictionaries.addOrRenumber(dictionary));
+    Assert.assertFalse(dictionaries.add(other));
+    byte[] renumbered = dictionaries.addOrRenumber(other);
+    Assert.assertNotEquals(
+        ZstdDictionaries.getDictionaryId(dictionary), ZstdDictionaries.getDictionaryId(renumbered));
+    Assert.assertEquals(2, dictionaries.size());
+
+    byte[] uncom = sample(42);
+    Assert.assertArrayEquals(
+        uncom,
+        dictionaries.getUnCompressor().uncompress(new ZstdCompressor(renumbered).compress(uncom)));
+    Assert.assertArrayEquals(
+        uncom,
+        dictionaries.getUnCompressor().uncompress(new ZstdCompressor(dictionary).compress(uncom)));
+
+    // serialization keeps the ids
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    dictionaries.serializeTo(out);
+    ZstdDictionaries deserialized =
+        ZstdDictionaries.deserializeFrom(ByteBuffer.wrap(out.toByteArray()));
+    Assert.assertEquals(2, deserialized.size());
+    Assert.assertArrayEquals(
+        uncom,
+        deserialized.getUnCompressor().uncompress(new ZstdCompressor(renumbered).compress(uncom)));
+  }
+
+  @Test
+  public void testSerializeCompressionType() {
+    Assert.assertEquals(
+        CompressionType.ZSTD, CompressionType.deserialize(CompressionType.ZSTD.serialize()));
+    Assert.assertEquals(CompressionType.ZSTD, ICompressor.getCompressor("ZSTD").getType());
+  }
+}
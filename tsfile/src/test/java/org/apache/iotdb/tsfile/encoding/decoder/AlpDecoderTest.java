@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.encoding.decoder;
+
+import org.apache.iotdb.tsfile.encoding.encoder.AlpEncoder;
+import org.apache.iotdb.tsfile.encoding.encoder.DoublePrecisionEncoderV2;
+import org.apache.iotdb.tsfile.encoding.encoder.Encoder;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AlpDecoderTest {
+
+  private static final int ROW_NUM = 10000;
+  private final Random random = new Random(7);
+
+  @Test
+  public void testDecimalDouble() throws IOException {
+    double[] data = new double[ROW_NUM];
+    double value = 20.0;
+    for (int i = 0; i < ROW_NUM; i++) {
+      value += random.nextGaussian() * 0.1;
+      data[i] = Math.round(value * 100) / 100.0;
+    }
+    byte[] encoded = shouldReadAndWriteDouble(data);
+    // decimal data should be much smaller than its plain encoding
+    assertTrue(encoded.length < ROW_NUM * 8 / 3);
+    assertTrue(encoded.length < encodeByGorilla(data).length);
+  }
+
+  @Test
+  public void testDecimalFloat() throws IOException {
+    float[] data = new float[ROW_NUM];
+    for (int i = 0; i < ROW_NUM; i++) {
+      data[i] = Math.round((50 + random.nextGaussian() * 10) * 10) / 10.0f;
+    }
+    byte[] encoded = shouldReadAndWriteFloat(data);
+    assertTrue(encoded.length < ROW_NUM * 4 / 2);
+  }
+
+  @Test
+  public void testFullPrecisionDouble() throws IOException {
+    double[] data = new double[ROW_NUM];
+    for (int i = 0; i < ROW_NUM; i++) {
+      data[i] = random.nextDouble() * Math.PI;
+    }
+    shouldReadAndWriteDouble(data);
+  }
+
+  @Test
+  public void testSpecialValues() throws IOException {
+    double[] special = {
+      0.0,
+      -0.0,
+      Double.NaN,
+      Double.POSITIVE_INFINITY,
+      Double.NEGATIVE_INFINITY,
+      Double.MAX_VALUE,
+      -Double.MAX_VALUE,
+      Double.MIN_VALUE,
+      1e20,
+      -1e-20,
+      Long.MAX_VALUE,
+      0.1
+    };
+    double[] data = new double[ROW_NUM];
+    float[] floatData = new float[ROW_NUM];
+    for (int i = 0; i < ROW_NUM; i++) {
+      data[i] = i % 3 == 0 ? special[i % special.length] : i * 0.5;
+      floatData[i] = (float) data[i];
+    }
+    shouldReadAndWriteDouble(data);
+    shouldReadAndWriteFloat(floatData);
+  }
+
+  @Test
+  public void testPartialBlocks() throws IOException {
+    for (int num : new int[] {1, 2, 1023, 1024, 1025, 3000}) {
+      double[] data = new double[num];
+      for (int i = 0; i < num; i++) {
+        data[i] = i % 7 == 0 ? random.nextDouble() : -i * 0.001;
+      }
+      shouldReadAndWriteDouble(data);
+    }
+  }
+
+  @Test
+  public void testConstant() throws IOException {
+    double[] data = new double[ROW_NUM];
+    for (int i = 0; i < ROW_NUM; i++) {
+      data[i] = 3.25;
+    }
+    byte[] encoded = shouldReadAndWriteDouble(data);
+    assertTrue(encoded.length < 30 * (ROW_NUM / AlpEncoder.BLOCK_SIZE + 1));
+  }
+
+  @Test
+  public void testMultiFlush() throws IOException {
+    AlpEncoder encoder = new AlpEncoder(TSDataType.DOUBLE);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (int page = 0; page < 5; page++) {
+      for (int i = 0; i < 100 + page; i++) {
+        encoder.encode(page + i * 0.01, out);
+      }
+      encoder.flush(out);
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+    Decoder decoder = new AlpDecoder(TSDataType.DOUBLE);
+    for (int page = 0; page < 5; page++) {
+      for (int i = 0; i < 100 + page; i++) {
+        assertTrue(decoder.hasNext(buffer));
+        assertEquals(page + i * 0.01, decoder.readDouble(buffer), 0);
+      }
+    }
+    assertFalse(decoder.hasNext(buffer));
+  }
+
+  private byte[] shouldReadAndWriteDouble(double[] data) throws IOException {
+    Encoder encoder = new AlpEncoder(TSDataType.DOUBLE);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (double value : data) {
+      encoder.encode(value, out);
+    }
+    assertTrue(encoder.getMaxByteSize() >= 0);
+    encoder.flush(out);
+    byte[] encoded = out.toByteArray();
+
+    ByteBuffer buffer = ByteBuffer.wrap(encoded);
+    Decoder decoder = new AlpDecoder(TSDataType.DOUBLE);
+    for (double value : data) {
+      assertTrue(decoder.hasNext(buffer));
+      assertEquals(
+          Double.doubleToRawLongBits(value),
+          Double.doubleToRawLongBits(decoder.readDouble(buffer)));
+    }
+    assertFalse(decoder.hasNext(buffer));
+
+    // bulk read in odd-sized batches
+    buffer = ByteBuffer.wrap(encoded);
+    decoder.reset();
+    double[] result = new double[data.length];
+    int count = 0;
+    while (decoder.hasNext(buffer)) {
+      count += decoder.readDoubles(buffer, result, count, Math.min(777, data.length - count));
+    }
+    assertEquals(data.length, count);
+    for (int i = 0; i < data.length; i++) {
+      assertEquals(Double.doubleToRawLongBits(data[i]), Double.doubleToRawLongBits(result[i]));
+    }
+    return encoded;
+  }
+
+  private byte[] shouldReadAndWriteFloat(float[] data) throws IOException {
+    Encoder encoder = new AlpEncoder(TSDataType.FLOAT);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (float value : data) {
+      encoder.encode(value, out);
+    }
+    encoder.flush(out);
+    byte[] encoded = out.toByteArray();
+
+    ByteBuffer buffer = ByteBuffer.wrap(encoded);
+    Decoder decoder = new AlpDecoder(TSDataType.FLOAT);
+    float[] result = new float[data.length];
+    assertEquals(data.length, decoder.readFloats(buffer, result, 0, data.length));
+    assertFalse(decoder.hasNext(buffer));
+    for (int i = 0; i < data.length; i++) {
+      assertEquals(Float.floatToRawIntBits(data[i]), Float.floatToRawIntBits(result[i]));
+    }
+    return encoded;
+  }
+
+  private byte[] encodeByGorilla(double[] data) throws IOException {
+    Encoder encoder = new DoublePrecisionEncoderV2();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (double value : data) {
+      encoder.encode(value, out);
+    }
+    encoder.flush(out);
+    return out.toByteArray();
+  }
+}
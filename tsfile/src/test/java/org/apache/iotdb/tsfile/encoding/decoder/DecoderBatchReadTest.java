@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.encoding.decoder;
+
+import org.apache.iotdb.tsfile.encoding.encoder.Encoder;
+import org.apache.iotdb.tsfile.encoding.encoder.TSEncodingBuilder;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/** Check that decoding values in batch gets the same values as decoding them one by one. */
+public class DecoderBatchReadTest {
+
+  private static final int VALUE_NUM = 10000;
+  private static final int[] BATCH_SIZES = {1, 7, 128, 1000, 3001};
+
+  @Test
+  public void testReadInBatch() throws IOException {
+    for (TSEncoding encoding :
+        new TSEncoding[] {
+          TSEncoding.PLAIN, TSEncoding.RLE, TSEncoding.TS_2DIFF, TSEncoding.GORILLA
+        }) {
+      for (TSDataType dataType :
+          new TSDataType[] {
+            TSDataType.INT32, TSDataType.INT64, TSDataType.FLOAT, TSDataType.DOUBLE
+          }) {
+        for (int batchSize : BATCH_SIZES) {
+          checkReadInBatch(encoding, dataType, batchSize);
+        }
+      }
+    }
+    for (int batchSize : BATCH_SIZES) {
+      checkReadInBatch(TSEncoding.PLAIN, TSDataType.BOOLEAN, batchSize);
+      checkReadInBatch(TSEncoding.RLE, TSDataType.BOOLEAN, batchSize);
+    }
+  }
+
+  private void checkReadInBatch(TSEncoding encoding, TSDataType dataType, int batchSize)
+      throws IOException {
+    TSEncodingBuilder encodingBuilder = TSEncodingBuilder.getEncodingBuilder(encoding);
+    encodingBuilder.initFromProps(null);
+    Encoder encoder = encodingBuilder.getEncoder(dataType);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Random random = new Random(VALUE_NUM);
+    for (int i = 0; i < VALUE_NUM; i++) {
+      // runs of repeated values mixed with random ones
+      int value = (i / 100) % 2 == 0 ? i / 50 : random.nextInt(1000);
+      switch (dataType) {
+        case BOOLEAN:
+          encoder.encode(value % 2 == 0, out);
+          break;
+        case INT32:
+          encoder.encode(value, out);
+          break;
+        case INT64:
+          encoder.encode((long) value << 20, out);
+          break;
+        case FLOAT:
+          encoder.encode(value / 10.0f, out);
+          break;
+        default:
+          encoder.encode(value / 100.0, out);
+      }
+    }
+    encoder.flush(out);
+    byte[] bytes = out.toByteArray();
+
+    Decoder decoder = Decoder.getDecoderByType(encoding, dataType);
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    Decoder batchDecoder = Decoder.getDecoderByType(encoding, dataType);
+    ByteBuffer batchBuffer = ByteBuffer.wrap(bytes);
+    String message = encoding + " " + dataType + " " + batchSize;
+    int index = 0;
+    while (true) {
+      int read;
+      switch (dataType) {
+        case BOOLEAN:
+          boolean[] booleans = new boolean[batchSize];
+          read = batchDecoder.readBooleans(batchBuffer, booleans, 0, batchSize);
+          for (int i = 0; i < read; i++) {
+            assertEquals(message, decoder.readBoolean(buffer), booleans[i]);
+          }
+          break;
+        case INT32:
+          int[] ints = new int[batchSize];
+          read = batchDecoder.readInts(batchBuffer, ints, 0, batchSize);
+          for (int i = 0; i < read; i++) {
+            assertEquals(message, decoder.readInt(buffer), ints[i]);
+          }
+          break;
+        case INT64:
+          long[] longs = new long[batchSize];
+          read = batchDecoder.readLongs(batchBuffer, longs, 0, batchSize);
+          for (int i = 0; i < read; i++) {
+            assertEquals(message, decoder.readLong(buffer), longs[i]);
+          }
+          break;
+        case FLOAT:
+          float[] floats = new float[batchSize];
+          read = batchDecoder.readFloats(batchBuffer, floats, 0, batchSize);
+          for (int i = 0; i < read; i++) {
+            assertEquals(message, decoder.readFloat(buffer), floats[i], 0);
+          }
+          break;
+        default:
+          double[] doubles = new double[batchSize];
+          read = batchDecoder.readDoubles(batchBuffer, doubles, 0, batchSize);
+          for (int i = 0; i < read; i++) {
+            assertEquals(message, decoder.readDouble(buffer), doubles[i], 0);
+          }
+      }
+      index += read;
+      if (read < batchSize) {
+        break;
+      }
+    }
+    assertEquals(message, VALUE_NUM, index);
+    assertEquals(message, false, decoder.hasNext(buffer));
+    assertEquals(message, false, batchDecoder.hasNext(batchBuffer));
+  }
+}
@@ -66,6 +66,29 @@ public class DictionaryDecoderTest {
     testAll(allChars);
   }
 
+  @Test
+  public void testEncodeByDictionaryIndex() {
+    String[] dictionary = {"on", "off", "unknown"};
+    int[] indexes = {2, 0, 0, 1, 2, 1, 0};
+    for (int page = 0; page < 2; page++) {
+      for (int index : indexes) {
+        encoder.encode(new Binary(dictionary[index]), index, baos);
+      }
+      // the dictionary of the encoder is reset after each page
+      encoder.flush(baos);
+    }
+
+    ByteBuffer out = ByteBuffer.wrap(baos.toByteArray());
+    for (int page = 0; page < 2; page++) {
+      for (int index : indexes) {
+        assertTrue(decoder.hasNext(out));
+        assertEquals(dictionary[index], decoder.readBinary(out).getStringValue());
+      }
+      decoder.reset();
+    }
+    baos.reset();
+  }
+
   private void testAll(String... all) {
     for (String s : all) {
       encoder.encode(new Binary(s), baos);
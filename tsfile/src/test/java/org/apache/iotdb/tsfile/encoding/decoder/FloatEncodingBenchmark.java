@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.encoding.decoder;
+
+import org.apache.iotdb.tsfile.encoding.encoder.Encoder;
+import org.apache.iotdb.tsfile.encoding.encoder.TSEncodingBuilder;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Compare the compressed size and the bulk decoding speed of ALP with GORILLA and TS_2DIFF on
+ * DOUBLE series shaped like real data sets. TS_2DIFF is given the number of decimal places of each
+ * data set so that it is lossless where possible.
+ */
+public class FloatEncodingBenchmark {
+
+  private static final Logger logger = LoggerFactory.getLogger(FloatEncodingBenchmark.class);
+
+  private static final int POINT_NUM_IN_PAGE = 100000;
+  private static final int WARMUP_ROUNDS = 50;
+  private static final int ROUNDS = 200;
+
+  public static void main(String[] args) throws IOException {
+    Random random = new Random(0);
+    double[] data = new double[POINT_NUM_IN_PAGE];
+
+    // air temperature sampled every second: slow random walk with 1 decimal place
+    double value = 20;
+    for (int i = 0; i < POINT_NUM_IN_PAGE; i++) {
+      value += random.nextGaussian() * 0.05;
+      data[i] = Math.round(value * 10) / 10.0;
+    }
+    bench("temperature", data, 1);
+
+    // stock price ticks: random walk with 2 decimal places
+    value = 150;
+    for (int i = 0; i < POINT_NUM_IN_PAGE; i++) {
+      value = Math.max(1, value + random.nextGaussian() * 0.2);
+      data[i] = Math.round(value * 100) / 100.0;
+    }
+    bench("stock price", data, 2);
+
+    // power meter: periodic load plus noise with 3 decimal places
+    for (int i = 0; i < POINT_NUM_IN_PAGE; i++) {
+      value = 220 + 15 * Math.sin(i / 600.0) + random.nextGaussian();
+      data[i] = Math.round(value * 1000) / 1000.0;
+    }
+    bench("power", data, 3);
+
+    // vehicle longitude with 6 decimal places
+    value = 116.397128;
+    for (int i = 0; i < POINT_NUM_IN_PAGE; i++) {
+      value += random.nextGaussian() * 1e-5;
+      data[i] = Math.round(value * 1e6) / 1e6;
+    }
+    bench("longitude", data, 6);
+
+    // computed values without decimal structure
+    for (int i = 0; i < POINT_NUM_IN_PAGE; i++) {
+      data[i] = Math.sin(i / 100.0) * Math.E;
+    }
+    bench("full precision", data, 2);
+  }
+
+  private static void bench(String name, double[] data, int decimalPlaces) throws IOException {
+    for (TSEncoding encoding :
+        new TSEncoding[] {TSEncoding.GORILLA, TSEncoding.TS_2DIFF, TSEncoding.ALP}) {
+      TSEncodingBuilder encodingBuilder = TSEncodingBuilder.getEncodingBuilder(encoding);
+      encodingBuilder.initFromProps(
+          Collections.singletonMap(Encoder.MAX_POINT_NUMBER, String.valueOf(decimalPlaces)));
+      byte[] encoded = null;
+      long encodeTime = 0;
+      for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+        Encoder encoder = encodingBuilder.getEncoder(TSDataType.DOUBLE);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long startTime = System.nanoTime();
+        for (double value : data) {
+          encoder.encode(value, out);
+        }
+        encoder.flush(out);
+        if (round >= WARMUP_ROUNDS) {
+          encodeTime += System.nanoTime() - startTime;
+        }
+        encoded = out.toByteArray();
+      }
+
+      double[] result = new double[data.length];
+      long decodeTime = 0;
+      for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+        Decoder decoder = Decoder.getDecoderByType(encoding, TSDataType.DOUBLE);
+        long startTime = System.nanoTime();
+        int count = decoder.readDoubles(ByteBuffer.wrap(encoded), result, 0, result.length);
+        if (round >= WARMUP_ROUNDS) {
+          decodeTime += System.nanoTime() - startTime;
+        }
+        if (count != data.length) {
+          throw new IllegalStateException("Lost points of " + name + " " + encoding);
+        }
+      }
+      int mismatches = 0;
+      for (int i = 0; i < data.length; i++) {
+        if (Double.doubleToLongBits(result[i]) != Double.doubleToLongBits(data[i])) {
+          mismatches++;
+        }
+      }
+      logger.info(
+          String.format(
+              "%-15s %-9s %6.2f bits/point, encode: %6.2f ns/point, decode: %6.2f ns/point, "
+                  + "lossy points: %d",
+              name,
+              encoding,
+              encoded.length * 8.0 / data.length,
+              (double) encodeTime / ROUNDS / data.length,
+              (double) decodeTime / ROUNDS / data.length,
+              mismatches));
+    }
+  }
+}
@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.file.metadata;
+
+import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
+import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
+import org.apache.iotdb.tsfile.common.constant.TsFileConstant;
+import org.apache.iotdb.tsfile.constant.TestConstant;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
+import org.apache.iotdb.tsfile.read.common.BatchData;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.read.filter.TimeFilter;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.read.filter.factory.FilterFactory;
+import org.apache.iotdb.tsfile.read.reader.chunk.ChunkReader;
+import org.apache.iotdb.tsfile.utils.PublicBAOS;
+import org.apache.iotdb.tsfile.write.chunk.ChunkWriterImpl;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.apache.iotdb.tsfile.write.writer.TsFileIOWriter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+public class RegularTimeIndexTest {
+  private final TSFileConfig config = TSFileDescriptor.getInstance().getConfig();
+  private final boolean oldEnableRegularTimeIndex = config.isEnableRegularTimeIndex();
+  private final boolean oldEnablePageIndex = config.isEnablePageIndex();
+  private final int oldMaxPointNumInPage = config.getMaxNumberOfPointsInPage();
+  private final File file = new File(TestConstant.BASE_OUTPUT_PATH + "regularTimeIndex.tsfile");
+  private final long[] times = generateTimes();
+
+  @Before
+  public void setUp() {
+    config.setEnableRegularTimeIndex(true);
+    config.setMaxNumberOfPointsInPage(100);
+  }
+
+  @After
+  public void tearDown() {
+    config.setEnableRegularTimeIndex(oldEnableRegularTimeIndex);
+    config.setEnablePageIndex(oldEnablePageIndex);
+    config.setMaxNumberOfPointsInPage(oldMaxPointNumInPage);
+    if (file.exists()) {
+      file.delete();
+    }
+  }
+
+  /** 1000 points every 10ms, with two gaps and one late point */
+  private static long[] generateTimes() {
+    long[] times = new long[1000];
+    long time = 1000;
+    for (int i = 0; i < times.length; i++) {
+      times[i] = i == 500 ? time + 5 : time;
+      time += i == 200 || i == 700 ? 1000 : 10;
+    }
+    return times;
+  }
+
+  private RegularTimeIndex build(long[] times) {
+    RegularTimeIndex.Builder builder = new RegularTimeIndex.Builder();
+    builder.add(times, times.length);
+    return builder.build();
+  }
+
+  @Test
+  public void testLookup() {
+    RegularTimeIndex index = build(times);
+    Assert.assertNotNull(index);
+    Assert.assertEquals(10, index.getInterval());
+    Assert.assertEquals(times.length, index.getCount());
+    // the late point starts a run and the next point starts another one
+    Assert.assertEquals(5, index.getRunNum());
+    long[] filled = new long[times.length];
+    Assert.assertEquals(times.length - 3, index.fillTimes(3, filled, 0, times.length));
+    for (int i = 0; i < times.length; i++) {
+      Assert.assertEquals(times[i], index.getTime(i));
+      Assert.assertEquals(i, index.getPosition(times[i]));
+      Assert.assertEquals(i + 1, index.getPosition(times[i] + 1));
+      if (i >= 3) {
+        Assert.assertEquals(times[i], filled[i - 3]);
+      }
+    }
+    Assert.assertEquals(0, index.getPosition(Long.MIN_VALUE));
+    Assert.assertEquals(times.length, index.getPosition(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testCount() {
+    RegularTimeIndex index = build(times);
+    long[] bounds = {Long.MIN_VALUE, 0, 1000, 1005, 3010, 3015, 5990, 6000, 11000, Long.MAX_VALUE};
+    for (long start : bounds) {
+      for (long end : bounds) {
+        Assert.assertEquals(countBruteForce(start, end), index.count(start, end));
+      }
+    }
+    Filter[] filters = {
+      TimeFilter.gtEq(3015),
+      TimeFilter.lt(6001),
+      TimeFilter.notEq(5995),
+      TimeFilter.in(new HashSet<>(Arrays.asList(1000L, 2000L, 5995L, 5996L)), false),
+      FilterFactory.and(TimeFilter.gt(2000), TimeFilter.ltEq(9000)),
+      FilterFactory.or(TimeFilter.lt(1500), TimeFilter.gt(10000))
+    };
+    for (Filter filter : filters) {
+      int expected = 0;
+      for (long time : times) {
+        if (filter.satisfy(time, null)) {
+          expected++;
+        }
+      }
+      Assert.assertEquals(filter.toString(), expected, index.count(filter));
+    }
+  }
+
+  private int countBruteForce(long start, long end) {
+    int count = 0;
+    for (long time : times) {
+      if (time >= start && time <= end) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Test
+  public void testSerialize() throws IOException {
+    RegularTimeIndex index = build(times);
+    PublicBAOS out = new PublicBAOS();
+    int size = index.serializeTo(out);
+    RegularTimeIndex.serializeEmptyTo(out);
+    Assert.assertEquals(size + 1, out.size());
+    ByteBuffer buffer = ByteBuffer.wrap(out.getBuf(), 0, out.size());
+    RegularTimeIndex deserialized = RegularTimeIndex.deserializeFrom(buffer);
+    Assert.assertNull(RegularTimeIndex.deserializeFrom(buffer));
+    Assert.assertEquals(index.getRunNum(), deserialized.getRunNum());
+    for (int i = 0; i < times.length; i++) {
+      Assert.assertEquals(times[i], deserialized.getTime(i));
+    }
+  }
+
+  @Test
+  public void testIrregular() {
+    long[] irregular = new long[1000];
+    for (int i = 0; i < irregular.length; i++) {
+      irregular[i] = i * 10L + i % 3;
+    }
+    Assert.assertNull(build(irregular));
+    Assert.assertNull(build(new long[] {1}));
+  }
+
+  private void writeFile() throws IOException {
+    MeasurementSchema schema = new MeasurementSchema("s1", TSDataType.INT64, TSEncoding.RLE);
+    try (TsFileIOWriter writer = new TsFileIOWriter(file)) {
+      writer.startChunkGroup("root.sg.d1");
+      ChunkWriterImpl chunkWriter = new ChunkWriterImpl(schema);
+      for (long time : times) {
+        chunkWriter.write(time, time);
+      }
+      chunkWriter.writeToFileWriter(writer);
+      writer.endChunkGroup();
+      writer.endFile();
+    }
+  }
+
+  @Test
+  public void testChunkMetadataExtension() throws IOException {
+    config.setEnablePageIndex(false);
+    writeFile();
+
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(file.getPath())) {
+      Assert.assertEquals(TSFileConfig.VERSION_NUMBER, reader.readVersionNumber());
+      TimeseriesMetadata timeseriesMetadata =
+          reader.readTimeseriesMetadata(new Path("root.sg.d1", "s1"), false);
+      // the index takes no bit of the type, which still tells the series has one chunk
+      byte type = timeseriesMetadata.getTimeSeriesMetadataType();
+      Assert.assertEquals(TsFileConstant.CHUNK_METADATA_EXTENSION_MASK, type);
+      Assert.assertEquals(0, type & TsFileConstant.CHUNK_NUM_MASK);
+      Assert.assertEquals(
+          TsFileConstant.REGULAR_TIME_INDEX_EXTENSION,
+          timeseriesMetadata.getChunkMetadataExtensions());
+
+      ChunkMetadata chunkMetadata =
+          reader.getChunkMetadataList(new Path("root.sg.d1", "s1")).get(0);
+      Assert.assertNull(chunkMetadata.getPageIndex());
+      Assert.assertNotNull(chunkMetadata.getRegularTimeIndex());
+      Assert.assertEquals(times.length, chunkMetadata.getRegularTimeIndex().getCount());
+    }
+  }
+
+  @Test
+  public void testWriteAndRead() throws IOException {
+    config.setEnablePageIndex(true);
+    writeFile();
+
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(file.getPath())) {
+      List<ChunkMetadata> chunkMetadataList =
+          reader.getChunkMetadataList(new Path("root.sg.d1", "s1"));
+      Assert.assertEquals(1, chunkMetadataList.size());
+      ChunkMetadata chunkMetadata = chunkMetadataList.get(0);
+      Assert.assertNotNull(chunkMetadata.getRegularTimeIndex());
+      Assert.assertEquals(times.length, chunkMetadata.getRegularTimeIndex().getCount());
+
+      List<Long> expected = new ArrayList<>();
+      for (long time : times) {
+        expected.add(time);
+      }
+      Filter filter = TimeFilter.gtEq(times[650]);
+      for (boolean byPageIndex : new boolean[] {false, true}) {
+        Assert.assertEquals(expected, readAll(reader, chunkMetadata, null, byPageIndex));
+        // the first pages are skipped, so the positions of later pages come from page counts
+        Assert.assertEquals(
+            expected.subList(650, times.length),
+            readAll(reader, chunkMetadata, filter, byPageIndex));
+      }
+    }
+  }
+
+  private List<Long> readAll(
+      TsFileSequenceReader reader, ChunkMetadata chunkMetadata, Filter filter, boolean byPageIndex)
+      throws IOException {
+    ChunkReader chunkReader =
+        byPageIndex
+            ? new ChunkReader(chunkMetadata, reader, filter)
+            : new ChunkReader(reader.readMemChunk(chunkMetadata), filter);
+    List<Long> values = new ArrayList<>();
+    while (chunkReader.hasNextSatisfiedPage()) {
+      BatchData batchData = chunkReader.nextPageData();
+      while (batchData.hasCurrent()) {
+        Assert.assertEquals(batchData.currentTime(), batchData.getLong());
+        values.add(batchData.currentTime());
+        batchData.next();
+      }
+    }
+    return values;
+  }
+}
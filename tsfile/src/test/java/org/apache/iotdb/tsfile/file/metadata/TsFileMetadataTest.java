@@ -21,6 +21,12 @@ package org.apache.iotdb.tsfile.file.metadata;
 import org.apache.iotdb.tsfile.constant.TestConstant;
 import org.apache.iotdb.tsfile.file.metadata.utils.TestHelper;
 import org.apache.iotdb.tsfile.file.metadata.utils.Utils;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.utils.BlockedBloomFilter;
+import org.apache.iotdb.tsfile.utils.BloomFilter;
+import org.apache.iotdb.tsfile.utils.PublicBAOS;
+import org.apache.iotdb.tsfile.utils.ReadWriteForEncodingUtils;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -33,6 +39,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.HashSet;
+import java.util.Set;
 
 public class TsFileMetadataTest {
 
@@ -57,6 +65,67 @@ public class TsFileMetadataTest {
     Assert.assertTrue(Utils.isFileMetaDataEqual(tsfMetaData, readMetaData));
   }
 
+  @Test
+  public void testBloomFilter() throws IOException {
+    TsFileMetadata tsfMetaData = TestHelper.createSimpleFileMetaData();
+    Set<Path> paths = new HashSet<>();
+    for (int i = 0; i < 5; i++) {
+      for (int j = 0; j < 10; j++) {
+        paths.add(new Path("d" + i, "s" + j));
+      }
+    }
+    PublicBAOS out = new PublicBAOS();
+    int size = tsfMetaData.serializeTo(out);
+    size += tsfMetaData.serializeBloomFilter(out, paths);
+    Assert.assertEquals(out.size(), size);
+
+    TsFileMetadata readMetaData =
+        TsFileMetadata.deserializeFrom(ByteBuffer.wrap(out.getBuf(), 0, out.size()));
+    BloomFilter bloomFilter = readMetaData.getBloomFilter();
+    Assert.assertTrue(bloomFilter instanceof BlockedBloomFilter);
+    for (Path path : paths) {
+      Assert.assertTrue(bloomFilter.contains(path.getDevice(), path.getMeasurement()));
+      Assert.assertTrue(bloomFilter.contains(path.getFullPath()));
+      Assert.assertTrue(bloomFilter.containsDevice(path.getDevice()));
+    }
+
+    // the classic layout in front of the blocked filter keeps every path for older readers
+    ByteBuffer buffer = ByteBuffer.wrap(out.getBuf(), 0, out.size());
+    MetadataIndexNode.deserializeFrom(buffer);
+    ReadWriteIOUtils.readLong(buffer);
+    byte[] bytes = ReadWriteIOUtils.readByteBufferWithSelfDescriptionLength(buffer);
+    BloomFilter placeholder =
+        BloomFilter.buildBloomFilter(
+            bytes,
+            ReadWriteForEncodingUtils.readUnsignedVarInt(buffer),
+            ReadWriteForEncodingUtils.readUnsignedVarInt(buffer));
+    Assert.assertTrue(placeholder.contains("d0.s0"));
+    Assert.assertTrue(placeholder.contains("d100.s100"));
+  }
+
+  @Test
+  public void testReadClassicBloomFilter() throws IOException {
+    TsFileMetadata tsfMetaData = TestHelper.createSimpleFileMetaData();
+    BloomFilter filter = BloomFilter.getEmptyBloomFilter(0.05, 3);
+    filter.add("d0.s0");
+    filter.add("d0.s1");
+    filter.add("d1.s0");
+    // the layout of files written before the blocked bloom filter
+    PublicBAOS out = new PublicBAOS();
+    tsfMetaData.serializeTo(out);
+    byte[] bytes = filter.serialize();
+    ReadWriteForEncodingUtils.writeUnsignedVarInt(bytes.length, out);
+    out.write(bytes);
+    ReadWriteForEncodingUtils.writeUnsignedVarInt(filter.getSize(), out);
+    ReadWriteForEncodingUtils.writeUnsignedVarInt(filter.getHashFunctionSize(), out);
+
+    TsFileMetadata readMetaData =
+        TsFileMetadata.deserializeFrom(ByteBuffer.wrap(out.getBuf(), 0, out.size()));
+    Assert.assertEquals(filter, readMetaData.getBloomFilter());
+    Assert.assertTrue(readMetaData.getBloomFilter().contains("d0", "s1"));
+    Assert.assertTrue(readMetaData.getBloomFilter().contains("d1", "s0"));
+  }
+
   private TsFileMetadata deSerialized() {
     FileInputStream fileInputStream = null;
     TsFileMetadata metaData = null;
@@ -91,4 +91,26 @@ public class TimeSeriesMetadataReadTest {
       Assert.assertEquals("s" + i, timeseriesMetadataList.get(i - 5).getMeasurementId());
     }
   }
+
+  @Test
+  public void testReadTimeseriesMetadataOfDevice() throws IOException {
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(FILE_PATH)) {
+      Set<String> set = new HashSet<>();
+      // s1, s2 and s4, s5 are in different leaf nodes
+      set.add("s5");
+      set.add("s1");
+      set.add("s4");
+      set.add("s2");
+      // this is a fake one, this file doesn't contain this measurement
+      set.add("s8");
+      List<TimeseriesMetadata> timeseriesMetadataList = reader.readTimeseriesMetadata("d1", set);
+      Assert.assertEquals(4, timeseriesMetadataList.size());
+      Assert.assertEquals("s1", timeseriesMetadataList.get(0).getMeasurementId());
+      Assert.assertEquals("s2", timeseriesMetadataList.get(1).getMeasurementId());
+      Assert.assertEquals("s4", timeseriesMetadataList.get(2).getMeasurementId());
+      Assert.assertEquals("s5", timeseriesMetadataList.get(3).getMeasurementId());
+
+      Assert.assertTrue(reader.readTimeseriesMetadata("d8", set).isEmpty());
+    }
+  }
 }
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.read.reader;
+
+import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
+import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
+import org.apache.iotdb.tsfile.constant.TestConstant;
+import org.apache.iotdb.tsfile.exception.write.WriteProcessException;
+import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
+import org.apache.iotdb.tsfile.read.common.BatchData;
+import org.apache.iotdb.tsfile.read.common.Chunk;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.read.reader.chunk.ChunkReader;
+import org.apache.iotdb.tsfile.utils.FilePathUtils;
+import org.apache.iotdb.tsfile.utils.TsFileGeneratorUtils;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.iotdb.tsfile.common.constant.TsFileConstant.PATH_SEPARATOR;
+
+public class MappedTsFileInputTest {
+  private final String testStorageGroup = TsFileGeneratorUtils.testStorageGroup;
+  private final File dir = new File(TestConstant.BASE_OUTPUT_PATH + "mmap");
+  private final TSFileConfig config = TSFileDescriptor.getInstance().getConfig();
+  private final boolean oldEnableMmapRead = config.isEnableMmapRead();
+  private final CompressionType oldCompressor = config.getCompressor();
+  private final int oldMaxPointNumInPage = config.getMaxNumberOfPointsInPage();
+  private final int deviceNum = 3;
+  private final int measurementNum = 4;
+
+  private File file;
+
+  @Before
+  public void setUp() {
+    config.setMaxNumberOfPointsInPage(100);
+    if (!dir.exists()) {
+      Assert.assertTrue(dir.mkdirs());
+    }
+  }
+
+  @After
+  public void tearDown() {
+    config.setEnableMmapRead(oldEnableMmapRead);
+    config.setCompressor(oldCompressor.name());
+    config.setMaxNumberOfPointsInPage(oldMaxPointNumInPage);
+    if (file != null && file.exists()) {
+      file.delete();
+    }
+    if (dir.exists()) {
+      dir.delete();
+    }
+  }
+
+  private void generateFile(CompressionType compressor) throws IOException {
+    config.setCompressor(compressor.name());
+    String fileName =
+        System.currentTimeMillis() + FilePathUtils.FILE_NAME_SEPARATOR + "0-0-0.tsfile";
+    try {
+      file =
+          TsFileGeneratorUtils.generateNonAlignedTsFile(
+              dir.getPath() + File.separator + fileName,
+              deviceNum,
+              measurementNum,
+              500,
+              0,
+              0,
+              0,
+              0);
+    } catch (WriteProcessException e) {
+      throw new IOException(e);
+    }
+  }
+
+  @Test
+  public void testPositionalReadsAcrossRegions() throws IOException {
+    generateFile(CompressionType.SNAPPY);
+    // small regions so that some reads span two regions and fall back to the channel
+    TsFileInput mapped = new MappedTsFileInput(file.toPath(), 4096);
+    TsFileInput local = new LocalTsFileInput(file.toPath());
+    try {
+      long size = local.size();
+      for (long position = 0; position < size; position += 1000) {
+        int length = (int) Math.min(3000, size - position);
+        ByteBuffer expected = ByteBuffer.allocate(length);
+        local.read(expected, position);
+        expected.flip();
+
+        ByteBuffer actual = ByteBuffer.allocate(length);
+        Assert.assertEquals(length, mapped.read(actual, position));
+        actual.flip();
+        Assert.assertEquals(expected, actual);
+
+        ByteBuffer slice = mapped.slice(position, length);
+        if (position / 4096 == (position + length - 1) / 4096) {
+          Assert.assertEquals(expected, slice);
+        } else {
+          Assert.assertNull(slice);
+        }
+      }
+      // reading beyond the end of file behaves as reading the channel
+      Assert.assertEquals(-1, mapped.read(ByteBuffer.allocate(10), size));
+      Assert.assertNull(mapped.slice(size - 5, 10));
+    } finally {
+      mapped.close();
+      local.close();
+    }
+    // the regions are unmapped on close
+    Assert.assertNull(mapped.slice(0, 10));
+  }
+
+  @Test
+  public void testReadCompressedChunks() throws IOException {
+    generateFile(CompressionType.SNAPPY);
+    checkChunks();
+  }
+
+  @Test
+  public void testReadUncompressedChunks() throws IOException {
+    generateFile(CompressionType.UNCOMPRESSED);
+    checkChunks();
+  }
+
+  private void checkChunks() throws IOException {
+    config.setEnableMmapRead(false);
+    try (TsFileSequenceReader expectedReader = new TsFileSequenceReader(file.getPath())) {
+      List<Chunk> expectedChunks = new ArrayList<>();
+      List<Chunk> heapChunks = new ArrayList<>();
+      config.setEnableMmapRead(true);
+      try (TsFileSequenceReader mappedReader = new TsFileSequenceReader(file.getPath())) {
+        for (int i = 0; i < deviceNum; i++) {
+          for (int j = 0; j < measurementNum; j++) {
+            Path path = new Path(testStorageGroup + PATH_SEPARATOR + "d" + i, "s" + j);
+            List<ChunkMetadata> expectedChunkMetadataList =
+                expectedReader.getChunkMetadataList(path);
+            List<ChunkMetadata> chunkMetadataList = mappedReader.getChunkMetadataList(path);
+            Assert.assertEquals(expectedChunkMetadataList.size(), chunkMetadataList.size());
+            for (int k = 0; k < chunkMetadataList.size(); k++) {
+              Chunk chunk = mappedReader.readMemChunk(chunkMetadataList.get(k));
+              Assert.assertTrue(chunk.getData().isDirect());
+              heapChunks.add(chunk.toHeapChunk());
+              checkChunk(expectedReader.readMemChunk(expectedChunkMetadataList.get(k)), chunk);
+              expectedChunks.add(expectedReader.readMemChunk(expectedChunkMetadataList.get(k)));
+            }
+          }
+        }
+      }
+      // heap copies stay valid after the mapped regions are unmapped
+      for (int i = 0; i < heapChunks.size(); i++) {
+        Assert.assertTrue(heapChunks.get(i).getData().hasArray());
+        checkChunk(expectedChunks.get(i), heapChunks.get(i));
+      }
+    }
+  }
+
+  private void checkChunk(Chunk expectedChunk, Chunk chunk) throws IOException {
+    ChunkReader expectedChunkReader = new ChunkReader(expectedChunk, null);
+    ChunkReader chunkReader = new ChunkReader(chunk, null);
+    int pointNum = 0;
+    while (expectedChunkReader.hasNextSatisfiedPage()) {
+      Assert.assertTrue(chunkReader.hasNextSatisfiedPage());
+      BatchData expectedBatchData = expectedChunkReader.nextPageData();
+      BatchData batchData = chunkReader.nextPageData();
+      while (expectedBatchData.hasCurrent()) {
+        Assert.assertTrue(batchData.hasCurrent());
+        Assert.assertEquals(expectedBatchData.currentTime(), batchData.currentTime());
+        Assert.assertEquals(expectedBatchData.currentValue(), batchData.currentValue());
+        expectedBatchData.next();
+        batchData.next();
+        pointNum++;
+      }
+      Assert.assertFalse(batchData.hasCurrent());
+    }
+    Assert.assertFalse(chunkReader.hasNextSatisfiedPage());
+    Assert.assertTrue(pointNum > 0);
+  }
+}
@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.read.reader;
+
+import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
+import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
+import org.apache.iotdb.tsfile.constant.TestConstant;
+import org.apache.iotdb.tsfile.exception.write.WriteProcessException;
+import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.apache.iotdb.tsfile.file.metadata.PageIndex;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.TsFileCheckStatus;
+import org.apache.iotdb.tsfile.read.TsFileReader;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
+import org.apache.iotdb.tsfile.read.common.BatchData;
+import org.apache.iotdb.tsfile.read.common.Chunk;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.read.common.RowRecord;
+import org.apache.iotdb.tsfile.read.expression.QueryExpression;
+import org.apache.iotdb.tsfile.read.expression.impl.SingleSeriesExpression;
+import org.apache.iotdb.tsfile.read.filter.ValueFilter;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
+import org.apache.iotdb.tsfile.read.reader.chunk.ChunkReader;
+import org.apache.iotdb.tsfile.utils.TsFileGeneratorUtils;
+import org.apache.iotdb.tsfile.write.TsFileWriter;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.apache.iotdb.tsfile.write.writer.RestorableTsFileIOWriter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.iotdb.tsfile.common.constant.TsFileConstant.PATH_SEPARATOR;
+
+public class PageIndexTest {
+  private final String testStorageGroup = TsFileGeneratorUtils.testStorageGroup;
+  private final File dir = new File(TestConstant.BASE_OUTPUT_PATH + "pageIndex");
+  private final TSFileConfig config = TSFileDescriptor.getInstance().getConfig();
+  private final boolean oldEnablePageIndex = config.isEnablePageIndex();
+  private final CompressionType oldCompressor = config.getCompressor();
+  private final int oldMaxPointNumInPage = config.getMaxNumberOfPointsInPage();
+  private final int deviceNum = 2;
+  private final int measurementNum = 3;
+  private final int pointNum = 500;
+  private final int pointNumInPage = 100;
+
+  private File indexedFile;
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    if (!dir.exists()) {
+      Assert.assertTrue(dir.mkdirs());
+    }
+    config.setCompressor(CompressionType.SNAPPY.name());
+    config.setEnablePageIndex(true);
+    indexedFile = generateFile("1-0-0-0.tsfile");
+    config.setEnablePageIndex(false);
+    file = generateFile("2-0-0-0.tsfile");
+  }
+
+  @After
+  public void tearDown() {
+    config.setEnablePageIndex(oldEnablePageIndex);
+    config.setCompressor(oldCompressor.name());
+    config.setMaxNumberOfPointsInPage(oldMaxPointNumInPage);
+    for (File f : new File[] {indexedFile, file}) {
+      if (f != null && f.exists()) {
+        f.delete();
+      }
+    }
+    if (dir.exists()) {
+      dir.delete();
+    }
+  }
+
+  private File generateFile(String fileName) throws IOException {
+    try {
+      return TsFileGeneratorUtils.generateNonAlignedTsFile(
+          dir.getPath() + File.separator + fileName,
+          deviceNum,
+          measurementNum,
+          pointNum,
+          0,
+          0,
+          0,
+          pointNumInPage);
+    } catch (WriteProcessException e) {
+      throw new IOException(e);
+    }
+  }
+
+  @Test
+  public void testPageIndexWritten() throws IOException {
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(indexedFile.getPath());
+        TsFileSequenceReader plainReader = new TsFileSequenceReader(file.getPath())) {
+      for (Path path : getPaths()) {
+        for (ChunkMetadata chunkMetadata : plainReader.getChunkMetadataList(path)) {
+          Assert.assertNull(chunkMetadata.getPageIndex());
+        }
+        List<ChunkMetadata> chunkMetadataList = reader.getChunkMetadataList(path);
+        Assert.assertFalse(chunkMetadataList.isEmpty());
+        for (ChunkMetadata chunkMetadata : chunkMetadataList) {
+          PageIndex pageIndex = chunkMetadata.getPageIndex();
+          Assert.assertNotNull(pageIndex);
+          Chunk chunk = reader.readMemChunk(chunkMetadata);
+          PageIndex expected = PageIndex.build(chunk.getData(), TSDataType.INT64);
+          Assert.assertEquals(expected.getPageNum(), pageIndex.getPageNum());
+          Assert.assertEquals(pointNum / pointNumInPage, pageIndex.getPageNum());
+          for (int i = 0; i < pageIndex.getPageNum(); i++) {
+            Assert.assertEquals(expected.getPageBodyOffset(i), pageIndex.getPageBodyOffset(i));
+            Assert.assertEquals(
+                expected.getPageHeader(i).getCompressedSize(),
+                pageIndex.getPageHeader(i).getCompressedSize());
+            Assert.assertEquals(
+                expected.getPageHeader(i).getStatistics(),
+                pageIndex.getPageHeader(i).getStatistics());
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testReadPagesByIndex() throws IOException {
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(indexedFile.getPath())) {
+      for (Path path : getPaths()) {
+        for (ChunkMetadata chunkMetadata : reader.getChunkMetadataList(path)) {
+          // all pages
+          List<Long> expected = readAll(new ChunkReader(reader.readMemChunk(chunkMetadata), null));
+          Assert.assertEquals(pointNum, expected.size());
+          Assert.assertEquals(expected, readAll(new ChunkReader(chunkMetadata, reader, null)));
+
+          // only the last page satisfies the filter
+          Filter filter = ValueFilter.gtEq(pointNum - 50L);
+          ChunkReader chunkReader = new ChunkReader(chunkMetadata, reader, filter);
+          Assert.assertEquals(1, chunkReader.loadPageReaderList().size());
+          Assert.assertEquals(50, readAll(chunkReader).size());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testQueryWithValueFilter() throws IOException {
+    for (Path path : getPaths()) {
+      for (Filter filter :
+          new Filter[] {
+            null, ValueFilter.gt(250L), ValueFilter.lt(30L), ValueFilter.gt((long) pointNum)
+          }) {
+        Assert.assertEquals(query(file, path, filter), query(indexedFile, path, filter));
+      }
+    }
+  }
+
+  @Test
+  public void testVersionNumber() throws IOException {
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(indexedFile.getPath())) {
+      // readers of version 3 do not know the chunk metadata extensions, so they must reject it
+      Assert.assertEquals(TSFileConfig.VERSION_NUMBER, reader.readVersionNumber());
+      Assert.assertNotEquals(TSFileConfig.VERSION_NUMBER_V3, reader.readVersionNumber());
+    }
+  }
+
+  @Test
+  public void testVersion3File() throws IOException, WriteProcessException {
+    // a file of version 3 is a file of version 4 without chunk metadata extensions
+    File oldFile = generateFile("3-0-0-0.tsfile");
+    try {
+      try (RandomAccessFile raf = new RandomAccessFile(oldFile, "rw")) {
+        raf.seek(TSFileConfig.MAGIC_STRING.getBytes().length);
+        raf.write(TSFileConfig.VERSION_NUMBER_V3);
+      }
+      try (TsFileSequenceReader reader = new TsFileSequenceReader(oldFile.getPath())) {
+        Assert.assertTrue(reader.isVersionNumberSupported());
+        Assert.assertEquals(TsFileCheckStatus.COMPLETE_FILE, reader.selfCheck(null, null, true));
+      }
+      for (Path path : getPaths()) {
+        Assert.assertEquals(query(file, path, null), query(oldFile, path, null));
+      }
+
+      // the data appended to the file keeps to version 3
+      config.setEnablePageIndex(true);
+      try (TsFileWriter writer =
+          new TsFileWriter(
+              RestorableTsFileIOWriter.getWriterForAppendingDataOnCompletedTsFile(oldFile))) {
+        List<MeasurementSchema> measurementSchemas = new ArrayList<>();
+        for (int j = 0; j < measurementNum; j++) {
+          measurementSchemas.add(new MeasurementSchema("s" + j, TSDataType.INT64));
+        }
+        for (int i = 0; i < deviceNum; i++) {
+          TsFileGeneratorUtils.writeWithTsRecord(
+              writer,
+              testStorageGroup + PATH_SEPARATOR + "d" + i,
+              measurementSchemas,
+              pointNum,
+              pointNum,
+              pointNum,
+              false);
+        }
+      }
+      try (TsFileSequenceReader reader = new TsFileSequenceReader(oldFile.getPath())) {
+        Assert.assertEquals(TSFileConfig.VERSION_NUMBER_V3, reader.readVersionNumber());
+        for (Path path : getPaths()) {
+          List<ChunkMetadata> chunkMetadataList = reader.getChunkMetadataList(path);
+          Assert.assertEquals(2, chunkMetadataList.size());
+          int count = 0;
+          for (ChunkMetadata chunkMetadata : chunkMetadataList) {
+            Assert.assertNull(chunkMetadata.getPageIndex());
+            count += readAll(new ChunkReader(chunkMetadata, reader, null)).size();
+          }
+          Assert.assertEquals(2 * pointNum, count);
+        }
+      }
+    } finally {
+      oldFile.delete();
+    }
+  }
+
+  private List<Path> getPaths() {
+    List<Path> paths = new ArrayList<>();
+    for (int i = 0; i < deviceNum; i++) {
+      for (int j = 0; j < measurementNum; j++) {
+        paths.add(new Path(testStorageGroup + PATH_SEPARATOR + "d" + i, "s" + j));
+      }
+    }
+    return paths;
+  }
+
+  private List<Long> readAll(ChunkReader chunkReader) throws IOException {
+    List<Long> values = new ArrayList<>();
+    while (chunkReader.hasNextSatisfiedPage()) {
+      BatchData batchData = chunkReader.nextPageData();
+      while (batchData.hasCurrent()) {
+        Assert.assertEquals(batchData.currentTime(), batchData.getLong());
+        values.add(batchData.getLong());
+        batchData.next();
+      }
+    }
+    return values;
+  }
+
+  private List<String> query(File tsFile, Path path, Filter filter) throws IOException {
+    List<String> rows = new ArrayList<>();
+    try (TsFileReader reader = new TsFileReader(new TsFileSequenceReader(tsFile.getPath()))) {
+      QueryExpression queryExpression = QueryExpression.create().addSelectedPath(path);
+      if (filter != null) {
+        queryExpression.setExpression(new SingleSeriesExpression(path, filter));
+      }
+      QueryDataSet dataSet = reader.query(queryExpression);
+      while (dataSet.hasNext()) {
+        RowRecord record = dataSet.next();
+        rows.add(record.toString());
+      }
+    }
+    return rows;
+  }
+}
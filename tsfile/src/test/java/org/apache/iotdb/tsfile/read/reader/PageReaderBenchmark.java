@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.read.reader;
+
+import org.apache.iotdb.tsfile.encoding.decoder.Decoder;
+import org.apache.iotdb.tsfile.encoding.decoder.DeltaBinaryDecoder;
+import org.apache.iotdb.tsfile.encoding.encoder.DeltaBinaryEncoder;
+import org.apache.iotdb.tsfile.encoding.encoder.TSEncodingBuilder;
+import org.apache.iotdb.tsfile.file.header.PageHeader;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.common.block.TsBlock;
+import org.apache.iotdb.tsfile.read.common.block.TsBlockBuilder;
+import org.apache.iotdb.tsfile.read.common.block.column.ColumnBuilder;
+import org.apache.iotdb.tsfile.read.common.block.column.TimeColumnBuilder;
+import org.apache.iotdb.tsfile.read.filter.ValueFilter;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.read.reader.page.PageReader;
+import org.apache.iotdb.tsfile.utils.ReadWriteForEncodingUtils;
+import org.apache.iotdb.tsfile.write.page.PageWriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+/**
+ * Compare reading pages into TsBlocks point by point, which makes a virtual decoder call and a
+ * boxed filter call for each point, with the batch decoding of {@link
+ * PageReader#getAllSatisfiedData(boolean)}.
+ */
+public class PageReaderBenchmark {
+
+  private static final Logger logger = LoggerFactory.getLogger(PageReaderBenchmark.class);
+
+  private static final int POINT_NUM_IN_PAGE = 100000;
+  private static final int WARMUP_ROUNDS = 50;
+  private static final int ROUNDS = 200;
+
+  public static void main(String[] args) throws IOException {
+    bench(TSDataType.INT64, TSEncoding.TS_2DIFF, null);
+    bench(TSDataType.INT64, TSEncoding.TS_2DIFF, ValueFilter.gt(POINT_NUM_IN_PAGE / 2L));
+    bench(TSDataType.INT32, TSEncoding.RLE, null);
+    bench(TSDataType.INT32, TSEncoding.RLE, ValueFilter.gt(POINT_NUM_IN_PAGE / 2));
+    bench(TSDataType.DOUBLE, TSEncoding.GORILLA, null);
+    bench(TSDataType.DOUBLE, TSEncoding.GORILLA, ValueFilter.gt(POINT_NUM_IN_PAGE / 2.0));
+    bench(TSDataType.FLOAT, TSEncoding.PLAIN, null);
+    bench(TSDataType.FLOAT, TSEncoding.PLAIN, ValueFilter.gt(POINT_NUM_IN_PAGE / 2.0f));
+  }
+
+  private static void bench(TSDataType dataType, TSEncoding encoding, Filter filter)
+      throws IOException {
+    PageWriter pageWriter = new PageWriter();
+    pageWriter.setTimeEncoder(new DeltaBinaryEncoder.LongDeltaEncoder());
+    TSEncodingBuilder encodingBuilder = TSEncodingBuilder.getEncodingBuilder(encoding);
+    encodingBuilder.initFromProps(null);
+    pageWriter.setValueEncoder(encodingBuilder.getEncoder(dataType));
+    pageWriter.initStatistics(dataType);
+    for (int i = 0; i < POINT_NUM_IN_PAGE; i++) {
+      switch (dataType) {
+        case INT32:
+          pageWriter.write(i, i);
+          break;
+        case INT64:
+          pageWriter.write(i, (long) i);
+          break;
+        case FLOAT:
+          pageWriter.write(i, (float) i);
+          break;
+        default:
+          pageWriter.write(i, (double) i);
+      }
+    }
+    byte[] pageData = pageWriter.getUncompressedBytes().array();
+    PageHeader pageHeader = new PageHeader(pageData.length, 0, pageWriter.getStatistics());
+
+    long pointByPointTime = 0;
+    long batchTime = 0;
+    long points = 0;
+    for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+      long startTime = System.nanoTime();
+      TsBlock expected =
+          readPointByPoint(
+              ByteBuffer.wrap(pageData),
+              dataType,
+              Decoder.getDecoderByType(encoding, dataType),
+              filter);
+      long pointByPointEndTime = System.nanoTime();
+      TsBlock actual =
+          new PageReader(
+                  pageHeader,
+                  ByteBuffer.wrap(pageData),
+                  dataType,
+                  Decoder.getDecoderByType(encoding, dataType),
+                  new DeltaBinaryDecoder.LongDeltaDecoder(),
+                  filter)
+              .getAllSatisfiedData(true);
+      long batchEndTime = System.nanoTime();
+      if (expected.getPositionCount() != actual.getPositionCount()) {
+        throw new IllegalStateException("Different results of " + dataType + " " + encoding);
+      }
+      if (round >= WARMUP_ROUNDS) {
+        pointByPointTime += pointByPointEndTime - startTime;
+        batchTime += batchEndTime - pointByPointEndTime;
+        points += POINT_NUM_IN_PAGE;
+      }
+    }
+    logger.info(
+        "{} {}, filter: {}, point by point: {} ns/point, batch: {} ns/point",
+        dataType,
+        encoding,
+        filter,
+        String.format("%.2f", (double) pointByPointTime / points),
+        String.format("%.2f", (double) batchTime / points));
+  }
+
+  /** the page reading loop before batch decoding */
+  private static TsBlock readPointByPoint(
+      ByteBuffer pageData, TSDataType dataType, Decoder valueDecoder, Filter filter)
+      throws IOException {
+    int timeBufferLength = ReadWriteForEncodingUtils.readUnsignedVarInt(pageData);
+    ByteBuffer timeBuffer = pageData.slice();
+    timeBuffer.limit(timeBufferLength);
+    ByteBuffer valueBuffer = pageData.slice();
+    valueBuffer.position(timeBufferLength);
+    Decoder timeDecoder = new DeltaBinaryDecoder.LongDeltaDecoder();
+
+    TsBlockBuilder builder = new TsBlockBuilder(Collections.singletonList(dataType));
+    TimeColumnBuilder timeBuilder = builder.getTimeColumnBuilder();
+    ColumnBuilder valueBuilder = builder.getColumnBuilder(0);
+    while (timeDecoder.hasNext(timeBuffer)) {
+      long timestamp = timeDecoder.readLong(timeBuffer);
+      switch (dataType) {
+        case INT32:
+          int anInt = valueDecoder.readInt(valueBuffer);
+          if (filter == null || filter.satisfy(timestamp, (Object) anInt)) {
+            timeBuilder.writeLong(timestamp);
+            valueBuilder.writeInt(anInt);
+            builder.declarePosition();
+          }
+          break;
+        case INT64:
+          long aLong = valueDecoder.readLong(valueBuffer);
+          if (filter == null || filter.satisfy(timestamp, (Object) aLong)) {
+            timeBuilder.writeLong(timestamp);
+            valueBuilder.writeLong(aLong);
+            builder.declarePosition();
+          }
+          break;
+        case FLOAT:
+          float aFloat = valueDecoder.readFloat(valueBuffer);
+          if (filter == null || filter.satisfy(timestamp, (Object) aFloat)) {
+            timeBuilder.writeLong(timestamp);
+            valueBuilder.writeFloat(aFloat);
+            builder.declarePosition();
+          }
+          break;
+        default:
+          double aDouble = valueDecoder.readDouble(valueBuffer);
+          if (filter == null || filter.satisfy(timestamp, (Object) aDouble)) {
+            timeBuilder.writeLong(timestamp);
+            valueBuilder.writeDouble(aDouble);
+            builder.declarePosition();
+          }
+      }
+    }
+    return builder.build();
+  }
+}
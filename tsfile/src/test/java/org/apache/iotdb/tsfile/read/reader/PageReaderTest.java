@@ -18,6 +18,8 @@
  */
 package org.apache.iotdb.tsfile.read.reader;
 
+import org.apache.iotdb.tsfile.compress.ICompressor;
+import org.apache.iotdb.tsfile.compress.IUnCompressor;
 import org.apache.iotdb.tsfile.encoding.decoder.Decoder;
 import org.apache.iotdb.tsfile.encoding.decoder.DeltaBinaryDecoder;
 import org.apache.iotdb.tsfile.encoding.decoder.DoublePrecisionDecoderV1;
@@ -32,9 +34,19 @@ import org.apache.iotdb.tsfile.encoding.encoder.IntRleEncoder;
 import org.apache.iotdb.tsfile.encoding.encoder.LongRleEncoder;
 import org.apache.iotdb.tsfile.encoding.encoder.PlainEncoder;
 import org.apache.iotdb.tsfile.encoding.encoder.SinglePrecisionEncoderV1;
+import org.apache.iotdb.tsfile.encoding.encoder.TSEncodingBuilder;
+import org.apache.iotdb.tsfile.file.header.PageHeader;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.read.common.BatchData;
 import org.apache.iotdb.tsfile.read.common.TimeRange;
+import org.apache.iotdb.tsfile.read.common.block.TsBlock;
+import org.apache.iotdb.tsfile.read.filter.TimeFilter;
+import org.apache.iotdb.tsfile.read.filter.ValueFilter;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.read.filter.factory.FilterFactory;
+import org.apache.iotdb.tsfile.read.reader.page.PageBufferPool;
 import org.apache.iotdb.tsfile.read.reader.page.PageReader;
 import org.apache.iotdb.tsfile.utils.Binary;
 import org.apache.iotdb.tsfile.write.page.PageWriter;
@@ -312,4 +324,158 @@ public class PageReaderTest {
         };
     test.testDelete(TSDataType.INT64);
   }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testAllSatisfiedDataInTsBlock() throws IOException {
+    for (TSEncoding encoding :
+        new TSEncoding[] {
+          TSEncoding.PLAIN, TSEncoding.RLE, TSEncoding.TS_2DIFF, TSEncoding.GORILLA
+        }) {
+      for (TSDataType dataType :
+          new TSDataType[] {
+            TSDataType.INT32, TSDataType.INT64, TSDataType.FLOAT, TSDataType.DOUBLE
+          }) {
+        checkAllSatisfiedData(dataType, encoding, null);
+        checkAllSatisfiedData(dataType, encoding, TimeFilter.gtEq(300L));
+        checkAllSatisfiedData(
+            dataType,
+            encoding,
+            FilterFactory.or(
+                ValueFilter.lt(generateValue(dataType, 100)),
+                ValueFilter.gt(generateValue(dataType, 2900))));
+      }
+    }
+    checkAllSatisfiedData(TSDataType.BOOLEAN, TSEncoding.PLAIN, ValueFilter.eq(true));
+    checkAllSatisfiedData(TSDataType.BOOLEAN, TSEncoding.RLE, ValueFilter.eq(true));
+    checkAllSatisfiedData(TSDataType.TEXT, TSEncoding.PLAIN, ValueFilter.notEq(new Binary("5")));
+  }
+
+  /** check the TsBlock decoded from a page in batch against the generated points */
+  private void checkAllSatisfiedData(TSDataType dataType, TSEncoding encoding, Filter filter)
+      throws IOException {
+    int count = 3000;
+    PageWriter pageWriter = new PageWriter();
+    pageWriter.setTimeEncoder(new DeltaBinaryEncoder.LongDeltaEncoder());
+    TSEncodingBuilder encodingBuilder = TSEncodingBuilder.getEncodingBuilder(encoding);
+    encodingBuilder.initFromProps(null);
+    pageWriter.setValueEncoder(encodingBuilder.getEncoder(dataType));
+    pageWriter.initStatistics(dataType);
+    for (int i = 0; i < count; i++) {
+      Object value = generateValue(dataType, i);
+      switch (dataType) {
+        case BOOLEAN:
+          pageWriter.write(i, (boolean) value);
+          break;
+        case INT32:
+          pageWriter.write(i, (int) value);
+          break;
+        case INT64:
+          pageWriter.write(i, (long) value);
+          break;
+        case FLOAT:
+          pageWriter.write(i, (float) value);
+          break;
+        case DOUBLE:
+          pageWriter.write(i, (double) value);
+          break;
+        default:
+          pageWriter.write(i, (Binary) value);
+      }
+    }
+    byte[] pageData = pageWriter.getUncompressedBytes().array();
+    PageHeader pageHeader = new PageHeader(pageData.length, 0, pageWriter.getStatistics());
+    List<TimeRange> deleteIntervals = new ArrayList<>();
+    deleteIntervals.add(new TimeRange(5, 10));
+    deleteIntervals.add(new TimeRange(1000, 1999));
+
+    PageReader reader =
+        new PageReader(
+            pageHeader,
+            ByteBuffer.wrap(pageData),
+            dataType,
+            Decoder.getDecoderByType(encoding, dataType),
+            new DeltaBinaryDecoder.LongDeltaDecoder(),
+            filter);
+    reader.setDeleteIntervalList(deleteIntervals);
+    TsBlock tsBlock = reader.getAllSatisfiedData(true);
+
+    // the expected points are checked with the boxed filter point by point
+    String message = dataType + " " + encoding + " " + filter;
+    int index = 0;
+    for (int i = 0; i < count; i++) {
+      Object value = generateValue(dataType, i);
+      if ((i >= 5 && i <= 10)
+          || (i >= 1000 && i <= 1999)
+          || (filter != null && !filter.satisfy(i, value))) {
+        continue;
+      }
+      Assert.assertEquals(message, i, tsBlock.getTimeByIndex(index));
+      Assert.assertEquals(message, value, tsBlock.getColumn(0).getObject(index));
+      index++;
+    }
+    Assert.assertTrue(message, index > 0);
+    Assert.assertEquals(message, index, tsBlock.getPositionCount());
+  }
+
+  @Test
+  public void testCompressedPageUncompressedIntoPooledBuffer() throws IOException {
+    PageWriter pageWriter = new PageWriter();
+    pageWriter.setTimeEncoder(new DeltaBinaryEncoder.LongDeltaEncoder());
+    pageWriter.setValueEncoder(new PlainEncoder(TSDataType.INT64, 0));
+    pageWriter.initStatistics(TSDataType.INT64);
+    for (int i = 0; i < 3000; i++) {
+      pageWriter.write(i, (long) i * 7);
+    }
+    byte[] pageData = pageWriter.getUncompressedBytes().array();
+    byte[] compressedPageData =
+        ICompressor.getCompressor(CompressionType.SNAPPY).compress(pageData);
+    PageHeader pageHeader =
+        new PageHeader(pageData.length, compressedPageData.length, pageWriter.getStatistics());
+    IUnCompressor unCompressor = IUnCompressor.getUnCompressor(CompressionType.SNAPPY);
+
+    long allocatedBytes = 0;
+    for (int round = 0; round < 3; round++) {
+      PageReader reader =
+          new PageReader(
+              pageHeader,
+              ByteBuffer.wrap(compressedPageData),
+              unCompressor,
+              TSDataType.INT64,
+              new PlainDecoder(),
+              new DeltaBinaryDecoder.LongDeltaDecoder(),
+              TimeFilter.gtEq(1000L));
+      TsBlock tsBlock = reader.getAllSatisfiedData(true);
+      Assert.assertEquals(2000, tsBlock.getPositionCount());
+      for (int i = 0; i < tsBlock.getPositionCount(); i++) {
+        Assert.assertEquals(i + 1000, tsBlock.getTimeByIndex(i));
+        Assert.assertEquals((i + 1000L) * 7, tsBlock.getColumn(0).getLong(i));
+      }
+      // the page has been read, reading it again returns nothing
+      Assert.assertEquals(0, reader.getAllSatisfiedData(true).getPositionCount());
+      if (round > 0) {
+        // the array borrowed by the previous page is reused
+        Assert.assertEquals(allocatedBytes, PageBufferPool.getInstance().getAllocatedBytes());
+      }
+      allocatedBytes = PageBufferPool.getInstance().getAllocatedBytes();
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  private Comparable generateValue(TSDataType dataType, int i) {
+    switch (dataType) {
+      case BOOLEAN:
+        return i % 3 == 0;
+      case INT32:
+        return i / 10;
+      case INT64:
+        return (long) i * 7;
+      case FLOAT:
+        return i / 10.0f;
+      case DOUBLE:
+        return i / 100.0;
+      default:
+        return new Binary(String.valueOf(i % 10));
+    }
+  }
 }
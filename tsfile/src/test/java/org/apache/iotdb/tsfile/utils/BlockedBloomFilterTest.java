@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.utils;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BlockedBloomFilterTest {
+
+  @Test
+  public void testIn() {
+    BlockedBloomFilter filter = BlockedBloomFilter.getEmptyBlockedBloomFilter(0.05, 3, 1);
+    filter.add("root.sg.device1", "s1");
+    filter.add("root.sg.device1", "s2");
+    filter.add("root.sg.device1.s3");
+
+    assertTrue(filter.contains("root.sg.device1", "s1"));
+    assertTrue(filter.contains("root.sg.device1.s2"));
+    assertTrue(filter.contains("root.sg.device1", "s3"));
+    long deviceHash = BlockedBloomFilter.hashDevice("root.sg.device1");
+    assertTrue(filter.containsSeries(deviceHash, "s1"));
+    assertTrue(filter.containsDevice("root.sg.device1"));
+    assertFalse(filter.contains(null));
+  }
+
+  @Test
+  public void testFalsePositiveRate() {
+    int deviceNum = 100;
+    int measurementNum = 100;
+    BlockedBloomFilter filter =
+        BlockedBloomFilter.getEmptyBlockedBloomFilter(0.05, deviceNum * measurementNum, deviceNum);
+    for (int i = 0; i < deviceNum; i++) {
+      for (int j = 0; j < measurementNum; j++) {
+        filter.add("root.sg.d" + i, "s" + j);
+      }
+    }
+
+    int falsePositive = 0;
+    int falsePositiveDevice = 0;
+    for (int i = 0; i < deviceNum; i++) {
+      for (int j = 0; j < measurementNum; j++) {
+        assertTrue(filter.contains("root.sg.d" + i, "s" + j));
+        if (filter.contains("root.sg.d" + i, "t" + j)) {
+          falsePositive++;
+        }
+      }
+      if (filter.containsDevice("root.sg.e" + i)) {
+        falsePositiveDevice++;
+      }
+    }
+    // the expected rate is 0.05, leave some room for the blocking and the randomness
+    assertTrue(falsePositive < deviceNum * measurementNum / 10);
+    assertTrue(falsePositiveDevice < deviceNum / 5);
+  }
+
+  @Test
+  public void testSerialize() {
+    BlockedBloomFilter filter = BlockedBloomFilter.getEmptyBlockedBloomFilter(0.05, 1000, 10);
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < 100; j++) {
+        filter.add("root.sg.d" + i, "s" + j);
+      }
+    }
+
+    byte[] bytes = filter.serialize();
+    BlockedBloomFilter filter1 = BlockedBloomFilter.deserializeFrom(ByteBuffer.wrap(bytes));
+    assertEquals(filter, filter1);
+    assertEquals(filter.getSize(), filter1.getSize());
+    assertEquals(filter.getDeviceFilterSize(), filter1.getDeviceFilterSize());
+    assertEquals(filter.getHashFunctionSize(), filter1.getHashFunctionSize());
+    assertEquals(filter.getBitCount(), filter1.getBitCount());
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < 100; j++) {
+        assertTrue(filter1.contains("root.sg.d" + i, "s" + j));
+      }
+    }
+  }
+}
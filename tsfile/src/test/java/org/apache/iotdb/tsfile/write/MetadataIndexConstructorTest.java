@@ -188,6 +188,25 @@ public class MetadataIndexConstructorTest {
     test(devices, vectorMeasurement, singleMeasurement);
   }
 
+  /** Example 7: 50 entities with 100 measurements each, serialized in parallel */
+  @Test
+  public void parallelIndexTest() {
+    int deviceNum = 50;
+    int measurementNum = 100;
+    String[] devices = new String[deviceNum];
+    int[][] vectorMeasurement = new int[deviceNum][];
+    String[][] singleMeasurement = new String[deviceNum][];
+    for (int i = 0; i < deviceNum; i++) {
+      devices[i] = "d" + generateIndexString(i, deviceNum);
+      vectorMeasurement[i] = new int[0];
+      singleMeasurement[i] = new String[measurementNum];
+      for (int j = 0; j < measurementNum; j++) {
+        singleMeasurement[i][j] = measurementPrefix + generateIndexString(j, measurementNum);
+      }
+    }
+    test(devices, vectorMeasurement, singleMeasurement);
+  }
+
   /**
    * start test
    *
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.write;
+
+import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
+import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
+import org.apache.iotdb.tsfile.constant.TestConstant;
+import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
+import org.apache.iotdb.tsfile.read.common.BatchData;
+import org.apache.iotdb.tsfile.read.common.Chunk;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.read.reader.chunk.ChunkReader;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.write.chunk.ChunkWriterImpl;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.apache.iotdb.tsfile.write.writer.TsFileIOWriter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+public class ZstdDictionaryTest {
+  private static final String DEVICE = "root.sg.d1";
+  private static final String[] SENSORS = {"s1", "s2"};
+  private static final int POINT_NUM = 2000;
+
+  private final TSFileConfig config = TSFileDescriptor.getInstance().getConfig();
+  private final int oldZstdDictionarySize = config.getZstdDictionarySize();
+  private final boolean oldEnablePageIndex = config.isEnablePageIndex();
+  private final int oldMaxPointNumInPage = config.getMaxNumberOfPointsInPage();
+  private final File file = new File(TestConstant.BASE_OUTPUT_PATH + "zstdDictionary.tsfile");
+  private final File plainFile = new File(TestConstant.BASE_OUTPUT_PATH + "zstdPlain.tsfile");
+  private final File nextFile = new File(TestConstant.BASE_OUTPUT_PATH + "zstdNext.tsfile");
+
+  @Before
+  public void setUp() {
+    config.setZstdDictionarySize(1024);
+    config.setEnablePageIndex(true);
+    // many small pages
+    config.setMaxNumberOfPointsInPage(50);
+  }
+
+  @After
+  public void tearDown() {
+    config.setZstdDictionarySize(oldZstdDictionarySize);
+    config.setEnablePageIndex(oldEnablePageIndex);
+    config.setMaxNumberOfPointsInPage(oldMaxPointNumInPage);
+    for (File f : new File[] {file, plainFile, nextFile}) {
+      if (f.exists()) {
+        f.delete();
+      }
+    }
+  }
+
+  private static Binary value(String sensor, int i) {
+    return new Binary(
+        DEVICE + "." + sensor + " state=" + (i % 5 == 0 ? "idle" : "running") + i % 7);
+  }
+
+  private ChunkWriterImpl[] createChunkWriters(boolean isMerging) {
+    ChunkWriterImpl[] chunkWriters = new ChunkWriterImpl[SENSORS.length];
+    for (int i = 0; i < SENSORS.length; i++) {
+      chunkWriters[i] =
+          new ChunkWriterImpl(
+              new MeasurementSchema(
+                  SENSORS[i], TSDataType.TEXT, TSEncoding.PLAIN, CompressionType.ZSTD),
+              isMerging);
+    }
+    return chunkWriters;
+  }
+
+  private void write(ChunkWriterImpl[] chunkWriters, File file, long startTime) throws IOException {
+    TsFileIOWriter writer = new TsFileIOWriter(file);
+    writer.startChunkGroup(DEVICE);
+    for (int s = 0; s < SENSORS.length; s++) {
+      for (int i = 0; i < POINT_NUM; i++) {
+        chunkWriters[s].write(startTime + i, value(SENSORS[s], i));
+      }
+      chunkWriters[s].writeToFileWriter(writer);
+    }
+    writer.endChunkGroup();
+    writer.endFile();
+  }
+
+  private void check(File file, long startTime) throws IOException {
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(file.getPath())) {
+      Assert.assertEquals(SENSORS.length, reader.getZstdDictionaries().size());
+      for (String sensor : SENSORS) {
+        List<ChunkMetadata> chunkMetadataList =
+            reader.getChunkMetadataList(new Path(DEVICE, sensor));
+        Assert.assertEquals(1, chunkMetadataList.size());
+        ChunkMetadata chunkMetadata = chunkMetadataList.get(0);
+        Chunk chunk = reader.readMemChunk(chunkMetadata);
+        Assert.assertNotNull(chunk.getZstdDictionaries());
+        check(new ChunkReader(chunk, null), sensor, startTime);
+        // the page index reads the pages from the file
+        Assert.assertNotNull(chunkMetadata.getPageIndex());
+        check(new ChunkReader(chunkMetadata, reader, null), sensor, startTime);
+      }
+    }
+  }
+
+  private void check(ChunkReader chunkReader, String sensor, long startTime) throws IOException {
+    int i = 0;
+    while (chunkReader.hasNextSatisfiedPage()) {
+      BatchData batchData = chunkReader.nextPageData();
+      while (batchData.hasCurrent()) {
+        Assert.assertEquals(startTime + i, batchData.currentTime());
+        Assert.assertEquals(value(sensor, i), batchData.getBinary());
+        batchData.next();
+        i++;
+      }
+    }
+    Assert.assertEquals(POINT_NUM, i);
+  }
+
+  @Test
+  public void testTrainedDictionary() throws IOException {
+    write(createChunkWriters(true), file, 0);
+    check(file, 0);
+
+    // the dictionaries pay off with small pages
+    write(createChunkWriters(false), plainFile, 0);
+    Assert.assertTrue(file.length() < plainFile.length());
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(plainFile.getPath())) {
+      Assert.assertNull(reader.getZstdDictionaries());
+    }
+  }
+
+  @Test
+  public void testDictionaryOfSeriesInNextFile() throws IOException {
+    ChunkWriterImpl[] chunkWriters = createChunkWriters(true);
+    write(chunkWriters, file, 0);
+    // the dictionaries trained for the first file are stored again in the next one
+    write(chunkWriters, nextFile, POINT_NUM);
+    check(file, 0);
+    check(nextFile, POINT_NUM);
+  }
+}
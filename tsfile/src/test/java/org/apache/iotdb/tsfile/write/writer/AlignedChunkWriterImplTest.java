@@ -18,20 +18,32 @@
  */
 package org.apache.iotdb.tsfile.write.writer;
 
+import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
+import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
 import org.apache.iotdb.tsfile.file.MetaMarker;
 import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.utils.Binary;
 import org.apache.iotdb.tsfile.utils.PublicBAOS;
 import org.apache.iotdb.tsfile.utils.ReadWriteForEncodingUtils;
 import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
 import org.apache.iotdb.tsfile.write.chunk.AlignedChunkWriterImpl;
+import org.apache.iotdb.tsfile.write.schema.IMeasurementSchema;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
 
 import org.junit.Test;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
@@ -178,4 +190,133 @@ public class AlignedChunkWriterImplTest {
       fail();
     }
   }
+
+  @Test
+  public void testParallelWrite() throws IOException {
+    TSFileConfig config = TSFileDescriptor.getInstance().getConfig();
+    int maxNumberOfPointsInPage = config.getMaxNumberOfPointsInPage();
+    config.setMaxNumberOfPointsInPage(1000);
+    try {
+      assertParallelWriteSameAsSequential();
+    } finally {
+      config.setMaxNumberOfPointsInPage(maxNumberOfPointsInPage);
+    }
+  }
+
+  @Test
+  public void testParallelWriteWithSmallPageSize() throws IOException {
+    TSFileConfig config = TSFileDescriptor.getInstance().getConfig();
+    int pageSizeInByte = config.getPageSizeInByte();
+    // pages are sealed by the size in the middle of the buffered blocks
+    config.setPageSizeInByte(4000);
+    try {
+      assertParallelWriteSameAsSequential();
+    } finally {
+      config.setPageSizeInByte(pageSizeInByte);
+    }
+  }
+
+  @Test
+  public void testSealPendingRows() {
+    TSFileConfig config = TSFileDescriptor.getInstance().getConfig();
+    int maxNumberOfPointsInPage = config.getMaxNumberOfPointsInPage();
+    config.setMaxNumberOfPointsInPage(100);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<IMeasurementSchema> schemaList = new ArrayList<>();
+      schemaList.add(
+          new MeasurementSchema("s1", TSDataType.INT64, TSEncoding.PLAIN, CompressionType.SNAPPY));
+      AlignedChunkWriterImpl sequentialWriter = new AlignedChunkWriterImpl(schemaList);
+      AlignedChunkWriterImpl parallelWriter = new AlignedChunkWriterImpl(schemaList, executor);
+      for (long time = 0; time < 500; time++) {
+        for (AlignedChunkWriterImpl chunkWriter :
+            new AlignedChunkWriterImpl[] {sequentialWriter, parallelWriter}) {
+          chunkWriter.write(time, time, false);
+          chunkWriter.write(time);
+        }
+      }
+
+      // estimating the size does not encode the buffered rows
+      assertEquals(0, parallelWriter.getSerializedChunkSize());
+      assertEquals(0, parallelWriter.getSerializedChunkSize());
+      parallelWriter.sealPendingRows();
+      assertEquals(
+          sequentialWriter.getSerializedChunkSize(), parallelWriter.getSerializedChunkSize());
+    } finally {
+      executor.shutdownNow();
+      config.setMaxNumberOfPointsInPage(maxNumberOfPointsInPage);
+    }
+  }
+
+  private void assertParallelWriteSameAsSequential() throws IOException {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<IMeasurementSchema> schemaList = new ArrayList<>();
+      TSDataType[] dataTypes = {
+        TSDataType.BOOLEAN,
+        TSDataType.INT32,
+        TSDataType.INT64,
+        TSDataType.FLOAT,
+        TSDataType.DOUBLE,
+        TSDataType.TEXT
+      };
+      for (int i = 0; i < 40; i++) {
+        schemaList.add(
+            new MeasurementSchema(
+                "s" + i,
+                dataTypes[i % dataTypes.length],
+                TSEncoding.PLAIN,
+                CompressionType.SNAPPY));
+      }
+
+      byte[] expected = writeAlignedChunk(new AlignedChunkWriterImpl(schemaList));
+      assertArrayEquals(
+          expected, writeAlignedChunk(new AlignedChunkWriterImpl(schemaList, executor)));
+      // the calling thread encodes all the columns if the executor does not run the tasks
+      assertArrayEquals(
+          expected,
+          writeAlignedChunk(
+              new AlignedChunkWriterImpl(
+                  schemaList,
+                  task -> {
+                    throw new RejectedExecutionException();
+                  })));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private byte[] writeAlignedChunk(AlignedChunkWriterImpl chunkWriter) throws IOException {
+    for (int time = 0; time < 4500; time++) {
+      for (int i = 0; i < 40; i++) {
+        boolean isNull = (time + i) % 7 == 0;
+        switch (i % 6) {
+          case 0:
+            chunkWriter.write(time, time % 3 == 0, isNull);
+            break;
+          case 1:
+            chunkWriter.write(time, time * i, isNull);
+            break;
+          case 2:
+            chunkWriter.write(time, (long) time * i, isNull);
+            break;
+          case 3:
+            chunkWriter.write(time, time * 0.5f, isNull);
+            break;
+          case 4:
+            chunkWriter.write(time, time * 0.25, isNull);
+            break;
+          default:
+            chunkWriter.write(time, new Binary("v" + time), isNull);
+            break;
+        }
+      }
+      chunkWriter.write(time);
+    }
+    TestTsFileOutput testTsFileOutput = new TestTsFileOutput();
+    TsFileIOWriter writer = new TsFileIOWriter(testTsFileOutput, true);
+    chunkWriter.writeToFileWriter(writer);
+    PublicBAOS publicBAOS = testTsFileOutput.publicBAOS;
+    return Arrays.copyOf(publicBAOS.getBuf(), publicBAOS.size());
+  }
 }
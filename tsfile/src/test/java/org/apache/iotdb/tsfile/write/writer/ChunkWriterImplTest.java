@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.write.writer;
+
+import org.apache.iotdb.tsfile.constant.TestConstant;
+import org.apache.iotdb.tsfile.file.header.PageHeader;
+import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
+import org.apache.iotdb.tsfile.read.common.BatchData;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.read.reader.chunk.ChunkReader;
+import org.apache.iotdb.tsfile.write.chunk.ChunkWriterImpl;
+import org.apache.iotdb.tsfile.write.page.PageWriter;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChunkWriterImplTest {
+
+  private static final String DEVICE = "root.sg.d1";
+  private static final String SENSOR = "s1";
+
+  private final File file = new File(TestConstant.BASE_OUTPUT_PATH + "chunkWriterImpl.tsfile");
+  private final MeasurementSchema schema =
+      new MeasurementSchema(SENSOR, TSDataType.INT64, TSEncoding.PLAIN, CompressionType.UNCOMPRESSED);
+
+  @After
+  public void tearDown() {
+    if (file.exists()) {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testCopyPagesAfterChunkWritten() throws Exception {
+    ChunkWriterImpl chunkWriter = new ChunkWriterImpl(schema);
+    TsFileIOWriter writer = new TsFileIOWriter(file);
+    writer.startChunkGroup(DEVICE);
+    // the first chunk is written point by point
+    for (long time = 0; time < 10; time++) {
+      chunkWriter.write(time, time);
+    }
+    chunkWriter.writeToFileWriter(writer);
+
+    // the pages of the second chunk are copied by the same writer
+    for (long startTime = 10; startTime < 30; startTime += 10) {
+      PageWriter pageWriter = new PageWriter(schema);
+      for (long time = startTime; time < startTime + 10; time++) {
+        pageWriter.write(time, time);
+      }
+      ByteBuffer page = pageWriter.getUncompressedBytes();
+      chunkWriter.writePageHeaderAndDataIntoBuff(
+          page, new PageHeader(page.remaining(), page.remaining(), pageWriter.getStatistics()));
+    }
+    chunkWriter.writeToFileWriter(writer);
+    writer.endChunkGroup();
+    writer.endFile();
+
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(file.getPath())) {
+      List<ChunkMetadata> chunkMetadataList =
+          reader.getChunkMetadataList(new Path(DEVICE, SENSOR));
+      assertEquals(2, chunkMetadataList.size());
+      long expectedTime = 0;
+      for (ChunkMetadata chunkMetadata : chunkMetadataList) {
+        ChunkReader chunkReader = new ChunkReader(reader.readMemChunk(chunkMetadata), null);
+        while (chunkReader.hasNextSatisfiedPage()) {
+          BatchData batchData = chunkReader.nextPageData();
+          while (batchData.hasCurrent()) {
+            assertEquals(expectedTime, batchData.currentTime());
+            assertEquals(expectedTime, batchData.getLong());
+            batchData.next();
+            expectedTime++;
+          }
+        }
+      }
+      assertEquals(30, expectedTime);
+    }
+  }
+}